@@ -0,0 +1,349 @@
+package benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import renderEngine.ModelLoader;
+import renderEngine.RecordingRenderDevice;
+import terrain.Chunk;
+import terrain.ChunkGenerator;
+import terrain.ChunkMesh;
+import terrain.ChunkMesher;
+import terrain.ChunkStreamer;
+
+/**
+ * Measures how fast terrain chunks are generated and meshed, none of which
+ * needs a display:
+ * 
+ * <ul>
+ * <li>Generating one chunk with {@link terrain.ChunkGenerator}, and meshing it
+ * with a greedy and a naive {@link terrain.ChunkMesher}</li>
+ * <li>Generating and meshing a whole area of chunks on a
+ * {@link java.util.concurrent.ForkJoinPool} of 1, 2 and 4 threads and of every
+ * core</li>
+ * <li>Loading every chunk within view of a standing camera through a
+ * {@link terrain.ChunkStreamer}, uploading to a
+ * {@link renderEngine.RecordingRenderDevice}</li>
+ * </ul>
+ * 
+ * Before timing, every chunk of the area is checked to be meshed within its
+ * own bounds, and its greedy quads are checked to cover exactly the faces of
+ * its naive quads.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChunkBenchmark {
+
+	private static final long SEED = 20240601L;
+
+	/* The area built by each parallel run, in chunks along X and Z, with every chunk from the ground up */
+	private static final int AREA = 8;
+
+	private static final int VIEW_DISTANCE = 6;
+
+	/**
+	 * The generator and the area of chunks built by the parallel runs.
+	 */
+	@State(Scope.Thread)
+	public static class Terrain {
+
+		final ChunkGenerator generator = new ChunkGenerator(SEED);
+
+		int[][] area = null;
+
+		/**
+		 * Lays out the area, and checks that every chunk of it is meshed within its
+		 * own bounds, with greedy quads covering exactly the faces of its naive
+		 * quads.
+		 * 
+		 * @throws IllegalStateException
+		 *             if a chunk is meshed wrongly
+		 */
+		@Setup
+		public void setUp() {
+			area = areaOf(generator);
+			check(generator, area);
+		}
+	}
+
+	/**
+	 * The chunk of the area with the most faces, as those take the longest to
+	 * mesh, and a greedy and a naive mesher.
+	 */
+	@State(Scope.Thread)
+	public static class Single {
+
+		final byte[] volume = new byte[Chunk.PADDED_VOLUME];
+
+		final ChunkMesher greedy = new ChunkMesher(true), naive = new ChunkMesher(false);
+
+		int chunkX = 0, chunkY = 0, chunkZ = 0;
+
+		@Setup
+		public void setUp(Terrain terrain) {
+			int[] chunk = terrain.area[0];
+			int mostQuads = 0;
+			for (int[] candidate : terrain.area) {
+				if (terrain.generator.generate(candidate[0], candidate[1], candidate[2], volume)) {
+					ChunkMesh mesh = naive.mesh(candidate[0], candidate[1], candidate[2], volume);
+					if (mesh != null && mesh.getQuadCount() > mostQuads) {
+						chunk = candidate;
+						mostQuads = mesh.getQuadCount();
+					}
+					if (mesh != null) {
+						mesh.release();
+					}
+				}
+			}
+			chunkX = chunk[0];
+			chunkY = chunk[1];
+			chunkZ = chunk[2];
+			terrain.generator.generate(chunkX, chunkY, chunkZ, volume);
+
+			ChunkMesh greedyMesh = greedy.mesh(chunkX, chunkY, chunkZ, volume);
+			ChunkMesh naiveMesh = naive.mesh(chunkX, chunkY, chunkZ, volume);
+			System.out.println("quads " + greedyMesh.getQuadCount() + " greedy, " + naiveMesh.getQuadCount()
+					+ " naive, vertex bytes " + greedyMesh.getVertexCount() * ChunkMesher.FORMAT.getStride()
+					+ " greedy, " + naiveMesh.getVertexCount() * ChunkMesher.FORMAT.getStride() + " naive");
+			greedyMesh.release();
+			naiveMesh.release();
+		}
+
+		@TearDown
+		public void tearDown() {
+			greedy.release();
+			naive.release();
+		}
+	}
+
+	/**
+	 * A pool of workers, each with its own volume and mesher, as the streamer's
+	 * workers have.
+	 */
+	@State(Scope.Thread)
+	public static class Workers {
+
+		/* Zero for every core */
+		@Param({ "1", "2", "4", "0" })
+		public int threads;
+
+		ForkJoinPool pool = null;
+
+		byte[][] volumes = null;
+
+		ChunkMesher[] meshers = null;
+
+		@Setup
+		public void setUp() {
+			if (threads == 0) {
+				threads = Runtime.getRuntime().availableProcessors();
+			}
+			pool = new ForkJoinPool(threads);
+			volumes = new byte[threads][Chunk.PADDED_VOLUME];
+			meshers = new ChunkMesher[threads];
+			for (int i = 0; i < threads; i++) {
+				meshers[i] = new ChunkMesher();
+			}
+		}
+
+		@TearDown
+		public void tearDown() {
+			for (ChunkMesher mesher : meshers) {
+				mesher.release();
+			}
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * A streamer's worker pool, over every core, and a device to upload to.
+	 */
+	@State(Scope.Thread)
+	public static class Streaming {
+
+		final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+		final ModelLoader modelLoader = new ModelLoader(new RecordingRenderDevice());
+
+		long chunks = 0;
+
+		@TearDown
+		public void tearDown() {
+			System.out.println(chunks + " chunks within view distance " + VIEW_DISTANCE);
+			pool.shutdown();
+		}
+	}
+
+	@Benchmark
+	public boolean generate(Terrain terrain, Single single) {
+		return terrain.generator.generate(single.chunkX, single.chunkY, single.chunkZ, single.volume);
+	}
+
+	@Benchmark
+	public int meshGreedy(Single single) {
+		ChunkMesh mesh = single.greedy.mesh(single.chunkX, single.chunkY, single.chunkZ, single.volume);
+		mesh.release();
+		return mesh.getQuadCount();
+	}
+
+	@Benchmark
+	public int meshNaive(Single single) {
+		ChunkMesh mesh = single.naive.mesh(single.chunkX, single.chunkY, single.chunkZ, single.volume);
+		mesh.release();
+		return mesh.getQuadCount();
+	}
+
+	/* Every chunk of the area, generated and meshed; chunks per second are the area over this time */
+	@Benchmark
+	public long generateAndMeshArea(Terrain terrain, Workers workers) {
+		AtomicInteger next = new AtomicInteger();
+		List<ForkJoinTask<Long>> tasks = new ArrayList<ForkJoinTask<Long>>();
+		for (int i = 0; i < workers.threads; i++) {
+			byte[] volume = workers.volumes[i];
+			ChunkMesher mesher = workers.meshers[i];
+			tasks.add(workers.pool.submit(() -> buildAll(terrain.generator, terrain.area, next, volume, mesher)));
+		}
+
+		long quads = 0;
+		for (ForkJoinTask<Long> task : tasks) {
+			quads += task.join();
+		}
+		return quads;
+	}
+
+	/* Every chunk within view of a standing camera, loaded from nothing */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public long streamerLoad(Terrain terrain, Streaming streaming) {
+		ChunkStreamer streamer = new ChunkStreamer(terrain.generator, streaming.modelLoader, VIEW_DISTANCE, 0,
+				streaming.pool);
+		streamer.update(0f, 0f);
+		while (streamer.hasPendingWork()) {
+			if (streamer.processUploads(Long.MAX_VALUE) == 0) {
+				Thread.yield();
+			}
+		}
+		streaming.chunks = streamer.getChunksBuilt();
+		streamer.cleanUp();
+		return streaming.chunks;
+	}
+
+	/* Builds chunks of the area until none are left, returning the quads made */
+	private static long buildAll(ChunkGenerator generator, int[][] area, AtomicInteger next, byte[] volume,
+			ChunkMesher mesher) {
+		long quads = 0;
+
+		int i;
+		while ((i = next.getAndIncrement()) < area.length) {
+			int[] chunk = area[i];
+			if (generator.generate(chunk[0], chunk[1], chunk[2], volume)) {
+				ChunkMesh mesh = mesher.mesh(chunk[0], chunk[1], chunk[2], volume);
+				if (mesh != null) {
+					quads += mesh.getQuadCount();
+					mesh.release();
+				}
+			}
+		}
+
+		return quads;
+	}
+
+	private static int[][] areaOf(ChunkGenerator generator) {
+		int height = generator.getMaxChunkY() + 1;
+		int[][] area = new int[AREA * AREA * height][];
+
+		int i = 0;
+		for (int chunkZ = -AREA / 2; chunkZ < AREA / 2; chunkZ++) {
+			for (int chunkX = -AREA / 2; chunkX < AREA / 2; chunkX++) {
+				for (int chunkY = 0; chunkY < height; chunkY++) {
+					area[i++] = new int[] { chunkX, chunkY, chunkZ };
+				}
+			}
+		}
+
+		return area;
+	}
+
+	private static void check(ChunkGenerator generator, int[][] area) {
+		byte[] volume = new byte[Chunk.PADDED_VOLUME];
+		ChunkMesher greedy = new ChunkMesher(true), naive = new ChunkMesher(false);
+
+		for (int[] chunk : area) {
+			if (!generator.generate(chunk[0], chunk[1], chunk[2], volume)) {
+				continue;
+			}
+
+			ChunkMesh greedyMesh = greedy.mesh(chunk[0], chunk[1], chunk[2], volume);
+			ChunkMesh naiveMesh = naive.mesh(chunk[0], chunk[1], chunk[2], volume);
+			if ((greedyMesh == null) != (naiveMesh == null)) {
+				throw new IllegalStateException("Chunk " + chunk[0] + ", " + chunk[1] + ", " + chunk[2]
+						+ " is meshed by only one mesher");
+			}
+			if (greedyMesh == null) {
+				continue;
+			}
+
+			if (areaOf(greedyMesh, chunk) != naiveMesh.getQuadCount()) {
+				throw new IllegalStateException("Greedy quads of chunk " + chunk[0] + ", " + chunk[1] + ", "
+						+ chunk[2] + " do not cover the same faces as naive quads");
+			}
+
+			greedyMesh.release();
+			naiveMesh.release();
+		}
+
+		greedy.release();
+		naive.release();
+	}
+
+	/* The total area of a mesh's quads, checking every vertex is within the chunk */
+	private static long areaOf(ChunkMesh mesh, int[] chunk) {
+		ByteBuffer vertices = mesh.getVertices();
+		int stride = ChunkMesher.FORMAT.getStride();
+		long area = 0;
+
+		for (int quad = 0; quad < mesh.getQuadCount(); quad++) {
+			float[] min = { Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE };
+			float[] max = { -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE };
+
+			for (int vertex = 0; vertex < 4; vertex++) {
+				for (int axis = 0; axis < 3; axis++) {
+					float value = vertices.getFloat((quad * 4 + vertex) * stride + axis * Float.BYTES);
+					float low = chunk[axis] * Chunk.SIZE;
+					if (value < low || value > low + Chunk.SIZE) {
+						throw new IllegalStateException("Quad " + quad + " is outside of its chunk");
+					}
+					min[axis] = Math.min(min[axis], value);
+					max[axis] = Math.max(max[axis], value);
+				}
+			}
+
+			/* One side of every quad is flat, and counts as one */
+			long quadArea = 1;
+			for (int axis = 0; axis < 3; axis++) {
+				quadArea *= Math.max(1, (long) (max[axis] - min[axis]));
+			}
+			area += quadArea;
+		}
+
+		return area;
+	}
+}
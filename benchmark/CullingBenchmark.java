@@ -0,0 +1,149 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import renderEngine.Bounds;
+import renderEngine.Frustum;
+import renderEngine.SpatialGrid;
+
+/**
+ * Measures frustum culling against the number of objects in the scene, without
+ * a window. Objects of assorted sizes are scattered through a cube around a
+ * camera with a 70 degree field of view, so that a few percent are visible.
+ * Each scene size is culled four ways:
+ * 
+ * <ul>
+ * <li>Testing every object's box against the frustum, as the baseline</li>
+ * <li>Through a {@link renderEngine.SpatialGrid} on the calling thread</li>
+ * <li>Through the grid, split across the common fork-join pool</li>
+ * <li>Moving a tenth of the objects through the grid, then culling, as a
+ * frame of a scene in motion would</li>
+ * </ul>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class CullingBenchmark {
+
+	private static final float WORLD_SIZE = 1000, CELL_SIZE = 64, FAR = 250;
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int objects;
+
+	private final Frustum frustum = new Frustum();
+
+	private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+	private final Bounds[] models = { new Bounds(-0.5f, -0.5f, -0.5f, 0.5f, 0.5f, 0.5f),
+			new Bounds(-2, 0, -2, 2, 6, 2), new Bounds(-8, -1, -8, 8, 1, 8) };
+
+	private float[] positions = null;
+
+	private int[] modelOf = null;
+
+	private SpatialGrid grid = null;
+
+	/**
+	 * Scatters the objects, and checks that the grid finds the same objects
+	 * visible as testing every one does.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the grid and the brute force disagree
+	 */
+	@Setup
+	public void setUp() {
+		frustum.set(perspective(70, 16f / 9f, 0.1f, FAR));
+
+		Random random = new Random(objects);
+		positions = new float[objects * 3];
+		modelOf = new int[objects];
+		grid = new SpatialGrid(CELL_SIZE);
+
+		for (int i = 0; i < objects; i++) {
+			for (int axis = 0; axis < 3; axis++) {
+				positions[i * 3 + axis] = (random.nextFloat() - 0.5f) * WORLD_SIZE;
+			}
+			modelOf[i] = random.nextInt(10) == 0 ? 2 : random.nextInt(2);
+			grid.add(models[modelOf[i]], positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2]);
+		}
+
+		int visible = grid.cull(frustum);
+		int bruteVisible = cullBruteForce(frustum, models, modelOf, positions);
+		if (visible != bruteVisible) {
+			throw new IllegalStateException("Grid found " + visible + " visible, expected " + bruteVisible);
+		}
+		System.out.printf("objects=%d visible=%d (%.1f%%) cells=%d%n", objects, visible, 100.0 * visible / objects,
+				grid.getCellCount());
+	}
+
+	@Benchmark
+	public int bruteForce() {
+		return cullBruteForce(frustum, models, modelOf, positions);
+	}
+
+	@Benchmark
+	public int grid() {
+		return grid.cull(frustum);
+	}
+
+	@Benchmark
+	public int gridParallel() {
+		return grid.cull(frustum, pool);
+	}
+
+	/* The same tenth moves every frame, drifting a little each time */
+	@Benchmark
+	public int update10PercentAndCull() {
+		int moving = objects / 10;
+		for (int i = 0; i < moving; i++) {
+			int p = i * 3;
+			positions[p] = wrap(positions[p] + 0.5f);
+			positions[p + 2] = wrap(positions[p + 2] - 0.25f);
+			grid.update(i, models[modelOf[i]], positions[p], positions[p + 1], positions[p + 2]);
+		}
+		return grid.cull(frustum);
+	}
+
+	private static int cullBruteForce(Frustum frustum, Bounds[] models, int[] modelOf, float[] positions) {
+		int visible = 0;
+		for (int i = 0; i < modelOf.length; i++) {
+			Bounds model = models[modelOf[i]];
+			float x = positions[i * 3], y = positions[i * 3 + 1], z = positions[i * 3 + 2];
+			if (frustum.intersectsBox(model.getMinX() + x, model.getMinY() + y, model.getMinZ() + z,
+					model.getMaxX() + x, model.getMaxY() + y, model.getMaxZ() + z)) {
+				visible++;
+			}
+		}
+		return visible;
+	}
+
+	private static float wrap(float x) {
+		return x > WORLD_SIZE / 2 ? x - WORLD_SIZE : x < -WORLD_SIZE / 2 ? x + WORLD_SIZE : x;
+	}
+
+	/* A column-major projection for a camera at the origin looking down -Z */
+	private static float[] perspective(float fovDegrees, float aspect, float near, float far) {
+		float f = 1 / (float) Math.tan(Math.toRadians(fovDegrees) / 2);
+		float[] m = new float[16];
+		m[0] = f / aspect;
+		m[5] = f;
+		m[10] = (far + near) / (near - far);
+		m[11] = -1;
+		m[14] = 2 * far * near / (near - far);
+		return m;
+	}
+}
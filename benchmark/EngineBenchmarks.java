@@ -0,0 +1,212 @@
+package benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import main.GameLoop;
+import renderEngine.IndexType;
+import renderEngine.MeshOptimizer;
+import renderEngine.VertexFormat;
+import renderEngine.VertexPacker;
+import utility.BufferPool;
+import utility.PooledBuffer;
+import utility.TypeConversions;
+
+/**
+ * The baseline benchmarks for the engine's CPU paths, to be run before and
+ * after every performance change:
+ * 
+ * <ul>
+ * <li>Array to buffer conversion in {@link utility.TypeConversions}, at several
+ * sizes, comparing a new buffer per call, a pooled buffer and a buffer the
+ * caller already has</li>
+ * <li>The tick accounting of {@link main.GameLoop}, driven by a fake clock</li>
+ * <li>The vertex and index packing that {@link renderEngine.ModelLoader} does
+ * before handing data to OpenGL</li>
+ * </ul>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EngineBenchmarks {
+
+	private static final int PACKED_VERTICES = 10000;
+
+	/**
+	 * An array to convert, and a buffer of the caller's to convert it into.
+	 */
+	@State(Scope.Thread)
+	public static class Conversion {
+
+		@Param({ "12", "1024", "65536", "1048576" })
+		public int floats;
+
+		float[] data = null;
+
+		PooledBuffer target = null;
+
+		FloatBuffer buffer = null;
+
+		@Setup
+		public void setUp() {
+			data = new float[floats];
+			target = BufferPool.SHARED.acquireFloats(floats);
+			buffer = target.getFloatBuffer();
+		}
+
+		@TearDown
+		public void tearDown() {
+			target.release();
+		}
+	}
+
+	/**
+	 * A game loop on a clock that only moves when told to.
+	 */
+	@State(Scope.Thread)
+	public static class Loop {
+
+		long now = 0, ticks = 0;
+
+		GameLoop gameLoop = null;
+
+		Runnable tick = null;
+
+		@Setup
+		public void setUp() {
+			GameLoop.Clock clock = new GameLoop.Clock() {
+				@Override
+				public long nanoTime() {
+					return now;
+				}
+
+				@Override
+				public void park(long nanos) {
+					now += nanos;
+				}
+			};
+
+			gameLoop = new GameLoop(20, 5, clock);
+			tick = () -> ticks++;
+		}
+	}
+
+	/**
+	 * Random vertices in the compact format, and a buffer to pack them into.
+	 */
+	@State(Scope.Thread)
+	public static class Vertices {
+
+		final VertexFormat format = VertexFormat.POSITION_COLOR_NORMAL_TEXTURE;
+
+		float[][] attributeData = null;
+
+		PooledBuffer vertices = null;
+
+		@Setup
+		public void setUp() {
+			Random random = new Random(1);
+			attributeData = new float[format.getAttributeCount()][];
+			for (int a = 0; a < attributeData.length; a++) {
+				attributeData[a] = new float[PACKED_VERTICES * format.getAttribute(a).getComponents()];
+				for (int i = 0; i < attributeData[a].length; i++) {
+					attributeData[a][i] = random.nextFloat();
+				}
+			}
+
+			vertices = BufferPool.SHARED.acquire(PACKED_VERTICES * format.getStride());
+		}
+
+		@TearDown
+		public void tearDown() {
+			vertices.release();
+		}
+	}
+
+	/**
+	 * Random indices, and a buffer to pack them into at each index size.
+	 */
+	@State(Scope.Thread)
+	public static class Indices {
+
+		@Param({ "UNSIGNED_SHORT", "UNSIGNED_INT" })
+		public IndexType type;
+
+		int[] indices = null;
+
+		PooledBuffer packed = null;
+
+		@Setup
+		public void setUp() {
+			Random random = new Random(1);
+			indices = new int[PACKED_VERTICES * 6];
+			for (int i = 0; i < indices.length; i++) {
+				indices[i] = random.nextInt(PACKED_VERTICES);
+			}
+
+			packed = BufferPool.SHARED.acquire(indices.length * type.getBytes());
+		}
+
+		@TearDown
+		public void tearDown() {
+			packed.release();
+		}
+	}
+
+	@Benchmark
+	public FloatBuffer conversionNewBuffer(Conversion state) {
+		return TypeConversions.floatArrayToFloatBuffer(state.data);
+	}
+
+	@Benchmark
+	public int conversionPooledBuffer(Conversion state) {
+		PooledBuffer pooled = TypeConversions.floatArrayToPooledBuffer(state.data);
+		int limit = pooled.getFloatBuffer().limit();
+		pooled.release();
+		return limit;
+	}
+
+	@Benchmark
+	public FloatBuffer conversionCallerBuffer(Conversion state) {
+		state.buffer.clear();
+		return TypeConversions.floatArrayToFloatBuffer(state.data, state.buffer);
+	}
+
+	/* A 60 FPS frame: one tick due about every third frame */
+	@Benchmark
+	public int gameLoopFrame(Loop state) {
+		state.now += 16666667L;
+		return state.gameLoop.advance(state.tick);
+	}
+
+	/* A stalled frame: more ticks due than the catch-up cap */
+	@Benchmark
+	public int gameLoopStalledFrame(Loop state) {
+		state.now += 500000000L;
+		return state.gameLoop.advance(state.tick);
+	}
+
+	@Benchmark
+	public ByteBuffer packVertices(Vertices state) {
+		return VertexPacker.pack(state.format, state.attributeData, state.vertices.getByteBuffer());
+	}
+
+	@Benchmark
+	public ByteBuffer packIndices(Indices state) {
+		return MeshOptimizer.packIndices(state.indices, state.type, state.packed.getByteBuffer());
+	}
+}
@@ -0,0 +1,57 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import renderEngine.QualityGovernor;
+
+/**
+ * Times recording a frame with a {@link renderEngine.QualityGovernor}, which
+ * is done once every frame. The governor's control logic is checked against
+ * modeled machines by {@code QualityGovernorTest}, and the framebuffer it
+ * scales by {@code ScaledFramebufferTest}.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class GovernorBenchmark {
+
+	private static final long SEED = 20240601L;
+
+	/* 60 FPS */
+	private static final long TARGET_NS = 16666667L;
+
+	private final QualityGovernor governor = new QualityGovernor(TARGET_NS);
+
+	private final long[] frameNs = new long[4096];
+
+	private int frame = 0;
+
+	/**
+	 * Makes seeded frame times around the target for the benchmark.
+	 */
+	@Setup
+	public void setUp() {
+		Random random = new Random(SEED);
+		for (int i = 0; i < frameNs.length; i++) {
+			frameNs[i] = (long) (TARGET_NS * (0.5 + random.nextDouble()));
+		}
+	}
+
+	@Benchmark
+	public boolean recordFrame() {
+		int i = frame++ & (frameNs.length - 1);
+		return governor.recordFrame(frameNs[i], frameNs[frameNs.length - 1 - i]);
+	}
+}
@@ -0,0 +1,197 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import renderEngine.LodModel;
+import renderEngine.LodSelector;
+import renderEngine.Mesh;
+import renderEngine.MeshSimplifier;
+import renderEngine.ModelLoader;
+import renderEngine.RecordingRenderDevice;
+import renderEngine.RenderQueue;
+import renderEngine.VertexFormat;
+
+/**
+ * Measures levels of detail without a window. A bumpy sphere of about 65,000
+ * triangles is simplified into a chain of levels, and the size and error of
+ * each level are printed, with simplifying it to half its triangles timed. A
+ * scene of the sphere scattered at many distances is then submitted through a
+ * {@link renderEngine.RenderQueue} on a
+ * {@link renderEngine.RecordingRenderDevice}, to compare the indices drawn with
+ * and without selecting levels, and the camera is swayed back and forth to
+ * count how often levels switch with and without hysteresis.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class LodBenchmark {
+
+	private static final int RINGS = 128, SEGMENTS = 256, LEVELS = 8, OBJECTS = 10000;
+
+	private static final int VIEWPORT_HEIGHT = 720;
+
+	private static final float FIELD_OF_VIEW = 70, MAX_PIXEL_ERROR = 1, SCENE_RADIUS = 20;
+
+	private Mesh sphere = null;
+
+	private LodModel model = null;
+
+	private LodSelector selector = null;
+
+	private float[] positions = null;
+
+	private int[] levels = null;
+
+	/**
+	 * Builds the sphere, its levels and the scene, and prints the size and error
+	 * of each level, the indices drawn with and without levels, and how often
+	 * levels switch as the camera sways.
+	 */
+	@Setup
+	public void setUp() {
+		sphere = bumpySphere();
+
+		RecordingRenderDevice device = new RecordingRenderDevice();
+		model = new ModelLoader(device).loadWithLods(sphere, LEVELS);
+		for (int level = 0; level < model.getLevelCount(); level++) {
+			System.out.printf("level %d: %d triangles, error %.5f%n", level,
+					model.getLevel(level).getVertexCount() / 3, model.getError(level));
+		}
+
+		Random random = new Random(1);
+		positions = new float[OBJECTS * 3];
+		for (int i = 0; i < OBJECTS; i++) {
+			/* Spread evenly through the volume, so most objects are far away */
+			float distance = SCENE_RADIUS * (float) Math.cbrt(random.nextFloat()) + 2;
+			float theta = random.nextFloat() * 2 * (float) Math.PI, y = random.nextFloat() * 2 - 1;
+			float ring = (float) Math.sqrt(1 - y * y);
+			positions[i * 3] = distance * ring * (float) Math.cos(theta);
+			positions[i * 3 + 1] = distance * y;
+			positions[i * 3 + 2] = distance * ring * (float) Math.sin(theta);
+		}
+
+		selector = new LodSelector(VIEWPORT_HEIGHT, FIELD_OF_VIEW, MAX_PIXEL_ERROR);
+		levels = new int[OBJECTS];
+		RenderQueue queue = new RenderQueue(device);
+
+		device.resetCounters();
+		for (int i = 0; i < OBJECTS; i++) {
+			queue.submit(model.getLevel(0));
+		}
+		queue.flush();
+		long fullIndices = device.getIndicesDrawn();
+
+		selectAll(selector, model, positions, levels);
+		device.resetCounters();
+		for (int i = 0; i < OBJECTS; i++) {
+			queue.submit(model.getLevel(levels[i]));
+		}
+		queue.flush();
+		long lodIndices = device.getIndicesDrawn();
+
+		System.out.printf("objects=%d indices drawn: full %d, with levels %d (%.1f%% of full)%n", OBJECTS,
+				fullIndices, lodIndices, 100.0 * lodIndices / fullIndices);
+
+		for (float hysteresis : new float[] { 0, 0.25f }) {
+			selector.setHysteresis(hysteresis);
+			selector.setCamera(0, 0, 0);
+			selectAll(selector, model, positions, levels);
+
+			/* A small sway, as a player idling would make */
+			long switches = 0;
+			for (int frame = 0; frame < 600; frame++) {
+				selector.setCamera(0.5f * (float) Math.sin(frame * 0.1), 0, 0);
+				switches += selectAll(selector, model, positions, levels);
+			}
+			System.out.printf("hysteresis=%.2f: %d level switches over 600 swaying frames%n", hysteresis, switches);
+		}
+	}
+
+	/* Down to half of the sphere's triangles */
+	@Benchmark
+	public int simplify() {
+		return new MeshSimplifier(sphere).simplify(sphere.getIndices().length / 2).length;
+	}
+
+	@Benchmark
+	public long select() {
+		return selectAll(selector, model, positions, levels);
+	}
+
+	/* Returns how many objects changed level */
+	private static long selectAll(LodSelector selector, LodModel model, float[] positions, int[] levels) {
+		long switches = 0;
+		for (int i = 0; i < levels.length; i++) {
+			int level = selector.select(model, positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2],
+					levels[i]);
+			if (level != levels[i]) {
+				switches++;
+				levels[i] = level;
+			}
+		}
+		return switches;
+	}
+
+	private static Mesh bumpySphere() {
+		/* A pole at each end, with every ring sharing the vertex where it wraps */
+		int vertexCount = 2 + (RINGS - 1) * SEGMENTS;
+		float[] positions = new float[vertexCount * 3];
+
+		setSpherePoint(positions, 0, 0, 0);
+		setSpherePoint(positions, vertexCount - 1, (float) Math.PI, 0);
+		for (int r = 1; r < RINGS; r++) {
+			for (int s = 0; s < SEGMENTS; s++) {
+				setSpherePoint(positions, 1 + (r - 1) * SEGMENTS + s, (float) Math.PI * r / RINGS,
+						2 * (float) Math.PI * s / SEGMENTS);
+			}
+		}
+
+		int[] indices = new int[SEGMENTS * 6 + (RINGS - 2) * SEGMENTS * 6];
+		int i = 0;
+		for (int s = 0; s < SEGMENTS; s++) {
+			int next = (s + 1) % SEGMENTS;
+			indices[i++] = 0;
+			indices[i++] = 1 + s;
+			indices[i++] = 1 + next;
+
+			int last = 1 + (RINGS - 2) * SEGMENTS;
+			indices[i++] = vertexCount - 1;
+			indices[i++] = last + next;
+			indices[i++] = last + s;
+		}
+		for (int r = 0; r < RINGS - 2; r++) {
+			for (int s = 0; s < SEGMENTS; s++) {
+				int next = (s + 1) % SEGMENTS;
+				int a = 1 + r * SEGMENTS + s, b = 1 + r * SEGMENTS + next;
+				int c = a + SEGMENTS, d = b + SEGMENTS;
+				indices[i++] = a;
+				indices[i++] = c;
+				indices[i++] = b;
+				indices[i++] = b;
+				indices[i++] = c;
+				indices[i++] = d;
+			}
+		}
+
+		return new Mesh(VertexFormat.POSITION, new float[][] { positions }, indices);
+	}
+
+	private static void setSpherePoint(float[] positions, int vertex, float polar, float azimuth) {
+		float radius = 1 + 0.03f * (float) (Math.sin(polar * 9) * Math.cos(azimuth * 7));
+		positions[vertex * 3] = radius * (float) (Math.sin(polar) * Math.cos(azimuth));
+		positions[vertex * 3 + 1] = radius * (float) Math.cos(polar);
+		positions[vertex * 3 + 2] = radius * (float) (Math.sin(polar) * Math.sin(azimuth));
+	}
+}
@@ -0,0 +1,190 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import renderEngine.CachedMesh;
+import renderEngine.Mesh;
+import renderEngine.MeshCache;
+import renderEngine.MeshOptimizer;
+import renderEngine.ObjImporter;
+import renderEngine.VertexPacker;
+
+/**
+ * Compares the two ways of getting a mesh off of disk and ready for OpenGL:
+ * parsing an OBJ file, then optimizing and packing it, versus memory-mapping a
+ * {@link renderEngine.MeshCache} file. A UV sphere with normals and texture
+ * coordinates is written to a temporary directory in both formats. Each load
+ * ends by reading every packed byte, standing in for the copy OpenGL makes.
+ * 
+ * <p>
+ * The cold numbers time a single load of each of several files, in a JVM that
+ * has not loaded that file yet. The files were only just written, so the
+ * operating system most likely still has them cached; for truly cold disk
+ * numbers, drop the page cache between writing and loading.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+@State(Scope.Thread)
+public class MeshCacheBenchmark {
+
+	private static final int SPHERE_RINGS = 256, SPHERE_SEGMENTS = 256;
+
+	private static final int COLD_FILES = 5;
+
+	private Path directory = null;
+
+	private final Path[] objFiles = new Path[COLD_FILES], cacheFiles = new Path[COLD_FILES];
+
+	/* The file the next cold load reads, a new one each iteration */
+	private int coldFile = -1;
+
+	/**
+	 * Writes every file in both formats.
+	 * 
+	 * @throws IOException
+	 *             if the temporary files cannot be written
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("arsia-mesh-cache");
+		for (int i = 0; i < COLD_FILES; i++) {
+			objFiles[i] = directory.resolve("sphere" + i + ".obj");
+			cacheFiles[i] = directory.resolve("sphere" + i + MeshCache.EXTENSION);
+			writeSphere(objFiles[i]);
+			MeshCache.write(ObjImporter.read(objFiles[i]), cacheFiles[i]);
+		}
+
+		System.out.printf("OBJ file: %d bytes, cache file: %d bytes%n", Files.size(objFiles[0]),
+				Files.size(cacheFiles[0]));
+	}
+
+	@Setup(Level.Iteration)
+	public void nextColdFile() {
+		coldFile = (coldFile + 1) % COLD_FILES;
+	}
+
+	/**
+	 * Deletes every file.
+	 * 
+	 * @throws IOException
+	 *             if a file cannot be deleted
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		for (int i = 0; i < COLD_FILES; i++) {
+			Files.delete(objFiles[i]);
+			Files.delete(cacheFiles[i]);
+		}
+		Files.delete(directory);
+	}
+
+	/* The first file warms up the class loading for the rest, each of which is loaded once */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 1)
+	@Measurement(iterations = COLD_FILES - 1)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public long coldObj() {
+		return loadObj(objFiles[coldFile]);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 1)
+	@Measurement(iterations = COLD_FILES - 1)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public long coldCache() {
+		return loadCache(cacheFiles[coldFile]);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public long warmObj() {
+		return loadObj(objFiles[0]);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public long warmCache() {
+		return loadCache(cacheFiles[0]);
+	}
+
+	private static long loadObj(Path file) {
+		try {
+			Mesh mesh = MeshOptimizer.optimize(ObjImporter.read(file));
+			ByteBuffer vertices = ByteBuffer.allocateDirect(mesh.getVertexCount() * mesh.getFormat().getStride());
+			VertexPacker.pack(mesh.getFormat(), mesh.getAttributeData(), vertices);
+			return checksum(vertices) + mesh.getIndices().length;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static long loadCache(Path file) {
+		try {
+			CachedMesh mesh = MeshCache.read(file);
+			return checksum(mesh.getVertices()) + checksum(mesh.getIndices());
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static long checksum(ByteBuffer buffer) {
+		long sum = 0;
+		while (buffer.remaining() >= Long.BYTES) {
+			sum += buffer.getLong();
+		}
+		while (buffer.hasRemaining()) {
+			sum += buffer.get();
+		}
+		return sum;
+	}
+
+	private static void writeSphere(Path file) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			for (int ring = 0; ring <= SPHERE_RINGS; ring++) {
+				double theta = Math.PI * ring / SPHERE_RINGS;
+
+				for (int segment = 0; segment <= SPHERE_SEGMENTS; segment++) {
+					double phi = 2 * Math.PI * segment / SPHERE_SEGMENTS;
+					double x = Math.sin(theta) * Math.cos(phi), y = Math.cos(theta), z = Math.sin(theta) * Math.sin(phi);
+
+					writer.write("v " + (float) x + " " + (float) y + " " + (float) z + "\n");
+					writer.write("vn " + (float) x + " " + (float) y + " " + (float) z + "\n");
+					writer.write("vt " + (float) segment / SPHERE_SEGMENTS + " " + (float) ring / SPHERE_RINGS + "\n");
+				}
+			}
+
+			int columns = SPHERE_SEGMENTS + 1;
+			for (int ring = 0; ring < SPHERE_RINGS; ring++) {
+				for (int segment = 0; segment < SPHERE_SEGMENTS; segment++) {
+					int a = ring * columns + segment + 1, b = a + columns;
+					writer.write("f " + a + "/" + a + "/" + a + " " + b + "/" + b + "/" + b + " " + (b + 1) + "/"
+							+ (b + 1) + "/" + (b + 1) + " " + (a + 1) + "/" + (a + 1) + "/" + (a + 1) + "\n");
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import renderEngine.IndexType;
+import renderEngine.Mesh;
+import renderEngine.MeshOptimizer;
+import renderEngine.VertexFormat;
+
+/**
+ * Measures what {@link renderEngine.MeshOptimizer} saves on generated grid
+ * meshes. Each grid starts out the way a naive exporter would write it: every
+ * triangle has its own three vertices, and the triangles are in a random order.
+ * For each grid size, the optimization pass is timed, and the average cache
+ * miss ratio (ACMR) and the bytes of vertex and index data before and after it
+ * are printed.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class MeshOptimizerBenchmark {
+
+	private static final int CACHE_SIZE = MeshOptimizer.DEFAULT_CACHE_SIZE;
+
+	@Param({ "8", "32", "128", "512" })
+	public int grid;
+
+	private Mesh soup = null;
+
+	/**
+	 * Builds the shuffled grid, and prints its vertex count, ACMR and size before
+	 * and after the optimization pass.
+	 */
+	@Setup
+	public void setUp() {
+		soup = createShuffledGrid(VertexFormat.POSITION, grid, new Random(grid));
+
+		/* Weld first, so the "before" ACMR is not simply 3 for every triangle */
+		Mesh welded = MeshOptimizer.weldVertices(soup);
+		float acmrBefore = MeshOptimizer.computeACMR(welded.getIndices(), welded.getVertexCount(), CACHE_SIZE);
+
+		Mesh optimized = MeshOptimizer.optimize(soup);
+		float acmrAfter = MeshOptimizer.computeACMR(optimized.getIndices(), optimized.getVertexCount(), CACHE_SIZE);
+
+		long bytesBefore = sizeOf(soup, IndexType.UNSIGNED_INT);
+		long bytesAfter = sizeOf(optimized, IndexType.forVertexCount(optimized.getVertexCount()));
+
+		System.out.printf("grid %dx%d: vertices %d -> %d, ACMR %.3f -> %.3f, bytes %d -> %d%n", grid, grid,
+				soup.getVertexCount(), optimized.getVertexCount(), acmrBefore, acmrAfter, bytesBefore, bytesAfter);
+	}
+
+	@Benchmark
+	public Mesh optimize() {
+		return MeshOptimizer.optimize(soup);
+	}
+
+	private static long sizeOf(Mesh mesh, IndexType indexType) {
+		return (long) mesh.getVertexCount() * mesh.getFormat().getStride()
+				+ (long) mesh.getIndices().length * indexType.getBytes();
+	}
+
+	private static Mesh createShuffledGrid(VertexFormat format, int size, Random random) {
+		int triangleCount = size * size * 2;
+		int[] order = new int[triangleCount];
+		for (int i = 0; i < triangleCount; i++) {
+			order[i] = i;
+		}
+
+		for (int i = triangleCount - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1), swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+
+		float[] positions = new float[triangleCount * 9];
+		int[] indices = new int[triangleCount * 3];
+
+		for (int t = 0; t < triangleCount; t++) {
+			int quad = order[t] / 2, x = quad % size, y = quad / size;
+			boolean upper = order[t] % 2 == 0;
+
+			int[] cornersX = upper ? new int[] { x, x, x + 1 } : new int[] { x + 1, x, x + 1 };
+			int[] cornersY = upper ? new int[] { y, y + 1, y } : new int[] { y, y + 1, y + 1 };
+
+			for (int c = 0; c < 3; c++) {
+				int v = t * 3 + c;
+				positions[v * 3] = cornersX[c];
+				positions[v * 3 + 1] = cornersY[c];
+				positions[v * 3 + 2] = 0f;
+				indices[v] = v;
+			}
+		}
+
+		return new Mesh(format, new float[][] { positions }, indices);
+	}
+}
@@ -0,0 +1,138 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import renderEngine.RecordingRenderDevice;
+import renderEngine.SpriteBatch;
+
+/**
+ * A benchmark scene for {@link renderEngine.SpriteBatch}: a frame of moving
+ * sprites spread over a few textures, built the way a 2D game would build it.
+ * For each scene size, the time to build and submit one frame is measured.
+ * 
+ * <p>
+ * The sprites are submitted to a {@link renderEngine.RecordingRenderDevice}, so
+ * this measures the CPU side only: writing vertices and issuing draws. Scenes
+ * are run both sorted by texture, as from an atlas, and with textures in random
+ * order, which shows the cost of breaking batches.
+ * </p>
+ * 
+ * <p>
+ * The device models a GPU running
+ * {@link renderEngine.RecordingRenderDevice#DEFAULT_FRAMES_IN_FLIGHT} frames
+ * behind, so a stream too small for the frames in flight has to wait on fences
+ * the GPU has not reached. Each stall is counted and printed at the end of a
+ * trial, rather than timed, as the device has no GPU to wait for. Scenes are run
+ * with the batch sized for the whole frame, and sized for only one batch, which
+ * shows those stalls. The sprites the CPU could submit per frame at 60 FPS are
+ * the scene size times 16,667 microseconds over the measured time, but only
+ * where no stalls were printed; on a real GPU, each stall waits for a frame to
+ * finish.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class SpriteBatchBenchmark {
+
+	private static final int TEXTURES = 4, MAX_SPRITES_PER_BATCH = 8192;
+
+	@Param({ "1000", "10000", "100000" })
+	public int sprites;
+
+	@Param({ "true", "false" })
+	public boolean sortedByTexture;
+
+	@Param({ "true", "false" })
+	public boolean sizedForFrame;
+
+	private final RecordingRenderDevice device = new RecordingRenderDevice();
+
+	private SpriteBatch batch = null;
+
+	private Scene scene = null;
+
+	private long frames = 0;
+
+	@Setup
+	public void setUp() {
+		batch = sizedForFrame ? new SpriteBatch(device, MAX_SPRITES_PER_BATCH, sprites)
+				: new SpriteBatch(device, MAX_SPRITES_PER_BATCH);
+		scene = new Scene(sprites, sortedByTexture);
+	}
+
+	/**
+	 * Prints how many batches the last frame took and how often a frame waited on
+	 * the GPU, then deletes the batch.
+	 */
+	@TearDown
+	public void tearDown() {
+		System.out.printf("sprites=%d sorted=%b sized=%b: %d batches per frame, %.3f stalls per frame%n", sprites,
+				sortedByTexture, sizedForFrame, batch.getBatches(), (double) batch.getStalls() / frames);
+		batch.cleanUp();
+	}
+
+	@Benchmark
+	public long drawFrame() {
+		long drawn = scene.drawFrame(batch);
+		device.endFrame();
+		frames++;
+		return drawn;
+	}
+
+	/* Sprite positions and velocities, as a game would keep them */
+	private static class Scene {
+		private final float[] x, y, dx, dy;
+		private final int[] textures;
+
+		private Scene(int size, boolean sortedByTexture) {
+			Random random = new Random(size);
+			x = new float[size];
+			y = new float[size];
+			dx = new float[size];
+			dy = new float[size];
+			textures = new int[size];
+
+			for (int i = 0; i < size; i++) {
+				x[i] = random.nextFloat() * 2 - 1;
+				y[i] = random.nextFloat() * 2 - 1;
+				dx[i] = (random.nextFloat() - 0.5f) * 0.01f;
+				dy[i] = (random.nextFloat() - 0.5f) * 0.01f;
+				textures[i] = sortedByTexture ? 1 + i * TEXTURES / size : 1 + random.nextInt(TEXTURES);
+			}
+		}
+
+		private long drawFrame(SpriteBatch batch) {
+			batch.begin();
+			for (int i = 0; i < x.length; i++) {
+				x[i] += dx[i];
+				y[i] += dy[i];
+				if (x[i] < -1 || x[i] > 1) {
+					dx[i] = -dx[i];
+				}
+				if (y[i] < -1 || y[i] > 1) {
+					dy[i] = -dy[i];
+				}
+
+				batch.draw(textures[i], x[i], y[i], 0.02f, 0.02f);
+			}
+			batch.end();
+
+			return batch.getSprites();
+		}
+	}
+}
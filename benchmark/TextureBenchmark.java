@@ -0,0 +1,201 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import renderEngine.AtlasPacker;
+import renderEngine.Image;
+import renderEngine.MipmapGenerator;
+import renderEngine.RecordingRenderDevice;
+import renderEngine.Texture;
+import renderEngine.TextureAtlas;
+import renderEngine.TextureLoader;
+
+/**
+ * Measures the CPU side of loading textures, none of which needs a display:
+ * 
+ * <ul>
+ * <li>Placing rectangles with an {@link renderEngine.AtlasPacker}, at several
+ * counts</li>
+ * <li>Packing whole images into a {@link renderEngine.TextureAtlas}, including
+ * copying them onto the pages</li>
+ * <li>Building mipmap chains with {@link renderEngine.MipmapGenerator}, one
+ * page at a time and spread over every core</li>
+ * <li>Building the levels of a page and copying them into the unpack buffer
+ * through a {@link renderEngine.TextureLoader} on a
+ * {@link renderEngine.RecordingRenderDevice}</li>
+ * </ul>
+ * 
+ * That the packing, the atlas pages and the mipmap levels come out right is
+ * checked by the tests of those classes, so nothing is checked here.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TextureBenchmark {
+
+	private static final int PAGE_SIZE = 2048, BORDER = 4;
+
+	private static final int ATLAS_IMAGES = 2000, MIPMAP_PAGES = 8;
+
+	/**
+	 * Rectangles of random sizes, and a packer for a page.
+	 */
+	@State(Scope.Thread)
+	public static class Rectangles {
+
+		@Param({ "100", "1000", "10000" })
+		public int rectangles;
+
+		int[] widths = null, heights = null;
+
+		AtlasPacker packer = null;
+
+		/**
+		 * Makes the rectangles, and fills a page with them once.
+		 */
+		@Setup
+		public void setUp() {
+			Random random = new Random(rectangles);
+			widths = new int[rectangles];
+			heights = new int[rectangles];
+			for (int i = 0; i < rectangles; i++) {
+				widths[i] = 4 + random.nextInt(60);
+				heights[i] = 4 + random.nextInt(60);
+			}
+
+			packer = new AtlasPacker(PAGE_SIZE, PAGE_SIZE);
+			for (int i = 0; i < rectangles; i++) {
+				packer.insert(widths[i], heights[i]);
+			}
+		}
+
+		@TearDown
+		public void tearDown() {
+			System.out.println("placed " + packer.getPackedCount() + " of " + rectangles + ", occupancy "
+					+ packer.getOccupancy());
+		}
+	}
+
+	/**
+	 * Images of random sizes and contents, and an atlas packed from them.
+	 */
+	@State(Scope.Thread)
+	public static class Atlas {
+
+		final List<String> names = new ArrayList<String>();
+
+		final List<Image> images = new ArrayList<Image>();
+
+		TextureAtlas atlas = null;
+
+		ExecutorService workers = null;
+
+		RecordingRenderDevice device = null;
+
+		TextureLoader loader = null;
+
+		/**
+		 * Makes the images and packs them.
+		 */
+		@Setup
+		public void setUp() {
+			Random random = new Random(ATLAS_IMAGES);
+			for (int i = 0; i < ATLAS_IMAGES; i++) {
+				int width = 8 + random.nextInt(120), height = 8 + random.nextInt(120);
+				byte[] pixels = new byte[width * height * 4];
+				random.nextBytes(pixels);
+				names.add("image" + i);
+				images.add(new Image(width, height, pixels));
+			}
+
+			atlas = TextureAtlas.pack(names, images, PAGE_SIZE, BORDER);
+			System.out.println("pages " + atlas.getPageCount() + ", occupancy " + atlas.getOccupancy()
+					+ ", mip levels " + atlas.getMipLevels());
+
+			workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+			device = new RecordingRenderDevice();
+			loader = new TextureLoader(device, 1);
+		}
+
+		@TearDown
+		public void tearDown() {
+			workers.shutdown();
+			loader.cleanUp();
+			loader.shutdown();
+		}
+	}
+
+	@Benchmark
+	public int packerFill(Rectangles state) {
+		state.packer.clear();
+		for (int i = 0; i < state.rectangles; i++) {
+			state.packer.insert(state.widths[i], state.heights[i]);
+		}
+		return state.packer.getPackedCount();
+	}
+
+	@Benchmark
+	public TextureAtlas atlasPack(Atlas state) {
+		return TextureAtlas.pack(state.names, state.images, PAGE_SIZE, BORDER);
+	}
+
+	/* One page's full chain */
+	@Benchmark
+	public Image[] mipmapChain(Atlas state) {
+		return MipmapGenerator.generate(state.atlas.getPage(0), 32);
+	}
+
+	@Benchmark
+	public long mipmapSerialPages(Atlas state) {
+		Image page = state.atlas.getPage(0);
+		long levels = 0;
+		for (int i = 0; i < MIPMAP_PAGES; i++) {
+			levels += MipmapGenerator.generate(page, 32).length;
+		}
+		return levels;
+	}
+
+	@Benchmark
+	public long mipmapParallelPages(Atlas state) {
+		Image page = state.atlas.getPage(0);
+		List<CompletableFuture<Image[]>> chains = new ArrayList<CompletableFuture<Image[]>>();
+		for (int i = 0; i < MIPMAP_PAGES; i++) {
+			chains.add(CompletableFuture.supplyAsync(() -> MipmapGenerator.generate(page, 32), state.workers));
+		}
+		long levels = 0;
+		for (CompletableFuture<Image[]> chain : chains) {
+			levels += chain.join().length;
+		}
+		return levels;
+	}
+
+	/* Building a page's levels on the worker, and copying them into the unpack buffer */
+	@Benchmark
+	public int mipmapAndUpload(Atlas state) {
+		CompletableFuture<Texture> future = state.loader.load(state.atlas.getPage(0), state.atlas.getMipLevels());
+		while (!future.isDone()) {
+			state.loader.processUploads(Long.MAX_VALUE);
+		}
+		Texture texture = future.join();
+		state.loader.delete(texture);
+		return texture.getTextureId();
+	}
+}
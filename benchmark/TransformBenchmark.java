@@ -0,0 +1,247 @@
+package benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import math.TransformBatch;
+
+/**
+ * Compares updating the model matrices and world bounds of many objects with a
+ * {@link math.TransformBatch}, through both its Vector API and scalar loops,
+ * against the usual object-per-matrix approach, where each object builds its
+ * matrix by multiplying a new translation, rotation and scale matrix, and moves
+ * its bounds by transforming all eight corners. All three produce the same
+ * matrices and bounds, as checked by the batch's tests. The forked JVM is given
+ * the jdk.incubator.vector module, so the vector path can run.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class TransformBenchmark {
+
+	/**
+	 * Which loops a batch is updated with
+	 */
+	public enum Path {
+		SCALAR, VECTOR
+	}
+
+	/**
+	 * Objects that each build their own matrices.
+	 */
+	@State(Scope.Thread)
+	public static class Naive {
+
+		@Param({ "10000", "50000", "250000" })
+		public int objects;
+
+		NaiveObject[] naiveObjects = null;
+
+		@Setup
+		public void setUp() {
+			Random random = new Random(objects);
+			naiveObjects = new NaiveObject[objects];
+			for (int i = 0; i < objects; i++) {
+				Placement placement = new Placement(random);
+				naiveObjects[i] = new NaiveObject(placement.x, placement.y, placement.z, placement.qx, placement.qy,
+						placement.qz, placement.qw, placement.scale);
+			}
+		}
+	}
+
+	/**
+	 * The same objects in a batch, and a buffer to write their matrices into.
+	 */
+	@State(Scope.Thread)
+	public static class Batch {
+
+		@Param({ "10000", "50000", "250000" })
+		public int objects;
+
+		@Param({ "SCALAR", "VECTOR" })
+		public Path path;
+
+		TransformBatch batch = null;
+
+		ByteBuffer instances = null;
+
+		@Setup
+		public void setUp() {
+			Random random = new Random(objects);
+			batch = new TransformBatch(objects);
+			batch.setVectorized(path == Path.VECTOR);
+			for (int i = 0; i < objects; i++) {
+				Placement placement = new Placement(random);
+				int index = batch.add();
+				batch.setPosition(index, placement.x, placement.y, placement.z);
+				batch.setRotation(index, placement.qx, placement.qy, placement.qz, placement.qw);
+				batch.setScale(index, placement.scale, placement.scale, placement.scale);
+				batch.setLocalBounds(index, -1, 0, -1, 1, 3, 1);
+			}
+			instances = ByteBuffer.allocateDirect(objects * 64).order(ByteOrder.nativeOrder());
+		}
+	}
+
+	@Benchmark
+	public float naiveUpdate(Naive state) {
+		float sum = 0;
+		for (NaiveObject object : state.naiveObjects) {
+			object.update();
+			sum += object.maxY;
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public float batchCompose(Batch state) {
+		state.batch.composeMatrices(0, state.batch.size());
+		return state.batch.getWorldMaxY()[0];
+	}
+
+	@Benchmark
+	public float batchUpdate(Batch state) {
+		state.batch.update();
+		return state.batch.getWorldMaxY()[state.objects - 1];
+	}
+
+	@Benchmark
+	public int batchWriteMatrices(Batch state) {
+		state.instances.clear();
+		state.batch.writeMatrices(0, state.batch.size(), state.instances);
+		return state.instances.position();
+	}
+
+	/* A random position, rotation about an axis away from the poles, and scale */
+	private static class Placement {
+		private final float x, y, z, qx, qy, qz, qw, scale;
+
+		private Placement(Random random) {
+			x = random.nextFloat() * 200 - 100;
+			y = random.nextFloat() * 200 - 100;
+			z = random.nextFloat() * 200 - 100;
+			float angle = random.nextFloat() * 6.28f;
+			scale = 0.5f + random.nextFloat();
+
+			float ax = random.nextFloat() - 0.5f, ay = random.nextFloat() + 0.5f, az = random.nextFloat() - 0.5f;
+			float length = (float) Math.sqrt(ax * ax + ay * ay + az * az);
+			float sin = (float) Math.sin(angle / 2);
+			qx = ax / length * sin;
+			qy = ay / length * sin;
+			qz = az / length * sin;
+			qw = (float) Math.cos(angle / 2);
+		}
+	}
+
+	/* An object as it is commonly written, with a matrix object per transform step */
+	private static class NaiveObject {
+		private final float x, y, z, qx, qy, qz, qw, scale;
+
+		private Matrix4f model = null;
+		private float minX, minY, minZ, maxX, maxY, maxZ;
+
+		private NaiveObject(float x, float y, float z, float qx, float qy, float qz, float qw, float scale) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.qx = qx;
+			this.qy = qy;
+			this.qz = qz;
+			this.qw = qw;
+			this.scale = scale;
+		}
+
+		private void update() {
+			model = Matrix4f.translation(x, y, z).multiply(Matrix4f.rotation(qx, qy, qz, qw))
+					.multiply(Matrix4f.scale(scale));
+
+			minX = minY = minZ = Float.POSITIVE_INFINITY;
+			maxX = maxY = maxZ = Float.NEGATIVE_INFINITY;
+			for (int corner = 0; corner < 8; corner++) {
+				float[] p = model.transform(new float[] { (corner & 1) == 0 ? -1 : 1, (corner & 2) == 0 ? 0 : 3,
+						(corner & 4) == 0 ? -1 : 1 });
+				minX = Math.min(minX, p[0]);
+				minY = Math.min(minY, p[1]);
+				minZ = Math.min(minZ, p[2]);
+				maxX = Math.max(maxX, p[0]);
+				maxY = Math.max(maxY, p[1]);
+				maxZ = Math.max(maxZ, p[2]);
+			}
+		}
+	}
+
+	/* A plain column-major 4x4 matrix, where every operation returns a new one */
+	private static class Matrix4f {
+		private final float[] m = new float[16];
+
+		private static Matrix4f identity() {
+			Matrix4f matrix = new Matrix4f();
+			matrix.m[0] = matrix.m[5] = matrix.m[10] = matrix.m[15] = 1;
+			return matrix;
+		}
+
+		private static Matrix4f translation(float x, float y, float z) {
+			Matrix4f matrix = identity();
+			matrix.m[12] = x;
+			matrix.m[13] = y;
+			matrix.m[14] = z;
+			return matrix;
+		}
+
+		private static Matrix4f scale(float s) {
+			Matrix4f matrix = identity();
+			matrix.m[0] = matrix.m[5] = matrix.m[10] = s;
+			return matrix;
+		}
+
+		private static Matrix4f rotation(float x, float y, float z, float w) {
+			Matrix4f matrix = identity();
+			matrix.m[0] = 1 - 2 * (y * y + z * z);
+			matrix.m[1] = 2 * (x * y + w * z);
+			matrix.m[2] = 2 * (x * z - w * y);
+			matrix.m[4] = 2 * (x * y - w * z);
+			matrix.m[5] = 1 - 2 * (x * x + z * z);
+			matrix.m[6] = 2 * (y * z + w * x);
+			matrix.m[8] = 2 * (x * z + w * y);
+			matrix.m[9] = 2 * (y * z - w * x);
+			matrix.m[10] = 1 - 2 * (x * x + y * y);
+			return matrix;
+		}
+
+		private Matrix4f multiply(Matrix4f other) {
+			Matrix4f result = new Matrix4f();
+			for (int column = 0; column < 4; column++) {
+				for (int row = 0; row < 4; row++) {
+					float sum = 0;
+					for (int k = 0; k < 4; k++) {
+						sum += m[k * 4 + row] * other.m[column * 4 + k];
+					}
+					result.m[column * 4 + row] = sum;
+				}
+			}
+			return result;
+		}
+
+		private float[] transform(float[] point) {
+			float[] result = new float[3];
+			for (int row = 0; row < 3; row++) {
+				result[row] = m[row] * point[0] + m[4 + row] * point[1] + m[8 + row] * point[2] + m[12 + row];
+			}
+			return result;
+		}
+	}
+}
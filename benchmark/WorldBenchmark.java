@@ -0,0 +1,216 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import world.Component;
+import world.EntitySystem;
+import world.FloatComponent;
+import world.IntComponent;
+import world.MovementSystem;
+import world.SystemScheduler;
+import world.World;
+
+/**
+ * Measures a tick of the {@link world.World} with 100,000 and more entities,
+ * run by a {@link world.SystemScheduler} on a single thread and on every core.
+ * The scene has four systems: movement and bouncing, which conflict and so run
+ * one after the other, and two independent systems that run alongside them.
+ * Times are in milliseconds, to compare with the 50 ms a tick may take at 20
+ * ticks per second.
+ * 
+ * <p>
+ * The build runs this with JMH's GC profiler, which reports the bytes
+ * allocated per tick as gc.alloc.rate.norm and the collections during each
+ * trial as gc.count. A tick should allocate nothing that grows with the number
+ * of entities, and cause no collections; run from the jar, pass
+ * {@code -prof gc} to see the same.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class WorldBenchmark {
+
+	private static final float SECONDS_PER_TICK = 0.05f;
+
+	/**
+	 * The pool the scheduler runs systems on: one thread, so systems run one at a
+	 * time, or the common pool, with a thread for every core
+	 */
+	public enum Pool {
+		SERIAL, COMMON
+	}
+
+	@Param({ "100000", "250000", "1000000" })
+	public int entities;
+
+	@Param({ "SERIAL", "COMMON" })
+	public Pool pool;
+
+	private World world = null;
+
+	private IntComponent age = null;
+
+	private ForkJoinPool forkJoinPool = null;
+
+	private SystemScheduler scheduler = null;
+
+	@Setup
+	public void setUp() {
+		world = new World();
+		FloatComponent position = world.register(new FloatComponent("position", 3));
+		FloatComponent velocity = world.register(new FloatComponent("velocity", 3));
+		FloatComponent heat = world.register(new FloatComponent("heat", 1));
+		age = world.register(new IntComponent("age", 1));
+
+		Random random = new Random(entities);
+		for (int i = 0; i < entities; i++) {
+			int entity = world.create();
+			world.add(entity, position);
+			world.add(entity, age);
+
+			/* Not every entity moves, so joins have something to skip */
+			if (i % 8 != 0) {
+				world.add(entity, velocity);
+				for (int axis = 0; axis < 3; axis++) {
+					position.set(entity, axis, random.nextFloat() * 200 - 100);
+					velocity.set(entity, axis, random.nextFloat() * 10 - 5);
+				}
+			}
+
+			if (i % 2 == 0) {
+				world.add(entity, heat);
+				heat.set(entity, 0, random.nextFloat());
+			}
+		}
+
+		forkJoinPool = pool == Pool.SERIAL ? new ForkJoinPool(1) : ForkJoinPool.commonPool();
+		scheduler = new SystemScheduler(forkJoinPool);
+		scheduler.add(new MovementSystem(position, velocity, SECONDS_PER_TICK));
+		scheduler.add(new BounceSystem(position, velocity));
+		scheduler.add(new CoolingSystem(heat));
+		scheduler.add(new AgingSystem(age));
+
+		System.out.printf("entities=%d pool=%s: %d threads, %d stages%n", entities, pool,
+				forkJoinPool.getParallelism(), scheduler.getStageCount());
+	}
+
+	/**
+	 * Shuts down the serial pool; the common pool is left running.
+	 */
+	@TearDown
+	public void tearDown() {
+		if (forkJoinPool != ForkJoinPool.commonPool()) {
+			forkJoinPool.shutdown();
+		}
+	}
+
+	@Benchmark
+	public int tick() {
+		scheduler.run(world);
+		return age.getData()[0];
+	}
+
+	/* Reverses velocity at the edge of a box, so conflicts with movement */
+	private static class BounceSystem implements EntitySystem {
+		private final FloatComponent position, velocity;
+
+		private BounceSystem(FloatComponent position, FloatComponent velocity) {
+			this.position = position;
+			this.velocity = velocity;
+		}
+
+		@Override
+		public Component[] getReads() {
+			return new Component[] { position };
+		}
+
+		@Override
+		public Component[] getWrites() {
+			return new Component[] { velocity };
+		}
+
+		@Override
+		public void update(World world) {
+			float[] positions = position.getData(), velocities = velocity.getData();
+			for (int v = 0; v < velocity.size(); v++) {
+				int p = position.indexOf(velocity.getEntity(v));
+				for (int axis = 0; axis < 3; axis++) {
+					float x = positions[p * 3 + axis];
+					if ((x > 100 && velocities[v * 3 + axis] > 0) || (x < -100 && velocities[v * 3 + axis] < 0)) {
+						velocities[v * 3 + axis] = -velocities[v * 3 + axis];
+					}
+				}
+			}
+		}
+	}
+
+	/* Independent of every other system */
+	private static class CoolingSystem implements EntitySystem {
+		private final FloatComponent heat;
+
+		private CoolingSystem(FloatComponent heat) {
+			this.heat = heat;
+		}
+
+		@Override
+		public Component[] getReads() {
+			return new Component[0];
+		}
+
+		@Override
+		public Component[] getWrites() {
+			return new Component[] { heat };
+		}
+
+		@Override
+		public void update(World world) {
+			float[] data = heat.getData();
+			for (int i = 0; i < heat.size(); i++) {
+				data[i] *= 0.99f;
+			}
+		}
+	}
+
+	/* Independent of every other system */
+	private static class AgingSystem implements EntitySystem {
+		private final IntComponent age;
+
+		private AgingSystem(IntComponent age) {
+			this.age = age;
+		}
+
+		@Override
+		public Component[] getReads() {
+			return new Component[0];
+		}
+
+		@Override
+		public Component[] getWrites() {
+			return new Component[] { age };
+		}
+
+		@Override
+		public void update(World world) {
+			int[] data = age.getData();
+			for (int i = 0; i < age.size(); i++) {
+				data[i]++;
+			}
+		}
+	}
+}
@@ -0,0 +1,13 @@
+/**
+ * This package holds JMH benchmarks for the CPU side of the engine. None of
+ * them needs a display window or OpenGL context. Run them all with
+ * {@code ./gradlew jmh}, or build {@code ./gradlew jmhJar} and pass the jar a
+ * benchmark name, such as {@code EngineBenchmarks}, to run just that one.
+ * The build runs JMH's GC profiler with every benchmark, which reports the
+ * bytes allocated per operation; from the jar, pass {@code -prof gc} for the
+ * same.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+package benchmark;
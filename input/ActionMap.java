@@ -0,0 +1,304 @@
+package input;
+
+import java.util.Arrays;
+
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Maps keys and mouse buttons to named game actions, such as "jump" or
+ * "quit", and tracks the state of every action from one tick to the next.
+ * Actions are registered once up front, and are then referred to by the int
+ * id returned, so reading them never looks anything up by name. Any number of
+ * keys and buttons may be bound to one action, which is held down while any of
+ * them are.
+ * 
+ * <p>
+ * Each tick calls {@link #update(InputQueue, long)} once, which reads every
+ * event that happened before the tick was due. A press and release that both
+ * land within one tick are both seen, through {@link #wasPressed(int)} and
+ * {@link #wasReleased(int)}, so a quick tap is never lost between ticks. The
+ * cursor position and the scroll offsets are tracked alongside the actions.
+ * An action map must only be used from the thread running ticks, and does not
+ * allocate once its actions are registered.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class ActionMap {
+
+	/* Keys are bound in one table and mouse buttons after them, by offset */
+	private static final int KEY_COUNT = GLFW.GLFW_KEY_LAST + 1, BUTTON_COUNT = GLFW.GLFW_MOUSE_BUTTON_LAST + 1;
+
+	private String[] names = new String[0];
+
+	/* The actions bound to each key or button, as a bit set over action ids */
+	private final long[][] bindings = new long[KEY_COUNT + BUTTON_COUNT][];
+
+	private final boolean[] inputDown = new boolean[KEY_COUNT + BUTTON_COUNT];
+
+	private int[] downCounts = new int[0];
+	private boolean[] pressed = new boolean[0], released = new boolean[0];
+
+	private double cursorX = 0, cursorY = 0, scrollX = 0, scrollY = 0;
+
+	private final InputEvent event = new InputEvent();
+
+	/**
+	 * Registers a new action. Call this during setup, as it allocates.
+	 * 
+	 * @param name
+	 *            the name of the action
+	 * @return the id of the action, to be passed to the other methods
+	 */
+	public int register(String name) {
+		int id = names.length;
+
+		names = Arrays.copyOf(names, id + 1);
+		downCounts = Arrays.copyOf(downCounts, id + 1);
+		pressed = Arrays.copyOf(pressed, id + 1);
+		released = Arrays.copyOf(released, id + 1);
+
+		names[id] = name;
+		return id;
+	}
+
+	/**
+	 * Binds a key to an action.
+	 * 
+	 * @param action
+	 *            the id of the action
+	 * @param key
+	 *            the GLFW key code
+	 */
+	public void bindKey(int action, int key) {
+		if (key < 0 || key >= KEY_COUNT) {
+			throw new IllegalArgumentException("Not a GLFW key: " + key);
+		}
+		bind(action, key);
+	}
+
+	/**
+	 * Binds a mouse button to an action.
+	 * 
+	 * @param action
+	 *            the id of the action
+	 * @param button
+	 *            the GLFW mouse button
+	 */
+	public void bindMouseButton(int action, int button) {
+		if (button < 0 || button >= BUTTON_COUNT) {
+			throw new IllegalArgumentException("Not a GLFW mouse button: " + button);
+		}
+		bind(action, KEY_COUNT + button);
+	}
+
+	/**
+	 * Starts a new tick: forgets the presses and releases of the last tick, then
+	 * reads every event from the queue that happened no later than the tick's
+	 * time.
+	 * 
+	 * @param queue
+	 *            the queue to read events from
+	 * @param tickTimeNs
+	 *            the time the tick was due, on the same clock as
+	 *            {@link System#nanoTime()}
+	 * @return the number of events read
+	 */
+	public int update(InputQueue queue, long tickTimeNs) {
+		beginTick();
+
+		int events = 0;
+		while (queue.poll(event, tickTimeNs)) {
+			apply(event);
+			events++;
+		}
+		return events;
+	}
+
+	/**
+	 * Starts a new tick without reading any events: forgets the presses, releases
+	 * and scrolling of the last tick, while keeping which actions are held down.
+	 * Follow this with {@link #apply(InputEvent)} for each of the tick's events,
+	 * when they come from somewhere other than an {@link input.InputQueue}, such
+	 * as a {@link input.ReplayReader}.
+	 */
+	public void beginTick() {
+		Arrays.fill(pressed, false);
+		Arrays.fill(released, false);
+		scrollX = 0;
+		scrollY = 0;
+	}
+
+	/**
+	 * Applies a single event to the state of the actions. Most callers should use
+	 * {@link #update(InputQueue, long)} instead, which applies whole ticks of
+	 * events at a time.
+	 * 
+	 * @param event
+	 *            the event to apply
+	 */
+	public void apply(InputEvent event) {
+		switch (event.getType()) {
+		case InputEvent.KEY:
+			if (event.getCode() >= 0 && event.getCode() < KEY_COUNT) {
+				applyButton(event.getCode(), event.getAction());
+			}
+			break;
+		case InputEvent.MOUSE_BUTTON:
+			if (event.getCode() >= 0 && event.getCode() < BUTTON_COUNT) {
+				applyButton(KEY_COUNT + event.getCode(), event.getAction());
+			}
+			break;
+		case InputEvent.CURSOR:
+			cursorX = event.getX();
+			cursorY = event.getY();
+			break;
+		case InputEvent.SCROLL:
+			scrollX += event.getX();
+			scrollY += event.getY();
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Returns whether any key or button bound to an action is held down.
+	 * 
+	 * @param action
+	 *            the id of the action
+	 * @return true if the action is down
+	 */
+	public boolean isDown(int action) {
+		return downCounts[action] > 0;
+	}
+
+	/**
+	 * Returns whether the action went down during the current tick.
+	 * 
+	 * @param action
+	 *            the id of the action
+	 * @return true if the action was pressed this tick
+	 */
+	public boolean wasPressed(int action) {
+		return pressed[action];
+	}
+
+	/**
+	 * Returns whether the action came back up during the current tick.
+	 * 
+	 * @param action
+	 *            the id of the action
+	 * @return true if the action was released this tick
+	 */
+	public boolean wasReleased(int action) {
+		return released[action];
+	}
+
+	/**
+	 * Returns the name of an action.
+	 * 
+	 * @param action
+	 *            the id of the action
+	 * @return the action's name
+	 */
+	public String getName(int action) {
+		return names[action];
+	}
+
+	/**
+	 * Returns the number of registered actions. Action ids run from zero up to
+	 * this count.
+	 * 
+	 * @return the action count
+	 */
+	public int getActionCount() {
+		return names.length;
+	}
+
+	/**
+	 * Returns the X of the cursor, as of the latest event read.
+	 * 
+	 * @return the cursor's X, in screen coordinates
+	 */
+	public double getCursorX() {
+		return cursorX;
+	}
+
+	/**
+	 * Returns the Y of the cursor, as of the latest event read.
+	 * 
+	 * @return the cursor's Y, in screen coordinates
+	 */
+	public double getCursorY() {
+		return cursorY;
+	}
+
+	/**
+	 * Returns how far was scrolled horizontally during the current tick.
+	 * 
+	 * @return the total horizontal scroll offset
+	 */
+	public double getScrollX() {
+		return scrollX;
+	}
+
+	/**
+	 * Returns how far was scrolled vertically during the current tick.
+	 * 
+	 * @return the total vertical scroll offset
+	 */
+	public double getScrollY() {
+		return scrollY;
+	}
+
+	private void bind(int action, int input) {
+		if (action < 0 || action >= names.length) {
+			throw new IllegalArgumentException("Not a registered action: " + action);
+		}
+
+		long[] bits = bindings[input];
+		if (bits == null || bits.length <= action >>> 6) {
+			bits = bindings[input] = bits == null ? new long[(action >>> 6) + 1]
+					: Arrays.copyOf(bits, (action >>> 6) + 1);
+		}
+		if ((bits[action >>> 6] & (1L << action)) != 0) {
+			return;
+		}
+		bits[action >>> 6] |= 1L << action;
+
+		/* Already held, so the action it now drives is held too */
+		if (inputDown[input]) {
+			downCounts[action]++;
+		}
+	}
+
+	private void applyButton(int input, int glfwAction) {
+		/* Repeats are not a change of state, and a second press is ignored */
+		boolean down = glfwAction != GLFW.GLFW_RELEASE;
+		if (down == inputDown[input]) {
+			return;
+		}
+		inputDown[input] = down;
+
+		long[] bits = bindings[input];
+		if (bits == null) {
+			return;
+		}
+
+		for (int word = 0; word < bits.length; word++) {
+			for (long remaining = bits[word]; remaining != 0; remaining &= remaining - 1) {
+				int action = (word << 6) + Long.numberOfTrailingZeros(remaining);
+
+				if (down) {
+					if (downCounts[action]++ == 0) {
+						pressed[action] = true;
+					}
+				} else if (--downCounts[action] == 0) {
+					released[action] = true;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package input;
+
+/**
+ * One event read from an {@link input.InputQueue}. Events are read into an
+ * instance that the reader keeps and reuses, rather than a new object being
+ * made per event, so an event's fields are only valid until the next read into
+ * it.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class InputEvent {
+
+	/**
+	 * A key was pressed, repeated or released. The code is the GLFW key
+	 */
+	public static final int KEY = 0;
+
+	/**
+	 * A mouse button was pressed or released. The code is the GLFW button
+	 */
+	public static final int MOUSE_BUTTON = 1;
+
+	/**
+	 * The cursor moved. X and Y are its new position, in screen coordinates
+	 */
+	public static final int CURSOR = 2;
+
+	/**
+	 * The mouse wheel or touchpad scrolled. X and Y are the offsets scrolled
+	 */
+	public static final int SCROLL = 3;
+
+	int type = KEY, code = 0, action = 0, mods = 0;
+	double x = 0, y = 0;
+	long timeNs = 0;
+
+	/**
+	 * Returns what kind of event this is.
+	 * 
+	 * @return one of {@link #KEY}, {@link #MOUSE_BUTTON}, {@link #CURSOR} or
+	 *         {@link #SCROLL}
+	 */
+	public int getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the key or mouse button of a key or mouse button event.
+	 * 
+	 * @return the GLFW key or button code, or zero for other events
+	 */
+	public int getCode() {
+		return code;
+	}
+
+	/**
+	 * Returns what happened to the key or mouse button.
+	 * 
+	 * @return GLFW_PRESS, GLFW_RELEASE or GLFW_REPEAT, or zero for other events
+	 */
+	public int getAction() {
+		return action;
+	}
+
+	/**
+	 * Returns the modifier keys held during a key or mouse button event.
+	 * 
+	 * @return the GLFW modifier bits
+	 */
+	public int getMods() {
+		return mods;
+	}
+
+	/**
+	 * Returns the X of a cursor or scroll event.
+	 * 
+	 * @return the cursor's X, or the horizontal scroll offset
+	 */
+	public double getX() {
+		return x;
+	}
+
+	/**
+	 * Returns the Y of a cursor or scroll event.
+	 * 
+	 * @return the cursor's Y, or the vertical scroll offset
+	 */
+	public double getY() {
+		return y;
+	}
+
+	/**
+	 * Returns when the event was recorded, on the same clock as
+	 * {@link System#nanoTime()}.
+	 * 
+	 * @return the time of the event, in nanoseconds
+	 */
+	public long getTimeNs() {
+		return timeNs;
+	}
+
+	@Override
+	public String toString() {
+		return "InputEvent[type=" + type + ", code=" + code + ", action=" + action + ", mods=" + mods + ", x=" + x
+				+ ", y=" + y + ", timeNs=" + timeNs + "]";
+	}
+}
@@ -0,0 +1,184 @@
+package input;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free ring buffer of input events, handing them from exactly
+ * one writer thread, the one polling GLFW events, to exactly one reader
+ * thread, the one running ticks. Each field of an event is stored in its own
+ * preallocated array, so neither writing nor reading an event allocates.
+ * 
+ * <p>
+ * Events are stamped with the time they were recorded, so that a tick can read
+ * only the events that happened before it was due, with
+ * {@link #poll(InputEvent, long)}, and leave later ones for the next tick.
+ * When the queue is full, new events are dropped and counted, rather than the
+ * writer waiting on the reader.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public final class InputQueue {
+
+	private final int mask;
+
+	private final int[] types, codes, actions, mods;
+	private final double[] xs, ys;
+	private final long[] timesNs;
+
+	/* The next slot to be read and the next to be written, counting up forever */
+	private final AtomicLong head = new AtomicLong(0), tail = new AtomicLong(0);
+
+	/* The writer's last look at the head, so it rarely has to read the real one */
+	private long cachedHead = 0;
+
+	private final AtomicLong dropped = new AtomicLong(0);
+
+	/**
+	 * Constructs an empty queue.
+	 * 
+	 * @param capacity
+	 *            the most events the queue can hold, which must be a power of two
+	 */
+	public InputQueue(int capacity) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+		}
+
+		this.mask = capacity - 1;
+		this.types = new int[capacity];
+		this.codes = new int[capacity];
+		this.actions = new int[capacity];
+		this.mods = new int[capacity];
+		this.xs = new double[capacity];
+		this.ys = new double[capacity];
+		this.timesNs = new long[capacity];
+	}
+
+	/**
+	 * Adds an event to the queue. Must only be called from the writer thread.
+	 * 
+	 * @param type
+	 *            the kind of event, such as {@link input.InputEvent#KEY}
+	 * @param code
+	 *            the GLFW key or button code
+	 * @param action
+	 *            the GLFW action
+	 * @param modifiers
+	 *            the GLFW modifier bits
+	 * @param x
+	 *            the X of a cursor or scroll event
+	 * @param y
+	 *            the Y of a cursor or scroll event
+	 * @param timeNs
+	 *            when the event happened, on the same clock as
+	 *            {@link System#nanoTime()}
+	 * @return true if the event was added, or false if the queue was full and it
+	 *         was dropped
+	 */
+	public boolean offer(int type, int code, int action, int modifiers, double x, double y, long timeNs) {
+		long slot = tail.get();
+		if (slot - cachedHead > mask) {
+			cachedHead = head.get();
+			if (slot - cachedHead > mask) {
+				dropped.incrementAndGet();
+				return false;
+			}
+		}
+
+		int i = (int) slot & mask;
+		types[i] = type;
+		codes[i] = code;
+		actions[i] = action;
+		mods[i] = modifiers;
+		xs[i] = x;
+		ys[i] = y;
+		timesNs[i] = timeNs;
+
+		/* Ordered after the writes above, so the reader never sees a half-written event */
+		tail.lazySet(slot + 1);
+		return true;
+	}
+
+	/**
+	 * Reads the oldest event out of the queue. Must only be called from the reader
+	 * thread.
+	 * 
+	 * @param event
+	 *            the event to be read into
+	 * @return true if an event was read, or false if the queue was empty
+	 */
+	public boolean poll(InputEvent event) {
+		return read(event, false, 0);
+	}
+
+	/**
+	 * Reads the oldest event out of the queue, but only if it happened no later
+	 * than the specified time. Must only be called from the reader thread.
+	 * 
+	 * @param event
+	 *            the event to be read into
+	 * @param untilNs
+	 *            the latest time an event may have to be read
+	 * @return true if an event was read, or false if the queue was empty or its
+	 *         oldest event is later than the time
+	 */
+	public boolean poll(InputEvent event, long untilNs) {
+		return read(event, true, untilNs);
+	}
+
+	/**
+	 * Returns the number of events waiting to be read. Only exact when neither
+	 * thread is using the queue.
+	 * 
+	 * @return the event count
+	 */
+	public int size() {
+		return (int) (tail.get() - head.get());
+	}
+
+	/**
+	 * Returns the most events the queue can hold.
+	 * 
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Returns the total number of events dropped because the queue was full.
+	 * 
+	 * @return the dropped event count
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	private boolean read(InputEvent event, boolean bounded, long untilNs) {
+		long slot = head.get();
+		if (slot == tail.get()) {
+			return false;
+		}
+
+		int i = (int) slot & mask;
+
+		/* Compared by difference, as nanosecond clocks may wrap */
+		if (bounded && timesNs[i] - untilNs > 0) {
+			return false;
+		}
+
+		event.type = types[i];
+		event.code = codes[i];
+		event.action = actions[i];
+		event.mods = mods[i];
+		event.x = xs[i];
+		event.y = ys[i];
+		event.timeNs = timesNs[i];
+
+		/* Ordered after the reads above, so the writer cannot reuse the slot too early */
+		head.lazySet(slot + 1);
+		return true;
+	}
+}
@@ -0,0 +1,216 @@
+package input;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Plays back a replay file written by {@link input.ReplayWriter}, one tick at a
+ * time. Each tick's events are applied to an {@link input.ActionMap} exactly
+ * as they were when recorded, so a simulation fed from a replay makes the same
+ * decisions it did live, without a window, and as fast as it can run. The file
+ * is read through a direct buffer, refilled from the channel as it empties,
+ * and nothing is allocated per tick or per event.
+ * 
+ * <p>
+ * The writer only ever writes whole records, so a recording that was cut off,
+ * such as by the game crashing, plays back up to the last record that reached
+ * the file.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class ReplayReader implements Closeable {
+
+	private static final int BUFFER_SIZE = 65536;
+
+	private final Path file;
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+	private final double ticksPerSecond;
+	private final long startTimeNs;
+
+	private final InputEvent event = new InputEvent();
+
+	private long tickTimeNs;
+	private long ticks = 0, events = 0;
+	private boolean ended = false;
+
+	/**
+	 * Opens a replay file and reads its header.
+	 * 
+	 * @param file
+	 *            the file to play back
+	 * @throws IOException
+	 *             if the file cannot be read, or is not a replay of this version
+	 */
+	public ReplayReader(Path file) throws IOException {
+		this.file = file;
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+
+		try {
+			buffer.flip();
+			if (!fill(24) || buffer.getInt() != ReplayWriter.MAGIC) {
+				throw new IOException("Not a replay file: " + file);
+			}
+
+			int version = buffer.getInt();
+			if (version != ReplayWriter.VERSION) {
+				throw new IOException("Replay version " + version + " is not " + ReplayWriter.VERSION + ": " + file);
+			}
+
+			this.ticksPerSecond = buffer.getDouble();
+			this.startTimeNs = buffer.getLong();
+			this.tickTimeNs = startTimeNs;
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Plays back the next tick: starts a new tick on the action map, then applies
+	 * every event the tick read when it was recorded.
+	 * 
+	 * @param actions
+	 *            the action map to apply the tick's events to
+	 * @return true if a tick was played, or false if the replay has ended
+	 * @throws IOException
+	 *             if the file cannot be read, or is corrupt
+	 */
+	public boolean readTick(ActionMap actions) throws IOException {
+		if (ended || !fill(1) || buffer.get(buffer.position()) != ReplayWriter.TICK) {
+			ended = true;
+			return false;
+		}
+
+		fill(ReplayWriter.MAX_RECORD_SIZE);
+		try {
+			buffer.get();
+			tickTimeNs += getVarLong();
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupt replay file: " + file, e);
+		}
+		ticks++;
+		actions.beginTick();
+
+		while (fill(1) && (buffer.get(buffer.position()) & 0xF0) == ReplayWriter.EVENT) {
+			fill(ReplayWriter.MAX_RECORD_SIZE);
+			readEvent();
+			actions.apply(event);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the tick rate the replay was recorded at.
+	 * 
+	 * @return the ticks per second
+	 */
+	public double getTicksPerSecond() {
+		return ticksPerSecond;
+	}
+
+	/**
+	 * Returns the time the most recently played tick fell due when it was
+	 * recorded, on the recording machine's clock.
+	 * 
+	 * @return the recorded tick time, in nanoseconds
+	 */
+	public long getTickTimeNs() {
+		return tickTimeNs;
+	}
+
+	/**
+	 * Returns how long the recording ran, up to the most recently played tick.
+	 * 
+	 * @return the recorded time, in nanoseconds
+	 */
+	public long getRecordedNs() {
+		return tickTimeNs - startTimeNs;
+	}
+
+	/**
+	 * Returns the number of ticks played so far.
+	 * 
+	 * @return the tick count
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Returns the number of events played so far.
+	 * 
+	 * @return the event count
+	 */
+	public long getEvents() {
+		return events;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private void readEvent() throws IOException {
+		try {
+			int type = buffer.get() & 0x0F;
+			event.type = type;
+			event.timeNs = tickTimeNs - getVarLong();
+
+			if (type == InputEvent.KEY || type == InputEvent.MOUSE_BUTTON) {
+				event.code = (int) getVarLong();
+				event.action = buffer.get();
+				event.mods = buffer.get();
+				event.x = 0;
+				event.y = 0;
+			} else {
+				event.code = 0;
+				event.action = 0;
+				event.mods = 0;
+				event.x = buffer.getDouble();
+				event.y = buffer.getDouble();
+			}
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupt replay file: " + file, e);
+		}
+		events++;
+	}
+
+	/* Tries to have at least the specified number of bytes buffered, returning whether it does */
+	private boolean fill(int bytes) throws IOException {
+		if (buffer.remaining() >= bytes) {
+			return true;
+		}
+
+		buffer.compact();
+		while (buffer.position() < bytes) {
+			if (channel.read(buffer) < 0) {
+				break;
+			}
+		}
+		buffer.flip();
+		return buffer.remaining() >= bytes;
+	}
+
+	/* Reads a number written by ReplayWriter.putVarLong */
+	private long getVarLong() {
+		long zigzag = 0;
+		for (int shift = 0;; shift += 7) {
+			byte b = buffer.get();
+			zigzag |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				break;
+			}
+		}
+		return (zigzag >>> 1) ^ -(zigzag & 1);
+	}
+}
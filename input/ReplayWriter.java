@@ -0,0 +1,203 @@
+package input;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records every tick, and the input events each tick read, to a replay file
+ * that {@link input.ReplayReader} can play back exactly. Records are packed
+ * into a direct buffer and written to the file channel only when the buffer
+ * fills, so recording costs a few bytes per event and almost never touches the
+ * disk during a tick. Nothing is allocated per tick or per event.
+ * 
+ * <p>
+ * A file is laid out as follows, with every fixed-size number little-endian:
+ * </p>
+ * 
+ * <ol>
+ * <li>The magic number "ARPL", then the format {@link #VERSION} as an int</li>
+ * <li>The tick rate the replay was recorded at, as a double, then the time
+ * recording started, as a long in nanoseconds</li>
+ * <li>For every tick, a {@link #TICK} tag, then how long after the previous
+ * tick (or the start) it fell due, as a variable-length number</li>
+ * <li>After each tick's tag, one record per event it read: an {@link #EVENT}
+ * tag plus the event's type, then how long before the tick's time the event
+ * happened, as a variable-length number, then either the code, action and
+ * modifier bits of a key or button, or the X and Y of a cursor or scroll, as
+ * doubles</li>
+ * <li>An {@link #END} tag, once the recording is closed</li>
+ * </ol>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class ReplayWriter implements Closeable {
+
+	/**
+	 * The version of the replay format, to be raised whenever the layout changes
+	 */
+	public static final int VERSION = 1;
+
+	static final int MAGIC = 0x4C505241;
+
+	static final byte END = 0, TICK = 1, EVENT = 0x10;
+
+	/* Room for many seconds of ticks between writes */
+	private static final int BUFFER_SIZE = 65536;
+
+	/* The largest record: a tag, a time, and two doubles */
+	static final int MAX_RECORD_SIZE = 1 + 10 + 16;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+	private long previousTickNs, tickTimeNs;
+	private long ticks = 0, events = 0, bytesWritten = 0;
+
+	/**
+	 * Creates a replay file, replacing any file already there.
+	 * 
+	 * @param file
+	 *            the file to record to
+	 * @param ticksPerSecond
+	 *            the tick rate of the simulation being recorded
+	 * @param startTimeNs
+	 *            the time recording starts, on the same clock as tick times
+	 * @throws IOException
+	 *             if the file cannot be created
+	 */
+	public ReplayWriter(Path file, double ticksPerSecond, long startTimeNs) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE);
+		this.previousTickNs = startTimeNs;
+		this.tickTimeNs = startTimeNs;
+
+		buffer.putInt(MAGIC).putInt(VERSION).putDouble(ticksPerSecond).putLong(startTimeNs);
+	}
+
+	/**
+	 * Starts the record of a new tick. Every event written after this belongs to
+	 * this tick, until the next tick begins.
+	 * 
+	 * @param tickTimeNs
+	 *            the time the tick fell due
+	 * @throws IOException
+	 *             if the buffer had to be written out and could not be
+	 */
+	public void beginTick(long tickTimeNs) throws IOException {
+		ensureRoom();
+		buffer.put(TICK);
+		putVarLong(tickTimeNs - previousTickNs);
+
+		previousTickNs = tickTimeNs;
+		this.tickTimeNs = tickTimeNs;
+		ticks++;
+	}
+
+	/**
+	 * Records an event that the current tick read.
+	 * 
+	 * @param event
+	 *            the event to be recorded
+	 * @throws IOException
+	 *             if the buffer had to be written out and could not be
+	 */
+	public void write(InputEvent event) throws IOException {
+		ensureRoom();
+		buffer.put((byte) (EVENT | event.getType()));
+
+		/* Events come before their tick, so this is rarely negative */
+		putVarLong(tickTimeNs - event.getTimeNs());
+
+		if (event.getType() == InputEvent.KEY || event.getType() == InputEvent.MOUSE_BUTTON) {
+			putVarLong(event.getCode());
+			buffer.put((byte) event.getAction());
+			buffer.put((byte) event.getMods());
+		} else {
+			buffer.putDouble(event.getX());
+			buffer.putDouble(event.getY());
+		}
+		events++;
+	}
+
+	/**
+	 * Writes out everything buffered so far, so the file is complete up to the
+	 * current tick even if the game then crashes.
+	 * 
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			bytesWritten += channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Ends the recording and closes the file.
+	 * 
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			ensureRoom();
+			buffer.put(END);
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Returns the number of ticks recorded.
+	 * 
+	 * @return the tick count
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Returns the number of events recorded.
+	 * 
+	 * @return the event count
+	 */
+	public long getEvents() {
+		return events;
+	}
+
+	/**
+	 * Returns the number of bytes written to the file so far, not counting those
+	 * still buffered.
+	 * 
+	 * @return the bytes written
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	private void ensureRoom() throws IOException {
+		if (buffer.remaining() < MAX_RECORD_SIZE) {
+			flush();
+		}
+	}
+
+	/* Seven bits at a time, low bits first, after zigzag encoding so small negatives stay small */
+	private void putVarLong(long value) {
+		long zigzag = (value << 1) ^ (value >> 63);
+		while ((zigzag & ~0x7FL) != 0) {
+			buffer.put((byte) ((zigzag & 0x7F) | 0x80));
+			zigzag >>>= 7;
+		}
+		buffer.put((byte) zigzag);
+	}
+}
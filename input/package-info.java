@@ -0,0 +1,9 @@
+/**
+ * This package holds the input from the user: a queue that the window's
+ * callbacks record events into as they happen, and a mapping from keys and
+ * buttons to game actions that each tick reads its share of events through.
+ * 
+ * @author Matthew L. Roy
+ * 
+ */
+package input;
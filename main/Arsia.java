@@ -1,10 +1,36 @@
 package main;
 
-import static java.lang.System.nanoTime;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+import org.lwjgl.glfw.GLFW;
+
+import input.ActionMap;
+import input.InputEvent;
+import input.InputQueue;
+import input.ReplayReader;
+import input.ReplayWriter;
+import renderEngine.Frustum;
+import renderEngine.GpuTimer;
 import renderEngine.ModelLoader;
+import renderEngine.QualityGovernor;
 import renderEngine.RawModel;
 import renderEngine.RenderInputWindow;
+import renderEngine.RenderQueue;
+import renderEngine.ScaledFramebuffer;
+import renderEngine.ShaderManager;
+import renderEngine.ShaderProgram;
+import renderEngine.SpatialGrid;
+import utility.Log;
+import utility.Profiler;
+import world.FloatComponent;
+import world.MovementSystem;
+import world.SystemScheduler;
+import world.World;
 
 /**
  * This is the main entry point class for the entire Arsia project. This class
@@ -13,43 +39,143 @@ import renderEngine.RenderInputWindow;
  * 
  * <ol>
  * <li>Query the state of the GLFW window to see if it is still open</li>
- * <li>If so, compute the current time and deltas to time-step the game logic:
- * <ol type="a">
- * <li>At the beginning of the loop, grab the current time in nanoseconds</li>
- * <li>Subtract this value from the time of the end of the previous loop</li>
- * <li>Divide that newly subtracted value by 1E10^9 (or nanoseconds)</li></li>
- * <li>The tick system (detailed below) is determined by dividing that value
- * again by the number of ticks desired per second and incrementing a delta</li>
- * </ol>
- * </li>
- * <li>Handle input and events from the user</li>
- * <li>Tick and update game logic (20 ticks per second or 1t/0.05s)</li>
- * <li>Render using steps from: {@link renderEngine.RenderInputWindow}</li>
+ * <li>If so, poll input and events from the user, which are queued rather than
+ * acted on straight away</li>
+ * <li>Tick and update game logic (20 ticks per second or 1t/0.05s). Every tick
+ * that has become due since the previous frame is run, as scheduled by
+ * {@link main.GameLoop}, so that a slow frame is caught up on rather than
+ * lost. Each tick reads the queued input that happened before it was due,
+ * through an {@link input.ActionMap}</li>
+ * <li>Render using steps from: {@link renderEngine.RenderInputWindow}, passing
+ * along how far the next tick is so movement can be interpolated. Only the
+ * models a {@link renderEngine.SpatialGrid} finds inside the camera's
+ * {@link renderEngine.Frustum} are submitted for drawing</li>
+ * <li>Wait out the rest of the frame if a frame rate cap is set</li>
  * <li>Repeat steps 1-5 until the GLFW has returned a window closed query</li>
  * <li>Perform cleanup of any resources used and terminate the game</li>
  * </ol>
  * 
+ * Either way, the game logic hands the render loop a {@link main.WorldSnapshot}
+ * of where every entity was before and after the latest tick, and each entity
+ * is drawn between the two. When running with -Darsia.threaded=true, step 3 is
+ * instead run on a separate {@link main.SimulationThread}, and the render loop
+ * draws whichever snapshot was published most recently.
+ * 
+ * <p>
+ * Running with -Darsia.record=file records every tick and the input it read to
+ * a replay file. Running with -Darsia.replay=file instead plays such a file
+ * back through the same game logic, with no window and no waiting between
+ * ticks, and logs how fast the simulation ran.
+ * </p>
+ * 
+ * <p>
+ * How long each frame takes on the CPU and the GPU is fed to a
+ * {@link renderEngine.QualityGovernor}, which lowers the render resolution and
+ * makes v-sync adaptive when frames run over the target frame rate, set by
+ * running with -Darsia.targetFps=fps, and raises them again once there is room.
+ * </p>
+ * 
  * @author Matthew L. Roy
  *
  */
-public class Arsia {
+public class Arsia implements Simulation {
 
 	/**
-	 * Prints debug and trace statements to standard output when true
+	 * Logs debug and trace statements when true. Set by running with
+	 * -Darsia.debug=true, rather than being hard-coded
 	 */
-	public static final boolean ARSIA_DEBUG = true;
+	public static final boolean ARSIA_DEBUG = Boolean.getBoolean("arsia.debug");
 
 	private final int WINDOW_WIDTH = 1280, WINDOW_HEIGHT = 720;
 	private int currentTick = -1;
 
 	private final String WINDOW_NAME = "Arsia";
 
-	private long previousTimeNs = 0, currentTimeNs = 0;
-
 	private final double TICKS_PER_SECOND = 20D;
-	private double nsPerIteration = 1000000000D / TICKS_PER_SECOND, delta = 0;
 
-	private boolean startGame = false;
+	/* Caps catch-up after a stall to a quarter second of game time */
+	private final int MAX_TICKS_PER_FRAME = 5;
+
+	/* Zero leaves the frame rate uncapped, as v-sync already paces the loop */
+	private final double FRAME_RATE_CAP = 0D;
+
+	/* Ticks on a second thread, so slow game logic cannot drop frames. Set by running with -Darsia.threaded=true */
+	private final boolean THREADED_SIMULATION = Boolean.getBoolean("arsia.threaded");
+
+	/* Every entity in the game, and the systems that update them each tick */
+	private final World world = new World();
+	private final FloatComponent position = world.register(new FloatComponent("position", 3)),
+			velocity = world.register(new FloatComponent("velocity", 3));
+	private final SystemScheduler scheduler = new SystemScheduler();
+
+	/* Positions as of the start of the latest tick, and what the single-threaded loop renders from */
+	private final WorldSnapshot tickStart = new WorldSnapshot(), frameSnapshot = new WorldSnapshot();
+
+	/* Input is read by each tick from the window's queue, on whichever thread ticks */
+	private final ActionMap actions = new ActionMap();
+	private final int quitAction = actions.register("quit");
+	private final InputEvent inputEvent = new InputEvent();
+	private InputQueue inputQueue = null;
+	private GameLoop tickLoop = null;
+	private ReplayWriter replayWriter = null;
+	private volatile boolean quitRequested = false;
+
+	/* Created once the window has a render device to draw with */
+	private RenderQueue renderQueue = null;
+
+	private final float[] IDENTITY = { 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1 };
+
+	/* The quad is drawn straight in clip space, so the camera's view-projection is the identity for now */
+	private final float[] VIEW_PROJECTION = IDENTITY;
+
+	/* Roughly the size of the largest models in the scene */
+	private final float SCENE_CELL_SIZE = 4f;
+
+	/* Every model in the scene, culled against the frustum before it is submitted, by grid handle */
+	private final Frustum frustum = new Frustum();
+	private final SpatialGrid sceneGrid = new SpatialGrid(SCENE_CELL_SIZE);
+	private final List<RawModel> sceneModels = new ArrayList<RawModel>();
+
+	/* Each model's matrix, sixteen floats by grid handle, and one more than each entity's grid handle, by slot */
+	private float[] sceneMatrices = new float[0];
+	private int[] sceneHandles = new int[0];
+
+	/* Linked programs are cached in -Darsia.shaderCache, so later startups skip compiling */
+	private final String DEFAULT_SHADER_CACHE = "arsia-shaders";
+
+	/* Each quad is placed by the model matrix the render queue gives its instance */
+	private final String QUAD_VERTEX_SHADER = "#version 130\n" + "in vec3 position;\n" + "in mat4 instanceMatrix;\n"
+			+ "void main() {\n" + "	gl_Position = instanceMatrix * vec4(position, 1.0);\n" + "}\n";
+	private final String QUAD_FRAGMENT_SHADER = "#version 130\n" + "uniform vec4 color;\n" + "void main() {\n"
+			+ "	gl_FragColor = color;\n" + "}\n";
+
+	private ShaderManager shaderManager = null;
+	private ShaderProgram quadShader = null;
+	private int quadColorLocation = -1;
+
+	/* Keeps about ten seconds of frames at 60 FPS */
+	private final int PROFILER_HISTORY = 600;
+
+	/* Dumped to the file named by -Darsia.profile, if set, every ten seconds */
+	private final long PROFILER_DUMP_INTERVAL_NS = 10000000000L;
+
+	private final Profiler profiler = new Profiler(PROFILER_HISTORY);
+	private final int inputScope = profiler.register("input"), tickScope = profiler.register("tick"),
+			tickBacklogScope = profiler.register("tickBacklog"), prepareScope = profiler.register("prepare"),
+			renderScope = profiler.register("render"), swapScope = profiler.register("swap"),
+			gpuScope = profiler.register("gpu");
+
+	/* Quality is traded for speed to hold this frame rate, unless set by -Darsia.targetFps */
+	private final double DEFAULT_TARGET_FPS = 60D;
+
+	/* The lowest fraction of the window's resolution the governor may render at */
+	private final float MIN_RESOLUTION_SCALE = 0.5f;
+
+	private QualityGovernor governor = null;
+	private ScaledFramebuffer scaledFramebuffer = null;
+
+	/* When the current frame started, for measuring its work up to the swap */
+	private long frameStartNs = 0;
 
 	/**
 	 * The main entry point method for the entire Arsia project. Runs the Arsia
@@ -61,74 +187,376 @@ public class Arsia {
 	 */
 	public static void main(String[] args) {
 		try {
-			new Arsia().run();
+			String replayFile = System.getProperty("arsia.replay");
+			if (replayFile != null) {
+				new Arsia().runReplay(Paths.get(replayFile));
+			} else {
+				new Arsia().run();
+			}
 		} catch (Exception e) {
-			System.err.println("Game has crashed! :(");
+			Log.error("Game has crashed! :(");
+			Log.flush();
 			e.printStackTrace();
+		} finally {
+			Log.flush();
 		}
 	}
 
-	private void run() {
-		if (ARSIA_DEBUG) {
-			System.out.println("Creating and initializing display window...");
-		}
+	private void run() throws InterruptedException, IOException {
+		Log.setLevel(ARSIA_DEBUG ? Log.Level.TRACE : Log.Level.INFO);
+		Log.debug("Creating and initializing display window...");
 
 		RenderInputWindow riw = new RenderInputWindow(WINDOW_WIDTH, WINDOW_HEIGHT, WINDOW_NAME);
 		riw.init();
 
-		if (ARSIA_DEBUG) {
-			System.out.println("Creating a quad via the ModelLoader...");
+		String profileFile = System.getProperty("arsia.profile");
+		if (profileFile != null) {
+			profiler.setDumpFile(Paths.get(profileFile), PROFILER_DUMP_INTERVAL_NS);
+		}
+
+		GpuTimer gpuTimer = new GpuTimer(riw.getDevice(), profiler, gpuScope);
+
+		/*
+		 * Nothing is drawn with levels of detail or a draw distance yet, so only the
+		 * resolution and swap interval are governed
+		 */
+		double targetFps = Double.parseDouble(System.getProperty("arsia.targetFps", "" + DEFAULT_TARGET_FPS));
+		governor = new QualityGovernor((long) (1e9 / targetFps));
+		governor.setResolutionScaleRange(MIN_RESOLUTION_SCALE, 1f);
+		governor.setLodBiasRange(1f, 1f);
+		governor.setSwapModes(true, riw.supportsAdaptiveSwap());
+		scaledFramebuffer = new ScaledFramebuffer(riw.getDevice(), riw.getFramebufferWidth(),
+				riw.getFramebufferHeight());
+		applyQuality(riw);
+
+		renderQueue = new RenderQueue(riw.getDevice());
+		inputQueue = riw.getInputQueue();
+		actions.bindKey(quitAction, GLFW.GLFW_KEY_ESCAPE);
+
+		addSystems();
+
+		String recordFile = System.getProperty("arsia.record");
+		if (recordFile != null) {
+			replayWriter = new ReplayWriter(Paths.get(recordFile), TICKS_PER_SECOND, System.nanoTime());
 		}
 
-		ModelLoader modelLoader = new ModelLoader();
+		Log.debug("Creating a quad via the ModelLoader...");
+
+		ModelLoader modelLoader = new ModelLoader(riw.getDevice());
 		float[] quad_vertexes = { -0.5f, 0.5f, 0f, -0.5f, -0.5f, 0f, 0.5f, -0.5f, 0f, 0.5f, 0.5f, 0f };
 		int[] quad_indices = { 0, 1, 3, 3, 1, 2 };
 		RawModel quadRawModel = modelLoader.loadToVAO(quad_vertexes, quad_indices);
+		int quad = world.create();
+		world.add(quad, position);
+		addToScene(quad, quadRawModel);
+
+		Log.debug("Loading the quad shader...");
+
+		shaderManager = new ShaderManager(riw.getDevice(), Paths.get(System.getProperty("arsia.shaderCache",
+				Paths.get(System.getProperty("java.io.tmpdir"), DEFAULT_SHADER_CACHE).toString())));
+		quadShader = shaderManager.load("quad", QUAD_VERTEX_SHADER, QUAD_FRAGMENT_SHADER);
+		quadColorLocation = quadShader.getUniformLocation("color");
+
+		Log.debug("Updating display window...");
+
+		if (THREADED_SIMULATION) {
+			runThreaded(riw, gpuTimer);
+		} else {
+			runSingleThreaded(riw, gpuTimer);
+		}
+
+		Log.debug("Performing clean up of resources...");
+
+		if (replayWriter != null) {
+			Log.info("Recorded " + replayWriter.getTicks() + " ticks and " + replayWriter.getEvents() + " events");
+			replayWriter.close();
+		}
+
+		renderQueue.cleanUp();
+		scaledFramebuffer.cleanUp();
+		gpuTimer.cleanUp();
+		shaderManager.cleanUp();
+		modelLoader.cleanUp();
+		riw.cleanUp();
+	}
 
-		if (ARSIA_DEBUG) {
-			System.out.println("Updating display window...");
+	/* Plays back a recording as fast as the game logic can run, with no window */
+	private void runReplay(Path file) throws IOException {
+		Log.setLevel(ARSIA_DEBUG ? Log.Level.TRACE : Log.Level.INFO);
+		addSystems();
+
+		try (ReplayReader replay = new ReplayReader(file)) {
+			if (replay.getTicksPerSecond() != TICKS_PER_SECOND) {
+				Log.warn("Replay was recorded at " + replay.getTicksPerSecond() + " ticks per second, not "
+						+ TICKS_PER_SECOND);
+			}
+
+			long startNs = System.nanoTime();
+			while (replay.readTick(actions)) {
+				simulate();
+			}
+			long elapsedNs = System.nanoTime() - startNs;
+
+			Log.info("Replayed " + replay.getTicks() + " ticks and " + replay.getEvents() + " events, recorded over "
+					+ replay.getRecordedNs() / 1000000L + " ms, in " + elapsedNs / 1000000L + " ms ("
+					+ (long) (replay.getTicks() * 1e9 / Math.max(1, elapsedNs)) + " ticks per second)");
 		}
+	}
+
+	private void addSystems() {
+		scheduler.add(new MovementSystem(position, velocity, (float) (1D / TICKS_PER_SECOND)));
+	}
+
+	private void runSingleThreaded(RenderInputWindow riw, GpuTimer gpuTimer) {
+		GameLoop gameLoop = new GameLoop(TICKS_PER_SECOND, MAX_TICKS_PER_FRAME);
+		gameLoop.setFrameRateCap(FRAME_RATE_CAP);
+		tickLoop = gameLoop;
+
+		/* Created once, so that the loop does not allocate a new one every frame */
+		Runnable tickTask = this::tick;
 
 		/* Begin main game loop, each step is detailed in class comments above */
 		while (!riw.isClosed()) {
+			frameStartNs = System.nanoTime();
+
+			/* 1. Handle input and events from the user */
+			profiler.begin(inputScope);
+			riw.handleInput();
+			profiler.end(inputScope);
+
+			/* 2. Tick and update game logic (20 ticks per second or 1t/0.05s) */
+			profiler.begin(tickScope);
+			int ticks = gameLoop.advance(tickTask);
+			profiler.end(tickScope);
+
+			/* Kept in nanoseconds like the other scopes, as what is left is always under a tick */
+			profiler.record(tickBacklogScope, gameLoop.getAccumulatedNs());
+
+			if (ticks > 0) {
+				writeSnapshot(frameSnapshot, gameLoop.getTickTimeNs());
+			}
 
-			/* 1. Compute the current time and deltas */
-			if (!startGame) {
-				startGame = true;
-				previousTimeNs = nanoTime();
+			if (quitRequested) {
+				riw.close();
 			}
 
-			currentTimeNs = nanoTime();
-			delta += (currentTimeNs - previousTimeNs) / nsPerIteration;
-			previousTimeNs = currentTimeNs;
+			/*
+			 * 3. Render using steps from: {@link renderEngine.RenderInputWindow}, with
+			 * every entity drawn as far towards its latest position as the next tick is
+			 */
+			renderFrame(riw, gpuTimer, frameSnapshot, gameLoop.getAlpha());
 
-			/* 2. Handle input and events from the user */
+			/* 4. Wait out the rest of the frame, if capped */
+			gameLoop.sync();
+			profiler.endFrame();
+		}
+	}
+
+	private void runThreaded(RenderInputWindow riw, GpuTimer gpuTimer) throws InterruptedException {
+		SimulationThread simulationThread = new SimulationThread(this, TICKS_PER_SECOND, MAX_TICKS_PER_FRAME);
+		tickLoop = simulationThread.getGameLoop();
+		simulationThread.start();
+
+		GameLoop frameLoop = new GameLoop(TICKS_PER_SECOND, MAX_TICKS_PER_FRAME);
+		frameLoop.setFrameRateCap(FRAME_RATE_CAP);
+
+		while (!riw.isClosed()) {
+			frameStartNs = System.nanoTime();
+
+			profiler.begin(inputScope);
 			riw.handleInput();
+			profiler.end(inputScope);
 
-			/* 3. Tick and update game logic (20 ticks per second or 1t/0.05s) */
-			if (delta >= 1) {
-				tick();
-				delta--;
+			if (quitRequested) {
+				riw.close();
 			}
 
-			/* 4. Render using steps from: {@link renderEngine.RenderInputWindow} */
-			riw.prepare();
-			riw.render(quadRawModel);
+			/*
+			 * Only the published snapshot may be read here, as the simulation thread owns
+			 * every other piece of game state. Both loops read the system clock, so the
+			 * snapshot's tick time tells how far the next tick is
+			 */
+			WorldSnapshot snapshot = simulationThread.getLatestSnapshot();
+			float alpha = snapshot.getAlpha(System.nanoTime(), tickLoop.getNsPerTick());
+
+			renderFrame(riw, gpuTimer, snapshot, alpha);
+
+			frameLoop.sync();
+			profiler.endFrame();
+		}
+
+		simulationThread.stop();
+	}
+
+	private void renderFrame(RenderInputWindow riw, GpuTimer gpuTimer, WorldSnapshot snapshot, float alpha) {
+		profiler.begin(prepareScope);
+		placeEntities(snapshot, alpha);
+		scaledFramebuffer.setWindowSize(riw.getFramebufferWidth(), riw.getFramebufferHeight());
+		scaledFramebuffer.bind();
+		riw.prepare();
+		gpuTimer.begin();
+		profiler.end(prepareScope);
+
+		profiler.begin(renderScope);
+		shaderManager.use(quadShader);
+		quadShader.setVector4(quadColorLocation, 1.0f, 1.0f, 1.0f, 1.0f);
+		submitVisibleModels();
+		renderQueue.flush();
+		scaledFramebuffer.blitToScreen();
+		gpuTimer.end();
+		profiler.end(renderScope);
+
+		/* The wait to swap is left out, as v-sync would count as work otherwise */
+		long workNs = System.nanoTime() - frameStartNs;
+
+		profiler.begin(swapScope);
+		riw.swapBuffers();
+		profiler.end(swapScope);
+
+		if (governor.recordFrame(workNs, profiler.getLatest(gpuScope))) {
+			applyQuality(riw);
 		}
+	}
 
-		if (ARSIA_DEBUG) {
-			System.out.println("Performing clean up of resources...");
+	/* Draws a model wherever an entity's position puts it, starting from the origin until a snapshot says */
+	private void addToScene(int entity, RawModel model) {
+		int handle = sceneGrid.add(model.getBounds(), 0f, 0f, 0f);
+		while (sceneModels.size() <= handle) {
+			sceneModels.add(null);
 		}
+		sceneModels.set(handle, model);
 
-		modelLoader.cleanUp();
-		riw.cleanUp();
+		if (sceneMatrices.length < (handle + 1) * 16) {
+			sceneMatrices = Arrays.copyOf(sceneMatrices, Math.max((handle + 1) * 16, sceneMatrices.length * 2));
+		}
+		System.arraycopy(IDENTITY, 0, sceneMatrices, handle * 16, 16);
+
+		int slot = World.indexOf(entity);
+		if (sceneHandles.length <= slot) {
+			sceneHandles = Arrays.copyOf(sceneHandles, Math.max(slot + 1, sceneHandles.length * 2));
+		}
+		sceneHandles[slot] = handle + 1;
+	}
+
+	/* Moves each entity's model in the grid, and its matrix, to between its positions before and after the tick */
+	private void placeEntities(WorldSnapshot snapshot, float alpha) {
+		for (int i = 0; i < snapshot.getEntityCount(); i++) {
+			int slot = World.indexOf(snapshot.getEntity(i));
+			if (slot >= sceneHandles.length || sceneHandles[slot] == 0) {
+				continue;
+			}
+
+			int handle = sceneHandles[slot] - 1;
+			float x = snapshot.getPosition(i, 0, alpha), y = snapshot.getPosition(i, 1, alpha),
+					z = snapshot.getPosition(i, 2, alpha);
+			sceneGrid.update(handle, sceneModels.get(handle).getBounds(), x, y, z);
+
+			/* The translation column of a column-major matrix */
+			sceneMatrices[handle * 16 + 12] = x;
+			sceneMatrices[handle * 16 + 13] = y;
+			sceneMatrices[handle * 16 + 14] = z;
+		}
+	}
+
+	private void submitVisibleModels() {
+		frustum.set(VIEW_PROJECTION);
+		int visible = sceneGrid.cull(frustum);
+		int[] handles = sceneGrid.getVisible();
+		for (int i = 0; i < visible; i++) {
+			renderQueue.submit(sceneModels.get(handles[i]), sceneMatrices, handles[i] * 16);
+		}
 	}
 
-	private void tick() {
+	private void applyQuality(RenderInputWindow riw) {
+		scaledFramebuffer.setScale(governor.getResolutionScale());
+		riw.setSwapInterval(governor.getSwapInterval());
+
+		/* Checked first, so the message is only built when it will be logged */
+		if (Log.isEnabled(Log.Level.DEBUG)) {
+			Log.debug("Resolution scale now " + governor.getResolutionScale() + " and swap interval "
+					+ governor.getSwapInterval() + ", from frames of " + governor.getCpuNs() / 1000L + " us CPU and "
+					+ governor.getGpuNs() / 1000L + " us GPU");
+		}
+	}
+
+	/**
+	 * Returns the profiler timing each step of the main game loop, for reading
+	 * rolling frame, tick and GPU percentiles while the game runs.
+	 * 
+	 * @return the game loop's profiler
+	 */
+	public Profiler getProfiler() {
+		return profiler;
+	}
+
+	/**
+	 * Advances the game logic by one tick. Runs on whichever thread is driving
+	 * the simulation.
+	 */
+	@Override
+	public void tick() {
+		tickStart.setPositions(position, null);
+		readInput();
+		simulate();
+	}
+
+	/* Reads the input that happened before this tick was due, recording it if asked to */
+	private void readInput() {
+		long tickTimeNs = tickLoop.getTickTimeNs();
+		actions.beginTick();
+
+		if (replayWriter != null) {
+			try {
+				replayWriter.beginTick(tickTimeNs);
+			} catch (IOException e) {
+				stopRecording();
+			}
+		}
+
+		while (inputQueue.poll(inputEvent, tickTimeNs)) {
+			actions.apply(inputEvent);
+
+			if (replayWriter != null) {
+				try {
+					replayWriter.write(inputEvent);
+				} catch (IOException e) {
+					stopRecording();
+				}
+			}
+		}
+	}
+
+	/* Everything a tick does once its input has been read, whether live or replayed */
+	private void simulate() {
 		currentTick++;
+		if (actions.wasReleased(quitAction)) {
+			/* The window belongs to the render thread, so it closes the window itself */
+			quitRequested = true;
+		}
+
+		scheduler.run(world);
 
-		if (ARSIA_DEBUG) {
-			System.out.println(currentTick / 20 + " sec:\tcurrentTick: " + currentTick);
+		Log.trace("currentTick", currentTick);
+	}
+
+	/* Failing to record is logged, not thrown, so recording can never crash the game */
+	private void stopRecording() {
+		Log.warn("Unable to write replay file, recording has stopped");
+		try {
+			replayWriter.close();
+		} catch (IOException e) {
+			/* Already failing, and nothing more can be done about it */
 		}
+		replayWriter = null;
+	}
+
+	/**
+	 * Copies the tick counter, and every entity's position before and after the
+	 * latest tick, into the snapshot handed to the render thread.
+	 */
+	@Override
+	public void writeSnapshot(WorldSnapshot snapshot, long tickTimeNs) {
+		snapshot.setTick(currentTick, tickTimeNs);
+		snapshot.setPositions(position, tickStart);
 	}
 }
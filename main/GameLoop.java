@@ -0,0 +1,290 @@
+package main;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class is the fixed time-step scheduler for the main game loop. Game
+ * logic is always advanced in whole ticks of a constant length, no matter how
+ * long each rendered frame takes. Time that has passed but is not yet large
+ * enough for a whole tick is carried over to the next frame, and the fraction
+ * of a tick that is left over is handed to the renderer as an interpolation
+ * alpha. Each frame of the game loop should:
+ * 
+ * <ol>
+ * <li>Call {@link #advance(Runnable)} to run every tick that is now due</li>
+ * <li>Render, using {@link #getAlpha()} to blend the previous and current
+ * tick</li>
+ * <li>Call {@link #sync()} to pace the loop to the frame rate cap, if any</li>
+ * </ol>
+ * 
+ * All time is read from a {@link GameLoop.Clock}, so the scheduler can be
+ * driven by a fake clock to check the tick timing without a display window.
+ * 
+ * @author Matthew L. Roy
+ * 
+ */
+public class GameLoop {
+
+	/**
+	 * The source of time (and of waiting) used by the game loop. The
+	 * {@link #SYSTEM} clock is backed by {@link System#nanoTime()}, but any other
+	 * monotonic clock may be used in its place.
+	 */
+	public interface Clock {
+
+		/**
+		 * The default clock, as backed by the JVM's high resolution timer
+		 */
+		Clock SYSTEM = new Clock() {
+			@Override
+			public long nanoTime() {
+				return System.nanoTime();
+			}
+
+			@Override
+			public void park(long nanos) {
+				LockSupport.parkNanos(nanos);
+			}
+		};
+
+		/**
+		 * Returns the current value of this clock, in nanoseconds. Only the
+		 * difference between two values is meaningful.
+		 * 
+		 * @return the current time in nanoseconds
+		 */
+		long nanoTime();
+
+		/**
+		 * Gives up the current thread for roughly the specified amount of time. The
+		 * thread may wake up early or late.
+		 * 
+		 * @param nanos
+		 *            the amount of time to wait, in nanoseconds
+		 */
+		void park(long nanos);
+	}
+
+	/* Sleeping is only accurate to a millisecond or two, so spin the rest */
+	private static final long DEFAULT_SPIN_THRESHOLD_NS = 2000000L;
+
+	private final Clock clock;
+
+	private final long nsPerTick;
+	private final int maxTicksPerFrame;
+
+	private long nsPerFrame = 0, spinThresholdNs = DEFAULT_SPIN_THRESHOLD_NS;
+	private long previousTimeNs = 0, accumulatorNs = 0, nextFrameNs = 0, tickTimeNs = 0;
+	private long totalTicks = 0, droppedTicks = 0;
+
+	private boolean started = false;
+
+	/**
+	 * Constructs a game loop scheduler that runs on the {@link Clock#SYSTEM}
+	 * clock.
+	 * 
+	 * @param ticksPerSecond
+	 *            how many times per second the game logic is advanced
+	 * @param maxTicksPerFrame
+	 *            the most ticks that will be run to catch up in a single frame;
+	 *            any time past this is dropped
+	 * @see #GameLoop(double, int, Clock)
+	 */
+	public GameLoop(double ticksPerSecond, int maxTicksPerFrame) {
+		this(ticksPerSecond, maxTicksPerFrame, Clock.SYSTEM);
+	}
+
+	/**
+	 * Constructs a game loop scheduler that reads all of its time from the
+	 * specified clock.
+	 * 
+	 * @param ticksPerSecond
+	 *            how many times per second the game logic is advanced
+	 * @param maxTicksPerFrame
+	 *            the most ticks that will be run to catch up in a single frame;
+	 *            any time past this is dropped, so that a long stall does not turn
+	 *            into a "spiral of death" where ticking can never catch up
+	 * @param clock
+	 *            the source of time for this game loop
+	 */
+	public GameLoop(double ticksPerSecond, int maxTicksPerFrame, Clock clock) {
+		if (ticksPerSecond <= 0) {
+			throw new IllegalArgumentException("Ticks per second must be positive: " + ticksPerSecond);
+		}
+
+		if (maxTicksPerFrame < 1) {
+			throw new IllegalArgumentException("Max ticks per frame must be at least 1: " + maxTicksPerFrame);
+		}
+
+		this.nsPerTick = Math.round(1000000000D / ticksPerSecond);
+		this.maxTicksPerFrame = maxTicksPerFrame;
+		this.clock = clock;
+	}
+
+	/**
+	 * Sets the most frames per second that {@link #sync()} will allow. A value of
+	 * zero removes the cap, which is the default (useful when v-sync is already
+	 * pacing the loop).
+	 * 
+	 * @param framesPerSecond
+	 *            the frame rate cap, or zero for uncapped
+	 */
+	public void setFrameRateCap(double framesPerSecond) {
+		if (framesPerSecond < 0) {
+			throw new IllegalArgumentException("Frame rate cap must not be negative: " + framesPerSecond);
+		}
+
+		nsPerFrame = framesPerSecond == 0 ? 0 : Math.round(1000000000D / framesPerSecond);
+		nextFrameNs = 0;
+	}
+
+	/**
+	 * Sets how close to a frame deadline {@link #sync()} stops sleeping and
+	 * starts spinning instead. Larger values are more accurate but burn more CPU.
+	 * A fake clock that only moves forward when parked should use a threshold of
+	 * zero, so that the loop never spins waiting on it.
+	 * 
+	 * @param spinThresholdNs
+	 *            the spin threshold, in nanoseconds
+	 */
+	public void setSpinThreshold(long spinThresholdNs) {
+		this.spinThresholdNs = Math.max(0, spinThresholdNs);
+	}
+
+	/**
+	 * Adds the time passed since the previous call to the accumulator and runs
+	 * the tick as many times as are due, up to the max ticks per frame. The very
+	 * first call only starts the clock and runs no ticks.
+	 * 
+	 * @param tick
+	 *            the game logic to run once per tick
+	 * @return the number of ticks that were run
+	 */
+	public int advance(Runnable tick) {
+		long now = clock.nanoTime();
+
+		if (!started) {
+			started = true;
+			previousTimeNs = now;
+		}
+
+		accumulatorNs += now - previousTimeNs;
+		previousTimeNs = now;
+
+		int ticks = 0;
+		while (accumulatorNs >= nsPerTick) {
+			if (ticks == maxTicksPerFrame) {
+				/* Too far behind, drop whole ticks but keep the partial tick */
+				long behind = accumulatorNs / nsPerTick;
+				droppedTicks += behind;
+				accumulatorNs -= behind * nsPerTick;
+				break;
+			}
+
+			/* The clock time at which this tick fell due */
+			tickTimeNs = now - accumulatorNs + nsPerTick;
+			tick.run();
+			accumulatorNs -= nsPerTick;
+			ticks++;
+		}
+
+		totalTicks += ticks;
+		return ticks;
+	}
+
+	/**
+	 * Waits until the next frame is due, as determined by the frame rate cap.
+	 * Most of the wait is spent parked, while the last part (see
+	 * {@link #setSpinThreshold(long)}) is spent spinning for accuracy. Returns
+	 * immediately when the loop is uncapped.
+	 */
+	public void sync() {
+		if (nsPerFrame == 0) {
+			return;
+		}
+
+		long now = clock.nanoTime();
+
+		/* Deadlines are chained so that early and late frames average out */
+		nextFrameNs = nextFrameNs == 0 ? now + nsPerFrame : nextFrameNs + nsPerFrame;
+
+		/* If more than a frame late, do not try to rush to make up for it */
+		if (now - nextFrameNs > nsPerFrame) {
+			nextFrameNs = now;
+			return;
+		}
+
+		long remaining;
+		while ((remaining = nextFrameNs - clock.nanoTime()) > spinThresholdNs) {
+			clock.park(remaining - spinThresholdNs);
+		}
+
+		while (nextFrameNs - clock.nanoTime() > 0) {
+			Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * Returns how far along the next tick is, as a value from 0 (just ticked) up
+	 * to, but not including, 1 (about to tick). The renderer should use this to
+	 * interpolate between the previous and current tick's state.
+	 * 
+	 * @return the interpolation alpha for the current frame
+	 */
+	public float getAlpha() {
+		return (float) ((double) accumulatorNs / nsPerTick);
+	}
+
+	/**
+	 * Returns the time that has built up on the clock without being ticked yet,
+	 * as of the last call to {@link #advance(Runnable)}. This is always less than
+	 * a tick once advanced, as whole ticks past the max ticks per frame are
+	 * dropped rather than kept.
+	 * 
+	 * @return the accumulated time, in nanoseconds
+	 */
+	public long getAccumulatedNs() {
+		return accumulatorNs;
+	}
+
+	/**
+	 * Returns the time on this loop's clock at which the tick being run fell due.
+	 * Ticks caught up on after a slow frame each get their own time, even though
+	 * they all run at once, so that anything stamped with the clock, such as
+	 * input events, can be shared out between them the same way every time.
+	 * 
+	 * @return the due time of the current tick, or of the last tick when called
+	 *         between ticks, in nanoseconds
+	 */
+	public long getTickTimeNs() {
+		return tickTimeNs;
+	}
+
+	/**
+	 * Returns the length of one tick, in nanoseconds.
+	 * 
+	 * @return the nanoseconds per tick
+	 */
+	public long getNsPerTick() {
+		return nsPerTick;
+	}
+
+	/**
+	 * Returns the total number of ticks run since this game loop was started.
+	 * 
+	 * @return the total ticks run
+	 */
+	public long getTotalTicks() {
+		return totalTicks;
+	}
+
+	/**
+	 * Returns the total number of ticks that were skipped because a frame fell
+	 * further behind than the max ticks per frame allows.
+	 * 
+	 * @return the total ticks dropped
+	 */
+	public long getDroppedTicks() {
+		return droppedTicks;
+	}
+}
@@ -0,0 +1,29 @@
+package main;
+
+/**
+ * The game logic as seen by whatever is driving it, whether that is the main
+ * game loop or a separate {@link main.SimulationThread}.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public interface Simulation {
+
+	/**
+	 * Advances the game logic by exactly one tick.
+	 */
+	void tick();
+
+	/**
+	 * Copies the current state of the game world into the specified snapshot.
+	 * Every field of the snapshot must be written, as it may hold stale data from
+	 * an earlier tick.
+	 * 
+	 * @param snapshot
+	 *            the snapshot to be written to
+	 * @param tickTimeNs
+	 *            the time the latest tick fell due, in nanoseconds, from which the
+	 *            render thread works out how far it is through to the next
+	 */
+	void writeSnapshot(WorldSnapshot snapshot, long tickTimeNs);
+}
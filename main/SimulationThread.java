@@ -0,0 +1,133 @@
+package main;
+
+import utility.TripleBuffer;
+
+/**
+ * Runs a {@link main.Simulation} on its own thread, at a fixed tick rate, so
+ * that slow ticks never hold up the thread that owns the display window. After
+ * every frame's worth of ticks, the state of the world is published to the
+ * render thread as a {@link main.WorldSnapshot} through a lock-free
+ * {@link utility.TripleBuffer}. Nothing in this class touches GLFW or OpenGL,
+ * so it can be run without any display window at all.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class SimulationThread implements Runnable {
+
+	private final Simulation simulation;
+	private final GameLoop gameLoop;
+
+	private final TripleBuffer<WorldSnapshot> snapshots = new TripleBuffer<WorldSnapshot>(WorldSnapshot::new);
+
+	private final Runnable tickTask;
+
+	private volatile boolean running = false;
+
+	private Thread thread = null;
+
+	/**
+	 * Constructs the simulation thread, running on the {@link GameLoop.Clock#SYSTEM}
+	 * clock.
+	 * 
+	 * @param simulation
+	 *            the game logic to be ticked
+	 * @param ticksPerSecond
+	 *            how many times per second the game logic is advanced
+	 * @param maxTicksPerFrame
+	 *            the most ticks that will be run to catch up at once
+	 */
+	public SimulationThread(Simulation simulation, double ticksPerSecond, int maxTicksPerFrame) {
+		this(simulation, ticksPerSecond, maxTicksPerFrame, GameLoop.Clock.SYSTEM);
+	}
+
+	/**
+	 * Constructs the simulation thread, reading all of its time from the
+	 * specified clock.
+	 * 
+	 * @param simulation
+	 *            the game logic to be ticked
+	 * @param ticksPerSecond
+	 *            how many times per second the game logic is advanced
+	 * @param maxTicksPerFrame
+	 *            the most ticks that will be run to catch up at once
+	 * @param clock
+	 *            the source of time for the simulation
+	 */
+	public SimulationThread(Simulation simulation, double ticksPerSecond, int maxTicksPerFrame,
+			GameLoop.Clock clock) {
+		this.simulation = simulation;
+		this.tickTask = simulation::tick;
+
+		/* Pacing the loop at the tick rate parks the thread between ticks */
+		gameLoop = new GameLoop(ticksPerSecond, maxTicksPerFrame, clock);
+		gameLoop.setFrameRateCap(ticksPerSecond);
+	}
+
+	/**
+	 * Starts the simulation on a new thread. The thread is a daemon, so it will
+	 * not keep the game running once the main thread has finished.
+	 */
+	public void start() {
+		if (thread != null) {
+			throw new IllegalStateException("Simulation thread has already been started");
+		}
+
+		running = true;
+		thread = new Thread(this, "Arsia-Simulation");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Asks the simulation thread to finish its current tick and stop, then waits
+	 * for it to do so.
+	 * 
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the thread to stop
+	 */
+	public void stop() throws InterruptedException {
+		running = false;
+
+		if (thread != null) {
+			thread.join();
+			thread = null;
+		}
+	}
+
+	/**
+	 * The body of the simulation thread, as started by {@link #start()}. Runs
+	 * until {@link #stop()} is called, which may be before this has begun.
+	 */
+	@Override
+	public void run() {
+		while (running) {
+			if (gameLoop.advance(tickTask) > 0) {
+				simulation.writeSnapshot(snapshots.getBackBuffer(), gameLoop.getTickTimeNs());
+				snapshots.publish();
+			}
+
+			gameLoop.sync();
+		}
+	}
+
+	/**
+	 * Returns the most recent snapshot of the world that the simulation has
+	 * published. Must only be called from a single reader thread, normally the
+	 * render thread.
+	 * 
+	 * @return the latest world snapshot
+	 */
+	public WorldSnapshot getLatestSnapshot() {
+		return snapshots.getFrontBuffer();
+	}
+
+	/**
+	 * Returns the game loop scheduling this simulation, for its tick statistics.
+	 * 
+	 * @return the simulation's game loop
+	 */
+	public GameLoop getGameLoop() {
+		return gameLoop;
+	}
+}
@@ -0,0 +1,151 @@
+package main;
+
+import java.util.Arrays;
+
+import world.FloatComponent;
+
+/**
+ * An image of the game world's state as of the end of one tick, handed from
+ * the simulation thread to the render thread. Once published, a snapshot is
+ * read-only; only the package that runs the simulation is able to write to
+ * it.
+ * 
+ * <p>
+ * Along with the tick, a snapshot holds every entity's position both before
+ * and after its tick, so that the render thread can draw each entity part way
+ * between the two, by how far it is through to the next tick.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ * @see main.SimulationThread
+ *
+ */
+public class WorldSnapshot {
+
+	/* Floats in each position */
+	private static final int POSITION_WIDTH = 3;
+
+	private long tick = -1, tickTimeNs = 0;
+
+	/* By index in the snapshot, which is the entity's dense index in the position component */
+	private int entityCount = 0;
+	private int[] entities = new int[0];
+	private float[] positions = new float[0], previousPositions = new float[0];
+
+	/**
+	 * Returns the number of the tick that this snapshot was taken at.
+	 * 
+	 * @return the tick number, or -1 if no tick has been run yet
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Returns when this snapshot's tick was due, as read from the simulation's
+	 * clock.
+	 * 
+	 * @return the time of the tick in nanoseconds
+	 */
+	public long getTickTimeNs() {
+		return tickTimeNs;
+	}
+
+	/**
+	 * Returns how far the simulation is likely to be through to the tick after
+	 * this snapshot's, for interpolating between the positions in it. As a
+	 * snapshot holds no later positions, this stops at one while the next tick
+	 * is running late.
+	 * 
+	 * @param nowNs
+	 *            the current time, from the same clock as the tick time
+	 * @param nsPerTick
+	 *            the length of a tick in nanoseconds
+	 * @return the interpolation alpha, from zero to one
+	 */
+	public float getAlpha(long nowNs, long nsPerTick) {
+		return Math.min(1f, Math.max(0f, (float) (nowNs - tickTimeNs) / nsPerTick));
+	}
+
+	/**
+	 * Returns the number of entities with a position in this snapshot.
+	 * 
+	 * @return the entity count
+	 */
+	public int getEntityCount() {
+		return entityCount;
+	}
+
+	/**
+	 * Returns the handle of one of the entities in this snapshot.
+	 * 
+	 * @param index
+	 *            the entity's index in this snapshot, from zero up to the entity
+	 *            count
+	 * @return the entity
+	 */
+	public int getEntity(int index) {
+		return entities[index];
+	}
+
+	/**
+	 * Returns one element of an entity's position, part way between where it was
+	 * before and after this snapshot's tick.
+	 * 
+	 * @param index
+	 *            the entity's index in this snapshot
+	 * @param element
+	 *            zero for X, one for Y and two for Z
+	 * @param alpha
+	 *            zero for the position before the tick, up to one for after it
+	 * @return the interpolated position
+	 */
+	public float getPosition(int index, int element, float alpha) {
+		int i = index * POSITION_WIDTH + element;
+		return previousPositions[i] + (positions[i] - previousPositions[i]) * alpha;
+	}
+
+	void setTick(long tick, long tickTimeNs) {
+		this.tick = tick;
+		this.tickTimeNs = tickTimeNs;
+	}
+
+	/*
+	 * Copies every entity's position, and where it was in an earlier snapshot,
+	 * taken at the start of the tick. An entity that is new, or was moved to
+	 * another dense index by a removal, is given no movement, rather than
+	 * someone else's. The arrays only grow, so a steady world copies without
+	 * allocating
+	 */
+	void setPositions(FloatComponent position, WorldSnapshot earlier) {
+		if (position.getWidth() != POSITION_WIDTH) {
+			throw new IllegalArgumentException("Positions must have " + POSITION_WIDTH + " floats, not "
+					+ position.getWidth());
+		}
+
+		entityCount = position.size();
+		int floats = entityCount * POSITION_WIDTH;
+		if (entities.length < entityCount) {
+			int capacity = Math.max(entityCount, entities.length * 2);
+			entities = Arrays.copyOf(entities, capacity);
+			positions = Arrays.copyOf(positions, capacity * POSITION_WIDTH);
+			previousPositions = Arrays.copyOf(previousPositions, capacity * POSITION_WIDTH);
+		}
+
+		for (int i = 0; i < entityCount; i++) {
+			entities[i] = position.getEntity(i);
+		}
+		System.arraycopy(position.getData(), 0, positions, 0, floats);
+		System.arraycopy(positions, 0, previousPositions, 0, floats);
+
+		if (earlier != null) {
+			int shared = Math.min(entityCount, earlier.entityCount);
+			for (int i = 0; i < shared; i++) {
+				if (earlier.entities[i] == entities[i]) {
+					System.arraycopy(earlier.positions, i * POSITION_WIDTH, previousPositions, i * POSITION_WIDTH,
+							POSITION_WIDTH);
+				}
+			}
+		}
+	}
+}
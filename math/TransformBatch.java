@@ -0,0 +1,550 @@
+package math;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import renderEngine.Bounds;
+
+/**
+ * The transforms of a batch of objects, stored as structure-of-arrays: one
+ * array per component of position, rotation and scale, and one per entry of
+ * the model matrices built from them. Once a tick has written the positions,
+ * rotations and scales, {@link #composeMatrices(int, int)} builds every model
+ * matrix and {@link #transformBounds(int, int)} moves every object's bounds
+ * into the world, each as a single straight loop over plain float arrays, and
+ * nothing is allocated per object.
+ * 
+ * <p>
+ * When the JVM is started with {@code --add-modules jdk.incubator.vector}, as
+ * the build does, both loops run through {@link math.VectorTransforms}, which
+ * processes as many objects at once as the machine's widest SIMD registers
+ * hold. Otherwise, or if turned off by {@link #setVectorized(boolean)}, the
+ * plain scalar loops are used, which the JIT compiler may still vectorize on
+ * its own. Both give exactly the same results.
+ * </p>
+ * 
+ * <p>
+ * Model matrices are affine, so only their upper three rows are stored. They
+ * are written out as whole column-major 4x4 matrices, as OpenGL takes them, by
+ * {@link #writeMatrices(int, int, ByteBuffer)}, such as into a
+ * {@link renderEngine.StreamingBuffer} of per-instance data. The world bounds
+ * suit {@link renderEngine.SpatialGrid} and {@link renderEngine.Frustum}. Any
+ * range of objects may be updated on its own, so a large batch can be split
+ * between threads, as long as the ranges do not overlap.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class TransformBatch {
+
+	/* Only looked up once, as the classes of an absent module cannot be loaded at all */
+	private static final boolean VECTOR_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector")
+			.isPresent();
+
+	private int capacity, size = 0;
+
+	private boolean vectorized = VECTOR_AVAILABLE;
+
+	/* Position, rotation as a unit quaternion, and scale, package-private like the arrays below for the vector loops */
+	float[] positionX, positionY, positionZ;
+	float[] rotationX, rotationY, rotationZ, rotationW;
+	float[] scaleX, scaleY, scaleZ;
+
+	/* Entries of the model matrices, named by row then column */
+	float[] m00, m10, m20, m01, m11, m21, m02, m12, m22, m03, m13, m23;
+
+	/* The model-space bounds, as a center and half extents */
+	float[] localCenterX, localCenterY, localCenterZ, localExtentX, localExtentY, localExtentZ;
+
+	float[] worldMinX, worldMinY, worldMinZ, worldMaxX, worldMaxY, worldMaxZ;
+
+	/* Every array an object's state is set through, which are the ones a removal moves */
+	private float[][] inputs;
+
+	/**
+	 * Constructs an empty batch.
+	 * 
+	 * @param initialCapacity
+	 *            how many objects to make room for up front
+	 */
+	public TransformBatch(int initialCapacity) {
+		this.capacity = Math.max(1, initialCapacity);
+		resize();
+	}
+
+	/**
+	 * Adds an object with no translation or rotation, a scale of one, and empty
+	 * bounds at its origin.
+	 * 
+	 * @return the index of the object
+	 */
+	public int add() {
+		if (size == capacity) {
+			capacity *= 2;
+			resize();
+		}
+
+		int index = size++;
+		setPosition(index, 0, 0, 0);
+		setRotation(index, 0, 0, 0, 1);
+		setScale(index, 1, 1, 1);
+		setLocalBounds(index, 0, 0, 0, 0, 0, 0);
+		return index;
+	}
+
+	/**
+	 * Removes an object by moving the last object into its place, so that the
+	 * arrays stay packed.
+	 * 
+	 * @param index
+	 *            the index of the object to be removed
+	 * @return the old index of the object that was moved into its place, or -1
+	 *         if it was the last object
+	 */
+	public int removeSwap(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("No object at index " + index + " of " + size);
+		}
+
+		int last = --size;
+		if (index == last) {
+			return -1;
+		}
+
+		for (float[] array : inputs) {
+			array[index] = array[last];
+		}
+		return last;
+	}
+
+	/**
+	 * Removes every object, keeping the arrays for reuse.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Sets the position of an object.
+	 * 
+	 * @param index
+	 *            the index of the object
+	 * @param x
+	 *            the X of the position
+	 * @param y
+	 *            the Y of the position
+	 * @param z
+	 *            the Z of the position
+	 */
+	public void setPosition(int index, float x, float y, float z) {
+		positionX[index] = x;
+		positionY[index] = y;
+		positionZ[index] = z;
+	}
+
+	/**
+	 * Sets the rotation of an object.
+	 * 
+	 * @param index
+	 *            the index of the object
+	 * @param x
+	 *            the X of the rotation quaternion
+	 * @param y
+	 *            the Y of the rotation quaternion
+	 * @param z
+	 *            the Z of the rotation quaternion
+	 * @param w
+	 *            the W of the rotation quaternion, where the quaternion must be
+	 *            of unit length
+	 */
+	public void setRotation(int index, float x, float y, float z, float w) {
+		rotationX[index] = x;
+		rotationY[index] = y;
+		rotationZ[index] = z;
+		rotationW[index] = w;
+	}
+
+	/**
+	 * Sets the rotation of an object to a turn about an axis.
+	 * 
+	 * @param index
+	 *            the index of the object
+	 * @param axisX
+	 *            the X of the axis, which must be of unit length
+	 * @param axisY
+	 *            the Y of the axis
+	 * @param axisZ
+	 *            the Z of the axis
+	 * @param radians
+	 *            how far to turn, counterclockwise looking down the axis
+	 */
+	public void setRotationAxisAngle(int index, float axisX, float axisY, float axisZ, float radians) {
+		float sin = (float) Math.sin(radians / 2);
+		setRotation(index, axisX * sin, axisY * sin, axisZ * sin, (float) Math.cos(radians / 2));
+	}
+
+	/**
+	 * Sets the scale of an object along each of its own axes.
+	 * 
+	 * @param index
+	 *            the index of the object
+	 * @param x
+	 *            the scale along X
+	 * @param y
+	 *            the scale along Y
+	 * @param z
+	 *            the scale along Z
+	 */
+	public void setScale(int index, float x, float y, float z) {
+		scaleX[index] = x;
+		scaleY[index] = y;
+		scaleZ[index] = z;
+	}
+
+	/**
+	 * Sets the model-space bounds of an object, such as those of its
+	 * {@link renderEngine.RawModel}.
+	 * 
+	 * @param index
+	 *            the index of the object
+	 * @param bounds
+	 *            the bounds, which must be finite
+	 */
+	public void setLocalBounds(int index, Bounds bounds) {
+		setLocalBounds(index, bounds.getMinX(), bounds.getMinY(), bounds.getMinZ(), bounds.getMaxX(),
+				bounds.getMaxY(), bounds.getMaxZ());
+	}
+
+	/**
+	 * Sets the model-space bounds of an object from the corners of a box.
+	 * 
+	 * @param index
+	 *            the index of the object
+	 * @param minX
+	 *            the smallest X of the box
+	 * @param minY
+	 *            the smallest Y of the box
+	 * @param minZ
+	 *            the smallest Z of the box
+	 * @param maxX
+	 *            the largest X of the box
+	 * @param maxY
+	 *            the largest Y of the box
+	 * @param maxZ
+	 *            the largest Z of the box
+	 */
+	public void setLocalBounds(int index, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		localCenterX[index] = (minX + maxX) * 0.5f;
+		localCenterY[index] = (minY + maxY) * 0.5f;
+		localCenterZ[index] = (minZ + maxZ) * 0.5f;
+		localExtentX[index] = (maxX - minX) * 0.5f;
+		localExtentY[index] = (maxY - minY) * 0.5f;
+		localExtentZ[index] = (maxZ - minZ) * 0.5f;
+	}
+
+	/**
+	 * Builds the model matrices of every object, then moves their bounds into the
+	 * world.
+	 */
+	public void update() {
+		composeMatrices(0, size);
+		transformBounds(0, size);
+	}
+
+	/**
+	 * Builds the model matrix of each object in a range: its scale, then its
+	 * rotation, then its translation.
+	 * 
+	 * @param from
+	 *            the index of the first object, inclusive
+	 * @param to
+	 *            the index of the last object, exclusive
+	 */
+	public void composeMatrices(int from, int to) {
+		checkRange(from, to);
+		if (vectorized) {
+			from = VectorTransforms.composeMatrices(this, from, to);
+		}
+
+		/* Locals, so the compiler knows the arrays cannot change during the loop */
+		float[] qx = rotationX, qy = rotationY, qz = rotationZ, qw = rotationW;
+		float[] sx = scaleX, sy = scaleY, sz = scaleZ, tx = positionX, ty = positionY, tz = positionZ;
+		float[] a00 = m00, a10 = m10, a20 = m20, a01 = m01, a11 = m11, a21 = m21, a02 = m02, a12 = m12,
+				a22 = m22, a03 = m03, a13 = m13, a23 = m23;
+
+		for (int i = from; i < to; i++) {
+			float x = qx[i], y = qy[i], z = qz[i], w = qw[i];
+			float xx = x * x, yy = y * y, zz = z * z;
+			float xy = x * y, xz = x * z, yz = y * z, wx = w * x, wy = w * y, wz = w * z;
+
+			/* Each column of the rotation, scaled by the scale along that axis */
+			a00[i] = (1 - 2 * (yy + zz)) * sx[i];
+			a10[i] = 2 * (xy + wz) * sx[i];
+			a20[i] = 2 * (xz - wy) * sx[i];
+			a01[i] = 2 * (xy - wz) * sy[i];
+			a11[i] = (1 - 2 * (xx + zz)) * sy[i];
+			a21[i] = 2 * (yz + wx) * sy[i];
+			a02[i] = 2 * (xz + wy) * sz[i];
+			a12[i] = 2 * (yz - wx) * sz[i];
+			a22[i] = (1 - 2 * (xx + yy)) * sz[i];
+			a03[i] = tx[i];
+			a13[i] = ty[i];
+			a23[i] = tz[i];
+		}
+	}
+
+	/**
+	 * Moves the bounds of each object in a range into the world, using the model
+	 * matrices already built by {@link #composeMatrices(int, int)}. The center is
+	 * transformed, and the half extents are transformed by the absolute value of
+	 * the matrix (the method of Arvo), which gives the tightest box around the
+	 * rotated box without visiting its corners.
+	 * 
+	 * @param from
+	 *            the index of the first object, inclusive
+	 * @param to
+	 *            the index of the last object, exclusive
+	 */
+	public void transformBounds(int from, int to) {
+		checkRange(from, to);
+		if (vectorized) {
+			from = VectorTransforms.transformBounds(this, from, to);
+		}
+
+		float[] cx = localCenterX, cy = localCenterY, cz = localCenterZ;
+		float[] ex = localExtentX, ey = localExtentY, ez = localExtentZ;
+		float[] a00 = m00, a10 = m10, a20 = m20, a01 = m01, a11 = m11, a21 = m21, a02 = m02, a12 = m12,
+				a22 = m22, a03 = m03, a13 = m13, a23 = m23;
+		float[] minX = worldMinX, minY = worldMinY, minZ = worldMinZ, maxX = worldMaxX, maxY = worldMaxY,
+				maxZ = worldMaxZ;
+
+		for (int i = from; i < to; i++) {
+			float centerX = a00[i] * cx[i] + a01[i] * cy[i] + a02[i] * cz[i] + a03[i];
+			float centerY = a10[i] * cx[i] + a11[i] * cy[i] + a12[i] * cz[i] + a13[i];
+			float centerZ = a20[i] * cx[i] + a21[i] * cy[i] + a22[i] * cz[i] + a23[i];
+
+			float extentX = Math.abs(a00[i]) * ex[i] + Math.abs(a01[i]) * ey[i] + Math.abs(a02[i]) * ez[i];
+			float extentY = Math.abs(a10[i]) * ex[i] + Math.abs(a11[i]) * ey[i] + Math.abs(a12[i]) * ez[i];
+			float extentZ = Math.abs(a20[i]) * ex[i] + Math.abs(a21[i]) * ey[i] + Math.abs(a22[i]) * ez[i];
+
+			minX[i] = centerX - extentX;
+			minY[i] = centerY - extentY;
+			minZ[i] = centerZ - extentZ;
+			maxX[i] = centerX + extentX;
+			maxY[i] = centerY + extentY;
+			maxZ[i] = centerZ + extentZ;
+		}
+	}
+
+	/**
+	 * Writes the model matrix of each object in a range as 16 floats, column by
+	 * column, starting at the buffer's position. The buffer's position is moved
+	 * past the matrices, and its byte order is used as is.
+	 * 
+	 * @param from
+	 *            the index of the first object, inclusive
+	 * @param to
+	 *            the index of the last object, exclusive
+	 * @param buffer
+	 *            the buffer to be written to, with room for 64 bytes per object
+	 */
+	public void writeMatrices(int from, int to, ByteBuffer buffer) {
+		checkRange(from, to);
+
+		for (int i = from; i < to; i++) {
+			buffer.putFloat(m00[i]).putFloat(m10[i]).putFloat(m20[i]).putFloat(0);
+			buffer.putFloat(m01[i]).putFloat(m11[i]).putFloat(m21[i]).putFloat(0);
+			buffer.putFloat(m02[i]).putFloat(m12[i]).putFloat(m22[i]).putFloat(0);
+			buffer.putFloat(m03[i]).putFloat(m13[i]).putFloat(m23[i]).putFloat(1);
+		}
+	}
+
+	/**
+	 * Copies the model matrix of one object out as 16 floats, column by column.
+	 * 
+	 * @param index
+	 *            the index of the object
+	 * @param matrix
+	 *            the array to be written to, with room for 16 floats
+	 * @return the same array that was passed in
+	 */
+	public float[] getMatrix(int index, float[] matrix) {
+		matrix[0] = m00[index];
+		matrix[1] = m10[index];
+		matrix[2] = m20[index];
+		matrix[3] = 0;
+		matrix[4] = m01[index];
+		matrix[5] = m11[index];
+		matrix[6] = m21[index];
+		matrix[7] = 0;
+		matrix[8] = m02[index];
+		matrix[9] = m12[index];
+		matrix[10] = m22[index];
+		matrix[11] = 0;
+		matrix[12] = m03[index];
+		matrix[13] = m13[index];
+		matrix[14] = m23[index];
+		matrix[15] = 1;
+		return matrix;
+	}
+
+	/**
+	 * Returns whether the Vector API is available to this JVM, which needs
+	 * starting with {@code --add-modules jdk.incubator.vector}.
+	 * 
+	 * @return true if batches can be vectorized
+	 */
+	public static boolean isVectorAvailable() {
+		return VECTOR_AVAILABLE;
+	}
+
+	/**
+	 * Chooses whether this batch updates through the Vector API or the scalar
+	 * loops. Batches are vectorized by default wherever the Vector API is
+	 * available.
+	 * 
+	 * @param vectorized
+	 *            true to use the Vector API
+	 * @throws IllegalStateException
+	 *             if vectorizing, and the Vector API is not available
+	 */
+	public void setVectorized(boolean vectorized) {
+		if (vectorized && !VECTOR_AVAILABLE) {
+			throw new IllegalStateException("The jdk.incubator.vector module is not available");
+		}
+		this.vectorized = vectorized;
+	}
+
+	/**
+	 * Returns whether this batch updates through the Vector API.
+	 * 
+	 * @return true if vectorized
+	 */
+	public boolean isVectorized() {
+		return vectorized;
+	}
+
+	/**
+	 * Returns the number of objects in the batch.
+	 * 
+	 * @return the object count
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the smallest world X of every object's bounds, indexed by object.
+	 * The array may be longer than the batch, and is replaced when the batch
+	 * grows.
+	 * 
+	 * @return the world minimum X array
+	 */
+	public float[] getWorldMinX() {
+		return worldMinX;
+	}
+
+	/**
+	 * Returns the smallest world Y of every object's bounds, indexed by object.
+	 * 
+	 * @return the world minimum Y array
+	 * @see #getWorldMinX()
+	 */
+	public float[] getWorldMinY() {
+		return worldMinY;
+	}
+
+	/**
+	 * Returns the smallest world Z of every object's bounds, indexed by object.
+	 * 
+	 * @return the world minimum Z array
+	 * @see #getWorldMinX()
+	 */
+	public float[] getWorldMinZ() {
+		return worldMinZ;
+	}
+
+	/**
+	 * Returns the largest world X of every object's bounds, indexed by object.
+	 * 
+	 * @return the world maximum X array
+	 * @see #getWorldMinX()
+	 */
+	public float[] getWorldMaxX() {
+		return worldMaxX;
+	}
+
+	/**
+	 * Returns the largest world Y of every object's bounds, indexed by object.
+	 * 
+	 * @return the world maximum Y array
+	 * @see #getWorldMinX()
+	 */
+	public float[] getWorldMaxY() {
+		return worldMaxY;
+	}
+
+	/**
+	 * Returns the largest world Z of every object's bounds, indexed by object.
+	 * 
+	 * @return the world maximum Z array
+	 * @see #getWorldMinX()
+	 */
+	public float[] getWorldMaxZ() {
+		return worldMaxZ;
+	}
+
+	private void checkRange(int from, int to) {
+		if (from < 0 || to > size || from > to) {
+			throw new IndexOutOfBoundsException("Range " + from + " to " + to + " is outside 0 to " + size);
+		}
+	}
+
+	private void resize() {
+		positionX = grow(positionX);
+		positionY = grow(positionY);
+		positionZ = grow(positionZ);
+		rotationX = grow(rotationX);
+		rotationY = grow(rotationY);
+		rotationZ = grow(rotationZ);
+		rotationW = grow(rotationW);
+		scaleX = grow(scaleX);
+		scaleY = grow(scaleY);
+		scaleZ = grow(scaleZ);
+
+		m00 = grow(m00);
+		m10 = grow(m10);
+		m20 = grow(m20);
+		m01 = grow(m01);
+		m11 = grow(m11);
+		m21 = grow(m21);
+		m02 = grow(m02);
+		m12 = grow(m12);
+		m22 = grow(m22);
+		m03 = grow(m03);
+		m13 = grow(m13);
+		m23 = grow(m23);
+
+		localCenterX = grow(localCenterX);
+		localCenterY = grow(localCenterY);
+		localCenterZ = grow(localCenterZ);
+		localExtentX = grow(localExtentX);
+		localExtentY = grow(localExtentY);
+		localExtentZ = grow(localExtentZ);
+
+		worldMinX = grow(worldMinX);
+		worldMinY = grow(worldMinY);
+		worldMinZ = grow(worldMinZ);
+		worldMaxX = grow(worldMaxX);
+		worldMaxY = grow(worldMaxY);
+		worldMaxZ = grow(worldMaxZ);
+
+		inputs = new float[][] { positionX, positionY, positionZ, rotationX, rotationY, rotationZ, rotationW, scaleX,
+				scaleY, scaleZ, localCenterX, localCenterY, localCenterZ, localExtentX, localExtentY, localExtentZ };
+	}
+
+	private float[] grow(float[] array) {
+		return array == null ? new float[capacity] : Arrays.copyOf(array, capacity);
+	}
+}
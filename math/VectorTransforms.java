@@ -0,0 +1,130 @@
+package math;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The loops of {@link math.TransformBatch} written with the Vector API, which
+ * work on as many objects at once as the preferred vector species holds. Each
+ * loop stops before the last partial vector and returns where it stopped, so
+ * the batch finishes the rest with its scalar loop. Every operation is done in
+ * the same order as in the scalar loops, with no fused multiply-adds, so the
+ * results are exactly the same. This class must only be loaded when the
+ * jdk.incubator.vector module is present, and behaves in a "static" fashion in
+ * the sense that it is constant and cannot be constructed publicly.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+final class VectorTransforms {
+
+	private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+	/* Private so that this class does not accidently get instantiated */
+	private VectorTransforms() {
+	}
+
+	/**
+	 * Builds the model matrices of the objects in a range, as
+	 * {@link math.TransformBatch#composeMatrices(int, int)} does, a whole vector
+	 * at a time.
+	 * 
+	 * @param batch
+	 *            the batch to be updated
+	 * @param from
+	 *            the index of the first object, inclusive
+	 * @param to
+	 *            the index of the last object, exclusive
+	 * @return the index of the first object not yet built
+	 */
+	static int composeMatrices(TransformBatch batch, int from, int to) {
+		float[] qx = batch.rotationX, qy = batch.rotationY, qz = batch.rotationZ, qw = batch.rotationW;
+		float[] sx = batch.scaleX, sy = batch.scaleY, sz = batch.scaleZ;
+		float[] tx = batch.positionX, ty = batch.positionY, tz = batch.positionZ;
+		float[] a00 = batch.m00, a10 = batch.m10, a20 = batch.m20, a01 = batch.m01, a11 = batch.m11,
+				a21 = batch.m21, a02 = batch.m02, a12 = batch.m12, a22 = batch.m22;
+
+		FloatVector one = FloatVector.broadcast(SPECIES, 1f);
+
+		int i = from, end = from + SPECIES.loopBound(to - from);
+		for (; i < end; i += SPECIES.length()) {
+			FloatVector x = FloatVector.fromArray(SPECIES, qx, i), y = FloatVector.fromArray(SPECIES, qy, i);
+			FloatVector z = FloatVector.fromArray(SPECIES, qz, i), w = FloatVector.fromArray(SPECIES, qw, i);
+			FloatVector xx = x.mul(x), yy = y.mul(y), zz = z.mul(z);
+			FloatVector xy = x.mul(y), xz = x.mul(z), yz = y.mul(z), wx = w.mul(x), wy = w.mul(y), wz = w.mul(z);
+
+			/* Each column of the rotation, scaled by the scale along that axis */
+			FloatVector scale = FloatVector.fromArray(SPECIES, sx, i);
+			one.sub(yy.add(zz).mul(2f)).mul(scale).intoArray(a00, i);
+			xy.add(wz).mul(2f).mul(scale).intoArray(a10, i);
+			xz.sub(wy).mul(2f).mul(scale).intoArray(a20, i);
+
+			scale = FloatVector.fromArray(SPECIES, sy, i);
+			xy.sub(wz).mul(2f).mul(scale).intoArray(a01, i);
+			one.sub(xx.add(zz).mul(2f)).mul(scale).intoArray(a11, i);
+			yz.add(wx).mul(2f).mul(scale).intoArray(a21, i);
+
+			scale = FloatVector.fromArray(SPECIES, sz, i);
+			xz.add(wy).mul(2f).mul(scale).intoArray(a02, i);
+			yz.sub(wx).mul(2f).mul(scale).intoArray(a12, i);
+			one.sub(xx.add(yy).mul(2f)).mul(scale).intoArray(a22, i);
+		}
+
+		/* The translation is only copied, which needs no vectors */
+		System.arraycopy(tx, from, batch.m03, from, i - from);
+		System.arraycopy(ty, from, batch.m13, from, i - from);
+		System.arraycopy(tz, from, batch.m23, from, i - from);
+		return i;
+	}
+
+	/**
+	 * Moves the bounds of the objects in a range into the world, as
+	 * {@link math.TransformBatch#transformBounds(int, int)} does, a whole vector
+	 * at a time.
+	 * 
+	 * @param batch
+	 *            the batch to be updated
+	 * @param from
+	 *            the index of the first object, inclusive
+	 * @param to
+	 *            the index of the last object, exclusive
+	 * @return the index of the first object not yet moved
+	 */
+	static int transformBounds(TransformBatch batch, int from, int to) {
+		float[] cx = batch.localCenterX, cy = batch.localCenterY, cz = batch.localCenterZ;
+		float[] ex = batch.localExtentX, ey = batch.localExtentY, ez = batch.localExtentZ;
+
+		int i = from, end = from + SPECIES.loopBound(to - from);
+		for (; i < end; i += SPECIES.length()) {
+			FloatVector centerX = FloatVector.fromArray(SPECIES, cx, i);
+			FloatVector centerY = FloatVector.fromArray(SPECIES, cy, i);
+			FloatVector centerZ = FloatVector.fromArray(SPECIES, cz, i);
+			FloatVector extentX = FloatVector.fromArray(SPECIES, ex, i);
+			FloatVector extentY = FloatVector.fromArray(SPECIES, ey, i);
+			FloatVector extentZ = FloatVector.fromArray(SPECIES, ez, i);
+
+			/* One row of the matrix at a time, to keep fewer vectors live */
+			transformRow(batch.m00, batch.m01, batch.m02, batch.m03, centerX, centerY, centerZ, extentX, extentY,
+					extentZ, batch.worldMinX, batch.worldMaxX, i);
+			transformRow(batch.m10, batch.m11, batch.m12, batch.m13, centerX, centerY, centerZ, extentX, extentY,
+					extentZ, batch.worldMinY, batch.worldMaxY, i);
+			transformRow(batch.m20, batch.m21, batch.m22, batch.m23, centerX, centerY, centerZ, extentX, extentY,
+					extentZ, batch.worldMinZ, batch.worldMaxZ, i);
+		}
+		return i;
+	}
+
+	private static void transformRow(float[] r0, float[] r1, float[] r2, float[] r3, FloatVector centerX,
+			FloatVector centerY, FloatVector centerZ, FloatVector extentX, FloatVector extentY, FloatVector extentZ,
+			float[] min, float[] max, int i) {
+		FloatVector a0 = FloatVector.fromArray(SPECIES, r0, i), a1 = FloatVector.fromArray(SPECIES, r1, i),
+				a2 = FloatVector.fromArray(SPECIES, r2, i);
+
+		FloatVector center = a0.mul(centerX).add(a1.mul(centerY)).add(a2.mul(centerZ))
+				.add(FloatVector.fromArray(SPECIES, r3, i));
+		FloatVector extent = a0.abs().mul(extentX).add(a1.abs().mul(extentY)).add(a2.abs().mul(extentZ));
+
+		center.sub(extent).intoArray(min, i);
+		center.add(extent).intoArray(max, i);
+	}
+}
@@ -0,0 +1,10 @@
+/**
+ * This package holds the engine's math, laid out for batches rather than for
+ * single objects: each quantity of every object is kept in its own array, so
+ * that whole batches are updated in simple loops of SIMD instructions, written
+ * with the Vector API where the JVM provides it.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+package math;
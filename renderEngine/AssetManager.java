@@ -0,0 +1,319 @@
+package renderEngine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import utility.Hashing;
+import utility.Log;
+
+/**
+ * Shares loaded models between everything that uses them, and unloads them
+ * when they are no longer needed. Each model is stored under a key, either the
+ * path it was loaded from or a hash of its contents, so asking for the same
+ * asset again returns the model that is already on the GPU instead of
+ * uploading it a second time.
+ * 
+ * <p>
+ * Acquiring an asset returns a {@link renderEngine.ModelHandle}, and the model
+ * is counted as in use until every one of its handles has been released. Models
+ * that are no longer in use stay loaded, in case they are needed again, until
+ * the GPU memory of all models goes over the budget; then the least recently
+ * released are unloaded first. Models in use are never unloaded, so the budget
+ * can be exceeded if everything loaded is in use. The manager must only be used
+ * from the thread that owns the OpenGL context.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class AssetManager {
+
+	/* One loaded asset, shared by every handle to it */
+	static final class Entry {
+		final String key;
+		final RawModel model;
+		final long bytes;
+		int references = 0;
+
+		Entry(String key, RawModel model, long bytes) {
+			this.key = key;
+			this.model = model;
+			this.bytes = bytes;
+		}
+	}
+
+	private final ModelLoader loader;
+
+	private long budgetBytes;
+
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+	/* Assets with no handles, least recently released first */
+	private final LinkedHashMap<String, Entry> unused = new LinkedHashMap<String, Entry>();
+
+	private long residentBytes = 0;
+
+	private long hits = 0, misses = 0, evictions = 0;
+
+	/**
+	 * Constructs an asset manager that loads through the specified loader.
+	 * 
+	 * @param loader
+	 *            the loader to load and unload models with
+	 * @param budgetBytes
+	 *            how much GPU memory loaded models may take up before unused ones
+	 *            are unloaded
+	 */
+	public AssetManager(ModelLoader loader, long budgetBytes) {
+		this.loader = loader;
+		this.budgetBytes = budgetBytes;
+	}
+
+	/**
+	 * Acquires the model stored in a file, loading it only if it is not already
+	 * loaded. Files ending in {@link renderEngine.MeshCache#EXTENSION} are mapped
+	 * straight from the cache, and anything else is read as OBJ.
+	 * 
+	 * @param file
+	 *            the file to be loaded, which is also the asset's key
+	 * @return a new handle to the model
+	 * @throws IOException
+	 *             if the file has to be loaded and cannot be read
+	 */
+	public ModelHandle acquire(Path file) throws IOException {
+		String key = file.toAbsolutePath().normalize().toString();
+
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			RawModel model;
+			if (key.endsWith(MeshCache.EXTENSION)) {
+				model = loader.loadToVAO(MeshCache.read(file));
+			} else {
+				model = loader.loadToVAO(ObjImporter.read(file));
+			}
+
+			entry = add(key, model);
+		} else {
+			hits++;
+		}
+
+		return newHandle(entry);
+	}
+
+	/**
+	 * Acquires a mesh built in code, keyed by a hash of its contents, so that two
+	 * identical meshes share a single model.
+	 * 
+	 * @param mesh
+	 *            the mesh to be loaded, if an identical one is not already
+	 * @return a new handle to the model
+	 * @see #contentKey(Mesh)
+	 */
+	public ModelHandle acquire(Mesh mesh) {
+		return acquire(contentKey(mesh), loader -> loader.loadToVAO(mesh));
+	}
+
+	/**
+	 * Acquires a model under any key, calling the specified function to load it
+	 * only if nothing is loaded under that key yet.
+	 * 
+	 * @param key
+	 *            the key of the asset
+	 * @param load
+	 *            loads the model with the loader passed to it
+	 * @return a new handle to the model
+	 */
+	public ModelHandle acquire(String key, Function<ModelLoader, RawModel> load) {
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			entry = add(key, load.apply(loader));
+		} else {
+			hits++;
+		}
+
+		return newHandle(entry);
+	}
+
+	/**
+	 * Returns whether an asset is currently loaded, whether or not it is in use.
+	 * 
+	 * @param key
+	 *            the key of the asset
+	 * @return true if the asset is loaded
+	 */
+	public boolean isLoaded(String key) {
+		return entries.containsKey(key);
+	}
+
+	/**
+	 * Sets the GPU memory budget, unloading unused models at once if loaded models
+	 * are already over it.
+	 * 
+	 * @param budgetBytes
+	 *            the new budget, in bytes
+	 */
+	public void setBudget(long budgetBytes) {
+		this.budgetBytes = budgetBytes;
+		evict();
+	}
+
+	/**
+	 * Unloads every model that is not in use, regardless of the budget.
+	 */
+	public void evictUnused() {
+		while (!unused.isEmpty()) {
+			evictEldest();
+		}
+	}
+
+	/**
+	 * Returns the GPU memory budget.
+	 * 
+	 * @return the budget, in bytes
+	 */
+	public long getBudget() {
+		return budgetBytes;
+	}
+
+	/**
+	 * Returns how much GPU memory every loaded model takes up, in use or not.
+	 * 
+	 * @return the resident size, in bytes
+	 */
+	public long getResidentBytes() {
+		return residentBytes;
+	}
+
+	/**
+	 * Returns the number of loaded models, in use or not.
+	 * 
+	 * @return the loaded model count
+	 */
+	public int getLoadedCount() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns how many acquires found their asset already loaded.
+	 * 
+	 * @return the cache hit count
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns how many acquires had to load their asset.
+	 * 
+	 * @return the cache miss count
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns how many models have been unloaded to stay within the budget.
+	 * 
+	 * @return the eviction count
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns a key that identifies a mesh by its contents: a SHA-256 hash of its
+	 * vertex format, attribute data and indices.
+	 * 
+	 * @param mesh
+	 *            the mesh to be hashed
+	 * @return the key, as a hexadecimal string
+	 */
+	public static String contentKey(Mesh mesh) {
+		MessageDigest digest = Hashing.sha256();
+		ByteBuffer scratch = ByteBuffer.allocate(4096);
+		VertexFormat format = mesh.getFormat();
+		for (VertexAttribute attribute : format.getAttributes()) {
+			scratch.putInt(attribute.getIndex()).putInt(attribute.getComponents()).putInt(attribute.getType().ordinal());
+		}
+
+		for (float[] data : mesh.getAttributeData()) {
+			for (float value : data) {
+				if (!scratch.hasRemaining()) {
+					update(digest, scratch);
+				}
+				scratch.putFloat(value);
+			}
+		}
+
+		for (int index : mesh.getIndices()) {
+			if (!scratch.hasRemaining()) {
+				update(digest, scratch);
+			}
+			scratch.putInt(index);
+		}
+		update(digest, scratch);
+
+		return "mesh:" + Hashing.toHex(digest.digest());
+	}
+
+	/* Called by the handle, once per handle */
+	void release(Entry entry) {
+		if (--entry.references == 0) {
+			unused.put(entry.key, entry);
+			evict();
+		}
+	}
+
+	private Entry add(String key, RawModel model) {
+		misses++;
+
+		Entry entry = new Entry(key, model, loader.getBufferBytes(model));
+		entries.put(key, entry);
+		residentBytes += entry.bytes;
+
+		evict();
+		if (residentBytes > budgetBytes) {
+			Log.warn("Models in use exceed the GPU memory budget");
+		}
+
+		return entry;
+	}
+
+	private ModelHandle newHandle(Entry entry) {
+		if (entry.references++ == 0) {
+			unused.remove(entry.key);
+		}
+
+		return new ModelHandle(this, entry);
+	}
+
+	private void evict() {
+		while (residentBytes > budgetBytes && !unused.isEmpty()) {
+			evictEldest();
+			evictions++;
+		}
+	}
+
+	private void evictEldest() {
+		Iterator<Entry> eldest = unused.values().iterator();
+		Entry entry = eldest.next();
+		eldest.remove();
+
+		entries.remove(entry.key);
+		residentBytes -= entry.bytes;
+		loader.unload(entry.model);
+	}
+
+	private static void update(MessageDigest digest, ByteBuffer scratch) {
+		scratch.flip();
+		digest.update(scratch);
+		scratch.clear();
+	}
+}
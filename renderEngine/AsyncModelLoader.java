@@ -0,0 +1,232 @@
+package renderEngine;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import utility.PooledBuffer;
+import utility.TypeConversions;
+
+/**
+ * Loads models without stalling the render thread. Loading a model is split
+ * into two stages:
+ * 
+ * <ol>
+ * <li>Parsing the model's data and packing it into buffers, which runs on a
+ * pool of worker threads</li>
+ * <li>Uploading the packed buffers to OpenGL, which must run on the render
+ * thread, and is done a little at a time by calling
+ * {@link #processUploads(long)} once per frame</li>
+ * </ol>
+ * 
+ * Each load returns a {@link java.util.concurrent.CompletableFuture} that
+ * completes, on the render thread, once the model has been uploaded. The final
+ * upload is handed to the wrapped {@link renderEngine.ModelLoader}, so a
+ * loader built on a {@link renderEngine.RecordingRenderDevice} can stand in for
+ * OpenGL.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class AsyncModelLoader {
+
+	/**
+	 * The raw data of a model, as produced by a parsing step on a worker thread.
+	 */
+	public static class MeshData {
+
+		private final float[] positions;
+		private final int[] indices;
+
+		/**
+		 * Constructs the mesh data out of the specified arrays, which are not copied.
+		 * 
+		 * @param positions
+		 *            the vertices, (X, Y, Z) coordinates, of the model
+		 * @param indices
+		 *            the indices of the model's triangles
+		 */
+		public MeshData(float[] positions, int[] indices) {
+			this.positions = positions;
+			this.indices = indices;
+		}
+	}
+
+	/* A model whose buffers are packed and waiting on the render thread */
+	private static class PendingUpload {
+
+		private final PooledBuffer positions, indices;
+		private final CompletableFuture<RawModel> future;
+		private final long sizeBytes;
+
+		private PendingUpload(PooledBuffer positions, PooledBuffer indices, CompletableFuture<RawModel> future) {
+			this.positions = positions;
+			this.indices = indices;
+			this.future = future;
+			this.sizeBytes = (long) positions.sizeBytes() + indices.sizeBytes();
+		}
+
+		private void release() {
+			positions.release();
+			indices.release();
+		}
+	}
+
+	private final ModelLoader modelLoader;
+
+	private final ExecutorService workers;
+
+	private final ConcurrentLinkedQueue<PendingUpload> pendingUploads = new ConcurrentLinkedQueue<PendingUpload>();
+
+	private volatile boolean shutdown = false;
+
+	/**
+	 * Constructs the asynchronous loader around the specified model loader, with
+	 * its own pool of worker threads.
+	 * 
+	 * @param modelLoader
+	 *            performs the final upload of each model on the render thread
+	 * @param workerThreads
+	 *            the number of threads used to parse and pack models
+	 */
+	public AsyncModelLoader(ModelLoader modelLoader, int workerThreads) {
+		this.modelLoader = modelLoader;
+
+		AtomicInteger threadCount = new AtomicInteger();
+		ThreadFactory threadFactory = runnable -> {
+			Thread thread = new Thread(runnable, "Arsia-ModelLoader-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+
+		this.workers = Executors.newFixedThreadPool(workerThreads, threadFactory);
+	}
+
+	/**
+	 * Queues a model to be loaded from arrays that are already in memory. The
+	 * conversion of the arrays to buffers is done on a worker thread.
+	 * 
+	 * @param positions
+	 *            the vertices, (X, Y, Z) coordinates, of the model; must not be
+	 *            changed until the returned future is complete
+	 * @param indices
+	 *            the indices of the model's triangles; must not be changed until
+	 *            the returned future is complete
+	 * @return a future that completes with the model once it has been uploaded
+	 */
+	public CompletableFuture<RawModel> loadToVAO(float[] positions, int[] indices) {
+		return loadToVAO(() -> new MeshData(positions, indices));
+	}
+
+	/**
+	 * Queues a model to be loaded. The specified parser, as well as packing its
+	 * result into buffers, is run on a worker thread. If the parser throws an
+	 * exception, the returned future completes exceptionally with it. Cancelling
+	 * the returned future abandons the load, and a model that was uploaded before
+	 * the cancel was seen is unloaded again.
+	 * 
+	 * @param parser
+	 *            produces the model's raw data, for example by reading a file
+	 * @return a future that completes with the model once it has been uploaded
+	 */
+	public CompletableFuture<RawModel> loadToVAO(Callable<MeshData> parser) {
+		CompletableFuture<RawModel> future = new CompletableFuture<RawModel>();
+
+		workers.execute(() -> {
+			if (future.isDone()) {
+				return;
+			}
+
+			try {
+				MeshData data = parser.call();
+				if (future.isDone()) {
+					return;
+				}
+
+				PooledBuffer positions = TypeConversions.floatArrayToPooledBuffer(data.positions);
+				PooledBuffer indices = TypeConversions.intArrayToPooledBuffer(data.indices);
+				pendingUploads.add(new PendingUpload(positions, indices, future));
+			} catch (Exception e) {
+				future.completeExceptionally(e);
+			}
+
+			/* Shut down while packing, so the drain in shutdown() may have missed this upload */
+			if (shutdown) {
+				drainPendingUploads();
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * Uploads packed models to OpenGL until the specified number of bytes has
+	 * been uploaded this call, or nothing is left to upload. At least one model
+	 * is always uploaded if one is waiting, so a model larger than the budget
+	 * still gets loaded. Must be called on the render thread, once per frame.
+	 * 
+	 * @param byteBudget
+	 *            roughly how many bytes may be uploaded by this call
+	 * @return the number of bytes that were uploaded
+	 */
+	public long processUploads(long byteBudget) {
+		long uploadedBytes = 0;
+
+		PendingUpload upload;
+		while ((uploadedBytes == 0 || uploadedBytes < byteBudget) && (upload = pendingUploads.poll()) != null) {
+			if (upload.future.isDone()) {
+				upload.release();
+				continue;
+			}
+
+			try {
+				RawModel model = modelLoader.loadToVAO(upload.positions.getFloatBuffer(),
+						upload.indices.getIntBuffer());
+
+				/* Cancelled by another thread during the upload */
+				if (!upload.future.complete(model)) {
+					modelLoader.unload(model);
+				}
+			} catch (RuntimeException e) {
+				upload.future.completeExceptionally(e);
+			} finally {
+				upload.release();
+			}
+
+			uploadedBytes += upload.sizeBytes;
+		}
+
+		return uploadedBytes;
+	}
+
+	/**
+	 * Returns whether any packed models are still waiting to be uploaded.
+	 * 
+	 * @return true if {@link #processUploads(long)} has work left to do
+	 */
+	public boolean hasPendingUploads() {
+		return !pendingUploads.isEmpty();
+	}
+
+	/**
+	 * Stops the worker threads, and cancels every model that has not yet been
+	 * uploaded, releasing the staging memory of those already packed.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		workers.shutdownNow();
+		drainPendingUploads();
+	}
+
+	private void drainPendingUploads() {
+		PendingUpload upload;
+		while ((upload = pendingUploads.poll()) != null) {
+			upload.future.cancel(false);
+			upload.release();
+		}
+	}
+}
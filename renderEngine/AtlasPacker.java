@@ -0,0 +1,243 @@
+package renderEngine;
+
+import java.util.Arrays;
+
+/**
+ * Packs rectangles into one page of a texture atlas with the skyline
+ * bottom-left method. The packer keeps only the outline of the tops of
+ * everything placed so far, as a list of horizontal segments, and puts each
+ * new rectangle where its top ends up lowest, which for rectangles added
+ * tallest first wastes little space and takes time proportional to the number
+ * of segments rather than the number of rectangles. Space below the outline
+ * is never reused.
+ * 
+ * <pre>
+ * AtlasPacker packer = new AtlasPacker(2048, 2048);
+ * if (packer.insert(width, height)) {
+ * 	int x = packer.getX(), y = packer.getY();
+ * }
+ * </pre>
+ * 
+ * @author Matthew L. Roy
+ * @see renderEngine.TextureAtlas
+ *
+ */
+public class AtlasPacker {
+
+	private final int width, height;
+
+	/* The outline, as segments from left to right: each starts at x and runs for length at height y */
+	private int[] segmentX = new int[16], segmentY = new int[16], segmentLength = new int[16];
+	private int segmentCount = 0;
+
+	private int x = -1, y = -1;
+
+	private int packedCount = 0, usedHeight = 0;
+	private long usedArea = 0;
+
+	/**
+	 * Constructs an empty page.
+	 * 
+	 * @param width
+	 *            the width of the page, in pixels
+	 * @param height
+	 *            the height of the page, in pixels
+	 */
+	public AtlasPacker(int width, int height) {
+		this.width = width;
+		this.height = height;
+		clear();
+	}
+
+	/**
+	 * Places a rectangle as low on the page as it fits, and records where, for
+	 * {@link #getX()} and {@link #getY()}.
+	 * 
+	 * @param rectangleWidth
+	 *            the width of the rectangle
+	 * @param rectangleHeight
+	 *            the height of the rectangle
+	 * @return true if the rectangle was placed, or false if it does not fit
+	 *         anywhere on the page
+	 */
+	public boolean insert(int rectangleWidth, int rectangleHeight) {
+		if (rectangleWidth <= 0 || rectangleHeight <= 0) {
+			throw new IllegalArgumentException("Rectangle of " + rectangleWidth + "x" + rectangleHeight);
+		}
+
+		int bestSegment = -1, bestTop = Integer.MAX_VALUE, bestX = 0, bestY = 0;
+
+		for (int i = 0; i < segmentCount; i++) {
+			int left = segmentX[i];
+			if (left + rectangleWidth > width) {
+				break;
+			}
+
+			/* The rectangle rests on the highest segment under its width */
+			int top = 0, covered = 0;
+			for (int j = i; covered < rectangleWidth; j++) {
+				top = Math.max(top, segmentY[j]);
+				covered += segmentLength[j];
+			}
+
+			/* Ties go to the leftmost spot, which is found first */
+			if (top + rectangleHeight <= height && top + rectangleHeight < bestTop) {
+				bestSegment = i;
+				bestTop = top + rectangleHeight;
+				bestX = left;
+				bestY = top;
+			}
+		}
+
+		if (bestSegment == -1) {
+			return false;
+		}
+
+		place(bestSegment, bestX, bestTop, rectangleWidth);
+
+		x = bestX;
+		y = bestY;
+		packedCount++;
+		usedArea += (long) rectangleWidth * rectangleHeight;
+		usedHeight = Math.max(usedHeight, bestTop);
+		return true;
+	}
+
+	/**
+	 * Returns the left edge of the most recently placed rectangle.
+	 * 
+	 * @return the X, in pixels, or -1 if nothing has been placed
+	 */
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 * Returns the top edge of the most recently placed rectangle.
+	 * 
+	 * @return the Y, in pixels, or -1 if nothing has been placed
+	 */
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * Empties the page.
+	 */
+	public void clear() {
+		segmentX[0] = 0;
+		segmentY[0] = 0;
+		segmentLength[0] = width;
+		segmentCount = 1;
+
+		x = -1;
+		y = -1;
+		packedCount = 0;
+		usedHeight = 0;
+		usedArea = 0;
+	}
+
+	/**
+	 * Returns the width of the page.
+	 * 
+	 * @return the width, in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of the page.
+	 * 
+	 * @return the height, in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the number of rectangles placed on the page.
+	 * 
+	 * @return the rectangle count
+	 */
+	public int getPackedCount() {
+		return packedCount;
+	}
+
+	/**
+	 * Returns the lowest bottom edge of any rectangle placed, so a page that is
+	 * not full could be cut down to this height.
+	 * 
+	 * @return the used height, in pixels
+	 */
+	public int getUsedHeight() {
+		return usedHeight;
+	}
+
+	/**
+	 * Returns the fraction of the page covered by rectangles.
+	 * 
+	 * @return the occupancy, from 0 to 1
+	 */
+	public float getOccupancy() {
+		return (float) ((double) usedArea / ((long) width * height));
+	}
+
+	private void place(int segment, int left, int top, int rectangleWidth) {
+		/* Cuts away the part of the outline now under the rectangle */
+		int right = left + rectangleWidth;
+		int end = segment;
+		while (end < segmentCount && segmentX[end] + segmentLength[end] <= right) {
+			end++;
+		}
+
+		/* The segment the rectangle ends partway through keeps what sticks out */
+		if (end < segmentCount && segmentX[end] < right) {
+			segmentLength[end] -= right - segmentX[end];
+			segmentX[end] = right;
+		}
+
+		/* Segments segment to end - 1 are replaced by the rectangle's top */
+		int removed = end - segment;
+		if (removed == 0) {
+			ensureCapacity(segmentCount + 1);
+			shift(segment, segment + 1);
+			segmentCount++;
+		} else if (removed > 1) {
+			shift(end, segment + 1);
+			segmentCount -= removed - 1;
+		}
+
+		segmentX[segment] = left;
+		segmentY[segment] = top;
+		segmentLength[segment] = rectangleWidth;
+
+		/* Neighbours at the same height become one segment */
+		if (segment + 1 < segmentCount && segmentY[segment + 1] == top) {
+			segmentLength[segment] += segmentLength[segment + 1];
+			shift(segment + 2, segment + 1);
+			segmentCount--;
+		}
+		if (segment > 0 && segmentY[segment - 1] == top) {
+			segmentLength[segment - 1] += segmentLength[segment];
+			shift(segment + 1, segment);
+			segmentCount--;
+		}
+	}
+
+	/* Moves the segments from one index to the end so they start at another */
+	private void shift(int from, int to) {
+		int count = segmentCount - from;
+		System.arraycopy(segmentX, from, segmentX, to, count);
+		System.arraycopy(segmentY, from, segmentY, to, count);
+		System.arraycopy(segmentLength, from, segmentLength, to, count);
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > segmentX.length) {
+			segmentX = Arrays.copyOf(segmentX, capacity * 2);
+			segmentY = Arrays.copyOf(segmentY, capacity * 2);
+			segmentLength = Arrays.copyOf(segmentLength, capacity * 2);
+		}
+	}
+}
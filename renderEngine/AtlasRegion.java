@@ -0,0 +1,125 @@
+package renderEngine;
+
+/**
+ * Where one image ended up in a {@link renderEngine.TextureAtlas}: which page,
+ * and the texture coordinates of its corners on that page. Texture
+ * coordinates run from (0, 0) at the top left of the page to (1, 1) at the
+ * bottom right, matching the row order of {@link renderEngine.Image}.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class AtlasRegion {
+
+	private final String name;
+	private final int page, x, y, width, height;
+	private final float u0, v0, u1, v1;
+
+	AtlasRegion(String name, int page, int x, int y, int width, int height, int pageWidth, int pageHeight) {
+		this.name = name;
+		this.page = page;
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+		this.u0 = (float) x / pageWidth;
+		this.v0 = (float) y / pageHeight;
+		this.u1 = (float) (x + width) / pageWidth;
+		this.v1 = (float) (y + height) / pageHeight;
+	}
+
+	/**
+	 * Returns the name the image was added to the atlas with.
+	 * 
+	 * @return the region name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the index of the page the image is on.
+	 * 
+	 * @return the page index
+	 */
+	public int getPage() {
+		return page;
+	}
+
+	/**
+	 * Returns the left edge of the image on its page.
+	 * 
+	 * @return the X, in pixels
+	 */
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 * Returns the top edge of the image on its page.
+	 * 
+	 * @return the Y, in pixels
+	 */
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * Returns the width of the image.
+	 * 
+	 * @return the width, in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of the image.
+	 * 
+	 * @return the height, in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the texture coordinate of the left edge of the image.
+	 * 
+	 * @return the left U
+	 */
+	public float getU0() {
+		return u0;
+	}
+
+	/**
+	 * Returns the texture coordinate of the top edge of the image.
+	 * 
+	 * @return the top V
+	 */
+	public float getV0() {
+		return v0;
+	}
+
+	/**
+	 * Returns the texture coordinate of the right edge of the image.
+	 * 
+	 * @return the right U
+	 */
+	public float getU1() {
+		return u1;
+	}
+
+	/**
+	 * Returns the texture coordinate of the bottom edge of the image.
+	 * 
+	 * @return the bottom V
+	 */
+	public float getV1() {
+		return v1;
+	}
+
+	@Override
+	public String toString() {
+		return "AtlasRegion[" + name + ", page " + page + ", (" + x + ", " + y + ") " + width + "x" + height + "]";
+	}
+}
@@ -0,0 +1,71 @@
+package renderEngine;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL33;
+
+/**
+ * The ways a vertex attribute's components can be stored in a vertex buffer.
+ * The compact types trade precision for bandwidth, and are read back as floats
+ * by the OpenGL pipeline all the same:
+ * 
+ * <ul>
+ * <li>{@link #FLOAT} - full 32-bit floats, for positions</li>
+ * <li>{@link #HALF_FLOAT} - 16-bit floats, good for texture coordinates</li>
+ * <li>{@link #UNSIGNED_BYTE_NORMALIZED} - 0 to 1 stored as 0 to 255, good for
+ * colors</li>
+ * <li>{@link #INT_2_10_10_10_REV} - three signed 10-bit components and a 2-bit
+ * fourth packed into one int, good for normals</li>
+ * </ul>
+ * 
+ * @author Matthew L. Roy
+ * @see renderEngine.VertexFormat
+ *
+ */
+public enum AttributeType {
+
+	FLOAT(GL11.GL_FLOAT, 4, false), HALF_FLOAT(GL30.GL_HALF_FLOAT, 2, false),
+	UNSIGNED_BYTE_NORMALIZED(GL11.GL_UNSIGNED_BYTE, 1, true), INT_2_10_10_10_REV(GL33.GL_INT_2_10_10_10_REV, 0, true);
+
+	private final int glType, bytesPerComponent;
+	private final boolean normalized;
+
+	private AttributeType(int glType, int bytesPerComponent, boolean normalized) {
+		this.glType = glType;
+		this.bytesPerComponent = bytesPerComponent;
+		this.normalized = normalized;
+	}
+
+	/**
+	 * Returns the OpenGL enum for this type, as passed to
+	 * {@code glVertexAttribPointer}.
+	 * 
+	 * @return the OpenGL type enum
+	 */
+	public int getGlType() {
+		return glType;
+	}
+
+	/**
+	 * Returns whether OpenGL should map the stored integers onto the range of -1
+	 * to 1 (or 0 to 1 when unsigned).
+	 * 
+	 * @return true if the type is normalized
+	 */
+	public boolean isNormalized() {
+		return normalized;
+	}
+
+	/**
+	 * Returns the number of bytes that the specified number of components of this
+	 * type take up, before any padding.
+	 * 
+	 * @param components
+	 *            the number of components, from 1 to 4
+	 * @return the size of the components in bytes
+	 */
+	public int sizeOf(int components) {
+		/* Packed types always take up a single int, whatever the components */
+		return bytesPerComponent == 0 ? 4 : bytesPerComponent * components;
+	}
+}
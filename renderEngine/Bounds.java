@@ -0,0 +1,193 @@
+package renderEngine;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * An axis-aligned bounding box, along with the sphere that encloses it, for
+ * deciding cheaply whether a model could be on screen. The bounds of every
+ * {@link renderEngine.RawModel} are computed by
+ * {@link renderEngine.ModelLoader} when the model is loaded, in the model's own
+ * space. Bounds cannot be changed once made.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class Bounds {
+
+	/**
+	 * Bounds that contain everything, for models whose positions cannot be read,
+	 * so that they are never culled
+	 */
+	public static final Bounds INFINITE = new Bounds(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY,
+			Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+
+	private final float minX, minY, minZ, maxX, maxY, maxZ;
+
+	/**
+	 * Constructs bounds from the corners of a box.
+	 * 
+	 * @param minX
+	 *            the smallest X
+	 * @param minY
+	 *            the smallest Y
+	 * @param minZ
+	 *            the smallest Z
+	 * @param maxX
+	 *            the largest X
+	 * @param maxY
+	 *            the largest Y
+	 * @param maxZ
+	 *            the largest Z
+	 */
+	public Bounds(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		this.minX = minX;
+		this.minY = minY;
+		this.minZ = minZ;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.maxZ = maxZ;
+	}
+
+	/**
+	 * Computes the bounds of (X, Y, Z) positions packed one after another.
+	 * 
+	 * @param positions
+	 *            the positions, from the buffer's position to its limit, which
+	 *            are not changed
+	 * @return the bounds, or {@link #INFINITE} if there are no positions
+	 */
+	public static Bounds of(FloatBuffer positions) {
+		int start = positions.position(), end = positions.limit() - 2;
+		if (start >= end) {
+			return INFINITE;
+		}
+
+		float minX = Float.POSITIVE_INFINITY, minY = minX, minZ = minX;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = maxX, maxZ = maxX;
+
+		for (int i = start; i < end; i += 3) {
+			float x = positions.get(i), y = positions.get(i + 1), z = positions.get(i + 2);
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			minZ = Math.min(minZ, z);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+			maxZ = Math.max(maxZ, z);
+		}
+
+		return new Bounds(minX, minY, minZ, maxX, maxY, maxZ);
+	}
+
+	/**
+	 * Computes the bounds of interleaved vertices from their positions, which by
+	 * convention are attribute 0.
+	 * 
+	 * @param format
+	 *            the layout of each vertex
+	 * @param vertices
+	 *            the vertices, from the buffer's position to its limit, which are
+	 *            not changed
+	 * @return the bounds, or {@link #INFINITE} if there are no vertices or the
+	 *         positions are not stored as three or more floats
+	 */
+	public static Bounds of(VertexFormat format, ByteBuffer vertices) {
+		VertexAttribute position = null;
+		for (VertexAttribute attribute : format.getAttributes()) {
+			if (attribute.getIndex() == 0) {
+				position = attribute;
+			}
+		}
+
+		if (position == null || position.getType() != AttributeType.FLOAT || position.getComponents() < 3
+				|| vertices.remaining() < format.getStride()) {
+			return INFINITE;
+		}
+
+		float minX = Float.POSITIVE_INFINITY, minY = minX, minZ = minX;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = maxX, maxZ = maxX;
+
+		int stride = format.getStride();
+		for (int i = vertices.position() + position.getOffset(); i + 12 <= vertices.limit(); i += stride) {
+			float x = vertices.getFloat(i), y = vertices.getFloat(i + 4), z = vertices.getFloat(i + 8);
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			minZ = Math.min(minZ, z);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+			maxZ = Math.max(maxZ, z);
+		}
+
+		return new Bounds(minX, minY, minZ, maxX, maxY, maxZ);
+	}
+
+	/**
+	 * Returns the smallest X of the box.
+	 * 
+	 * @return the minimum X
+	 */
+	public float getMinX() {
+		return minX;
+	}
+
+	/**
+	 * Returns the smallest Y of the box.
+	 * 
+	 * @return the minimum Y
+	 */
+	public float getMinY() {
+		return minY;
+	}
+
+	/**
+	 * Returns the smallest Z of the box.
+	 * 
+	 * @return the minimum Z
+	 */
+	public float getMinZ() {
+		return minZ;
+	}
+
+	/**
+	 * Returns the largest X of the box.
+	 * 
+	 * @return the maximum X
+	 */
+	public float getMaxX() {
+		return maxX;
+	}
+
+	/**
+	 * Returns the largest Y of the box.
+	 * 
+	 * @return the maximum Y
+	 */
+	public float getMaxY() {
+		return maxY;
+	}
+
+	/**
+	 * Returns the largest Z of the box.
+	 * 
+	 * @return the maximum Z
+	 */
+	public float getMaxZ() {
+		return maxZ;
+	}
+
+	/**
+	 * Returns the radius of the sphere around the center of the box that
+	 * encloses it.
+	 * 
+	 * @return the bounding sphere radius
+	 */
+	public float getRadius() {
+		float x = maxX - minX, y = maxY - minY, z = maxZ - minZ;
+		return 0.5f * (float) Math.sqrt(x * x + y * y + z * z);
+	}
+
+	@Override
+	public String toString() {
+		return "Bounds[(" + minX + ", " + minY + ", " + minZ + ") to (" + maxX + ", " + maxY + ", " + maxZ + ")]";
+	}
+}
@@ -0,0 +1,95 @@
+package renderEngine;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A mesh read from a {@link renderEngine.MeshCache} file, with its vertices and
+ * indices already packed in the layout OpenGL draws from. The buffers are views
+ * straight onto the memory-mapped file, so nothing was parsed or copied to get
+ * them; pass this to {@link renderEngine.ModelLoader#loadToVAO(CachedMesh)} to
+ * upload it. The bounds were stored in the file when it was written, so nothing
+ * touches the vertices until OpenGL reads them.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class CachedMesh {
+
+	private final VertexFormat format;
+	private final ByteBuffer vertices, indices;
+	private final IndexType indexType;
+	private final Bounds bounds;
+
+	CachedMesh(VertexFormat format, ByteBuffer vertices, ByteBuffer indices, IndexType indexType, Bounds bounds) {
+		this.format = format;
+		this.vertices = vertices;
+		this.indices = indices;
+		this.indexType = indexType;
+		this.bounds = bounds;
+	}
+
+	/**
+	 * Returns the layout of each vertex.
+	 * 
+	 * @return the vertex format
+	 */
+	public VertexFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * Returns the interleaved vertices, in a read-from state. Each call returns a
+	 * new view, so the position of one view does not affect another.
+	 * 
+	 * @return a read-only view of the vertices
+	 */
+	public ByteBuffer getVertices() {
+		return vertices.duplicate().order(vertices.order());
+	}
+
+	/**
+	 * Returns the packed indices, in a read-from state. Each call returns a new
+	 * view, so the position of one view does not affect another.
+	 * 
+	 * @return a read-only view of the indices
+	 */
+	public ByteBuffer getIndices() {
+		return indices.duplicate().order(indices.order());
+	}
+
+	/**
+	 * Returns the size of each packed index.
+	 * 
+	 * @return the index type
+	 */
+	public IndexType getIndexType() {
+		return indexType;
+	}
+
+	/**
+	 * Returns the bounds of the vertex positions, as stored in the file.
+	 * 
+	 * @return the model-space bounds
+	 */
+	public Bounds getBounds() {
+		return bounds;
+	}
+
+	/**
+	 * Returns the number of vertices.
+	 * 
+	 * @return the vertex count
+	 */
+	public int getVertexCount() {
+		return vertices.remaining() / format.getStride();
+	}
+
+	/**
+	 * Returns the number of indices, three per triangle.
+	 * 
+	 * @return the index count
+	 */
+	public int getIndexCount() {
+		return indices.remaining() / indexType.getBytes();
+	}
+}
@@ -0,0 +1,142 @@
+package renderEngine;
+
+/**
+ * The six planes bounding what a camera can see, for culling objects that are
+ * entirely off screen before they are submitted for drawing. The planes are
+ * pulled straight out of a combined view-projection matrix (the method of
+ * Gribb and Hartmann), so the frustum is updated once per frame by
+ * {@link #set(float[])}, without allocating.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class Frustum {
+
+	/* Six planes of (A, B, C, D), where A*x + B*y + C*z + D >= 0 is inside */
+	private final float[] planes = new float[24];
+
+	/**
+	 * Sets the planes from a view-projection matrix, given as 16 floats in
+	 * column-major order, as OpenGL takes them.
+	 * 
+	 * @param m
+	 *            the view-projection matrix
+	 */
+	public void set(float[] m) {
+		/* Left, right, bottom, top, near and far: the fourth row plus or minus another */
+		setPlane(0, m[3] + m[0], m[7] + m[4], m[11] + m[8], m[15] + m[12]);
+		setPlane(1, m[3] - m[0], m[7] - m[4], m[11] - m[8], m[15] - m[12]);
+		setPlane(2, m[3] + m[1], m[7] + m[5], m[11] + m[9], m[15] + m[13]);
+		setPlane(3, m[3] - m[1], m[7] - m[5], m[11] - m[9], m[15] - m[13]);
+		setPlane(4, m[3] + m[2], m[7] + m[6], m[11] + m[10], m[15] + m[14]);
+		setPlane(5, m[3] - m[2], m[7] - m[6], m[11] - m[10], m[15] - m[14]);
+	}
+
+	/**
+	 * Returns whether any part of a box might be inside the frustum. A box near a
+	 * corner of the frustum can be reported as inside when it is not, but a box
+	 * that is inside is never reported as outside.
+	 * 
+	 * @param minX
+	 *            the smallest X of the box
+	 * @param minY
+	 *            the smallest Y of the box
+	 * @param minZ
+	 *            the smallest Z of the box
+	 * @param maxX
+	 *            the largest X of the box
+	 * @param maxY
+	 *            the largest Y of the box
+	 * @param maxZ
+	 *            the largest Z of the box
+	 * @return false only if the box is entirely outside
+	 */
+	public boolean intersectsBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		for (int p = 0; p < 24; p += 4) {
+			float a = planes[p], b = planes[p + 1], c = planes[p + 2];
+
+			/* The corner of the box furthest along the plane's normal */
+			float x = a >= 0 ? maxX : minX, y = b >= 0 ? maxY : minY, z = c >= 0 ? maxZ : minZ;
+			if (a * x + b * y + c * z + planes[p + 3] < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether a box is entirely inside the frustum, so that anything
+	 * within it is visible without testing it separately.
+	 * 
+	 * @param minX
+	 *            the smallest X of the box
+	 * @param minY
+	 *            the smallest Y of the box
+	 * @param minZ
+	 *            the smallest Z of the box
+	 * @param maxX
+	 *            the largest X of the box
+	 * @param maxY
+	 *            the largest Y of the box
+	 * @param maxZ
+	 *            the largest Z of the box
+	 * @return true only if every corner of the box is inside
+	 */
+	public boolean containsBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		for (int p = 0; p < 24; p += 4) {
+			float a = planes[p], b = planes[p + 1], c = planes[p + 2];
+
+			/* The corner of the box nearest along the plane's normal */
+			float x = a >= 0 ? minX : maxX, y = b >= 0 ? minY : maxY, z = c >= 0 ? minZ : maxZ;
+			if (a * x + b * y + c * z + planes[p + 3] < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether any part of a box might be inside the frustum.
+	 * 
+	 * @param bounds
+	 *            the box
+	 * @return false only if the box is entirely outside
+	 * @see #intersectsBox(float, float, float, float, float, float)
+	 */
+	public boolean intersects(Bounds bounds) {
+		return intersectsBox(bounds.getMinX(), bounds.getMinY(), bounds.getMinZ(), bounds.getMaxX(),
+				bounds.getMaxY(), bounds.getMaxZ());
+	}
+
+	/**
+	 * Returns whether any part of a sphere might be inside the frustum.
+	 * 
+	 * @param x
+	 *            the X of the center
+	 * @param y
+	 *            the Y of the center
+	 * @param z
+	 *            the Z of the center
+	 * @param radius
+	 *            the radius
+	 * @return false only if the sphere is entirely outside
+	 */
+	public boolean intersectsSphere(float x, float y, float z, float radius) {
+		for (int p = 0; p < 24; p += 4) {
+			if (planes[p] * x + planes[p + 1] * y + planes[p + 2] * z + planes[p + 3] < -radius) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void setPlane(int plane, float a, float b, float c, float d) {
+		/* Normalized, so that sphere tests can compare distances with the radius */
+		float length = (float) Math.sqrt(a * a + b * b + c * c);
+		int p = plane * 4;
+		planes[p] = a / length;
+		planes[p + 1] = b / length;
+		planes[p + 2] = c / length;
+		planes[p + 3] = d / length;
+	}
+}
@@ -0,0 +1,70 @@
+package renderEngine;
+
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+/**
+ * The OpenGL context of a GLFW window, along with the table of OpenGL functions
+ * that LWJGL built for it. Building that table is expensive, so it is done
+ * exactly once, when the context is created, and the same context object is
+ * then shared by everything that renders. LWJGL keeps the function table per
+ * thread, so a thread other than the one that created the context must call
+ * {@link #makeCurrent()} before making any OpenGL calls.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public final class GLContext {
+
+	private final long window;
+
+	private final GLCapabilities capabilities;
+
+	private GLContext(long window, GLCapabilities capabilities) {
+		this.window = window;
+		this.capabilities = capabilities;
+	}
+
+	/**
+	 * Makes the window's OpenGL context current on the calling thread, and builds
+	 * the OpenGL function table for it. This is critical for LWJGL's
+	 * interpretation with GLFW's OpenGL context, or any context that is managed
+	 * externally.
+	 * 
+	 * @param window
+	 *            the GLFW window that owns the context
+	 * @return the newly created context
+	 */
+	public static GLContext create(long window) {
+		GLFW.glfwMakeContextCurrent(window);
+		return new GLContext(window, GL.createCapabilities());
+	}
+
+	/**
+	 * Makes this context current on the calling thread, reusing the function
+	 * table that was built when it was created.
+	 */
+	public void makeCurrent() {
+		GLFW.glfwMakeContextCurrent(window);
+		GL.setCapabilities(capabilities);
+	}
+
+	/**
+	 * Returns which OpenGL versions and extensions this context supports.
+	 * 
+	 * @return the capabilities of this context
+	 */
+	public GLCapabilities getCapabilities() {
+		return capabilities;
+	}
+
+	/**
+	 * Returns the GLFW window that owns this context.
+	 * 
+	 * @return the window handle
+	 */
+	public long getWindow() {
+		return window;
+	}
+}
@@ -0,0 +1,116 @@
+package renderEngine;
+
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL33;
+
+import utility.Profiler;
+
+/**
+ * Measures how long the GPU spends on each frame, using OpenGL time elapsed
+ * queries made through a {@link renderEngine.RenderDevice}, and records the
+ * result into a {@link utility.Profiler} scope. The GPU runs behind the CPU,
+ * so results are collected a few frames later, and a result that is still not
+ * ready by then is skipped rather than waited on. When the device does not
+ * support timer queries, every method does nothing.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class GpuTimer {
+
+	/* How many frames of queries can be waiting on the GPU at once */
+	private static final int FRAMES_IN_FLIGHT = 4;
+
+	private final RenderDevice device;
+
+	private final Profiler profiler;
+	private final int scope;
+
+	private final boolean supported;
+
+	private final int[] queries = new int[FRAMES_IN_FLIGHT];
+	private final boolean[] pending = new boolean[FRAMES_IN_FLIGHT];
+
+	private int frame = 0;
+
+	/**
+	 * Constructs the timer, creating its queries if the device supports them.
+	 * 
+	 * @param device
+	 *            the render device whose GPU work is timed
+	 * @param profiler
+	 *            the profiler to record GPU frame times into
+	 * @param scope
+	 *            the id of the profiler scope for GPU frame times
+	 */
+	public GpuTimer(RenderDevice device, Profiler profiler, int scope) {
+		this.device = device;
+		this.profiler = profiler;
+		this.scope = scope;
+		this.supported = device.supportsTimerQuery();
+
+		if (supported) {
+			for (int i = 0; i < FRAMES_IN_FLIGHT; i++) {
+				queries[i] = device.genQuery();
+			}
+		}
+	}
+
+	/**
+	 * Marks the start of the GPU work for a frame. Call this right after
+	 * {@link renderEngine.RenderInputWindow#prepare()}.
+	 */
+	public void begin() {
+		if (!supported) {
+			return;
+		}
+
+		int slot = frame % FRAMES_IN_FLIGHT;
+
+		/* Collect this slot's result from FRAMES_IN_FLIGHT frames ago, if ready */
+		if (pending[slot]) {
+			pending[slot] = false;
+
+			if (device.getQueryObjecti(queries[slot], GL15.GL_QUERY_RESULT_AVAILABLE) != 0) {
+				profiler.record(scope, device.getQueryObjecti64(queries[slot], GL15.GL_QUERY_RESULT));
+			}
+		}
+
+		device.beginQuery(GL33.GL_TIME_ELAPSED, queries[slot]);
+	}
+
+	/**
+	 * Marks the end of the GPU work for a frame. Call this right before swapping
+	 * buffers.
+	 */
+	public void end() {
+		if (!supported) {
+			return;
+		}
+
+		device.endQuery(GL33.GL_TIME_ELAPSED);
+		pending[frame % FRAMES_IN_FLIGHT] = true;
+		frame++;
+	}
+
+	/**
+	 * Returns whether the device supports timer queries.
+	 * 
+	 * @return true if GPU times are being measured
+	 */
+	public boolean isSupported() {
+		return supported;
+	}
+
+	/**
+	 * Frees up the timer's queries. Call this before the OpenGL context is
+	 * destroyed.
+	 */
+	public void cleanUp() {
+		if (supported) {
+			for (int i = 0; i < FRAMES_IN_FLIGHT; i++) {
+				device.deleteQuery(queries[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package renderEngine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.lwjgl.stb.STBImage;
+import org.lwjgl.system.MemoryStack;
+
+import utility.BufferPool;
+import utility.PooledBuffer;
+
+/**
+ * An image held in memory as 8-bit RGBA pixels, row by row from the top left,
+ * the layout OpenGL takes for GL_RGBA and GL_UNSIGNED_BYTE. Images are decoded
+ * from PNG and the other formats STB reads with {@link #read(Path)}, and can be
+ * decoded on any thread, so they are normally decoded on the worker threads of
+ * a {@link renderEngine.TextureLoader}.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class Image {
+
+	private final int width, height;
+
+	private final byte[] pixels;
+
+	/**
+	 * Constructs a transparent black image.
+	 * 
+	 * @param width
+	 *            the width, in pixels
+	 * @param height
+	 *            the height, in pixels
+	 */
+	public Image(int width, int height) {
+		this(width, height, new byte[width * height * 4]);
+	}
+
+	/**
+	 * Constructs an image around existing pixels, which are not copied.
+	 * 
+	 * @param width
+	 *            the width, in pixels
+	 * @param height
+	 *            the height, in pixels
+	 * @param pixels
+	 *            the RGBA pixels, four bytes each, row by row from the top left
+	 */
+	public Image(int width, int height, byte[] pixels) {
+		if (width <= 0 || height <= 0 || pixels.length != width * height * 4) {
+			throw new IllegalArgumentException("Image of " + width + "x" + height + " cannot have " + pixels.length
+					+ " bytes of pixels");
+		}
+
+		this.width = width;
+		this.height = height;
+		this.pixels = pixels;
+	}
+
+	/**
+	 * Reads and decodes an image file, converting it to RGBA.
+	 * 
+	 * @param file
+	 *            the image file, such as a PNG
+	 * @return the decoded image
+	 * @throws IOException
+	 *             if the file cannot be read or decoded
+	 */
+	public static Image read(Path file) throws IOException {
+		PooledBuffer pooled = null;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("Image file is too large: " + file);
+			}
+
+			pooled = BufferPool.SHARED.acquire((int) size);
+			ByteBuffer encoded = pooled.getByteBuffer().duplicate();
+			encoded.limit((int) size);
+			while (encoded.hasRemaining()) {
+				if (channel.read(encoded) < 0) {
+					throw new IOException("Image file ended early: " + file);
+				}
+			}
+			encoded.flip();
+
+			try {
+				return decode(encoded);
+			} catch (IOException e) {
+				throw new IOException(e.getMessage() + ": " + file, e);
+			}
+		} finally {
+			if (pooled != null) {
+				pooled.release();
+			}
+		}
+	}
+
+	/**
+	 * Decodes an encoded image, such as the contents of a PNG file, converting it
+	 * to RGBA.
+	 * 
+	 * @param encoded
+	 *            the encoded image, from the buffer's position to its limit, in a
+	 *            direct buffer
+	 * @return the decoded image
+	 * @throws IOException
+	 *             if the image cannot be decoded
+	 */
+	public static Image decode(ByteBuffer encoded) throws IOException {
+		try (MemoryStack stack = MemoryStack.stackPush()) {
+			IntBuffer width = stack.mallocInt(1), height = stack.mallocInt(1), channels = stack.mallocInt(1);
+
+			/* Always asks for four channels, so every image comes out as RGBA */
+			ByteBuffer decoded = STBImage.stbi_load_from_memory(encoded, width, height, channels, 4);
+			if (decoded == null) {
+				throw new IOException("Unable to decode image (" + STBImage.stbi_failure_reason() + ")");
+			}
+
+			try {
+				byte[] pixels = new byte[width.get(0) * height.get(0) * 4];
+				decoded.get(pixels);
+				return new Image(width.get(0), height.get(0), pixels);
+			} finally {
+				STBImage.stbi_image_free(decoded);
+			}
+		}
+	}
+
+	/**
+	 * Copies another image into this one, and repeats the other image's edge
+	 * pixels outwards around it for the specified number of pixels. The border
+	 * stops texture filtering, and the smaller mipmap levels, from blending in
+	 * whatever sits next to the image in an atlas.
+	 * 
+	 * @param source
+	 *            the image to be copied
+	 * @param x
+	 *            where the left edge of the copy goes, not counting the border
+	 * @param y
+	 *            where the top edge of the copy goes, not counting the border
+	 * @param border
+	 *            how many pixels of border to add on each side
+	 */
+	public void copyFrom(Image source, int x, int y, int border) {
+		if (x - border < 0 || y - border < 0 || x + source.width + border > width
+				|| y + source.height + border > height) {
+			throw new IllegalArgumentException("Image does not fit at (" + x + ", " + y + ")");
+		}
+
+		int rowBytes = source.width * 4;
+		for (int row = -border; row < source.height + border; row++) {
+			int sourceRow = Math.min(Math.max(row, 0), source.height - 1);
+			int sourceStart = sourceRow * rowBytes, targetStart = ((y + row) * width + x) * 4;
+			System.arraycopy(source.pixels, sourceStart, pixels, targetStart, rowBytes);
+
+			/* Repeats the first and last pixel of the row into the border */
+			for (int b = 1; b <= border; b++) {
+				System.arraycopy(source.pixels, sourceStart, pixels, targetStart - b * 4, 4);
+				System.arraycopy(source.pixels, sourceStart + rowBytes - 4, pixels, targetStart + rowBytes + (b - 1) * 4,
+						4);
+			}
+		}
+	}
+
+	/**
+	 * Returns the width of the image.
+	 * 
+	 * @return the width, in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of the image.
+	 * 
+	 * @return the height, in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the pixels of the image, which are not copied, so changes to them
+	 * change the image.
+	 * 
+	 * @return the RGBA pixels, four bytes each, row by row from the top left
+	 */
+	public byte[] getPixels() {
+		return pixels;
+	}
+
+	/**
+	 * Returns the size of the pixels.
+	 * 
+	 * @return the size, in bytes
+	 */
+	public int sizeBytes() {
+		return pixels.length;
+	}
+
+	@Override
+	public String toString() {
+		return "Image[" + width + "x" + height + "]";
+	}
+}
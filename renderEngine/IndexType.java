@@ -0,0 +1,62 @@
+package renderEngine;
+
+import org.lwjgl.opengl.GL11;
+
+/**
+ * The sizes that a model's indices can be stored as. Smaller indices take up
+ * less memory and bandwidth, but can only address as many vertices as fit in
+ * their range.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public enum IndexType {
+
+	UNSIGNED_BYTE(GL11.GL_UNSIGNED_BYTE, 1), UNSIGNED_SHORT(GL11.GL_UNSIGNED_SHORT, 2),
+	UNSIGNED_INT(GL11.GL_UNSIGNED_INT, 4);
+
+	private final int glType, bytes;
+
+	private IndexType(int glType, int bytes) {
+		this.glType = glType;
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Returns the smallest index type able to address the specified number of
+	 * vertices.
+	 * 
+	 * @param vertexCount
+	 *            the number of vertices the indices refer to
+	 * @return the smallest index type that fits
+	 */
+	public static IndexType forVertexCount(int vertexCount) {
+		if (vertexCount <= 1 << 8) {
+			return UNSIGNED_BYTE;
+		}
+
+		if (vertexCount <= 1 << 16) {
+			return UNSIGNED_SHORT;
+		}
+
+		return UNSIGNED_INT;
+	}
+
+	/**
+	 * Returns the OpenGL enum for this type, as passed to {@code glDrawElements}.
+	 * 
+	 * @return the OpenGL type enum
+	 */
+	public int getGlType() {
+		return glType;
+	}
+
+	/**
+	 * Returns the size of a single index of this type.
+	 * 
+	 * @return the size in bytes
+	 */
+	public int getBytes() {
+		return bytes;
+	}
+}
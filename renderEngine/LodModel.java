@@ -0,0 +1,68 @@
+package renderEngine;
+
+/**
+ * A model with several levels of detail, from the full mesh at level zero to
+ * coarser and coarser simplifications of it. Every level shares one VAO, one
+ * vertex buffer and one index buffer, and is a {@link renderEngine.RawModel}
+ * whose indices start at its own offset, so any level can be drawn or
+ * submitted like any other model. Each level records its geometric error,
+ * which {@link renderEngine.LodSelector} projects onto the screen to choose
+ * the coarsest level that still looks the same.
+ * 
+ * @author Matthew L. Roy
+ * @see renderEngine.ModelLoader#loadWithLods(Mesh, int)
+ *
+ */
+public class LodModel {
+
+	private final RawModel[] levels;
+	private final float[] errors;
+
+	LodModel(RawModel[] levels, float[] errors) {
+		this.levels = levels;
+		this.errors = errors;
+	}
+
+	/**
+	 * Returns the number of levels, including the full mesh.
+	 * 
+	 * @return the level count
+	 */
+	public int getLevelCount() {
+		return levels.length;
+	}
+
+	/**
+	 * Returns one level of detail.
+	 * 
+	 * @param level
+	 *            the level, where zero is the full mesh
+	 * @return the model drawing that level
+	 */
+	public RawModel getLevel(int level) {
+		return levels[level];
+	}
+
+	/**
+	 * Returns how far a level's surface may be from the full mesh's, in model
+	 * units.
+	 * 
+	 * @param level
+	 *            the level, where zero is the full mesh
+	 * @return the geometric error of the level, which is zero for level zero
+	 * @see renderEngine.MeshSimplifier#getError()
+	 */
+	public float getError(int level) {
+		return errors[level];
+	}
+
+	/**
+	 * Returns the bounds of the full mesh, in model space, which every level lies
+	 * within.
+	 * 
+	 * @return the bounds of this model
+	 */
+	public Bounds getBounds() {
+		return levels[0].getBounds();
+	}
+}
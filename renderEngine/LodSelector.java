@@ -0,0 +1,172 @@
+package renderEngine;
+
+/**
+ * Chooses which level of a {@link renderEngine.LodModel} to draw each frame,
+ * from how large the level's geometric error would appear on screen. The
+ * coarsest level whose error projects to no more than the allowed number of
+ * pixels is chosen, measured from the nearest point of the model's bounding
+ * sphere to the camera.
+ * 
+ * <p>
+ * To keep a model near a threshold from popping back and forth between two
+ * levels, selection is given hysteresis: a model moves to a finer level as
+ * soon as its current one is over the pixel error, but only moves to a coarser
+ * level once that level is under the pixel error by a margin. Selection keeps
+ * no state of its own, so the caller keeps each object's current level and
+ * passes it back in the next frame. Selecting does not allocate.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class LodSelector {
+
+	/* A quarter of the allowed error, so a level stays put over small camera moves */
+	private static final float DEFAULT_HYSTERESIS = 0.25f;
+
+	private float pixelsPerUnit = 0, maxPixelError = 0, hysteresis = DEFAULT_HYSTERESIS, bias = 1;
+
+	private float cameraX = 0, cameraY = 0, cameraZ = 0;
+
+	/**
+	 * Constructs a selector for a perspective camera.
+	 * 
+	 * @param viewportHeight
+	 *            the height of the viewport, in pixels
+	 * @param fieldOfViewDegrees
+	 *            the vertical field of view, in degrees
+	 * @param maxPixelError
+	 *            how many pixels a level's error may cover on screen
+	 */
+	public LodSelector(int viewportHeight, float fieldOfViewDegrees, float maxPixelError) {
+		setProjection(viewportHeight, fieldOfViewDegrees);
+		this.maxPixelError = maxPixelError;
+	}
+
+	/**
+	 * Changes the camera's projection, such as when the window is resized.
+	 * 
+	 * @param viewportHeight
+	 *            the height of the viewport, in pixels
+	 * @param fieldOfViewDegrees
+	 *            the vertical field of view, in degrees
+	 */
+	public void setProjection(int viewportHeight, float fieldOfViewDegrees) {
+		/* How many pixels one unit covers at a distance of one unit */
+		pixelsPerUnit = viewportHeight / (2 * (float) Math.tan(Math.toRadians(fieldOfViewDegrees) / 2));
+	}
+
+	/**
+	 * Moves the camera. Call this once per frame, before selecting levels.
+	 * 
+	 * @param x
+	 *            the X of the camera
+	 * @param y
+	 *            the Y of the camera
+	 * @param z
+	 *            the Z of the camera
+	 */
+	public void setCamera(float x, float y, float z) {
+		this.cameraX = x;
+		this.cameraY = y;
+		this.cameraZ = z;
+	}
+
+	/**
+	 * Sets how far under the pixel error a coarser level must be before it is
+	 * switched to, as a fraction of the pixel error. Zero turns hysteresis off.
+	 * 
+	 * @param hysteresis
+	 *            the margin, from 0 to 1
+	 */
+	public void setHysteresis(float hysteresis) {
+		this.hysteresis = hysteresis;
+	}
+
+	/**
+	 * Scales the allowed pixel error, trading detail for speed without changing
+	 * the configured error. One selects levels as configured, while two allows
+	 * twice the error, so coarser levels are chosen at half the distance.
+	 * 
+	 * @param bias
+	 *            the multiplier of the pixel error, above zero
+	 */
+	public void setBias(float bias) {
+		this.bias = bias;
+	}
+
+	/**
+	 * Returns the multiplier of the allowed pixel error.
+	 * 
+	 * @return the bias, with one meaning none
+	 */
+	public float getBias() {
+		return bias;
+	}
+
+	/**
+	 * Chooses the level to draw an object with this frame.
+	 * 
+	 * @param model
+	 *            the object's model
+	 * @param x
+	 *            the X of the object
+	 * @param y
+	 *            the Y of the object
+	 * @param z
+	 *            the Z of the object
+	 * @param currentLevel
+	 *            the level the object was drawn with last frame, or zero
+	 * @return the level to draw the object with
+	 */
+	public int select(LodModel model, float x, float y, float z, int currentLevel) {
+		Bounds bounds = model.getBounds();
+		float dx = (bounds.getMinX() + bounds.getMaxX()) * 0.5f + x - cameraX;
+		float dy = (bounds.getMinY() + bounds.getMaxY()) * 0.5f + y - cameraY;
+		float dz = (bounds.getMinZ() + bounds.getMaxZ()) * 0.5f + z - cameraZ;
+
+		/* Inside the bounding sphere, nothing but the full mesh will do */
+		float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz) - bounds.getRadius();
+		if (!(distance > 0)) {
+			return 0;
+		}
+
+		float scale = pixelsPerUnit / distance, maxError = maxPixelError * bias;
+		int level = Math.min(currentLevel, model.getLevelCount() - 1);
+
+		/* Finer as soon as the current level shows, coarser only once the next is well hidden */
+		while (level > 0 && model.getError(level) * scale > maxError) {
+			level--;
+		}
+
+		float coarserLimit = maxError * (1 - hysteresis);
+		while (level + 1 < model.getLevelCount() && model.getError(level + 1) * scale <= coarserLimit) {
+			level++;
+		}
+
+		return level;
+	}
+
+	/**
+	 * Returns how many pixels tall an object would appear on screen.
+	 * 
+	 * @param model
+	 *            the object's model
+	 * @param x
+	 *            the X of the object
+	 * @param y
+	 *            the Y of the object
+	 * @param z
+	 *            the Z of the object
+	 * @return the projected diameter of the object's bounding sphere, in pixels
+	 */
+	public float getScreenSize(LodModel model, float x, float y, float z) {
+		Bounds bounds = model.getBounds();
+		float dx = (bounds.getMinX() + bounds.getMaxX()) * 0.5f + x - cameraX;
+		float dy = (bounds.getMinY() + bounds.getMaxY()) * 0.5f + y - cameraY;
+		float dz = (bounds.getMinZ() + bounds.getMaxZ()) * 0.5f + z - cameraZ;
+
+		float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+		return distance > 0 ? 2 * bounds.getRadius() * pixelsPerUnit / distance : Float.POSITIVE_INFINITY;
+	}
+}
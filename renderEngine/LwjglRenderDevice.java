@@ -0,0 +1,453 @@
+package renderEngine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.opengl.GL41;
+import org.lwjgl.opengl.GL44;
+import org.lwjgl.system.MemoryStack;
+
+/**
+ * The render device that passes every call straight to OpenGL through LWJGL.
+ * The OpenGL context must already be current on the calling thread, as set up
+ * by {@link renderEngine.GLContext}.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class LwjglRenderDevice implements RenderDevice {
+
+	@Override
+	public int genVertexArray() {
+		return GL30.glGenVertexArrays();
+	}
+
+	@Override
+	public void bindVertexArray(int vaoId) {
+		GL30.glBindVertexArray(vaoId);
+	}
+
+	@Override
+	public void deleteVertexArray(int vaoId) {
+		GL30.glDeleteVertexArrays(vaoId);
+	}
+
+	@Override
+	public int genBuffer() {
+		return GL15.glGenBuffers();
+	}
+
+	@Override
+	public void bindBuffer(int target, int bufferId) {
+		GL15.glBindBuffer(target, bufferId);
+	}
+
+	@Override
+	public void bufferData(int target, ByteBuffer data, int usage) {
+		GL15.glBufferData(target, data, usage);
+	}
+
+	@Override
+	public void bufferData(int target, FloatBuffer data, int usage) {
+		GL15.glBufferData(target, data, usage);
+	}
+
+	@Override
+	public void bufferData(int target, IntBuffer data, int usage) {
+		GL15.glBufferData(target, data, usage);
+	}
+
+	@Override
+	public void bufferData(int target, long size, int usage) {
+		GL15.glBufferData(target, size, usage);
+	}
+
+	@Override
+	public void bufferSubData(int target, long offset, ByteBuffer data) {
+		GL15.glBufferSubData(target, offset, data);
+	}
+
+	@Override
+	public boolean supportsBufferStorage() {
+		GLCapabilities capabilities = GL.getCapabilities();
+		return capabilities.OpenGL44 || capabilities.GL_ARB_buffer_storage;
+	}
+
+	@Override
+	public void bufferStorage(int target, long size, int flags) {
+		GL44.glBufferStorage(target, size, flags);
+	}
+
+	@Override
+	public ByteBuffer mapBufferRange(int target, long offset, long length, int access) {
+		ByteBuffer mapped = GL30.glMapBufferRange(target, offset, length, access);
+		if (mapped == null) {
+			throw new IllegalStateException("Unable to map buffer range of " + length + " bytes");
+		}
+		return mapped.order(ByteOrder.nativeOrder());
+	}
+
+	@Override
+	public void unmapBuffer(int target) {
+		GL30.glUnmapBuffer(target);
+	}
+
+	@Override
+	public long fenceSync() {
+		return GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+	}
+
+	@Override
+	public int clientWaitSync(long sync, long timeoutNs) {
+		return GL32.glClientWaitSync(sync, GL32.GL_SYNC_FLUSH_COMMANDS_BIT, timeoutNs);
+	}
+
+	@Override
+	public void deleteSync(long sync) {
+		GL32.glDeleteSync(sync);
+	}
+
+	@Override
+	public boolean supportsTimerQuery() {
+		GLCapabilities capabilities = GL.getCapabilities();
+		return capabilities.OpenGL33 || capabilities.GL_ARB_timer_query;
+	}
+
+	@Override
+	public int genQuery() {
+		return GL15.glGenQueries();
+	}
+
+	@Override
+	public void beginQuery(int target, int queryId) {
+		GL15.glBeginQuery(target, queryId);
+	}
+
+	@Override
+	public void endQuery(int target) {
+		GL15.glEndQuery(target);
+	}
+
+	@Override
+	public int getQueryObjecti(int queryId, int name) {
+		return GL15.glGetQueryObjecti(queryId, name);
+	}
+
+	@Override
+	public long getQueryObjecti64(int queryId, int name) {
+		return GL33.glGetQueryObjecti64(queryId, name);
+	}
+
+	@Override
+	public void deleteQuery(int queryId) {
+		GL15.glDeleteQueries(queryId);
+	}
+
+	@Override
+	public void deleteBuffer(int bufferId) {
+		GL15.glDeleteBuffers(bufferId);
+	}
+
+	@Override
+	public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long offset) {
+		GL20.glVertexAttribPointer(index, size, type, normalized, stride, offset);
+	}
+
+	@Override
+	public void enableVertexAttribArray(int index) {
+		GL20.glEnableVertexAttribArray(index);
+	}
+
+	@Override
+	public void disableVertexAttribArray(int index) {
+		GL20.glDisableVertexAttribArray(index);
+	}
+
+	@Override
+	public void vertexAttribDivisor(int index, int divisor) {
+		GL33.glVertexAttribDivisor(index, divisor);
+	}
+
+	@Override
+	public void drawElements(int mode, int count, int type, long offset) {
+		GL11.glDrawElements(mode, count, type, offset);
+	}
+
+	@Override
+	public void drawElementsInstanced(int mode, int count, int type, long offset, int instances) {
+		GL31.glDrawElementsInstanced(mode, count, type, offset, instances);
+	}
+
+	@Override
+	public void drawElementsBaseVertex(int mode, int count, int type, long offset, int baseVertex) {
+		GL32.glDrawElementsBaseVertex(mode, count, type, offset, baseVertex);
+	}
+
+	@Override
+	public void drawArrays(int mode, int first, int count) {
+		GL11.glDrawArrays(mode, first, count);
+	}
+
+	@Override
+	public int getInteger(int name) {
+		return GL11.glGetInteger(name);
+	}
+
+	@Override
+	public String getString(int name) {
+		return GL11.glGetString(name);
+	}
+
+	@Override
+	public int createShader(int type) {
+		return GL20.glCreateShader(type);
+	}
+
+	@Override
+	public void shaderSource(int shaderId, String source) {
+		GL20.glShaderSource(shaderId, source);
+	}
+
+	@Override
+	public void compileShader(int shaderId) {
+		GL20.glCompileShader(shaderId);
+	}
+
+	@Override
+	public int getShaderi(int shaderId, int name) {
+		return GL20.glGetShaderi(shaderId, name);
+	}
+
+	@Override
+	public String getShaderInfoLog(int shaderId) {
+		return GL20.glGetShaderInfoLog(shaderId);
+	}
+
+	@Override
+	public void deleteShader(int shaderId) {
+		GL20.glDeleteShader(shaderId);
+	}
+
+	@Override
+	public int createProgram() {
+		return GL20.glCreateProgram();
+	}
+
+	@Override
+	public void attachShader(int programId, int shaderId) {
+		GL20.glAttachShader(programId, shaderId);
+	}
+
+	@Override
+	public void detachShader(int programId, int shaderId) {
+		GL20.glDetachShader(programId, shaderId);
+	}
+
+	@Override
+	public void bindAttribLocation(int programId, int index, String name) {
+		GL20.glBindAttribLocation(programId, index, name);
+	}
+
+	@Override
+	public void programParameteri(int programId, int name, int value) {
+		GL41.glProgramParameteri(programId, name, value);
+	}
+
+	@Override
+	public void linkProgram(int programId) {
+		GL20.glLinkProgram(programId);
+	}
+
+	@Override
+	public int getProgrami(int programId, int name) {
+		return GL20.glGetProgrami(programId, name);
+	}
+
+	@Override
+	public String getProgramInfoLog(int programId) {
+		return GL20.glGetProgramInfoLog(programId);
+	}
+
+	@Override
+	public String getActiveUniform(int programId, int index) {
+		try (MemoryStack stack = MemoryStack.stackPush()) {
+			return GL20.glGetActiveUniform(programId, index, stack.mallocInt(1), stack.mallocInt(1));
+		}
+	}
+
+	@Override
+	public int getUniformLocation(int programId, String name) {
+		return GL20.glGetUniformLocation(programId, name);
+	}
+
+	@Override
+	public String getActiveAttrib(int programId, int index) {
+		try (MemoryStack stack = MemoryStack.stackPush()) {
+			return GL20.glGetActiveAttrib(programId, index, stack.mallocInt(1), stack.mallocInt(1));
+		}
+	}
+
+	@Override
+	public int getAttribLocation(int programId, String name) {
+		return GL20.glGetAttribLocation(programId, name);
+	}
+
+	@Override
+	public void useProgram(int programId) {
+		GL20.glUseProgram(programId);
+	}
+
+	@Override
+	public void deleteProgram(int programId) {
+		GL20.glDeleteProgram(programId);
+	}
+
+	@Override
+	public boolean supportsProgramBinary() {
+		GLCapabilities capabilities = GL.getCapabilities();
+		return capabilities.OpenGL41 || capabilities.GL_ARB_get_program_binary;
+	}
+
+	@Override
+	public void getProgramBinary(int programId, IntBuffer length, IntBuffer binaryFormat, ByteBuffer binary) {
+		GL41.glGetProgramBinary(programId, length, binaryFormat, binary);
+	}
+
+	@Override
+	public void programBinary(int programId, int binaryFormat, ByteBuffer binary) {
+		GL41.glProgramBinary(programId, binaryFormat, binary);
+	}
+
+	@Override
+	public void uniform1i(int location, int value) {
+		GL20.glUniform1i(location, value);
+	}
+
+	@Override
+	public void uniform1f(int location, float value) {
+		GL20.glUniform1f(location, value);
+	}
+
+	@Override
+	public void uniform2f(int location, float x, float y) {
+		GL20.glUniform2f(location, x, y);
+	}
+
+	@Override
+	public void uniform3f(int location, float x, float y, float z) {
+		GL20.glUniform3f(location, x, y, z);
+	}
+
+	@Override
+	public void uniform4f(int location, float x, float y, float z, float w) {
+		GL20.glUniform4f(location, x, y, z, w);
+	}
+
+	@Override
+	public void uniformMatrix4fv(int location, boolean transpose, float[] value) {
+		GL20.glUniformMatrix4fv(location, transpose, value);
+	}
+
+	@Override
+	public int genTexture() {
+		return GL11.glGenTextures();
+	}
+
+	@Override
+	public void deleteTexture(int textureId) {
+		GL11.glDeleteTextures(textureId);
+	}
+
+	@Override
+	public void texParameteri(int target, int name, int value) {
+		GL11.glTexParameteri(target, name, value);
+	}
+
+	@Override
+	public void texImage2D(int target, int level, int internalFormat, int width, int height, int format, int type,
+			long offset) {
+		GL11.glTexImage2D(target, level, internalFormat, width, height, 0, format, type, offset);
+	}
+
+	@Override
+	public void bindTexture(int target, int textureId) {
+		GL11.glBindTexture(target, textureId);
+	}
+
+	@Override
+	public void clearColor(float red, float green, float blue, float alpha) {
+		GL11.glClearColor(red, green, blue, alpha);
+	}
+
+	@Override
+	public void clear(int mask) {
+		GL11.glClear(mask);
+	}
+
+	@Override
+	public void viewport(int x, int y, int width, int height) {
+		GL11.glViewport(x, y, width, height);
+	}
+
+	@Override
+	public int genFramebuffer() {
+		return GL30.glGenFramebuffers();
+	}
+
+	@Override
+	public void bindFramebuffer(int target, int framebufferId) {
+		GL30.glBindFramebuffer(target, framebufferId);
+	}
+
+	@Override
+	public void deleteFramebuffer(int framebufferId) {
+		GL30.glDeleteFramebuffers(framebufferId);
+	}
+
+	@Override
+	public int checkFramebufferStatus(int target) {
+		return GL30.glCheckFramebufferStatus(target);
+	}
+
+	@Override
+	public int genRenderbuffer() {
+		return GL30.glGenRenderbuffers();
+	}
+
+	@Override
+	public void bindRenderbuffer(int target, int renderbufferId) {
+		GL30.glBindRenderbuffer(target, renderbufferId);
+	}
+
+	@Override
+	public void renderbufferStorage(int target, int internalFormat, int width, int height) {
+		GL30.glRenderbufferStorage(target, internalFormat, width, height);
+	}
+
+	@Override
+	public void deleteRenderbuffer(int renderbufferId) {
+		GL30.glDeleteRenderbuffers(renderbufferId);
+	}
+
+	@Override
+	public void framebufferRenderbuffer(int target, int attachment, int renderbufferTarget, int renderbufferId) {
+		GL30.glFramebufferRenderbuffer(target, attachment, renderbufferTarget, renderbufferId);
+	}
+
+	@Override
+	public void blitFramebuffer(int srcX0, int srcY0, int srcX1, int srcY1, int dstX0, int dstY0, int dstX1,
+			int dstY1, int mask, int filter) {
+		GL30.glBlitFramebuffer(srcX0, srcY0, srcX1, srcY1, dstX0, dstY0, dstX1, dstY1, mask, filter);
+	}
+}
@@ -0,0 +1,72 @@
+package renderEngine;
+
+/**
+ * A model's geometry while it is still on the CPU: the data of each vertex
+ * attribute, as laid out by a {@link renderEngine.VertexFormat}, and the
+ * indices of its triangles. Meshes are what {@link renderEngine.MeshOptimizer}
+ * works on before a model is uploaded by {@link renderEngine.ModelLoader}.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class Mesh {
+
+	private final VertexFormat format;
+	private final float[][] attributeData;
+	private final int[] indices;
+	private final int vertexCount;
+
+	/**
+	 * Constructs a mesh out of the specified arrays, which are not copied.
+	 * 
+	 * @param format
+	 *            the layout of each vertex
+	 * @param attributeData
+	 *            one array per attribute of the format, in the same order, each
+	 *            holding that attribute's components for every vertex
+	 * @param indices
+	 *            the indices of the mesh's triangles
+	 */
+	public Mesh(VertexFormat format, float[][] attributeData, int[] indices) {
+		this.format = format;
+		this.attributeData = attributeData;
+		this.indices = indices;
+		this.vertexCount = VertexPacker.vertexCountOf(format, attributeData);
+	}
+
+	/**
+	 * Returns the layout of each vertex of this mesh.
+	 * 
+	 * @return the vertex format
+	 */
+	public VertexFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * Returns the data of each attribute, in the order of the vertex format.
+	 * 
+	 * @return the attribute data arrays
+	 */
+	public float[][] getAttributeData() {
+		return attributeData;
+	}
+
+	/**
+	 * Returns the indices of this mesh's triangles, three per triangle.
+	 * 
+	 * @return the index array
+	 */
+	public int[] getIndices() {
+		return indices;
+	}
+
+	/**
+	 * Returns the number of distinct vertices in this mesh.
+	 * 
+	 * @return the vertex count
+	 */
+	public int getVertexCount() {
+		return vertexCount;
+	}
+}
@@ -0,0 +1,244 @@
+package renderEngine;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import utility.BufferPool;
+import utility.PooledBuffer;
+
+/**
+ * Reads and writes the binary mesh cache format. A cache file holds a mesh that
+ * has already been optimized and packed exactly as OpenGL draws it, so loading
+ * one is only a matter of memory-mapping the file and handing the mapped bytes
+ * to OpenGL. This class behaves in a "static" fashion in the sense that it is
+ * constant and cannot be constructed publicly.
+ * 
+ * <p>
+ * A file is laid out as follows, with every number a little-endian int unless
+ * said otherwise:
+ * </p>
+ * 
+ * <ol>
+ * <li>The magic number "AMSH", then the format {@link #VERSION}</li>
+ * <li>The vertex stride and attribute count, then the index, component count,
+ * {@link renderEngine.AttributeType} ordinal and offset of each attribute</li>
+ * <li>The vertex count, the {@link renderEngine.IndexType} ordinal and the
+ * index count</li>
+ * <li>The file offsets of the vertex data and of the index data</li>
+ * <li>The {@link renderEngine.Bounds} of the vertex positions, as six
+ * little-endian floats: the smallest X, Y and Z, then the largest, so that
+ * loading a cached mesh never has to read its vertices to find them</li>
+ * <li>The vertex data, then the index data, each starting on a 16-byte
+ * boundary</li>
+ * </ol>
+ * 
+ * Files whose version does not match are rejected, rather than read wrongly;
+ * convert the source mesh again with {@link renderEngine.MeshConverter}.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public final class MeshCache {
+
+	/**
+	 * The version of the format written by this class, to be increased whenever
+	 * the layout changes
+	 */
+	public static final int VERSION = 2;
+
+	/**
+	 * The file extension used for cache files
+	 */
+	public static final String EXTENSION = ".amesh";
+
+	/* "AMSH" when read as little-endian bytes */
+	private static final int MAGIC = 0x48534D41;
+
+	private static final int ALIGNMENT = 16;
+
+	/* Private so that this class does not accidently get instantiated */
+	private MeshCache() {
+	}
+
+	/**
+	 * Optimizes a mesh with {@link renderEngine.MeshOptimizer#optimize(Mesh)},
+	 * packs it, and writes it to a cache file, replacing any file already there.
+	 * 
+	 * @param mesh
+	 *            the mesh to be written, which is not changed
+	 * @param file
+	 *            the cache file to be written
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static void write(Mesh mesh, Path file) throws IOException {
+		Mesh optimized = MeshOptimizer.optimize(mesh);
+		VertexFormat format = optimized.getFormat();
+		int[] indices = optimized.getIndices();
+		int vertexCount = optimized.getVertexCount();
+		IndexType indexType = IndexType.forVertexCount(vertexCount);
+
+		int headerBytes = (9 + format.getAttributeCount() * 4) * Integer.BYTES + 6 * Float.BYTES;
+		int vertexBytes = vertexCount * format.getStride(), indexBytes = indices.length * indexType.getBytes();
+		int vertexOffset = align(headerBytes), indexOffset = align(vertexOffset + vertexBytes);
+
+		PooledBuffer pooled = BufferPool.SHARED.acquire(indexOffset + indexBytes);
+		try {
+			ByteBuffer buffer = pooled.getByteBuffer().duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(MAGIC).putInt(VERSION);
+			buffer.putInt(format.getStride()).putInt(format.getAttributeCount());
+			for (VertexAttribute attribute : format.getAttributes()) {
+				buffer.putInt(attribute.getIndex()).putInt(attribute.getComponents());
+				buffer.putInt(attribute.getType().ordinal()).putInt(attribute.getOffset());
+			}
+			buffer.putInt(vertexCount).putInt(indexType.ordinal()).putInt(indices.length);
+			buffer.putInt(vertexOffset).putInt(indexOffset);
+			int boundsOffset = buffer.position();
+
+			/* Packing flips each slice, so only the byte counts matter afterwards */
+			buffer.position(vertexOffset);
+			ByteBuffer vertices = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+			Bounds bounds = Bounds.of(format, VertexPacker.pack(format, optimized.getAttributeData(), vertices));
+			buffer.position(boundsOffset);
+			buffer.putFloat(bounds.getMinX()).putFloat(bounds.getMinY()).putFloat(bounds.getMinZ());
+			buffer.putFloat(bounds.getMaxX()).putFloat(bounds.getMaxY()).putFloat(bounds.getMaxZ());
+			buffer.position(indexOffset);
+			MeshOptimizer.packIndices(indices, indexType, buffer.slice().order(ByteOrder.LITTLE_ENDIAN));
+
+			/* Pooled memory still holds whatever was last packed in it, which must not reach the file */
+			zero(buffer, headerBytes, vertexOffset);
+			zero(buffer, vertexOffset + vertexBytes, indexOffset);
+
+			buffer.position(0);
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+		} finally {
+			pooled.release();
+		}
+	}
+
+	/**
+	 * Memory-maps a cache file and returns views of its vertices and indices. The
+	 * operating system pages the file in as OpenGL reads it, and the mapping is
+	 * dropped once the returned mesh is no longer referenced.
+	 * 
+	 * @param file
+	 *            the cache file to be read
+	 * @return the mesh, ready to be uploaded
+	 * @throws IOException
+	 *             if the file cannot be read, or is not a valid cache file of
+	 *             this version
+	 */
+	public static CachedMesh read(Path file) throws IOException {
+		/* OpenGL reads the packed data in native order, which the file only matches on little-endian machines */
+		if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN) {
+			throw new IOException("Mesh cache files can only be mapped on little-endian machines");
+		}
+
+		MappedByteBuffer mapped;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+		try {
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException("Not a mesh cache file: " + file);
+			}
+
+			int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new IOException("Mesh cache version " + version + " is not " + VERSION + ", reconvert " + file);
+			}
+
+			int stride = buffer.getInt(), attributeCount = buffer.getInt();
+			VertexFormat format = new VertexFormat();
+			for (int i = 0; i < attributeCount; i++) {
+				int index = buffer.getInt(), components = buffer.getInt();
+				AttributeType type = AttributeType.values()[buffer.getInt()];
+				int offset = buffer.getInt();
+
+				format = format.add(index, components, type);
+				if (format.getAttribute(i).getOffset() != offset) {
+					throw new IOException("Mesh cache attribute layout does not match: " + file);
+				}
+			}
+
+			if (format.getStride() != stride) {
+				throw new IOException("Mesh cache stride does not match: " + file);
+			}
+
+			int vertexCount = buffer.getInt();
+			IndexType indexType = IndexType.values()[buffer.getInt()];
+			int indexCount = buffer.getInt(), vertexOffset = buffer.getInt(), indexOffset = buffer.getInt();
+			Bounds bounds = readBounds(buffer);
+
+			ByteBuffer vertices = slice(buffer, vertexOffset, (long) vertexCount * stride, file);
+			ByteBuffer indices = slice(buffer, indexOffset, (long) indexCount * indexType.getBytes(), file);
+
+			return new CachedMesh(format, vertices, indices, indexType, bounds);
+		} catch (IndexOutOfBoundsException | IllegalArgumentException | BufferUnderflowException e) {
+			throw new IOException("Corrupt mesh cache file: " + file, e);
+		}
+	}
+
+	/**
+	 * Returns whether a cache file needs to be written again: if it does not
+	 * exist, or if the source file has been changed since it was written.
+	 * 
+	 * @param source
+	 *            the file the cache was converted from
+	 * @param cache
+	 *            the cache file
+	 * @return true if the cache file is missing or older than the source
+	 * @throws IOException
+	 *             if the source file cannot be read
+	 */
+	public static boolean isStale(Path source, Path cache) throws IOException {
+		return !Files.exists(cache)
+				|| Files.getLastModifiedTime(cache).compareTo(Files.getLastModifiedTime(source)) < 0;
+	}
+
+	/* Unbounded boxes are written as infinities, and read back as the shared instance */
+	private static Bounds readBounds(ByteBuffer buffer) {
+		float minX = buffer.getFloat(), minY = buffer.getFloat(), minZ = buffer.getFloat();
+		float maxX = buffer.getFloat(), maxY = buffer.getFloat(), maxZ = buffer.getFloat();
+		if (minX == Float.NEGATIVE_INFINITY && maxX == Float.POSITIVE_INFINITY) {
+			return Bounds.INFINITE;
+		}
+		return new Bounds(minX, minY, minZ, maxX, maxY, maxZ);
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int offset, long length, Path file) throws IOException {
+		if (offset < 0 || length < 0 || offset + length > buffer.capacity()) {
+			throw new IOException("Mesh cache data runs past the end of the file: " + file);
+		}
+
+		buffer.limit(offset + (int) length).position(offset);
+		ByteBuffer slice = buffer.slice().order(ByteOrder.nativeOrder());
+		buffer.clear();
+		return slice;
+	}
+
+	private static void zero(ByteBuffer buffer, int from, int to) {
+		for (int i = from; i < to; i++) {
+			buffer.put(i, (byte) 0);
+		}
+	}
+
+	private static int align(int offset) {
+		return (offset + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+	}
+}
@@ -0,0 +1,90 @@
+package renderEngine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The offline step that converts OBJ files into binary
+ * {@link renderEngine.MeshCache} files, to be run as part of building the
+ * game's assets rather than while the game is running:
+ * 
+ * <pre>
+ * java renderEngine.MeshConverter model.obj [more.obj ...]
+ * java renderEngine.MeshConverter -o out.amesh model.obj
+ * </pre>
+ * 
+ * Each input is written next to itself with the extension replaced by
+ * {@link renderEngine.MeshCache#EXTENSION}, unless an output is named with
+ * "-o" before a single input. Inputs whose cache is already newer are skipped.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class MeshConverter {
+
+	/**
+	 * Converts every OBJ file named on the command line.
+	 * 
+	 * @param args
+	 *            the OBJ files, optionally preceded by "-o" and an output file
+	 */
+	public static void main(String[] args) {
+		Path output = null;
+		int first = 0;
+
+		if (args.length >= 2 && args[0].equals("-o")) {
+			output = Paths.get(args[1]);
+			first = 2;
+		}
+
+		if (args.length == first || (output != null && args.length != 3)) {
+			System.err.println("Usage: MeshConverter [-o output" + MeshCache.EXTENSION + "] input.obj [input.obj ...]");
+			System.exit(2);
+		}
+
+		int failures = 0;
+		for (int i = first; i < args.length; i++) {
+			Path input = Paths.get(args[i]);
+			Path cache = output != null ? output : cachePathFor(input);
+
+			try {
+				if (!MeshCache.isStale(input, cache)) {
+					System.out.println("Up to date: " + cache);
+					continue;
+				}
+
+				long start = System.nanoTime();
+				Mesh mesh = ObjImporter.read(input);
+				MeshCache.write(mesh, cache);
+
+				CachedMesh written = MeshCache.read(cache);
+				System.out.printf("Wrote %s: %d vertices, %d indices as %s, %.1f ms%n", cache,
+						written.getVertexCount(), written.getIndexCount(), written.getIndexType(),
+						(System.nanoTime() - start) / 1e6);
+			} catch (IOException e) {
+				System.err.println("Failed to convert " + input + ": " + e.getMessage());
+				failures++;
+			}
+		}
+
+		if (failures > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Returns the cache file that an input is converted to by default: the same
+	 * path with its extension replaced by {@link renderEngine.MeshCache#EXTENSION}.
+	 * 
+	 * @param input
+	 *            the source mesh file
+	 * @return the path of its cache file
+	 */
+	public static Path cachePathFor(Path input) {
+		String name = input.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		String base = dot > 0 ? name.substring(0, dot) : name;
+		return input.resolveSibling(base + MeshCache.EXTENSION);
+	}
+}
@@ -0,0 +1,346 @@
+package renderEngine;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Prepares meshes on the CPU so that the GPU does less work drawing them. The
+ * full pass, {@link #optimize(Mesh)}, runs these steps in order:
+ *
+ * <ol>
+ * <li>Merge vertices whose attributes are all identical</li>
+ * <li>Reorder triangles so recently transformed vertices are reused while
+ * still in the post-transform vertex cache (the "Tipsify" algorithm)</li>
+ * <li>Reorder vertices into the order the triangles first use them, so vertex
+ * fetches walk through memory in order</li>
+ * </ol>
+ *
+ * After optimizing, {@link IndexType#forVertexCount(int)} and
+ * {@link #packIndices(int[], IndexType, ByteBuffer)} shrink the indices to the
+ * smallest type that fits. This class behaves in a "static" fashion in the
+ * sense that it is constant and cannot be constructed publicly.
+ *
+ * @author Matthew L. Roy
+ *
+ */
+public final class MeshOptimizer {
+
+	/**
+	 * A conservative size for the post-transform vertex cache of most GPUs
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 16;
+
+	/* Private so that this class does not accidently get instantiated */
+	private MeshOptimizer() {
+	}
+
+	/**
+	 * Runs the full optimization pass on a mesh, using the
+	 * {@link #DEFAULT_CACHE_SIZE}.
+	 *
+	 * @param mesh
+	 *            the mesh to be optimized, which is not changed
+	 * @return a new, optimized mesh that draws the same triangles
+	 */
+	public static Mesh optimize(Mesh mesh) {
+		Mesh welded = weldVertices(mesh);
+		int[] indices = optimizeVertexCache(welded.getIndices(), welded.getVertexCount(), DEFAULT_CACHE_SIZE);
+		return optimizeVertexFetch(new Mesh(welded.getFormat(), welded.getAttributeData(), indices));
+	}
+
+	/**
+	 * Merges vertices that have exactly the same value for every attribute, and
+	 * points the indices at the merged vertices.
+	 *
+	 * @param mesh
+	 *            the mesh to be welded, which is not changed
+	 * @return a new mesh with no duplicate vertices
+	 */
+	public static Mesh weldVertices(Mesh mesh) {
+		float[][] data = mesh.getAttributeData();
+		int[] components = componentsOf(mesh.getFormat());
+		int vertexCount = mesh.getVertexCount();
+
+		/* Open addressing table of (vertex + 1), with zero meaning empty */
+		int tableSize = Integer.highestOneBit(Math.max(vertexCount, 1) * 2 - 1) << 1;
+		int[] table = new int[tableSize];
+		int[] remap = new int[vertexCount];
+		int uniqueCount = 0;
+
+		for (int v = 0; v < vertexCount; v++) {
+			int slot = hashVertex(data, components, v) & (tableSize - 1);
+
+			while (table[slot] != 0 && !verticesEqual(data, components, table[slot] - 1, v)) {
+				slot = (slot + 1) & (tableSize - 1);
+			}
+
+			if (table[slot] == 0) {
+				table[slot] = v + 1;
+				remap[v] = uniqueCount++;
+			} else {
+				remap[v] = remap[table[slot] - 1];
+			}
+		}
+
+		return remapMesh(mesh, remap, uniqueCount);
+	}
+
+	/**
+	 * Reorders triangles for the post-transform vertex cache, using the linear
+	 * time "Tipsify" algorithm from Sander, Nehab and Barczak. Triangles are
+	 * emitted as fans around one vertex at a time, and the next fan is chosen
+	 * among vertices that are likely to still be in the cache.
+	 *
+	 * @param indices
+	 *            the triangle indices, which are not changed
+	 * @param vertexCount
+	 *            the number of vertices the indices refer to
+	 * @param cacheSize
+	 *            the number of vertices the cache is assumed to hold
+	 * @return a new index array with the triangles reordered
+	 */
+	public static int[] optimizeVertexCache(int[] indices, int vertexCount, int cacheSize) {
+		int triangleCount = indices.length / 3;
+
+		/* Build the vertex to triangle adjacency, as offsets into one flat array */
+		int[] live = new int[vertexCount];
+		for (int index : indices) {
+			live[index]++;
+		}
+
+		int[] offsets = new int[vertexCount + 1];
+		int maxValence = 0;
+		for (int v = 0; v < vertexCount; v++) {
+			offsets[v + 1] = offsets[v] + live[v];
+			maxValence = Math.max(maxValence, live[v]);
+		}
+
+		int[] adjacency = new int[indices.length];
+		int[] fill = Arrays.copyOf(offsets, vertexCount);
+		for (int i = 0; i < indices.length; i++) {
+			adjacency[fill[indices[i]]++] = i / 3;
+		}
+
+		int[] cacheTime = new int[vertexCount];
+		boolean[] emitted = new boolean[triangleCount];
+		int[] deadEnds = new int[indices.length];
+		int[] candidates = new int[maxValence * 3];
+		int[] output = new int[triangleCount * 3];
+
+		int timestamp = cacheSize + 1, deadEndCount = 0, cursor = 0, outputCount = 0;
+		int fanning = vertexCount > 0 ? 0 : -1;
+
+		while (fanning >= 0) {
+			int candidateCount = 0;
+
+			for (int a = offsets[fanning]; a < offsets[fanning + 1]; a++) {
+				int triangle = adjacency[a];
+				if (emitted[triangle]) {
+					continue;
+				}
+
+				for (int c = 0; c < 3; c++) {
+					int v = indices[triangle * 3 + c];
+					output[outputCount++] = v;
+					deadEnds[deadEndCount++] = v;
+					candidates[candidateCount++] = v;
+					live[v]--;
+
+					/* Only a vertex that has fallen out of the cache is transformed again */
+					if (timestamp - cacheTime[v] > cacheSize) {
+						cacheTime[v] = timestamp++;
+					}
+				}
+
+				emitted[triangle] = true;
+			}
+
+			/* Prefer the candidate that has been in the cache longest, but will stay */
+			int best = -1, bestPriority = -1;
+			for (int i = 0; i < candidateCount; i++) {
+				int v = candidates[i];
+				if (live[v] > 0) {
+					int priority = 0;
+					if (timestamp - cacheTime[v] + 2 * live[v] <= cacheSize) {
+						priority = timestamp - cacheTime[v];
+					}
+
+					if (priority > bestPriority) {
+						best = v;
+						bestPriority = priority;
+					}
+				}
+			}
+
+			/* A dead end, so fall back on a recently used vertex, then any vertex */
+			while (best == -1 && deadEndCount > 0) {
+				int v = deadEnds[--deadEndCount];
+				if (live[v] > 0) {
+					best = v;
+				}
+			}
+
+			while (best == -1 && cursor < vertexCount) {
+				if (live[cursor] > 0) {
+					best = cursor;
+				}
+				cursor++;
+			}
+
+			fanning = best;
+		}
+
+		return output;
+	}
+
+	/**
+	 * Reorders vertices into the order in which the triangles first use them, so
+	 * that fetching vertices walks forward through memory. Vertices that no
+	 * triangle uses are dropped.
+	 *
+	 * @param mesh
+	 *            the mesh to be reordered, which is not changed
+	 * @return a new mesh with the vertices reordered
+	 */
+	public static Mesh optimizeVertexFetch(Mesh mesh) {
+		int[] remap = new int[mesh.getVertexCount()];
+		Arrays.fill(remap, -1);
+
+		int next = 0;
+		for (int index : mesh.getIndices()) {
+			if (remap[index] == -1) {
+				remap[index] = next++;
+			}
+		}
+
+		return remapMesh(mesh, remap, next);
+	}
+
+	/**
+	 * Returns the average cache miss ratio (ACMR) of the indices: how many
+	 * vertices have to be transformed per triangle, given a first-in, first-out
+	 * vertex cache of the specified size. The best possible is about 0.5 for a
+	 * large, regular mesh, and the worst is 3.
+	 *
+	 * @param indices
+	 *            the triangle indices
+	 * @param vertexCount
+	 *            the number of vertices the indices refer to
+	 * @param cacheSize
+	 *            the number of vertices the cache holds
+	 * @return the average cache misses per triangle
+	 */
+	public static float computeACMR(int[] indices, int vertexCount, int cacheSize) {
+		if (indices.length < 3) {
+			return 0f;
+		}
+
+		/* A vertex is in the cache if it was added within the last cacheSize misses */
+		int[] addedAt = new int[vertexCount];
+		Arrays.fill(addedAt, Integer.MIN_VALUE / 2);
+
+		int misses = 0;
+		for (int index : indices) {
+			if (misses - addedAt[index] > cacheSize) {
+				addedAt[index] = misses++;
+			}
+		}
+
+		return (float) misses / (indices.length / 3);
+	}
+
+	/**
+	 * Writes the indices into the buffer as the specified type, starting at the
+	 * buffer's position, and then flips the buffer so it is in a read-from state.
+	 * The buffer must be in native byte order, as OpenGL expects.
+	 *
+	 * @param indices
+	 *            the indices to be written
+	 * @param type
+	 *            the size to store each index as, which must fit every index
+	 * @param buffer
+	 *            the buffer to be written to, with room for every index
+	 * @return the same buffer that was passed in
+	 */
+	public static ByteBuffer packIndices(int[] indices, IndexType type, ByteBuffer buffer) {
+		switch (type) {
+		case UNSIGNED_BYTE:
+			for (int index : indices) {
+				buffer.put((byte) index);
+			}
+			break;
+		case UNSIGNED_SHORT:
+			for (int index : indices) {
+				buffer.putShort((short) index);
+			}
+			break;
+		case UNSIGNED_INT:
+			for (int index : indices) {
+				buffer.putInt(index);
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown index type: " + type);
+		}
+
+		buffer.flip();
+		return buffer;
+	}
+
+	private static Mesh remapMesh(Mesh mesh, int[] remap, int newVertexCount) {
+		float[][] data = mesh.getAttributeData();
+		int[] components = componentsOf(mesh.getFormat());
+
+		float[][] newData = new float[data.length][];
+		for (int a = 0; a < data.length; a++) {
+			int size = components[a];
+			newData[a] = new float[newVertexCount * size];
+
+			for (int v = 0; v < remap.length; v++) {
+				if (remap[v] != -1) {
+					System.arraycopy(data[a], v * size, newData[a], remap[v] * size, size);
+				}
+			}
+		}
+
+		int[] indices = mesh.getIndices();
+		int[] newIndices = new int[indices.length];
+		for (int i = 0; i < indices.length; i++) {
+			newIndices[i] = remap[indices[i]];
+		}
+
+		return new Mesh(mesh.getFormat(), newData, newIndices);
+	}
+
+	private static int[] componentsOf(VertexFormat format) {
+		int[] components = new int[format.getAttributeCount()];
+		for (int a = 0; a < components.length; a++) {
+			components[a] = format.getAttribute(a).getComponents();
+		}
+		return components;
+	}
+
+	private static int hashVertex(float[][] data, int[] components, int v) {
+		int hash = 0;
+		for (int a = 0; a < data.length; a++) {
+			for (int c = 0, i = v * components[a]; c < components[a]; c++, i++) {
+				hash = hash * 31 + Float.floatToIntBits(data[a][i]);
+			}
+		}
+
+		/* Spread the bits, as the table size is a power of two */
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean verticesEqual(float[][] data, int[] components, int v1, int v2) {
+		for (int a = 0; a < data.length; a++) {
+			int size = components[a];
+			for (int c = 0; c < size; c++) {
+				if (Float.floatToIntBits(data[a][v1 * size + c]) != Float.floatToIntBits(data[a][v2 * size + c])) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+}
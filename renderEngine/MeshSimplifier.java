@@ -0,0 +1,422 @@
+package renderEngine;
+
+import java.util.Arrays;
+
+/**
+ * Reduces the triangle count of a mesh by quadric error edge collapse, after
+ * Garland and Heckbert. Every vertex carries a quadric: the sum of the squared
+ * distances to the planes of the triangles around it, weighted by their area.
+ * The cheapest collapses, moving one vertex onto a neighbor so that the two
+ * triangles between them vanish, are made first, and the quadric of the
+ * removed vertex is added to the one it moved onto, so that later costs
+ * account for everything already removed.
+ * 
+ * <p>
+ * Vertices only ever move onto other vertices, so every level of detail keeps
+ * indexing the mesh's original vertices, and all levels can share one vertex
+ * buffer. A simplifier keeps its state between calls to
+ * {@link #simplify(int)}, so that a chain of levels is made by asking for
+ * fewer and fewer indices, each level continuing from the last. Vertices on
+ * open borders, and vertices that share their position with another vertex,
+ * such as along a texture seam, are never moved, so that the outline of the
+ * mesh and its seams stay closed.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class MeshSimplifier {
+
+	/* Collapses that would turn a triangle further than this (as a cosine) are refused */
+	private static final float MIN_NORMAL_DOT = 0.25f;
+
+	/* Each pass may take collapses up to this much costlier than the last one it expects to need */
+	private static final float PASS_ERROR_SLACK = 1.5f;
+
+	/* Ten quadric terms, then the total triangle area that went into them */
+	private static final int QUADRIC_SIZE = 11;
+
+	private final float[] positions;
+	private final int positionComponents;
+
+	/* Which unique position each vertex has, and that position's quadric */
+	private final int[] positionOf;
+	private final double[] quadrics;
+
+	private final boolean[] locked;
+
+	/* The vertex each vertex has moved onto, or itself if it has not moved */
+	private final int[] collapsedTo;
+
+	private final int[] passOf;
+
+	/* Reused by every orientation check */
+	private final float[] before = new float[3], after = new float[3];
+	private int pass = 0;
+
+	private int[] indices;
+	private int indexCount;
+	private float maxError = 0;
+
+	/**
+	 * Prepares a mesh to be simplified. The mesh's positions must be attribute 0
+	 * of its format, with at least three components.
+	 * 
+	 * @param mesh
+	 *            the mesh to be simplified, which is not changed
+	 */
+	public MeshSimplifier(Mesh mesh) {
+		VertexFormat format = mesh.getFormat();
+		int positionAttribute = -1;
+		for (int a = 0; a < format.getAttributeCount(); a++) {
+			if (format.getAttribute(a).getIndex() == 0) {
+				positionAttribute = a;
+			}
+		}
+
+		if (positionAttribute == -1 || format.getAttribute(positionAttribute).getComponents() < 3) {
+			throw new IllegalArgumentException("Mesh has no positions to simplify: " + format);
+		}
+
+		int vertexCount = mesh.getVertexCount();
+		this.positions = mesh.getAttributeData()[positionAttribute];
+		this.positionComponents = format.getAttribute(positionAttribute).getComponents();
+		this.indices = Arrays.copyOf(mesh.getIndices(), mesh.getIndices().length);
+		this.indexCount = indices.length;
+
+		this.positionOf = new int[vertexCount];
+		this.locked = new boolean[vertexCount];
+		this.collapsedTo = new int[vertexCount];
+		this.passOf = new int[vertexCount];
+
+		for (int v = 0; v < vertexCount; v++) {
+			collapsedTo[v] = v;
+		}
+
+		int uniquePositions = weldPositions(vertexCount);
+		this.quadrics = new double[uniquePositions * QUADRIC_SIZE];
+
+		lockSeams(vertexCount, uniquePositions);
+		lockBorders();
+		computeQuadrics();
+	}
+
+	/**
+	 * Collapses edges until no more than the specified number of indices remain,
+	 * or until no edge can be collapsed without folding the surface over or
+	 * opening a border.
+	 * 
+	 * @param targetIndexCount
+	 *            the number of indices to reduce the mesh to
+	 * @return the indices of the remaining triangles, into the mesh's original
+	 *         vertices
+	 */
+	public int[] simplify(int targetIndexCount) {
+		while (indexCount > targetIndexCount) {
+			if (collapsePass((indexCount - targetIndexCount) / 3) == 0) {
+				break;
+			}
+			compactIndices();
+		}
+
+		return Arrays.copyOf(indices, indexCount);
+	}
+
+	/**
+	 * Returns the number of indices left after the most recent simplification.
+	 * 
+	 * @return the current index count
+	 */
+	public int getIndexCount() {
+		return indexCount;
+	}
+
+	/**
+	 * Returns an estimate of how far the simplified surface is from the original,
+	 * in the same units as the mesh's positions: the square root of the largest
+	 * area-weighted mean squared distance of any collapse so far.
+	 * 
+	 * @return the geometric error, or zero if nothing has been collapsed
+	 */
+	public float getError() {
+		return (float) Math.sqrt(maxError);
+	}
+
+	/* Makes one pass of the cheapest collapses that do not touch each other, returning how many were made */
+	private int collapsePass(int trianglesToRemove) {
+		int triangleCount = indexCount / 3;
+		int vertexCount = collapsedTo.length;
+
+		/* Vertex to triangle adjacency, as offsets into one flat array */
+		int[] offsets = new int[vertexCount + 1];
+		for (int i = 0; i < indexCount; i++) {
+			offsets[indices[i] + 1]++;
+		}
+		for (int v = 0; v < vertexCount; v++) {
+			offsets[v + 1] += offsets[v];
+		}
+
+		int[] adjacency = new int[indexCount];
+		int[] fill = Arrays.copyOf(offsets, vertexCount);
+		for (int i = 0; i < indexCount; i++) {
+			adjacency[fill[indices[i]]++] = i / 3;
+		}
+
+		/* Every edge, in each direction whose first vertex is free to move */
+		int[] from = new int[indexCount * 2], to = new int[indexCount * 2];
+		int edgeCount = 0;
+		for (int t = 0; t < triangleCount; t++) {
+			for (int c = 0; c < 3; c++) {
+				int a = indices[t * 3 + c], b = indices[t * 3 + (c + 1) % 3];
+				if (!locked[a]) {
+					from[edgeCount] = a;
+					to[edgeCount++] = b;
+				}
+				if (!locked[b]) {
+					from[edgeCount] = b;
+					to[edgeCount++] = a;
+				}
+			}
+		}
+
+		/* Costs are never negative, so their bits sort in the same order as they do */
+		float[] costs = new float[edgeCount];
+		long[] order = new long[edgeCount];
+		for (int e = 0; e < edgeCount; e++) {
+			costs[e] = collapseCost(from[e], to[e]);
+			order[e] = ((long) Float.floatToIntBits(costs[e]) << 32) | e;
+		}
+		Arrays.sort(order);
+
+		if (edgeCount == 0) {
+			return 0;
+		}
+
+		/* Most collapses remove two triangles */
+		int expected = Math.min(edgeCount - 1, Math.max(0, trianglesToRemove / 2 - 1));
+		float errorLimit = costs[(int) order[expected]] * PASS_ERROR_SLACK;
+
+		pass++;
+		int collapses = 0, removed = 0;
+
+		for (int i = 0; i < edgeCount && removed < trianglesToRemove; i++) {
+			int e = (int) order[i];
+			int u = from[e], v = to[e];
+
+			if (costs[e] > errorLimit && collapses > 0) {
+				break;
+			}
+			if (passOf[u] == pass || passOf[v] == pass || !keepsOrientation(u, v, offsets, adjacency)) {
+				continue;
+			}
+
+			/* Triangles holding both ends of the edge are the ones that vanish */
+			for (int a = offsets[u]; a < offsets[u + 1]; a++) {
+				if (hasVertex(adjacency[a], v)) {
+					removed++;
+				}
+			}
+
+			collapsedTo[u] = v;
+			addQuadric(positionOf[v], positionOf[u]);
+			passOf[u] = pass;
+			passOf[v] = pass;
+			maxError = Math.max(maxError, costs[e]);
+			collapses++;
+		}
+
+		return collapses;
+	}
+
+	/* Returns whether moving u onto v leaves every other triangle around u facing the same way */
+	private boolean keepsOrientation(int u, int v, int[] offsets, int[] adjacency) {
+		for (int a = offsets[u]; a < offsets[u + 1]; a++) {
+			int t = adjacency[a];
+			if (hasVertex(t, v)) {
+				continue;
+			}
+
+			int i0 = resolve(indices[t * 3]), i1 = resolve(indices[t * 3 + 1]), i2 = resolve(indices[t * 3 + 2]);
+			normal(i0, i1, i2, before);
+			normal(i0 == u ? v : i0, i1 == u ? v : i1, i2 == u ? v : i2, after);
+
+			float dot = before[0] * after[0] + before[1] * after[1] + before[2] * after[2];
+			float lengths = (float) Math.sqrt((before[0] * before[0] + before[1] * before[1] + before[2] * before[2])
+					* (after[0] * after[0] + after[1] * after[1] + after[2] * after[2]));
+
+			if (dot <= MIN_NORMAL_DOT * lengths) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* Writes the unnormalized normal of a triangle */
+	private void normal(int i0, int i1, int i2, float[] normal) {
+		int p0 = i0 * positionComponents, p1 = i1 * positionComponents, p2 = i2 * positionComponents;
+
+		float ax = positions[p1] - positions[p0], ay = positions[p1 + 1] - positions[p0 + 1],
+				az = positions[p1 + 2] - positions[p0 + 2];
+		float bx = positions[p2] - positions[p0], by = positions[p2 + 1] - positions[p0 + 1],
+				bz = positions[p2 + 2] - positions[p0 + 2];
+
+		normal[0] = ay * bz - az * by;
+		normal[1] = az * bx - ax * bz;
+		normal[2] = ax * by - ay * bx;
+	}
+
+	private boolean hasVertex(int triangle, int v) {
+		return resolve(indices[triangle * 3]) == v || resolve(indices[triangle * 3 + 1]) == v
+				|| resolve(indices[triangle * 3 + 2]) == v;
+	}
+
+	private int resolve(int v) {
+		while (collapsedTo[v] != v) {
+			v = collapsedTo[v];
+		}
+		return v;
+	}
+
+	/* Points every index at where its vertex ended up, and drops triangles that have collapsed */
+	private void compactIndices() {
+		int count = 0;
+		for (int i = 0; i < indexCount; i += 3) {
+			int a = resolve(indices[i]), b = resolve(indices[i + 1]), c = resolve(indices[i + 2]);
+			if (a != b && b != c && c != a) {
+				indices[count++] = a;
+				indices[count++] = b;
+				indices[count++] = c;
+			}
+		}
+		indexCount = count;
+	}
+
+	/* The area-weighted mean squared distance from v's position to the planes of both quadrics */
+	private float collapseCost(int u, int v) {
+		int q = positionOf[u] * QUADRIC_SIZE, r = positionOf[v] * QUADRIC_SIZE;
+		int p = v * positionComponents;
+		double x = positions[p], y = positions[p + 1], z = positions[p + 2];
+
+		double error = evaluateQuadric(q, x, y, z) + evaluateQuadric(r, x, y, z);
+		double weight = quadrics[q + 10] + quadrics[r + 10];
+		return weight > 0 ? (float) Math.max(0, error / weight) : 0f;
+	}
+
+	private double evaluateQuadric(int q, double x, double y, double z) {
+		double[] m = quadrics;
+		return m[q] * x * x + 2 * m[q + 1] * x * y + 2 * m[q + 2] * x * z + m[q + 3] * y * y + 2 * m[q + 4] * y * z
+				+ m[q + 5] * z * z + 2 * m[q + 6] * x + 2 * m[q + 7] * y + 2 * m[q + 8] * z + m[q + 9];
+	}
+
+	private void addQuadric(int target, int source) {
+		int t = target * QUADRIC_SIZE, s = source * QUADRIC_SIZE;
+		for (int i = 0; i < QUADRIC_SIZE; i++) {
+			quadrics[t + i] += quadrics[s + i];
+		}
+	}
+
+	private void computeQuadrics() {
+		for (int i = 0; i + 2 < indexCount; i += 3) {
+			int p0 = indices[i] * positionComponents, p1 = indices[i + 1] * positionComponents,
+					p2 = indices[i + 2] * positionComponents;
+
+			double ax = positions[p1] - positions[p0], ay = positions[p1 + 1] - positions[p0 + 1],
+					az = positions[p1 + 2] - positions[p0 + 2];
+			double bx = positions[p2] - positions[p0], by = positions[p2 + 1] - positions[p0 + 1],
+					bz = positions[p2 + 2] - positions[p0 + 2];
+
+			double nx = ay * bz - az * by, ny = az * bx - ax * bz, nz = ax * by - ay * bx;
+			double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+			if (length == 0) {
+				continue;
+			}
+
+			/* The plane a*x + b*y + c*z + d = 0, weighted by the triangle's area */
+			double a = nx / length, b = ny / length, c = nz / length;
+			double d = -(a * positions[p0] + b * positions[p0 + 1] + c * positions[p0 + 2]);
+			double area = length * 0.5;
+
+			for (int k = 0; k < 3; k++) {
+				int q = positionOf[indices[i + k]] * QUADRIC_SIZE;
+				quadrics[q] += area * a * a;
+				quadrics[q + 1] += area * a * b;
+				quadrics[q + 2] += area * a * c;
+				quadrics[q + 3] += area * b * b;
+				quadrics[q + 4] += area * b * c;
+				quadrics[q + 5] += area * c * c;
+				quadrics[q + 6] += area * a * d;
+				quadrics[q + 7] += area * b * d;
+				quadrics[q + 8] += area * c * d;
+				quadrics[q + 9] += area * d * d;
+				quadrics[q + 10] += area;
+			}
+		}
+	}
+
+	/* Numbers each distinct position, returning how many there are */
+	private int weldPositions(int vertexCount) {
+		/* Open addressing table of (vertex + 1), with zero meaning empty */
+		int tableSize = Integer.highestOneBit(Math.max(vertexCount, 1) * 2 - 1) << 1;
+		int[] table = new int[tableSize];
+		int uniqueCount = 0;
+
+		for (int v = 0; v < vertexCount; v++) {
+			int p = v * positionComponents;
+			int hash = Float.floatToIntBits(positions[p]) * 73856093 ^ Float.floatToIntBits(positions[p + 1]) * 19349663
+					^ Float.floatToIntBits(positions[p + 2]) * 83492791;
+			int slot = (hash ^ (hash >>> 16)) & (tableSize - 1);
+
+			while (table[slot] != 0 && !samePosition(table[slot] - 1, v)) {
+				slot = (slot + 1) & (tableSize - 1);
+			}
+
+			if (table[slot] == 0) {
+				table[slot] = v + 1;
+				positionOf[v] = uniqueCount++;
+			} else {
+				positionOf[v] = positionOf[table[slot] - 1];
+			}
+		}
+
+		return uniqueCount;
+	}
+
+	private boolean samePosition(int v1, int v2) {
+		int p1 = v1 * positionComponents, p2 = v2 * positionComponents;
+		return positions[p1] == positions[p2] && positions[p1 + 1] == positions[p2 + 1]
+				&& positions[p1 + 2] == positions[p2 + 2];
+	}
+
+	/* Locks every vertex whose position is shared with another vertex */
+	private void lockSeams(int vertexCount, int uniquePositions) {
+		int[] vertices = new int[uniquePositions];
+		for (int v = 0; v < vertexCount; v++) {
+			vertices[positionOf[v]]++;
+		}
+		for (int v = 0; v < vertexCount; v++) {
+			if (vertices[positionOf[v]] > 1) {
+				locked[v] = true;
+			}
+		}
+	}
+
+	/* Locks both ends of every edge that only one triangle uses, by position */
+	private void lockBorders() {
+		long[] edges = new long[indexCount];
+		for (int i = 0; i < indexCount; i++) {
+			int a = positionOf[indices[i]], b = positionOf[indices[i - i % 3 + (i % 3 + 1) % 3]];
+			edges[i] = ((long) a << 32) | b;
+		}
+
+		long[] sorted = Arrays.copyOf(edges, edges.length);
+		Arrays.sort(sorted);
+
+		for (int i = 0; i < indexCount; i++) {
+			long reverse = (edges[i] << 32) | (edges[i] >>> 32);
+			if (Arrays.binarySearch(sorted, reverse) < 0) {
+				locked[indices[i]] = true;
+				locked[indices[i - i % 3 + (i % 3 + 1) % 3]] = true;
+			}
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package renderEngine;
+
+/**
+ * Builds the chain of mipmap levels of an image on the CPU, so it can be done
+ * on a worker thread instead of with glGenerateMipmap on the render thread.
+ * Each level halves the size of the one before it with a 2x2 box filter. Image
+ * colors are sRGB, so they are converted to linear light before being
+ * averaged, and back afterwards; averaging the stored values directly would
+ * darken every level. Colors are also weighted by their alpha, so that the
+ * color of fully transparent pixels, which is usually black, does not bleed
+ * into the edges of what is drawn. This class behaves in a "static" fashion in
+ * the sense that it is constant and cannot be constructed.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public final class MipmapGenerator {
+
+	/* Converts a stored sRGB byte to linear light, from 0 to 1 */
+	private static final float[] SRGB_TO_LINEAR = new float[256];
+
+	/* Converts linear light, in steps of 1/LINEAR_STEPS, back to an sRGB byte */
+	private static final int LINEAR_STEPS = 4096;
+	private static final byte[] LINEAR_TO_SRGB = new byte[LINEAR_STEPS + 1];
+
+	static {
+		for (int i = 0; i < SRGB_TO_LINEAR.length; i++) {
+			double srgb = i / 255D;
+			SRGB_TO_LINEAR[i] = (float) (srgb <= 0.04045 ? srgb / 12.92 : Math.pow((srgb + 0.055) / 1.055, 2.4));
+		}
+		for (int i = 0; i < LINEAR_TO_SRGB.length; i++) {
+			double linear = (double) i / LINEAR_STEPS;
+			double srgb = linear <= 0.0031308 ? linear * 12.92 : 1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
+			LINEAR_TO_SRGB[i] = (byte) Math.round(srgb * 255);
+		}
+	}
+
+	/* Private so that this class does not accidently get instantiated */
+	private MipmapGenerator() {
+	}
+
+	/**
+	 * Returns how many levels a full mipmap chain of an image has, from the full
+	 * size down to 1x1.
+	 * 
+	 * @param width
+	 *            the width of the full size image
+	 * @param height
+	 *            the height of the full size image
+	 * @return the level count, including the full size image
+	 */
+	public static int levelCount(int width, int height) {
+		return 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+	}
+
+	/**
+	 * Builds the mipmap chain of an image.
+	 * 
+	 * @param image
+	 *            the full size image, which is not changed
+	 * @param maxLevels
+	 *            the most levels to build, including the full size image
+	 * @return the levels, starting with the image itself
+	 */
+	public static Image[] generate(Image image, int maxLevels) {
+		int count = Math.max(1, Math.min(maxLevels, levelCount(image.getWidth(), image.getHeight())));
+
+		Image[] levels = new Image[count];
+		levels[0] = image;
+		for (int i = 1; i < count; i++) {
+			levels[i] = downsample(levels[i - 1]);
+		}
+		return levels;
+	}
+
+	/**
+	 * Halves the size of an image, rounding down but to no less than one pixel.
+	 * The last row or column of an odd-sized image is dropped.
+	 * 
+	 * @param image
+	 *            the image to be halved, which is not changed
+	 * @return the next mipmap level of the image
+	 */
+	public static Image downsample(Image image) {
+		int width = image.getWidth(), height = image.getHeight();
+		int targetWidth = Math.max(1, width / 2), targetHeight = Math.max(1, height / 2);
+
+		byte[] source = image.getPixels(), target = new byte[targetWidth * targetHeight * 4];
+		float[] toLinear = SRGB_TO_LINEAR;
+		byte[] toSrgb = LINEAR_TO_SRGB;
+
+		int rowBytes = width * 4;
+		for (int y = 0; y < targetHeight; y++) {
+			/* A 1-pixel tall or wide image is averaged with itself */
+			int row0 = Math.min(y * 2, height - 1) * rowBytes, row1 = Math.min(y * 2 + 1, height - 1) * rowBytes;
+			int out = y * targetWidth * 4;
+
+			for (int x = 0; x < targetWidth; x++, out += 4) {
+				int column0 = Math.min(x * 2, width - 1) * 4, column1 = Math.min(x * 2 + 1, width - 1) * 4;
+				int p0 = row0 + column0, p1 = row0 + column1, p2 = row1 + column0, p3 = row1 + column1;
+
+				int a0 = source[p0 + 3] & 0xFF, a1 = source[p1 + 3] & 0xFF, a2 = source[p2 + 3] & 0xFF,
+						a3 = source[p3 + 3] & 0xFF;
+				int alphaSum = a0 + a1 + a2 + a3;
+
+				/* With no alpha to weight by, every pixel counts the same */
+				float w0 = a0, w1 = a1, w2 = a2, w3 = a3;
+				if (alphaSum == 0) {
+					w0 = w1 = w2 = w3 = 1;
+				}
+				float scale = LINEAR_STEPS / (w0 + w1 + w2 + w3);
+
+				for (int c = 0; c < 3; c++) {
+					float linear = toLinear[source[p0 + c] & 0xFF] * w0 + toLinear[source[p1 + c] & 0xFF] * w1
+							+ toLinear[source[p2 + c] & 0xFF] * w2 + toLinear[source[p3 + c] & 0xFF] * w3;
+					target[out + c] = toSrgb[(int) (linear * scale + 0.5f)];
+				}
+				target[out + 3] = (byte) ((alphaSum + 2) >> 2);
+			}
+		}
+
+		return new Image(targetWidth, targetHeight, target);
+	}
+}
@@ -0,0 +1,63 @@
+package renderEngine;
+
+/**
+ * One reference to a model held by an {@link renderEngine.AssetManager}. Every
+ * call to acquire an asset returns a new handle, while the model behind it is
+ * shared by every handle to the same asset. The model stays loaded at least
+ * until each of its handles has been released.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class ModelHandle {
+
+	private final AssetManager manager;
+	private final AssetManager.Entry entry;
+	private boolean released = false;
+
+	ModelHandle(AssetManager manager, AssetManager.Entry entry) {
+		this.manager = manager;
+		this.entry = entry;
+	}
+
+	/**
+	 * Returns the shared model this handle refers to.
+	 * 
+	 * @return the model, ready to be drawn
+	 * @throws IllegalStateException
+	 *             if this handle has been released
+	 */
+	public RawModel getModel() {
+		checkNotReleased();
+		return entry.model;
+	}
+
+	/**
+	 * Returns the key of the asset this handle refers to.
+	 * 
+	 * @return the asset key
+	 */
+	public String getKey() {
+		return entry.key;
+	}
+
+	/**
+	 * Gives up this reference to the model. Once no handles to it remain, the
+	 * model may be unloaded to make room for others. A handle can only be released
+	 * once.
+	 * 
+	 * @throws IllegalStateException
+	 *             if this handle has already been released
+	 */
+	public void release() {
+		checkNotReleased();
+		released = true;
+		manager.release(entry);
+	}
+
+	private void checkNotReleased() {
+		if (released) {
+			throw new IllegalStateException("Model handle used after release: " + entry.key);
+		}
+	}
+}
@@ -1,32 +1,71 @@
 package renderEngine;
 
-import static main.Arsia.ARSIA_DEBUG;
-
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL15;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
 
+import utility.BufferPool;
+import utility.Log;
+import utility.PooledBuffer;
 import utility.TypeConversions;
 
 /**
  * This class deals with loading 3D models into memory. This class uses native
  * calls to OpenGL to create a VAO, initialize it with an Id to be referenced,
- * and then add different types of VBOs and attributes.
+ * and then add different types of VBOs and attributes. Models must be loaded on
+ * the thread that owns the OpenGL context created by
+ * {@link renderEngine.RenderInputWindow#init()}. Every OpenGL call goes through
+ * a {@link renderEngine.RenderDevice}, so models can also be loaded into a
+ * {@link renderEngine.RecordingRenderDevice} with no display at all.
  * 
  * @author Matthew L. Roy
- * @see {@link renderEngine.RawModel}
+ * @see renderEngine.RawModel
  *
  */
 public class ModelLoader {
 
-	/* Setting up lists for memory management, to be properly disposed */
-	private List<Integer> vaoList = new ArrayList<Integer>(), vboList = new ArrayList<Integer>();
+	/* A level of detail must have at most this fraction of the indices of the level before */
+	private static final float LOD_MIN_REDUCTION = 0.8f;
+
+	/* Setting up the VBO list of each VAO for memory management, to be properly disposed */
+	private Map<Integer, List<Integer>> vboLists = new LinkedHashMap<Integer, List<Integer>>();
+
+	/* The bytes stored in the VBOs of each VAO */
+	private Map<Integer, Long> bufferBytes = new HashMap<Integer, Long>();
+
+	private long totalBufferBytes = 0;
+
+	/* The VAO currently being loaded, which new VBOs belong to */
+	private int loadingVaoId = 0;
+
+	private final RenderDevice device;
+
+	/**
+	 * Constructs a model loader that makes its OpenGL calls directly, on the
+	 * current thread's context.
+	 */
+	public ModelLoader() {
+		this(new LwjglRenderDevice());
+	}
+
+	/**
+	 * Constructs a model loader that makes its OpenGL calls through the specified
+	 * device.
+	 * 
+	 * @param device
+	 *            the device to load models into
+	 */
+	public ModelLoader(RenderDevice device) {
+		this.device = device;
+	}
 
 	/**
 	 * Uses native calls to OpenGL to create a VAO, initialize it with an Id to be
@@ -38,24 +77,42 @@ public class ModelLoader {
 	 *            the vertices, (X, Y, Z) coordinates, that this model will be
 	 *            rendered at on the display
 	 * @return the model object containing the Vao Id and vertex count
-	 * @see {@link renderEngine.RawModel#RawModel(int, int)}
+	 * @see renderEngine.RawModel#RawModel(int, int)
 	 */
 	public RawModel loadToVAO(float[] positions, int[] indices) {
-		RenderInputWindow.linkOpenGLContext(); // CRITICAL
+		/* Staging memory is only needed until OpenGL has copied it */
+		PooledBuffer positionsBuffer = TypeConversions.floatArrayToPooledBuffer(positions);
+		PooledBuffer indicesBuffer = TypeConversions.intArrayToPooledBuffer(indices);
 
-		int vertexCount = indices.length;
-		RawModel model = null;
-
-		if (ARSIA_DEBUG) {
-			System.out.println("Creating VAO...");
+		try {
+			return loadToVAO(positionsBuffer.getFloatBuffer(), indicesBuffer.getIntBuffer());
+		} finally {
+			positionsBuffer.release();
+			indicesBuffer.release();
 		}
+	}
+
+	/**
+	 * Same as {@link #loadToVAO(float[], int[])}, but takes data that has already
+	 * been packed into buffers, ready to be handed straight to OpenGL. This is the
+	 * only step of loading a model that must run on the thread that owns the
+	 * OpenGL context; see {@link renderEngine.AsyncModelLoader} for doing the
+	 * rest of the work elsewhere.
+	 * 
+	 * @param positions
+	 *            the vertices, (X, Y, Z) coordinates, in a read-from state
+	 * @param indices
+	 *            the indices of the triangles, in a read-from state
+	 * @return the model object containing the Vao Id and vertex count
+	 */
+	public RawModel loadToVAO(FloatBuffer positions, IntBuffer indices) {
+		int vertexCount = indices.remaining();
+		RawModel model = null;
 
 		int vaoId = createVAO();
 		bindIndicesBuffer(indices);
 
-		if (ARSIA_DEBUG) {
-			System.out.println("Created VAO with Id: " + vaoId);
-		}
+		Log.debug("Created VAO with Id", vaoId);
 
 		/* First list will start at VAO attribute list 0 */
 		storeDataInAttributeList(0, positions);
@@ -63,76 +120,449 @@ public class ModelLoader {
 		/* Required per OpenGL to unbind once previously bound */
 		unbindVAO();
 
-		model = new RawModel(vaoId, vertexCount);
+		model = new RawModel(vaoId, vertexCount, VertexFormat.POSITION, IndexType.UNSIGNED_INT, Bounds.of(positions));
 		return model;
 	}
 
+	/**
+	 * Loads a model whose vertices have any number of attributes, packing them
+	 * into a single interleaved VBO as laid out by the specified format. Keeping
+	 * all of a vertex's attributes next to each other means each vertex is
+	 * fetched from one place in memory, rather than one place per attribute.
+	 * 
+	 * @param format
+	 *            the layout of each vertex
+	 * @param attributeData
+	 *            one array per attribute of the format, in the same order, each
+	 *            holding that attribute's components for every vertex
+	 * @param indices
+	 *            the indices of the model's triangles
+	 * @return the model object containing the Vao Id and vertex count
+	 * @see renderEngine.VertexPacker#pack(VertexFormat, float[][], ByteBuffer)
+	 */
+	public RawModel loadToVAO(VertexFormat format, float[][] attributeData, int[] indices) {
+		int vertices = VertexPacker.vertexCountOf(format, attributeData);
+
+		PooledBuffer verticesBuffer = BufferPool.SHARED.acquire(vertices * format.getStride());
+		PooledBuffer indicesBuffer = TypeConversions.intArrayToPooledBuffer(indices);
+
+		try {
+			ByteBuffer packed = VertexPacker.pack(format, attributeData, verticesBuffer.getByteBuffer());
+			return loadToVAO(format, packed, indicesBuffer.getIntBuffer());
+		} finally {
+			verticesBuffer.release();
+			indicesBuffer.release();
+		}
+	}
+
+	/**
+	 * Same as {@link #loadToVAO(VertexFormat, float[][], int[])}, but takes
+	 * vertices that have already been interleaved into a buffer.
+	 * 
+	 * @param format
+	 *            the layout of each vertex
+	 * @param vertices
+	 *            the interleaved vertices, in a read-from state
+	 * @param indices
+	 *            the indices of the triangles, in a read-from state
+	 * @return the model object containing the Vao Id and vertex count
+	 */
+	public RawModel loadToVAO(VertexFormat format, ByteBuffer vertices, IntBuffer indices) {
+		int vaoId = createVAO();
+		bindIndicesBuffer(indices);
+
+		bindVertexBuffer();
+		device.bufferData(GL15.GL_ARRAY_BUFFER, vertices, GL15.GL_STATIC_DRAW);
+		countBytes(vertices.remaining());
+		storeAttributePointers(format);
+
+		unbindVAO();
+
+		return new RawModel(vaoId, indices.remaining(), format, IndexType.UNSIGNED_INT, Bounds.of(format, vertices));
+	}
+
+	/**
+	 * Loads a mesh after running it through the full
+	 * {@link renderEngine.MeshOptimizer#optimize(Mesh)} pass, and stores its
+	 * indices as the smallest type able to address every vertex.
+	 * 
+	 * @param mesh
+	 *            the mesh to be optimized and loaded, which is not changed
+	 * @return the model object containing the Vao Id, vertex count and index type
+	 */
+	public RawModel loadToVAO(Mesh mesh) {
+		Mesh optimized = MeshOptimizer.optimize(mesh);
+		VertexFormat format = optimized.getFormat();
+		int[] indices = optimized.getIndices();
+		IndexType indexType = IndexType.forVertexCount(optimized.getVertexCount());
+
+		PooledBuffer verticesBuffer = BufferPool.SHARED.acquire(optimized.getVertexCount() * format.getStride());
+		PooledBuffer indicesBuffer = BufferPool.SHARED.acquire(indices.length * indexType.getBytes());
+
+		try {
+			ByteBuffer packedVertices = VertexPacker.pack(format, optimized.getAttributeData(),
+					verticesBuffer.getByteBuffer());
+			ByteBuffer packedIndices = MeshOptimizer.packIndices(indices, indexType, indicesBuffer.getByteBuffer());
+			return loadToVAO(format, packedVertices, packedIndices, indexType);
+		} finally {
+			verticesBuffer.release();
+			indicesBuffer.release();
+		}
+	}
+
+	/**
+	 * Loads a mesh along with simplified levels of detail, made by
+	 * {@link renderEngine.MeshSimplifier}. Each level aims for half the triangles
+	 * of the one before it, and the chain stops early once the mesh cannot be
+	 * simplified much further. Every level indexes the same optimized vertices,
+	 * so all of them are stored in one VAO, with their indices one after another
+	 * in a single index buffer.
+	 * 
+	 * @param mesh
+	 *            the mesh to be optimized, simplified and loaded, which is not
+	 *            changed
+	 * @param maxLevels
+	 *            the most levels to make, including the full mesh
+	 * @return the model holding every level
+	 */
+	public LodModel loadWithLods(Mesh mesh, int maxLevels) {
+		Mesh optimized = MeshOptimizer.optimize(mesh);
+		MeshSimplifier simplifier = new MeshSimplifier(optimized);
+
+		List<int[]> levelIndices = new ArrayList<int[]>();
+		List<Float> levelErrors = new ArrayList<Float>();
+		levelIndices.add(optimized.getIndices());
+		levelErrors.add(0f);
+
+		int totalIndices = optimized.getIndices().length;
+		while (levelIndices.size() < maxLevels) {
+			int previous = levelIndices.get(levelIndices.size() - 1).length;
+			int[] indices = simplifier.simplify(previous / 6 * 3);
+
+			/* Not worth a level of its own unless it saves at least a fifth */
+			if (indices.length == 0 || indices.length > previous * LOD_MIN_REDUCTION) {
+				break;
+			}
+
+			levelIndices.add(MeshOptimizer.optimizeVertexCache(indices, optimized.getVertexCount(),
+					MeshOptimizer.DEFAULT_CACHE_SIZE));
+			levelErrors.add(simplifier.getError());
+			totalIndices += indices.length;
+		}
+
+		VertexFormat format = optimized.getFormat();
+		IndexType indexType = IndexType.forVertexCount(optimized.getVertexCount());
+
+		PooledBuffer verticesBuffer = BufferPool.SHARED.acquire(optimized.getVertexCount() * format.getStride());
+		PooledBuffer indicesBuffer = BufferPool.SHARED.acquire(totalIndices * indexType.getBytes());
+
+		try {
+			ByteBuffer packedVertices = VertexPacker.pack(format, optimized.getAttributeData(),
+					verticesBuffer.getByteBuffer());
+
+			/* Each level is packed after the last, leaving the buffer flipped over all of them */
+			ByteBuffer packedIndices = indicesBuffer.getByteBuffer();
+			long[] offsets = new long[levelIndices.size()];
+			int end = 0;
+			for (int level = 0; level < offsets.length; level++) {
+				offsets[level] = end;
+				packedIndices.limit(packedIndices.capacity()).position(end);
+				MeshOptimizer.packIndices(levelIndices.get(level), indexType, packedIndices);
+				end = packedIndices.limit();
+			}
+
+			RawModel full = loadToVAO(format, packedVertices, packedIndices, indexType);
+
+			RawModel[] levels = new RawModel[offsets.length];
+			float[] errors = new float[offsets.length];
+			for (int level = 0; level < levels.length; level++) {
+				levels[level] = new RawModel(full.getVaoId(), levelIndices.get(level).length, format, indexType,
+						full.getBounds(), offsets[level]);
+				errors[level] = levelErrors.get(level);
+			}
+			return new LodModel(levels, errors);
+		} finally {
+			verticesBuffer.release();
+			indicesBuffer.release();
+		}
+	}
+
+	/**
+	 * Loads a mesh read from a {@link renderEngine.MeshCache} file. The mesh was
+	 * optimized and packed when the cache was written, so the memory-mapped file
+	 * is handed straight to OpenGL, with no parsing or copying in between. Its
+	 * bounds were stored in the file too, so the vertices are not read here.
+	 * 
+	 * @param mesh
+	 *            the cached mesh to be loaded
+	 * @return the model object containing the Vao Id, vertex count and index type
+	 * @see renderEngine.MeshCache#read(java.nio.file.Path)
+	 */
+	public RawModel loadToVAO(CachedMesh mesh) {
+		return loadToVAO(mesh.getFormat(), mesh.getVertices(), mesh.getIndices(), mesh.getIndexType(),
+				mesh.getBounds());
+	}
+
+	/**
+	 * Same as {@link #loadToVAO(VertexFormat, ByteBuffer, IntBuffer)}, but takes
+	 * indices that have been packed as the specified type.
+	 * 
+	 * @param format
+	 *            the layout of each vertex
+	 * @param vertices
+	 *            the interleaved vertices, in a read-from state
+	 * @param indices
+	 *            the packed indices of the triangles, in a read-from state
+	 * @param indexType
+	 *            the size of each packed index
+	 * @return the model object containing the Vao Id, vertex count and index type
+	 */
+	public RawModel loadToVAO(VertexFormat format, ByteBuffer vertices, ByteBuffer indices, IndexType indexType) {
+		return loadToVAO(format, vertices, indices, indexType, Bounds.of(format, vertices));
+	}
+
+	/**
+	 * Same as {@link #loadToVAO(VertexFormat, ByteBuffer, ByteBuffer, IndexType)},
+	 * but takes bounds that are already known, so the vertices are only read by
+	 * OpenGL.
+	 * 
+	 * @param format
+	 *            the layout of each vertex
+	 * @param vertices
+	 *            the interleaved vertices, in a read-from state
+	 * @param indices
+	 *            the packed indices of the triangles, in a read-from state
+	 * @param indexType
+	 *            the size of each packed index
+	 * @param bounds
+	 *            the bounds of the vertex positions, in the model's own space
+	 * @return the model object containing the Vao Id, vertex count and index type
+	 */
+	public RawModel loadToVAO(VertexFormat format, ByteBuffer vertices, ByteBuffer indices, IndexType indexType,
+			Bounds bounds) {
+		int vaoId = createVAO();
+		int indexCount = indices.remaining() / indexType.getBytes();
+		bindIndicesBuffer(indices);
+
+		bindVertexBuffer();
+		device.bufferData(GL15.GL_ARRAY_BUFFER, vertices, GL15.GL_STATIC_DRAW);
+		countBytes(vertices.remaining());
+		storeAttributePointers(format);
+
+		unbindVAO();
+
+		return new RawModel(vaoId, indexCount, format, indexType, bounds);
+	}
+
+	/**
+	 * Replaces the vertices and indices of a model loaded by
+	 * {@link #loadToVAO(VertexFormat, ByteBuffer, ByteBuffer, IndexType)},
+	 * keeping its VAO and VBOs rather than deleting them and creating new ones.
+	 * Each VBO is given new storage, so this does not wait for the GPU to finish
+	 * drawing the old data. The old model must not be drawn again.
+	 * 
+	 * @param model
+	 *            the model whose VAO and VBOs are to be reused
+	 * @param format
+	 *            the layout of each new vertex
+	 * @param vertices
+	 *            the new interleaved vertices, in a read-from state
+	 * @param indices
+	 *            the new packed indices of the triangles, in a read-from state
+	 * @param indexType
+	 *            the size of each packed index
+	 * @return the model object containing the reused Vao Id, and the new vertex
+	 *         count and index type
+	 */
+	public RawModel reload(RawModel model, VertexFormat format, ByteBuffer vertices, ByteBuffer indices,
+			IndexType indexType) {
+		int vaoId = model.getVaoId();
+		List<Integer> vboList = vboLists.get(vaoId);
+
+		/* Only a model with one index buffer followed by one vertex buffer can be refilled */
+		if (vboList == null || vboList.size() != 2) {
+			throw new IllegalArgumentException("Model cannot be reloaded by this loader: VAO " + vaoId);
+		}
+
+		totalBufferBytes -= bufferBytes.put(vaoId, 0L);
+		loadingVaoId = vaoId;
+		device.bindVertexArray(vaoId);
+
+		int indexCount = indices.remaining() / indexType.getBytes();
+		device.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vboList.get(0));
+		device.bufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indices, GL15.GL_STATIC_DRAW);
+		countBytes(indices.remaining());
+
+		device.bindBuffer(GL15.GL_ARRAY_BUFFER, vboList.get(1));
+		device.bufferData(GL15.GL_ARRAY_BUFFER, vertices, GL15.GL_STATIC_DRAW);
+		countBytes(vertices.remaining());
+		storeAttributePointers(format);
+
+		unbindVAO();
+
+		return new RawModel(vaoId, indexCount, format, indexType, Bounds.of(format, vertices));
+	}
+
+	/**
+	 * Frees up the VAO and VBOs of a single model while the game is running. The
+	 * model must have been loaded by this loader, and must not be drawn again.
+	 * 
+	 * @param model
+	 *            the model to be unloaded
+	 */
+	public void unload(RawModel model) {
+		int vaoId = model.getVaoId();
+		List<Integer> vboList = vboLists.remove(vaoId);
+		if (vboList == null) {
+			throw new IllegalArgumentException("Model is not loaded by this loader: VAO " + vaoId);
+		}
+
+		deleteVAO(vaoId, vboList);
+		totalBufferBytes -= bufferBytes.remove(vaoId);
+
+		Log.debug("Unloaded VAO with Id", vaoId);
+	}
+
+	/**
+	 * Frees up the VAO and VBOs shared by every level of a model.
+	 * 
+	 * @param model
+	 *            the model to be unloaded
+	 * @see #unload(RawModel)
+	 */
+	public void unload(LodModel model) {
+		unload(model.getLevel(0));
+	}
+
+	/**
+	 * Returns how much GPU memory the VBOs of a model take up.
+	 * 
+	 * @param model
+	 *            a model loaded by this loader
+	 * @return the size of the model's buffers, in bytes, or zero if it is not
+	 *         loaded
+	 */
+	public long getBufferBytes(RawModel model) {
+		Long bytes = bufferBytes.get(model.getVaoId());
+		return bytes == null ? 0 : bytes;
+	}
+
+	/**
+	 * Returns how much GPU memory the VBOs of every loaded model take up.
+	 * 
+	 * @return the size of all buffers, in bytes
+	 */
+	public long getTotalBufferBytes() {
+		return totalBufferBytes;
+	}
+
 	/**
 	 * Frees up resources as it relates to the VAO and VBO lists. Call this method
 	 * when {@link renderEngine.RenderInputWindow#isClosed()} returns true.
 	 */
 	public void cleanUp() {
-		for (int vaoId : vaoList) {
-			GL30.glDeleteVertexArrays(vaoId);
+		for (Map.Entry<Integer, List<Integer>> entry : vboLists.entrySet()) {
+			deleteVAO(entry.getKey(), entry.getValue());
 		}
 
-		for (int vboId : vboList) {
-			GL15.glDeleteBuffers(vboId);
-		}
+		vboLists.clear();
+		bufferBytes.clear();
+		totalBufferBytes = 0;
 	}
 
 	private int createVAO() {
 		/* Creates an empty VAO and returns the Id of that VAO */
-		int vaoId = GL30.glGenVertexArrays();
-		vaoList.add(vaoId);
+		int vaoId = device.genVertexArray();
+		vboLists.put(vaoId, new ArrayList<Integer>());
+		bufferBytes.put(vaoId, 0L);
+		loadingVaoId = vaoId;
 
 		/*
 		 * Binding means to "activate" this specific VAO by binding it to the OpenGL
 		 * pipeline, using the VAO Id from the above call. This then allows the VAO to
 		 * be manipulated further (like editing VBOs and adding attribute lists)
 		 */
-		GL30.glBindVertexArray(vaoId);
+		device.bindVertexArray(vaoId);
 
 		return vaoId;
 	}
 
-	private void storeDataInAttributeList(int attributeNumber, float[] data) {
-		/* Creates an empty VBO and returns the Id of that VBO */
-		int vboId = GL15.glGenBuffers();
-		vboList.add(vboId);
-
-		/* Bind newly created buffer to pipeline so we may manipulate it */
-		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vboId);
+	private void storeDataInAttributeList(int attributeNumber, FloatBuffer buffer) {
+		bindVertexBuffer();
 
 		/*
-		 * Store the data into the VBO, we need to make sure the data is stored as a
-		 * buffer, as opposed to an array, so a type conversion is needed. Also,
-		 * specifying usage as a static draw, so the data will not be changed nor edited
+		 * Store the data into the VBO, the data has already been converted to a buffer,
+		 * as opposed to an array. Also, specifying usage as a static draw, so the data
+		 * will not be changed nor edited
 		 */
-		FloatBuffer buffer = TypeConversions.floatArrayToFloatBuffer(data);
-		GL15.glBufferData(GL15.GL_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW);
+		device.bufferData(GL15.GL_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW);
+		countBytes((long) buffer.remaining() * Float.BYTES);
 
 		/*
 		 * This puts the VBO into one of the VAO's attribute lists: (VAO index, length
 		 * of each vertex (X, Y, Z), type of data, is data normalized?, distance between
 		 * each vertex, offset)
 		 */
-		GL20.glVertexAttribPointer(attributeNumber, 3, GL11.GL_FLOAT, false, 0, 0);
+		device.vertexAttribPointer(attributeNumber, 3, GL11.GL_FLOAT, false, 0, 0);
 
 		/* Unbinds similar to VAO (unbinds with 0 passed in) */
-		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+		device.bindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+	}
+
+	private void bindVertexBuffer() {
+		/* Creates an empty VBO and returns the Id of that VBO */
+		int vboId = device.genBuffer();
+		vboLists.get(loadingVaoId).add(vboId);
+
+		/* Bind newly created buffer to pipeline so we may manipulate it */
+		device.bindBuffer(GL15.GL_ARRAY_BUFFER, vboId);
+	}
+
+	private void storeAttributePointers(VertexFormat format) {
+		/*
+		 * Every attribute reads from the same VBO, stepping a whole vertex (the
+		 * stride) at a time, starting from that attribute's offset into the vertex
+		 */
+		for (VertexAttribute attribute : format.getAttributes()) {
+			AttributeType type = attribute.getType();
+			device.vertexAttribPointer(attribute.getIndex(), attribute.getComponents(), type.getGlType(),
+					type.isNormalized(), format.getStride(), attribute.getOffset());
+		}
+
+		device.bindBuffer(GL15.GL_ARRAY_BUFFER, 0);
 	}
 
 	private void unbindVAO() {
 		/* Passing zero to this method unbinds the VAO, per OpenGL */
-		GL30.glBindVertexArray(0);
+		device.bindVertexArray(0);
 	}
 
-	private void bindIndicesBuffer(int[] indices) {
-		int vboId = GL15.glGenBuffers();
-		vboList.add(vboId);
-		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vboId);
-		IntBuffer buffer = TypeConversions.intArrayToIntBuffer(indices);
-		GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW);
+	private void bindIndicesBuffer(IntBuffer buffer) {
+		int vboId = device.genBuffer();
+		vboLists.get(loadingVaoId).add(vboId);
+		device.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vboId);
+		device.bufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW);
+		countBytes((long) buffer.remaining() * Integer.BYTES);
+	}
+
+	private void bindIndicesBuffer(ByteBuffer buffer) {
+		int vboId = device.genBuffer();
+		vboLists.get(loadingVaoId).add(vboId);
+		device.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vboId);
+		device.bufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW);
+		countBytes(buffer.remaining());
+	}
+
+	private void countBytes(long bytes) {
+		bufferBytes.merge(loadingVaoId, bytes, Long::sum);
+		totalBufferBytes += bytes;
+	}
+
+	private void deleteVAO(int vaoId, List<Integer> vboList) {
+		device.deleteVertexArray(vaoId);
+
+		for (int vboId : vboList) {
+			device.deleteBuffer(vboId);
+		}
 	}
 }
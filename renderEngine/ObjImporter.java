@@ -0,0 +1,232 @@
+package renderEngine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads meshes from Wavefront OBJ text files. Vertex positions, texture
+ * coordinates and normals are read, and faces with more than three corners are
+ * split into triangle fans. Everything else in the file, such as groups,
+ * smoothing and materials, is skipped. This class behaves in a "static" fashion
+ * in the sense that it is constant and cannot be constructed publicly.
+ * 
+ * <p>
+ * Parsing text is slow, so OBJ files are meant to be converted once, ahead of
+ * time, by {@link renderEngine.MeshConverter}, and then loaded from the binary
+ * {@link renderEngine.MeshCache} at run time.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public final class ObjImporter {
+
+	/* Private so that this class does not accidently get instantiated */
+	private ObjImporter() {
+	}
+
+	/**
+	 * Reads a mesh from an OBJ file.
+	 * 
+	 * @param file
+	 *            the OBJ file to be read
+	 * @return the mesh, as described by {@link #read(Reader)}
+	 * @throws IOException
+	 *             if the file cannot be read or is not a valid OBJ file
+	 */
+	public static Mesh read(Path file) throws IOException {
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return read(reader);
+		}
+	}
+
+	/**
+	 * Reads a mesh from OBJ text. The mesh has float positions at attribute 0,
+	 * and, if every face has them, packed normals at attribute 2 and half-float
+	 * texture coordinates at attribute 3, matching
+	 * {@link renderEngine.VertexFormat#POSITION_COLOR_NORMAL_TEXTURE}. Each face
+	 * corner becomes its own vertex; identical vertices are merged later, by
+	 * {@link renderEngine.MeshOptimizer#optimize(Mesh)}.
+	 * 
+	 * @param reader
+	 *            the OBJ text, which is read to the end but not closed
+	 * @return the mesh
+	 * @throws IOException
+	 *             if the text cannot be read or is not valid OBJ
+	 */
+	public static Mesh read(Reader reader) throws IOException {
+		BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+
+		FloatList positions = new FloatList(), textureCoords = new FloatList(), normals = new FloatList();
+
+		/* The position, texture and normal index of every triangle corner, or -1 */
+		IntList corners = new IntList();
+		IntList face = new IntList();
+		boolean allTextured = true, allNormals = true;
+
+		String line;
+		int lineNumber = 0;
+		while ((line = lines.readLine()) != null) {
+			lineNumber++;
+			String[] tokens = line.trim().split("\\s+");
+
+			switch (tokens[0]) {
+			case "v":
+				readFloats(tokens, 3, positions, lineNumber);
+				break;
+			case "vt":
+				readFloats(tokens, 2, textureCoords, lineNumber);
+				break;
+			case "vn":
+				readFloats(tokens, 3, normals, lineNumber);
+				break;
+			case "f":
+				if (tokens.length < 4) {
+					throw new IOException("Face with fewer than three corners on line " + lineNumber);
+				}
+
+				face.size = 0;
+				for (int i = 1; i < tokens.length; i++) {
+					String[] parts = tokens[i].split("/", -1);
+					int position = resolveIndex(parts, 0, positions.size / 3, lineNumber);
+					int texture = resolveIndex(parts, 1, textureCoords.size / 2, lineNumber);
+					int normal = resolveIndex(parts, 2, normals.size / 3, lineNumber);
+
+					if (position == -1) {
+						throw new IOException("Face corner without a position on line " + lineNumber);
+					}
+
+					allTextured &= texture != -1;
+					allNormals &= normal != -1;
+					face.add(position);
+					face.add(texture);
+					face.add(normal);
+				}
+
+				/* Split into a fan of triangles around the first corner */
+				for (int i = 2; i < face.size / 3; i++) {
+					corners.addAll(face.data, 0, 3);
+					corners.addAll(face.data, (i - 1) * 3, 3);
+					corners.addAll(face.data, i * 3, 3);
+				}
+				break;
+			default:
+				/* Comments, groups, smoothing, materials and the rest are not needed */
+				break;
+			}
+		}
+
+		return buildMesh(positions, allTextured ? textureCoords : null, allNormals ? normals : null, corners);
+	}
+
+	private static Mesh buildMesh(FloatList positions, FloatList textureCoords, FloatList normals,
+			IntList corners) {
+		int vertexCount = corners.size / 3;
+
+		VertexFormat format = VertexFormat.POSITION;
+		int attributes = 1;
+		if (normals != null) {
+			format = format.add(2, 3, AttributeType.INT_2_10_10_10_REV);
+			attributes++;
+		}
+		if (textureCoords != null) {
+			format = format.add(3, 2, AttributeType.HALF_FLOAT);
+			attributes++;
+		}
+
+		float[][] data = new float[attributes][];
+		data[0] = new float[vertexCount * 3];
+		float[] normalData = normals != null ? data[1] = new float[vertexCount * 3] : null;
+		float[] textureData = textureCoords != null ? data[attributes - 1] = new float[vertexCount * 2] : null;
+
+		for (int v = 0; v < vertexCount; v++) {
+			System.arraycopy(positions.data, corners.data[v * 3] * 3, data[0], v * 3, 3);
+
+			if (textureData != null) {
+				System.arraycopy(textureCoords.data, corners.data[v * 3 + 1] * 2, textureData, v * 2, 2);
+			}
+
+			if (normalData != null) {
+				System.arraycopy(normals.data, corners.data[v * 3 + 2] * 3, normalData, v * 3, 3);
+			}
+		}
+
+		int[] indices = new int[vertexCount];
+		for (int i = 0; i < vertexCount; i++) {
+			indices[i] = i;
+		}
+
+		return new Mesh(format, data, indices);
+	}
+
+	private static void readFloats(String[] tokens, int count, FloatList list, int lineNumber) throws IOException {
+		if (tokens.length < count + 1) {
+			throw new IOException("Expected " + count + " numbers on line " + lineNumber);
+		}
+
+		try {
+			for (int i = 1; i <= count; i++) {
+				list.add(Float.parseFloat(tokens[i]));
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid number on line " + lineNumber, e);
+		}
+	}
+
+	/* OBJ indices start at 1, and negative indices count back from the end */
+	private static int resolveIndex(String[] parts, int part, int count, int lineNumber) throws IOException {
+		if (part >= parts.length || parts[part].isEmpty()) {
+			return -1;
+		}
+
+		int index;
+		try {
+			index = Integer.parseInt(parts[part]);
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid index on line " + lineNumber, e);
+		}
+
+		int resolved = index < 0 ? count + index : index - 1;
+		if (index == 0 || resolved < 0 || resolved >= count) {
+			throw new IOException("Index out of range on line " + lineNumber + ": " + index);
+		}
+
+		return resolved;
+	}
+
+	/* Growable arrays of primitives, so large files do not box every number */
+	private static final class FloatList {
+		private float[] data = new float[1024];
+		private int size = 0;
+
+		private void add(float value) {
+			if (size == data.length) {
+				data = Arrays.copyOf(data, size * 2);
+			}
+			data[size++] = value;
+		}
+	}
+
+	private static final class IntList {
+		private int[] data = new int[1024];
+		private int size = 0;
+
+		private void add(int value) {
+			if (size == data.length) {
+				data = Arrays.copyOf(data, size * 2);
+			}
+			data[size++] = value;
+		}
+
+		private void addAll(int[] values, int offset, int length) {
+			for (int i = 0; i < length; i++) {
+				add(values[offset + i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package renderEngine;
+
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.system.MemoryUtil;
+
+import utility.Log;
+
+/**
+ * A real OpenGL render device that needs no display, for running the render
+ * engine on build machines. It creates a hidden GLFW window purely to own an
+ * OpenGL context, trying the context creation APIs in order of how likely they
+ * are to work without a display:
+ * 
+ * <ol>
+ * <li>EGL, which works on a GPU, or with Mesa's software drivers, without a
+ * window system</li>
+ * <li>OSMesa, which renders entirely in software</li>
+ * <li>The native API, for machines that do have a display</li>
+ * </ol>
+ * 
+ * If GLFW itself cannot start, for example because there is no X server, it is
+ * started again on its null platform, which leaves only OSMesa. Every call made
+ * through this device must be on the thread that constructed it.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class OffscreenRenderDevice extends LwjglRenderDevice {
+
+	private static final int[] CONTEXT_APIS = { GLFW.GLFW_EGL_CONTEXT_API, GLFW.GLFW_OSMESA_CONTEXT_API,
+			GLFW.GLFW_NATIVE_CONTEXT_API };
+
+	private static final String[] CONTEXT_API_NAMES = { "EGL", "OSMesa", "native" };
+
+	private long window = MemoryUtil.NULL;
+
+	private GLContext context = null;
+
+	/**
+	 * Starts GLFW and creates a hidden OpenGL context, current on the calling
+	 * thread, with a default framebuffer of the specified size.
+	 * 
+	 * @param width
+	 *            the width, in pixels, of the framebuffer
+	 * @param height
+	 *            the height, in pixels, of the framebuffer
+	 * @throws IllegalStateException
+	 *             if no context creation API works on this machine
+	 */
+	public OffscreenRenderDevice(int width, int height) {
+		if (!GLFW.glfwInit()) {
+			/* No window system at all, so only a software context can work */
+			GLFW.glfwInitHint(GLFW.GLFW_PLATFORM, GLFW.GLFW_PLATFORM_NULL);
+			if (!GLFW.glfwInit()) {
+				throw new IllegalStateException("Unable to initialize GLFW");
+			}
+		}
+
+		for (int i = 0; i < CONTEXT_APIS.length && window == MemoryUtil.NULL; i++) {
+			GLFW.glfwDefaultWindowHints();
+			GLFW.glfwWindowHint(GLFW.GLFW_VISIBLE, GLFW.GLFW_FALSE);
+			GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_CREATION_API, CONTEXT_APIS[i]);
+
+			window = GLFW.glfwCreateWindow(width, height, "Arsia-Offscreen", MemoryUtil.NULL, MemoryUtil.NULL);
+			if (window != MemoryUtil.NULL) {
+				Log.info("Created offscreen OpenGL context with " + CONTEXT_API_NAMES[i]);
+			}
+		}
+
+		if (window == MemoryUtil.NULL) {
+			GLFW.glfwTerminate();
+			throw new IllegalStateException("Unable to create an offscreen OpenGL context");
+		}
+
+		context = GLContext.create(window);
+	}
+
+	/**
+	 * Returns the OpenGL context this device renders with.
+	 * 
+	 * @return the offscreen context
+	 */
+	public GLContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Destroys the hidden window and its context, and shuts down GLFW. The device
+	 * must not be used afterwards.
+	 */
+	public void cleanUp() {
+		GLFW.glfwDestroyWindow(window);
+		GLFW.glfwTerminate();
+		window = MemoryUtil.NULL;
+	}
+}
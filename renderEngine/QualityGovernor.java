@@ -0,0 +1,376 @@
+package renderEngine;
+
+import java.util.Arrays;
+
+/**
+ * Holds the frame time to a target by trading rendering quality for speed,
+ * from frame times measured as the game runs, so that a weak machine reaches
+ * the target without its settings being tuned by hand. Each frame, the time
+ * the CPU and the GPU spent on it are passed to {@link #recordFrame(long, long)}.
+ * Once a window of frames has been recorded, the 90th percentile of each is
+ * compared with the target:
+ * 
+ * <ul>
+ * <li>Over the target, quality is lowered by one step, or two if far over. If
+ * the GPU took longer than the CPU, the render resolution is lowered first,
+ * then the level of detail, then the draw distance; if the CPU took longer,
+ * the other way around. Before any of those, v-sync is made adaptive if the
+ * driver supports it, so a late frame tears instead of waiting a whole
+ * vertical blank</li>
+ * <li>Well under the target for several windows in a row, the most recent step
+ * down is undone. If that takes the frame back over the target, twice as many
+ * windows are waited before the next try, so a machine on the edge of a step
+ * does not keep switching back and forth</li>
+ * </ul>
+ * 
+ * Every setting moves only within the bounds it is given. The governor does
+ * not read the clock or call OpenGL: the caller measures each frame and
+ * applies the settings whenever {@link #recordFrame(long, long)} returns true,
+ * so it can be driven just as well by a recorded or synthetic trace of frame
+ * times. Recording a frame does not allocate.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class QualityGovernor {
+
+	/** A swap interval that swaps at once, without v-sync */
+	public static final int SWAP_IMMEDIATE = 0;
+
+	/** A swap interval that waits for every vertical blank, which is v-sync */
+	public static final int SWAP_VSYNC = 1;
+
+	/** A swap interval that waits like v-sync, but swaps at once when a frame is late */
+	public static final int SWAP_ADAPTIVE = -1;
+
+	/* About a second of frames at 60 FPS between each decision */
+	private static final int DEFAULT_WINDOW_FRAMES = 60;
+
+	private static final double PERCENTILE = 0.9;
+
+	/* Over the target by more than this, quality is lowered; far over, by two steps */
+	private static final double OVER_BUDGET = 1.05, FAR_OVER_BUDGET = 1.5;
+
+	/* Under the target by this much, there is room to raise quality */
+	private static final double UNDER_BUDGET = 0.75;
+
+	/* Windows in a row with room to spare before quality is raised, doubled after each failed raise */
+	private static final int BASE_UPGRADE_WINDOWS = 3, MAX_UPGRADE_WINDOWS = 48;
+
+	private static final float RESOLUTION_STEP = 0.125f;
+
+	/* Each setting that can be lowered, in steps down from its best */
+	private static final int SWAP = 0, RESOLUTION = 1, LOD = 2, DISTANCE = 3;
+
+	/* The order settings are lowered in, depending on which of the GPU or CPU is slower */
+	private static final int[] GPU_BOUND_ORDER = { SWAP, RESOLUTION, LOD, DISTANCE },
+			CPU_BOUND_ORDER = { SWAP, DISTANCE, LOD, RESOLUTION };
+
+	private final long targetFrameNs, overBudgetNs, farOverBudgetNs, underBudgetNs;
+
+	private float minResolutionScale = 0.5f, maxResolutionScale = 1f;
+	private float minLodBias = 1f, maxLodBias = 4f;
+	private int minDrawDistance = 0, maxDrawDistance = 0;
+	private boolean vsync = true, adaptiveSwap = false;
+
+	/* How many steps down each setting is, and how many it may go */
+	private final int[] steps = new int[4], maxSteps = new int[4];
+
+	/* Every step down still in effect, most recent last, so raising undoes the latest first */
+	private int[] lowered = new int[0];
+	private int loweredCount = 0;
+
+	private long[] cpuSamples, gpuSamples, scratch;
+	private int sampleCount = 0;
+
+	private int headroomWindows = 0, upgradeWindows = BASE_UPGRADE_WINDOWS, changes = 0;
+	private boolean upgradePending = false;
+
+	private long cpuNs = 0, gpuNs = 0;
+
+	/**
+	 * Constructs a governor with a resolution scale of 0.5 to 1, a level of
+	 * detail bias of 1 to 4, a fixed draw distance of zero, and v-sync on but
+	 * not adaptive. Change the bounds before recording any frames.
+	 * 
+	 * @param targetFrameNs
+	 *            the frame time to hold to, in nanoseconds
+	 */
+	public QualityGovernor(long targetFrameNs) {
+		this.targetFrameNs = targetFrameNs;
+		this.overBudgetNs = (long) (targetFrameNs * OVER_BUDGET);
+		this.farOverBudgetNs = (long) (targetFrameNs * FAR_OVER_BUDGET);
+		this.underBudgetNs = (long) (targetFrameNs * UNDER_BUDGET);
+		setWindowFrames(DEFAULT_WINDOW_FRAMES);
+		reset();
+	}
+
+	/**
+	 * Sets the range the render resolution is scaled within, as a fraction of the
+	 * window's size. It is lowered in steps of an eighth. Resets every setting to
+	 * its best.
+	 * 
+	 * @param min
+	 *            the lowest scale, above zero
+	 * @param max
+	 *            the highest scale, normally one
+	 */
+	public void setResolutionScaleRange(float min, float max) {
+		this.minResolutionScale = min;
+		this.maxResolutionScale = max;
+		reset();
+	}
+
+	/**
+	 * Sets the range of the level of detail bias, the multiplier of the pixel
+	 * error given to {@link renderEngine.LodSelector#setBias(float)}. It is
+	 * doubled each step. Resets every setting to its best.
+	 * 
+	 * @param min
+	 *            the lowest bias, normally one
+	 * @param max
+	 *            the highest bias
+	 */
+	public void setLodBiasRange(float min, float max) {
+		this.minLodBias = min;
+		this.maxLodBias = max;
+		reset();
+	}
+
+	/**
+	 * Sets the range of the draw distance, such as the view distance of a
+	 * {@link terrain.ChunkStreamer}, in whatever unit it uses. It is lowered by
+	 * one each step. Resets every setting to its best.
+	 * 
+	 * @param min
+	 *            the shortest draw distance
+	 * @param max
+	 *            the longest draw distance
+	 */
+	public void setDrawDistanceRange(int min, int max) {
+		this.minDrawDistance = min;
+		this.maxDrawDistance = max;
+		reset();
+	}
+
+	/**
+	 * Sets how buffers may be swapped. Resets every setting to its best.
+	 * 
+	 * @param vsync
+	 *            whether to wait for vertical blanks at all
+	 * @param adaptiveSwap
+	 *            whether the driver supports adaptive v-sync, as given by
+	 *            {@link renderEngine.RenderInputWindow#supportsAdaptiveSwap()}
+	 */
+	public void setSwapModes(boolean vsync, boolean adaptiveSwap) {
+		this.vsync = vsync;
+		this.adaptiveSwap = adaptiveSwap;
+		reset();
+	}
+
+	/**
+	 * Sets how many frames are recorded between each decision. Longer windows
+	 * react more slowly, but are less swayed by a few slow frames. Call this
+	 * during setup, as it allocates.
+	 * 
+	 * @param windowFrames
+	 *            the frames per window, at least one
+	 */
+	public void setWindowFrames(int windowFrames) {
+		cpuSamples = new long[windowFrames];
+		gpuSamples = new long[windowFrames];
+		scratch = new long[windowFrames];
+		sampleCount = 0;
+	}
+
+	/**
+	 * Records how long one frame took, and decides whether to change quality once
+	 * a whole window of frames has been recorded.
+	 * 
+	 * @param cpuNs
+	 *            the time the render thread spent on the frame, in nanoseconds,
+	 *            from the start of the frame up to swapping buffers, including
+	 *            any ticks run on it but not the wait to swap
+	 * @param gpuNs
+	 *            the time the GPU spent on the frame, in nanoseconds, or zero if
+	 *            it is not measured
+	 * @return true if any setting has changed, and should be applied
+	 */
+	public boolean recordFrame(long cpuNs, long gpuNs) {
+		cpuSamples[sampleCount] = cpuNs;
+		gpuSamples[sampleCount] = gpuNs;
+		if (++sampleCount < cpuSamples.length) {
+			return false;
+		}
+
+		sampleCount = 0;
+		return decide();
+	}
+
+	/**
+	 * Returns the render resolution, as a fraction of the window's size, to pass
+	 * to {@link renderEngine.ScaledFramebuffer#setScale(float)}.
+	 * 
+	 * @return the resolution scale
+	 */
+	public float getResolutionScale() {
+		return Math.max(minResolutionScale, maxResolutionScale - steps[RESOLUTION] * RESOLUTION_STEP);
+	}
+
+	/**
+	 * Returns the level of detail bias, to pass to
+	 * {@link renderEngine.LodSelector#setBias(float)}.
+	 * 
+	 * @return the level of detail bias
+	 */
+	public float getLodBias() {
+		return Math.min(maxLodBias, minLodBias * (1 << steps[LOD]));
+	}
+
+	/**
+	 * Returns the draw distance, such as to pass to
+	 * {@link terrain.ChunkStreamer#setViewDistance(int)}.
+	 * 
+	 * @return the draw distance
+	 */
+	public int getDrawDistance() {
+		return maxDrawDistance - steps[DISTANCE];
+	}
+
+	/**
+	 * Returns the swap interval, to pass to
+	 * {@link renderEngine.RenderInputWindow#setSwapInterval(int)}.
+	 * 
+	 * @return {@link #SWAP_IMMEDIATE}, {@link #SWAP_VSYNC} or
+	 *         {@link #SWAP_ADAPTIVE}
+	 */
+	public int getSwapInterval() {
+		return !vsync ? SWAP_IMMEDIATE : steps[SWAP] > 0 ? SWAP_ADAPTIVE : SWAP_VSYNC;
+	}
+
+	/**
+	 * Returns the frame time being held to.
+	 * 
+	 * @return the target frame time, in nanoseconds
+	 */
+	public long getTargetFrameNs() {
+		return targetFrameNs;
+	}
+
+	/**
+	 * Returns the 90th percentile of the CPU time of the most recent window.
+	 * 
+	 * @return the CPU frame time, in nanoseconds, or zero before the first window
+	 */
+	public long getCpuNs() {
+		return cpuNs;
+	}
+
+	/**
+	 * Returns the 90th percentile of the GPU time of the most recent window.
+	 * 
+	 * @return the GPU frame time, in nanoseconds, or zero if not measured
+	 */
+	public long getGpuNs() {
+		return gpuNs;
+	}
+
+	/**
+	 * Returns how many times quality has been raised or lowered.
+	 * 
+	 * @return the change count
+	 */
+	public int getChangeCount() {
+		return changes;
+	}
+
+	/**
+	 * Returns how many steps quality is below its best, across every setting.
+	 * 
+	 * @return the steps down, with zero meaning every setting is at its best
+	 */
+	public int getStepsDown() {
+		return loweredCount;
+	}
+
+	private boolean decide() {
+		cpuNs = percentile(cpuSamples);
+		gpuNs = percentile(gpuSamples);
+		long frameNs = Math.max(cpuNs, gpuNs);
+
+		/* A raise is only judged once the window after it has been seen */
+		boolean upgraded = upgradePending;
+		upgradePending = false;
+
+		if (frameNs > overBudgetNs) {
+			headroomWindows = 0;
+			if (upgraded) {
+				upgradeWindows = Math.min(MAX_UPGRADE_WINDOWS, upgradeWindows * 2);
+			}
+
+			int[] order = gpuNs > cpuNs ? GPU_BOUND_ORDER : CPU_BOUND_ORDER;
+			boolean changed = lower(order);
+			if (frameNs > farOverBudgetNs) {
+				changed |= lower(order);
+			}
+			return changed;
+		}
+
+		if (upgraded) {
+			upgradeWindows = Math.max(BASE_UPGRADE_WINDOWS, upgradeWindows / 2);
+		}
+
+		if (frameNs >= underBudgetNs || loweredCount == 0) {
+			headroomWindows = 0;
+			return false;
+		}
+
+		if (++headroomWindows < upgradeWindows) {
+			return false;
+		}
+
+		headroomWindows = 0;
+		steps[lowered[--loweredCount]]--;
+		upgradePending = true;
+		changes++;
+		return true;
+	}
+
+	/* Lowers the first setting in the order that can still go lower */
+	private boolean lower(int[] order) {
+		for (int setting : order) {
+			if (steps[setting] < maxSteps[setting]) {
+				steps[setting]++;
+				lowered[loweredCount++] = setting;
+				changes++;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private long percentile(long[] samples) {
+		System.arraycopy(samples, 0, scratch, 0, samples.length);
+		Arrays.sort(scratch);
+
+		int rank = (int) Math.ceil(PERCENTILE * samples.length) - 1;
+		return scratch[Math.max(0, rank)];
+	}
+
+	private void reset() {
+		maxSteps[SWAP] = vsync && adaptiveSwap ? 1 : 0;
+		maxSteps[RESOLUTION] = Math.max(0,
+				(int) Math.ceil((maxResolutionScale - minResolutionScale) / RESOLUTION_STEP - 1e-4f));
+		maxSteps[LOD] = Math.max(0, (int) Math.ceil(Math.log(maxLodBias / minLodBias) / Math.log(2) - 1e-4));
+		maxSteps[DISTANCE] = Math.max(0, maxDrawDistance - minDrawDistance);
+
+		Arrays.fill(steps, 0);
+		lowered = new int[maxSteps[SWAP] + maxSteps[RESOLUTION] + maxSteps[LOD] + maxSteps[DISTANCE]];
+		loweredCount = 0;
+
+		sampleCount = 0;
+		headroomWindows = 0;
+		upgradeWindows = BASE_UPGRADE_WINDOWS;
+		upgradePending = false;
+	}
+}
@@ -18,13 +18,21 @@ package renderEngine;
  * </ul>
  * 
  * @author Matthew L. Roy
- * @see {@link renderEngine.ModelLoader#loadToVAO(float[])}
+ * @see renderEngine.ModelLoader#loadToVAO(float[], int[])
  *
  */
 public class RawModel {
 
 	private int vaoId = 0, vertexCount = 0;
 
+	private VertexFormat vertexFormat = VertexFormat.POSITION;
+
+	private IndexType indexType = IndexType.UNSIGNED_INT;
+
+	private Bounds bounds = Bounds.INFINITE;
+
+	private long indexOffset = 0;
+
 	/**
 	 * Construct a logical representation of a 3D model in memory; this constructor
 	 * merely acts a pointer to important fields of that model.
@@ -41,6 +49,87 @@ public class RawModel {
 		this.vertexCount = vertexCount;
 	}
 
+	/**
+	 * Construct a logical representation of a 3D model in memory whose vertices
+	 * have the attributes of the specified format.
+	 * 
+	 * @param vaoId
+	 *            the Vertex Array Object ID that was given by the OpenGL pipeline
+	 * @param vertexCount
+	 *            the amount of vertexes for this model
+	 * @param vertexFormat
+	 *            the layout of this model's vertices, which determines the VAO
+	 *            attribute lists in use
+	 */
+	public RawModel(int vaoId, int vertexCount, VertexFormat vertexFormat) {
+		this(vaoId, vertexCount);
+		this.vertexFormat = vertexFormat;
+	}
+
+	/**
+	 * Construct a logical representation of a 3D model in memory whose vertices
+	 * have the attributes of the specified format, and whose indices are stored
+	 * as the specified type.
+	 * 
+	 * @param vaoId
+	 *            the Vertex Array Object ID that was given by the OpenGL pipeline
+	 * @param vertexCount
+	 *            the amount of vertexes for this model
+	 * @param vertexFormat
+	 *            the layout of this model's vertices
+	 * @param indexType
+	 *            the size of each index in this model's index buffer
+	 */
+	public RawModel(int vaoId, int vertexCount, VertexFormat vertexFormat, IndexType indexType) {
+		this(vaoId, vertexCount, vertexFormat);
+		this.indexType = indexType;
+	}
+
+	/**
+	 * Construct a logical representation of a 3D model in memory, along with the
+	 * bounds of its vertices, which are used to skip drawing it when it is off
+	 * screen.
+	 * 
+	 * @param vaoId
+	 *            the Vertex Array Object ID that was given by the OpenGL pipeline
+	 * @param vertexCount
+	 *            the amount of vertexes for this model
+	 * @param vertexFormat
+	 *            the layout of this model's vertices
+	 * @param indexType
+	 *            the size of each index in this model's index buffer
+	 * @param bounds
+	 *            the bounds of this model's vertices, in model space
+	 */
+	public RawModel(int vaoId, int vertexCount, VertexFormat vertexFormat, IndexType indexType, Bounds bounds) {
+		this(vaoId, vertexCount, vertexFormat, indexType);
+		this.bounds = bounds;
+	}
+
+	/**
+	 * Construct a logical representation of a 3D model whose indices start part
+	 * way into its VAO's index buffer, such as one level of a
+	 * {@link renderEngine.LodModel}, which shares its VAO with the other levels.
+	 * 
+	 * @param vaoId
+	 *            the Vertex Array Object ID that was given by the OpenGL pipeline
+	 * @param vertexCount
+	 *            the amount of vertexes for this model
+	 * @param vertexFormat
+	 *            the layout of this model's vertices
+	 * @param indexType
+	 *            the size of each index in this model's index buffer
+	 * @param bounds
+	 *            the bounds of this model's vertices, in model space
+	 * @param indexOffset
+	 *            where this model's indices start in the index buffer, in bytes
+	 */
+	public RawModel(int vaoId, int vertexCount, VertexFormat vertexFormat, IndexType indexType, Bounds bounds,
+			long indexOffset) {
+		this(vaoId, vertexCount, vertexFormat, indexType, bounds);
+		this.indexOffset = indexOffset;
+	}
+
 	/**
 	 * Returns the integer Id value for this model's VAO, as determined during the
 	 * creation of the model by the OpenGL pipeline.
@@ -55,9 +144,49 @@ public class RawModel {
 	 * Returns the count of vertexes to be used by the OpenGL render methods.
 	 * 
 	 * @return the amount of vertexes to be rendered from this VAO
-	 * @see {@link renderEngine.RenderInputWindow#render(RawModel)}
+	 * @see renderEngine.RenderInputWindow#render(RawModel)
 	 */
 	public int getVertexCount() {
 		return vertexCount;
 	}
+
+	/**
+	 * Returns the layout of this model's vertices, so the renderer knows which
+	 * VAO attribute lists to enable.
+	 * 
+	 * @return the vertex format of this model
+	 */
+	public VertexFormat getVertexFormat() {
+		return vertexFormat;
+	}
+
+	/**
+	 * Returns how this model's indices are stored, which must be passed along
+	 * when drawing it.
+	 * 
+	 * @return the index type of this model
+	 */
+	public IndexType getIndexType() {
+		return indexType;
+	}
+
+	/**
+	 * Returns the bounds of this model's vertices, in model space, as computed
+	 * when it was loaded. Models made without bounds are never culled.
+	 * 
+	 * @return the bounds of this model
+	 */
+	public Bounds getBounds() {
+		return bounds;
+	}
+
+	/**
+	 * Returns where this model's indices start in its VAO's index buffer, which
+	 * must be passed along when drawing it.
+	 * 
+	 * @return the offset of the first index, in bytes
+	 */
+	public long getIndexOffset() {
+		return indexOffset;
+	}
 }
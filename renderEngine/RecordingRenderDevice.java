@@ -0,0 +1,1374 @@
+package renderEngine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL21;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL41;
+
+/**
+ * A render device that makes no OpenGL calls at all, so the render engine can
+ * run without a display or a graphics driver. Instead, it hands out Ids the way
+ * OpenGL would and keeps count of what the engine asked for: how much buffer
+ * and texture memory is live, how many draw calls and instances were made, and how often
+ * the bound state changed, including binds that changed nothing. This makes it
+ * possible to check, on any machine, that loading and drawing behave as
+ * expected. Framebuffers and their renderbuffers are followed too, so that
+ * drawing offscreen and blitting to the window can be checked the same way.
+ * 
+ * <p>
+ * The per-frame counts are cleared by {@link #resetCounters()}, while the
+ * buffer memory counts follow the buffers themselves until they are deleted.
+ * Mapping a buffer returns real memory, so code that writes into mapped
+ * buffers runs unchanged.
+ * </p>
+ * 
+ * <p>
+ * Fences are not signaled at once. The GPU is modeled as running a number of
+ * frames behind the CPU, each frame ending when {@link #endFrame()} is called,
+ * so a fence is only signaled once that many frames have ended after the one it
+ * was inserted in. Checking an unsignaled fence without a timeout reports that
+ * it timed out, and waiting on it with a timeout counts a stall and signals it,
+ * and every fence before it, as the GPU catching up would.
+ * </p>
+ * 
+ * <p>
+ * Timer queries take the same time for every draw call made while they are
+ * active, as set by {@link #setDrawCallNs(long)}, and their results become
+ * available once the frame they were ended in is finished, like fences.
+ * Reading a result before then counts a stall.
+ * </p>
+ * 
+ * <p>
+ * Shaders are not really compiled. A shader compiles if its source has a
+ * {@code main} function, and linking reads the uniform declarations of both
+ * shaders and the {@code in} declarations of the vertex shader, handing out
+ * locations the way a driver would. A program binary holds the sources it was
+ * linked from, so it can be saved and loaded again, but only by a recording
+ * device.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class RecordingRenderDevice implements RenderDevice {
+
+	private int nextVaoId = 1, nextBufferId = 1, nextTextureId = 1, nextFramebufferId = 1, nextRenderbufferId = 1;
+
+	private int liveVertexArrays = 0;
+
+	/* The size of every live buffer, by Id, with zero until data is stored */
+	private Map<Integer, Long> bufferSizes = new HashMap<Integer, Long>();
+
+	/* The buffer bound to each target, with no entry meaning zero */
+	private Map<Integer, Integer> boundBuffers = new HashMap<Integer, Integer>();
+
+	private int boundVaoId = 0;
+
+	/* The texture bound to each target, with no entry meaning zero */
+	private Map<Integer, Integer> boundTextures = new HashMap<Integer, Integer>();
+
+	/* The size of each stored mipmap level of every live texture, by Id */
+	private Map<Integer, long[]> textureLevelBytes = new HashMap<Integer, long[]>();
+
+	private long textureBytes = 0;
+
+	/* The attachments of every live framebuffer, by Id, each mapped to its renderbuffer */
+	private Map<Integer, Map<Integer, Integer>> framebufferAttachments = new HashMap<Integer, Map<Integer, Integer>>();
+
+	private int readFramebufferId = 0, drawFramebufferId = 0, boundRenderbufferId = 0;
+
+	/* The size of every live renderbuffer, by Id, with zero until it has storage */
+	private Map<Integer, Long> renderbufferSizes = new HashMap<Integer, Long>();
+
+	private long renderbufferBytes = 0;
+
+	private int viewportWidth = 0, viewportHeight = 0, blits = 0;
+
+	private long bufferBytes = 0, bytesUploaded = 0;
+
+	private int drawCalls = 0, instancesDrawn = 0, stateChanges = 0, redundantStateChanges = 0, uniformUploads = 0;
+
+	private long indicesDrawn = 0;
+
+	/* Memory handed out when a buffer is mapped, by Id */
+	private Map<Integer, ByteBuffer> mappableStorage = new HashMap<Integer, ByteBuffer>();
+
+	private final boolean bufferStorage;
+
+	/**
+	 * How many frames behind the CPU the GPU runs by default, as with a driver
+	 * that queues up to two frames
+	 */
+	public static final int DEFAULT_FRAMES_IN_FLIGHT = 2;
+
+	private long nextSync = 1, signaledSync = 0;
+
+	/* The last fence inserted in each frame the GPU has not finished, indexed by frame modulo their count */
+	private final long[] framesInFlight;
+
+	private long frame = 0;
+
+	private int fences = 0, orphans = 0, syncStalls = 0;
+
+	/* A query, with the draw calls made while it was active and the frame it was ended in */
+	private static class Query {
+		private long drawCalls = 0, endedFrame = -1;
+	}
+
+	private int nextQueryId = 1;
+
+	/* Every live query by Id, and the active query on each target */
+	private Map<Integer, Query> queries = new HashMap<Integer, Query>();
+	private Map<Integer, Query> activeQueries = new HashMap<Integer, Query>();
+
+	private long drawCallNs = 0;
+
+	/**
+	 * The driver's format of the binaries read from programs
+	 */
+	public static final int PROGRAM_BINARY_FORMAT = 0x41525347;
+
+	/* Declarations found by the stand-in compiler, such as "uniform vec4 color;" or "uniform mat4 bones[32];" */
+	private static final Pattern UNIFORM = Pattern
+			.compile("\\buniform\\s+\\w+\\s+(\\w+)\\s*(?:\\[\\s*(\\d+)\\s*\\])?\\s*;");
+	private static final Pattern ATTRIBUTE = Pattern.compile("(?m)^\\s*(?:in|attribute)\\s+\\w+\\s+(\\w+)\\s*;");
+
+	/* A shader, which stays alive while attached after it is deleted, per OpenGL */
+	private static class Shader {
+		private final int type;
+		private String source = "", infoLog = "";
+		private boolean compiled = false, deleted = false;
+		private int attachments = 0;
+
+		private Shader(int type) {
+			this.type = type;
+		}
+	}
+
+	/* A program, and what linking found in it */
+	private static class Program {
+		private final List<Integer> shaderIds = new ArrayList<Integer>();
+		private final Map<String, Integer> attributeBindings = new HashMap<String, Integer>();
+		private final List<String> uniforms = new ArrayList<String>(), attributes = new ArrayList<String>();
+		private final Map<String, Integer> uniformLocations = new HashMap<String, Integer>();
+		private final Map<String, Integer> attributeLocations = new HashMap<String, Integer>();
+		private String vertexSource = null, fragmentSource = null, infoLog = "";
+		private boolean linked = false;
+	}
+
+	private int nextShaderObjectId = 1, programInUse = 0, shaderCompiles = 0;
+
+	/* Shaders and programs share their Ids, as they do in OpenGL */
+	private Map<Integer, Shader> shaders = new HashMap<Integer, Shader>();
+	private Map<Integer, Program> programs = new HashMap<Integer, Program>();
+
+	/**
+	 * Constructs a recording device that claims to support buffer storage.
+	 */
+	public RecordingRenderDevice() {
+		this(true);
+	}
+
+	/**
+	 * Constructs a recording device, choosing whether it claims to support buffer
+	 * storage, so that both paths of code that checks can be run.
+	 * 
+	 * @param bufferStorage
+	 *            what {@link #supportsBufferStorage()} returns
+	 */
+	public RecordingRenderDevice(boolean bufferStorage) {
+		this(bufferStorage, DEFAULT_FRAMES_IN_FLIGHT);
+	}
+
+	/**
+	 * Constructs a recording device, choosing whether it claims to support buffer
+	 * storage, and how far behind the modeled GPU runs.
+	 * 
+	 * @param bufferStorage
+	 *            what {@link #supportsBufferStorage()} returns
+	 * @param framesInFlight
+	 *            how many frames must end after a fence's frame before it is
+	 *            signaled; zero signals every fence at the end of its own frame
+	 */
+	public RecordingRenderDevice(boolean bufferStorage, int framesInFlight) {
+		if (framesInFlight < 0) {
+			throw new IllegalArgumentException("Frames in flight must not be negative");
+		}
+
+		this.bufferStorage = bufferStorage;
+		this.framesInFlight = new long[framesInFlight];
+	}
+
+	@Override
+	public int genVertexArray() {
+		liveVertexArrays++;
+		return nextVaoId++;
+	}
+
+	@Override
+	public void bindVertexArray(int vaoId) {
+		if (vaoId == boundVaoId) {
+			redundantStateChanges++;
+		} else {
+			stateChanges++;
+			boundVaoId = vaoId;
+		}
+	}
+
+	@Override
+	public void deleteVertexArray(int vaoId) {
+		liveVertexArrays--;
+		if (vaoId == boundVaoId) {
+			boundVaoId = 0;
+		}
+	}
+
+	@Override
+	public int genBuffer() {
+		int bufferId = nextBufferId++;
+		bufferSizes.put(bufferId, 0L);
+		return bufferId;
+	}
+
+	@Override
+	public void bindBuffer(int target, int bufferId) {
+		Integer previous = bufferId == 0 ? boundBuffers.remove(target) : boundBuffers.put(target, bufferId);
+		if ((previous == null ? 0 : previous) == bufferId) {
+			redundantStateChanges++;
+		} else {
+			stateChanges++;
+		}
+	}
+
+	@Override
+	public void bufferData(int target, ByteBuffer data, int usage) {
+		storeData(target, data.remaining());
+	}
+
+	@Override
+	public void bufferData(int target, FloatBuffer data, int usage) {
+		storeData(target, (long) data.remaining() * Float.BYTES);
+	}
+
+	@Override
+	public void bufferData(int target, IntBuffer data, int usage) {
+		storeData(target, (long) data.remaining() * Integer.BYTES);
+	}
+
+	@Override
+	public void bufferData(int target, long size, int usage) {
+		if (bufferSizes.get(boundBufferId(target)) > 0) {
+			orphans++;
+		}
+
+		resize(target, size);
+		mappableStorage.put(boundBufferId(target), ByteBuffer.allocateDirect((int) size));
+	}
+
+	@Override
+	public void bufferSubData(int target, long offset, ByteBuffer data) {
+		if (offset + data.remaining() > bufferSizes.get(boundBufferId(target))) {
+			throw new IllegalArgumentException("Buffer sub data runs past the end of the buffer");
+		}
+
+		bytesUploaded += data.remaining();
+	}
+
+	@Override
+	public boolean supportsBufferStorage() {
+		return bufferStorage;
+	}
+
+	@Override
+	public void bufferStorage(int target, long size, int flags) {
+		if (!bufferStorage) {
+			throw new IllegalStateException("Buffer storage is not supported");
+		}
+
+		resize(target, size);
+		mappableStorage.put(boundBufferId(target), ByteBuffer.allocateDirect((int) size));
+	}
+
+	@Override
+	public ByteBuffer mapBufferRange(int target, long offset, long length, int access) {
+		ByteBuffer storage = mappableStorage.get(boundBufferId(target));
+		if (storage == null || offset + length > storage.capacity()) {
+			throw new IllegalArgumentException("Mapped range is outside of the buffer's storage");
+		}
+
+		ByteBuffer mapped = storage.duplicate();
+		mapped.limit((int) (offset + length)).position((int) offset);
+		return mapped.slice().order(ByteOrder.nativeOrder());
+	}
+
+	@Override
+	public void unmapBuffer(int target) {
+		boundBufferId(target);
+	}
+
+	@Override
+	public long fenceSync() {
+		fences++;
+		return nextSync++;
+	}
+
+	@Override
+	public int clientWaitSync(long sync, long timeoutNs) {
+		if (sync <= signaledSync) {
+			return GL32.GL_ALREADY_SIGNALED;
+		} else if (timeoutNs == 0) {
+			return GL32.GL_TIMEOUT_EXPIRED;
+		}
+
+		syncStalls++;
+		signaledSync = sync;
+		return GL32.GL_CONDITION_SATISFIED;
+	}
+
+	@Override
+	public void deleteSync(long sync) {
+	}
+
+	@Override
+	public boolean supportsTimerQuery() {
+		return true;
+	}
+
+	@Override
+	public int genQuery() {
+		queries.put(nextQueryId, new Query());
+		return nextQueryId++;
+	}
+
+	@Override
+	public void beginQuery(int target, int queryId) {
+		Query query = checkQuery(queryId);
+		if (activeQueries.containsKey(target)) {
+			throw new IllegalStateException("Query " + queryId + " begun while another is active on its target");
+		}
+
+		query.drawCalls = 0;
+		query.endedFrame = -1;
+		activeQueries.put(target, query);
+	}
+
+	@Override
+	public void endQuery(int target) {
+		Query query = activeQueries.remove(target);
+		if (query == null) {
+			throw new IllegalStateException("Query ended with none active on its target");
+		}
+
+		query.endedFrame = frame;
+	}
+
+	@Override
+	public int getQueryObjecti(int queryId, int name) {
+		if (name == GL15.GL_QUERY_RESULT_AVAILABLE) {
+			return isAvailable(checkEndedQuery(queryId)) ? 1 : 0;
+		}
+		return (int) getQueryObjecti64(queryId, name);
+	}
+
+	@Override
+	public long getQueryObjecti64(int queryId, int name) {
+		if (name != GL15.GL_QUERY_RESULT) {
+			throw new IllegalArgumentException("Only GL_QUERY_RESULT and GL_QUERY_RESULT_AVAILABLE are recorded");
+		}
+
+		Query query = checkEndedQuery(queryId);
+		if (!isAvailable(query)) {
+			syncStalls++;
+		}
+		return query.drawCalls * drawCallNs;
+	}
+
+	@Override
+	public void deleteQuery(int queryId) {
+		queries.remove(queryId);
+	}
+
+	private Query checkQuery(int queryId) {
+		Query query = queries.get(queryId);
+		if (query == null) {
+			throw new IllegalArgumentException("Query " + queryId + " does not exist");
+		}
+		return query;
+	}
+
+	private Query checkEndedQuery(int queryId) {
+		Query query = checkQuery(queryId);
+		if (query.endedFrame == -1) {
+			throw new IllegalStateException("Query " + queryId + " read before it was ended");
+		}
+		return query;
+	}
+
+	/* Finished by the modeled GPU at the same time as a fence from its frame would be */
+	private boolean isAvailable(Query query) {
+		return frame > query.endedFrame + framesInFlight.length;
+	}
+
+	@Override
+	public void deleteBuffer(int bufferId) {
+		mappableStorage.remove(bufferId);
+		Long size = bufferSizes.remove(bufferId);
+		if (size != null) {
+			bufferBytes -= size;
+		}
+
+		/* Deleting a bound buffer unbinds it, per OpenGL */
+		boundBuffers.values().remove(bufferId);
+	}
+
+	@Override
+	public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long offset) {
+	}
+
+	@Override
+	public void enableVertexAttribArray(int index) {
+	}
+
+	@Override
+	public void disableVertexAttribArray(int index) {
+	}
+
+	@Override
+	public void vertexAttribDivisor(int index, int divisor) {
+	}
+
+	@Override
+	public void drawElements(int mode, int count, int type, long offset) {
+		drawElementsInstanced(mode, count, type, offset, 1);
+	}
+
+	@Override
+	public void drawElementsBaseVertex(int mode, int count, int type, long offset, int baseVertex) {
+		drawElementsInstanced(mode, count, type, offset, 1);
+	}
+
+	@Override
+	public void drawArrays(int mode, int first, int count) {
+		drawElementsInstanced(mode, count, 0, 0, 1);
+	}
+
+	@Override
+	public void drawElementsInstanced(int mode, int count, int type, long offset, int instances) {
+		if (boundVaoId == 0) {
+			throw new IllegalStateException("Draw call made with no VAO bound");
+		}
+
+		drawCalls++;
+		instancesDrawn += instances;
+		if (!activeQueries.isEmpty()) {
+			for (Query query : activeQueries.values()) {
+				query.drawCalls++;
+			}
+		}
+		indicesDrawn += (long) count * instances;
+	}
+
+	@Override
+	public int getInteger(int name) {
+		if (name != GL41.GL_NUM_PROGRAM_BINARY_FORMATS) {
+			throw new IllegalArgumentException("Only GL_NUM_PROGRAM_BINARY_FORMATS is recorded");
+		}
+		return 1;
+	}
+
+	@Override
+	public String getString(int name) {
+		switch (name) {
+		case GL11.GL_VENDOR:
+			return "Arsia";
+		case GL11.GL_RENDERER:
+			return "RecordingRenderDevice";
+		case GL11.GL_VERSION:
+			return "4.1";
+		default:
+			throw new IllegalArgumentException("Only GL_VENDOR, GL_RENDERER and GL_VERSION are recorded");
+		}
+	}
+
+	@Override
+	public int createShader(int type) {
+		if (type != GL20.GL_VERTEX_SHADER && type != GL20.GL_FRAGMENT_SHADER) {
+			throw new IllegalArgumentException("Only vertex and fragment shaders are recorded");
+		}
+
+		int shaderId = nextShaderObjectId++;
+		shaders.put(shaderId, new Shader(type));
+		return shaderId;
+	}
+
+	@Override
+	public void shaderSource(int shaderId, String source) {
+		shader(shaderId).source = source;
+	}
+
+	@Override
+	public void compileShader(int shaderId) {
+		Shader shader = shader(shaderId);
+		shader.compiled = shader.source.matches("(?s).*\\bvoid\\s+main\\s*\\(.*");
+		shader.infoLog = shader.compiled ? "" : "0:1: error: no function main() defined";
+		shaderCompiles++;
+	}
+
+	@Override
+	public int getShaderi(int shaderId, int name) {
+		if (name != GL20.GL_COMPILE_STATUS) {
+			throw new IllegalArgumentException("Only GL_COMPILE_STATUS is recorded");
+		}
+		return shader(shaderId).compiled ? GL11.GL_TRUE : GL11.GL_FALSE;
+	}
+
+	@Override
+	public String getShaderInfoLog(int shaderId) {
+		return shader(shaderId).infoLog;
+	}
+
+	@Override
+	public void deleteShader(int shaderId) {
+		Shader shader = shader(shaderId);
+		shader.deleted = true;
+		if (shader.attachments == 0) {
+			shaders.remove(shaderId);
+		}
+	}
+
+	@Override
+	public int createProgram() {
+		int programId = nextShaderObjectId++;
+		programs.put(programId, new Program());
+		return programId;
+	}
+
+	@Override
+	public void attachShader(int programId, int shaderId) {
+		Program program = program(programId);
+		if (program.shaderIds.contains(shaderId)) {
+			throw new IllegalStateException("Shader " + shaderId + " is already attached to program " + programId);
+		}
+
+		program.shaderIds.add(shaderId);
+		shader(shaderId).attachments++;
+	}
+
+	@Override
+	public void detachShader(int programId, int shaderId) {
+		if (!program(programId).shaderIds.remove((Integer) shaderId)) {
+			throw new IllegalStateException("Shader " + shaderId + " is not attached to program " + programId);
+		}
+
+		Shader shader = shader(shaderId);
+		if (--shader.attachments == 0 && shader.deleted) {
+			shaders.remove(shaderId);
+		}
+	}
+
+	@Override
+	public void bindAttribLocation(int programId, int index, String name) {
+		program(programId).attributeBindings.put(name, index);
+	}
+
+	@Override
+	public void programParameteri(int programId, int name, int value) {
+		program(programId);
+	}
+
+	@Override
+	public void linkProgram(int programId) {
+		Program program = program(programId);
+		String vertexSource = null, fragmentSource = null;
+		for (int shaderId : program.shaderIds) {
+			Shader shader = shader(shaderId);
+			if (!shader.compiled) {
+				vertexSource = fragmentSource = null;
+				break;
+			} else if (shader.type == GL20.GL_VERTEX_SHADER) {
+				vertexSource = shader.source;
+			} else {
+				fragmentSource = shader.source;
+			}
+		}
+		link(program, vertexSource, fragmentSource);
+	}
+
+	@Override
+	public int getProgrami(int programId, int name) {
+		Program program = program(programId);
+		switch (name) {
+		case GL20.GL_LINK_STATUS:
+			return program.linked ? GL11.GL_TRUE : GL11.GL_FALSE;
+		case GL20.GL_ACTIVE_UNIFORMS:
+			return program.uniforms.size();
+		case GL20.GL_ACTIVE_ATTRIBUTES:
+			return program.attributes.size();
+		case GL41.GL_PROGRAM_BINARY_LENGTH:
+			return program.linked ? binaryOf(program).length : 0;
+		default:
+			throw new IllegalArgumentException("Program parameter " + name + " is not recorded");
+		}
+	}
+
+	@Override
+	public String getProgramInfoLog(int programId) {
+		return program(programId).infoLog;
+	}
+
+	@Override
+	public String getActiveUniform(int programId, int index) {
+		return program(programId).uniforms.get(index);
+	}
+
+	@Override
+	public int getUniformLocation(int programId, String name) {
+		return program(programId).uniformLocations.getOrDefault(name, -1);
+	}
+
+	@Override
+	public String getActiveAttrib(int programId, int index) {
+		return program(programId).attributes.get(index);
+	}
+
+	@Override
+	public int getAttribLocation(int programId, String name) {
+		return program(programId).attributeLocations.getOrDefault(name, -1);
+	}
+
+	@Override
+	public void useProgram(int programId) {
+		if (programId != 0 && !program(programId).linked) {
+			throw new IllegalStateException("Program " + programId + " is not linked");
+		}
+
+		if (programId == programInUse) {
+			redundantStateChanges++;
+		} else {
+			stateChanges++;
+			programInUse = programId;
+		}
+	}
+
+	@Override
+	public void deleteProgram(int programId) {
+		Program program = program(programId);
+		for (int shaderId : new ArrayList<Integer>(program.shaderIds)) {
+			detachShader(programId, shaderId);
+		}
+		programs.remove(programId);
+
+		/* Unlike other objects, a program in use stays in use until another is, per OpenGL */
+	}
+
+	@Override
+	public boolean supportsProgramBinary() {
+		return true;
+	}
+
+	@Override
+	public void getProgramBinary(int programId, IntBuffer length, IntBuffer binaryFormat, ByteBuffer binary) {
+		Program program = program(programId);
+		if (!program.linked) {
+			throw new IllegalStateException("Program " + programId + " is not linked");
+		}
+
+		byte[] bytes = binaryOf(program);
+		if (bytes.length > binary.remaining()) {
+			throw new IllegalArgumentException("Program binary of " + bytes.length + " bytes does not fit");
+		}
+		binary.duplicate().put(bytes);
+		length.put(length.position(), bytes.length);
+		binaryFormat.put(binaryFormat.position(), PROGRAM_BINARY_FORMAT);
+	}
+
+	@Override
+	public void programBinary(int programId, int binaryFormat, ByteBuffer binary) {
+		Program program = program(programId);
+		byte[] bytes = new byte[binary.remaining()];
+		binary.duplicate().get(bytes);
+
+		/* The sources, then the attribute bindings as name and location pairs, all separated by NULs */
+		String[] parts = new String(bytes, StandardCharsets.UTF_8).split("\0", -1);
+		if (binaryFormat != PROGRAM_BINARY_FORMAT || parts.length < 2 || parts.length % 2 != 0) {
+			link(program, null, null);
+			program.infoLog = "Program binary is not valid";
+			return;
+		}
+
+		program.attributeBindings.clear();
+		try {
+			for (int i = 2; i < parts.length; i += 2) {
+				program.attributeBindings.put(parts[i], Integer.parseInt(parts[i + 1]));
+			}
+		} catch (NumberFormatException e) {
+			link(program, null, null);
+			program.infoLog = "Program binary is not valid";
+			return;
+		}
+		link(program, parts[0], parts[1]);
+	}
+
+	@Override
+	public void uniform1i(int location, int value) {
+		uniformUploads++;
+	}
+
+	@Override
+	public void uniform1f(int location, float value) {
+		uniformUploads++;
+	}
+
+	@Override
+	public void uniform2f(int location, float x, float y) {
+		uniformUploads++;
+	}
+
+	@Override
+	public void uniform3f(int location, float x, float y, float z) {
+		uniformUploads++;
+	}
+
+	@Override
+	public void uniform4f(int location, float x, float y, float z, float w) {
+		uniformUploads++;
+	}
+
+	@Override
+	public void uniformMatrix4fv(int location, boolean transpose, float[] value) {
+		if (value.length != 16) {
+			throw new IllegalArgumentException("Expected 16 matrix elements, but got " + value.length);
+		}
+		uniformUploads++;
+	}
+
+	@Override
+	public int genTexture() {
+		int textureId = nextTextureId++;
+		textureLevelBytes.put(textureId, new long[32]);
+		return textureId;
+	}
+
+	@Override
+	public void deleteTexture(int textureId) {
+		long[] levels = textureLevelBytes.remove(textureId);
+		if (levels != null) {
+			for (long bytes : levels) {
+				textureBytes -= bytes;
+			}
+		}
+
+		/* Deleting a bound texture unbinds it, per OpenGL */
+		boundTextures.values().remove(textureId);
+	}
+
+	@Override
+	public void texParameteri(int target, int name, int value) {
+		boundTextureId(target);
+	}
+
+	@Override
+	public void texImage2D(int target, int level, int internalFormat, int width, int height, int format, int type,
+			long offset) {
+		if (format != GL11.GL_RGBA || type != GL11.GL_UNSIGNED_BYTE) {
+			throw new IllegalArgumentException("Only GL_RGBA, GL_UNSIGNED_BYTE pixels are counted");
+		}
+
+		long size = (long) width * height * 4;
+		if (offset + size > bufferSizes.get(boundBufferId(GL21.GL_PIXEL_UNPACK_BUFFER))) {
+			throw new IllegalArgumentException("Texture image runs past the end of the unpack buffer");
+		}
+
+		long[] levels = textureLevelBytes.get(boundTextureId(target));
+		textureBytes += size - levels[level];
+		levels[level] = size;
+		bytesUploaded += size;
+	}
+
+	@Override
+	public void bindTexture(int target, int textureId) {
+		Integer previous = textureId == 0 ? boundTextures.remove(target) : boundTextures.put(target, textureId);
+		if ((previous == null ? 0 : previous) == textureId) {
+			redundantStateChanges++;
+		} else {
+			stateChanges++;
+		}
+	}
+
+	@Override
+	public void clearColor(float red, float green, float blue, float alpha) {
+	}
+
+	@Override
+	public void clear(int mask) {
+	}
+
+	@Override
+	public void viewport(int x, int y, int width, int height) {
+		viewportWidth = width;
+		viewportHeight = height;
+	}
+
+	@Override
+	public int genFramebuffer() {
+		int framebufferId = nextFramebufferId++;
+		framebufferAttachments.put(framebufferId, new HashMap<Integer, Integer>());
+		return framebufferId;
+	}
+
+	@Override
+	public void bindFramebuffer(int target, int framebufferId) {
+		if (framebufferId != 0 && !framebufferAttachments.containsKey(framebufferId)) {
+			throw new IllegalArgumentException("Framebuffer " + framebufferId + " does not exist");
+		}
+
+		boolean read = target != GL30.GL_DRAW_FRAMEBUFFER, draw = target != GL30.GL_READ_FRAMEBUFFER;
+		if ((!read || readFramebufferId == framebufferId) && (!draw || drawFramebufferId == framebufferId)) {
+			redundantStateChanges++;
+		} else {
+			stateChanges++;
+		}
+
+		if (read) {
+			readFramebufferId = framebufferId;
+		}
+		if (draw) {
+			drawFramebufferId = framebufferId;
+		}
+	}
+
+	@Override
+	public void deleteFramebuffer(int framebufferId) {
+		framebufferAttachments.remove(framebufferId);
+
+		/* Deleting a bound framebuffer binds the window's own, per OpenGL */
+		if (readFramebufferId == framebufferId) {
+			readFramebufferId = 0;
+		}
+		if (drawFramebufferId == framebufferId) {
+			drawFramebufferId = 0;
+		}
+	}
+
+	@Override
+	public int checkFramebufferStatus(int target) {
+		int framebufferId = boundFramebufferId(target);
+		if (framebufferId == 0) {
+			return GL30.GL_FRAMEBUFFER_COMPLETE;
+		}
+
+		Map<Integer, Integer> attachments = framebufferAttachments.get(framebufferId);
+		if (attachments.isEmpty()) {
+			return GL30.GL_FRAMEBUFFER_INCOMPLETE_MISSING_ATTACHMENT;
+		}
+		for (int renderbufferId : attachments.values()) {
+			if (renderbufferSizes.get(renderbufferId) == 0) {
+				return GL30.GL_FRAMEBUFFER_INCOMPLETE_ATTACHMENT;
+			}
+		}
+		return GL30.GL_FRAMEBUFFER_COMPLETE;
+	}
+
+	@Override
+	public int genRenderbuffer() {
+		int renderbufferId = nextRenderbufferId++;
+		renderbufferSizes.put(renderbufferId, 0L);
+		return renderbufferId;
+	}
+
+	@Override
+	public void bindRenderbuffer(int target, int renderbufferId) {
+		if (renderbufferId == boundRenderbufferId) {
+			redundantStateChanges++;
+		} else {
+			stateChanges++;
+			boundRenderbufferId = renderbufferId;
+		}
+	}
+
+	@Override
+	public void renderbufferStorage(int target, int internalFormat, int width, int height) {
+		if (internalFormat != GL30.GL_RGBA8 && internalFormat != GL30.GL_DEPTH_COMPONENT24) {
+			throw new IllegalArgumentException("Only GL_RGBA8 and GL_DEPTH_COMPONENT24 renderbuffers are counted");
+		}
+		if (boundRenderbufferId == 0) {
+			throw new IllegalStateException("No renderbuffer bound to target " + target);
+		}
+
+		/* Drivers pad 24 bit depth out to 32 bits, the same as RGBA8 */
+		long size = (long) width * height * 4;
+		renderbufferBytes += size - renderbufferSizes.put(boundRenderbufferId, size);
+	}
+
+	@Override
+	public void deleteRenderbuffer(int renderbufferId) {
+		Long size = renderbufferSizes.remove(renderbufferId);
+		if (size != null) {
+			renderbufferBytes -= size;
+		}
+		if (boundRenderbufferId == renderbufferId) {
+			boundRenderbufferId = 0;
+		}
+
+		/* Deleting an attached renderbuffer detaches it from the bound framebuffers, per OpenGL */
+		for (int framebufferId : new int[] { readFramebufferId, drawFramebufferId }) {
+			if (framebufferId != 0) {
+				framebufferAttachments.get(framebufferId).values().remove(renderbufferId);
+			}
+		}
+	}
+
+	@Override
+	public void framebufferRenderbuffer(int target, int attachment, int renderbufferTarget, int renderbufferId) {
+		int framebufferId = boundFramebufferId(target);
+		if (framebufferId == 0) {
+			throw new IllegalStateException("No framebuffer bound to target " + target);
+		}
+
+		if (renderbufferId == 0) {
+			framebufferAttachments.get(framebufferId).remove(attachment);
+		} else {
+			framebufferAttachments.get(framebufferId).put(attachment, renderbufferId);
+		}
+	}
+
+	@Override
+	public void blitFramebuffer(int srcX0, int srcY0, int srcX1, int srcY1, int dstX0, int dstY0, int dstX1,
+			int dstY1, int mask, int filter) {
+		if (readFramebufferId == drawFramebufferId) {
+			throw new IllegalStateException("Blit made with the same framebuffer bound to read and draw");
+		}
+
+		blits++;
+	}
+
+	/**
+	 * Ends a frame, as swapping buffers would, and signals every fence from the
+	 * frame the modeled GPU has now finished.
+	 */
+	public void endFrame() {
+		long lastSync = nextSync - 1;
+		if (framesInFlight.length == 0) {
+			signaledSync = lastSync;
+		} else {
+			int index = (int) (frame % framesInFlight.length);
+			signaledSync = Math.max(signaledSync, framesInFlight[index]);
+			framesInFlight[index] = lastSync;
+		}
+
+		frame++;
+	}
+
+	/**
+	 * Clears the draw call and state change counts, typically once per frame.
+	 * Buffer memory is not affected.
+	 */
+	public void resetCounters() {
+		drawCalls = 0;
+		instancesDrawn = 0;
+		indicesDrawn = 0;
+		stateChanges = 0;
+		redundantStateChanges = 0;
+		uniformUploads = 0;
+		bytesUploaded = 0;
+		fences = 0;
+		orphans = 0;
+		syncStalls = 0;
+		blits = 0;
+		shaderCompiles = 0;
+	}
+
+	/**
+	 * Returns the total size of every buffer that has not been deleted.
+	 * 
+	 * @return the live buffer memory, in bytes
+	 */
+	public long getBufferBytes() {
+		return bufferBytes;
+	}
+
+	/**
+	 * Returns how many bytes were stored in buffers and textures since the
+	 * counters were last reset, including data that replaced earlier data.
+	 * 
+	 * @return the bytes uploaded, in bytes
+	 */
+	public long getBytesUploaded() {
+		return bytesUploaded;
+	}
+
+	/**
+	 * Returns the number of buffers that have not been deleted.
+	 * 
+	 * @return the live buffer count
+	 */
+	public int getBufferCount() {
+		return bufferSizes.size();
+	}
+
+	/**
+	 * Returns the memory a buffer's storage is mapped from, so that what was
+	 * written into it can be read back.
+	 * 
+	 * @param bufferId
+	 *            the Id of the buffer
+	 * @return a read-only view of the whole storage, in native byte order, or
+	 *         null if the buffer has no storage
+	 */
+	public ByteBuffer getBufferStorage(int bufferId) {
+		ByteBuffer storage = mappableStorage.get(bufferId);
+		return storage == null ? null : storage.asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Returns the total size of every mipmap level of every texture that has not
+	 * been deleted.
+	 * 
+	 * @return the live texture memory, in bytes
+	 */
+	public long getTextureBytes() {
+		return textureBytes;
+	}
+
+	/**
+	 * Returns the number of textures that have not been deleted.
+	 * 
+	 * @return the live texture count
+	 */
+	public int getTextureCount() {
+		return textureLevelBytes.size();
+	}
+
+	/**
+	 * Sets how long the modeled GPU takes over each draw call, as measured by
+	 * timer queries. This is zero until set.
+	 * 
+	 * @param drawCallNs
+	 *            the time per draw call, in nanoseconds
+	 */
+	public void setDrawCallNs(long drawCallNs) {
+		this.drawCallNs = drawCallNs;
+	}
+
+	/**
+	 * Returns the number of queries that have not been deleted.
+	 * 
+	 * @return the live query count
+	 */
+	public int getQueryCount() {
+		return queries.size();
+	}
+
+	/**
+	 * Returns the number of VAOs that have not been deleted.
+	 * 
+	 * @return the live VAO count
+	 */
+	public int getVertexArrayCount() {
+		return liveVertexArrays;
+	}
+
+	/**
+	 * Returns the number of draw calls, instanced or not, since the counters were
+	 * last reset.
+	 * 
+	 * @return the draw call count
+	 */
+	public int getDrawCalls() {
+		return drawCalls;
+	}
+
+	/**
+	 * Returns the number of instances drawn since the counters were last reset,
+	 * where a draw call that is not instanced counts as one.
+	 * 
+	 * @return the instance count
+	 */
+	public int getInstancesDrawn() {
+		return instancesDrawn;
+	}
+
+	/**
+	 * Returns the number of indices drawn since the counters were last reset,
+	 * counting every instance, and counting vertices for draws without indices.
+	 * 
+	 * @return the index count
+	 */
+	public long getIndicesDrawn() {
+		return indicesDrawn;
+	}
+
+	/**
+	 * Returns how many VAO, buffer and texture binds changed the bound state since
+	 * the counters were last reset.
+	 * 
+	 * @return the state change count
+	 */
+	public int getStateChanges() {
+		return stateChanges;
+	}
+
+	/**
+	 * Returns how many VAO, buffer and texture binds rebound what was already
+	 * bound since the counters were last reset. These are wasted calls on a real driver.
+	 * 
+	 * @return the redundant state change count
+	 */
+	public int getRedundantStateChanges() {
+		return redundantStateChanges;
+	}
+
+	/**
+	 * Returns the number of uniforms set since the counters were last reset.
+	 * 
+	 * @return the uniform upload count
+	 */
+	public int getUniformUploads() {
+		return uniformUploads;
+	}
+
+	/**
+	 * Returns how many fences were inserted since the counters were last reset.
+	 * 
+	 * @return the fence count
+	 */
+	public int getFences() {
+		return fences;
+	}
+
+	/**
+	 * Returns how many times a buffer with storage was given new storage since
+	 * the counters were last reset, which orphans the old storage.
+	 * 
+	 * @return the orphan count
+	 */
+	public int getOrphans() {
+		return orphans;
+	}
+
+	/**
+	 * Returns how many waits on a fence or a query result had to block, for the
+	 * modeled GPU to catch up, since the counters were last reset.
+	 * 
+	 * @return the stall count
+	 */
+	public int getSyncStalls() {
+		return syncStalls;
+	}
+
+	/**
+	 * Returns the total size of every renderbuffer that has not been deleted.
+	 * 
+	 * @return the live renderbuffer memory, in bytes
+	 */
+	public long getRenderbufferBytes() {
+		return renderbufferBytes;
+	}
+
+	/**
+	 * Returns the number of framebuffers that have not been deleted.
+	 * 
+	 * @return the live framebuffer count
+	 */
+	public int getFramebufferCount() {
+		return framebufferAttachments.size();
+	}
+
+	/**
+	 * Returns the Id of the framebuffer that draw calls go to.
+	 * 
+	 * @return the bound draw framebuffer, or zero for the window's own
+	 */
+	public int getDrawFramebufferId() {
+		return drawFramebufferId;
+	}
+
+	/**
+	 * Returns the width of the viewport last set.
+	 * 
+	 * @return the viewport width, in pixels
+	 */
+	public int getViewportWidth() {
+		return viewportWidth;
+	}
+
+	/**
+	 * Returns the height of the viewport last set.
+	 * 
+	 * @return the viewport height, in pixels
+	 */
+	public int getViewportHeight() {
+		return viewportHeight;
+	}
+
+	/**
+	 * Returns how many framebuffer blits were made since the counters were last
+	 * reset.
+	 * 
+	 * @return the blit count
+	 */
+	public int getBlits() {
+		return blits;
+	}
+
+	/**
+	 * Returns the number of shaders that have not been deleted, counting those
+	 * deleted while still attached to a program.
+	 * 
+	 * @return the live shader count
+	 */
+	public int getShaderCount() {
+		return shaders.size();
+	}
+
+	/**
+	 * Returns the number of programs that have not been deleted.
+	 * 
+	 * @return the live program count
+	 */
+	public int getProgramCount() {
+		return programs.size();
+	}
+
+	/**
+	 * Returns the Id of the program in use.
+	 * 
+	 * @return the program in use, or zero for none
+	 */
+	public int getProgramInUse() {
+		return programInUse;
+	}
+
+	/**
+	 * Returns how many shaders were compiled since the counters were last reset.
+	 * 
+	 * @return the shader compile count
+	 */
+	public int getShaderCompiles() {
+		return shaderCompiles;
+	}
+
+	private int boundBufferId(int target) {
+		Integer bufferId = boundBuffers.get(target);
+		if (bufferId == null) {
+			throw new IllegalStateException("No buffer bound to target " + target);
+		}
+		return bufferId;
+	}
+
+	private int boundTextureId(int target) {
+		Integer textureId = boundTextures.get(target);
+		if (textureId == null) {
+			throw new IllegalStateException("No texture bound to target " + target);
+		}
+		return textureId;
+	}
+
+	private int boundFramebufferId(int target) {
+		return target == GL30.GL_READ_FRAMEBUFFER ? readFramebufferId : drawFramebufferId;
+	}
+
+	private void storeData(int target, long size) {
+		resize(target, size);
+		bytesUploaded += size;
+	}
+
+	private Shader shader(int shaderId) {
+		Shader shader = shaders.get(shaderId);
+		if (shader == null) {
+			throw new IllegalArgumentException("Shader " + shaderId + " does not exist");
+		}
+		return shader;
+	}
+
+	private Program program(int programId) {
+		Program program = programs.get(programId);
+		if (program == null) {
+			throw new IllegalArgumentException("Program " + programId + " does not exist");
+		}
+		return program;
+	}
+
+	/* Links from the specified sources, or fails to when either is missing */
+	private static void link(Program program, String vertexSource, String fragmentSource) {
+		program.uniforms.clear();
+		program.uniformLocations.clear();
+		program.attributes.clear();
+		program.attributeLocations.clear();
+		program.linked = vertexSource != null && fragmentSource != null;
+		program.infoLog = program.linked ? "" : "A compiled vertex and fragment shader must be attached";
+		program.vertexSource = vertexSource;
+		program.fragmentSource = fragmentSource;
+		if (!program.linked) {
+			return;
+		}
+
+		/* Each element of an array has a location of its own, and the array is named after the first */
+		int location = 0;
+		for (String source : new String[] { vertexSource, fragmentSource }) {
+			Matcher uniform = UNIFORM.matcher(source);
+			while (uniform.find()) {
+				String name = uniform.group(1);
+				if (program.uniformLocations.containsKey(name)) {
+					continue;
+				}
+
+				program.uniformLocations.put(name, location);
+				if (uniform.group(2) == null) {
+					program.uniforms.add(name);
+					location++;
+				} else {
+					program.uniforms.add(name + "[0]");
+					for (int i = 0, size = Integer.parseInt(uniform.group(2)); i < size; i++) {
+						program.uniformLocations.put(name + "[" + i + "]", location++);
+					}
+				}
+			}
+		}
+
+		/* Unbound attributes take the lowest locations no binding asked for */
+		int nextLocation = 0;
+		Matcher attribute = ATTRIBUTE.matcher(vertexSource);
+		while (attribute.find()) {
+			String name = attribute.group(1);
+			Integer bound = program.attributeBindings.get(name);
+			if (bound == null) {
+				while (program.attributeBindings.containsValue(nextLocation)
+						|| program.attributeLocations.containsValue(nextLocation)) {
+					nextLocation++;
+				}
+				bound = nextLocation;
+			}
+			program.attributes.add(name);
+			program.attributeLocations.put(name, bound);
+		}
+	}
+
+	private static byte[] binaryOf(Program program) {
+		StringBuilder binary = new StringBuilder(program.vertexSource).append('\0').append(program.fragmentSource);
+		for (Map.Entry<String, Integer> binding : program.attributeLocations.entrySet()) {
+			binary.append('\0').append(binding.getKey()).append('\0').append(binding.getValue());
+		}
+		return binary.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private void resize(int target, long size) {
+		int bufferId = boundBufferId(target);
+		bufferBytes += size - bufferSizes.put(bufferId, size);
+	}
+}
@@ -0,0 +1,939 @@
+package renderEngine;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * The OpenGL calls the render engine makes, gathered behind one interface so
+ * that the engine does not call OpenGL directly. There are three
+ * implementations:
+ * 
+ * <ul>
+ * <li>{@link renderEngine.LwjglRenderDevice} - passes every call straight to
+ * OpenGL through LWJGL, on a window's context</li>
+ * <li>{@link renderEngine.OffscreenRenderDevice} - the same, but on a hidden
+ * context of its own, for build machines with no display</li>
+ * <li>{@link renderEngine.RecordingRenderDevice} - makes no OpenGL calls at
+ * all, and instead counts buffer memory, draw calls and state changes</li>
+ * </ul>
+ * 
+ * Each method mirrors the OpenGL function of the same name, taking the same
+ * OpenGL enums. Every call must be made on the thread that owns the device's
+ * context.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public interface RenderDevice {
+
+	/**
+	 * Creates an empty Vertex Array Object.
+	 * 
+	 * @return the Id of the new VAO
+	 */
+	int genVertexArray();
+
+	/**
+	 * Binds a VAO to the pipeline, or unbinds with zero.
+	 * 
+	 * @param vaoId
+	 *            the Id of the VAO
+	 */
+	void bindVertexArray(int vaoId);
+
+	/**
+	 * Deletes a VAO.
+	 * 
+	 * @param vaoId
+	 *            the Id of the VAO
+	 */
+	void deleteVertexArray(int vaoId);
+
+	/**
+	 * Creates an empty buffer object.
+	 * 
+	 * @return the Id of the new buffer
+	 */
+	int genBuffer();
+
+	/**
+	 * Binds a buffer to a target, or unbinds with zero.
+	 * 
+	 * @param target
+	 *            the buffer target, such as GL_ARRAY_BUFFER
+	 * @param bufferId
+	 *            the Id of the buffer
+	 */
+	void bindBuffer(int target, int bufferId);
+
+	/**
+	 * Fills the buffer bound to a target with the remaining bytes of the data.
+	 * 
+	 * @param target
+	 *            the buffer target
+	 * @param data
+	 *            the data, in a read-from state
+	 * @param usage
+	 *            the usage hint, such as GL_STATIC_DRAW
+	 */
+	void bufferData(int target, ByteBuffer data, int usage);
+
+	/**
+	 * Fills the buffer bound to a target with the remaining floats of the data.
+	 * 
+	 * @param target
+	 *            the buffer target
+	 * @param data
+	 *            the data, in a read-from state
+	 * @param usage
+	 *            the usage hint, such as GL_STATIC_DRAW
+	 */
+	void bufferData(int target, FloatBuffer data, int usage);
+
+	/**
+	 * Fills the buffer bound to a target with the remaining ints of the data.
+	 * 
+	 * @param target
+	 *            the buffer target
+	 * @param data
+	 *            the data, in a read-from state
+	 * @param usage
+	 *            the usage hint, such as GL_STATIC_DRAW
+	 */
+	void bufferData(int target, IntBuffer data, int usage);
+
+	/**
+	 * Allocates the buffer bound to a target without filling it. Calling this on a
+	 * buffer that is still in use "orphans" its old storage: OpenGL keeps the old
+	 * storage until pending draws are done with it, rather than making the caller
+	 * wait.
+	 * 
+	 * @param target
+	 *            the buffer target
+	 * @param size
+	 *            the size to allocate, in bytes
+	 * @param usage
+	 *            the usage hint, such as GL_STREAM_DRAW
+	 */
+	void bufferData(int target, long size, int usage);
+
+	/**
+	 * Replaces part of the buffer bound to a target with the remaining bytes of
+	 * the data.
+	 * 
+	 * @param target
+	 *            the buffer target
+	 * @param offset
+	 *            where in the buffer to start writing, in bytes
+	 * @param data
+	 *            the data, in a read-from state
+	 */
+	void bufferSubData(int target, long offset, ByteBuffer data);
+
+	/**
+	 * Returns whether this device supports immutable buffer storage, through
+	 * OpenGL 4.4 or the ARB_buffer_storage extension, which is needed for
+	 * {@link #bufferStorage(int, long, int)}.
+	 * 
+	 * @return true if buffer storage is supported
+	 */
+	boolean supportsBufferStorage();
+
+	/**
+	 * Allocates immutable storage for the buffer bound to a target, which can
+	 * then stay mapped while it is drawn from.
+	 * 
+	 * @param target
+	 *            the buffer target
+	 * @param size
+	 *            the size to allocate, in bytes
+	 * @param flags
+	 *            how the storage may be used, such as GL_MAP_PERSISTENT_BIT
+	 */
+	void bufferStorage(int target, long size, int flags);
+
+	/**
+	 * Maps part of the buffer bound to a target into memory the CPU can write.
+	 * 
+	 * @param target
+	 *            the buffer target
+	 * @param offset
+	 *            the start of the range, in bytes
+	 * @param length
+	 *            the size of the range, in bytes
+	 * @param access
+	 *            how the range may be used, such as GL_MAP_WRITE_BIT
+	 * @return the mapped memory, in native byte order
+	 */
+	ByteBuffer mapBufferRange(int target, long offset, long length, int access);
+
+	/**
+	 * Unmaps the buffer bound to a target.
+	 * 
+	 * @param target
+	 *            the buffer target
+	 */
+	void unmapBuffer(int target);
+
+	/**
+	 * Inserts a fence that is signaled once the GPU has finished every command
+	 * issued before it.
+	 * 
+	 * @return the fence
+	 */
+	long fenceSync();
+
+	/**
+	 * Waits for a fence to be signaled, flushing commands first so that it will
+	 * be.
+	 * 
+	 * @param sync
+	 *            the fence
+	 * @param timeoutNs
+	 *            how long to wait at most, in nanoseconds
+	 * @return GL_ALREADY_SIGNALED, GL_CONDITION_SATISFIED, GL_TIMEOUT_EXPIRED or
+	 *         GL_WAIT_FAILED
+	 */
+	int clientWaitSync(long sync, long timeoutNs);
+
+	/**
+	 * Deletes a fence.
+	 * 
+	 * @param sync
+	 *            the fence
+	 */
+	void deleteSync(long sync);
+
+	/**
+	 * Returns whether the context has timer queries, from either OpenGL 3.3 or
+	 * the ARB_timer_query extension, which are needed to begin a query on
+	 * GL_TIME_ELAPSED.
+	 * 
+	 * @return true if timer queries are supported
+	 */
+	boolean supportsTimerQuery();
+
+	/**
+	 * Creates a query object.
+	 * 
+	 * @return the Id of the new query
+	 */
+	int genQuery();
+
+	/**
+	 * Starts a query, which then measures every command issued until it is
+	 * ended.
+	 * 
+	 * @param target
+	 *            what is measured, such as GL_TIME_ELAPSED
+	 * @param queryId
+	 *            the Id of the query
+	 */
+	void beginQuery(int target, int queryId);
+
+	/**
+	 * Ends the active query on a target.
+	 * 
+	 * @param target
+	 *            the target the query was begun on
+	 */
+	void endQuery(int target);
+
+	/**
+	 * Reads a parameter of a query that fits in an int, such as whether its
+	 * result is available yet.
+	 * 
+	 * @param queryId
+	 *            the Id of the query
+	 * @param name
+	 *            the parameter, such as GL_QUERY_RESULT_AVAILABLE
+	 * @return the value of the parameter
+	 */
+	int getQueryObjecti(int queryId, int name);
+
+	/**
+	 * Reads a 64-bit parameter of a query, such as a time elapsed result.
+	 * Reading GL_QUERY_RESULT before it is available waits for the GPU.
+	 * 
+	 * @param queryId
+	 *            the Id of the query
+	 * @param name
+	 *            the parameter, such as GL_QUERY_RESULT
+	 * @return the value of the parameter
+	 */
+	long getQueryObjecti64(int queryId, int name);
+
+	/**
+	 * Deletes a query object.
+	 * 
+	 * @param queryId
+	 *            the Id of the query
+	 */
+	void deleteQuery(int queryId);
+
+	/**
+	 * Deletes a buffer object.
+	 * 
+	 * @param bufferId
+	 *            the Id of the buffer
+	 */
+	void deleteBuffer(int bufferId);
+
+	/**
+	 * Points a VAO attribute list at data in the buffer bound to GL_ARRAY_BUFFER.
+	 * 
+	 * @param index
+	 *            the VAO attribute list index
+	 * @param size
+	 *            the number of components
+	 * @param type
+	 *            the type of each component
+	 * @param normalized
+	 *            whether integer data is mapped onto -1 to 1 or 0 to 1
+	 * @param stride
+	 *            the distance between two vertices, in bytes
+	 * @param offset
+	 *            the offset of the first component, in bytes
+	 */
+	void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long offset);
+
+	/**
+	 * Enables a VAO attribute list for the bound VAO.
+	 * 
+	 * @param index
+	 *            the VAO attribute list index
+	 */
+	void enableVertexAttribArray(int index);
+
+	/**
+	 * Disables a VAO attribute list for the bound VAO.
+	 * 
+	 * @param index
+	 *            the VAO attribute list index
+	 */
+	void disableVertexAttribArray(int index);
+
+	/**
+	 * Sets how often a VAO attribute list of the bound VAO moves on to its next
+	 * element. Zero moves on every vertex, and one moves on every instance, for
+	 * per-instance data such as model matrices.
+	 * 
+	 * @param index
+	 *            the VAO attribute list index
+	 * @param divisor
+	 *            the number of instances that share each element, or zero for
+	 *            one element per vertex
+	 */
+	void vertexAttribDivisor(int index, int divisor);
+
+	/**
+	 * Draws indexed primitives from the bound VAO.
+	 * 
+	 * @param mode
+	 *            the kind of primitive, such as GL_TRIANGLES
+	 * @param count
+	 *            the number of indices
+	 * @param type
+	 *            the type of each index
+	 * @param offset
+	 *            the offset of the first index, in bytes
+	 */
+	void drawElements(int mode, int count, int type, long offset);
+
+	/**
+	 * Draws several instances of indexed primitives from the bound VAO.
+	 * 
+	 * @param mode
+	 *            the kind of primitive, such as GL_TRIANGLES
+	 * @param count
+	 *            the number of indices
+	 * @param type
+	 *            the type of each index
+	 * @param offset
+	 *            the offset of the first index, in bytes
+	 * @param instances
+	 *            the number of instances
+	 */
+	void drawElementsInstanced(int mode, int count, int type, long offset, int instances);
+
+	/**
+	 * Draws indexed primitives from the bound VAO, adding a constant to every
+	 * index, so that one index buffer can be reused for vertices anywhere in the
+	 * vertex buffer.
+	 * 
+	 * @param mode
+	 *            the kind of primitive, such as GL_TRIANGLES
+	 * @param count
+	 *            the number of indices
+	 * @param type
+	 *            the type of each index
+	 * @param offset
+	 *            the offset of the first index, in bytes
+	 * @param baseVertex
+	 *            the number added to every index
+	 */
+	void drawElementsBaseVertex(int mode, int count, int type, long offset, int baseVertex);
+
+	/**
+	 * Draws primitives from consecutive vertices of the bound VAO, without
+	 * indices.
+	 * 
+	 * @param mode
+	 *            the kind of primitive, such as GL_TRIANGLES
+	 * @param first
+	 *            the first vertex
+	 * @param count
+	 *            the number of vertices
+	 */
+	void drawArrays(int mode, int first, int count);
+
+	/**
+	 * Returns the value of an integer state variable.
+	 * 
+	 * @param name
+	 *            the state variable, such as GL_NUM_PROGRAM_BINARY_FORMATS
+	 * @return the value
+	 */
+	int getInteger(int name);
+
+	/**
+	 * Returns a string describing the driver.
+	 * 
+	 * @param name
+	 *            which string, such as GL_VENDOR, GL_RENDERER or GL_VERSION
+	 * @return the string
+	 */
+	String getString(int name);
+
+	/**
+	 * Creates an empty shader object.
+	 * 
+	 * @param type
+	 *            the kind of shader, such as GL_VERTEX_SHADER
+	 * @return the Id of the new shader
+	 */
+	int createShader(int type);
+
+	/**
+	 * Replaces the source code of a shader.
+	 * 
+	 * @param shaderId
+	 *            the Id of the shader
+	 * @param source
+	 *            the GLSL source
+	 */
+	void shaderSource(int shaderId, String source);
+
+	/**
+	 * Compiles the source code of a shader. Whether it compiled is read back with
+	 * {@link #getShaderi(int, int)} and GL_COMPILE_STATUS.
+	 * 
+	 * @param shaderId
+	 *            the Id of the shader
+	 */
+	void compileShader(int shaderId);
+
+	/**
+	 * Returns a parameter of a shader.
+	 * 
+	 * @param shaderId
+	 *            the Id of the shader
+	 * @param name
+	 *            the parameter, such as GL_COMPILE_STATUS
+	 * @return the value of the parameter
+	 */
+	int getShaderi(int shaderId, int name);
+
+	/**
+	 * Returns the messages the compiler left for a shader.
+	 * 
+	 * @param shaderId
+	 *            the Id of the shader
+	 * @return the info log, which may be empty
+	 */
+	String getShaderInfoLog(int shaderId);
+
+	/**
+	 * Deletes a shader. A shader still attached to a program is only deleted
+	 * once it is detached.
+	 * 
+	 * @param shaderId
+	 *            the Id of the shader
+	 */
+	void deleteShader(int shaderId);
+
+	/**
+	 * Creates an empty program object.
+	 * 
+	 * @return the Id of the new program
+	 */
+	int createProgram();
+
+	/**
+	 * Attaches a shader to a program, to be linked into it.
+	 * 
+	 * @param programId
+	 *            the Id of the program
+	 * @param shaderId
+	 *            the Id of the shader
+	 */
+	void attachShader(int programId, int shaderId);
+
+	/**
+	 * Detaches a shader from a program.
+	 * 
+	 * @param programId
+	 *            the Id of the program
+	 * @param shaderId
+	 *            the Id of the shader
+	 */
+	void detachShader(int programId, int shaderId);
+
+	/**
+	 * Binds a vertex attribute of a program to a VAO attribute list, taking
+	 * effect the next time the program is linked.
+	 * 
+	 * @param programId
+	 *            the Id of the program
+	 * @param index
+	 *            the attribute list
+	 * @param name
+	 *            the name of the attribute
+	 */
+	void bindAttribLocation(int programId, int index, String name);
+
+	/**
+	 * Sets a parameter of a program, such as
+	 * GL_PROGRAM_BINARY_RETRIEVABLE_HINT.
+	 * 
+	 * @param programId
+	 *            the Id of the program
+	 * @param name
+	 *            the parameter
+	 * @param value
+	 *            the new value of the parameter
+	 */
+	void programParameteri(int programId, int name, int value);
+
+	/**
+	 * Links the shaders attached to a program. Whether it linked is read back
+	 * with {@link #getProgrami(int, int)} and GL_LINK_STATUS.
+	 * 
+	 * @param programId
+	 *            the Id of the program
+	 */
+	void linkProgram(int programId);
+
+	/**
+	 * Returns a parameter of a program.
+	 * 
+	 * @param programId
+	 *            the Id of the program
+	 * @param name
+	 *            the parameter, such as GL_LINK_STATUS or GL_ACTIVE_UNIFORMS
+	 * @return the value of the parameter
+	 */
+	int getProgrami(int programId, int name);
+
+	/**
+	 * Returns the messages the linker left for a program.
+	 * 
+	 * @param programId
+	 *            the Id of the program
+	 * @return the info log, which may be empty
+	 */
+	String getProgramInfoLog(int programId);
+
+	/**
+	 * Returns the name of an active uniform of a linked program, with arrays
+	 * named after their first element, such as "lights[0]".
+	 * 
+	 * @param programId
+	 *            the Id of the program
+	 * @param index
+	 *            the index of the uniform, below GL_ACTIVE_UNIFORMS
+	 * @return the name of the uniform
+	 */
+	String getActiveUniform(int programId, int index);
+
+	/**
+	 * Returns the location of a uniform of a linked program.
+	 * 
+	 * @param programId
+	 *            the Id of the program
+	 * @param name
+	 *            the name of the uniform
+	 * @return the location, or -1 if the program has no such active uniform
+	 */
+	int getUniformLocation(int programId, String name);
+
+	/**
+	 * Returns the name of an active vertex attribute of a linked program.
+	 * 
+	 * @param programId
+	 *            the Id of the program
+	 * @param index
+	 *            the index of the attribute, below GL_ACTIVE_ATTRIBUTES
+	 * @return the name of the attribute
+	 */
+	String getActiveAttrib(int programId, int index);
+
+	/**
+	 * Returns the location of a vertex attribute of a linked program.
+	 * 
+	 * @param programId
+	 *            the Id of the program
+	 * @param name
+	 *            the name of the attribute
+	 * @return the location, or -1 if the program has no such active attribute
+	 */
+	int getAttribLocation(int programId, String name);
+
+	/**
+	 * Puts a program in use for the following draws and uniform uploads, or none
+	 * with zero.
+	 * 
+	 * @param programId
+	 *            the Id of the program
+	 */
+	void useProgram(int programId);
+
+	/**
+	 * Deletes a program, along with any shaders left attached to it that were
+	 * already deleted.
+	 * 
+	 * @param programId
+	 *            the Id of the program
+	 */
+	void deleteProgram(int programId);
+
+	/**
+	 * Returns whether linked programs can be read back and reloaded as binaries,
+	 * which needs OpenGL 4.1 or ARB_get_program_binary.
+	 * 
+	 * @return true if the program binary methods may be called
+	 */
+	boolean supportsProgramBinary();
+
+	/**
+	 * Reads the binary of a linked program, which the same driver can reload
+	 * with {@link #programBinary(int, int, ByteBuffer)}. Its size is read with
+	 * {@link #getProgrami(int, int)} and GL_PROGRAM_BINARY_LENGTH.
+	 * 
+	 * @param programId
+	 *            the Id of the program
+	 * @param length
+	 *            receives the number of bytes written
+	 * @param binaryFormat
+	 *            receives the driver's format of the binary
+	 * @param binary
+	 *            receives the binary, from its position
+	 */
+	void getProgramBinary(int programId, IntBuffer length, IntBuffer binaryFormat, ByteBuffer binary);
+
+	/**
+	 * Replaces a program with a binary read by
+	 * {@link #getProgramBinary(int, IntBuffer, IntBuffer, ByteBuffer)}. The
+	 * driver may reject it, which is read back with GL_LINK_STATUS.
+	 * 
+	 * @param programId
+	 *            the Id of the program
+	 * @param binaryFormat
+	 *            the driver's format of the binary
+	 * @param binary
+	 *            the remaining bytes of the binary
+	 */
+	void programBinary(int programId, int binaryFormat, ByteBuffer binary);
+
+	/**
+	 * Sets an int or sampler uniform of the program in use.
+	 * 
+	 * @param location
+	 *            the location of the uniform
+	 * @param value
+	 *            the new value
+	 */
+	void uniform1i(int location, int value);
+
+	/**
+	 * Sets a float uniform of the program in use.
+	 * 
+	 * @param location
+	 *            the location of the uniform
+	 * @param value
+	 *            the new value
+	 */
+	void uniform1f(int location, float value);
+
+	/**
+	 * Sets a vec2 uniform of the program in use.
+	 * 
+	 * @param location
+	 *            the location of the uniform
+	 * @param x
+	 *            the first component
+	 * @param y
+	 *            the second component
+	 */
+	void uniform2f(int location, float x, float y);
+
+	/**
+	 * Sets a vec3 uniform of the program in use.
+	 * 
+	 * @param location
+	 *            the location of the uniform
+	 * @param x
+	 *            the first component
+	 * @param y
+	 *            the second component
+	 * @param z
+	 *            the third component
+	 */
+	void uniform3f(int location, float x, float y, float z);
+
+	/**
+	 * Sets a vec4 uniform of the program in use.
+	 * 
+	 * @param location
+	 *            the location of the uniform
+	 * @param x
+	 *            the first component
+	 * @param y
+	 *            the second component
+	 * @param z
+	 *            the third component
+	 * @param w
+	 *            the fourth component
+	 */
+	void uniform4f(int location, float x, float y, float z, float w);
+
+	/**
+	 * Sets a mat4 uniform of the program in use.
+	 * 
+	 * @param location
+	 *            the location of the uniform
+	 * @param transpose
+	 *            whether the matrix is in row-major rather than column-major order
+	 * @param value
+	 *            the 16 elements of the matrix
+	 */
+	void uniformMatrix4fv(int location, boolean transpose, float[] value);
+
+	/**
+	 * Creates an empty texture object.
+	 * 
+	 * @return the Id of the new texture
+	 */
+	int genTexture();
+
+	/**
+	 * Deletes a texture object.
+	 * 
+	 * @param textureId
+	 *            the Id of the texture
+	 */
+	void deleteTexture(int textureId);
+
+	/**
+	 * Sets a parameter of the texture bound to a target.
+	 * 
+	 * @param target
+	 *            the texture target, such as GL_TEXTURE_2D
+	 * @param name
+	 *            the parameter, such as GL_TEXTURE_MIN_FILTER
+	 * @param value
+	 *            the new value of the parameter
+	 */
+	void texParameteri(int target, int name, int value);
+
+	/**
+	 * Stores one mipmap level of the texture bound to a target, reading the pixels
+	 * from the buffer bound to GL_PIXEL_UNPACK_BUFFER, so the copy is made by the
+	 * driver rather than on the calling thread.
+	 * 
+	 * @param target
+	 *            the texture target, such as GL_TEXTURE_2D
+	 * @param level
+	 *            the mipmap level, with zero the full size image
+	 * @param internalFormat
+	 *            how the texture stores its texels, such as GL_RGBA8
+	 * @param width
+	 *            the width of the level, in pixels
+	 * @param height
+	 *            the height of the level, in pixels
+	 * @param format
+	 *            the layout of each pixel in the buffer, such as GL_RGBA
+	 * @param type
+	 *            the type of each pixel component, such as GL_UNSIGNED_BYTE
+	 * @param offset
+	 *            where the pixels start in the unpack buffer, in bytes
+	 */
+	void texImage2D(int target, int level, int internalFormat, int width, int height, int format, int type,
+			long offset);
+
+	/**
+	 * Binds a texture to a target of the active texture unit, or unbinds with
+	 * zero.
+	 * 
+	 * @param target
+	 *            the texture target, such as GL_TEXTURE_2D
+	 * @param textureId
+	 *            the Id of the texture
+	 */
+	void bindTexture(int target, int textureId);
+
+	/**
+	 * Sets the color used to clear the color buffer.
+	 * 
+	 * @param red
+	 *            the red component, from 0 to 1
+	 * @param green
+	 *            the green component, from 0 to 1
+	 * @param blue
+	 *            the blue component, from 0 to 1
+	 * @param alpha
+	 *            the alpha component, from 0 to 1
+	 */
+	void clearColor(float red, float green, float blue, float alpha);
+
+	/**
+	 * Clears the buffers of the bound framebuffer.
+	 * 
+	 * @param mask
+	 *            the buffers to clear, such as GL_COLOR_BUFFER_BIT
+	 */
+	void clear(int mask);
+
+	/**
+	 * Sets the area of the bound framebuffer that drawing is mapped to.
+	 * 
+	 * @param x
+	 *            the left edge, in pixels
+	 * @param y
+	 *            the bottom edge, in pixels
+	 * @param width
+	 *            the width, in pixels
+	 * @param height
+	 *            the height, in pixels
+	 */
+	void viewport(int x, int y, int width, int height);
+
+	/**
+	 * Creates an empty framebuffer object.
+	 * 
+	 * @return the Id of the new framebuffer
+	 */
+	int genFramebuffer();
+
+	/**
+	 * Binds a framebuffer to a target, or binds the window's own framebuffer with
+	 * zero.
+	 * 
+	 * @param target
+	 *            the framebuffer target, such as GL_FRAMEBUFFER, which binds both
+	 *            GL_READ_FRAMEBUFFER and GL_DRAW_FRAMEBUFFER
+	 * @param framebufferId
+	 *            the Id of the framebuffer
+	 */
+	void bindFramebuffer(int target, int framebufferId);
+
+	/**
+	 * Deletes a framebuffer object, but not the images attached to it.
+	 * 
+	 * @param framebufferId
+	 *            the Id of the framebuffer
+	 */
+	void deleteFramebuffer(int framebufferId);
+
+	/**
+	 * Returns whether the framebuffer bound to a target can be drawn to.
+	 * 
+	 * @param target
+	 *            the framebuffer target
+	 * @return GL_FRAMEBUFFER_COMPLETE if it can, or the reason it cannot
+	 */
+	int checkFramebufferStatus(int target);
+
+	/**
+	 * Creates an empty renderbuffer object.
+	 * 
+	 * @return the Id of the new renderbuffer
+	 */
+	int genRenderbuffer();
+
+	/**
+	 * Binds a renderbuffer to a target, or unbinds with zero.
+	 * 
+	 * @param target
+	 *            the renderbuffer target, which is always GL_RENDERBUFFER
+	 * @param renderbufferId
+	 *            the Id of the renderbuffer
+	 */
+	void bindRenderbuffer(int target, int renderbufferId);
+
+	/**
+	 * Gives the renderbuffer bound to a target new storage, replacing any it had.
+	 * 
+	 * @param target
+	 *            the renderbuffer target
+	 * @param internalFormat
+	 *            how the renderbuffer stores its pixels, such as GL_RGBA8
+	 * @param width
+	 *            the width, in pixels
+	 * @param height
+	 *            the height, in pixels
+	 */
+	void renderbufferStorage(int target, int internalFormat, int width, int height);
+
+	/**
+	 * Deletes a renderbuffer object, detaching it from the bound framebuffer.
+	 * 
+	 * @param renderbufferId
+	 *            the Id of the renderbuffer
+	 */
+	void deleteRenderbuffer(int renderbufferId);
+
+	/**
+	 * Attaches a renderbuffer to the framebuffer bound to a target.
+	 * 
+	 * @param target
+	 *            the framebuffer target
+	 * @param attachment
+	 *            where to attach it, such as GL_COLOR_ATTACHMENT0
+	 * @param renderbufferTarget
+	 *            the renderbuffer target, which is always GL_RENDERBUFFER
+	 * @param renderbufferId
+	 *            the Id of the renderbuffer, or zero to detach
+	 */
+	void framebufferRenderbuffer(int target, int attachment, int renderbufferTarget, int renderbufferId);
+
+	/**
+	 * Copies a rectangle of the framebuffer bound to GL_READ_FRAMEBUFFER into a
+	 * rectangle of the one bound to GL_DRAW_FRAMEBUFFER, scaling it if the two
+	 * differ in size.
+	 * 
+	 * @param srcX0
+	 *            the left edge of the source
+	 * @param srcY0
+	 *            the bottom edge of the source
+	 * @param srcX1
+	 *            the right edge of the source
+	 * @param srcY1
+	 *            the top edge of the source
+	 * @param dstX0
+	 *            the left edge of the destination
+	 * @param dstY0
+	 *            the bottom edge of the destination
+	 * @param dstX1
+	 *            the right edge of the destination
+	 * @param dstY1
+	 *            the top edge of the destination
+	 * @param mask
+	 *            the buffers to copy, such as GL_COLOR_BUFFER_BIT
+	 * @param filter
+	 *            how to scale, either GL_NEAREST or GL_LINEAR
+	 */
+	void blitFramebuffer(int srcX0, int srcY0, int srcX1, int srcY1, int dstX0, int dstY0, int dstX1, int dstY1,
+			int mask, int filter);
+}
@@ -1,16 +1,7 @@
 package renderEngine;
 
-import static main.Arsia.ARSIA_DEBUG;
 import static org.lwjgl.glfw.GLFW.glfwSwapBuffers;
-import static org.lwjgl.opengl.GL.createCapabilities;
 import static org.lwjgl.opengl.GL11.GL_TRIANGLES;
-import static org.lwjgl.opengl.GL11.GL_UNSIGNED_INT;
-import static org.lwjgl.opengl.GL11.glClear;
-import static org.lwjgl.opengl.GL11.glClearColor;
-import static org.lwjgl.opengl.GL11.glDrawElements;
-import static org.lwjgl.opengl.GL20.glDisableVertexAttribArray;
-import static org.lwjgl.opengl.GL20.glEnableVertexAttribArray;
-import static org.lwjgl.opengl.GL30.glBindVertexArray;
 
 import java.nio.IntBuffer;
 
@@ -22,6 +13,10 @@ import org.lwjgl.opengl.GL11;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.MemoryUtil;
 
+import input.InputEvent;
+import input.InputQueue;
+import utility.Log;
+
 /**
  * This class functions as the main display for Arsia. It generates a render
  * window that also handles user input. This is achieved by using the underlying
@@ -37,33 +32,38 @@ import org.lwjgl.system.MemoryUtil;
  * <ol type="a">
  * <li>Handle user input</li>
  * <li>Make a call to prepare the rendering engine</li>
- * <li>Finally, render the specified RawModel(s)</li>
+ * <li>Finally, render the specified RawModel(s), preferably by submitting them
+ * all to a {@link renderEngine.RenderQueue} and rendering that once</li>
  * </ol>
  * </li>
  * <li>Clean up resources once the window is closed</li>
  * </ol>
  * 
  * @author Matthew L. Roy
- * 
+ *
  */
 public class RenderInputWindow {
 
+	/* About four seconds of events even at a 1000 Hz mouse, for a stalled tick */
+	private static final int INPUT_QUEUE_CAPACITY = 4096;
+
 	private int windowWidth = 1280, windowHeight = 720, frameCounter = -1;
 
+	/* The size of the window in pixels, which is larger than in screen coordinates on a high DPI display */
+	private int framebufferWidth = 0, framebufferHeight = 0;
+
 	private String windowName = "Window";
 
 	private long window = 0L;
 
-	/**
-	 * This method links OpenGL with the GLFW library. This method is critical for
-	 * LWJGL's interpretation with GLFW's OpenGL context, or any context that is
-	 * managed externally. LWJGL detects the context that is current in the current
-	 * thread, creates the GLCapabilities instance and makes the OpenGL bindings
-	 * available for use.
-	 */
-	public static void linkOpenGLContext() {
-		createCapabilities();
-	}
+	/* One waits for every vertical blank, which is v-sync, until told otherwise */
+	private int swapInterval = 1;
+
+	private GLContext context = null;
+
+	private RenderDevice device = null;
+
+	private final InputQueue inputQueue = new InputQueue(INPUT_QUEUE_CAPACITY);
 
 	/**
 	 * This constructor just sets up the passed variables for the initializing
@@ -133,16 +133,29 @@ public class RenderInputWindow {
 			/* Center the window */
 			GLFW.glfwSetWindowPos(window, (vidmode.width() - pWidth.get(0)) / 2,
 					(vidmode.height() - pHeight.get(0)) / 2);
+
+			GLFW.glfwGetFramebufferSize(window, pWidth, pHeight);
+			framebufferWidth = pWidth.get(0);
+			framebufferHeight = pHeight.get(0);
 		}
 
-		GLFW.glfwMakeContextCurrent(window);
-		GLFW.glfwSwapInterval(1); // Enables v-sync
+		/* Moving to a display of another pixel density changes the framebuffer size, even if not resizable */
+		GLFW.glfwSetFramebufferSizeCallback(window, (window, width, height) -> {
+			framebufferWidth = width;
+			framebufferHeight = height;
+		});
+
+		/* Links OpenGL with GLFW once, rather than every frame or every load */
+		context = GLContext.create(window); // CRITICAL
+		device = new LwjglRenderDevice();
+		GLFW.glfwSwapInterval(swapInterval); // Enables v-sync by default
 		GLFW.glfwShowWindow(window);
 	}
 
 	/**
-	 * Performs a low-level call to the GLFW pipeline to handle events.
-	 * Specifically, input is handled in this call.
+	 * Performs a low-level call to the GLFW pipeline to handle events. Input
+	 * events are not acted on here, but are recorded into the
+	 * {@link #getInputQueue()} for the next tick to read.
 	 */
 	public void handleInput() {
 		/* Will poll ALL events, but currently just INPUT */
@@ -150,30 +163,47 @@ public class RenderInputWindow {
 	}
 
 	/**
-	 * This method is critical for preparing the GLFW API for rendering as it links
-	 * the current OpenGL context. Also, this method sets the clear color to the
-	 * desired RGB configuration and updates the frame counter. Make a call to
-	 * {@link #render(RawModel)} after calling prepare.
+	 * Returns the queue that every key, mouse button, cursor and scroll event is
+	 * recorded into as it is polled. Events are written on the thread calling
+	 * {@link #handleInput()}, and may be read on any one other thread, normally
+	 * the one running ticks.
 	 * 
-	 * @see {@link #linkOpenGLContext()}
+	 * @return the window's input queue
+	 * @see input.ActionMap#update(InputQueue, long)
+	 */
+	public InputQueue getInputQueue() {
+		return inputQueue;
+	}
+
+	/**
+	 * Flags the window to be closed, so that {@link #isClosed()} returns true.
+	 * Must be called on the thread that created the window.
+	 */
+	public void close() {
+		GLFW.glfwSetWindowShouldClose(window, true);
+	}
+
+	/**
+	 * This method prepares the OpenGL pipeline for rendering a new frame. It sets
+	 * the clear color to the desired RGB configuration and updates the frame
+	 * counter. The OpenGL context was already linked by {@link #init()}, so
+	 * nothing needs to be rebuilt here. Make a call to {@link #render(RawModel)}
+	 * after calling prepare.
 	 */
 	public void prepare() {
 		frameCounter++;
+		Log.trace("Frame", frameCounter);
 
-		if (ARSIA_DEBUG) {
-			System.out.println("Frame: " + frameCounter);
-		}
-
-		createCapabilities(); // CRITICAL
-		glClearColor(1.0f, 0.0f, 0.0f, 0.0f);
-		glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
+		device.clearColor(1.0f, 0.0f, 0.0f, 0.0f);
+		device.clear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
 	}
 
 	/**
 	 * Must be called immediately after {@link #prepare()}. This method renders the
 	 * model to the display with the correct position. Uses the model's Vertex Array
-	 * Object (VAO) and then uses the Vertex Buffer Object (VBO) at VAO attribute
-	 * position 0, which coincides with vertex positions.
+	 * Object (VAO) and then enables every VAO attribute list in the model's
+	 * {@link renderEngine.VertexFormat}, where position 0 coincides with vertex
+	 * positions.
 	 * 
 	 * @param model
 	 *            the specified model to be rendered to the display
@@ -183,14 +213,82 @@ public class RenderInputWindow {
 		 * VAO needs to be bound, per its Id, prior to rendering. Also, VBO at VAO
 		 * attribute 0 is positions, per convention of these classes.
 		 */
-		glBindVertexArray(model.getVaoId());
-		glEnableVertexAttribArray(0);
-		glDrawElements(GL_TRIANGLES, model.getVertexCount(), GL_UNSIGNED_INT, 0);
-		glDisableVertexAttribArray(0);
-		glBindVertexArray(0);
+		VertexFormat format = model.getVertexFormat();
+		device.bindVertexArray(model.getVaoId());
+		for (int i = 0; i < format.getAttributeCount(); i++) {
+			device.enableVertexAttribArray(format.getAttribute(i).getIndex());
+		}
+
+		device.drawElements(GL_TRIANGLES, model.getVertexCount(), model.getIndexType().getGlType(),
+				model.getIndexOffset());
+
+		for (int i = 0; i < format.getAttributeCount(); i++) {
+			device.disableVertexAttribArray(format.getAttribute(i).getIndex());
+		}
+		device.bindVertexArray(0);
+		glfwSwapBuffers(window); // CRITICAL
+	}
+
+	/**
+	 * Must be called immediately after {@link #prepare()}. This method draws every
+	 * model submitted to the queue this frame, in the order with the fewest state
+	 * changes, and then displays the frame. Unlike {@link #render(RawModel)}, the
+	 * buffers are swapped only once no matter how many models are drawn.
+	 * 
+	 * @param queue
+	 *            the models to be rendered to the display this frame
+	 */
+	public void render(RenderQueue queue) {
+		queue.flush();
+		swapBuffers();
+	}
+
+	/**
+	 * Displays the frame that has been rendered. Only needed when drawing without
+	 * one of the render methods, which swap buffers themselves.
+	 */
+	public void swapBuffers() {
 		glfwSwapBuffers(window); // CRITICAL
 	}
 
+	/**
+	 * Sets how many vertical blanks each swap of buffers waits for. One is v-sync,
+	 * zero swaps at once and may tear, and minus one is adaptive v-sync, which
+	 * waits like v-sync but swaps at once when a frame misses its vertical blank,
+	 * tearing rather than waiting a whole extra blank. Only pass minus one when
+	 * {@link #supportsAdaptiveSwap()} is true. Takes effect on the next swap if
+	 * the window is already initialized, or once it is otherwise.
+	 * 
+	 * @param swapInterval
+	 *            the swap interval, from -1 up
+	 */
+	public void setSwapInterval(int swapInterval) {
+		this.swapInterval = swapInterval;
+		if (window != MemoryUtil.NULL) {
+			GLFW.glfwSwapInterval(swapInterval);
+		}
+	}
+
+	/**
+	 * Returns how many vertical blanks each swap of buffers waits for.
+	 * 
+	 * @return the swap interval, with minus one meaning adaptive v-sync
+	 */
+	public int getSwapInterval() {
+		return swapInterval;
+	}
+
+	/**
+	 * Returns whether the driver supports adaptive v-sync, through the swap
+	 * control tear extension of WGL or GLX. Must be called after {@link #init()}.
+	 * 
+	 * @return true if a swap interval of minus one may be set
+	 */
+	public boolean supportsAdaptiveSwap() {
+		return GLFW.glfwExtensionSupported("WGL_EXT_swap_control_tear")
+				|| GLFW.glfwExtensionSupported("GLX_EXT_swap_control_tear");
+	}
+
 	/**
 	 * Frees up resources as it relates to the GLFW callback methods and display
 	 * window, while clearing the error stream for GLFW. Call this method when
@@ -203,6 +301,49 @@ public class RenderInputWindow {
 		GLFW.glfwSetErrorCallback(null).free();
 	}
 
+	/**
+	 * Returns the OpenGL context of this window, which is created once by
+	 * {@link #init()} and shared by everything that renders to the window.
+	 * 
+	 * @return the window's OpenGL context, or null before initialization
+	 */
+	public GLContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Returns the width of the window's framebuffer, which is what OpenGL draws
+	 * to. On a high DPI display this is more than the width the window was
+	 * created with, which is in screen coordinates.
+	 * 
+	 * @return the framebuffer width, in pixels, or zero while minimized
+	 */
+	public int getFramebufferWidth() {
+		return framebufferWidth;
+	}
+
+	/**
+	 * Returns the height of the window's framebuffer, which is what OpenGL draws
+	 * to. On a high DPI display this is more than the height the window was
+	 * created with, which is in screen coordinates.
+	 * 
+	 * @return the framebuffer height, in pixels, or zero while minimized
+	 */
+	public int getFramebufferHeight() {
+		return framebufferHeight;
+	}
+
+	/**
+	 * Returns the render device that draws to this window, which is created by
+	 * {@link #init()}. Pass it to the {@link renderEngine.ModelLoader} and
+	 * {@link renderEngine.RenderQueue} that render to this window.
+	 * 
+	 * @return the window's render device, or null before initialization
+	 */
+	public RenderDevice getDevice() {
+		return device;
+	}
+
 	/**
 	 * Returns the state of the GLFW window, specifically if it is closed or open.
 	 * Make sure to call {@link #cleanUp()} after this method returns true,
@@ -215,10 +356,14 @@ public class RenderInputWindow {
 	}
 
 	private void setupInput() {
-		/* This callback is detected in the rendering loop */
-		GLFW.glfwSetKeyCallback(window, (window, key, scancode, action, mods) -> {
-			if (key == GLFW.GLFW_KEY_ESCAPE && action == GLFW.GLFW_RELEASE)
-				GLFW.glfwSetWindowShouldClose(window, true);
-		});
+		/* Callbacks only record events, so that game logic reads them at its own tick rate */
+		GLFW.glfwSetKeyCallback(window, (window, key, scancode, action, mods) -> inputQueue.offer(InputEvent.KEY,
+				key, action, mods, 0, 0, System.nanoTime()));
+		GLFW.glfwSetMouseButtonCallback(window, (window, button, action, mods) -> inputQueue
+				.offer(InputEvent.MOUSE_BUTTON, button, action, mods, 0, 0, System.nanoTime()));
+		GLFW.glfwSetCursorPosCallback(window,
+				(window, x, y) -> inputQueue.offer(InputEvent.CURSOR, 0, 0, 0, x, y, System.nanoTime()));
+		GLFW.glfwSetScrollCallback(window,
+				(window, x, y) -> inputQueue.offer(InputEvent.SCROLL, 0, 0, 0, x, y, System.nanoTime()));
 	}
 }
@@ -0,0 +1,418 @@
+package renderEngine;
+
+import static org.lwjgl.opengl.GL11.GL_FLOAT;
+import static org.lwjgl.opengl.GL11.GL_TRIANGLES;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.lwjgl.opengl.GL15;
+
+import math.TransformBatch;
+
+/**
+ * Collects every model to be drawn in a frame, so they can all be drawn
+ * together in the cheapest order. When the queue is flushed, submissions are
+ * sorted by their render state (currently the VAO), so that each state is only
+ * bound once, and submissions that share a state keep the order they were
+ * submitted in. Back-to-back submissions of the same model are merged into a
+ * single instanced draw. The queue reuses its arrays from frame to frame, so
+ * submitting and flushing does not allocate once it has grown large enough.
+ * 
+ * <p>
+ * Each instance is told apart by its own model matrix, which the vertex shader
+ * reads as a per-instance {@code mat4} attribute over the four VAO attribute
+ * lists from {@link #INSTANCE_MATRIX_ATTRIBUTE}, bound to the name
+ * {@code instanceMatrix} by {@link renderEngine.ShaderManager}. At flush, the
+ * matrices of each merged draw are written into a
+ * {@link renderEngine.StreamingBuffer}, straight from a
+ * {@link math.TransformBatch} with
+ * {@link math.TransformBatch#writeMatrices(int, int, java.nio.ByteBuffer)}
+ * for submissions of a range of objects, and the model's VAO is pointed at
+ * them with an attribute divisor of one. A merged draw holding more instances
+ * than fit in one write of the stream is split into several.
+ * </p>
+ * 
+ * <p>
+ * The OpenGL calls made by {@link #flush()} all go through the queue's
+ * {@link renderEngine.RenderDevice}, so a
+ * {@link renderEngine.RecordingRenderDevice} can count them instead of making
+ * them.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ * @see renderEngine.RenderInputWindow#render(RenderQueue)
+ *
+ */
+public class RenderQueue {
+
+	/**
+	 * The first of the four VAO attribute lists each instance's model matrix is
+	 * read from, one column per list. These are the last four of the 16 lists
+	 * every OpenGL implementation has, leaving the ones below free for models.
+	 */
+	public static final int INSTANCE_MATRIX_ATTRIBUTE = 12;
+
+	/**
+	 * The layout of each instance in the stream: a column-major model matrix, as
+	 * four float columns, 64 bytes
+	 */
+	public static final VertexFormat INSTANCE_FORMAT = new VertexFormat()
+			.add(INSTANCE_MATRIX_ATTRIBUTE, 4, AttributeType.FLOAT)
+			.add(INSTANCE_MATRIX_ATTRIBUTE + 1, 4, AttributeType.FLOAT)
+			.add(INSTANCE_MATRIX_ATTRIBUTE + 2, 4, AttributeType.FLOAT)
+			.add(INSTANCE_MATRIX_ATTRIBUTE + 3, 4, AttributeType.FLOAT);
+
+	/**
+	 * The most instances drawn by one draw call by default, 64 KB of matrices
+	 */
+	public static final int DEFAULT_MAX_INSTANCES = 1024;
+
+	/**
+	 * The most instances normally drawn in a frame by default, which the stream
+	 * holds several frames of
+	 */
+	public static final int DEFAULT_INSTANCES_PER_FRAME = 4096;
+
+	private static final float[] IDENTITY = { 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1 };
+
+	private RawModel[] models = new RawModel[64];
+
+	/* The batch each submission's matrices are written from, or null for a single copied matrix */
+	private TransformBatch[] batches = new TransformBatch[64];
+
+	/* The range of objects in the batch, or nothing for a copied matrix */
+	private int[] firstObjects = new int[64], lastObjects = new int[64];
+
+	/* The column-major model matrix of each submission without a batch, 16 floats apiece */
+	private float[] matrices = new float[64 * 16];
+
+	/* State key in the upper 32 bits, submission index in the lower 32 bits */
+	private long[] sortKeys = new long[64];
+
+	private int count = 0;
+
+	private int drawCalls = 0, instancesDrawn = 0, stateChanges = 0, stateChangesAvoided = 0;
+
+	private final RenderDevice device;
+
+	private final StreamingBuffer instances;
+
+	private final int maxInstances;
+
+	/* Where the matrices of the current draw are being written, and how many so far */
+	private ByteBuffer instanceData = null;
+	private int instanceCount = 0;
+
+	/**
+	 * Constructs a queue that draws by calling OpenGL directly, on the current
+	 * thread's context.
+	 */
+	public RenderQueue() {
+		this(new LwjglRenderDevice());
+	}
+
+	/**
+	 * Constructs a queue that draws through the specified device, with a stream
+	 * sized for {@link #DEFAULT_MAX_INSTANCES} instances per draw and
+	 * {@link #DEFAULT_INSTANCES_PER_FRAME} instances per frame.
+	 * 
+	 * @param device
+	 *            the device to draw with
+	 */
+	public RenderQueue(RenderDevice device) {
+		this(device, DEFAULT_MAX_INSTANCES, DEFAULT_INSTANCES_PER_FRAME);
+	}
+
+	/**
+	 * Constructs a queue that draws through the specified device, whose stream of
+	 * instance matrices holds {@link renderEngine.StreamingBuffer#DEFAULT_FRAMES}
+	 * frames of instances, plus room for the space skipped when the stream wraps,
+	 * so that the GPU can be that many frames behind without flushing ever
+	 * waiting for it.
+	 * 
+	 * @param device
+	 *            the device to draw with
+	 * @param maxInstances
+	 *            the most instances drawn by one draw call
+	 * @param instancesPerFrame
+	 *            the most instances normally drawn in a frame
+	 */
+	public RenderQueue(RenderDevice device, int maxInstances, int instancesPerFrame) {
+		if (maxInstances <= 0 || instancesPerFrame <= 0) {
+			throw new IllegalArgumentException("Render queue needs room for at least one instance");
+		}
+
+		this.device = device;
+		this.maxInstances = maxInstances;
+		this.instances = new StreamingBuffer(device, INSTANCE_FORMAT, maxInstances,
+				Math.addExact(Math.multiplyExact(instancesPerFrame, StreamingBuffer.DEFAULT_FRAMES),
+						Math.multiplyExact(maxInstances, 2)));
+	}
+
+	/**
+	 * Adds a model to be drawn the next time this queue is flushed, with the
+	 * identity model matrix.
+	 * 
+	 * @param model
+	 *            the model to be drawn
+	 */
+	public void submit(RawModel model) {
+		submit(model, IDENTITY, 0);
+	}
+
+	/**
+	 * Adds a model to be drawn the next time this queue is flushed, at the
+	 * specified place. The matrix is copied, so the array may be reused at once.
+	 * 
+	 * @param model
+	 *            the model to be drawn
+	 * @param modelMatrices
+	 *            an array holding the model matrix, in column-major order
+	 * @param offset
+	 *            the index of the matrix's first element in the array
+	 */
+	public void submit(RawModel model, float[] modelMatrices, int offset) {
+		int submission = add(model);
+		System.arraycopy(modelMatrices, offset, matrices, submission * 16, 16);
+	}
+
+	/**
+	 * Adds a model to be drawn the next time this queue is flushed, once at every
+	 * object in a range of a batch. The matrices are only read at flush, so they
+	 * must already be composed, and must not change until then.
+	 * 
+	 * @param model
+	 *            the model to be drawn
+	 * @param batch
+	 *            the batch holding the model matrices
+	 * @param from
+	 *            the index of the first object, inclusive
+	 * @param to
+	 *            the index of the last object, exclusive
+	 */
+	public void submit(RawModel model, TransformBatch batch, int from, int to) {
+		if (from < 0 || to > batch.size() || from > to) {
+			throw new IndexOutOfBoundsException("Range " + from + " to " + to + " is outside 0 to " + batch.size());
+		}
+
+		int submission = add(model);
+		batches[submission] = batch;
+		firstObjects[submission] = from;
+		lastObjects[submission] = to;
+	}
+
+	/**
+	 * Draws every submitted model, in state-sorted order, then empties the queue.
+	 * Must be called on the render thread, between
+	 * {@link renderEngine.RenderInputWindow#prepare()} and swapping buffers, and
+	 * with a program in use that reads the instance matrix, if any.
+	 */
+	public void flush() {
+		drawCalls = 0;
+		instancesDrawn = 0;
+		stateChanges = 0;
+		stateChangesAvoided = 0;
+
+		Arrays.sort(sortKeys, 0, count);
+
+		int boundVaoId = 0;
+		for (int i = 0; i < count;) {
+			RawModel model = models[(int) sortKeys[i]];
+
+			/* Every following submission of the same model joins one instanced draw */
+			int submissions = 1;
+			while (i + submissions < count && models[(int) sortKeys[i + submissions]] == model) {
+				submissions++;
+			}
+
+			if (model.getVaoId() != boundVaoId) {
+				bindModel(model);
+				boundVaoId = model.getVaoId();
+				stateChanges++;
+			} else {
+				stateChangesAvoided++;
+			}
+
+			/* Unsorted, each of these submissions would have bound its own VAO */
+			stateChangesAvoided += submissions - 1;
+
+			drawSubmissions(model, i, i + submissions);
+			i += submissions;
+		}
+
+		if (boundVaoId != 0) {
+			unbindModel();
+		}
+		instances.endFrame();
+
+		Arrays.fill(models, 0, count, null);
+		Arrays.fill(batches, 0, count, null);
+		count = 0;
+	}
+
+	/**
+	 * Returns the number of draw calls made by the most recent flush.
+	 * 
+	 * @return the draw call count
+	 */
+	public int getDrawCalls() {
+		return drawCalls;
+	}
+
+	/**
+	 * Returns the number of instances drawn by the most recent flush, across
+	 * every draw call.
+	 * 
+	 * @return the instance count
+	 */
+	public int getInstancesDrawn() {
+		return instancesDrawn;
+	}
+
+	/**
+	 * Returns the number of times the most recent flush changed the bound state.
+	 * 
+	 * @return the state change count
+	 */
+	public int getStateChanges() {
+		return stateChanges;
+	}
+
+	/**
+	 * Returns how many state changes the most recent flush skipped, compared to
+	 * binding the state for every single submission.
+	 * 
+	 * @return the number of state changes avoided
+	 */
+	public int getStateChangesAvoided() {
+		return stateChangesAvoided;
+	}
+
+	/**
+	 * Frees the stream of instance matrices. The queue must not be used
+	 * afterwards.
+	 */
+	public void cleanUp() {
+		instances.cleanUp();
+	}
+
+	/**
+	 * Binds the model's VAO and enables its attribute lists, along with the
+	 * instance matrix lists, which move on once per instance. Enabled attribute
+	 * lists and divisors are part of the VAO's state, so they do not need to be
+	 * reset again after drawing.
+	 * 
+	 * @param model
+	 *            the model about to be drawn
+	 */
+	protected void bindModel(RawModel model) {
+		device.bindVertexArray(model.getVaoId());
+
+		VertexFormat format = model.getVertexFormat();
+		for (int i = 0; i < format.getAttributeCount(); i++) {
+			device.enableVertexAttribArray(format.getAttribute(i).getIndex());
+		}
+
+		for (VertexAttribute column : INSTANCE_FORMAT.getAttributes()) {
+			device.enableVertexAttribArray(column.getIndex());
+			device.vertexAttribDivisor(column.getIndex(), 1);
+		}
+	}
+
+	/**
+	 * Draws the bound model once for every instance written to the stream since
+	 * the last draw, reading their matrices from wherever the stream put them.
+	 * 
+	 * @param model
+	 *            the model to be drawn, which is already bound
+	 * @param instanceCount
+	 *            the number of instances to be drawn
+	 */
+	protected void drawModel(RawModel model, int instanceCount) {
+		long offset = instances.getDrawOffset();
+		device.bindBuffer(GL15.GL_ARRAY_BUFFER, instances.getBufferId());
+		for (VertexAttribute column : INSTANCE_FORMAT.getAttributes()) {
+			device.vertexAttribPointer(column.getIndex(), column.getComponents(), GL_FLOAT, false,
+					INSTANCE_FORMAT.getStride(), offset + column.getOffset());
+		}
+		device.bindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+		device.drawElementsInstanced(GL_TRIANGLES, model.getVertexCount(), model.getIndexType().getGlType(),
+				model.getIndexOffset(), instanceCount);
+	}
+
+	/**
+	 * Unbinds the VAO once everything in the queue has been drawn.
+	 */
+	protected void unbindModel() {
+		device.bindVertexArray(0);
+	}
+
+	/* Grows the arrays if need be, and files the model under its state */
+	private int add(RawModel model) {
+		if (count == models.length) {
+			models = Arrays.copyOf(models, count * 2);
+			batches = Arrays.copyOf(batches, count * 2);
+			firstObjects = Arrays.copyOf(firstObjects, count * 2);
+			lastObjects = Arrays.copyOf(lastObjects, count * 2);
+			sortKeys = Arrays.copyOf(sortKeys, count * 2);
+			matrices = Arrays.copyOf(matrices, count * 2 * 16);
+		}
+
+		sortKeys[count] = ((long) model.getVaoId() << 32) | count;
+		models[count] = model;
+		return count++;
+	}
+
+	/* Writes the matrices of a run of submissions of one model, drawing whenever a write of the stream fills */
+	private void drawSubmissions(RawModel model, int from, int to) {
+		instanceData = instances.begin();
+		instanceCount = 0;
+
+		for (int i = from; i < to; i++) {
+			int submission = (int) sortKeys[i];
+			TransformBatch batch = batches[submission];
+
+			if (batch == null) {
+				if (instanceCount == maxInstances) {
+					drawWritten(model);
+				}
+				for (int element = 0; element < 16; element++) {
+					instanceData.putFloat(matrices[submission * 16 + element]);
+				}
+				instanceCount++;
+				continue;
+			}
+
+			for (int object = firstObjects[submission]; object < lastObjects[submission];) {
+				if (instanceCount == maxInstances) {
+					drawWritten(model);
+				}
+				int objects = Math.min(lastObjects[submission] - object, maxInstances - instanceCount);
+				batch.writeMatrices(object, object + objects, instanceData);
+				instanceCount += objects;
+				object += objects;
+			}
+		}
+
+		int written = instances.commit();
+		if (written > 0) {
+			drawModel(model, written);
+			drawCalls++;
+			instancesDrawn += written;
+		}
+		instanceData = null;
+	}
+
+	/* Draws a full write of the stream, and begins the next */
+	private void drawWritten(RawModel model) {
+		int written = instances.commit();
+		drawModel(model, written);
+		drawCalls++;
+		instancesDrawn += written;
+
+		instanceData = instances.begin();
+		instanceCount = 0;
+	}
+}
@@ -0,0 +1,216 @@
+package renderEngine;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+
+/**
+ * Renders at a fraction of the window's resolution, into a framebuffer of its
+ * own, and stretches the result over the window when the frame is done. This
+ * cuts the pixels shaded each frame by the square of the scale, for when the
+ * GPU cannot keep up at full resolution. To use it, each frame:
+ * 
+ * <ol>
+ * <li>Call {@link #bind()} before {@link renderEngine.RenderInputWindow#prepare()},
+ * so that the clear and every draw go to the scaled framebuffer</li>
+ * <li>Draw the frame as usual</li>
+ * <li>Call {@link #blitToScreen()} before swapping buffers</li>
+ * </ol>
+ * 
+ * At a scale of one, no framebuffer is kept at all, and neither method makes
+ * any calls, so drawing goes straight to the window with the viewport left as
+ * it is. Sizes are in pixels of the window's framebuffer, as given by
+ * {@link renderEngine.RenderInputWindow#getFramebufferWidth()}, which on a
+ * high DPI display are more than its size in screen coordinates.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class ScaledFramebuffer {
+
+	private final RenderDevice device;
+
+	private int width, height;
+
+	private float scale = 1f;
+
+	private int scaledWidth = 0, scaledHeight = 0;
+
+	private int framebufferId = 0, colorId = 0, depthId = 0;
+
+	/**
+	 * Constructs a scaled framebuffer at full resolution, which creates nothing
+	 * until the scale is lowered.
+	 * 
+	 * @param device
+	 *            the device the window is drawn with
+	 * @param width
+	 *            the width of the window's framebuffer, in pixels
+	 * @param height
+	 *            the height of the window's framebuffer, in pixels
+	 */
+	public ScaledFramebuffer(RenderDevice device, int width, int height) {
+		this.device = device;
+		this.width = width;
+		this.height = height;
+		this.scaledWidth = width;
+		this.scaledHeight = height;
+	}
+
+	/**
+	 * Sets the fraction of the window's resolution to render at, taking effect on
+	 * the next {@link #bind()}. The color and depth images are only created again
+	 * when the size in pixels changes.
+	 * 
+	 * @param scale
+	 *            the scale, from above zero up to one
+	 * @throws IllegalStateException
+	 *             if the framebuffer cannot be drawn to at the new size
+	 */
+	public void setScale(float scale) {
+		this.scale = Math.min(1f, scale);
+
+		int newWidth = Math.max(1, Math.round(width * this.scale));
+		int newHeight = Math.max(1, Math.round(height * this.scale));
+		if (newWidth == scaledWidth && newHeight == scaledHeight) {
+			return;
+		}
+		scaledWidth = newWidth;
+		scaledHeight = newHeight;
+
+		if (newWidth == width && newHeight == height) {
+			cleanUp();
+			return;
+		}
+
+		if (framebufferId == 0) {
+			framebufferId = device.genFramebuffer();
+			colorId = device.genRenderbuffer();
+			depthId = device.genRenderbuffer();
+		}
+
+		device.bindRenderbuffer(GL30.GL_RENDERBUFFER, colorId);
+		device.renderbufferStorage(GL30.GL_RENDERBUFFER, GL30.GL_RGBA8, scaledWidth, scaledHeight);
+		device.bindRenderbuffer(GL30.GL_RENDERBUFFER, depthId);
+		device.renderbufferStorage(GL30.GL_RENDERBUFFER, GL30.GL_DEPTH_COMPONENT24, scaledWidth, scaledHeight);
+		device.bindRenderbuffer(GL30.GL_RENDERBUFFER, 0);
+
+		device.bindFramebuffer(GL30.GL_FRAMEBUFFER, framebufferId);
+		device.framebufferRenderbuffer(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, GL30.GL_RENDERBUFFER, colorId);
+		device.framebufferRenderbuffer(GL30.GL_FRAMEBUFFER, GL30.GL_DEPTH_ATTACHMENT, GL30.GL_RENDERBUFFER, depthId);
+		int status = device.checkFramebufferStatus(GL30.GL_FRAMEBUFFER);
+		device.bindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+
+		if (status != GL30.GL_FRAMEBUFFER_COMPLETE) {
+			cleanUp();
+			throw new IllegalStateException("Scaled framebuffer of " + scaledWidth + "x" + scaledHeight
+					+ " is incomplete, with status " + status);
+		}
+	}
+
+	/**
+	 * Follows a change in the size of the window's framebuffer, such as when the
+	 * window moves to a display of another pixel density, keeping the scale. The
+	 * viewport is set to cover the window, and the scaled framebuffer, if any, is
+	 * created again at the new size. A size of zero, which a minimized window
+	 * has, is ignored. Does nothing if the size has not changed, so it can be
+	 * called every frame.
+	 * 
+	 * @param width
+	 *            the width of the window's framebuffer, in pixels
+	 * @param height
+	 *            the height of the window's framebuffer, in pixels
+	 */
+	public void setWindowSize(int width, int height) {
+		if ((width == this.width && height == this.height) || width <= 0 || height <= 0) {
+			return;
+		}
+
+		float currentScale = scale;
+		cleanUp();
+		this.width = width;
+		this.height = height;
+		scaledWidth = width;
+		scaledHeight = height;
+		device.viewport(0, 0, width, height);
+		setScale(currentScale);
+	}
+
+	/**
+	 * Makes the following clear and draw calls go to the scaled framebuffer, with
+	 * the viewport set to match. Does nothing at full resolution, as drawing
+	 * already goes to the window.
+	 */
+	public void bind() {
+		if (framebufferId == 0) {
+			return;
+		}
+
+		device.bindFramebuffer(GL30.GL_FRAMEBUFFER, framebufferId);
+		device.viewport(0, 0, scaledWidth, scaledHeight);
+	}
+
+	/**
+	 * Stretches the frame drawn into the scaled framebuffer over the whole window,
+	 * filtering linearly, and leaves the window bound with a viewport covering
+	 * it. Does nothing at full resolution, as the frame is already in the window.
+	 */
+	public void blitToScreen() {
+		if (framebufferId == 0) {
+			return;
+		}
+
+		device.bindFramebuffer(GL30.GL_READ_FRAMEBUFFER, framebufferId);
+		device.bindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, 0);
+		device.blitFramebuffer(0, 0, scaledWidth, scaledHeight, 0, 0, width, height, GL11.GL_COLOR_BUFFER_BIT,
+				GL11.GL_LINEAR);
+		device.bindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+		device.viewport(0, 0, width, height);
+	}
+
+	/**
+	 * Returns the fraction of the window's resolution being rendered at.
+	 * 
+	 * @return the scale
+	 */
+	public float getScale() {
+		return scale;
+	}
+
+	/**
+	 * Returns the width that frames are rendered at.
+	 * 
+	 * @return the scaled width, in pixels
+	 */
+	public int getWidth() {
+		return scaledWidth;
+	}
+
+	/**
+	 * Returns the height that frames are rendered at.
+	 * 
+	 * @return the scaled height, in pixels
+	 */
+	public int getHeight() {
+		return scaledHeight;
+	}
+
+	/**
+	 * Deletes the framebuffer and its images, if any, going back to drawing
+	 * straight to the window at full resolution. Call this before the OpenGL
+	 * context is destroyed.
+	 */
+	public void cleanUp() {
+		if (framebufferId != 0) {
+			device.deleteFramebuffer(framebufferId);
+			device.deleteRenderbuffer(colorId);
+			device.deleteRenderbuffer(depthId);
+			framebufferId = 0;
+			colorId = 0;
+			depthId = 0;
+		}
+
+		scale = 1f;
+		scaledWidth = width;
+		scaledHeight = height;
+	}
+}
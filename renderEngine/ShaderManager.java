@@ -0,0 +1,430 @@
+package renderEngine;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL41;
+
+import utility.BufferPool;
+import utility.Hashing;
+import utility.Log;
+import utility.PooledBuffer;
+
+/**
+ * Compiles, links and keeps track of {@link renderEngine.ShaderProgram}s.
+ * Before linking, the vertex attributes named {@code position},
+ * {@code color}, {@code normal} and {@code textureCoords} are bound to the VAO
+ * attribute lists 0 to 3 reserved for them in {@link renderEngine.RawModel},
+ * and {@code instanceMatrix} to the lists a {@link renderEngine.RenderQueue}
+ * writes each instance's model matrix to, so every program reads models the
+ * same way without layout qualifiers.
+ * 
+ * <p>
+ * Compiling and linking is slow, so each linked program is saved to a cache
+ * directory with glGetProgramBinary, and loaded from there with
+ * glProgramBinary the next time the same sources are loaded. A cache file is
+ * named after a SHA-256 hash of the sources, the attribute bindings and the
+ * OpenGL vendor, renderer and version strings, so editing a shader or
+ * changing drivers simply misses the cache. A cached binary that the driver
+ * still rejects, which drivers are allowed to do at any time, is compiled
+ * again from source and replaced. When the device supports neither OpenGL
+ * 4.1 nor ARB_get_program_binary, or offers no binary formats, every program
+ * is compiled.
+ * </p>
+ * 
+ * <p>
+ * A cache file is laid out as follows, with every number a little-endian int:
+ * </p>
+ * 
+ * <ol>
+ * <li>The magic number "APRG", then the format {@link #VERSION}</li>
+ * <li>The 32 bytes of the hash the file is named after</li>
+ * <li>The driver's binary format and the binary length, then the binary</li>
+ * </ol>
+ * 
+ * Every OpenGL call goes through a {@link renderEngine.RenderDevice}, so a
+ * manager built on a {@link renderEngine.RecordingRenderDevice} can compile,
+ * cache and use programs without a display. Every method must be called on
+ * the thread that owns the device's context.
+ * 
+ * @author Matthew L. Roy
+ * @see renderEngine.ShaderProgram
+ *
+ */
+public class ShaderManager {
+
+	/**
+	 * The version of the cache format written by this class, to be increased
+	 * whenever the layout changes
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * The file extension used for cache files
+	 */
+	public static final String EXTENSION = ".aprog";
+
+	/* "APRG" when read as little-endian bytes */
+	private static final int MAGIC = 0x47525041;
+
+	private static final int HASH_BYTES = 32, HEADER_BYTES = 4 * Integer.BYTES + HASH_BYTES;
+
+	/* Bound to the VAO attribute list of the same index, per RawModel's conventions */
+	private static final String[] ATTRIBUTES = { "position", "color", "normal", "textureCoords" };
+
+	/* A mat4, taking up the four lists from RenderQueue.INSTANCE_MATRIX_ATTRIBUTE */
+	private static final String INSTANCE_MATRIX = "instanceMatrix";
+
+	private final RenderDevice device;
+
+	private final Path cacheDirectory;
+
+	/* Identifies the driver, since binaries from one driver cannot be used by another */
+	private final String driver;
+
+	private final List<ShaderProgram> programs = new ArrayList<ShaderProgram>();
+
+	private int currentProgramId = 0;
+
+	private int cacheHits = 0, cacheMisses = 0;
+
+	/**
+	 * Constructs a manager that caches linked programs in the specified
+	 * directory, creating it if needed.
+	 * 
+	 * @param device
+	 *            the render device programs are created on
+	 * @param cacheDirectory
+	 *            the directory to keep cached binaries in, or null to always
+	 *            compile
+	 */
+	public ShaderManager(RenderDevice device, Path cacheDirectory) {
+		this.device = device;
+		boolean binariesSupported = cacheDirectory != null && device.supportsProgramBinary()
+				&& device.getInteger(GL41.GL_NUM_PROGRAM_BINARY_FORMATS) > 0;
+		this.cacheDirectory = binariesSupported ? cacheDirectory : null;
+		this.driver = device.getString(GL11.GL_VENDOR) + "\n" + device.getString(GL11.GL_RENDERER) + "\n"
+				+ device.getString(GL11.GL_VERSION);
+
+		if (this.cacheDirectory != null) {
+			try {
+				Files.createDirectories(this.cacheDirectory);
+			} catch (IOException e) {
+				Log.warn("Unable to create the shader cache " + cacheDirectory + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Loads a program from its vertex and fragment shader source files.
+	 * 
+	 * @param name
+	 *            the name of the program, for logging
+	 * @param vertexFile
+	 *            the vertex shader source file, in UTF-8
+	 * @param fragmentFile
+	 *            the fragment shader source file, in UTF-8
+	 * @return the linked program
+	 * @throws IOException
+	 *             if either file cannot be read
+	 * @throws IllegalStateException
+	 *             if either shader does not compile, or the program does not link
+	 */
+	public ShaderProgram load(String name, Path vertexFile, Path fragmentFile) throws IOException {
+		return load(name, new String(Files.readAllBytes(vertexFile), StandardCharsets.UTF_8),
+				new String(Files.readAllBytes(fragmentFile), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Loads a program from the cache if it has been linked before with the same
+	 * sources on the same driver, and otherwise compiles and links it, saving it
+	 * to the cache.
+	 * 
+	 * @param name
+	 *            the name of the program, for logging
+	 * @param vertexSource
+	 *            the GLSL source of the vertex shader
+	 * @param fragmentSource
+	 *            the GLSL source of the fragment shader
+	 * @return the linked program
+	 * @throws IllegalStateException
+	 *             if either shader does not compile, or the program does not link
+	 */
+	public ShaderProgram load(String name, String vertexSource, String fragmentSource) {
+		long startNs = System.nanoTime();
+
+		byte[] hash = null;
+		Path cacheFile = null;
+		if (cacheDirectory != null) {
+			hash = hash(vertexSource, fragmentSource);
+			cacheFile = cacheDirectory.resolve(Hashing.toHex(hash) + EXTENSION);
+
+			int programId = loadBinary(cacheFile, hash);
+			if (programId != 0) {
+				cacheHits++;
+				Log.debug("Loaded shader " + name + " from the cache, in microseconds:",
+						(System.nanoTime() - startNs) / 1000L);
+				return add(new ShaderProgram(device, name, programId, true));
+			}
+			cacheMisses++;
+		}
+
+		int programId = compile(name, vertexSource, fragmentSource);
+		if (cacheFile != null) {
+			saveBinary(programId, cacheFile, hash);
+		}
+
+		Log.debug("Compiled shader " + name + ", in microseconds:", (System.nanoTime() - startNs) / 1000L);
+		return add(new ShaderProgram(device, name, programId, false));
+	}
+
+	/**
+	 * Puts a program in use for the following draws and uniform uploads, unless
+	 * it is in use already.
+	 * 
+	 * @param program
+	 *            the program to use, or null to use none
+	 */
+	public void use(ShaderProgram program) {
+		int programId = program == null ? 0 : program.getProgramId();
+		if (programId != currentProgramId) {
+			device.useProgram(programId);
+			currentProgramId = programId;
+		}
+	}
+
+	/**
+	 * Deletes a program. Its cache file is kept for the next time it is loaded.
+	 * 
+	 * @param program
+	 *            the program to be deleted, which must not be used again
+	 */
+	public void delete(ShaderProgram program) {
+		if (program.getProgramId() == currentProgramId) {
+			use(null);
+		}
+		programs.remove(program);
+		device.deleteProgram(program.getProgramId());
+	}
+
+	/**
+	 * Returns how many programs were loaded from the cache rather than compiled.
+	 * 
+	 * @return the cache hit count
+	 */
+	public int getCacheHits() {
+		return cacheHits;
+	}
+
+	/**
+	 * Returns how many programs had to be compiled because they were not in the
+	 * cache, or the driver rejected the cached binary. Programs compiled because
+	 * binaries are not supported are not counted.
+	 * 
+	 * @return the cache miss count
+	 */
+	public int getCacheMisses() {
+		return cacheMisses;
+	}
+
+	/**
+	 * Returns whether linked programs are being cached on disk.
+	 * 
+	 * @return true if the binary cache is in use
+	 */
+	public boolean isCaching() {
+		return cacheDirectory != null;
+	}
+
+	/**
+	 * Deletes every program still loaded. Call this before the OpenGL context is
+	 * destroyed.
+	 */
+	public void cleanUp() {
+		use(null);
+		for (ShaderProgram program : programs) {
+			device.deleteProgram(program.getProgramId());
+		}
+		programs.clear();
+	}
+
+	private ShaderProgram add(ShaderProgram program) {
+		programs.add(program);
+		return program;
+	}
+
+	private int compile(String name, String vertexSource, String fragmentSource) {
+		int vertexShader = compileShader(name, GL20.GL_VERTEX_SHADER, vertexSource);
+		int fragmentShader;
+		try {
+			fragmentShader = compileShader(name, GL20.GL_FRAGMENT_SHADER, fragmentSource);
+		} catch (IllegalStateException e) {
+			device.deleteShader(vertexShader);
+			throw e;
+		}
+
+		int programId = device.createProgram();
+		device.attachShader(programId, vertexShader);
+		device.attachShader(programId, fragmentShader);
+		for (int i = 0; i < ATTRIBUTES.length; i++) {
+			device.bindAttribLocation(programId, i, ATTRIBUTES[i]);
+		}
+		device.bindAttribLocation(programId, RenderQueue.INSTANCE_MATRIX_ATTRIBUTE, INSTANCE_MATRIX);
+
+		if (cacheDirectory != null) {
+			/* Asks the driver to keep the binary around for glGetProgramBinary */
+			device.programParameteri(programId, GL41.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL11.GL_TRUE);
+		}
+		device.linkProgram(programId);
+
+		/* The linked program keeps what it needs, so the shaders can go at once */
+		device.detachShader(programId, vertexShader);
+		device.detachShader(programId, fragmentShader);
+		device.deleteShader(vertexShader);
+		device.deleteShader(fragmentShader);
+
+		if (device.getProgrami(programId, GL20.GL_LINK_STATUS) == GL11.GL_FALSE) {
+			String infoLog = device.getProgramInfoLog(programId);
+			device.deleteProgram(programId);
+			throw new IllegalStateException("Unable to link shader " + name + ":\n" + infoLog);
+		}
+		return programId;
+	}
+
+	private int compileShader(String name, int type, String source) {
+		int shader = device.createShader(type);
+		device.shaderSource(shader, source);
+		device.compileShader(shader);
+
+		if (device.getShaderi(shader, GL20.GL_COMPILE_STATUS) == GL11.GL_FALSE) {
+			String infoLog = device.getShaderInfoLog(shader);
+			device.deleteShader(shader);
+			throw new IllegalStateException("Unable to compile the "
+					+ (type == GL20.GL_VERTEX_SHADER ? "vertex" : "fragment") + " shader of " + name + ":\n" + infoLog);
+		}
+		return shader;
+	}
+
+	/* Returns the linked program, or 0 if there is no usable cached binary */
+	private int loadBinary(Path file, byte[] hash) {
+		if (!Files.exists(file)) {
+			return 0;
+		}
+
+		PooledBuffer pooled = null;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+				throw new IOException("Not a shader cache file");
+			}
+
+			pooled = BufferPool.SHARED.acquire((int) size);
+			ByteBuffer buffer = pooled.getByteBuffer().duplicate().order(ByteOrder.LITTLE_ENDIAN);
+			buffer.limit((int) size);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new IOException("Shader cache file ended early");
+				}
+			}
+			buffer.flip();
+
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("Not a shader cache file of version " + VERSION);
+			}
+			for (int i = 0; i < HASH_BYTES; i++) {
+				if (buffer.get() != hash[i]) {
+					throw new IOException("Shader cache hash does not match");
+				}
+			}
+
+			int format = buffer.getInt(), length = buffer.getInt();
+			if (length != buffer.remaining()) {
+				throw new IOException("Shader cache binary length does not match");
+			}
+
+			int programId = device.createProgram();
+			device.programBinary(programId, format, buffer.slice());
+			if (device.getProgrami(programId, GL20.GL_LINK_STATUS) == GL11.GL_FALSE) {
+				device.deleteProgram(programId);
+				throw new IOException("Driver rejected the cached binary");
+			}
+			return programId;
+		} catch (IOException | BufferUnderflowException e) {
+			Log.debug("Discarding shader cache file " + file + ": " + e.getMessage());
+			return 0;
+		} finally {
+			if (pooled != null) {
+				pooled.release();
+			}
+		}
+	}
+
+	private void saveBinary(int programId, Path file, byte[] hash) {
+		int length = device.getProgrami(programId, GL41.GL_PROGRAM_BINARY_LENGTH);
+		if (length <= 0) {
+			return;
+		}
+
+		PooledBuffer pooled = BufferPool.SHARED.acquire(HEADER_BYTES + length);
+		try {
+			ByteBuffer buffer = pooled.getByteBuffer().duplicate().order(ByteOrder.LITTLE_ENDIAN);
+			buffer.limit(HEADER_BYTES + length);
+
+			IntBuffer binaryLength = BufferUtils.createIntBuffer(1), format = BufferUtils.createIntBuffer(1);
+			buffer.position(HEADER_BYTES);
+			device.getProgramBinary(programId, binaryLength, format, buffer.slice());
+
+			buffer.position(0);
+			buffer.putInt(MAGIC).putInt(VERSION).put(hash).putInt(format.get(0)).putInt(binaryLength.get(0));
+			buffer.limit(HEADER_BYTES + binaryLength.get(0)).position(0);
+
+			/* Written aside and moved into place, so a crash never leaves half a file */
+			Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Log.warn("Unable to write shader cache file " + file + ": " + e.getMessage());
+		} finally {
+			pooled.release();
+		}
+	}
+
+	private byte[] hash(String vertexSource, String fragmentSource) {
+		MessageDigest digest = Hashing.sha256();
+		update(digest, driver);
+		for (String attribute : ATTRIBUTES) {
+			update(digest, attribute);
+		}
+		update(digest, INSTANCE_MATRIX + " " + RenderQueue.INSTANCE_MATRIX_ATTRIBUTE);
+		update(digest, vertexSource);
+		update(digest, fragmentSource);
+		return digest.digest();
+	}
+
+	/* Length-prefixed, so that text cannot move from one part to the next and hash the same */
+	private static void update(MessageDigest digest, String text) {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+		digest.update(bytes);
+	}
+}
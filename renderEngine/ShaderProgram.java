@@ -0,0 +1,285 @@
+package renderEngine;
+
+import org.lwjgl.opengl.GL20;
+
+/**
+ * A linked OpenGL shader program, along with the locations of its active
+ * uniforms and attributes. Every location is read from the driver once, when
+ * the program is created by {@link renderEngine.ShaderManager}, and kept in a
+ * small open-addressing table, so looking one up by name never calls OpenGL.
+ * Better still, look each location up once, keep it in a field, and pass it to
+ * the set methods, none of which allocate:
+ * 
+ * <pre>
+ * int modelMatrix = program.getUniformLocation("modelMatrix");
+ * ...
+ * shaders.use(program);
+ * program.setMatrix4(modelMatrix, matrix);
+ * </pre>
+ * 
+ * The set methods upload to whichever program is in use, so the program must
+ * be put in use with {@link renderEngine.ShaderManager#use(ShaderProgram)}
+ * first. A location of -1, for a uniform the program does not have or that the
+ * compiler removed, is ignored, as it is by OpenGL. Every OpenGL call goes
+ * through the {@link renderEngine.RenderDevice} the program was created on.
+ * 
+ * @author Matthew L. Roy
+ * @see renderEngine.ShaderManager
+ *
+ */
+public class ShaderProgram {
+
+	private final RenderDevice device;
+	private final String name;
+	private final int programId;
+	private final boolean fromCache;
+
+	/* Open-addressing tables, at most half full, from names to locations */
+	private final String[] uniformNames, attributeNames;
+	private final int[] uniformLocations, attributeLocations;
+	private final int uniformCount, attributeCount;
+
+	/**
+	 * Constructs a program from one that has already been linked, reading the
+	 * locations of all of its active uniforms and attributes.
+	 * 
+	 * @param device
+	 *            the render device the program was linked on
+	 * @param name
+	 *            the name of the program, for logging
+	 * @param programId
+	 *            the Id of the linked program
+	 * @param fromCache
+	 *            whether the program was loaded from a cached binary rather than
+	 *            compiled
+	 */
+	ShaderProgram(RenderDevice device, String name, int programId, boolean fromCache) {
+		this.device = device;
+		this.name = name;
+		this.programId = programId;
+		this.fromCache = fromCache;
+
+		uniformCount = device.getProgrami(programId, GL20.GL_ACTIVE_UNIFORMS);
+		uniformNames = new String[tableSize(uniformCount * 2)];
+		uniformLocations = new int[uniformNames.length];
+		for (int i = 0; i < uniformCount; i++) {
+			String uniform = device.getActiveUniform(programId, i);
+			int location = device.getUniformLocation(programId, uniform);
+			put(uniformNames, uniformLocations, uniform, location);
+
+			/* Arrays are reported as "name[0]", but are just as often looked up as "name" */
+			if (uniform.endsWith("[0]")) {
+				put(uniformNames, uniformLocations, uniform.substring(0, uniform.length() - 3), location);
+			}
+		}
+
+		attributeCount = device.getProgrami(programId, GL20.GL_ACTIVE_ATTRIBUTES);
+		attributeNames = new String[tableSize(attributeCount)];
+		attributeLocations = new int[attributeNames.length];
+		for (int i = 0; i < attributeCount; i++) {
+			String attribute = device.getActiveAttrib(programId, i);
+			put(attributeNames, attributeLocations, attribute, device.getAttribLocation(programId, attribute));
+		}
+	}
+
+	/**
+	 * Returns the location of a uniform, without calling OpenGL.
+	 * 
+	 * @param uniform
+	 *            the name of the uniform
+	 * @return the location, or -1 if the program has no such active uniform
+	 */
+	public int getUniformLocation(String uniform) {
+		return get(uniformNames, uniformLocations, uniform);
+	}
+
+	/**
+	 * Returns the location of a vertex attribute, without calling OpenGL. The
+	 * attributes named in {@link renderEngine.ShaderManager} are always bound to
+	 * the VAO attribute lists reserved for them in
+	 * {@link renderEngine.RawModel}.
+	 * 
+	 * @param attribute
+	 *            the name of the attribute
+	 * @return the location, or -1 if the program has no such active attribute
+	 */
+	public int getAttributeLocation(String attribute) {
+		return get(attributeNames, attributeLocations, attribute);
+	}
+
+	/**
+	 * Sets an int or sampler uniform of the program in use.
+	 * 
+	 * @param location
+	 *            the location of the uniform
+	 * @param value
+	 *            the new value
+	 */
+	public void setInt(int location, int value) {
+		if (location != -1) {
+			device.uniform1i(location, value);
+		}
+	}
+
+	/**
+	 * Sets a float uniform of the program in use.
+	 * 
+	 * @param location
+	 *            the location of the uniform
+	 * @param value
+	 *            the new value
+	 */
+	public void setFloat(int location, float value) {
+		if (location != -1) {
+			device.uniform1f(location, value);
+		}
+	}
+
+	/**
+	 * Sets a vec2 uniform of the program in use.
+	 * 
+	 * @param location
+	 *            the location of the uniform
+	 * @param x
+	 *            the first component
+	 * @param y
+	 *            the second component
+	 */
+	public void setVector2(int location, float x, float y) {
+		if (location != -1) {
+			device.uniform2f(location, x, y);
+		}
+	}
+
+	/**
+	 * Sets a vec3 uniform of the program in use.
+	 * 
+	 * @param location
+	 *            the location of the uniform
+	 * @param x
+	 *            the first component
+	 * @param y
+	 *            the second component
+	 * @param z
+	 *            the third component
+	 */
+	public void setVector3(int location, float x, float y, float z) {
+		if (location != -1) {
+			device.uniform3f(location, x, y, z);
+		}
+	}
+
+	/**
+	 * Sets a vec4 uniform of the program in use.
+	 * 
+	 * @param location
+	 *            the location of the uniform
+	 * @param x
+	 *            the first component
+	 * @param y
+	 *            the second component
+	 * @param z
+	 *            the third component
+	 * @param w
+	 *            the fourth component
+	 */
+	public void setVector4(int location, float x, float y, float z, float w) {
+		if (location != -1) {
+			device.uniform4f(location, x, y, z, w);
+		}
+	}
+
+	/**
+	 * Sets a mat4 uniform of the program in use.
+	 * 
+	 * @param location
+	 *            the location of the uniform
+	 * @param matrix
+	 *            the 16 entries of the matrix in column-major order, as written by
+	 *            {@link math.TransformBatch#getMatrix(int, float[])}
+	 */
+	public void setMatrix4(int location, float[] matrix) {
+		if (location != -1) {
+			device.uniformMatrix4fv(location, false, matrix);
+		}
+	}
+
+	/**
+	 * Returns the name the program was created with.
+	 * 
+	 * @return the program name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the OpenGL Id of the program.
+	 * 
+	 * @return the program Id
+	 */
+	public int getProgramId() {
+		return programId;
+	}
+
+	/**
+	 * Returns whether the program was loaded from the binary cache, skipping
+	 * compilation.
+	 * 
+	 * @return true if the program came from the cache
+	 */
+	public boolean isFromCache() {
+		return fromCache;
+	}
+
+	/**
+	 * Returns the number of active uniforms, counting each array once.
+	 * 
+	 * @return the uniform count
+	 */
+	public int getUniformCount() {
+		return uniformCount;
+	}
+
+	/**
+	 * Returns the number of active vertex attributes.
+	 * 
+	 * @return the attribute count
+	 */
+	public int getAttributeCount() {
+		return attributeCount;
+	}
+
+	@Override
+	public String toString() {
+		return "ShaderProgram[" + name + ", id " + programId + ", " + uniformCount + " uniforms, " + attributeCount
+				+ " attributes]";
+	}
+
+	private static int tableSize(int entries) {
+		/* Kept at most half full, so that probes stay short */
+		return Integer.highestOneBit(Math.max(entries, 2) * 4 - 1);
+	}
+
+	private static void put(String[] names, int[] locations, String key, int location) {
+		int mask = names.length - 1;
+		int slot = key.hashCode() & mask;
+		while (names[slot] != null && !names[slot].equals(key)) {
+			slot = (slot + 1) & mask;
+		}
+		names[slot] = key;
+		locations[slot] = location;
+	}
+
+	private static int get(String[] names, int[] locations, String key) {
+		int mask = names.length - 1;
+		int slot = key.hashCode() & mask;
+		while (names[slot] != null) {
+			if (names[slot].equals(key)) {
+				return locations[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,495 @@
+package renderEngine;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A loose grid of world-space boxes, for finding which objects a
+ * {@link renderEngine.Frustum} can see without testing every one of them.
+ * Space is divided into cubic cells, and each object belongs to the single cell
+ * holding the center of its box. A cell's bounds are loosened by half the size
+ * of the largest object it has held, so that everything in it is inside them;
+ * when a cell's loose bounds are entirely outside or entirely inside the
+ * frustum, none of its objects need to be tested one by one.
+ * 
+ * <p>
+ * Objects are referred to by the int handle returned from
+ * {@link #add(float, float, float, float, float, float)}. Moving an object
+ * with {@link #update(int, float, float, float, float, float, float)} only
+ * touches the cells it left and entered, so the grid is kept up to date
+ * incrementally rather than rebuilt each frame, and neither updates nor culls
+ * allocate once the grid has grown to fit the scene. Objects whose bounds are
+ * not finite, such as those of {@link renderEngine.Bounds#INFINITE}, are kept
+ * apart and are never culled. A grid must only be used from a single thread,
+ * although {@link #cull(Frustum, ForkJoinPool)} may split its work across a
+ * pool.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class SpatialGrid {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	/* Cells are split into this many chunks per thread when culling in parallel */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	/* Cell coordinates are packed into 21 bits each to make a key */
+	private static final int COORDINATE_BITS = 21, COORDINATE_MASK = (1 << COORDINATE_BITS) - 1;
+
+	private final float cellSize, inverseCellSize;
+
+	/* The world box of every handle, six floats each, and where it is stored */
+	private float[] boxes = new float[INITIAL_CAPACITY * 6];
+	private int[] cellOf = new int[INITIAL_CAPACITY], slotOf = new int[INITIAL_CAPACITY];
+	private int[] freeHandles = new int[INITIAL_CAPACITY];
+	private int handleCount = 0, freeCount = 0, size = 0;
+
+	/* Cell zero holds objects with unbounded boxes, and is never culled */
+	private Cell[] cells = new Cell[INITIAL_CAPACITY];
+	private int cellCount = 0;
+
+	/* An open-addressing map from cell key to cell index plus one */
+	private long[] keys = new long[INITIAL_CAPACITY * 2];
+	private int[] indices = new int[INITIAL_CAPACITY * 2];
+
+	private int[] visible = new int[INITIAL_CAPACITY];
+
+	private CullTask[] chunks = new CullTask[0];
+	private final ParallelCullTask parallelCull = new ParallelCullTask();
+	private Frustum parallelFrustum = null;
+
+	/**
+	 * Constructs an empty grid.
+	 * 
+	 * @param cellSize
+	 *            the width of each cell, which works best at around the size of
+	 *            a typical object up to a few times larger
+	 */
+	public SpatialGrid(float cellSize) {
+		if (!(cellSize > 0)) {
+			throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+		}
+
+		this.cellSize = cellSize;
+		this.inverseCellSize = 1 / cellSize;
+
+		cells[cellCount++] = new Cell(0, 0, 0);
+	}
+
+	/**
+	 * Adds an object to the grid.
+	 * 
+	 * @param minX
+	 *            the smallest X of the object's world box
+	 * @param minY
+	 *            the smallest Y of the object's world box
+	 * @param minZ
+	 *            the smallest Z of the object's world box
+	 * @param maxX
+	 *            the largest X of the object's world box
+	 * @param maxY
+	 *            the largest Y of the object's world box
+	 * @param maxZ
+	 *            the largest Z of the object's world box
+	 * @return the handle of the object
+	 */
+	public int add(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		int handle;
+		if (freeCount > 0) {
+			handle = freeHandles[--freeCount];
+		} else {
+			if (handleCount == cellOf.length) {
+				int capacity = handleCount * 2;
+				boxes = Arrays.copyOf(boxes, capacity * 6);
+				cellOf = Arrays.copyOf(cellOf, capacity);
+				slotOf = Arrays.copyOf(slotOf, capacity);
+			}
+			handle = handleCount++;
+		}
+
+		setBox(handle, minX, minY, minZ, maxX, maxY, maxZ);
+		insert(handle, findCell(handle));
+		size++;
+		return handle;
+	}
+
+	/**
+	 * Adds an object to the grid, placing a model's bounds at a position.
+	 * 
+	 * @param bounds
+	 *            the bounds of the object's model, in its own space
+	 * @param x
+	 *            the X of the object
+	 * @param y
+	 *            the Y of the object
+	 * @param z
+	 *            the Z of the object
+	 * @return the handle of the object
+	 */
+	public int add(Bounds bounds, float x, float y, float z) {
+		return add(bounds.getMinX() + x, bounds.getMinY() + y, bounds.getMinZ() + z, bounds.getMaxX() + x,
+				bounds.getMaxY() + y, bounds.getMaxZ() + z);
+	}
+
+	/**
+	 * Changes the world box of an object, moving it to another cell if its center
+	 * has left its current one.
+	 * 
+	 * @param handle
+	 *            the handle of the object
+	 * @param minX
+	 *            the smallest X of the object's world box
+	 * @param minY
+	 *            the smallest Y of the object's world box
+	 * @param minZ
+	 *            the smallest Z of the object's world box
+	 * @param maxX
+	 *            the largest X of the object's world box
+	 * @param maxY
+	 *            the largest Y of the object's world box
+	 * @param maxZ
+	 *            the largest Z of the object's world box
+	 */
+	public void update(int handle, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		checkHandle(handle);
+		setBox(handle, minX, minY, minZ, maxX, maxY, maxZ);
+
+		int cell = findCell(handle);
+		if (cell == cellOf[handle]) {
+			cells[cell].grow(boxes, handle);
+		} else {
+			extract(handle);
+			insert(handle, cell);
+		}
+	}
+
+	/**
+	 * Moves an object, placing a model's bounds at a new position.
+	 * 
+	 * @param handle
+	 *            the handle of the object
+	 * @param bounds
+	 *            the bounds of the object's model, in its own space
+	 * @param x
+	 *            the X of the object
+	 * @param y
+	 *            the Y of the object
+	 * @param z
+	 *            the Z of the object
+	 */
+	public void update(int handle, Bounds bounds, float x, float y, float z) {
+		update(handle, bounds.getMinX() + x, bounds.getMinY() + y, bounds.getMinZ() + z, bounds.getMaxX() + x,
+				bounds.getMaxY() + y, bounds.getMaxZ() + z);
+	}
+
+	/**
+	 * Removes an object from the grid. Its handle may be returned again by a later
+	 * add.
+	 * 
+	 * @param handle
+	 *            the handle of the object
+	 */
+	public void remove(int handle) {
+		checkHandle(handle);
+		extract(handle);
+		cellOf[handle] = -1;
+
+		if (freeCount == freeHandles.length) {
+			freeHandles = Arrays.copyOf(freeHandles, freeCount * 2);
+		}
+		freeHandles[freeCount++] = handle;
+		size--;
+	}
+
+	/**
+	 * Finds every object that might be inside a frustum. The handles of those
+	 * objects are written to the start of {@link #getVisible()}, in no particular
+	 * order.
+	 * 
+	 * @param frustum
+	 *            the frustum to be tested against
+	 * @return the number of visible objects
+	 */
+	public int cull(Frustum frustum) {
+		ensureVisibleCapacity();
+		return cullCells(frustum, 0, cellCount, visible, 0);
+	}
+
+	/**
+	 * Finds every object that might be inside a frustum, splitting the cells
+	 * between the threads of a pool. This only pays off for large scenes, of
+	 * roughly tens of thousands of objects or more. Must not be called from one of
+	 * the pool's own threads.
+	 * 
+	 * @param frustum
+	 *            the frustum to be tested against
+	 * @param pool
+	 *            the pool to cull on
+	 * @return the number of visible objects
+	 * @see #cull(Frustum)
+	 */
+	public int cull(Frustum frustum, ForkJoinPool pool) {
+		int chunkCount = pool.getParallelism() * CHUNKS_PER_THREAD;
+		if (chunks.length != chunkCount) {
+			chunks = new CullTask[chunkCount];
+			for (int i = 0; i < chunkCount; i++) {
+				chunks[i] = new CullTask();
+			}
+		}
+
+		for (int i = 0; i < chunkCount; i++) {
+			chunks[i].from = (int) ((long) cellCount * i / chunkCount);
+			chunks[i].to = (int) ((long) cellCount * (i + 1) / chunkCount);
+		}
+
+		parallelFrustum = frustum;
+		parallelCull.reinitialize();
+		pool.invoke(parallelCull);
+		parallelFrustum = null;
+
+		/* Gathered afterwards, so that the chunks never write to shared memory */
+		ensureVisibleCapacity();
+		int count = 0;
+		for (CullTask chunk : chunks) {
+			System.arraycopy(chunk.visible, 0, visible, count, chunk.count);
+			count += chunk.count;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the handles found by the most recent cull. Only as many as that cull
+	 * returned are valid, and the array may be replaced by a larger one as the
+	 * grid grows.
+	 * 
+	 * @return the visible handles
+	 */
+	public int[] getVisible() {
+		return visible;
+	}
+
+	/**
+	 * Returns the number of objects in the grid.
+	 * 
+	 * @return the object count
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of cells that have held objects, including the one for
+	 * unbounded objects. Cells are kept once made, even after they empty.
+	 * 
+	 * @return the cell count
+	 */
+	public int getCellCount() {
+		return cellCount;
+	}
+
+	private int cullCells(Frustum frustum, int from, int to, int[] out, int count) {
+		for (int c = from; c < to; c++) {
+			Cell cell = cells[c];
+			if (cell.count == 0) {
+				continue;
+			}
+
+			int[] objects = cell.objects;
+			if (c != 0) {
+				float extent = cell.extent;
+				float minX = cell.minX - extent, minY = cell.minY - extent, minZ = cell.minZ - extent;
+				float maxX = cell.minX + cellSize + extent, maxY = cell.minY + cellSize + extent,
+						maxZ = cell.minZ + cellSize + extent;
+
+				if (!frustum.intersectsBox(minX, minY, minZ, maxX, maxY, maxZ)) {
+					continue;
+				} else if (frustum.containsBox(minX, minY, minZ, maxX, maxY, maxZ)) {
+					/* Everything in the cell is visible, so none need testing */
+					System.arraycopy(objects, 0, out, count, cell.count);
+					count += cell.count;
+					continue;
+				}
+			}
+
+			for (int i = 0; i < cell.count; i++) {
+				int handle = objects[i], b = handle * 6;
+				if (frustum.intersectsBox(boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3], boxes[b + 4],
+						boxes[b + 5])) {
+					out[count++] = handle;
+				}
+			}
+		}
+		return count;
+	}
+
+	private void ensureVisibleCapacity() {
+		if (visible.length < size) {
+			visible = new int[Math.max(size, visible.length * 2)];
+		}
+	}
+
+	private void checkHandle(int handle) {
+		if (handle < 0 || handle >= handleCount || cellOf[handle] == -1) {
+			throw new IllegalArgumentException("Not an object in this grid: " + handle);
+		}
+	}
+
+	private void setBox(int handle, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		int b = handle * 6;
+		boxes[b] = minX;
+		boxes[b + 1] = minY;
+		boxes[b + 2] = minZ;
+		boxes[b + 3] = maxX;
+		boxes[b + 4] = maxY;
+		boxes[b + 5] = maxZ;
+	}
+
+	/* Returns the index of the cell holding the center of a handle's box, making it if needed */
+	private int findCell(int handle) {
+		int b = handle * 6;
+		for (int i = 0; i < 6; i++) {
+			if (!Float.isFinite(boxes[b + i])) {
+				return 0;
+			}
+		}
+
+		float x = (boxes[b] + boxes[b + 3]) * 0.5f, y = (boxes[b + 1] + boxes[b + 4]) * 0.5f,
+				z = (boxes[b + 2] + boxes[b + 5]) * 0.5f;
+
+		int cellX = (int) Math.floor(x * inverseCellSize), cellY = (int) Math.floor(y * inverseCellSize),
+				cellZ = (int) Math.floor(z * inverseCellSize);
+		long key = ((long) (cellX & COORDINATE_MASK) << (COORDINATE_BITS * 2))
+				| ((long) (cellY & COORDINATE_MASK) << COORDINATE_BITS) | (cellZ & COORDINATE_MASK);
+
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (indices[slot] != 0) {
+			if (keys[slot] == key) {
+				return indices[slot] - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		if (cellCount == cells.length) {
+			cells = Arrays.copyOf(cells, cellCount * 2);
+		}
+		int cell = cellCount++;
+		cells[cell] = new Cell(cellX * cellSize, cellY * cellSize, cellZ * cellSize);
+
+		keys[slot] = key;
+		indices[slot] = cell + 1;
+
+		/* Kept at most half full, so that probes stay short */
+		if (cellCount * 2 > keys.length) {
+			rehash();
+		}
+		return cell;
+	}
+
+	private void rehash() {
+		long[] oldKeys = keys;
+		int[] oldIndices = indices;
+		keys = new long[oldKeys.length * 2];
+		indices = new int[oldIndices.length * 2];
+
+		int mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldIndices[i] != 0) {
+				int slot = hash(oldKeys[i]) & mask;
+				while (indices[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				indices[slot] = oldIndices[i];
+			}
+		}
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private void insert(int handle, int cell) {
+		Cell target = cells[cell];
+		if (target.count == target.objects.length) {
+			target.objects = Arrays.copyOf(target.objects, target.count * 2);
+		}
+
+		cellOf[handle] = cell;
+		slotOf[handle] = target.count;
+		target.objects[target.count++] = handle;
+		target.grow(boxes, handle);
+	}
+
+	private void extract(int handle) {
+		Cell cell = cells[cellOf[handle]];
+		int slot = slotOf[handle];
+
+		/* Swapped with the last object, so that removal does not shift the rest */
+		int last = cell.objects[--cell.count];
+		cell.objects[slot] = last;
+		slotOf[last] = slot;
+	}
+
+	/* A cube of the grid, with the objects whose centers are inside it */
+	private static final class Cell {
+		private final float minX, minY, minZ;
+
+		/* How far past the cube its objects may reach. Only ever grows */
+		private float extent = 0;
+
+		private int[] objects = new int[8];
+		private int count = 0;
+
+		private Cell(float minX, float minY, float minZ) {
+			this.minX = minX;
+			this.minY = minY;
+			this.minZ = minZ;
+		}
+
+		private void grow(float[] boxes, int handle) {
+			int b = handle * 6;
+			float halfX = (boxes[b + 3] - boxes[b]) * 0.5f, halfY = (boxes[b + 4] - boxes[b + 1]) * 0.5f,
+					halfZ = (boxes[b + 5] - boxes[b + 2]) * 0.5f;
+			extent = Math.max(extent, Math.max(halfX, Math.max(halfY, halfZ)));
+		}
+	}
+
+	/* Culls one range of cells into its own array, reused every cull */
+	private final class CullTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private int from = 0, to = 0, count = 0;
+		private int[] visible = new int[INITIAL_CAPACITY];
+
+		@Override
+		protected void compute() {
+			int capacity = 0;
+			for (int c = from; c < to; c++) {
+				capacity += cells[c].count;
+			}
+			if (visible.length < capacity) {
+				visible = new int[Math.max(capacity, visible.length * 2)];
+			}
+
+			count = cullCells(parallelFrustum, from, to, visible, 0);
+		}
+	}
+
+	/* Runs every chunk at once, reused every cull */
+	private final class ParallelCullTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected void compute() {
+			for (CullTask chunk : chunks) {
+				chunk.reinitialize();
+			}
+			invokeAll(chunks);
+		}
+	}
+}
@@ -0,0 +1,286 @@
+package renderEngine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+
+import utility.BufferPool;
+import utility.PooledBuffer;
+
+/**
+ * Draws large numbers of 2D sprites by building them all into one
+ * {@link renderEngine.StreamingBuffer} and drawing them in as few calls as
+ * possible. Each sprite is a quad laid out like the quad in
+ * {@link main.Arsia}: top left, bottom left, bottom right, then top right,
+ * drawn as two triangles through a shared index buffer that never changes.
+ * Sprites are written straight into the stream as they are drawn, and a batch
+ * is only drawn when the texture changes, the stream is full, or the frame
+ * ends:
+ * 
+ * <pre>
+ * batch.begin();
+ * batch.draw(texture, x, y, width, height);
+ * ...
+ * batch.end();
+ * </pre>
+ * 
+ * Drawing sprites grouped by texture, such as from a texture atlas, keeps the
+ * number of batches down. Each batch only uses as much of the stream as its
+ * sprites need, and the stream is fenced once per {@link #end()}, so changing
+ * texture often costs draw calls but never waits on the GPU, as long as the
+ * stream was sized for the sprites drawn each frame. Each vertex is
+ * {@link #FORMAT}: a 2D position at attribute 0, a byte color at attribute 1
+ * and float texture coordinates at attribute 3.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class SpriteBatch {
+
+	/**
+	 * The layout of each sprite vertex, 20 bytes
+	 */
+	public static final VertexFormat FORMAT = new VertexFormat().add(0, 2, AttributeType.FLOAT)
+			.add(1, 4, AttributeType.UNSIGNED_BYTE_NORMALIZED).add(3, 2, AttributeType.FLOAT);
+
+	/**
+	 * Opaque white, in the packed RGBA form taken by
+	 * {@link #draw(int, float, float, float, float, float, float, float, float, int)}
+	 */
+	public static final int WHITE = 0xFFFFFFFF;
+
+	/* The two triangles of each quad, the same as Arsia's quad */
+	private static final int[] QUAD_INDICES = { 0, 1, 3, 3, 1, 2 };
+
+	private final RenderDevice device;
+	private final StreamingBuffer stream;
+	private final int maxSprites, indexBufferId;
+	private final IndexType indexType;
+
+	private ByteBuffer vertices = null;
+	private int spriteCount = 0, texture = 0;
+	private boolean drawing = false;
+
+	private int batches = 0, sprites = 0;
+
+	/**
+	 * Constructs a sprite batch for frames of no more than one full batch.
+	 * 
+	 * @param device
+	 *            the device to draw with
+	 * @param maxSprites
+	 *            the most sprites drawn in a single batch
+	 */
+	public SpriteBatch(RenderDevice device, int maxSprites) {
+		this(device, maxSprites, maxSprites);
+	}
+
+	/**
+	 * Constructs a sprite batch whose stream holds the sprites of
+	 * {@link renderEngine.StreamingBuffer#DEFAULT_FRAMES} frames, plus room for
+	 * the space skipped when the stream wraps, so that the GPU can be that many
+	 * frames behind without drawing ever waiting for it.
+	 * 
+	 * @param device
+	 *            the device to draw with
+	 * @param maxSprites
+	 *            the most sprites drawn in a single batch
+	 * @param spritesPerFrame
+	 *            the most sprites normally drawn between a begin and an end
+	 */
+	public SpriteBatch(RenderDevice device, int maxSprites, int spritesPerFrame) {
+		if (maxSprites <= 0 || spritesPerFrame <= 0) {
+			throw new IllegalArgumentException("Sprite batch needs room for at least one sprite");
+		}
+
+		this.device = device;
+		this.maxSprites = maxSprites;
+		int maxVertices = Math.multiplyExact(maxSprites, 4);
+		this.stream = new StreamingBuffer(device, FORMAT, maxVertices,
+				Math.multiplyExact(Math.addExact(Math.multiplyExact(spritesPerFrame, StreamingBuffer.DEFAULT_FRAMES),
+						Math.multiplyExact(maxSprites, 2)), 4));
+		this.indexType = IndexType.forVertexCount(maxVertices);
+
+		int[] indices = new int[Math.multiplyExact(maxSprites, 6)];
+		for (int sprite = 0, i = 0; sprite < maxSprites; sprite++) {
+			for (int corner : QUAD_INDICES) {
+				indices[i++] = sprite * 4 + corner;
+			}
+		}
+
+		PooledBuffer packed = BufferPool.SHARED.acquire(Math.multiplyExact(indices.length, indexType.getBytes()));
+		try {
+			indexBufferId = device.genBuffer();
+			device.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, indexBufferId);
+			device.bufferData(GL15.GL_ELEMENT_ARRAY_BUFFER,
+					MeshOptimizer.packIndices(indices, indexType, packed.getByteBuffer()), GL15.GL_STATIC_DRAW);
+			device.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+		} finally {
+			packed.release();
+		}
+
+		stream.setIndexBuffer(indexBufferId);
+	}
+
+	/**
+	 * Starts drawing sprites for a frame, or for a run of sprites between other
+	 * drawing.
+	 */
+	public void begin() {
+		if (drawing) {
+			throw new IllegalStateException("Sprite batch begun twice without an end");
+		}
+
+		drawing = true;
+		batches = 0;
+		sprites = 0;
+	}
+
+	/**
+	 * Draws a white sprite showing the whole of a texture.
+	 * 
+	 * @param textureId
+	 *            the texture, or zero for none
+	 * @param x
+	 *            the left edge
+	 * @param y
+	 *            the bottom edge
+	 * @param width
+	 *            the width
+	 * @param height
+	 *            the height
+	 */
+	public void draw(int textureId, float x, float y, float width, float height) {
+		draw(textureId, x, y, width, height, 0f, 0f, 1f, 1f, WHITE);
+	}
+
+	/**
+	 * Draws a tinted sprite showing part of a texture.
+	 * 
+	 * @param textureId
+	 *            the texture, or zero for none
+	 * @param x
+	 *            the left edge
+	 * @param y
+	 *            the bottom edge
+	 * @param width
+	 *            the width
+	 * @param height
+	 *            the height
+	 * @param u0
+	 *            the left texture coordinate
+	 * @param v0
+	 *            the top texture coordinate
+	 * @param u1
+	 *            the right texture coordinate
+	 * @param v1
+	 *            the bottom texture coordinate
+	 * @param rgba
+	 *            the tint, packed with red in the highest byte and alpha in the
+	 *            lowest
+	 */
+	public void draw(int textureId, float x, float y, float width, float height, float u0, float v0, float u1,
+			float v1, int rgba) {
+		if (!drawing) {
+			throw new IllegalStateException("Sprite drawn outside of begin and end");
+		}
+
+		if (spriteCount > 0 && (textureId != texture || spriteCount == maxSprites)) {
+			flush();
+		}
+
+		if (vertices == null) {
+			vertices = stream.begin();
+			texture = textureId;
+		}
+
+		/* Stored in memory as R, G, B, A bytes, whatever the byte order */
+		int color = vertices.order() == ByteOrder.LITTLE_ENDIAN ? Integer.reverseBytes(rgba) : rgba;
+
+		float right = x + width, top = y + height;
+		vertices.putFloat(x).putFloat(top).putInt(color).putFloat(u0).putFloat(v0);
+		vertices.putFloat(x).putFloat(y).putInt(color).putFloat(u0).putFloat(v1);
+		vertices.putFloat(right).putFloat(y).putInt(color).putFloat(u1).putFloat(v1);
+		vertices.putFloat(right).putFloat(top).putInt(color).putFloat(u1).putFloat(v0);
+
+		spriteCount++;
+	}
+
+	/**
+	 * Draws every sprite still waiting in the batch, fences what was drawn, and
+	 * ends drawing.
+	 */
+	public void end() {
+		if (!drawing) {
+			throw new IllegalStateException("Sprite batch ended without a begin");
+		}
+
+		flush();
+		stream.endFrame();
+		drawing = false;
+	}
+
+	/**
+	 * Returns how many batches, and so draw calls, were drawn since the last
+	 * {@link #begin()}.
+	 * 
+	 * @return the batch count
+	 */
+	public int getBatches() {
+		return batches;
+	}
+
+	/**
+	 * Returns how many sprites were drawn since the last {@link #begin()}.
+	 * 
+	 * @return the sprite count
+	 */
+	public int getSprites() {
+		return sprites;
+	}
+
+	/**
+	 * Returns how many times drawing had to wait for the GPU to finish with
+	 * stream memory, over the batch's whole life. If this rises, the batch
+	 * needs sizing for more sprites per frame.
+	 * 
+	 * @return the stall count
+	 */
+	public int getStalls() {
+		return stream.getStalls();
+	}
+
+	/**
+	 * Returns the most sprites drawn in a single batch.
+	 * 
+	 * @return the batch capacity, in sprites
+	 */
+	public int getMaxSprites() {
+		return maxSprites;
+	}
+
+	/**
+	 * Frees the stream and the shared index buffer. The batch must not be used
+	 * afterwards.
+	 */
+	public void cleanUp() {
+		stream.cleanUp();
+		device.deleteBuffer(indexBufferId);
+	}
+
+	private void flush() {
+		if (vertices == null) {
+			return;
+		}
+
+		device.bindTexture(GL11.GL_TEXTURE_2D, texture);
+		stream.drawElements(GL11.GL_TRIANGLES, spriteCount * 6, indexType);
+
+		batches++;
+		sprites += spriteCount;
+		spriteCount = 0;
+		vertices = null;
+	}
+}
@@ -0,0 +1,480 @@
+package renderEngine;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL44;
+
+import utility.BufferPool;
+import utility.Log;
+import utility.PooledBuffer;
+
+/**
+ * A vertex buffer for geometry that changes every frame, such as particles,
+ * debug lines or UI. Vertices are written straight into memory that OpenGL
+ * draws from, with no arrays in between, and then drawn in a single call:
+ * 
+ * <pre>
+ * ByteBuffer vertices = stream.begin();
+ * vertices.putFloat(x).putFloat(y).putFloat(z); // one vertex, as laid out by the format
+ * stream.draw(GL11.GL_LINES);
+ * ...
+ * stream.endFrame();
+ * </pre>
+ * 
+ * <p>
+ * Where buffer storage is supported, the buffer is a ring mapped once,
+ * persistently and coherently, for its whole life. Each begin and draw pair
+ * writes at a cursor that then moves past only the vertices actually drawn, so
+ * small draws pack tightly together, and the cursor goes back to the start
+ * when the rest of the ring is too small for a whole draw. Fences are placed
+ * once a frame, by {@link #endFrame()}, and when the cursor wraps, rather than
+ * after every draw. A begin only waits for the GPU when the space it is about to
+ * write was drawn from in a frame the GPU has not yet finished, so a ring large
+ * enough for the frames in flight never waits. Where buffer storage is not
+ * supported, vertices are written to a reused staging buffer, and each draw
+ * orphans the buffer and copies them in with glBufferSubData, which also
+ * avoids waiting on the GPU.
+ * </p>
+ * 
+ * <p>
+ * Vertices can also be ended with {@link #commit()} instead of drawn, for
+ * another VAO to read them from {@link #getBufferId()} at
+ * {@link #getDrawOffset()}, such as the per-instance model matrices of a
+ * {@link renderEngine.RenderQueue}.
+ * </p>
+ * 
+ * <p>
+ * The stream must only be used from the thread that owns the OpenGL context.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class StreamingBuffer {
+
+	/**
+	 * The ring holds this many draws of the maximum size by default, enough for
+	 * the GPU to be two frames behind when each frame makes one such draw
+	 */
+	public static final int DEFAULT_FRAMES = 3;
+
+	private static final int STORAGE_FLAGS = GL30.GL_MAP_WRITE_BIT | GL44.GL_MAP_PERSISTENT_BIT
+			| GL44.GL_MAP_COHERENT_BIT;
+
+	/* How long to wait on a fence before checking it again, in nanoseconds */
+	private static final long WAIT_TIMEOUT_NS = 1000000L;
+
+	/* How many fences are tracked before the queue grows, a few frames' worth */
+	private static final int INITIAL_FENCES = 8;
+
+	private final RenderDevice device;
+	private final VertexFormat format;
+	private final int maxVertices, drawBytes, capacityBytes;
+	private final boolean persistent;
+
+	private final int vaoId, vboId;
+
+	/* Persistent path: the mapped ring, and the fences guarding the ranges drawn from, oldest first */
+	private final ByteBuffer mapped;
+	private long[] fences;
+	private int[] fenceStarts, fenceEnds;
+	private int oldestFence = 0, fenceCount = 0;
+
+	/* Fallback path: where vertices are written before being copied in */
+	private final PooledBuffer staging;
+
+	/* The write cursor, where the current draw began, and the start of what is drawn but not fenced */
+	private int cursor = 0, drawStart = 0, unfencedStart = 0;
+	private ByteBuffer writing = null;
+
+	private int stalls = 0;
+
+	/**
+	 * Constructs a stream whose ring holds {@link #DEFAULT_FRAMES} draws of the
+	 * maximum size.
+	 * 
+	 * @param device
+	 *            the device to draw with
+	 * @param format
+	 *            the layout of each vertex
+	 * @param maxVertices
+	 *            the most vertices that can be written between a begin and a
+	 *            draw
+	 */
+	public StreamingBuffer(RenderDevice device, VertexFormat format, int maxVertices) {
+		this(device, format, maxVertices, maxVertices * DEFAULT_FRAMES);
+	}
+
+	/**
+	 * Constructs a stream, using persistent mapping if the device supports buffer
+	 * storage, and orphaning otherwise.
+	 * 
+	 * @param device
+	 *            the device to draw with
+	 * @param format
+	 *            the layout of each vertex
+	 * @param maxVertices
+	 *            the most vertices that can be written between a begin and a
+	 *            draw
+	 * @param capacityVertices
+	 *            how many vertices the persistent ring holds, which should cover
+	 *            every vertex drawn in the frames the GPU may be behind by
+	 */
+	public StreamingBuffer(RenderDevice device, VertexFormat format, int maxVertices, int capacityVertices) {
+		if (maxVertices <= 0 || capacityVertices < maxVertices) {
+			throw new IllegalArgumentException("Streaming buffer needs room for at least one draw of one vertex");
+		}
+
+		this.device = device;
+		this.format = format;
+		this.maxVertices = maxVertices;
+		this.drawBytes = maxVertices * format.getStride();
+		this.persistent = device.supportsBufferStorage();
+		this.capacityBytes = persistent ? Math.multiplyExact(capacityVertices, format.getStride()) : drawBytes;
+
+		vaoId = device.genVertexArray();
+		device.bindVertexArray(vaoId);
+		vboId = device.genBuffer();
+		device.bindBuffer(GL15.GL_ARRAY_BUFFER, vboId);
+
+		if (persistent) {
+			device.bufferStorage(GL15.GL_ARRAY_BUFFER, capacityBytes, STORAGE_FLAGS);
+			mapped = device.mapBufferRange(GL15.GL_ARRAY_BUFFER, 0, capacityBytes, STORAGE_FLAGS);
+
+			fences = new long[INITIAL_FENCES];
+			fenceStarts = new int[INITIAL_FENCES];
+			fenceEnds = new int[INITIAL_FENCES];
+			staging = null;
+		} else {
+			device.bufferData(GL15.GL_ARRAY_BUFFER, capacityBytes, GL15.GL_STREAM_DRAW);
+			mapped = null;
+			staging = BufferPool.SHARED.acquire(drawBytes);
+
+			Log.info("Buffer storage is not supported, streaming vertices by orphaning");
+		}
+
+		/* Every attribute reads from the one buffer, as with models */
+		for (VertexAttribute attribute : format.getAttributes()) {
+			AttributeType type = attribute.getType();
+			device.vertexAttribPointer(attribute.getIndex(), attribute.getComponents(), type.getGlType(),
+					type.isNormalized(), format.getStride(), attribute.getOffset());
+			device.enableVertexAttribArray(attribute.getIndex());
+		}
+
+		device.bindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+		device.bindVertexArray(0);
+	}
+
+	/**
+	 * Returns the memory to write this draw's vertices into, in native byte
+	 * order, positioned at the first vertex with room for the maximum number of
+	 * vertices after it. Vertices must be written from that position onwards,
+	 * not from the start of the buffer. If the GPU is still reading from that
+	 * space in an earlier frame, this waits for it.
+	 * 
+	 * @return the buffer to write vertices into
+	 */
+	public ByteBuffer begin() {
+		if (writing != null) {
+			throw new IllegalStateException("Streaming buffer begun twice without a draw");
+		}
+
+		if (persistent) {
+			if (cursor + drawBytes > capacityBytes) {
+				/* Whatever is left at the end is skipped, and everything before it fenced */
+				fenceUnfenced();
+				cursor = 0;
+				unfencedStart = 0;
+			}
+
+			waitForRange(cursor, cursor + drawBytes);
+			drawStart = cursor;
+			writing = mapped;
+		} else {
+			drawStart = 0;
+			writing = staging.getByteBuffer();
+		}
+
+		writing.limit(drawStart + drawBytes).position(drawStart);
+		return writing;
+	}
+
+	/**
+	 * Draws every whole vertex written since {@link #begin()}, then moves the
+	 * write cursor past them.
+	 * 
+	 * @param mode
+	 *            the kind of primitive, such as GL_TRIANGLES or GL_LINES
+	 * @return the number of vertices drawn
+	 */
+	public int draw(int mode) {
+		int vertexCount = finishWriting();
+		if (vertexCount == 0) {
+			return 0;
+		}
+
+		device.bindVertexArray(vaoId);
+		device.drawArrays(mode, getBaseVertex(), vertexCount);
+		device.bindVertexArray(0);
+
+		return vertexCount;
+	}
+
+	/**
+	 * Draws the vertices written since {@link #begin()} through the index buffer
+	 * set by {@link #setIndexBuffer(int)}, then moves the write cursor past them.
+	 * The indices count from the first vertex written, wherever in the buffer it
+	 * landed.
+	 * 
+	 * @param mode
+	 *            the kind of primitive, such as GL_TRIANGLES
+	 * @param indexCount
+	 *            how many indices to draw
+	 * @param indexType
+	 *            the type of the indices in the index buffer
+	 * @return the number of vertices written
+	 */
+	public int drawElements(int mode, int indexCount, IndexType indexType) {
+		int vertexCount = finishWriting();
+		if (vertexCount == 0 || indexCount == 0) {
+			return vertexCount;
+		}
+
+		device.bindVertexArray(vaoId);
+		device.drawElementsBaseVertex(mode, indexCount, indexType.getGlType(), 0, getBaseVertex());
+		device.bindVertexArray(0);
+
+		return vertexCount;
+	}
+
+	/**
+	 * Ends the vertices written since {@link #begin()} without drawing them, then
+	 * moves the write cursor past them, as a draw would. Until the next begin,
+	 * they can be read from the buffer given by {@link #getBufferId()}, starting
+	 * {@link #getDrawOffset()} bytes in, by draws made through another VAO.
+	 * 
+	 * @return the number of vertices written
+	 */
+	public int commit() {
+		return finishWriting();
+	}
+
+	/**
+	 * Fences everything drawn since the last fence, so that the space it used can
+	 * be written again once the GPU has finished with it. Must be called once a
+	 * frame, after the frame's last draw from this stream. Does nothing if
+	 * nothing was drawn, or when orphaning.
+	 */
+	public void endFrame() {
+		if (writing != null) {
+			throw new IllegalStateException("Streaming buffer frame ended between a begin and a draw");
+		}
+
+		if (persistent) {
+			fenceUnfenced();
+		}
+	}
+
+	/**
+	 * Attaches an index buffer to this stream, to be drawn through by
+	 * {@link #drawElements(int, int, IndexType)}. The index buffer is owned by the
+	 * caller, and typically holds a pattern that never changes, such as the two
+	 * triangles of every quad.
+	 * 
+	 * @param bufferId
+	 *            the Id of the index buffer, or zero to detach
+	 */
+	public void setIndexBuffer(int bufferId) {
+		/* The element buffer binding is part of the VAO's state */
+		device.bindVertexArray(vaoId);
+		device.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, bufferId);
+		device.bindVertexArray(0);
+	}
+
+	/**
+	 * Returns whether this stream writes into persistently mapped memory, rather
+	 * than orphaning.
+	 * 
+	 * @return true if persistently mapped
+	 */
+	public boolean isPersistent() {
+		return persistent;
+	}
+
+	/**
+	 * Returns the Id of the vertex buffer this stream writes into.
+	 * 
+	 * @return the buffer Id
+	 */
+	public int getBufferId() {
+		return vboId;
+	}
+
+	/**
+	 * Returns where in the buffer the vertices of the most recent begin were
+	 * written, which changes from one draw to the next.
+	 * 
+	 * @return the offset of the first vertex, in bytes
+	 */
+	public long getDrawOffset() {
+		return drawStart;
+	}
+
+	/**
+	 * Returns the most vertices that can be written between a begin and a draw.
+	 * 
+	 * @return the vertex capacity
+	 */
+	public int getMaxVertices() {
+		return maxVertices;
+	}
+
+	/**
+	 * Returns how many vertices the ring holds, across every draw and frame.
+	 * 
+	 * @return the ring capacity, in vertices
+	 */
+	public int getCapacityVertices() {
+		return capacityBytes / format.getStride();
+	}
+
+	/**
+	 * Returns how many times {@link #begin()} had to wait for the GPU. If this
+	 * keeps rising, the ring is too small for the frames in flight.
+	 * 
+	 * @return the stall count
+	 */
+	public int getStalls() {
+		return stalls;
+	}
+
+	/**
+	 * Frees the buffer, its VAO and any fences. The stream must not be used
+	 * afterwards.
+	 */
+	public void cleanUp() {
+		if (persistent) {
+			while (fenceCount > 0) {
+				device.deleteSync(fences[oldestFence]);
+				retireOldestFence();
+			}
+
+			device.bindBuffer(GL15.GL_ARRAY_BUFFER, vboId);
+			device.unmapBuffer(GL15.GL_ARRAY_BUFFER);
+			device.bindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+		} else {
+			staging.release();
+		}
+
+		device.deleteBuffer(vboId);
+		device.deleteVertexArray(vaoId);
+	}
+
+	private int finishWriting() {
+		if (writing == null) {
+			throw new IllegalStateException("Streaming buffer drawn without a begin");
+		}
+
+		int vertexCount = (writing.position() - drawStart) / format.getStride();
+		writing = null;
+
+		if (persistent) {
+			cursor = drawStart + vertexCount * format.getStride();
+		} else if (vertexCount > 0) {
+			ByteBuffer data = staging.getByteBuffer();
+			data.limit(vertexCount * format.getStride()).position(0);
+
+			device.bindBuffer(GL15.GL_ARRAY_BUFFER, vboId);
+			device.bufferData(GL15.GL_ARRAY_BUFFER, capacityBytes, GL15.GL_STREAM_DRAW);
+			device.bufferSubData(GL15.GL_ARRAY_BUFFER, 0, data);
+			device.bindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+		}
+
+		return vertexCount;
+	}
+
+	/* Draws start on whole vertices, so a base vertex selects where this one landed */
+	private int getBaseVertex() {
+		return drawStart / format.getStride();
+	}
+
+	private void fenceUnfenced() {
+		if (cursor == unfencedStart) {
+			return;
+		}
+
+		if (fenceCount == fences.length) {
+			growFences();
+		}
+
+		int index = (oldestFence + fenceCount) % fences.length;
+		fences[index] = device.fenceSync();
+		fenceStarts[index] = unfencedStart;
+		fenceEnds[index] = cursor;
+		fenceCount++;
+
+		unfencedStart = cursor;
+	}
+
+	/*
+	 * Fences are signaled in order, so waiting for the newest one guarding any of
+	 * the range also waits out every older one, which are all retired with it
+	 */
+	private void waitForRange(int start, int end) {
+		int newest = -1;
+		for (int i = 0; i < fenceCount; i++) {
+			int index = (oldestFence + i) % fences.length;
+			if (fenceStarts[index] < end && start < fenceEnds[index]) {
+				newest = i;
+			}
+		}
+
+		if (newest < 0) {
+			return;
+		}
+
+		long fence = fences[(oldestFence + newest) % fences.length];
+		int result = device.clientWaitSync(fence, 0);
+		if (result == GL32.GL_TIMEOUT_EXPIRED) {
+			stalls++;
+			do {
+				result = device.clientWaitSync(fence, WAIT_TIMEOUT_NS);
+			} while (result == GL32.GL_TIMEOUT_EXPIRED);
+		}
+
+		for (int i = 0; i <= newest; i++) {
+			device.deleteSync(fences[oldestFence]);
+			retireOldestFence();
+		}
+
+		if (result == GL32.GL_WAIT_FAILED) {
+			throw new IllegalStateException("Waiting on a streaming buffer fence failed");
+		}
+	}
+
+	private void retireOldestFence() {
+		fences[oldestFence] = 0;
+		oldestFence = (oldestFence + 1) % fences.length;
+		fenceCount--;
+	}
+
+	/* Unrolls the queue so the oldest fence is first again */
+	private void growFences() {
+		long[] grownFences = new long[fences.length * 2];
+		int[] grownStarts = new int[grownFences.length], grownEnds = new int[grownFences.length];
+		for (int i = 0; i < fenceCount; i++) {
+			int index = (oldestFence + i) % fences.length;
+			grownFences[i] = fences[index];
+			grownStarts[i] = fenceStarts[index];
+			grownEnds[i] = fenceEnds[index];
+		}
+
+		fences = grownFences;
+		fenceStarts = grownStarts;
+		fenceEnds = grownEnds;
+		oldestFence = 0;
+	}
+}
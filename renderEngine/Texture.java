@@ -0,0 +1,75 @@
+package renderEngine;
+
+/**
+ * A 2D texture that has been uploaded to OpenGL by a
+ * {@link renderEngine.TextureLoader}, along with the size and number of
+ * mipmap levels it was uploaded with.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class Texture {
+
+	private final int textureId, width, height, levels;
+
+	private final long sizeBytes;
+
+	Texture(int textureId, int width, int height, int levels, long sizeBytes) {
+		this.textureId = textureId;
+		this.width = width;
+		this.height = height;
+		this.levels = levels;
+		this.sizeBytes = sizeBytes;
+	}
+
+	/**
+	 * Returns the OpenGL Id of the texture, to bind or to pass to
+	 * {@link renderEngine.SpriteBatch}.
+	 * 
+	 * @return the texture Id
+	 */
+	public int getTextureId() {
+		return textureId;
+	}
+
+	/**
+	 * Returns the width of the full size level.
+	 * 
+	 * @return the width, in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of the full size level.
+	 * 
+	 * @return the height, in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the number of mipmap levels, including the full size level.
+	 * 
+	 * @return the level count
+	 */
+	public int getLevels() {
+		return levels;
+	}
+
+	/**
+	 * Returns the memory taken by every level of the texture.
+	 * 
+	 * @return the size, in bytes
+	 */
+	public long sizeBytes() {
+		return sizeBytes;
+	}
+
+	@Override
+	public String toString() {
+		return "Texture[id " + textureId + ", " + width + "x" + height + ", " + levels + " levels]";
+	}
+}
@@ -0,0 +1,217 @@
+package renderEngine;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Many small images merged onto a few large pages, so that sprites and models
+ * using different images can still be drawn with the same texture bound, and
+ * batched draws such as those of a {@link renderEngine.SpriteBatch} rarely have
+ * to break on a texture change. Images are placed by an
+ * {@link renderEngine.AtlasPacker}, tallest first, onto as many pages as they
+ * need, and each is looked up afterwards by name as an
+ * {@link renderEngine.AtlasRegion}.
+ * 
+ * <p>
+ * Each image is surrounded by a border of its own edge pixels, and placed on
+ * a multiple of the border width. With a border of 2<sup>k</sup> pixels, the
+ * first k + 1 mipmap levels of a page never blend one image with its
+ * neighbours, so that is how many levels {@link #getMipLevels()} allows. The
+ * border must be zero, for no mipmaps, or a power of two.
+ * </p>
+ * 
+ * <p>
+ * Building an atlas makes no OpenGL calls, so it can be done on any thread;
+ * upload the pages with
+ * {@link renderEngine.TextureLoader#loadAtlas(TextureAtlas)}.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class TextureAtlas {
+
+	private final Image[] pages;
+
+	private final Map<String, AtlasRegion> regions;
+
+	private final int border, mipLevels;
+
+	private final float occupancy;
+
+	private TextureAtlas(Image[] pages, Map<String, AtlasRegion> regions, int border, float occupancy) {
+		this.pages = pages;
+		this.regions = regions;
+		this.border = border;
+		this.mipLevels = border == 0 ? 1 : Integer.numberOfTrailingZeros(border) + 1;
+		this.occupancy = occupancy;
+	}
+
+	/**
+	 * Packs images onto as few square pages as they fit on.
+	 * 
+	 * @param names
+	 *            the name to look each image up by, each one different
+	 * @param images
+	 *            the images, in the same order as their names, which are copied
+	 *            and not changed
+	 * @param pageSize
+	 *            the width and height of every page, in pixels
+	 * @param border
+	 *            the pixels of edge repeated around each image, zero or a power
+	 *            of two
+	 * @return the atlas
+	 * @throws IllegalArgumentException
+	 *             if an image, with its border, is larger than a page, or the
+	 *             border is not a power of two
+	 */
+	public static TextureAtlas pack(List<String> names, List<Image> images, int pageSize, int border) {
+		if (names.size() != images.size()) {
+			throw new IllegalArgumentException(names.size() + " names for " + images.size() + " images");
+		}
+		if (border < 0 || (border & (border - 1)) != 0) {
+			throw new IllegalArgumentException("Atlas border of " + border + " is not zero or a power of two");
+		}
+
+		/* Each image with its border is rounded up to the border, so every image starts on a multiple of it */
+		int alignment = Math.max(1, border), count = images.size();
+		int[] paddedWidths = new int[count], paddedHeights = new int[count];
+
+		/* Height in the upper 32 bits, index in the lower 32 bits, so sorting puts the tallest last */
+		long[] order = new long[count];
+		for (int i = 0; i < count; i++) {
+			Image image = images.get(i);
+			paddedWidths[i] = align(image.getWidth() + border * 2, alignment);
+			paddedHeights[i] = align(image.getHeight() + border * 2, alignment);
+			if (paddedWidths[i] > pageSize || paddedHeights[i] > pageSize) {
+				throw new IllegalArgumentException(
+						"Image " + names.get(i) + " of " + image.getWidth() + "x" + image.getHeight()
+								+ " with its border does not fit on a page of " + pageSize);
+			}
+			order[i] = ((long) paddedHeights[i] << 32) | i;
+		}
+		Arrays.sort(order);
+
+		AtlasPacker[] packers = new AtlasPacker[0];
+		int[] pageOf = new int[count], xOf = new int[count], yOf = new int[count];
+		long usedArea = 0;
+
+		for (int o = count - 1; o >= 0; o--) {
+			int i = (int) order[o];
+
+			/* Earlier pages are tried first, so they fill up before new ones are started */
+			int page = 0;
+			while (page < packers.length && !packers[page].insert(paddedWidths[i], paddedHeights[i])) {
+				page++;
+			}
+			if (page == packers.length) {
+				packers = Arrays.copyOf(packers, page + 1);
+				packers[page] = new AtlasPacker(pageSize, pageSize);
+				packers[page].insert(paddedWidths[i], paddedHeights[i]);
+			}
+
+			pageOf[i] = page;
+			xOf[i] = packers[page].getX() + border;
+			yOf[i] = packers[page].getY() + border;
+			usedArea += (long) paddedWidths[i] * paddedHeights[i];
+		}
+
+		Image[] pages = new Image[packers.length];
+		for (int page = 0; page < pages.length; page++) {
+			pages[page] = new Image(pageSize, pageSize);
+		}
+
+		Map<String, AtlasRegion> regions = new HashMap<String, AtlasRegion>();
+		for (int i = 0; i < count; i++) {
+			Image image = images.get(i);
+			pages[pageOf[i]].copyFrom(image, xOf[i], yOf[i], border);
+
+			AtlasRegion region = new AtlasRegion(names.get(i), pageOf[i], xOf[i], yOf[i], image.getWidth(),
+					image.getHeight(), pageSize, pageSize);
+			if (regions.put(names.get(i), region) != null) {
+				throw new IllegalArgumentException("Two images are named " + names.get(i));
+			}
+		}
+
+		float occupancy = pages.length == 0 ? 0f
+				: (float) ((double) usedArea / ((double) pageSize * pageSize * pages.length));
+		return new TextureAtlas(pages, Collections.unmodifiableMap(regions), border, occupancy);
+	}
+
+	/**
+	 * Returns where an image is in the atlas.
+	 * 
+	 * @param name
+	 *            the name the image was added with
+	 * @return the region, or null if there is no image of that name
+	 */
+	public AtlasRegion getRegion(String name) {
+		return regions.get(name);
+	}
+
+	/**
+	 * Returns every region of the atlas, by name.
+	 * 
+	 * @return an unmodifiable map of the regions
+	 */
+	public Map<String, AtlasRegion> getRegions() {
+		return regions;
+	}
+
+	/**
+	 * Returns the number of pages the images were packed onto.
+	 * 
+	 * @return the page count
+	 */
+	public int getPageCount() {
+		return pages.length;
+	}
+
+	/**
+	 * Returns a page of the atlas.
+	 * 
+	 * @param page
+	 *            the page index, as given by
+	 *            {@link renderEngine.AtlasRegion#getPage()}
+	 * @return the page image
+	 */
+	public Image getPage(int page) {
+		return pages[page];
+	}
+
+	/**
+	 * Returns the width of the border around each image.
+	 * 
+	 * @return the border, in pixels
+	 */
+	public int getBorder() {
+		return border;
+	}
+
+	/**
+	 * Returns how many mipmap levels the pages can have, including the full size
+	 * page, before images start to blend with their neighbours.
+	 * 
+	 * @return the mipmap level count
+	 */
+	public int getMipLevels() {
+		return mipLevels;
+	}
+
+	/**
+	 * Returns the fraction of all of the pages covered by images and their
+	 * borders.
+	 * 
+	 * @return the occupancy, from 0 to 1
+	 */
+	public float getOccupancy() {
+		return occupancy;
+	}
+
+	private static int align(int size, int alignment) {
+		return (size + alignment - 1) / alignment * alignment;
+	}
+}
@@ -0,0 +1,317 @@
+package renderEngine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL21;
+import org.lwjgl.opengl.GL30;
+
+/**
+ * Loads textures without stalling the render thread, in the same two stages as
+ * {@link renderEngine.AsyncModelLoader}:
+ * 
+ * <ol>
+ * <li>Decoding images, packing atlases and building mipmap levels, which runs
+ * on a pool of worker threads</li>
+ * <li>Uploading the finished levels to OpenGL, which must run on the render
+ * thread, and is done a little at a time by calling
+ * {@link #processUploads(long)} once per frame</li>
+ * </ol>
+ * 
+ * Uploads go through a pixel buffer object: the levels are copied into a
+ * mapped unpack buffer, and glTexImage2D then reads them from there, so the
+ * render thread only spends a memory copy on each texture while the driver
+ * moves the pixels to the GPU in its own time. The buffer is given new storage
+ * for every texture, so writing the next texture never waits on the last one.
+ * Every OpenGL call goes through the loader's
+ * {@link renderEngine.RenderDevice}, so a
+ * {@link renderEngine.RecordingRenderDevice} can stand in for OpenGL.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class TextureLoader {
+
+	/* A texture whose levels are built and waiting on the render thread */
+	private static class PendingUpload {
+
+		private final Image[] levels;
+		private final CompletableFuture<Texture> future;
+		private final long sizeBytes;
+
+		private PendingUpload(Image[] levels, CompletableFuture<Texture> future) {
+			this.levels = levels;
+			this.future = future;
+
+			long size = 0;
+			for (Image level : levels) {
+				size += level.sizeBytes();
+			}
+			this.sizeBytes = size;
+		}
+	}
+
+	private final RenderDevice device;
+
+	private final ExecutorService workers;
+
+	private final ConcurrentLinkedQueue<PendingUpload> pendingUploads = new ConcurrentLinkedQueue<PendingUpload>();
+
+	/* Only touched on the render thread */
+	private final List<Texture> textures = new ArrayList<Texture>();
+	private int pixelBufferId = 0;
+
+	/**
+	 * Constructs a loader that uploads through the specified device, with its
+	 * own pool of worker threads.
+	 * 
+	 * @param device
+	 *            the device textures are uploaded to
+	 * @param workerThreads
+	 *            the number of threads used to decode images and build mipmaps
+	 */
+	public TextureLoader(RenderDevice device, int workerThreads) {
+		this.device = device;
+
+		AtomicInteger threadCount = new AtomicInteger();
+		ThreadFactory threadFactory = runnable -> {
+			Thread thread = new Thread(runnable, "Arsia-TextureLoader-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+
+		this.workers = Executors.newFixedThreadPool(workerThreads, threadFactory);
+	}
+
+	/**
+	 * Queues an image file to be decoded, given a full chain of mipmaps, and
+	 * uploaded.
+	 * 
+	 * @param file
+	 *            the image file, such as a PNG
+	 * @return a future that completes with the texture once it has been
+	 *         uploaded, or exceptionally if the file cannot be read or decoded
+	 */
+	public CompletableFuture<Texture> load(Path file) {
+		return CompletableFuture.supplyAsync(() -> read(file), workers).thenCompose(image -> load(image, 32));
+	}
+
+	/**
+	 * Queues an image to be given mipmaps and uploaded.
+	 * 
+	 * @param image
+	 *            the full size image; must not be changed until the returned
+	 *            future is complete
+	 * @param maxLevels
+	 *            the most mipmap levels to build, including the full size image,
+	 *            with 1 for no mipmaps
+	 * @return a future that completes with the texture once it has been uploaded
+	 */
+	public CompletableFuture<Texture> load(Image image, int maxLevels) {
+		CompletableFuture<Texture> future = new CompletableFuture<Texture>();
+
+		workers.execute(() -> {
+			try {
+				pendingUploads.add(new PendingUpload(MipmapGenerator.generate(image, maxLevels), future));
+			} catch (RuntimeException e) {
+				future.completeExceptionally(e);
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * Decodes image files in parallel and packs them into an atlas, all on the
+	 * worker threads.
+	 * 
+	 * @param files
+	 *            the image files, by the name to look each one up by
+	 * @param pageSize
+	 *            the width and height of every page, in pixels
+	 * @param border
+	 *            the pixels of edge repeated around each image, zero or a power
+	 *            of two
+	 * @return a future that completes with the atlas, or exceptionally if a file
+	 *         cannot be read or decoded or the images cannot be packed
+	 * @see renderEngine.TextureAtlas#pack(List, List, int, int)
+	 */
+	public CompletableFuture<TextureAtlas> buildAtlas(Map<String, Path> files, int pageSize, int border) {
+		List<String> names = new ArrayList<String>(files.keySet());
+
+		List<CompletableFuture<Image>> decodes = new ArrayList<CompletableFuture<Image>>();
+		for (String name : names) {
+			Path file = files.get(name);
+			decodes.add(CompletableFuture.supplyAsync(() -> read(file), workers));
+		}
+
+		return CompletableFuture.allOf(decodes.toArray(new CompletableFuture<?>[0])).thenApplyAsync(ignored -> {
+			List<Image> images = new ArrayList<Image>();
+			for (CompletableFuture<Image> decode : decodes) {
+				images.add(decode.join());
+			}
+			return TextureAtlas.pack(names, images, pageSize, border);
+		}, workers);
+	}
+
+	/**
+	 * Queues every page of an atlas to be given as many mipmaps as its border
+	 * allows and uploaded, building the mipmaps of each page in parallel.
+	 * 
+	 * @param atlas
+	 *            the atlas to be uploaded
+	 * @return a future that completes with one texture per page, in page order,
+	 *         once every page has been uploaded
+	 */
+	public CompletableFuture<Texture[]> loadAtlas(TextureAtlas atlas) {
+		List<CompletableFuture<Texture>> pages = new ArrayList<CompletableFuture<Texture>>();
+		for (int page = 0; page < atlas.getPageCount(); page++) {
+			pages.add(load(atlas.getPage(page), atlas.getMipLevels()));
+		}
+
+		return CompletableFuture.allOf(pages.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+			Texture[] textures = new Texture[pages.size()];
+			for (int page = 0; page < textures.length; page++) {
+				textures[page] = pages.get(page).join();
+			}
+			return textures;
+		});
+	}
+
+	/**
+	 * Uploads finished textures to OpenGL until the specified number of bytes has
+	 * been uploaded this call, or nothing is left to upload. At least one texture
+	 * is always uploaded if one is waiting, so a texture larger than the budget
+	 * still gets loaded. Must be called on the render thread, once per frame.
+	 * 
+	 * @param byteBudget
+	 *            roughly how many bytes may be uploaded by this call
+	 * @return the number of bytes that were uploaded
+	 */
+	public long processUploads(long byteBudget) {
+		long uploadedBytes = 0;
+
+		PendingUpload upload;
+		while ((uploadedBytes == 0 || uploadedBytes < byteBudget) && (upload = pendingUploads.poll()) != null) {
+			try {
+				Texture texture = upload(upload.levels, upload.sizeBytes);
+				textures.add(texture);
+				upload.future.complete(texture);
+			} catch (RuntimeException e) {
+				upload.future.completeExceptionally(e);
+			}
+
+			uploadedBytes += upload.sizeBytes;
+		}
+
+		return uploadedBytes;
+	}
+
+	/**
+	 * Returns whether any finished textures are still waiting to be uploaded.
+	 * 
+	 * @return true if {@link #processUploads(long)} has work left to do
+	 */
+	public boolean hasPendingUploads() {
+		return !pendingUploads.isEmpty();
+	}
+
+	/**
+	 * Deletes a texture uploaded by this loader. Must be called on the render
+	 * thread.
+	 * 
+	 * @param texture
+	 *            the texture to be deleted, which must not be used again
+	 */
+	public void delete(Texture texture) {
+		if (textures.remove(texture)) {
+			device.deleteTexture(texture.getTextureId());
+		}
+	}
+
+	/**
+	 * Deletes every texture uploaded by this loader, and the unpack buffer. Must
+	 * be called on the render thread, before the OpenGL context is destroyed.
+	 */
+	public void cleanUp() {
+		for (Texture texture : textures) {
+			device.deleteTexture(texture.getTextureId());
+		}
+		textures.clear();
+
+		if (pixelBufferId != 0) {
+			device.deleteBuffer(pixelBufferId);
+			pixelBufferId = 0;
+		}
+	}
+
+	/**
+	 * Stops the worker threads. Textures that have not yet been built are
+	 * abandoned, but those already built can still be uploaded.
+	 */
+	public void shutdown() {
+		workers.shutdownNow();
+	}
+
+	private Texture upload(Image[] levels, long sizeBytes) {
+		if (pixelBufferId == 0) {
+			pixelBufferId = device.genBuffer();
+		}
+
+		/* New storage every time, so this never waits for the driver to finish reading the last texture */
+		device.bindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, pixelBufferId);
+		device.bufferData(GL21.GL_PIXEL_UNPACK_BUFFER, sizeBytes, GL15.GL_STREAM_DRAW);
+
+		ByteBuffer mapped = device.mapBufferRange(GL21.GL_PIXEL_UNPACK_BUFFER, 0, sizeBytes,
+				GL30.GL_MAP_WRITE_BIT | GL30.GL_MAP_INVALIDATE_BUFFER_BIT);
+		for (Image level : levels) {
+			mapped.put(level.getPixels());
+		}
+		device.unmapBuffer(GL21.GL_PIXEL_UNPACK_BUFFER);
+
+		int textureId = device.genTexture();
+		device.bindTexture(GL11.GL_TEXTURE_2D, textureId);
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_MAX_LEVEL, levels.length - 1);
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER,
+				levels.length > 1 ? GL11.GL_LINEAR_MIPMAP_LINEAR : GL11.GL_LINEAR);
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+
+		/* RGBA rows are always a multiple of 4 bytes, so the default unpack alignment is fine */
+		long offset = 0;
+		for (int level = 0; level < levels.length; level++) {
+			Image image = levels[level];
+			device.texImage2D(GL11.GL_TEXTURE_2D, level, GL30.GL_RGBA8, image.getWidth(), image.getHeight(),
+					GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, offset);
+			offset += image.sizeBytes();
+		}
+
+		device.bindTexture(GL11.GL_TEXTURE_2D, 0);
+		device.bindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, 0);
+
+		return new Texture(textureId, levels[0].getWidth(), levels[0].getHeight(), levels.length, sizeBytes);
+	}
+
+	private static Image read(Path file) {
+		try {
+			return Image.read(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package renderEngine;
+
+/**
+ * Describes one attribute of a vertex, such as its position or its color, and
+ * where that attribute is found within an interleaved vertex. Instances are
+ * created by {@link renderEngine.VertexFormat}, which works out the offsets.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class VertexAttribute {
+
+	private final int index, components, offset;
+	private final AttributeType type;
+
+	VertexAttribute(int index, int components, AttributeType type, int offset) {
+		this.index = index;
+		this.components = components;
+		this.type = type;
+		this.offset = offset;
+	}
+
+	/**
+	 * Returns the VAO attribute list index of this attribute, per the conventions
+	 * in {@link renderEngine.RawModel}.
+	 * 
+	 * @return the attribute index
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns how many components this attribute has, for example 3 for (X, Y, Z).
+	 * 
+	 * @return the number of components
+	 */
+	public int getComponents() {
+		return components;
+	}
+
+	/**
+	 * Returns how the components of this attribute are stored.
+	 * 
+	 * @return the attribute's storage type
+	 */
+	public AttributeType getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the distance, in bytes, from the start of a vertex to the start of
+	 * this attribute.
+	 * 
+	 * @return the offset in bytes
+	 */
+	public int getOffset() {
+		return offset;
+	}
+}
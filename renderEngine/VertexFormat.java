@@ -0,0 +1,132 @@
+package renderEngine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes the layout of an interleaved vertex: which attributes it has, how
+ * each one is stored, and where each one sits within the vertex. Every
+ * attribute starts on a 4-byte boundary, and the stride is the total size of
+ * one vertex. Formats cannot be changed once made; they are built up an
+ * attribute at a time, each step returning a new format, for example:
+ * 
+ * <pre>
+ * new VertexFormat().add(0, 3, AttributeType.FLOAT).add(1, 4, AttributeType.UNSIGNED_BYTE_NORMALIZED)
+ * </pre>
+ * 
+ * @author Matthew L. Roy
+ * @see renderEngine.VertexPacker
+ *
+ */
+public class VertexFormat {
+
+	/**
+	 * Positions only, as (X, Y, Z) floats at attribute 0
+	 */
+	public static final VertexFormat POSITION = new VertexFormat().add(0, 3, AttributeType.FLOAT);
+
+	/**
+	 * The compact form of every attribute reserved in
+	 * {@link renderEngine.RawModel}: float positions, byte colors, packed normals
+	 * and half-float texture coordinates, for 24 bytes per vertex
+	 */
+	public static final VertexFormat POSITION_COLOR_NORMAL_TEXTURE = new VertexFormat()
+			.add(0, 3, AttributeType.FLOAT).add(1, 4, AttributeType.UNSIGNED_BYTE_NORMALIZED)
+			.add(2, 3, AttributeType.INT_2_10_10_10_REV).add(3, 2, AttributeType.HALF_FLOAT);
+
+	private final List<VertexAttribute> attributes;
+
+	private final int stride;
+
+	/**
+	 * Constructs an empty format, with no attributes. Use
+	 * {@link #add(int, int, AttributeType)} to add to it.
+	 */
+	public VertexFormat() {
+		this(Collections.<VertexAttribute>emptyList(), 0);
+	}
+
+	private VertexFormat(List<VertexAttribute> attributes, int stride) {
+		this.attributes = attributes;
+		this.stride = stride;
+	}
+
+	/**
+	 * Returns a copy of this format with an attribute added to the end.
+	 * 
+	 * @param index
+	 *            the VAO attribute list index, from 0 to 15
+	 * @param components
+	 *            the number of components, from 1 to 4
+	 * @param type
+	 *            how the components are stored
+	 * @return the new format
+	 */
+	public VertexFormat add(int index, int components, AttributeType type) {
+		if (index < 0 || index > 15) {
+			throw new IllegalArgumentException("Attribute index out of range: " + index);
+		}
+
+		if (components < 1 || components > 4) {
+			throw new IllegalArgumentException("Attribute must have 1 to 4 components: " + components);
+		}
+
+		if (type == AttributeType.INT_2_10_10_10_REV && components < 3) {
+			throw new IllegalArgumentException("Packed 2_10_10_10 attributes must have 3 or 4 components");
+		}
+
+		for (VertexAttribute attribute : attributes) {
+			if (attribute.getIndex() == index) {
+				throw new IllegalArgumentException("Attribute index already in use: " + index);
+			}
+		}
+
+		List<VertexAttribute> newAttributes = new ArrayList<VertexAttribute>(attributes);
+		newAttributes.add(new VertexAttribute(index, components, type, stride));
+
+		/* Keep the next attribute aligned to 4 bytes */
+		int newStride = stride + ((type.sizeOf(components) + 3) & ~3);
+		return new VertexFormat(Collections.unmodifiableList(newAttributes), newStride);
+	}
+
+	/**
+	 * Returns the attributes of this format, in the order they are laid out.
+	 * 
+	 * @return an unmodifiable list of the attributes
+	 */
+	public List<VertexAttribute> getAttributes() {
+		return attributes;
+	}
+
+	/**
+	 * Returns the number of attributes in this format.
+	 * 
+	 * @return the attribute count
+	 */
+	public int getAttributeCount() {
+		return attributes.size();
+	}
+
+	/**
+	 * Returns the attribute at the specified position in the layout (not the
+	 * attribute list index).
+	 * 
+	 * @param position
+	 *            the position of the attribute in this format
+	 * @return the attribute
+	 */
+	public VertexAttribute getAttribute(int position) {
+		return attributes.get(position);
+	}
+
+	/**
+	 * Returns the size of one vertex in bytes, which is also the distance between
+	 * the starts of two neighboring vertices.
+	 * 
+	 * @return the stride in bytes
+	 */
+	public int getStride() {
+		return stride;
+	}
+}
@@ -0,0 +1,192 @@
+package renderEngine;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packs separate arrays of vertex attributes into a single interleaved buffer,
+ * as laid out by a {@link renderEngine.VertexFormat}, converting each attribute
+ * to its compact storage type along the way. Nothing here calls OpenGL, so the
+ * packing can be checked on any machine. This class behaves in a "static"
+ * fashion in the sense that it is constant and cannot be constructed publicly.
+ *
+ * @author Matthew L. Roy
+ *
+ */
+public final class VertexPacker {
+
+	/* Private so that this class does not accidently get instantiated */
+	private VertexPacker() {
+	}
+
+	/**
+	 * Returns how many vertices the specified attribute data holds, checking that
+	 * every attribute agrees.
+	 *
+	 * @param format
+	 *            the layout of the vertices
+	 * @param attributeData
+	 *            one array per attribute of the format, in the same order, each
+	 *            holding that attribute's components for every vertex
+	 * @return the number of vertices
+	 */
+	public static int vertexCountOf(VertexFormat format, float[][] attributeData) {
+		if (attributeData.length != format.getAttributeCount()) {
+			throw new IllegalArgumentException("Expected data for " + format.getAttributeCount()
+					+ " attributes, but got " + attributeData.length);
+		}
+
+		int vertexCount = -1;
+		for (int i = 0; i < attributeData.length; i++) {
+			int components = format.getAttribute(i).getComponents();
+			if (attributeData[i].length % components != 0) {
+				throw new IllegalArgumentException("Attribute " + i + " data is not a multiple of " + components);
+			}
+
+			int count = attributeData[i].length / components;
+			if (vertexCount != -1 && count != vertexCount) {
+				throw new IllegalArgumentException("Attribute " + i + " has " + count + " vertices, expected "
+						+ vertexCount);
+			}
+
+			vertexCount = count;
+		}
+
+		return Math.max(vertexCount, 0);
+	}
+
+	/**
+	 * Interleaves the specified attribute data into the buffer, starting at the
+	 * buffer's position, and then flips the buffer so it is in a read-from state.
+	 * The buffer must be in native byte order, as OpenGL expects.
+	 *
+	 * @param format
+	 *            the layout of the vertices
+	 * @param attributeData
+	 *            one array per attribute of the format, in the same order, each
+	 *            holding that attribute's components for every vertex
+	 * @param buffer
+	 *            the buffer to be written to, with room for every vertex
+	 * @return the same buffer that was passed in
+	 */
+	public static ByteBuffer pack(VertexFormat format, float[][] attributeData, ByteBuffer buffer) {
+		int vertexCount = vertexCountOf(format, attributeData);
+		int stride = format.getStride(), start = buffer.position();
+
+		for (int a = 0; a < attributeData.length; a++) {
+			VertexAttribute attribute = format.getAttribute(a);
+			float[] data = attributeData[a];
+			int components = attribute.getComponents();
+
+			int position = start + attribute.getOffset();
+			for (int v = 0, i = 0; v < vertexCount; v++, i += components, position += stride) {
+				putAttribute(buffer, position, attribute.getType(), data, i, components);
+			}
+		}
+
+		buffer.position(start + vertexCount * stride);
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Converts a float to the nearest 16-bit half float, as used by
+	 * {@link renderEngine.AttributeType#HALF_FLOAT}. Values too large become
+	 * infinity and values too small become zero.
+	 *
+	 * @param value
+	 *            the float to be converted
+	 * @return the bits of the half float
+	 */
+	public static short floatToHalf(float value) {
+		int bits = Float.floatToRawIntBits(value);
+		int sign = (bits >>> 16) & 0x8000;
+		int exponent = ((bits >>> 23) & 0xFF) - 127 + 15;
+		int mantissa = bits & 0x7FFFFF;
+
+		/* NaN stays NaN, infinity and overflow become infinity */
+		if (((bits >>> 23) & 0xFF) == 0xFF) {
+			return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0));
+		}
+
+		if (exponent >= 0x1F) {
+			return (short) (sign | 0x7C00);
+		}
+
+		/* Too small even for a subnormal half */
+		if (exponent < -10) {
+			return (short) sign;
+		}
+
+		/* Subnormal halves carry the implicit leading bit in the mantissa */
+		if (exponent <= 0) {
+			mantissa |= 0x800000;
+			int shift = 14 - exponent;
+			int half = mantissa >> shift;
+			int remainder = mantissa & ((1 << shift) - 1), halfway = 1 << (shift - 1);
+			if (remainder > halfway || (remainder == halfway && (half & 1) != 0)) {
+				half++;
+			}
+			return (short) (sign | half);
+		}
+
+		/* Round to nearest even; a carry out of the mantissa bumps the exponent */
+		int half = (exponent << 10) | (mantissa >> 13);
+		int remainder = mantissa & 0x1FFF;
+		if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0)) {
+			half++;
+		}
+		return (short) (sign | half);
+	}
+
+	/**
+	 * Packs three or four signed, normalized components into the layout used by
+	 * {@link renderEngine.AttributeType#INT_2_10_10_10_REV}. Each value is clamped
+	 * to the range of -1 to 1.
+	 *
+	 * @param x
+	 *            the first component, stored in the lowest 10 bits
+	 * @param y
+	 *            the second component
+	 * @param z
+	 *            the third component
+	 * @param w
+	 *            the fourth component, stored in the highest 2 bits
+	 * @return the packed int
+	 */
+	public static int packInt2101010(float x, float y, float z, float w) {
+		return (snorm(x, 511) & 0x3FF) | (snorm(y, 511) & 0x3FF) << 10 | (snorm(z, 511) & 0x3FF) << 20
+				| (snorm(w, 1) & 0x3) << 30;
+	}
+
+	private static void putAttribute(ByteBuffer buffer, int position, AttributeType type, float[] data, int i,
+			int components) {
+		switch (type) {
+		case FLOAT:
+			for (int c = 0; c < components; c++) {
+				buffer.putFloat(position + c * Float.BYTES, data[i + c]);
+			}
+			break;
+		case HALF_FLOAT:
+			for (int c = 0; c < components; c++) {
+				buffer.putShort(position + c * Short.BYTES, floatToHalf(data[i + c]));
+			}
+			break;
+		case UNSIGNED_BYTE_NORMALIZED:
+			for (int c = 0; c < components; c++) {
+				float clamped = Math.max(0f, Math.min(1f, data[i + c]));
+				buffer.put(position + c, (byte) Math.round(clamped * 255f));
+			}
+			break;
+		case INT_2_10_10_10_REV:
+			float w = components == 4 ? data[i + 3] : 0f;
+			buffer.putInt(position, packInt2101010(data[i], data[i + 1], data[i + 2], w));
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown attribute type: " + type);
+		}
+	}
+
+	private static int snorm(float value, int max) {
+		return Math.round(Math.max(-1f, Math.min(1f, value)) * max);
+	}
+}
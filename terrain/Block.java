@@ -0,0 +1,62 @@
+package terrain;
+
+/**
+ * The kinds of block terrain is made of, each stored as one byte in a chunk's
+ * volume, with zero meaning empty space. Every block other than
+ * {@link #AIR} is solid and opaque. This class behaves in a "static" fashion
+ * in the sense that it is constant and cannot be constructed publicly.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public final class Block {
+
+	/**
+	 * Empty space, which is never meshed
+	 */
+	public static final byte AIR = 0;
+
+	/**
+	 * The rock that makes up most of the ground
+	 */
+	public static final byte STONE = 1;
+
+	/**
+	 * The layer just under grass and sand
+	 */
+	public static final byte DIRT = 2;
+
+	/**
+	 * The surface of the ground at middling heights
+	 */
+	public static final byte GRASS = 3;
+
+	/**
+	 * The surface of the ground in the lowest places
+	 */
+	public static final byte SAND = 4;
+
+	/**
+	 * The surface of the ground in the highest places
+	 */
+	public static final byte SNOW = 5;
+
+	/* Packed as 0xRRGGBBAA, by block */
+	private static final int[] COLORS = { 0x00000000, 0x7F7F7FFF, 0x8B5A2BFF, 0x4C9A2AFF, 0xDCCB8AFF,
+			0xF2F5F8FF };
+
+	/* Private so that this class does not accidently get instantiated */
+	private Block() {
+	}
+
+	/**
+	 * Returns the color a block is drawn with.
+	 * 
+	 * @param block
+	 *            the block
+	 * @return the color, packed as 0xRRGGBBAA
+	 */
+	public static int getColor(byte block) {
+		return COLORS[block];
+	}
+}
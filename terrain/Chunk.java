@@ -0,0 +1,89 @@
+package terrain;
+
+/**
+ * The layout shared by everything that works on chunks: the cubes of
+ * {@link #SIZE} blocks on a side that terrain is generated, meshed and
+ * streamed in. Chunk coordinates count whole chunks, so the chunk (1, 0, -1)
+ * covers the blocks from (32, 0, -32) up to but not including (64, 32, 0).
+ * 
+ * <p>
+ * A chunk's blocks are held in a padded volume of {@link #PADDED_SIZE} on a
+ * side, one byte per block, with a layer of its neighbours' blocks around the
+ * outside. The padding lets a chunk be meshed on its own, without looking up
+ * its neighbours, while still knowing which faces on its edges are hidden.
+ * Padded coordinates run from 0 to {@link #SIZE} + 1, so the chunk's own
+ * blocks are at 1 to {@link #SIZE}. This class behaves in a "static" fashion
+ * in the sense that it is constant and cannot be constructed publicly.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public final class Chunk {
+
+	/**
+	 * The number of blocks along each side of a chunk
+	 */
+	public static final int SIZE = 32;
+
+	/**
+	 * The number of blocks along each side of a padded volume
+	 */
+	public static final int PADDED_SIZE = SIZE + 2;
+
+	/**
+	 * The number of blocks in a padded volume
+	 */
+	public static final int PADDED_VOLUME = PADDED_SIZE * PADDED_SIZE * PADDED_SIZE;
+
+	/* Chunk coordinates are packed into 21 bits each to make a key */
+	private static final int COORDINATE_BITS = 21, COORDINATE_MASK = (1 << COORDINATE_BITS) - 1;
+
+	/* Private so that this class does not accidently get instantiated */
+	private Chunk() {
+	}
+
+	/**
+	 * Returns where a block is in a padded volume, with X changing fastest and
+	 * Z slowest.
+	 * 
+	 * @param x
+	 *            the padded X coordinate
+	 * @param y
+	 *            the padded Y coordinate
+	 * @param z
+	 *            the padded Z coordinate
+	 * @return the index into the volume
+	 */
+	public static int index(int x, int y, int z) {
+		return x + PADDED_SIZE * (y + PADDED_SIZE * z);
+	}
+
+	/**
+	 * Packs the coordinates of a chunk into one long, to be used as a map key.
+	 * Each coordinate must be within about a million chunks of zero.
+	 * 
+	 * @param chunkX
+	 *            the chunk X coordinate
+	 * @param chunkY
+	 *            the chunk Y coordinate
+	 * @param chunkZ
+	 *            the chunk Z coordinate
+	 * @return the key
+	 */
+	public static long key(int chunkX, int chunkY, int chunkZ) {
+		return ((long) (chunkX & COORDINATE_MASK) << (COORDINATE_BITS * 2))
+				| ((long) (chunkY & COORDINATE_MASK) << COORDINATE_BITS) | (chunkZ & COORDINATE_MASK);
+	}
+
+	/**
+	 * Returns the chunk that a world coordinate falls in, along one axis.
+	 * 
+	 * @param coordinate
+	 *            the world coordinate
+	 * @return the chunk coordinate
+	 */
+	public static int chunkOf(float coordinate) {
+		return Math.floorDiv((int) Math.floor(coordinate), SIZE);
+	}
+}
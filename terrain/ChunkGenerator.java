@@ -0,0 +1,234 @@
+package terrain;
+
+import java.util.Arrays;
+
+/**
+ * Fills chunks with procedurally generated terrain. The ground is a heightmap
+ * of fractal {@link terrain.Noise}, topped with grass, sand or snow depending
+ * on its height over a few blocks of dirt, with stone below. Caves are carved
+ * out of the stone wherever a second, 3D noise is high enough.
+ * 
+ * <p>
+ * The cave noise is only sampled every {@link #CAVE_STEP} blocks, on a grid
+ * lined up with the world rather than the chunk, and blended between those
+ * samples. That cuts the noise evaluated per chunk from every block to one in
+ * 64, and because the grid is the same for every chunk, neighbouring chunks
+ * still agree on the blocks they share.
+ * </p>
+ * 
+ * <p>
+ * The world starts at a height of zero, and everything below that is treated
+ * as solid stone, so nothing is ever meshed underneath it. A generator never
+ * changes once constructed, so one can be shared by every worker thread.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class ChunkGenerator {
+
+	/**
+	 * The spacing, in blocks, of the grid that cave noise is sampled on
+	 */
+	public static final int CAVE_STEP = 4;
+
+	private static final int CAVE_SHIFT = Integer.numberOfTrailingZeros(CAVE_STEP);
+
+	/* Enough grid points to blend every block of a padded volume, which starts one block before the chunk */
+	private static final int CAVE_POINTS = Chunk.SIZE / CAVE_STEP + 3;
+
+	private static final float HEIGHT_SCALE = 1f / 256f, CAVE_SCALE = 1f / 48f, CAVE_THRESHOLD = 0.28f;
+
+	private static final int HEIGHT_OCTAVES = 5;
+
+	/* Caves stay this far under the surface, and above the bottom of the world */
+	private static final int CAVE_DEPTH = 4, CAVE_FLOOR = 2;
+
+	private static final int DIRT_DEPTH = 3;
+
+	private final Noise heightNoise, caveNoise;
+
+	private final int baseHeight, heightRange, sandLevel, snowLevel;
+
+	/**
+	 * Constructs a generator with ground from 24 to 120 blocks high.
+	 * 
+	 * @param seed
+	 *            the seed of the world, with the same seed always giving the
+	 *            same terrain
+	 */
+	public ChunkGenerator(long seed) {
+		this(seed, 24, 96);
+	}
+
+	/**
+	 * Constructs a generator.
+	 * 
+	 * @param seed
+	 *            the seed of the world, with the same seed always giving the
+	 *            same terrain
+	 * @param baseHeight
+	 *            the lowest the ground can be, at least zero
+	 * @param heightRange
+	 *            how much higher than that the ground can be
+	 */
+	public ChunkGenerator(long seed, int baseHeight, int heightRange) {
+		this.heightNoise = new Noise(seed);
+		this.caveNoise = new Noise(seed * 0x9E3779B97F4A7C15L + 1);
+		this.baseHeight = baseHeight;
+		this.heightRange = heightRange;
+		this.sandLevel = baseHeight + heightRange * 35 / 100;
+		this.snowLevel = baseHeight + heightRange * 70 / 100;
+	}
+
+	/**
+	 * Returns the height of the ground, ignoring caves.
+	 * 
+	 * @param x
+	 *            the world X coordinate
+	 * @param z
+	 *            the world Z coordinate
+	 * @return the Y of the highest solid block
+	 */
+	public int getHeight(int x, int z) {
+		float noise = heightNoise.fractal(x * HEIGHT_SCALE, 0.5f, z * HEIGHT_SCALE, HEIGHT_OCTAVES);
+		int height = baseHeight + (int) ((noise * 0.5f + 0.5f) * heightRange);
+		return Math.max(baseHeight, Math.min(baseHeight + heightRange, height));
+	}
+
+	/**
+	 * Returns the highest chunk Y coordinate that can hold any ground. Chunks
+	 * from zero up to this are the only ones that need generating.
+	 * 
+	 * @return the highest chunk Y coordinate
+	 */
+	public int getMaxChunkY() {
+		return Chunk.chunkOf(baseHeight + heightRange);
+	}
+
+	/**
+	 * Fills a padded volume with the blocks of a chunk and the layer of its
+	 * neighbours' blocks around it.
+	 * 
+	 * @param chunkX
+	 *            the chunk X coordinate
+	 * @param chunkY
+	 *            the chunk Y coordinate
+	 * @param chunkZ
+	 *            the chunk Z coordinate
+	 * @param volume
+	 *            the volume to be filled, of {@link terrain.Chunk#PADDED_VOLUME}
+	 *            blocks
+	 * @return false if the volume is all air or all solid, so that the chunk has
+	 *         nothing to mesh
+	 */
+	public boolean generate(int chunkX, int chunkY, int chunkZ, byte[] volume) {
+		int size = Chunk.PADDED_SIZE;
+
+		/* The world coordinates of the padded volume's first block */
+		int originX = chunkX * Chunk.SIZE - 1, originY = chunkY * Chunk.SIZE - 1, originZ = chunkZ * Chunk.SIZE - 1;
+
+		int[] heights = new int[size * size];
+		int maxHeight = Integer.MIN_VALUE;
+		for (int z = 0; z < size; z++) {
+			for (int x = 0; x < size; x++) {
+				int height = getHeight(originX + x, originZ + z);
+				heights[x + z * size] = height;
+				maxHeight = Math.max(maxHeight, height);
+			}
+		}
+
+		/* Sky chunks are common, and are done with before any caves are sampled */
+		if (originY > maxHeight) {
+			Arrays.fill(volume, Block.AIR);
+			return false;
+		}
+
+		int latticeX = originX >> CAVE_SHIFT, latticeY = originY >> CAVE_SHIFT, latticeZ = originZ >> CAVE_SHIFT;
+		float[] caves = null;
+		if (originY <= maxHeight - CAVE_DEPTH && originY + size > CAVE_FLOOR) {
+			caves = sampleCaves(latticeX, latticeY, latticeZ);
+		}
+
+		int solid = 0;
+		for (int z = 0; z < size; z++) {
+			int worldZ = originZ + z;
+
+			for (int y = 0; y < size; y++) {
+				int worldY = originY + y;
+
+				for (int x = 0; x < size; x++) {
+					int worldX = originX + x;
+					int height = heights[x + z * size];
+
+					byte block;
+					if (worldY < 0) {
+						block = Block.STONE;
+					} else if (worldY > height) {
+						block = Block.AIR;
+					} else if (worldY == height) {
+						block = height < sandLevel ? Block.SAND : height > snowLevel ? Block.SNOW : Block.GRASS;
+					} else if (worldY > height - DIRT_DEPTH) {
+						block = height < sandLevel ? Block.SAND : Block.DIRT;
+					} else {
+						block = Block.STONE;
+					}
+
+					if (caves != null && block != Block.AIR && worldY >= CAVE_FLOOR && worldY <= height - CAVE_DEPTH
+							&& blend(caves, worldX, worldY, worldZ, latticeX, latticeY, latticeZ) > CAVE_THRESHOLD) {
+						block = Block.AIR;
+					}
+
+					volume[Chunk.index(x, y, z)] = block;
+					if (block != Block.AIR) {
+						solid++;
+					}
+				}
+			}
+		}
+
+		return solid != 0 && solid != Chunk.PADDED_VOLUME;
+	}
+
+	/* Samples the cave noise on the world-aligned grid, starting at the specified grid point */
+	private float[] sampleCaves(int latticeX, int latticeY, int latticeZ) {
+		float[] caves = new float[CAVE_POINTS * CAVE_POINTS * CAVE_POINTS];
+
+		int i = 0;
+		for (int z = 0; z < CAVE_POINTS; z++) {
+			float worldZ = (latticeZ + z) << CAVE_SHIFT;
+			for (int y = 0; y < CAVE_POINTS; y++) {
+				/* Squashed vertically, so caves run more across than down */
+				float worldY = ((latticeY + y) << CAVE_SHIFT) * 1.5f;
+				for (int x = 0; x < CAVE_POINTS; x++) {
+					float worldX = (latticeX + x) << CAVE_SHIFT;
+					caves[i++] = caveNoise.noise(worldX * CAVE_SCALE, worldY * CAVE_SCALE, worldZ * CAVE_SCALE);
+				}
+			}
+		}
+
+		return caves;
+	}
+
+	/* Blends the eight grid samples around a block */
+	private static float blend(float[] caves, int worldX, int worldY, int worldZ, int latticeX, int latticeY,
+			int latticeZ) {
+		int x = (worldX >> CAVE_SHIFT) - latticeX, y = (worldY >> CAVE_SHIFT) - latticeY,
+				z = (worldZ >> CAVE_SHIFT) - latticeZ;
+		float tx = (worldX & (CAVE_STEP - 1)) * (1f / CAVE_STEP), ty = (worldY & (CAVE_STEP - 1)) * (1f / CAVE_STEP),
+				tz = (worldZ & (CAVE_STEP - 1)) * (1f / CAVE_STEP);
+
+		int i = x + CAVE_POINTS * (y + CAVE_POINTS * z);
+		int dy = CAVE_POINTS, dz = CAVE_POINTS * CAVE_POINTS;
+
+		float c00 = lerp(tx, caves[i], caves[i + 1]), c10 = lerp(tx, caves[i + dy], caves[i + dy + 1]);
+		float c01 = lerp(tx, caves[i + dz], caves[i + dz + 1]),
+				c11 = lerp(tx, caves[i + dy + dz], caves[i + dy + dz + 1]);
+
+		return lerp(tz, lerp(ty, c00, c10), lerp(ty, c01, c11));
+	}
+
+	private static float lerp(float t, float a, float b) {
+		return a + t * (b - a);
+	}
+}
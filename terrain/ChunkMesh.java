@@ -0,0 +1,125 @@
+package terrain;
+
+import java.nio.ByteBuffer;
+
+import renderEngine.IndexType;
+import utility.PooledBuffer;
+
+/**
+ * The packed vertices and indices of one meshed chunk, made by a
+ * {@link terrain.ChunkMesher} and ready to be handed to a
+ * {@link renderEngine.ModelLoader}. The buffers are borrowed from
+ * {@link utility.BufferPool#SHARED}, so {@link #release()} must be called once
+ * they have been uploaded or are no longer wanted.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class ChunkMesh {
+
+	private final int chunkX, chunkY, chunkZ, quadCount;
+
+	private final PooledBuffer vertices, indices;
+
+	private final IndexType indexType;
+
+	ChunkMesh(int chunkX, int chunkY, int chunkZ, int quadCount, PooledBuffer vertices, PooledBuffer indices,
+			IndexType indexType) {
+		this.chunkX = chunkX;
+		this.chunkY = chunkY;
+		this.chunkZ = chunkZ;
+		this.quadCount = quadCount;
+		this.vertices = vertices;
+		this.indices = indices;
+		this.indexType = indexType;
+	}
+
+	/**
+	 * Returns the X coordinate of the chunk.
+	 * 
+	 * @return the chunk X coordinate
+	 */
+	public int getChunkX() {
+		return chunkX;
+	}
+
+	/**
+	 * Returns the Y coordinate of the chunk.
+	 * 
+	 * @return the chunk Y coordinate
+	 */
+	public int getChunkY() {
+		return chunkY;
+	}
+
+	/**
+	 * Returns the Z coordinate of the chunk.
+	 * 
+	 * @return the chunk Z coordinate
+	 */
+	public int getChunkZ() {
+		return chunkZ;
+	}
+
+	/**
+	 * Returns the number of quads, each of which is two triangles.
+	 * 
+	 * @return the quad count
+	 */
+	public int getQuadCount() {
+		return quadCount;
+	}
+
+	/**
+	 * Returns the number of vertices, four per quad.
+	 * 
+	 * @return the vertex count
+	 */
+	public int getVertexCount() {
+		return quadCount * 4;
+	}
+
+	/**
+	 * Returns the vertices, packed in {@link terrain.ChunkMesher#FORMAT}.
+	 * 
+	 * @return the vertices, in a read-from state
+	 */
+	public ByteBuffer getVertices() {
+		return vertices.getByteBuffer();
+	}
+
+	/**
+	 * Returns the indices, six per quad.
+	 * 
+	 * @return the packed indices, in a read-from state
+	 */
+	public ByteBuffer getIndices() {
+		return indices.getByteBuffer();
+	}
+
+	/**
+	 * Returns the size each index is packed as.
+	 * 
+	 * @return the index type
+	 */
+	public IndexType getIndexType() {
+		return indexType;
+	}
+
+	/**
+	 * Returns the memory taken by the vertices and indices.
+	 * 
+	 * @return the size, in bytes
+	 */
+	public long sizeBytes() {
+		return (long) quadCount * (4 * ChunkMesher.FORMAT.getStride() + 6 * indexType.getBytes());
+	}
+
+	/**
+	 * Returns the buffers to the pool. The mesh must not be used afterwards.
+	 */
+	public void release() {
+		vertices.release();
+		indices.release();
+	}
+}
@@ -0,0 +1,298 @@
+package terrain;
+
+import java.nio.ByteBuffer;
+
+import renderEngine.AttributeType;
+import renderEngine.IndexType;
+import renderEngine.VertexFormat;
+import renderEngine.VertexPacker;
+import utility.BufferPool;
+import utility.PooledBuffer;
+
+/**
+ * Turns the blocks of a chunk into a mesh of the faces between solid blocks
+ * and air, with greedy meshing: each slice of the chunk is swept for visible
+ * faces, and neighbouring faces of the same block facing the same way are
+ * merged into one rectangle, first along a row and then down as many rows as
+ * match. Flat ground and walls become a handful of large quads rather than
+ * one quad per block face, typically cutting the vertex count several times
+ * over.
+ * 
+ * <p>
+ * Each chunk only meshes the faces of its own blocks, using the padding of its
+ * volume to see whether a face on its edge is hidden by a neighbour, so
+ * neighbouring chunks never both draw the face between them. The vertices are
+ * written in world space, in {@link #FORMAT}, straight into a buffer that the
+ * mesher keeps and reuses, and copied out at the end into a
+ * {@link terrain.ChunkMesh} of exactly the right size.
+ * </p>
+ * 
+ * <p>
+ * A mesher is not thread-safe, but is cheap enough that each worker thread can
+ * have its own.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class ChunkMesher {
+
+	/**
+	 * The layout of every chunk vertex: the position, in world space, as three
+	 * floats at index 0, the block's color as four normalized unsigned bytes at
+	 * index 1, and the face's normal, packed into a 2_10_10_10 int, at index 2
+	 */
+	public static final VertexFormat FORMAT = new VertexFormat().add(0, 3, AttributeType.FLOAT)
+			.add(1, 4, AttributeType.UNSIGNED_BYTE_NORMALIZED).add(2, 3, AttributeType.INT_2_10_10_10_REV);
+
+	private static final int STRIDE = FORMAT.getStride(), QUAD_BYTES = STRIDE * 4;
+
+	private static final int INITIAL_CAPACITY = 64 * 1024;
+
+	/* The packed normal of each face direction, in the order +X, -X, +Y, -Y, +Z, -Z */
+	private static final int[] NORMALS = { VertexPacker.packInt2101010(1f, 0f, 0f, 0f),
+			VertexPacker.packInt2101010(-1f, 0f, 0f, 0f), VertexPacker.packInt2101010(0f, 1f, 0f, 0f),
+			VertexPacker.packInt2101010(0f, -1f, 0f, 0f), VertexPacker.packInt2101010(0f, 0f, 1f, 0f),
+			VertexPacker.packInt2101010(0f, 0f, -1f, 0f) };
+
+	/* How far apart neighbouring blocks along X, Y and Z are in a padded volume */
+	private static final int[] STRIDES = { 1, Chunk.PADDED_SIZE, Chunk.PADDED_SIZE * Chunk.PADDED_SIZE };
+
+	private final boolean greedy;
+
+	/* The visible faces of one slice: the block, negated when the face points backwards, or zero for none */
+	private final int[] mask = new int[Chunk.SIZE * Chunk.SIZE];
+
+	/* The world position of the chunk, and of the corner of the quad being written */
+	private final int[] origin = new int[3], corner = new int[3];
+
+	private PooledBuffer scratch = null;
+	private ByteBuffer vertices = null;
+	private int quadCount = 0;
+
+	/**
+	 * Constructs a greedy mesher.
+	 */
+	public ChunkMesher() {
+		this(true);
+	}
+
+	/**
+	 * Constructs a mesher.
+	 * 
+	 * @param greedy
+	 *            true to merge faces into larger quads, or false to give every
+	 *            visible block face its own quad, which is only useful to compare
+	 *            against
+	 */
+	public ChunkMesher(boolean greedy) {
+		this.greedy = greedy;
+	}
+
+	/**
+	 * Meshes the blocks of a chunk.
+	 * 
+	 * @param chunkX
+	 *            the chunk X coordinate
+	 * @param chunkY
+	 *            the chunk Y coordinate
+	 * @param chunkZ
+	 *            the chunk Z coordinate
+	 * @param volume
+	 *            the chunk's padded volume, as filled by
+	 *            {@link terrain.ChunkGenerator#generate(int, int, int, byte[])},
+	 *            which is not changed
+	 * @return the mesh, or null if no face of the chunk can be seen
+	 */
+	public ChunkMesh mesh(int chunkX, int chunkY, int chunkZ, byte[] volume) {
+		if (scratch == null) {
+			scratch = BufferPool.SHARED.acquire(INITIAL_CAPACITY);
+			vertices = scratch.getByteBuffer();
+			vertices.clear();
+		}
+
+		origin[0] = chunkX * Chunk.SIZE;
+		origin[1] = chunkY * Chunk.SIZE;
+		origin[2] = chunkZ * Chunk.SIZE;
+		quadCount = 0;
+
+		for (int axis = 0; axis < 3; axis++) {
+			meshAxis(axis, volume);
+		}
+
+		if (quadCount == 0) {
+			return null;
+		}
+
+		PooledBuffer meshVertices = BufferPool.SHARED.acquire(quadCount * QUAD_BYTES);
+		vertices.limit(quadCount * QUAD_BYTES).position(0);
+		meshVertices.getByteBuffer().put(vertices);
+		vertices.clear();
+
+		int vertexCount = quadCount * 4;
+		IndexType indexType = IndexType.forVertexCount(vertexCount);
+		PooledBuffer meshIndices = BufferPool.SHARED.acquire(quadCount * 6 * indexType.getBytes());
+		putIndices(meshIndices.getByteBuffer(), indexType);
+
+		return new ChunkMesh(chunkX, chunkY, chunkZ, quadCount, meshVertices, meshIndices, indexType);
+	}
+
+	/**
+	 * Returns the buffer the mesher writes into to the pool. The mesher can still
+	 * be used afterwards, and will borrow a new buffer.
+	 */
+	public void release() {
+		if (scratch != null) {
+			scratch.release();
+			scratch = null;
+			vertices = null;
+		}
+	}
+
+	/* Meshes the faces pointing either way along one axis, a slice at a time */
+	private void meshAxis(int d, byte[] volume) {
+		/* Going from u to v turns anticlockwise when looking back along d */
+		int u = (d + 1) % 3, v = (d + 2) % 3;
+		int strideD = STRIDES[d], strideU = STRIDES[u], strideV = STRIDES[v];
+		int size = Chunk.SIZE;
+
+		/* Slice s holds the faces between the blocks at s - 1 and s, along d */
+		for (int s = 0; s <= size; s++) {
+			int n = 0;
+			for (int j = 0; j < size; j++) {
+				int index = (s + 1) * strideD + strideU + (j + 1) * strideV;
+				for (int i = 0; i < size; i++, index += strideU) {
+					int behind = volume[index - strideD], ahead = volume[index];
+
+					/* A face belongs to the chunk that owns its solid block, never to the padding */
+					if (behind != Block.AIR && ahead == Block.AIR && s > 0) {
+						mask[n++] = behind;
+					} else if (ahead != Block.AIR && behind == Block.AIR && s < size) {
+						mask[n++] = -ahead;
+					} else {
+						mask[n++] = 0;
+					}
+				}
+			}
+
+			n = 0;
+			for (int j = 0; j < size; j++) {
+				for (int i = 0; i < size;) {
+					int face = mask[n];
+					if (face == 0) {
+						i++;
+						n++;
+						continue;
+					}
+
+					int width = 1, height = 1;
+					if (greedy) {
+						while (i + width < size && mask[n + width] == face) {
+							width++;
+						}
+
+						rows: while (j + height < size) {
+							int row = n + height * size;
+							for (int k = 0; k < width; k++) {
+								if (mask[row + k] != face) {
+									break rows;
+								}
+							}
+							height++;
+						}
+					}
+
+					for (int l = 0; l < height; l++) {
+						int row = n + l * size;
+						for (int k = 0; k < width; k++) {
+							mask[row + k] = 0;
+						}
+					}
+
+					putQuad(d, u, v, s, i, j, width, height, face);
+					i += width;
+					n += width;
+				}
+			}
+		}
+	}
+
+	private void putQuad(int d, int u, int v, int s, int i, int j, int width, int height, int face) {
+		int offset = quadCount * QUAD_BYTES;
+		if (offset + QUAD_BYTES > vertices.capacity()) {
+			grow();
+		}
+
+		int color = Block.getColor((byte) Math.abs(face));
+		int normal = NORMALS[d * 2 + (face < 0 ? 1 : 0)];
+
+		corner[d] = origin[d] + s;
+		corner[u] = origin[u] + i;
+		corner[v] = origin[v] + j;
+
+		/* Faces pointing backwards go round the other way, so both are anticlockwise seen from the front */
+		putVertex(offset, color, normal);
+		if (face > 0) {
+			corner[u] += width;
+			putVertex(offset + STRIDE, color, normal);
+			corner[v] += height;
+			putVertex(offset + STRIDE * 2, color, normal);
+			corner[u] -= width;
+			putVertex(offset + STRIDE * 3, color, normal);
+		} else {
+			corner[v] += height;
+			putVertex(offset + STRIDE, color, normal);
+			corner[u] += width;
+			putVertex(offset + STRIDE * 2, color, normal);
+			corner[v] -= height;
+			putVertex(offset + STRIDE * 3, color, normal);
+		}
+
+		quadCount++;
+	}
+
+	private void putVertex(int offset, int color, int normal) {
+		vertices.putFloat(offset, corner[0]);
+		vertices.putFloat(offset + 4, corner[1]);
+		vertices.putFloat(offset + 8, corner[2]);
+		vertices.put(offset + 12, (byte) (color >>> 24));
+		vertices.put(offset + 13, (byte) (color >>> 16));
+		vertices.put(offset + 14, (byte) (color >>> 8));
+		vertices.put(offset + 15, (byte) color);
+		vertices.putInt(offset + 16, normal);
+	}
+
+	/* Every quad is two triangles, 0-1-2 and 0-2-3, of its own four vertices */
+	private void putIndices(ByteBuffer indices, IndexType indexType) {
+		for (int quad = 0; quad < quadCount; quad++) {
+			int base = quad * 4;
+			switch (indexType) {
+			case UNSIGNED_BYTE:
+				indices.put((byte) base).put((byte) (base + 1)).put((byte) (base + 2));
+				indices.put((byte) base).put((byte) (base + 2)).put((byte) (base + 3));
+				break;
+			case UNSIGNED_SHORT:
+				indices.putShort((short) base).putShort((short) (base + 1)).putShort((short) (base + 2));
+				indices.putShort((short) base).putShort((short) (base + 2)).putShort((short) (base + 3));
+				break;
+			default:
+				indices.putInt(base).putInt(base + 1).putInt(base + 2);
+				indices.putInt(base).putInt(base + 2).putInt(base + 3);
+				break;
+			}
+		}
+	}
+
+	private void grow() {
+		PooledBuffer larger = BufferPool.SHARED.acquire(scratch.sizeBytes() * 2);
+		ByteBuffer largerVertices = larger.getByteBuffer();
+
+		vertices.limit(quadCount * QUAD_BYTES).position(0);
+		largerVertices.put(vertices);
+		largerVertices.clear();
+
+		scratch.release();
+		scratch = larger;
+		vertices = largerVertices;
+	}
+}
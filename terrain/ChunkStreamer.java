@@ -0,0 +1,588 @@
+package terrain;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import renderEngine.Frustum;
+import renderEngine.ModelLoader;
+import renderEngine.RawModel;
+import renderEngine.RenderQueue;
+import utility.Log;
+
+/**
+ * Keeps the chunks around the camera loaded, streaming them in as the camera
+ * moves towards them and out as it moves away. Chunks are loaded in two
+ * stages, like the models of an {@link renderEngine.AsyncModelLoader}:
+ * 
+ * <ol>
+ * <li>Generating and meshing, which runs on a
+ * {@link java.util.concurrent.ForkJoinPool}, nearest chunks first, with each
+ * worker thread reusing a volume and {@link terrain.ChunkMesher} of its own
+ * rather than allocating new ones</li>
+ * <li>Uploading the meshes through a {@link renderEngine.ModelLoader}, which
+ * must run on the render thread, and is done a little at a time by calling
+ * {@link #processUploads(long)} once per frame</li>
+ * </ol>
+ * 
+ * Only a few chunks per worker thread are handed to the pool at a time, so
+ * when the camera moves, chunks now further away that have not been started
+ * yet fall behind the new nearest ones, and those that leave the view are
+ * simply dropped. Builds already running for chunks that leave the view are
+ * thrown away when they finish.
+ * 
+ * <p>
+ * The models of chunks that leave the view are cached, up to a budget of GPU
+ * memory, so coming straight back does not build them again. Once pushed out
+ * of the cache, a model is recycled: its VAO and buffers are refilled with the
+ * next chunk to be uploaded, with
+ * {@link renderEngine.ModelLoader#reload(RawModel, renderEngine.VertexFormat, java.nio.ByteBuffer, java.nio.ByteBuffer, renderEngine.IndexType)},
+ * rather than deleted and created again.
+ * </p>
+ * 
+ * <p>
+ * The world is only a few chunks tall, so whole columns of chunks, from zero
+ * up to {@link terrain.ChunkGenerator#getMaxChunkY()}, are loaded within a
+ * circle around the camera. Every method other than the building itself runs
+ * on the render thread.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class ChunkStreamer {
+
+	private enum State {
+		QUEUED, BUILDING, READY
+	}
+
+	/* One chunk within view, in whichever stage of loading it has reached */
+	private static class Slot {
+
+		private final int chunkX, chunkY, chunkZ;
+		private final long key;
+
+		private State state = State.QUEUED;
+		private RawModel model = null;
+		private int distance = 0;
+
+		/* Written by the worker, and read once the slot comes back through the finished queue */
+		private ChunkMesh mesh = null;
+
+		/* Set when the chunk leaves the view, so a build that has not started yet is skipped */
+		private volatile boolean cancelled = false;
+
+		private Slot(int chunkX, int chunkY, int chunkZ, long key) {
+			this.chunkX = chunkX;
+			this.chunkY = chunkY;
+			this.chunkZ = chunkZ;
+			this.key = key;
+		}
+	}
+
+	/* The memory a worker builds a chunk in, handed from build to build */
+	private static class Scratch {
+
+		private final byte[] volume = new byte[Chunk.PADDED_VOLUME];
+		private final ChunkMesher mesher = new ChunkMesher();
+	}
+
+	/* Recycled models beyond this many are unloaded instead */
+	private static final int MAX_FREE_MODELS = 32;
+
+	/* Chunks handed to the pool at once, per worker thread */
+	private static final int BUILDS_PER_THREAD = 2;
+
+	private final ChunkGenerator generator;
+
+	private final ModelLoader modelLoader;
+
+	private final ForkJoinPool pool;
+
+	private final int maxBuilds;
+
+	private int viewDistance;
+
+	private long cacheBudgetBytes;
+
+	private final ConcurrentLinkedQueue<Slot> finished = new ConcurrentLinkedQueue<Slot>();
+
+	private final ConcurrentLinkedQueue<Scratch> scratches = new ConcurrentLinkedQueue<Scratch>();
+
+	private volatile boolean closed = false;
+
+	/* Only touched on the render thread */
+	private final Map<Long, Slot> slots = new HashMap<Long, Slot>();
+	private final ArrayDeque<Slot> queued = new ArrayDeque<Slot>();
+	private final ArrayDeque<RawModel> freeModels = new ArrayDeque<RawModel>();
+	private int builds = 0, centerX = 0, centerZ = 0;
+	private boolean centered = false;
+
+	/* Models of chunks that have left the view, least recently left first */
+	private final LinkedHashMap<Long, RawModel> cached = new LinkedHashMap<Long, RawModel>();
+	private long cachedBytes = 0;
+
+	private long chunksBuilt = 0, emptyChunks = 0, buildsCancelled = 0, cacheHits = 0, modelsCreated = 0,
+			modelsReused = 0;
+
+	/**
+	 * Constructs a streamer that builds chunks on the common pool.
+	 * 
+	 * @param generator
+	 *            fills each chunk with blocks
+	 * @param modelLoader
+	 *            uploads each chunk's mesh on the render thread
+	 * @param viewDistance
+	 *            how far from the camera's chunk chunks are loaded, in chunks
+	 * @param cacheBudgetBytes
+	 *            how much GPU memory the models of chunks out of view may take up
+	 */
+	public ChunkStreamer(ChunkGenerator generator, ModelLoader modelLoader, int viewDistance, long cacheBudgetBytes) {
+		this(generator, modelLoader, viewDistance, cacheBudgetBytes, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructs a streamer that builds chunks on the specified pool.
+	 * 
+	 * @param generator
+	 *            fills each chunk with blocks
+	 * @param modelLoader
+	 *            uploads each chunk's mesh on the render thread
+	 * @param viewDistance
+	 *            how far from the camera's chunk chunks are loaded, in chunks
+	 * @param cacheBudgetBytes
+	 *            how much GPU memory the models of chunks out of view may take up
+	 * @param pool
+	 *            the pool chunks are generated and meshed on
+	 */
+	public ChunkStreamer(ChunkGenerator generator, ModelLoader modelLoader, int viewDistance, long cacheBudgetBytes,
+			ForkJoinPool pool) {
+		this.generator = generator;
+		this.modelLoader = modelLoader;
+		this.viewDistance = viewDistance;
+		this.cacheBudgetBytes = cacheBudgetBytes;
+		this.pool = pool;
+		this.maxBuilds = pool.getParallelism() * BUILDS_PER_THREAD;
+	}
+
+	/**
+	 * Moves the center of the loaded area to the camera. Nothing changes until
+	 * the camera crosses into another chunk; then chunks that have left the view
+	 * are dropped or cached, and those that have come into view are queued,
+	 * nearest first.
+	 * 
+	 * @param cameraX
+	 *            the camera's world X coordinate
+	 * @param cameraZ
+	 *            the camera's world Z coordinate
+	 */
+	public void update(float cameraX, float cameraZ) {
+		int chunkX = Chunk.chunkOf(cameraX), chunkZ = Chunk.chunkOf(cameraZ);
+		if (centered && chunkX == centerX && chunkZ == centerZ) {
+			return;
+		}
+
+		centered = true;
+		centerX = chunkX;
+		centerZ = chunkZ;
+
+		Iterator<Slot> iterator = slots.values().iterator();
+		while (iterator.hasNext()) {
+			Slot slot = iterator.next();
+			if (distanceOf(slot.chunkX, slot.chunkZ) > viewDistance * viewDistance) {
+				iterator.remove();
+				leave(slot);
+			}
+		}
+
+		int maxChunkY = generator.getMaxChunkY();
+		for (int dz = -viewDistance; dz <= viewDistance; dz++) {
+			for (int dx = -viewDistance; dx <= viewDistance; dx++) {
+				if (dx * dx + dz * dz > viewDistance * viewDistance) {
+					continue;
+				}
+
+				for (int chunkY = 0; chunkY <= maxChunkY; chunkY++) {
+					long key = Chunk.key(chunkX + dx, chunkY, chunkZ + dz);
+					if (!slots.containsKey(key)) {
+						slots.put(key, enter(chunkX + dx, chunkY, chunkZ + dz, key));
+					}
+				}
+			}
+		}
+
+		/* Everything not yet started is queued again, so the nearest chunks to the new center go first */
+		List<Slot> waiting = new ArrayList<Slot>();
+		for (Slot slot : slots.values()) {
+			if (slot.state == State.QUEUED) {
+				slot.distance = distanceOf(slot.chunkX, slot.chunkZ);
+				waiting.add(slot);
+			}
+		}
+		waiting.sort((a, b) -> Integer.compare(a.distance, b.distance));
+
+		queued.clear();
+		queued.addAll(waiting);
+
+		evict();
+		dispatch();
+	}
+
+	/**
+	 * Uploads finished chunks until the specified number of bytes has been
+	 * uploaded this call, or nothing is left to upload, then hands more chunks
+	 * to the pool. At least one chunk is always uploaded if one is waiting, so a
+	 * chunk larger than the budget still gets loaded. Must be called on the
+	 * render thread, once per frame; no more chunks are built until their
+	 * uploads have caught up.
+	 * 
+	 * @param byteBudget
+	 *            roughly how many bytes may be uploaded by this call
+	 * @return the number of bytes that were uploaded
+	 */
+	public long processUploads(long byteBudget) {
+		long uploadedBytes = 0;
+
+		Slot slot;
+		while ((uploadedBytes == 0 || uploadedBytes < byteBudget) && (slot = finished.poll()) != null) {
+			builds--;
+
+			ChunkMesh mesh = slot.mesh;
+			slot.mesh = null;
+
+			if (slot.cancelled) {
+				if (mesh != null) {
+					mesh.release();
+				}
+				buildsCancelled++;
+				continue;
+			}
+
+			slot.state = State.READY;
+			chunksBuilt++;
+
+			if (mesh == null) {
+				emptyChunks++;
+				continue;
+			}
+
+			try {
+				slot.model = upload(mesh);
+			} finally {
+				mesh.release();
+			}
+			uploadedBytes += mesh.sizeBytes();
+		}
+
+		dispatch();
+		return uploadedBytes;
+	}
+
+	/**
+	 * Adds every loaded chunk that can be seen to a render queue.
+	 * 
+	 * @param queue
+	 *            the queue to submit to
+	 * @param frustum
+	 *            the camera's view, which chunks outside of are skipped, or null
+	 *            to submit every loaded chunk
+	 * @return the number of chunks submitted
+	 */
+	public int submit(RenderQueue queue, Frustum frustum) {
+		int submitted = 0;
+
+		for (Slot slot : slots.values()) {
+			if (slot.model != null && (frustum == null || frustum.intersects(slot.model.getBounds()))) {
+				queue.submit(slot.model);
+				submitted++;
+			}
+		}
+
+		return submitted;
+	}
+
+	/**
+	 * Returns whether any chunk in view is still waiting to be built or
+	 * uploaded.
+	 * 
+	 * @return true if more calls to {@link #processUploads(long)} are needed
+	 */
+	public boolean hasPendingWork() {
+		return builds > 0 || !queued.isEmpty();
+	}
+
+	/**
+	 * Sets how far from the camera's chunk chunks are loaded. The loaded area is
+	 * rebuilt around the same center on the next {@link #update(float, float)},
+	 * even if the camera has not moved, dropping or caching chunks beyond the new
+	 * distance and queueing those within it.
+	 * 
+	 * @param viewDistance
+	 *            the new view distance, in chunks
+	 */
+	public void setViewDistance(int viewDistance) {
+		if (viewDistance != this.viewDistance) {
+			this.viewDistance = viewDistance;
+			centered = false;
+		}
+	}
+
+	/**
+	 * Returns how far from the camera's chunk chunks are loaded.
+	 * 
+	 * @return the view distance, in chunks
+	 */
+	public int getViewDistance() {
+		return viewDistance;
+	}
+
+	/**
+	 * Sets how much GPU memory the models of chunks out of view may take up,
+	 * recycling the least recently cached at once if they take up more.
+	 * 
+	 * @param cacheBudgetBytes
+	 *            the new budget, in bytes
+	 */
+	public void setCacheBudget(long cacheBudgetBytes) {
+		this.cacheBudgetBytes = cacheBudgetBytes;
+		evict();
+	}
+
+	/**
+	 * Returns the number of chunks within view, whether loaded or not.
+	 * 
+	 * @return the chunk count
+	 */
+	public int getChunkCount() {
+		return slots.size();
+	}
+
+	/**
+	 * Returns the number of models cached for chunks out of view.
+	 * 
+	 * @return the cached model count
+	 */
+	public int getCachedCount() {
+		return cached.size();
+	}
+
+	/**
+	 * Returns the number of chunks built and kept, including those that turned
+	 * out to have nothing to draw.
+	 * 
+	 * @return the built chunk count
+	 */
+	public long getChunksBuilt() {
+		return chunksBuilt;
+	}
+
+	/**
+	 * Returns the number of chunks built that had nothing to draw, such as those
+	 * that are all sky.
+	 * 
+	 * @return the empty chunk count
+	 */
+	public long getEmptyChunks() {
+		return emptyChunks;
+	}
+
+	/**
+	 * Returns the number of chunks that left the view while being built, and
+	 * whose results were thrown away.
+	 * 
+	 * @return the cancelled build count
+	 */
+	public long getBuildsCancelled() {
+		return buildsCancelled;
+	}
+
+	/**
+	 * Returns the number of chunks that came back into view while their models
+	 * were still cached, and so were not built again.
+	 * 
+	 * @return the cache hit count
+	 */
+	public long getCacheHits() {
+		return cacheHits;
+	}
+
+	/**
+	 * Returns the number of models loaded with a new VAO and buffers.
+	 * 
+	 * @return the created model count
+	 */
+	public long getModelsCreated() {
+		return modelsCreated;
+	}
+
+	/**
+	 * Returns the number of models loaded into the VAO and buffers of a recycled
+	 * model.
+	 * 
+	 * @return the reused model count
+	 */
+	public long getModelsReused() {
+		return modelsReused;
+	}
+
+	/**
+	 * Unloads every model, and returns every buffer to the pool. Builds still
+	 * running are thrown away as they finish. The streamer must not be used
+	 * afterwards. Must be called on the render thread, before the OpenGL context
+	 * is destroyed.
+	 */
+	public void cleanUp() {
+		closed = true;
+
+		for (Slot slot : slots.values()) {
+			slot.cancelled = true;
+			if (slot.model != null) {
+				modelLoader.unload(slot.model);
+			}
+		}
+		slots.clear();
+		queued.clear();
+
+		for (RawModel model : cached.values()) {
+			modelLoader.unload(model);
+		}
+		cached.clear();
+		cachedBytes = 0;
+
+		for (RawModel model : freeModels) {
+			modelLoader.unload(model);
+		}
+		freeModels.clear();
+
+		releaseFinished();
+		releaseScratches();
+	}
+
+	/* A chunk coming into view is taken from the cache if it is there, or queued to be built */
+	private Slot enter(int chunkX, int chunkY, int chunkZ, long key) {
+		Slot slot = new Slot(chunkX, chunkY, chunkZ, key);
+
+		RawModel model = cached.remove(key);
+		if (model != null) {
+			cachedBytes -= modelLoader.getBufferBytes(model);
+			slot.model = model;
+			slot.state = State.READY;
+			cacheHits++;
+		}
+
+		return slot;
+	}
+
+	/* A chunk leaving the view has its model cached, or its build cancelled */
+	private void leave(Slot slot) {
+		slot.cancelled = true;
+
+		if (slot.model != null) {
+			cached.put(slot.key, slot.model);
+			cachedBytes += modelLoader.getBufferBytes(slot.model);
+			slot.model = null;
+		}
+	}
+
+	/* Recycles the least recently cached models until the cache is within its budget */
+	private void evict() {
+		while (cachedBytes > cacheBudgetBytes && !cached.isEmpty()) {
+			Iterator<RawModel> eldest = cached.values().iterator();
+			RawModel model = eldest.next();
+			eldest.remove();
+			cachedBytes -= modelLoader.getBufferBytes(model);
+
+			if (freeModels.size() < MAX_FREE_MODELS) {
+				freeModels.add(model);
+			} else {
+				modelLoader.unload(model);
+			}
+		}
+	}
+
+	/* Hands queued chunks to the pool until enough are being built at once */
+	private void dispatch() {
+		Slot slot;
+		while (builds < maxBuilds && (slot = queued.poll()) != null) {
+			if (slot.cancelled) {
+				continue;
+			}
+
+			Slot building = slot;
+			building.state = State.BUILDING;
+			builds++;
+			pool.execute(() -> build(building));
+		}
+	}
+
+	/* Runs on a worker thread */
+	private void build(Slot slot) {
+		if (!slot.cancelled) {
+			Scratch scratch = scratches.poll();
+			if (scratch == null) {
+				scratch = new Scratch();
+			}
+
+			try {
+				if (generator.generate(slot.chunkX, slot.chunkY, slot.chunkZ, scratch.volume)) {
+					slot.mesh = scratch.mesher.mesh(slot.chunkX, slot.chunkY, slot.chunkZ, scratch.volume);
+				}
+			} catch (RuntimeException e) {
+				/* Left empty, rather than retried every time it comes into view */
+				Log.error("Unable to build chunk (" + slot.chunkX + ", " + slot.chunkY + ", " + slot.chunkZ + "): "
+						+ e);
+			} finally {
+				scratches.add(scratch);
+			}
+		}
+
+		finished.add(slot);
+
+		/* Anything handed back after clean up has nobody left to release it */
+		if (closed) {
+			releaseFinished();
+			releaseScratches();
+		}
+	}
+
+	private RawModel upload(ChunkMesh mesh) {
+		RawModel free = freeModels.poll();
+		if (free != null) {
+			modelsReused++;
+			return modelLoader.reload(free, ChunkMesher.FORMAT, mesh.getVertices(), mesh.getIndices(),
+					mesh.getIndexType());
+		}
+
+		modelsCreated++;
+		return modelLoader.loadToVAO(ChunkMesher.FORMAT, mesh.getVertices(), mesh.getIndices(), mesh.getIndexType());
+	}
+
+	private void releaseFinished() {
+		Slot slot;
+		while ((slot = finished.poll()) != null) {
+			if (slot.mesh != null) {
+				slot.mesh.release();
+				slot.mesh = null;
+			}
+		}
+	}
+
+	private void releaseScratches() {
+		Scratch scratch;
+		while ((scratch = scratches.poll()) != null) {
+			scratch.mesher.release();
+		}
+	}
+
+	/* Squared distance from the center, in chunks */
+	private int distanceOf(int chunkX, int chunkZ) {
+		int dx = chunkX - centerX, dz = chunkZ - centerZ;
+		return dx * dx + dz * dz;
+	}
+}
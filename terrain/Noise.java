@@ -0,0 +1,126 @@
+package terrain;
+
+import java.util.Random;
+
+/**
+ * Smooth, repeatable pseudo-random noise, using Ken Perlin's improved gradient
+ * noise. The same seed and coordinates always give the same value, so chunks
+ * generated separately, on any thread and in any order, line up with each
+ * other. A noise object never changes once constructed, so one can be shared
+ * by every worker thread.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class Noise {
+
+	/* The permutation written out twice, so lookups of up to 511 need no wrapping */
+	private final int[] permutation = new int[512];
+
+	/**
+	 * Constructs the noise for a seed.
+	 * 
+	 * @param seed
+	 *            the seed that the noise is shuffled by
+	 */
+	public Noise(long seed) {
+		int[] shuffled = new int[256];
+		for (int i = 0; i < shuffled.length; i++) {
+			shuffled[i] = i;
+		}
+
+		Random random = new Random(seed);
+		for (int i = shuffled.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = shuffled[i];
+			shuffled[i] = shuffled[j];
+			shuffled[j] = swap;
+		}
+
+		for (int i = 0; i < permutation.length; i++) {
+			permutation[i] = shuffled[i & 255];
+		}
+	}
+
+	/**
+	 * Returns the noise at a point. The noise is zero at every point with whole
+	 * coordinates, and changes over a distance of about one.
+	 * 
+	 * @param x
+	 *            the X coordinate
+	 * @param y
+	 *            the Y coordinate
+	 * @param z
+	 *            the Z coordinate
+	 * @return the noise, from about -1 to 1
+	 */
+	public float noise(float x, float y, float z) {
+		int floorX = (int) Math.floor(x), floorY = (int) Math.floor(y), floorZ = (int) Math.floor(z);
+		int cellX = floorX & 255, cellY = floorY & 255, cellZ = floorZ & 255;
+
+		x -= floorX;
+		y -= floorY;
+		z -= floorZ;
+
+		float u = fade(x), v = fade(y), w = fade(z);
+
+		int[] p = permutation;
+		int a = p[cellX] + cellY, aa = p[a] + cellZ, ab = p[a + 1] + cellZ;
+		int b = p[cellX + 1] + cellY, ba = p[b] + cellZ, bb = p[b + 1] + cellZ;
+
+		return lerp(w,
+				lerp(v, lerp(u, gradient(p[aa], x, y, z), gradient(p[ba], x - 1, y, z)),
+						lerp(u, gradient(p[ab], x, y - 1, z), gradient(p[bb], x - 1, y - 1, z))),
+				lerp(v, lerp(u, gradient(p[aa + 1], x, y, z - 1), gradient(p[ba + 1], x - 1, y, z - 1)),
+						lerp(u, gradient(p[ab + 1], x, y - 1, z - 1), gradient(p[bb + 1], x - 1, y - 1, z - 1))));
+	}
+
+	/**
+	 * Returns fractal noise at a point: several octaves of
+	 * {@link #noise(float, float, float)} added together, each at twice the
+	 * frequency and half the strength of the one before it, giving broad shapes
+	 * with finer detail on top.
+	 * 
+	 * @param x
+	 *            the X coordinate
+	 * @param y
+	 *            the Y coordinate
+	 * @param z
+	 *            the Z coordinate
+	 * @param octaves
+	 *            the number of octaves, at least one
+	 * @return the noise, from about -1 to 1
+	 */
+	public float fractal(float x, float y, float z, int octaves) {
+		float sum = 0f, amplitude = 1f, totalAmplitude = 0f;
+
+		for (int octave = 0; octave < octaves; octave++) {
+			sum += noise(x, y, z) * amplitude;
+			totalAmplitude += amplitude;
+
+			x *= 2f;
+			y *= 2f;
+			z *= 2f;
+			amplitude *= 0.5f;
+		}
+
+		return sum / totalAmplitude;
+	}
+
+	/* 6t^5 - 15t^4 + 10t^3, which is flat at both ends so cells join smoothly */
+	private static float fade(float t) {
+		return t * t * t * (t * (t * 6f - 15f) + 10f);
+	}
+
+	private static float lerp(float t, float a, float b) {
+		return a + t * (b - a);
+	}
+
+	/* Dots the offset with one of the twelve edge directions of a cube, picked by the hash */
+	private static float gradient(int hash, float x, float y, float z) {
+		int h = hash & 15;
+		float u = h < 8 ? x : y;
+		float v = h < 4 ? y : h == 12 || h == 14 ? x : z;
+		return ((h & 1) == 0 ? u : -u) + ((h & 2) == 0 ? v : -v);
+	}
+}
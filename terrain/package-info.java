@@ -0,0 +1,10 @@
+/**
+ * This package holds the procedural terrain: noise-based generation of blocks,
+ * one chunk at a time, greedy meshing of each chunk into as few quads as
+ * possible, and the streaming of chunks in and out around the camera, with
+ * generation and meshing run in parallel off the render thread.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+package terrain;
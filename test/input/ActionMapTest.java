@@ -0,0 +1,153 @@
+package input;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Feeds key, button, cursor and scroll events through an
+ * {@link input.InputQueue} into an {@link input.ActionMap}, a tick at a time,
+ * and checks which actions are down, pressed and released after each tick.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class ActionMapTest {
+
+	private final InputQueue queue = new InputQueue(64);
+
+	private final ActionMap actions = new ActionMap();
+
+	private int forward = 0, jump = 0, fire = 0;
+
+	@BeforeEach
+	public void setUp() {
+		forward = actions.register("forward");
+		jump = actions.register("jump");
+		fire = actions.register("fire");
+		actions.bindKey(forward, GLFW.GLFW_KEY_W);
+		actions.bindKey(forward, GLFW.GLFW_KEY_UP);
+		actions.bindKey(jump, GLFW.GLFW_KEY_SPACE);
+		actions.bindMouseButton(fire, GLFW.GLFW_MOUSE_BUTTON_LEFT);
+	}
+
+	@Test
+	public void actionBoundToTwoKeysIsDownUntilBothAreReleased() {
+		key(GLFW.GLFW_KEY_W, GLFW.GLFW_PRESS, 10);
+		actions.update(queue, 100);
+		assertTrue(actions.isDown(forward));
+		assertTrue(actions.wasPressed(forward));
+
+		/* The second key adds nothing while the first is still held */
+		key(GLFW.GLFW_KEY_UP, GLFW.GLFW_PRESS, 110);
+		actions.update(queue, 200);
+		assertTrue(actions.isDown(forward));
+		assertFalse(actions.wasPressed(forward));
+
+		key(GLFW.GLFW_KEY_W, GLFW.GLFW_RELEASE, 210);
+		actions.update(queue, 300);
+		assertTrue(actions.isDown(forward));
+		assertFalse(actions.wasReleased(forward));
+
+		key(GLFW.GLFW_KEY_UP, GLFW.GLFW_RELEASE, 310);
+		actions.update(queue, 400);
+		assertFalse(actions.isDown(forward));
+		assertTrue(actions.wasReleased(forward));
+
+		actions.update(queue, 500);
+		assertFalse(actions.wasReleased(forward));
+	}
+
+	@Test
+	public void tapWithinOneTickIsSeen() {
+		key(GLFW.GLFW_KEY_SPACE, GLFW.GLFW_PRESS, 10);
+		key(GLFW.GLFW_KEY_SPACE, GLFW.GLFW_RELEASE, 20);
+		assertEquals(2, actions.update(queue, 100));
+
+		assertFalse(actions.isDown(jump));
+		assertTrue(actions.wasPressed(jump));
+		assertTrue(actions.wasReleased(jump));
+	}
+
+	@Test
+	public void repeatsAndSecondPressesChangeNothing() {
+		key(GLFW.GLFW_KEY_SPACE, GLFW.GLFW_PRESS, 10);
+		actions.update(queue, 100);
+
+		key(GLFW.GLFW_KEY_SPACE, GLFW.GLFW_REPEAT, 110);
+		key(GLFW.GLFW_KEY_SPACE, GLFW.GLFW_PRESS, 120);
+		actions.update(queue, 200);
+		assertTrue(actions.isDown(jump));
+		assertFalse(actions.wasPressed(jump));
+
+		/* A single release is enough, however many presses came before it */
+		key(GLFW.GLFW_KEY_SPACE, GLFW.GLFW_RELEASE, 210);
+		actions.update(queue, 300);
+		assertFalse(actions.isDown(jump));
+		assertTrue(actions.wasReleased(jump));
+	}
+
+	@Test
+	public void eventsAfterTheTickWaitForTheNextOne() {
+		queue.offer(InputEvent.MOUSE_BUTTON, GLFW.GLFW_MOUSE_BUTTON_LEFT, GLFW.GLFW_PRESS, 0, 0, 0, 150);
+		assertEquals(0, actions.update(queue, 100));
+		assertFalse(actions.isDown(fire));
+
+		assertEquals(1, actions.update(queue, 200));
+		assertTrue(actions.isDown(fire));
+		assertTrue(actions.wasPressed(fire));
+	}
+
+	@Test
+	public void cursorIsKeptAndScrollingIsPerTick() {
+		queue.offer(InputEvent.CURSOR, 0, 0, 0, 10, 20, 10);
+		queue.offer(InputEvent.CURSOR, 0, 0, 0, 30, 40, 20);
+		queue.offer(InputEvent.SCROLL, 0, 0, 0, 0, 1, 30);
+		queue.offer(InputEvent.SCROLL, 0, 0, 0, 0.5, 2, 40);
+		actions.update(queue, 100);
+		assertEquals(30, actions.getCursorX());
+		assertEquals(40, actions.getCursorY());
+		assertEquals(0.5, actions.getScrollX());
+		assertEquals(3, actions.getScrollY());
+
+		actions.update(queue, 200);
+		assertEquals(30, actions.getCursorX());
+		assertEquals(0, actions.getScrollY());
+	}
+
+	@Test
+	public void bindingAHeldKeyHoldsTheAction() {
+		int crouch = actions.register("crouch");
+		key(GLFW.GLFW_KEY_LEFT_CONTROL, GLFW.GLFW_PRESS, 10);
+		actions.update(queue, 100);
+		assertFalse(actions.isDown(crouch));
+
+		actions.bindKey(crouch, GLFW.GLFW_KEY_LEFT_CONTROL);
+		assertTrue(actions.isDown(crouch));
+
+		/* Binding the same key twice does not count it twice */
+		actions.bindKey(crouch, GLFW.GLFW_KEY_LEFT_CONTROL);
+		key(GLFW.GLFW_KEY_LEFT_CONTROL, GLFW.GLFW_RELEASE, 110);
+		actions.update(queue, 200);
+		assertFalse(actions.isDown(crouch));
+		assertTrue(actions.wasReleased(crouch));
+	}
+
+	@Test
+	public void invalidBindingsAreRejected() {
+		assertEquals(3, actions.getActionCount());
+		assertEquals("jump", actions.getName(jump));
+		assertThrows(IllegalArgumentException.class, () -> actions.bindKey(3, GLFW.GLFW_KEY_A));
+		assertThrows(IllegalArgumentException.class, () -> actions.bindKey(jump, GLFW.GLFW_KEY_LAST + 1));
+		assertThrows(IllegalArgumentException.class, () -> actions.bindMouseButton(fire, -1));
+	}
+
+	private void key(int key, int action, long timeNs) {
+		assertTrue(queue.offer(InputEvent.KEY, key, action, 0, 0, 0, timeNs));
+	}
+}
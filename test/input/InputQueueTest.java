@@ -0,0 +1,162 @@
+package input;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Fills an {@link input.InputQueue} to capacity and past it, reads it back by
+ * time, and runs a writer thread against a reader thread, checking that every
+ * event that was not dropped arrives once, whole and in order.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class InputQueueTest {
+
+	private static final int CAPACITY = 8;
+
+	private final InputEvent event = new InputEvent();
+
+	@Test
+	public void fullQueueDropsNewEventsAndKeepsOldOnes() {
+		InputQueue queue = new InputQueue(CAPACITY);
+		for (int i = 0; i < CAPACITY; i++) {
+			assertTrue(queue.offer(InputEvent.KEY, i, 1, 0, 0, 0, i));
+		}
+		assertEquals(CAPACITY, queue.size());
+
+		assertFalse(queue.offer(InputEvent.KEY, 100, 1, 0, 0, 0, 100));
+		assertFalse(queue.offer(InputEvent.KEY, 101, 1, 0, 0, 0, 101));
+		assertEquals(2, queue.getDropped());
+		assertEquals(CAPACITY, queue.size());
+
+		/* Reading one frees a slot for exactly one more */
+		assertTrue(queue.poll(event));
+		assertEquals(0, event.getCode());
+		assertTrue(queue.offer(InputEvent.KEY, 102, 1, 0, 0, 0, 102));
+		assertFalse(queue.offer(InputEvent.KEY, 103, 1, 0, 0, 0, 103));
+		assertEquals(3, queue.getDropped());
+
+		for (int i = 1; i < CAPACITY; i++) {
+			assertTrue(queue.poll(event));
+			assertEquals(i, event.getCode());
+		}
+		assertTrue(queue.poll(event));
+		assertEquals(102, event.getCode());
+		assertFalse(queue.poll(event));
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void everyFieldIsReadBack() {
+		InputQueue queue = new InputQueue(CAPACITY);
+
+		/* Round the ring a few times, so that every slot is reused */
+		for (int i = 0; i < CAPACITY * 3; i++) {
+			queue.offer(InputEvent.CURSOR, i, i + 1, i + 2, i * 0.5, -i * 0.25, 1000L + i);
+			assertTrue(queue.poll(event));
+			assertEquals(InputEvent.CURSOR, event.getType());
+			assertEquals(i, event.getCode());
+			assertEquals(i + 1, event.getAction());
+			assertEquals(i + 2, event.getMods());
+			assertEquals(i * 0.5, event.getX());
+			assertEquals(-i * 0.25, event.getY());
+			assertEquals(1000L + i, event.getTimeNs());
+		}
+	}
+
+	@Test
+	public void pollUntilLeavesLaterEvents() {
+		InputQueue queue = new InputQueue(CAPACITY);
+		queue.offer(InputEvent.KEY, 1, 1, 0, 0, 0, 100);
+		queue.offer(InputEvent.KEY, 2, 1, 0, 0, 0, 200);
+		queue.offer(InputEvent.KEY, 3, 1, 0, 0, 0, 300);
+
+		assertTrue(queue.poll(event, 200));
+		assertTrue(queue.poll(event, 200));
+		assertEquals(2, event.getCode());
+		assertFalse(queue.poll(event, 200));
+		assertEquals(1, queue.size());
+
+		/* Compared by difference, so still in order across the clock wrapping */
+		queue.offer(InputEvent.KEY, 4, 1, 0, 0, 0, Long.MAX_VALUE);
+		queue.offer(InputEvent.KEY, 5, 1, 0, 0, 0, Long.MIN_VALUE);
+		assertTrue(queue.poll(event, Long.MAX_VALUE));
+		assertTrue(queue.poll(event, Long.MAX_VALUE));
+		assertEquals(4, event.getCode());
+		assertFalse(queue.poll(event, Long.MAX_VALUE));
+		assertTrue(queue.poll(event, Long.MIN_VALUE));
+		assertEquals(5, event.getCode());
+	}
+
+	@Test
+	public void capacityMustBeAPowerOfTwo() {
+		assertEquals(16, new InputQueue(16).getCapacity());
+		assertThrows(IllegalArgumentException.class, () -> new InputQueue(0));
+		assertThrows(IllegalArgumentException.class, () -> new InputQueue(12));
+		assertThrows(IllegalArgumentException.class, () -> new InputQueue(-8));
+	}
+
+	@Test
+	public void readerSeesWriterEventsInOrder() throws Exception {
+		final int count = 200000;
+		InputQueue queue = new InputQueue(64);
+		AtomicBoolean written = new AtomicBoolean(false);
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		/* Every field is derived from the sequence number, so a torn event shows */
+		Thread writer = new Thread(() -> {
+			for (int i = 0; i < count; i++) {
+				queue.offer(InputEvent.KEY, i, i * 3, ~i, i, -i, i);
+			}
+			written.set(true);
+		}, "InputQueueTest writer");
+
+		Thread reader = new Thread(() -> {
+			InputEvent read = new InputEvent();
+			int last = -1, seen = 0;
+			try {
+				while (true) {
+					/* Checked before polling, so nothing written before the flag is missed */
+					boolean finished = written.get();
+					if (!queue.poll(read)) {
+						if (finished) {
+							break;
+						}
+						Thread.onSpinWait();
+						continue;
+					}
+					int i = read.getCode();
+					assertTrue(i > last, i + " read after " + last);
+					assertEquals(i * 3, read.getAction());
+					assertEquals(~i, read.getMods());
+					assertEquals(i, read.getX());
+					assertEquals(-i, read.getY());
+					assertEquals(i, read.getTimeNs());
+					last = i;
+					seen++;
+				}
+				assertEquals(count, seen + queue.getDropped());
+			} catch (Throwable t) {
+				failure.set(t);
+			}
+		}, "InputQueueTest reader");
+
+		reader.start();
+		writer.start();
+		writer.join();
+		reader.join();
+
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+		assertEquals(0, queue.size());
+	}
+}
@@ -0,0 +1,242 @@
+package input;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Records ticks and events with a {@link input.ReplayWriter} and plays them
+ * back with a {@link input.ReplayReader}, checking that every field of every
+ * event comes back exactly, including times that need many bytes, times after
+ * their tick, and records spanning the reader's buffer. Files cut off between
+ * records play back up to the cut, and files cut off inside a record are
+ * reported as corrupt.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class ReplayReaderTest {
+
+	private static final long SEED = 20241104L;
+
+	private static final double TICKS_PER_SECOND = 60;
+
+	private static final long START_NS = 123456789L, NS_PER_TICK = 16666667L;
+
+	@TempDir
+	Path directory;
+
+	/* Keeps a copy of every event applied, and counts the ticks begun */
+	private static class RecordingActionMap extends ActionMap {
+		private final List<InputEvent> applied = new ArrayList<InputEvent>();
+		private int ticks = 0;
+
+		@Override
+		public void beginTick() {
+			super.beginTick();
+			ticks++;
+		}
+
+		@Override
+		public void apply(InputEvent event) {
+			super.apply(event);
+			applied.add(copy(event));
+		}
+	}
+
+	@Test
+	public void everyTickAndEventIsPlayedBack() throws IOException {
+		Random random = new Random(SEED);
+		Path file = directory.resolve("random.replay");
+		List<InputEvent> written = new ArrayList<InputEvent>();
+		long[] tickTimes = new long[20000];
+
+		/* Enough ticks that the file is several times the size of either buffer */
+		try (ReplayWriter writer = new ReplayWriter(file, TICKS_PER_SECOND, START_NS)) {
+			long tickTimeNs = START_NS;
+			for (int tick = 0; tick < tickTimes.length; tick++) {
+				/* Now and then a long stall, so that the gap takes the most bytes */
+				tickTimeNs += random.nextInt(50) == 0 ? (long) random.nextInt(1 << 30) << 20 : NS_PER_TICK;
+				tickTimes[tick] = tickTimeNs;
+				writer.beginTick(tickTimeNs);
+
+				for (int i = random.nextInt(4); i > 0; i--) {
+					InputEvent event = randomEvent(random, tickTimeNs);
+					writer.write(event);
+					written.add(event);
+				}
+			}
+			assertEquals(tickTimes.length, writer.getTicks());
+			assertEquals(written.size(), writer.getEvents());
+			assertTrue(writer.getBytesWritten() > 4 * 65536, writer.getBytesWritten() + " bytes");
+		}
+
+		RecordingActionMap actions = new RecordingActionMap();
+		try (ReplayReader reader = new ReplayReader(file)) {
+			assertEquals(TICKS_PER_SECOND, reader.getTicksPerSecond());
+			assertEquals(0, reader.getRecordedNs());
+
+			for (int tick = 0; tick < tickTimes.length; tick++) {
+				assertTrue(reader.readTick(actions), "ended before tick " + tick);
+				assertEquals(tickTimes[tick], reader.getTickTimeNs());
+			}
+			assertFalse(reader.readTick(actions));
+			assertFalse(reader.readTick(actions));
+
+			assertEquals(tickTimes.length, reader.getTicks());
+			assertEquals(written.size(), reader.getEvents());
+			assertEquals(tickTimes[tickTimes.length - 1] - START_NS, reader.getRecordedNs());
+		}
+
+		assertEquals(tickTimes.length, actions.ticks);
+		assertEquals(written.size(), actions.applied.size());
+		for (int i = 0; i < written.size(); i++) {
+			assertEquals(written.get(i).toString(), actions.applied.get(i).toString(), "event " + i);
+		}
+	}
+
+	@Test
+	public void recordingCutBetweenRecordsPlaysUpToTheCut() throws IOException {
+		Path file = directory.resolve("cut.replay");
+		long cut = writeTwoHalves(file);
+		truncate(file, cut);
+
+		RecordingActionMap actions = new RecordingActionMap();
+		int action = actions.register("action");
+		actions.bindKey(action, GLFW.GLFW_KEY_A);
+		try (ReplayReader reader = new ReplayReader(file)) {
+			for (int tick = 0; tick < 3; tick++) {
+				assertTrue(reader.readTick(actions));
+			}
+			assertFalse(reader.readTick(actions));
+			assertEquals(3, reader.getTicks());
+			assertEquals(3, reader.getEvents());
+		}
+
+		/* The last key read was a press, so the action is still held when the replay stops */
+		assertTrue(actions.isDown(action));
+	}
+
+	@Test
+	public void recordingCutInsideARecordIsCorrupt() throws IOException {
+		Path file = directory.resolve("whole.replay");
+		long cut = writeTwoHalves(file);
+		byte[] whole = Files.readAllBytes(file);
+
+		/* Inside the tag and five byte time of the tick after the cut, then inside the key event after that */
+		for (int length : new int[] { 3, 6 + 2 }) {
+			Path truncated = directory.resolve("truncated" + length + ".replay");
+			Files.write(truncated, Arrays.copyOf(whole, (int) cut + length));
+
+			try (ReplayReader reader = new ReplayReader(truncated)) {
+				for (int tick = 0; tick < 3; tick++) {
+					assertTrue(reader.readTick(new RecordingActionMap()));
+				}
+				assertThrows(IOException.class, () -> reader.readTick(new RecordingActionMap()),
+						"cut " + length + " bytes into the record");
+			}
+		}
+	}
+
+	@Test
+	public void headerIsChecked() throws IOException {
+		Path file = directory.resolve("header.replay");
+		ByteBuffer header = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(ReplayWriter.MAGIC).putInt(ReplayWriter.VERSION + 1).putDouble(TICKS_PER_SECOND)
+				.putLong(START_NS);
+
+		Files.write(file, header.array());
+		assertThrows(IOException.class, () -> new ReplayReader(file));
+
+		header.putInt(0, 0x12345678).putInt(4, ReplayWriter.VERSION);
+		Files.write(file, header.array());
+		assertThrows(IOException.class, () -> new ReplayReader(file));
+
+		/* Too short to hold a header at all */
+		Files.write(file, new byte[] { 'A', 'R', 'P', 'L' });
+		assertThrows(IOException.class, () -> new ReplayReader(file));
+	}
+
+	/*
+	 * Writes three ticks of one key event each and flushes them, then a tick a
+	 * second later with a key event. Returns where the flush left the file
+	 */
+	private static long writeTwoHalves(Path file) throws IOException {
+		try (ReplayWriter writer = new ReplayWriter(file, TICKS_PER_SECOND, START_NS)) {
+			long tickTimeNs = START_NS;
+			for (int tick = 0; tick < 3; tick++) {
+				tickTimeNs += NS_PER_TICK;
+				writer.beginTick(tickTimeNs);
+				writer.write(key(GLFW.GLFW_KEY_A, tick % 2 == 0 ? GLFW.GLFW_PRESS : GLFW.GLFW_RELEASE, tickTimeNs));
+			}
+			writer.flush();
+			long cut = writer.getBytesWritten();
+
+			tickTimeNs += 1000000000L;
+			writer.beginTick(tickTimeNs);
+			writer.write(key(GLFW.GLFW_KEY_A, GLFW.GLFW_RELEASE, tickTimeNs));
+			return cut;
+		}
+	}
+
+	private static void truncate(Path file, long size) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(size);
+		}
+	}
+
+	private static InputEvent key(int key, int action, long timeNs) {
+		InputEvent event = new InputEvent();
+		event.type = InputEvent.KEY;
+		event.code = key;
+		event.action = action;
+		event.timeNs = timeNs;
+		return event;
+	}
+
+	/* Any type, mostly before its tick but sometimes after it, with codes and modifiers over their full range */
+	private static InputEvent randomEvent(Random random, long tickTimeNs) {
+		InputEvent event = new InputEvent();
+		event.type = random.nextInt(4);
+		event.timeNs = tickTimeNs - (random.nextInt(10) == 0 ? -random.nextInt(1000) : random.nextInt(1 << 24));
+
+		if (event.type == InputEvent.KEY || event.type == InputEvent.MOUSE_BUTTON) {
+			event.code = random.nextBoolean() ? random.nextInt(GLFW.GLFW_KEY_LAST + 1) : random.nextInt();
+			event.action = random.nextInt(3);
+			event.mods = random.nextInt(0x40);
+		} else {
+			event.x = random.nextDouble() * 4000 - 2000;
+			event.y = event.type == InputEvent.SCROLL ? -random.nextDouble() : Double.MAX_VALUE;
+		}
+		return event;
+	}
+
+	private static InputEvent copy(InputEvent event) {
+		InputEvent copy = new InputEvent();
+		copy.type = event.type;
+		copy.code = event.code;
+		copy.action = event.action;
+		copy.mods = event.mods;
+		copy.x = event.x;
+		copy.y = event.y;
+		copy.timeNs = event.timeNs;
+		return copy;
+	}
+}
@@ -0,0 +1,209 @@
+package main;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Drives a {@link main.GameLoop} on a fake clock that is moved by hand, and by
+ * a fixed step on every read so that spinning on it comes to an end, checking
+ * which ticks run on each frame and how long each frame is waited out.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class GameLoopTest {
+
+	private static final double TICKS_PER_SECOND = 20;
+
+	private static final long NS_PER_TICK = 50000000L;
+
+	private static final long MS = 1000000L;
+
+	/* Moves only when set, parked on, or read */
+	private static class FakeClock implements GameLoop.Clock {
+		private long now = 0, step = 0, parkedNs = 0;
+		private int reads = 0, parks = 0;
+
+		private FakeClock(long step) {
+			this.step = step;
+		}
+
+		@Override
+		public long nanoTime() {
+			reads++;
+			return now += step;
+		}
+
+		@Override
+		public void park(long nanos) {
+			parks++;
+			parkedNs += nanos;
+			now += nanos;
+		}
+	}
+
+	/* Records the due time of each tick it runs */
+	private static class TickLog implements Runnable {
+		private final List<Long> tickTimes = new ArrayList<Long>();
+		private GameLoop gameLoop = null;
+
+		@Override
+		public void run() {
+			tickTimes.add(gameLoop.getTickTimeNs());
+		}
+	}
+
+	@Test
+	public void slowFrameIsCaughtUpOn() {
+		FakeClock clock = new FakeClock(0);
+		GameLoop gameLoop = new GameLoop(TICKS_PER_SECOND, 5, clock);
+		TickLog log = new TickLog();
+		log.gameLoop = gameLoop;
+
+		/* The first call only starts the clock */
+		clock.now = 1000;
+		assertEquals(0, gameLoop.advance(log));
+
+		clock.now += NS_PER_TICK * 7 / 2;
+		assertEquals(3, gameLoop.advance(log));
+		assertEquals(3, gameLoop.getTotalTicks());
+		assertEquals(0, gameLoop.getDroppedTicks());
+		assertEquals(NS_PER_TICK / 2, gameLoop.getAccumulatedNs());
+
+		/* Each tick caught up on keeps the time it fell due */
+		assertEquals(List.of(1000 + NS_PER_TICK, 1000 + NS_PER_TICK * 2, 1000 + NS_PER_TICK * 3), log.tickTimes);
+		assertEquals(1000 + NS_PER_TICK * 3, gameLoop.getTickTimeNs());
+
+		/* The half tick left over runs on the next frame that makes it whole */
+		clock.now += NS_PER_TICK / 2;
+		assertEquals(1, gameLoop.advance(log));
+		assertEquals(1000 + NS_PER_TICK * 4, gameLoop.getTickTimeNs());
+	}
+
+	@Test
+	public void stallPastTheCapDropsWholeTicks() {
+		FakeClock clock = new FakeClock(0);
+		GameLoop gameLoop = new GameLoop(TICKS_PER_SECOND, 5, clock);
+		TickLog log = new TickLog();
+		log.gameLoop = gameLoop;
+		gameLoop.advance(log);
+
+		clock.now += NS_PER_TICK * 49 / 4;
+		assertEquals(5, gameLoop.advance(log));
+		assertEquals(5, gameLoop.getTotalTicks());
+		assertEquals(7, gameLoop.getDroppedTicks());
+
+		/* The partial tick is kept, and nothing more is owed */
+		assertEquals(NS_PER_TICK / 4, gameLoop.getAccumulatedNs());
+		assertEquals(0.25f, gameLoop.getAlpha());
+		clock.now += NS_PER_TICK / 2;
+		assertEquals(0, gameLoop.advance(log));
+		assertEquals(7, gameLoop.getDroppedTicks());
+	}
+
+	@Test
+	public void alphaIsTheFractionOfTheNextTick() {
+		FakeClock clock = new FakeClock(0);
+		GameLoop gameLoop = new GameLoop(TICKS_PER_SECOND, 5, clock);
+		Runnable tick = () -> {
+		};
+		gameLoop.advance(tick);
+		assertEquals(0f, gameLoop.getAlpha());
+
+		float[] alphas = new float[4];
+		for (int i = 0; i < alphas.length; i++) {
+			clock.now += NS_PER_TICK / 4 * 3;
+			gameLoop.advance(tick);
+			alphas[i] = gameLoop.getAlpha();
+		}
+
+		/* Three quarters of a tick per frame, with a tick run whenever a whole one is due */
+		assertArrayEquals(new float[] { 0.75f, 0.5f, 0.25f, 0f }, alphas);
+		assertEquals(3, gameLoop.getTotalTicks());
+	}
+
+	@Test
+	public void uncappedSyncDoesNotWait() {
+		FakeClock clock = new FakeClock(0);
+		GameLoop gameLoop = new GameLoop(TICKS_PER_SECOND, 5, clock);
+
+		gameLoop.sync();
+		assertEquals(0, clock.reads);
+		assertEquals(0, clock.parks);
+	}
+
+	@Test
+	public void syncParksThenSpinsToTheDeadline() {
+		/* Each read takes a tenth of a millisecond */
+		FakeClock clock = new FakeClock(MS / 10);
+		GameLoop gameLoop = new GameLoop(TICKS_PER_SECOND, 5, clock);
+		gameLoop.setFrameRateCap(100);
+
+		clock.now = 1000;
+		gameLoop.sync();
+		long deadline = 1000 + MS / 10 + 10 * MS;
+		assertTrue(clock.now >= deadline && clock.now <= deadline + MS / 10, "woke at " + clock.now);
+
+		/* Parked until the spin threshold of two milliseconds, and spun through the rest */
+		assertEquals(1, clock.parks);
+		assertEquals(8 * MS - MS / 10, clock.parkedNs);
+		assertTrue(clock.reads >= 20, clock.reads + " reads");
+
+		/* The next deadline follows on from the last, however long the frame's work took */
+		clock.now += 4 * MS;
+		gameLoop.sync();
+		deadline += 10 * MS;
+		assertTrue(clock.now >= deadline && clock.now <= deadline + MS / 10, "woke at " + clock.now);
+	}
+
+	@Test
+	public void zeroSpinThresholdOnlyParks() {
+		FakeClock clock = new FakeClock(0);
+		GameLoop gameLoop = new GameLoop(TICKS_PER_SECOND, 5, clock);
+		gameLoop.setFrameRateCap(60);
+		gameLoop.setSpinThreshold(0);
+
+		for (int frame = 0; frame < 60; frame++) {
+			clock.now += 3 * MS;
+			gameLoop.sync();
+		}
+
+		/* Each frame a sixtieth of a second after the first, with one park and no spinning between the reads */
+		assertEquals(3 * MS + 60 * 16666667L, clock.now);
+		assertEquals(60, clock.parks);
+		assertEquals(60 * 4, clock.reads);
+	}
+
+	@Test
+	public void frameMoreThanAFrameLateIsNotRushed() {
+		FakeClock clock = new FakeClock(0);
+		GameLoop gameLoop = new GameLoop(TICKS_PER_SECOND, 5, clock);
+		gameLoop.setFrameRateCap(100);
+		gameLoop.setSpinThreshold(0);
+		gameLoop.sync();
+		assertEquals(10 * MS, clock.now);
+
+		/* Two and a half frames of work returns at once, and the next frame is a whole frame long */
+		clock.now += 25 * MS;
+		gameLoop.sync();
+		assertEquals(35 * MS, clock.now);
+		assertEquals(1, clock.parks);
+
+		gameLoop.sync();
+		assertEquals(45 * MS, clock.now);
+	}
+
+	@Test
+	public void invalidRatesThrow() {
+		assertThrows(IllegalArgumentException.class, () -> new GameLoop(0, 5));
+		assertThrows(IllegalArgumentException.class, () -> new GameLoop(TICKS_PER_SECOND, 0));
+		assertThrows(IllegalArgumentException.class, () -> new GameLoop(TICKS_PER_SECOND, 5).setFrameRateCap(-1));
+	}
+}
@@ -0,0 +1,120 @@
+package main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Drives a {@link main.SimulationThread} headlessly, on a fake clock that only
+ * moves when the thread reads or parks on it, so no test waits in real time
+ * for ticks to fall due.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class SimulationThreadTest {
+
+	private static final double TICKS_PER_SECOND = 20;
+
+	private static final long NS_PER_TICK = 50000000L;
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+	/* Parking jumps ahead, and every read takes a microsecond, so spinning ends too */
+	private static class FakeClock implements GameLoop.Clock {
+		private volatile long now = 0;
+
+		@Override
+		public long nanoTime() {
+			return now += 1000;
+		}
+
+		@Override
+		public void park(long nanos) {
+			now += nanos;
+		}
+	}
+
+	/* Counts its ticks, and publishes the count */
+	private static class CountingSimulation implements Simulation {
+		private long ticks = 0;
+
+		@Override
+		public void tick() {
+			ticks++;
+		}
+
+		@Override
+		public void writeSnapshot(WorldSnapshot snapshot, long tickTimeNs) {
+			snapshot.setTick(ticks, tickTimeNs);
+		}
+	}
+
+	@Test
+	public void stopBeforeStartReturns() {
+		SimulationThread simulationThread = new SimulationThread(new CountingSimulation(), TICKS_PER_SECOND, 5,
+				new FakeClock());
+
+		assertTimeoutPreemptively(TIMEOUT, simulationThread::stop);
+	}
+
+	@Test
+	public void stopRightAfterStartReturns() {
+		/* The thread has most likely not reached its loop yet when asked to stop */
+		assertTimeoutPreemptively(TIMEOUT, () -> {
+			for (int i = 0; i < 100; i++) {
+				SimulationThread simulationThread = new SimulationThread(new CountingSimulation(), TICKS_PER_SECOND,
+						5, new FakeClock());
+				simulationThread.start();
+				simulationThread.stop();
+			}
+		});
+	}
+
+	@Test
+	public void startTwiceThrows() throws InterruptedException {
+		SimulationThread simulationThread = new SimulationThread(new CountingSimulation(), TICKS_PER_SECOND, 5,
+				new FakeClock());
+		simulationThread.start();
+
+		try {
+			assertThrows(IllegalStateException.class, simulationThread::start);
+		} finally {
+			simulationThread.stop();
+		}
+	}
+
+	@Test
+	public void ticksAtTheFixedRateAndPublishesSnapshots() {
+		FakeClock clock = new FakeClock();
+		CountingSimulation simulation = new CountingSimulation();
+		SimulationThread simulationThread = new SimulationThread(simulation, TICKS_PER_SECOND, 5, clock);
+
+		assertEquals(-1, simulationThread.getLatestSnapshot().getTick());
+
+		assertTimeoutPreemptively(TIMEOUT, () -> {
+			simulationThread.start();
+			while (simulationThread.getLatestSnapshot().getTick() < 100) {
+				Thread.onSpinWait();
+			}
+			simulationThread.stop();
+		});
+
+		/* The thread has been joined, so its last snapshot is published and its fields are visible */
+		WorldSnapshot snapshot = simulationThread.getLatestSnapshot();
+		assertEquals(simulation.ticks, snapshot.getTick());
+		assertEquals(simulation.ticks, simulationThread.getGameLoop().getTotalTicks());
+		assertEquals(0, simulationThread.getGameLoop().getDroppedTicks());
+
+		/* Paced at the tick rate, each tick falls due a tick after the one before */
+		long elapsedTicks = clock.now / NS_PER_TICK;
+		assertTrue(Math.abs(elapsedTicks - simulation.ticks) <= 1,
+				simulation.ticks + " ticks run over " + elapsedTicks + " ticks of time");
+		assertTrue(snapshot.getTickTimeNs() <= clock.now);
+	}
+}
@@ -0,0 +1,103 @@
+package main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import world.FloatComponent;
+import world.World;
+
+/**
+ * Writes the positions of a small {@link world.World} into a
+ * {@link main.WorldSnapshot} the way a tick does, and checks what the render
+ * thread would interpolate from it.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class WorldSnapshotTest {
+
+	private final World world = new World();
+
+	private final FloatComponent position = world.register(new FloatComponent("position", 3));
+
+	@Test
+	public void positionsAreInterpolatedFromTheStartOfTheTick() {
+		int entity = world.create();
+		world.add(entity, position);
+		position.set(entity, 0, 1f);
+
+		WorldSnapshot tickStart = new WorldSnapshot(), snapshot = new WorldSnapshot();
+		tickStart.setPositions(position, null);
+		position.set(entity, 0, 3f);
+		position.set(entity, 2, -2f);
+		snapshot.setTick(7, 100);
+		snapshot.setPositions(position, tickStart);
+
+		/* Copied, so the simulation moving on does not change what is drawn */
+		position.set(entity, 0, 50f);
+
+		assertEquals(1, snapshot.getEntityCount());
+		assertEquals(entity, snapshot.getEntity(0));
+		assertEquals(1f, snapshot.getPosition(0, 0, 0f));
+		assertEquals(2f, snapshot.getPosition(0, 0, 0.5f));
+		assertEquals(3f, snapshot.getPosition(0, 0, 1f));
+		assertEquals(-1f, snapshot.getPosition(0, 2, 0.5f));
+		assertEquals(0f, snapshot.getPosition(0, 1, 0.5f));
+	}
+
+	@Test
+	public void entitiesThatWereNotThereDoNotMove() {
+		int first = world.create(), second = world.create();
+		world.add(first, position);
+		world.add(second, position);
+		position.set(first, 0, 1f);
+		position.set(second, 0, 2f);
+
+		WorldSnapshot tickStart = new WorldSnapshot(), snapshot = new WorldSnapshot();
+		tickStart.setPositions(position, null);
+
+		/* The second entity takes the first's dense index, and a new entity takes the second's */
+		world.destroy(first);
+		int third = world.create();
+		world.add(third, position);
+		position.set(third, 0, 9f);
+		snapshot.setPositions(position, tickStart);
+
+		assertEquals(2, snapshot.getEntityCount());
+		assertEquals(second, snapshot.getEntity(0));
+		assertEquals(third, snapshot.getEntity(1));
+		assertEquals(2f, snapshot.getPosition(0, 0, 0f));
+		assertEquals(9f, snapshot.getPosition(1, 0, 0f));
+	}
+
+	@Test
+	public void growsAndShrinksWithTheWorld() {
+		WorldSnapshot snapshot = new WorldSnapshot();
+		for (int i = 0; i < 100; i++) {
+			int entity = world.create();
+			world.add(entity, position);
+			position.set(entity, 1, i);
+		}
+		snapshot.setPositions(position, null);
+		assertEquals(100, snapshot.getEntityCount());
+		assertEquals(99f, snapshot.getPosition(99, 1, 0.5f));
+
+		world.destroy(snapshot.getEntity(0));
+		snapshot.setPositions(position, snapshot);
+		assertEquals(99, snapshot.getEntityCount());
+	}
+
+	@Test
+	public void alphaIsHowFarTheNextTickIs() {
+		WorldSnapshot snapshot = new WorldSnapshot();
+		snapshot.setTick(3, 1000);
+
+		assertEquals(0f, snapshot.getAlpha(1000, 400));
+		assertEquals(0.25f, snapshot.getAlpha(1100, 400));
+
+		/* Never extrapolated past the latest positions, nor before the earlier ones */
+		assertEquals(1f, snapshot.getAlpha(5000, 400));
+		assertEquals(0f, snapshot.getAlpha(500, 400));
+	}
+}
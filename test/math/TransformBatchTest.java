@@ -0,0 +1,185 @@
+package math;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the matrices and world bounds of a {@link math.TransformBatch}
+ * against each object's translation, rotation and scale multiplied out and
+ * applied to every corner of its box, and checks that the Vector API and scalar
+ * loops give exactly the same results.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class TransformBatchTest {
+
+	private static final float TOLERANCE = 1e-3f;
+
+	/* Not a multiple of any vector length, so the scalar tail always runs */
+	private static final int OBJECTS = 1003;
+
+	@Test
+	public void matricesAndBoundsMatchMultiplyingOut() {
+		for (boolean vectorized : availablePaths()) {
+			Random random = new Random(1);
+			TransformBatch batch = randomBatch(random, OBJECTS, vectorized);
+			batch.update();
+
+			float[] matrix = new float[16];
+			for (int i = 0; i < OBJECTS; i++) {
+				float[] expected = reference(batch, i);
+				assertArrayEquals(expected, batch.getMatrix(i, matrix), TOLERANCE, "matrix " + i);
+
+				/* The box -1, 0, -1 to 1, 3, 1 set by randomBatch, corner by corner */
+				float minY = Float.POSITIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+				float minX = minY, maxX = maxY, minZ = minY, maxZ = maxY;
+				for (int corner = 0; corner < 8; corner++) {
+					float cx = (corner & 1) == 0 ? -1 : 1, cy = (corner & 2) == 0 ? 0 : 3,
+							cz = (corner & 4) == 0 ? -1 : 1;
+					float x = expected[0] * cx + expected[4] * cy + expected[8] * cz + expected[12];
+					float y = expected[1] * cx + expected[5] * cy + expected[9] * cz + expected[13];
+					float z = expected[2] * cx + expected[6] * cy + expected[10] * cz + expected[14];
+					minX = Math.min(minX, x);
+					minY = Math.min(minY, y);
+					minZ = Math.min(minZ, z);
+					maxX = Math.max(maxX, x);
+					maxY = Math.max(maxY, y);
+					maxZ = Math.max(maxZ, z);
+				}
+
+				assertEquals(minX, batch.getWorldMinX()[i], TOLERANCE);
+				assertEquals(minY, batch.getWorldMinY()[i], TOLERANCE);
+				assertEquals(minZ, batch.getWorldMinZ()[i], TOLERANCE);
+				assertEquals(maxX, batch.getWorldMaxX()[i], TOLERANCE);
+				assertEquals(maxY, batch.getWorldMaxY()[i], TOLERANCE);
+				assertEquals(maxZ, batch.getWorldMaxZ()[i], TOLERANCE);
+			}
+		}
+	}
+
+	@Test
+	public void vectorAndScalarAgreeExactly() {
+		assumeTrue(TransformBatch.isVectorAvailable(), "the jdk.incubator.vector module is not available");
+
+		TransformBatch scalar = randomBatch(new Random(2), OBJECTS, false);
+		TransformBatch vector = randomBatch(new Random(2), OBJECTS, true);
+
+		/* Ranges that start and end off any vector boundary */
+		for (int[] range : new int[][] { { 0, OBJECTS }, { 3, 40 }, { 17, 18 }, { 500, 500 } }) {
+			scalar.composeMatrices(range[0], range[1]);
+			scalar.transformBounds(range[0], range[1]);
+			vector.composeMatrices(range[0], range[1]);
+			vector.transformBounds(range[0], range[1]);
+
+			float[] scalarMatrix = new float[16], vectorMatrix = new float[16];
+			for (int i = 0; i < OBJECTS; i++) {
+				assertArrayEquals(scalar.getMatrix(i, scalarMatrix), vector.getMatrix(i, vectorMatrix), "matrix " + i);
+				assertEquals(scalar.getWorldMinX()[i], vector.getWorldMinX()[i]);
+				assertEquals(scalar.getWorldMinY()[i], vector.getWorldMinY()[i]);
+				assertEquals(scalar.getWorldMinZ()[i], vector.getWorldMinZ()[i]);
+				assertEquals(scalar.getWorldMaxX()[i], vector.getWorldMaxX()[i]);
+				assertEquals(scalar.getWorldMaxY()[i], vector.getWorldMaxY()[i]);
+				assertEquals(scalar.getWorldMaxZ()[i], vector.getWorldMaxZ()[i]);
+			}
+		}
+	}
+
+	@Test
+	public void vectorizingWithoutTheModuleThrows() {
+		assumeTrue(!TransformBatch.isVectorAvailable(), "the jdk.incubator.vector module is available");
+
+		TransformBatch batch = new TransformBatch(1);
+		assertEquals(false, batch.isVectorized());
+		assertThrows(IllegalStateException.class, () -> batch.setVectorized(true));
+	}
+
+	@Test
+	public void writeMatricesLaysOutColumnMajor() {
+		TransformBatch batch = new TransformBatch(1);
+		int index = batch.add();
+		batch.setPosition(index, 5, 6, 7);
+		batch.setScale(index, 2, 3, 4);
+		batch.update();
+
+		ByteBuffer buffer = ByteBuffer.allocate(64).order(ByteOrder.nativeOrder());
+		batch.writeMatrices(0, 1, buffer);
+		assertEquals(64, buffer.position());
+
+		float[] expected = { 2, 0, 0, 0, 0, 3, 0, 0, 0, 0, 4, 0, 5, 6, 7, 1 };
+		for (int e = 0; e < 16; e++) {
+			assertEquals(expected[e], buffer.getFloat(e * 4), "entry " + e);
+		}
+	}
+
+	@Test
+	public void removeSwapMovesTheLastObject() {
+		TransformBatch batch = new TransformBatch(1);
+		for (int i = 0; i < 3; i++) {
+			batch.setPosition(batch.add(), i, 0, 0);
+		}
+
+		assertEquals(2, batch.removeSwap(0));
+		assertEquals(-1, batch.removeSwap(1));
+		assertEquals(1, batch.size());
+
+		batch.update();
+		assertEquals(2, batch.getMatrix(0, new float[16])[12]);
+		assertThrows(IndexOutOfBoundsException.class, () -> batch.composeMatrices(0, 2));
+	}
+
+	private static boolean[] availablePaths() {
+		return TransformBatch.isVectorAvailable() ? new boolean[] { false, true } : new boolean[] { false };
+	}
+
+	private static TransformBatch randomBatch(Random random, int count, boolean vectorized) {
+		TransformBatch batch = new TransformBatch(count);
+		batch.setVectorized(vectorized);
+		for (int i = 0; i < count; i++) {
+			int index = batch.add();
+			batch.setPosition(index, random.nextFloat() * 200 - 100, random.nextFloat() * 200 - 100,
+					random.nextFloat() * 200 - 100);
+
+			float ax = random.nextFloat() - 0.5f, ay = random.nextFloat() + 0.5f, az = random.nextFloat() - 0.5f;
+			float length = (float) Math.sqrt(ax * ax + ay * ay + az * az);
+			batch.setRotationAxisAngle(index, ax / length, ay / length, az / length, random.nextFloat() * 6.28f);
+			batch.setScale(index, 0.5f + random.nextFloat(), 0.5f + random.nextFloat(), 0.5f + random.nextFloat());
+			batch.setLocalBounds(index, -1, 0, -1, 1, 3, 1);
+		}
+		return batch;
+	}
+
+	/* Translation times rotation times scale, multiplied out in full from what the batch was given */
+	private static float[] reference(TransformBatch batch, int i) {
+		float x = batch.rotationX[i], y = batch.rotationY[i], z = batch.rotationZ[i], w = batch.rotationW[i];
+		float[] rotation = { 1 - 2 * (y * y + z * z), 2 * (x * y + w * z), 2 * (x * z - w * y), 0,
+				2 * (x * y - w * z), 1 - 2 * (x * x + z * z), 2 * (y * z + w * x), 0, 2 * (x * z + w * y),
+				2 * (y * z - w * x), 1 - 2 * (x * x + y * y), 0, 0, 0, 0, 1 };
+		float[] translation = { 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, batch.positionX[i], batch.positionY[i],
+				batch.positionZ[i], 1 };
+		float[] scale = { batch.scaleX[i], 0, 0, 0, 0, batch.scaleY[i], 0, 0, 0, 0, batch.scaleZ[i], 0, 0, 0, 0, 1 };
+		return multiply(multiply(translation, rotation), scale);
+	}
+
+	private static float[] multiply(float[] a, float[] b) {
+		float[] result = new float[16];
+		for (int column = 0; column < 4; column++) {
+			for (int row = 0; row < 4; row++) {
+				float sum = 0;
+				for (int k = 0; k < 4; k++) {
+					sum += a[k * 4 + row] * b[column * 4 + k];
+				}
+				result[column * 4 + row] = sum;
+			}
+		}
+		return result;
+	}
+}
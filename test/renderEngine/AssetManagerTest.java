@@ -0,0 +1,192 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Acquires and releases {@link renderEngine.ModelHandle}s from an
+ * {@link renderEngine.AssetManager} that loads onto a
+ * {@link renderEngine.RecordingRenderDevice}, checking that models are shared
+ * and counted while in use, that unused ones are unloaded least recently
+ * released first once over the budget, and that meshes with the same contents
+ * share one model.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class AssetManagerTest {
+
+	@TempDir
+	Path directory;
+
+	private final RecordingRenderDevice device = new RecordingRenderDevice();
+
+	private final ModelLoader loader = new ModelLoader(device);
+
+	private AssetManager manager = null;
+
+	/* The GPU memory of one triangle, which every mesh here is */
+	private long triangleBytes = 0;
+
+	@BeforeEach
+	public void setUp() {
+		RawModel model = loader.loadToVAO(triangle(0));
+		triangleBytes = loader.getBufferBytes(model);
+		loader.unload(model);
+		assertTrue(triangleBytes > 0);
+
+		manager = new AssetManager(loader, Long.MAX_VALUE);
+	}
+
+	@Test
+	public void handlesShareOneModelUntilEveryOneIsReleased() {
+		ModelHandle first = manager.acquire("triangle", loader -> loader.loadToVAO(triangle(0)));
+		ModelHandle second = manager.acquire("triangle", loader -> {
+			throw new AssertionError("loaded a second time");
+		});
+		assertSame(first.getModel(), second.getModel());
+		assertEquals("triangle", second.getKey());
+		assertEquals(1, manager.getMisses());
+		assertEquals(1, manager.getHits());
+		assertEquals(triangleBytes, manager.getResidentBytes());
+		assertEquals(1, device.getVertexArrayCount());
+
+		/* Unused, but kept while within the budget */
+		first.release();
+		second.release();
+		assertTrue(manager.isLoaded("triangle"));
+		assertEquals(1, device.getVertexArrayCount());
+
+		manager.evictUnused();
+		assertFalse(manager.isLoaded("triangle"));
+		assertEquals(0, manager.getLoadedCount());
+		assertEquals(0, manager.getResidentBytes());
+		assertEquals(0, device.getVertexArrayCount());
+	}
+
+	@Test
+	public void releasedHandleCannotBeUsed() {
+		ModelHandle handle = manager.acquire("triangle", loader -> loader.loadToVAO(triangle(0)));
+		ModelHandle other = manager.acquire("triangle", loader -> loader.loadToVAO(triangle(0)));
+		handle.release();
+
+		assertThrows(IllegalStateException.class, handle::getModel);
+		assertThrows(IllegalStateException.class, handle::release);
+		assertEquals("triangle", handle.getKey());
+
+		/* The second release was refused, so the other handle still holds the model */
+		manager.evictUnused();
+		assertTrue(manager.isLoaded("triangle"));
+		other.getModel();
+		other.release();
+	}
+
+	@Test
+	public void leastRecentlyReleasedIsUnloadedFirst() {
+		/* Room for two triangles and a half */
+		manager.setBudget(triangleBytes * 5 / 2);
+
+		ModelHandle a = acquire("a", 0), b = acquire("b", 1), c = acquire("c", 2);
+		assertEquals(3, manager.getLoadedCount());
+
+		/* Over the budget, but every model is in use, so nothing can go */
+		assertEquals(0, manager.getEvictions());
+
+		/* Still over, so the first model released goes at once */
+		a.release();
+		assertEquals(1, manager.getEvictions());
+		assertFalse(manager.isLoaded("a"));
+
+		/* Back within the budget, so both stay, with c the least recently released */
+		c.release();
+		b.release();
+		assertTrue(manager.isLoaded("c"));
+		assertTrue(manager.isLoaded("b"));
+
+		ModelHandle d = acquire("d", 3);
+		assertFalse(manager.isLoaded("c"));
+		assertTrue(manager.isLoaded("b"));
+		assertEquals(2, manager.getEvictions());
+
+		/* Acquiring an unused model takes it back out of the running */
+		b = acquire("b", 1);
+		assertEquals(1, manager.getHits());
+		ModelHandle e = acquire("e", 4);
+		assertEquals(3, manager.getLoadedCount());
+		assertEquals(triangleBytes * 3, manager.getResidentBytes());
+
+		/* A lower budget unloads at once, but only what is unused */
+		e.release();
+		assertFalse(manager.isLoaded("e"));
+		manager.setBudget(0);
+		assertEquals(2, manager.getLoadedCount());
+
+		b.release();
+		d.release();
+		assertEquals(0, manager.getLoadedCount());
+		assertEquals(0, device.getVertexArrayCount());
+	}
+
+	@Test
+	public void identicalMeshesShareOneModel() {
+		Mesh mesh = triangle(0), copy = triangle(0);
+		assertEquals(AssetManager.contentKey(mesh), AssetManager.contentKey(copy));
+		assertTrue(AssetManager.contentKey(mesh).matches("mesh:[0-9a-f]{64}"), AssetManager.contentKey(mesh));
+
+		ModelHandle first = manager.acquire(mesh), second = manager.acquire(copy);
+		assertSame(first.getModel(), second.getModel());
+		assertEquals(1, manager.getLoadedCount());
+		assertEquals(1, device.getVertexArrayCount());
+
+		/* Any difference, in the positions, the indices or the format, is another asset */
+		Mesh moved = triangle(1);
+		Mesh rewound = new Mesh(mesh.getFormat(), mesh.getAttributeData(), new int[] { 0, 2, 1 });
+		Mesh reformatted = new Mesh(new VertexFormat().add(1, 3, AttributeType.FLOAT), mesh.getAttributeData(),
+				mesh.getIndices());
+		for (Mesh other : new Mesh[] { moved, rewound, reformatted }) {
+			assertNotEquals(AssetManager.contentKey(mesh), AssetManager.contentKey(other));
+			manager.acquire(other).release();
+		}
+		assertEquals(4, manager.getMisses());
+		assertEquals(1, manager.getHits());
+
+		first.release();
+		second.release();
+	}
+
+	@Test
+	public void filesAreKeyedByTheirNormalizedPath() throws IOException {
+		Path file = directory.resolve("triangle" + MeshCache.EXTENSION);
+		MeshCache.write(triangle(0), file);
+
+		ModelHandle first = manager.acquire(file);
+		ModelHandle second = manager.acquire(directory.resolve("sub").resolve("..").resolve(file.getFileName()));
+		assertSame(first.getModel(), second.getModel());
+		assertEquals(file.toAbsolutePath().normalize().toString(), second.getKey());
+		assertEquals(1, manager.getMisses());
+
+		first.release();
+		second.release();
+		assertThrows(IOException.class, () -> manager.acquire(directory.resolve("missing" + MeshCache.EXTENSION)));
+	}
+
+	private ModelHandle acquire(String key, int offset) {
+		return manager.acquire(key, loader -> loader.loadToVAO(triangle(offset)));
+	}
+
+	private static Mesh triangle(float offset) {
+		return new Mesh(VertexFormat.POSITION, new float[][] { { offset, 0, 0, offset + 1, 0, 0, offset, 1, 0 } },
+				new int[] { 0, 1, 2 });
+	}
+}
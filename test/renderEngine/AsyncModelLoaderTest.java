@@ -0,0 +1,166 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.IntBuffer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import utility.BufferPool;
+
+/**
+ * Loads models through an {@link renderEngine.AsyncModelLoader} onto a
+ * {@link renderEngine.RecordingRenderDevice}, checking that cancelled and
+ * abandoned loads leave neither vertex arrays nor staging memory behind.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class AsyncModelLoaderTest {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+	private static final float[] POSITIONS = { 0, 0, 0, 1, 0, 0, 0, 1, 0 };
+
+	private static final int[] INDICES = { 0, 1, 2 };
+
+	/* Cancels the model being uploaded once its indices are sent, as another thread might */
+	private static class CancellingDevice extends RecordingRenderDevice {
+		private CompletableFuture<RawModel> cancel = null;
+
+		@Override
+		public void bufferData(int target, IntBuffer data, int usage) {
+			super.bufferData(target, data, usage);
+			if (cancel != null) {
+				cancel.cancel(false);
+			}
+		}
+	}
+
+	private CancellingDevice device = null;
+
+	private ModelLoader modelLoader = null;
+
+	private AsyncModelLoader loader = null;
+
+	private long bytesOutstanding = 0;
+
+	@BeforeEach
+	public void setUp() {
+		device = new CancellingDevice();
+		modelLoader = new ModelLoader(device);
+		loader = new AsyncModelLoader(modelLoader, 1);
+		bytesOutstanding = BufferPool.SHARED.getBytesOutstanding();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		loader.shutdown();
+		modelLoader.cleanUp();
+	}
+
+	@Test
+	public void uploadsOnProcess() {
+		CompletableFuture<RawModel> future = loader.loadToVAO(POSITIONS, INDICES);
+		awaitPendingUpload();
+
+		assertTrue(loader.processUploads(Long.MAX_VALUE) > 0);
+		assertEquals(3, future.join().getVertexCount());
+		assertEquals(1, device.getVertexArrayCount());
+		assertEquals(bytesOutstanding, BufferPool.SHARED.getBytesOutstanding());
+	}
+
+	@Test
+	public void cancelledWhileParsingIsNeverPacked() {
+		CountDownLatch parsing = new CountDownLatch(1), cancelled = new CountDownLatch(1);
+		CompletableFuture<RawModel> future = loader.loadToVAO(() -> {
+			parsing.countDown();
+			cancelled.await();
+			return new AsyncModelLoader.MeshData(POSITIONS, INDICES);
+		});
+		assertTimeoutPreemptively(TIMEOUT, () -> parsing.await());
+
+		future.cancel(false);
+		cancelled.countDown();
+
+		/* With one worker, the cancelled model is done with once the next is packed */
+		CompletableFuture<RawModel> next = loader.loadToVAO(POSITIONS, INDICES);
+		awaitPendingUpload();
+		loader.processUploads(Long.MAX_VALUE);
+
+		assertTrue(next.isDone());
+		assertEquals(1, device.getVertexArrayCount());
+		assertEquals(bytesOutstanding, BufferPool.SHARED.getBytesOutstanding());
+	}
+
+	@Test
+	public void cancelledBeforeUploadIsNeverUploaded() {
+		CompletableFuture<RawModel> future = loader.loadToVAO(POSITIONS, INDICES);
+		awaitPendingUpload();
+		future.cancel(false);
+
+		assertEquals(0, loader.processUploads(Long.MAX_VALUE));
+		assertEquals(0, device.getVertexArrayCount());
+		assertEquals(0, device.getBufferCount());
+		assertEquals(bytesOutstanding, BufferPool.SHARED.getBytesOutstanding());
+	}
+
+	@Test
+	public void cancelledDuringUploadIsUnloaded() {
+		CompletableFuture<RawModel> future = loader.loadToVAO(POSITIONS, INDICES);
+		device.cancel = future;
+		awaitPendingUpload();
+
+		loader.processUploads(Long.MAX_VALUE);
+		assertTrue(future.isCancelled());
+		assertEquals(0, device.getVertexArrayCount());
+		assertEquals(0, device.getBufferCount());
+		assertEquals(bytesOutstanding, BufferPool.SHARED.getBytesOutstanding());
+	}
+
+	@Test
+	public void shutdownCancelsAndReleasesPackedUploads() {
+		@SuppressWarnings("unchecked")
+		CompletableFuture<RawModel>[] packed = new CompletableFuture[3];
+		for (int i = 0; i < packed.length; i++) {
+			packed[i] = loader.loadToVAO(POSITIONS, INDICES);
+		}
+
+		/* With one worker, the earlier models are packed by the time this one parses */
+		CountDownLatch parsing = new CountDownLatch(1);
+		CompletableFuture<RawModel> parsed = loader.loadToVAO(() -> {
+			parsing.countDown();
+			new CountDownLatch(1).await();
+			return new AsyncModelLoader.MeshData(POSITIONS, INDICES);
+		});
+		assertTimeoutPreemptively(TIMEOUT, () -> parsing.await());
+		assertTrue(BufferPool.SHARED.getBytesOutstanding() > bytesOutstanding);
+
+		loader.shutdown();
+
+		for (CompletableFuture<RawModel> future : packed) {
+			assertTrue(future.isCancelled());
+		}
+		assertEquals(bytesOutstanding, BufferPool.SHARED.getBytesOutstanding());
+		assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(CompletionException.class, parsed::join));
+		assertEquals(0, loader.processUploads(Long.MAX_VALUE));
+		assertEquals(0, device.getVertexArrayCount());
+	}
+
+	private void awaitPendingUpload() {
+		assertTimeoutPreemptively(TIMEOUT, () -> {
+			while (!loader.hasPendingUploads()) {
+				Thread.onSpinWait();
+			}
+		});
+	}
+}
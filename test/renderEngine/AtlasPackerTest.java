@@ -0,0 +1,134 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Places rectangles with an {@link renderEngine.AtlasPacker}, checking
+ * hand-worked positions, and that random rectangles stay on the page and never
+ * overlap.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class AtlasPackerTest {
+
+	@Test
+	public void placesEachRectangleWhereItsTopIsLowest() {
+		AtlasPacker packer = new AtlasPacker(100, 100);
+
+		assertPlaced(packer, 50, 30, 0, 0);
+		assertPlaced(packer, 50, 10, 50, 0);
+
+		/* On top of the short one, as its top ends up lower than beside the tall one */
+		assertPlaced(packer, 50, 10, 50, 10);
+
+		/* Anything wider rests on the highest segment under it */
+		assertPlaced(packer, 100, 5, 0, 30);
+
+		assertEquals(4, packer.getPackedCount());
+		assertEquals(35, packer.getUsedHeight());
+	}
+
+	@Test
+	public void tiesGoToTheLeftmostSpot() {
+		AtlasPacker packer = new AtlasPacker(90, 90);
+		assertPlaced(packer, 30, 10, 0, 0);
+		assertPlaced(packer, 30, 20, 30, 0);
+		assertPlaced(packer, 30, 10, 60, 0);
+
+		/* Both short ones leave the top at 20, and the left one is found first */
+		assertPlaced(packer, 30, 10, 0, 10);
+	}
+
+	@Test
+	public void rectanglesThatDoNotFitAreRejected() {
+		AtlasPacker packer = new AtlasPacker(64, 32);
+		assertFalse(packer.insert(65, 1));
+		assertFalse(packer.insert(1, 33));
+		assertEquals(-1, packer.getX());
+		assertEquals(-1, packer.getY());
+
+		assertPlaced(packer, 64, 32, 0, 0);
+		assertEquals(1f, packer.getOccupancy());
+		assertFalse(packer.insert(1, 1));
+
+		/* A rejected rectangle leaves the last placement as it was */
+		assertEquals(0, packer.getX());
+		assertEquals(1, packer.getPackedCount());
+
+		assertThrows(IllegalArgumentException.class, () -> packer.insert(0, 4));
+		assertThrows(IllegalArgumentException.class, () -> packer.insert(4, -1));
+	}
+
+	@Test
+	public void clearEmptiesThePage() {
+		AtlasPacker packer = new AtlasPacker(64, 64);
+		for (int i = 0; i < 8; i++) {
+			assertTrue(packer.insert(16, 16));
+		}
+		assertEquals(0.5f, packer.getOccupancy());
+		assertEquals(32, packer.getUsedHeight());
+
+		packer.clear();
+		assertEquals(0, packer.getPackedCount());
+		assertEquals(0, packer.getUsedHeight());
+		assertEquals(0f, packer.getOccupancy());
+		assertEquals(-1, packer.getX());
+		assertPlaced(packer, 64, 64, 0, 0);
+	}
+
+	@Test
+	public void randomRectanglesStayOnThePageAndNeverOverlap() {
+		for (int seed = 0; seed < 4; seed++) {
+			checkPacking(new Random(seed), 512, 2000);
+		}
+		checkPacking(new Random(4), 2048, 10000);
+	}
+
+	private static void checkPacking(Random random, int pageSize, int rectangles) {
+		AtlasPacker packer = new AtlasPacker(pageSize, pageSize);
+		boolean[] covered = new boolean[pageSize * pageSize];
+		long area = 0;
+		int placed = 0, bottom = 0;
+
+		for (int i = 0; i < rectangles; i++) {
+			int width = 1 + random.nextInt(64), height = 1 + random.nextInt(64);
+			if (!packer.insert(width, height)) {
+				continue;
+			}
+
+			int x = packer.getX(), y = packer.getY();
+			assertTrue(x >= 0 && y >= 0 && x + width <= pageSize && y + height <= pageSize,
+					"rectangle " + i + " is off the page");
+			for (int row = y; row < y + height; row++) {
+				for (int column = x; column < x + width; column++) {
+					assertFalse(covered[row * pageSize + column], "rectangle " + i + " overlaps another");
+					covered[row * pageSize + column] = true;
+				}
+			}
+
+			area += (long) width * height;
+			placed++;
+			bottom = Math.max(bottom, y + height);
+		}
+
+		/* Enough rectangles were offered to fill the page, so some must have been turned away */
+		assertTrue(placed < rectangles);
+		assertEquals(placed, packer.getPackedCount());
+		assertEquals(bottom, packer.getUsedHeight());
+		assertEquals((double) area / ((long) pageSize * pageSize), packer.getOccupancy(), 1e-6);
+	}
+
+	private static void assertPlaced(AtlasPacker packer, int width, int height, int x, int y) {
+		assertTrue(packer.insert(width, height), width + "x" + height + " does not fit");
+		assertEquals(x, packer.getX(), "x of " + width + "x" + height);
+		assertEquals(y, packer.getY(), "y of " + width + "x" + height);
+	}
+}
@@ -0,0 +1,47 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL33;
+
+/**
+ * Checks the sizes and OpenGL types of each {@link renderEngine.AttributeType}.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class AttributeTypeTest {
+
+	@Test
+	public void sizesScaleWithComponents() {
+		for (int components = 1; components <= 4; components++) {
+			assertEquals(4 * components, AttributeType.FLOAT.sizeOf(components));
+			assertEquals(2 * components, AttributeType.HALF_FLOAT.sizeOf(components));
+			assertEquals(components, AttributeType.UNSIGNED_BYTE_NORMALIZED.sizeOf(components));
+		}
+	}
+
+	@Test
+	public void packedTypeIsAlwaysOneInt() {
+		assertEquals(4, AttributeType.INT_2_10_10_10_REV.sizeOf(3));
+		assertEquals(4, AttributeType.INT_2_10_10_10_REV.sizeOf(4));
+	}
+
+	@Test
+	public void glTypesAndNormalization() {
+		assertEquals(GL11.GL_FLOAT, AttributeType.FLOAT.getGlType());
+		assertEquals(GL30.GL_HALF_FLOAT, AttributeType.HALF_FLOAT.getGlType());
+		assertEquals(GL11.GL_UNSIGNED_BYTE, AttributeType.UNSIGNED_BYTE_NORMALIZED.getGlType());
+		assertEquals(GL33.GL_INT_2_10_10_10_REV, AttributeType.INT_2_10_10_10_REV.getGlType());
+
+		assertFalse(AttributeType.FLOAT.isNormalized());
+		assertFalse(AttributeType.HALF_FLOAT.isNormalized());
+		assertTrue(AttributeType.UNSIGNED_BYTE_NORMALIZED.isNormalized());
+		assertTrue(AttributeType.INT_2_10_10_10_REV.isNormalized());
+	}
+}
@@ -0,0 +1,121 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pulls the planes of a {@link renderEngine.Frustum} out of known projection
+ * matrices, and tests spheres and boxes that are inside, outside and across
+ * them. The planes are normalized, so a sphere touching one tells exactly
+ * where it was extracted to.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class FrustumTest {
+
+	private final Frustum frustum = new Frustum();
+
+	/* A 90 degree field of view, square, from a near plane at Z = -1 to a far plane at Z = -100 */
+	@BeforeEach
+	public void setUp() {
+		frustum.set(perspective(90, 1, 1, 100));
+	}
+
+	@Test
+	public void identityIsTheClipCube() {
+		frustum.set(new float[] { 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1 });
+
+		/* Each face at one unit from the origin, and a unit from the face counts as a unit */
+		for (int axis = 0; axis < 3; axis++) {
+			for (float sign = -1; sign <= 1; sign += 2) {
+				float[] center = new float[3];
+				center[axis] = sign * 1.5f;
+				assertFalse(frustum.intersectsSphere(center[0], center[1], center[2], 0.49f));
+				assertTrue(frustum.intersectsSphere(center[0], center[1], center[2], 0.51f));
+			}
+		}
+		assertTrue(frustum.containsBox(-1, -1, -1, 1, 1, 1));
+		assertFalse(frustum.containsBox(-1, -1, -1, 1.01f, 1, 1));
+	}
+
+	@Test
+	public void perspectivePlanesAreWhereTheProjectionPutsThem() {
+		/* Near and far, along the view direction */
+		assertTrue(frustum.intersectsSphere(0, 0, -1.01f, 0));
+		assertFalse(frustum.intersectsSphere(0, 0, -0.5f, 0.49f));
+		assertTrue(frustum.intersectsSphere(0, 0, -0.5f, 0.51f));
+		assertTrue(frustum.intersectsSphere(0, 0, -99.9f, 0));
+		assertFalse(frustum.intersectsSphere(0, 0, -101, 0.99f));
+
+		/* The sides are at 45 degrees, so ten units out along Z is ten units across */
+		assertTrue(frustum.intersectsSphere(9.9f, 0, -10, 0));
+		assertFalse(frustum.intersectsSphere(-10.1f, 0, -10, 0));
+		assertFalse(frustum.intersectsSphere(0, 12, -10, 1.4f));
+		assertTrue(frustum.intersectsSphere(0, 12, -10, 1.5f));
+		assertTrue(frustum.intersectsSphere(0, -12, -10, 1.5f));
+
+		/* Behind the camera is never visible */
+		assertFalse(frustum.intersectsSphere(0, 0, 5, 1));
+	}
+
+	@Test
+	public void boxInsideIsContained() {
+		assertTrue(frustum.intersectsBox(-1, -1, -6, 1, 1, -4));
+		assertTrue(frustum.containsBox(-1, -1, -6, 1, 1, -4));
+		assertTrue(frustum.intersects(new Bounds(-1, -1, -6, 1, 1, -4)));
+	}
+
+	@Test
+	public void boxOutsideIsNeitherContainedNorIntersected() {
+		/* Behind the camera, past the far plane and off to one side */
+		assertFalse(frustum.intersectsBox(-1, -1, 2, 1, 1, 4));
+		assertFalse(frustum.intersectsBox(-1, -1, -120, 1, 1, -110));
+		assertFalse(frustum.intersectsBox(20, -1, -6, 22, 1, -4));
+		assertFalse(frustum.containsBox(20, -1, -6, 22, 1, -4));
+		assertFalse(frustum.intersects(new Bounds(20, -1, -6, 22, 1, -4)));
+	}
+
+	@Test
+	public void boxAcrossAPlaneIntersectsButIsNotContained() {
+		/* Across the near plane, the far plane and a side */
+		assertTrue(frustum.intersectsBox(-0.5f, -0.5f, -2, 0.5f, 0.5f, 0));
+		assertFalse(frustum.containsBox(-0.5f, -0.5f, -2, 0.5f, 0.5f, 0));
+		assertTrue(frustum.intersectsBox(-1, -1, -110, 1, 1, -90));
+		assertFalse(frustum.containsBox(-1, -1, -110, 1, 1, -90));
+		assertTrue(frustum.intersectsBox(4, -1, -6, 8, 1, -4));
+		assertFalse(frustum.containsBox(4, -1, -6, 8, 1, -4));
+
+		/* Larger than the whole frustum */
+		assertTrue(frustum.intersectsBox(-500, -500, -500, 500, 500, 500));
+		assertFalse(frustum.containsBox(-500, -500, -500, 500, 500, 500));
+	}
+
+	/* A column-major perspective projection looking down -Z, as gluPerspective makes */
+	static float[] perspective(float fovY, float aspect, float near, float far) {
+		float f = (float) (1 / Math.tan(Math.toRadians(fovY) / 2));
+		float[] m = new float[16];
+		m[0] = f / aspect;
+		m[5] = f;
+		m[10] = (far + near) / (near - far);
+		m[11] = -1;
+		m[14] = 2 * far * near / (near - far);
+		return m;
+	}
+
+	/* A column-major orthographic projection of a box, with Z from -near to -far, as glOrtho makes */
+	static float[] orthographic(float left, float right, float bottom, float top, float near, float far) {
+		float[] m = new float[16];
+		m[0] = 2 / (right - left);
+		m[5] = 2 / (top - bottom);
+		m[10] = -2 / (far - near);
+		m[12] = -(right + left) / (right - left);
+		m[13] = -(top + bottom) / (top - bottom);
+		m[14] = -(far + near) / (far - near);
+		m[15] = 1;
+		return m;
+	}
+}
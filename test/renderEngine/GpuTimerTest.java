@@ -0,0 +1,97 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import org.junit.jupiter.api.Test;
+import org.lwjgl.opengl.GL11;
+
+import utility.Profiler;
+
+/**
+ * Times frames of draw calls with a {@link renderEngine.GpuTimer} on a
+ * {@link renderEngine.RecordingRenderDevice}, whose modeled GPU takes a fixed
+ * time per draw call and finishes each frame a number of frames late.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class GpuTimerTest {
+
+	private static final long DRAW_CALL_NS = 1000;
+
+	private final Profiler profiler = new Profiler(16);
+
+	private final int scope = profiler.register("gpu");
+
+	@Test
+	public void resultsAreRecordedOnceTheGpuHasFinished() {
+		RecordingRenderDevice device = new RecordingRenderDevice(true, 2);
+		device.setDrawCallNs(DRAW_CALL_NS);
+		GpuTimer timer = new GpuTimer(device, profiler, scope);
+		assertEquals(4, device.getQueryCount());
+
+		/* Frame n makes n + 1 draw calls, and frames are read back four frames later */
+		for (int frame = 0; frame < 8; frame++) {
+			runFrame(device, timer, frame + 1);
+			if (frame < 4) {
+				assertEquals(0, profiler.getLatest(scope));
+			} else {
+				assertEquals((frame - 3) * DRAW_CALL_NS, profiler.getLatest(scope));
+			}
+		}
+
+		assertEquals(1000, profiler.getPercentile(scope, 0));
+		assertEquals(4000, profiler.getPercentile(scope, 1));
+		assertEquals(0, device.getSyncStalls());
+
+		timer.cleanUp();
+		assertEquals(0, device.getQueryCount());
+	}
+
+	@Test
+	public void lateResultsAreSkippedRatherThanWaitedOn() {
+		RecordingRenderDevice device = new RecordingRenderDevice(true, 6);
+		device.setDrawCallNs(DRAW_CALL_NS);
+		GpuTimer timer = new GpuTimer(device, profiler, scope);
+
+		/* The GPU is further behind than the timer waits for, so nothing is ever ready in time */
+		for (int frame = 0; frame < 12; frame++) {
+			runFrame(device, timer, 1);
+		}
+
+		assertEquals(0, profiler.getLatest(scope));
+		assertEquals(0, device.getSyncStalls());
+	}
+
+	@Test
+	public void unsupportedDeviceMakesNoQueries() {
+		RecordingRenderDevice device = new RecordingRenderDevice() {
+			@Override
+			public boolean supportsTimerQuery() {
+				return false;
+			}
+		};
+		GpuTimer timer = new GpuTimer(device, profiler, scope);
+		assertFalse(timer.isSupported());
+
+		for (int frame = 0; frame < 8; frame++) {
+			runFrame(device, timer, 1);
+		}
+		timer.cleanUp();
+
+		assertEquals(0, device.getQueryCount());
+		assertEquals(0, profiler.getLatest(scope));
+	}
+
+	/* Times a frame of draw calls, then ends it, as swapping buffers would */
+	private static void runFrame(RecordingRenderDevice device, GpuTimer timer, int drawCalls) {
+		device.bindVertexArray(device.genVertexArray());
+		timer.begin();
+		for (int i = 0; i < drawCalls; i++) {
+			device.drawArrays(GL11.GL_TRIANGLES, 0, 3);
+		}
+		timer.end();
+		device.endFrame();
+	}
+}
@@ -0,0 +1,109 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Moves the camera towards and away from a {@link renderEngine.LodModel} with
+ * made-up errors, checking which level a {@link renderEngine.LodSelector}
+ * picks, and that it holds its level anywhere inside the hysteresis band.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class LodSelectorTest {
+
+	/* 500 pixels per unit at a distance of one, and one pixel of error allowed */
+	private static final int VIEWPORT_HEIGHT = 1000;
+	private static final float FIELD_OF_VIEW = 90, MAX_PIXEL_ERROR = 1;
+
+	/*
+	 * Level 1 shows closer than 5 units from the bounding sphere and is only taken
+	 * back from 6.67, and level 2 shows closer than 20 and is only taken from 26.67
+	 */
+	private static final float[] ERRORS = { 0, 0.01f, 0.04f };
+
+	private final Bounds bounds = new Bounds(-1, -1, -1, 1, 1, 1);
+
+	private LodModel model = null;
+
+	private LodSelector selector = null;
+
+	@BeforeEach
+	public void setUp() {
+		RawModel[] levels = new RawModel[ERRORS.length];
+		for (int level = 0; level < levels.length; level++) {
+			levels[level] = new RawModel(1, 36 >> level, VertexFormat.POSITION, IndexType.UNSIGNED_SHORT, bounds,
+					0);
+		}
+		model = new LodModel(levels, ERRORS);
+		selector = new LodSelector(VIEWPORT_HEIGHT, FIELD_OF_VIEW, MAX_PIXEL_ERROR);
+	}
+
+	@Test
+	public void coarserLevelsFurtherAway() {
+		assertEquals(0, selectAt(1, 0));
+		assertEquals(0, selectAt(4.9f, 0));
+		assertEquals(1, selectAt(7, 0));
+		assertEquals(2, selectAt(30, 0));
+
+		/* From the coarsest level, coming close enough goes straight back to the full mesh */
+		assertEquals(0, selectAt(4, 2));
+
+		/* Inside the bounding sphere */
+		selector.setCamera(0, 0, 0);
+		assertEquals(0, selector.select(model, 0, 0, 0, 2));
+	}
+
+	@Test
+	public void levelIsHeldInsideTheHysteresisBand() {
+		/* Back and forth between 5 and 6.67, never crossing either threshold */
+		int fromFull = 0, fromCoarser = 1;
+		for (int frame = 0; frame < 100; frame++) {
+			float distance = 5.5f + (frame % 10) * 0.1f;
+			fromFull = selectAt(distance, fromFull);
+			fromCoarser = selectAt(distance, fromCoarser);
+			assertEquals(0, fromFull, "moved up at " + distance);
+			assertEquals(1, fromCoarser, "moved down at " + distance);
+		}
+
+		/* The same between 20 and 26.67, one level further out */
+		int level = selectAt(30, 0);
+		for (int frame = 0; frame < 100; frame++) {
+			level = selectAt(frame % 2 == 0 ? 21 : 26, level);
+			assertEquals(2, level);
+		}
+
+		/* Only leaving the band changes the level */
+		assertEquals(1, selectAt(19, level));
+		assertEquals(1, selectAt(25, 1));
+		assertEquals(2, selectAt(27, 1));
+	}
+
+	@Test
+	public void noHysteresisSwitchesAtTheThreshold() {
+		selector.setHysteresis(0);
+
+		assertEquals(1, selectAt(5.5f, 0));
+		assertEquals(0, selectAt(4.5f, 1));
+		assertEquals(1, selectAt(5.5f, 0));
+	}
+
+	@Test
+	public void biasAllowsCoarserLevelsCloser() {
+		selector.setBias(2);
+
+		/* Twice the error allowed, so every threshold is half as far */
+		assertEquals(1, selectAt(3.5f, 0));
+		assertEquals(2, selectAt(14, 0));
+		assertEquals(0, selectAt(2, 1));
+	}
+
+	/* Selects a level with the camera the specified distance in front of the bounding sphere */
+	private int selectAt(float distance, int currentLevel) {
+		selector.setCamera(0, 0, bounds.getRadius() + distance);
+		return selector.select(model, 0, 0, 0, currentLevel);
+	}
+}
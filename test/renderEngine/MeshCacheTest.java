@@ -0,0 +1,116 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import utility.BufferPool;
+import utility.PooledBuffer;
+
+/**
+ * Writes meshes to {@link renderEngine.MeshCache} files and reads them back,
+ * checking that the bounds stored in the header reach the loaded model without
+ * the vertices being read for them.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class MeshCacheTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void boundsAreStoredAndLoaded() throws IOException {
+		Mesh mesh = new Mesh(VertexFormat.POSITION, new float[][] { { -1, 2, -3, 4, -5, 6, 0.5f, 0.5f, 0.5f } },
+				new int[] { 0, 1, 2 });
+		Path file = directory.resolve("triangle" + MeshCache.EXTENSION);
+		MeshCache.write(mesh, file);
+
+		CachedMesh cached = MeshCache.read(file);
+		assertBounds(-1, -5, -3, 4, 2, 6, cached.getBounds());
+		assertEquals(3, cached.getVertexCount());
+		assertEquals(3, cached.getIndexCount());
+
+		RawModel model = new ModelLoader(new RecordingRenderDevice()).loadToVAO(cached);
+		assertSame(cached.getBounds(), model.getBounds());
+	}
+
+	@Test
+	public void unboundedMeshesReadBackAsInfinite() throws IOException {
+		/* Half-float positions cannot be bounded, so are never culled */
+		VertexFormat format = new VertexFormat().add(0, 3, AttributeType.HALF_FLOAT);
+		Mesh mesh = new Mesh(format, new float[][] { { 0, 0, 0, 1, 0, 0, 0, 1, 0 } }, new int[] { 0, 1, 2 });
+		Path file = directory.resolve("half" + MeshCache.EXTENSION);
+		MeshCache.write(mesh, file);
+
+		assertSame(Bounds.INFINITE, MeshCache.read(file).getBounds());
+	}
+
+	@Test
+	public void otherVersionsAreRejected() throws IOException {
+		Mesh mesh = new Mesh(VertexFormat.POSITION, new float[][] { new float[9] }, new int[] { 0, 1, 2 });
+		Path file = directory.resolve("old" + MeshCache.EXTENSION);
+		MeshCache.write(mesh, file);
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			ByteBuffer version = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			channel.write(version.putInt(0, MeshCache.VERSION - 1), Integer.BYTES);
+		}
+
+		assertThrows(IOException.class, () -> MeshCache.read(file));
+	}
+
+	@Test
+	public void paddingBetweenSectionsIsZeroed() throws IOException {
+		/* Leave a block of every small size class in the shared pool full of ones, to be reused by the write */
+		for (int size = 256; size <= 4096; size *= 2) {
+			PooledBuffer dirty = BufferPool.SHARED.acquire(size);
+			ByteBuffer bytes = dirty.getByteBuffer();
+			while (bytes.hasRemaining()) {
+				bytes.put((byte) 0xFF);
+			}
+			dirty.release();
+		}
+
+		/* A header of 76 bytes and 36 bytes of vertices, so both sections are followed by padding */
+		Mesh mesh = new Mesh(VertexFormat.POSITION, new float[][] { { 0, 0, 0, 1, 0, 0, 0, 1, 0 } },
+				new int[] { 0, 1, 2 });
+		Path file = directory.resolve("padded" + MeshCache.EXTENSION);
+		MeshCache.write(mesh, file);
+
+		ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+		int vertexOffset = bytes.getInt(11 * Integer.BYTES), indexOffset = bytes.getInt(12 * Integer.BYTES);
+		assertEquals(80, vertexOffset);
+		assertEquals(128, indexOffset);
+		assertEquals(indexOffset + 3, bytes.capacity());
+
+		for (int i = 76; i < vertexOffset; i++) {
+			assertEquals(0, bytes.get(i), "header padding at " + i);
+		}
+		for (int i = vertexOffset + 36; i < indexOffset; i++) {
+			assertEquals(0, bytes.get(i), "vertex padding at " + i);
+		}
+	}
+
+	private static void assertBounds(float minX, float minY, float minZ, float maxX, float maxY, float maxZ,
+			Bounds bounds) {
+		assertEquals(minX, bounds.getMinX());
+		assertEquals(minY, bounds.getMinY());
+		assertEquals(minZ, bounds.getMinZ());
+		assertEquals(maxX, bounds.getMaxX());
+		assertEquals(maxY, bounds.getMaxY());
+		assertEquals(maxZ, bounds.getMaxZ());
+	}
+}
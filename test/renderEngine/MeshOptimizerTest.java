@@ -0,0 +1,256 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs each step of {@link renderEngine.MeshOptimizer} on meshes whose best
+ * result is known: a cube built from separate faces for welding, and a grid
+ * of quads, drawn row by row or shuffled, for the vertex cache. Every step is
+ * checked to still draw the same triangles, and the indices of the result to
+ * pack into the smallest type that fits.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class MeshOptimizerTest {
+
+	private static final long SEED = 20240612L;
+
+	/* Wider than the cache, so a grid drawn row by row cannot reuse the row before */
+	private static final int GRID_SIZE = 64;
+
+	@Test
+	public void weldingMergesDuplicateVertices() {
+		/* Six faces of four corners each, so every corner of the cube appears three times */
+		float[] positions = new float[6 * 4 * 3];
+		int[] indices = new int[6 * 6];
+		for (int face = 0; face < 6; face++) {
+			int axis = face / 2, u = (axis + 1) % 3, v = (axis + 2) % 3;
+			for (int corner = 0; corner < 4; corner++) {
+				int vertex = (face * 4 + corner) * 3;
+				positions[vertex + axis] = face % 2;
+				positions[vertex + u] = corner == 1 || corner == 2 ? 1 : 0;
+				positions[vertex + v] = corner >= 2 ? 1 : 0;
+			}
+			int base = face * 4;
+			System.arraycopy(new int[] { base, base + 1, base + 2, base, base + 2, base + 3 }, 0, indices, face * 6,
+					6);
+		}
+		Mesh cube = new Mesh(VertexFormat.POSITION, new float[][] { positions }, indices);
+
+		Mesh welded = MeshOptimizer.weldVertices(cube);
+		assertEquals(8, welded.getVertexCount());
+		assertEquals(8 * 3, welded.getAttributeData()[0].length);
+		assertEquals(positionTriangles(cube), positionTriangles(welded));
+
+		/* Welding again finds nothing more */
+		assertEquals(8, MeshOptimizer.weldVertices(welded).getVertexCount());
+	}
+
+	@Test
+	public void verticesDifferingInAnyAttributeAreKept() {
+		VertexFormat format = new VertexFormat().add(0, 3, AttributeType.FLOAT).add(1, 2, AttributeType.FLOAT);
+		float[] positions = { 0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 1, 0 };
+		float[] textureCoords = { 0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0.5f, 1 };
+		Mesh mesh = new Mesh(format, new float[][] { positions, textureCoords }, new int[] { 0, 1, 2, 3, 4, 5 });
+
+		/* Only the third corner's texture coordinates differ between the two triangles */
+		Mesh welded = MeshOptimizer.weldVertices(mesh);
+		assertEquals(4, welded.getVertexCount());
+		assertArrayEquals(new int[] { 0, 1, 2, 0, 1, 3 }, welded.getIndices());
+		assertEquals(0.5f, welded.getAttributeData()[1][3 * 2]);
+	}
+
+	@Test
+	public void tipsifyLowersCacheMissesOfAGridAndKeepsItsTriangles() {
+		int vertexCount = (GRID_SIZE + 1) * (GRID_SIZE + 1);
+		int[] rows = grid(GRID_SIZE);
+		int[] shuffled = shuffleTriangles(rows, new Random(SEED));
+
+		float rowsACMR = MeshOptimizer.computeACMR(rows, vertexCount, MeshOptimizer.DEFAULT_CACHE_SIZE);
+		float shuffledACMR = MeshOptimizer.computeACMR(shuffled, vertexCount, MeshOptimizer.DEFAULT_CACHE_SIZE);
+		assertTrue(rowsACMR > 0.95f, "row by row gave " + rowsACMR);
+		assertTrue(shuffledACMR > 2, "shuffled gave " + shuffledACMR);
+
+		for (int[] indices : new int[][] { rows, shuffled }) {
+			int[] optimized = MeshOptimizer.optimizeVertexCache(indices, vertexCount,
+					MeshOptimizer.DEFAULT_CACHE_SIZE);
+			float acmr = MeshOptimizer.computeACMR(optimized, vertexCount, MeshOptimizer.DEFAULT_CACHE_SIZE);
+			assertTrue(acmr < 0.8f, "optimized to " + acmr);
+			assertEquals(sortedTriangles(indices), sortedTriangles(optimized));
+		}
+	}
+
+	@Test
+	public void acmrCountsMissesPerTriangle() {
+		/* Every vertex is new, then every vertex is still cached */
+		assertEquals(3f, MeshOptimizer.computeACMR(new int[] { 0, 1, 2 }, 3, 16));
+		assertEquals(1.5f, MeshOptimizer.computeACMR(new int[] { 0, 1, 2, 2, 1, 0 }, 3, 16));
+
+		/* The first vertex is pushed out by the four after it in a cache of four, but not of five */
+		assertEquals(3f, MeshOptimizer.computeACMR(new int[] { 0, 1, 2, 3, 4, 0 }, 5, 4));
+		assertEquals(2.5f, MeshOptimizer.computeACMR(new int[] { 0, 1, 2, 3, 4, 0 }, 5, 5));
+		assertEquals(0f, MeshOptimizer.computeACMR(new int[0], 0, 16));
+	}
+
+	@Test
+	public void vertexFetchFollowsFirstUseAndDropsUnusedVertices() {
+		float[] positions = { 0, 0, 0, 1, 1, 1, 2, 2, 2, 3, 3, 3, 4, 4, 4 };
+		Mesh mesh = new Mesh(VertexFormat.POSITION, new float[][] { positions }, new int[] { 3, 1, 4, 4, 1, 3 });
+
+		Mesh fetched = MeshOptimizer.optimizeVertexFetch(mesh);
+		assertArrayEquals(new int[] { 0, 1, 2, 2, 1, 0 }, fetched.getIndices());
+		assertArrayEquals(new float[] { 3, 3, 3, 1, 1, 1, 4, 4, 4 }, fetched.getAttributeData()[0]);
+	}
+
+	@Test
+	public void optimizedGridDrawsTheSameTriangles() {
+		int[] indices = shuffleTriangles(grid(GRID_SIZE), new Random(SEED));
+		Mesh mesh = gridMesh(GRID_SIZE, indices);
+
+		Mesh optimized = MeshOptimizer.optimize(mesh);
+		assertEquals(mesh.getVertexCount(), optimized.getVertexCount());
+		assertEquals(positionTriangles(mesh), positionTriangles(optimized));
+		assertTrue(MeshOptimizer.computeACMR(optimized.getIndices(), optimized.getVertexCount(),
+				MeshOptimizer.DEFAULT_CACHE_SIZE) < 0.8f);
+
+		/* First use order, so each index is at most one past the largest before it */
+		int largest = -1;
+		for (int index : optimized.getIndices()) {
+			assertTrue(index <= largest + 1);
+			largest = Math.max(largest, index);
+		}
+	}
+
+	@Test
+	public void indicesArePackedIntoTheSmallestTypeThatFits() {
+		assertEquals(IndexType.UNSIGNED_BYTE, IndexType.forVertexCount(1));
+		assertEquals(IndexType.UNSIGNED_BYTE, IndexType.forVertexCount(256));
+		assertEquals(IndexType.UNSIGNED_SHORT, IndexType.forVertexCount(257));
+		assertEquals(IndexType.UNSIGNED_SHORT, IndexType.forVertexCount(65536));
+		assertEquals(IndexType.UNSIGNED_INT, IndexType.forVertexCount(65537));
+
+		/* The largest index of each type survives the trip, read back unsigned */
+		int[] bytes = { 0, 127, 128, 255 };
+		ByteBuffer packed = pack(bytes, IndexType.forVertexCount(256));
+		assertEquals(bytes.length, packed.remaining());
+		for (int i = 0; i < bytes.length; i++) {
+			assertEquals(bytes[i], packed.get(i) & 0xFF);
+		}
+
+		int[] shorts = { 0, 256, 32768, 65535 };
+		packed = pack(shorts, IndexType.forVertexCount(65536));
+		assertEquals(shorts.length * 2, packed.remaining());
+		for (int i = 0; i < shorts.length; i++) {
+			assertEquals(shorts[i], packed.getShort(i * 2) & 0xFFFF);
+		}
+
+		int[] ints = { 0, 65536, Integer.MAX_VALUE };
+		packed = pack(ints, IndexType.forVertexCount(65537));
+		assertEquals(ints.length * 4, packed.remaining());
+		for (int i = 0; i < ints.length; i++) {
+			assertEquals(ints[i], packed.getInt(i * 4));
+		}
+
+		/* An optimized grid of 65 by 65 vertices needs shorts */
+		Mesh grid = MeshOptimizer.optimize(gridMesh(GRID_SIZE, grid(GRID_SIZE)));
+		assertEquals(IndexType.UNSIGNED_SHORT, IndexType.forVertexCount(grid.getVertexCount()));
+		assertEquals(IndexType.UNSIGNED_BYTE, IndexType.forVertexCount(gridMesh(15, grid(15)).getVertexCount()));
+	}
+
+	private static ByteBuffer pack(int[] indices, IndexType type) {
+		ByteBuffer buffer = ByteBuffer.allocate(indices.length * type.getBytes()).order(ByteOrder.nativeOrder());
+		assertTrue(buffer == MeshOptimizer.packIndices(indices, type, buffer));
+		assertEquals(0, buffer.position());
+		return buffer;
+	}
+
+	/* Two triangles per quad, row by row, over a grid of (size + 1) squared vertices */
+	private static int[] grid(int size) {
+		int[] indices = new int[size * size * 6];
+		int i = 0;
+		for (int row = 0; row < size; row++) {
+			for (int column = 0; column < size; column++) {
+				int corner = row * (size + 1) + column, below = corner + size + 1;
+				indices[i++] = corner;
+				indices[i++] = below;
+				indices[i++] = corner + 1;
+				indices[i++] = corner + 1;
+				indices[i++] = below;
+				indices[i++] = below + 1;
+			}
+		}
+		return indices;
+	}
+
+	private static Mesh gridMesh(int size, int[] indices) {
+		float[] positions = new float[(size + 1) * (size + 1) * 3];
+		for (int v = 0; v < positions.length / 3; v++) {
+			positions[v * 3] = v % (size + 1);
+			positions[v * 3 + 2] = v / (size + 1);
+		}
+		return new Mesh(VertexFormat.POSITION, new float[][] { positions }, indices);
+	}
+
+	private static int[] shuffleTriangles(int[] indices, Random random) {
+		int[] shuffled = indices.clone();
+		for (int triangle = shuffled.length / 3 - 1; triangle > 0; triangle--) {
+			int other = random.nextInt(triangle + 1);
+			for (int c = 0; c < 3; c++) {
+				int swap = shuffled[triangle * 3 + c];
+				shuffled[triangle * 3 + c] = shuffled[other * 3 + c];
+				shuffled[other * 3 + c] = swap;
+			}
+		}
+		return shuffled;
+	}
+
+	/* Each triangle rotated to start at its lowest index, keeping its winding, then all of them sorted */
+	private static String sortedTriangles(int[] indices) {
+		long[] triangles = new long[indices.length / 3];
+		for (int t = 0; t < triangles.length; t++) {
+			int a = indices[t * 3], b = indices[t * 3 + 1], c = indices[t * 3 + 2];
+			while (a > b || a > c) {
+				int swap = a;
+				a = b;
+				b = c;
+				c = swap;
+			}
+			triangles[t] = ((long) a << 42) | ((long) b << 21) | c;
+		}
+		Arrays.sort(triangles);
+		return Arrays.toString(triangles);
+	}
+
+	/* The same, but by the positions of the corners, so meshes with reordered vertices can be compared */
+	private static String positionTriangles(Mesh mesh) {
+		float[] positions = mesh.getAttributeData()[0];
+		int[] indices = mesh.getIndices();
+		String[] triangles = new String[indices.length / 3];
+		for (int t = 0; t < triangles.length; t++) {
+			String[] corners = new String[3];
+			for (int c = 0; c < 3; c++) {
+				int v = indices[t * 3 + c];
+				corners[c] = positions[v * 3] + "," + positions[v * 3 + 1] + "," + positions[v * 3 + 2];
+			}
+			int first = 0;
+			for (int c = 1; c < 3; c++) {
+				if (corners[c].compareTo(corners[first]) < 0) {
+					first = c;
+				}
+			}
+			triangles[t] = corners[first] + " " + corners[(first + 1) % 3] + " " + corners[(first + 2) % 3];
+		}
+		Arrays.sort(triangles);
+		return String.join("; ", triangles);
+	}
+}
@@ -0,0 +1,150 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Simplifies a closed sphere with a {@link renderEngine.MeshSimplifier}, level
+ * after level, checking that each level has fewer triangles and no less error
+ * than the one before, and that the surface stays closed. The same chain is
+ * loaded as a {@link renderEngine.LodModel} onto a
+ * {@link renderEngine.RecordingRenderDevice}.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class MeshSimplifierTest {
+
+	private static final int SEGMENTS = 32, RINGS = 16;
+
+	@Test
+	public void levelsHaveFewerTrianglesAndNoLessError() {
+		Mesh sphere = sphere(SEGMENTS, RINGS);
+		MeshSimplifier simplifier = new MeshSimplifier(sphere);
+		assertEquals(0f, simplifier.getError());
+
+		int previousCount = sphere.getIndices().length;
+		float previousError = 0;
+		int levels = 0;
+		while (previousCount > 24) {
+			int[] indices = simplifier.simplify(previousCount / 6 * 3);
+			if (indices.length == previousCount) {
+				break;
+			}
+
+			assertTrue(indices.length < previousCount, indices.length + " indices after " + previousCount);
+			assertEquals(indices.length, simplifier.getIndexCount());
+			assertTrue(simplifier.getError() >= previousError,
+					"error fell from " + previousError + " to " + simplifier.getError());
+			assertTrue(simplifier.getError() < 1, "error of " + simplifier.getError() + " on a unit sphere");
+			assertClosed(indices, sphere.getVertexCount());
+
+			previousCount = indices.length;
+			previousError = simplifier.getError();
+			levels++;
+		}
+
+		assertTrue(levels >= 4, "only " + levels + " levels");
+		assertTrue(previousError > 0);
+	}
+
+	@Test
+	public void askingForMoreIndicesChangesNothing() {
+		Mesh sphere = sphere(SEGMENTS, RINGS);
+		MeshSimplifier simplifier = new MeshSimplifier(sphere);
+
+		int[] half = simplifier.simplify(sphere.getIndices().length / 2);
+		float error = simplifier.getError();
+		assertArrayEquals(half, simplifier.simplify(sphere.getIndices().length));
+		assertEquals(error, simplifier.getError());
+	}
+
+	@Test
+	public void lodModelLevelsShrink() {
+		ModelLoader loader = new ModelLoader(new RecordingRenderDevice());
+		LodModel model = loader.loadWithLods(sphere(SEGMENTS, RINGS), 5);
+
+		assertTrue(model.getLevelCount() > 2, model.getLevelCount() + " levels");
+		assertEquals(0f, model.getError(0));
+		for (int level = 1; level < model.getLevelCount(); level++) {
+			RawModel finer = model.getLevel(level - 1), coarser = model.getLevel(level);
+			assertTrue(coarser.getVertexCount() < finer.getVertexCount());
+			assertTrue(model.getError(level) >= model.getError(level - 1));
+
+			/* One VAO for every level, each with its own indices */
+			assertEquals(finer.getVaoId(), coarser.getVaoId());
+			assertNotEquals(finer.getIndexOffset(), coarser.getIndexOffset());
+		}
+	}
+
+	/* Every edge of a closed surface is shared by exactly two triangles, once in each direction */
+	private static void assertClosed(int[] indices, int vertexCount) {
+		Map<Long, Integer> edges = new HashMap<Long, Integer>();
+		for (int i = 0; i < indices.length; i += 3) {
+			for (int corner = 0; corner < 3; corner++) {
+				int from = indices[i + corner], to = indices[i + (corner + 1) % 3];
+				assertNotEquals(from, to, "degenerate triangle at " + i);
+				assertTrue(from < vertexCount);
+				edges.merge((long) from * vertexCount + to, 1, Integer::sum);
+			}
+		}
+
+		for (Map.Entry<Long, Integer> edge : edges.entrySet()) {
+			long from = edge.getKey() / vertexCount, to = edge.getKey() % vertexCount;
+			assertEquals(1, edge.getValue(), "edge " + from + " to " + to + " used more than once");
+			assertEquals(1, edges.getOrDefault(to * vertexCount + from, 0), "edge " + from + " to " + to + " open");
+		}
+	}
+
+	/* A unit sphere of latitude rings, sharing one vertex at each pole, wound counter-clockwise from outside */
+	private static Mesh sphere(int segments, int rings) {
+		int vertexCount = 2 + (rings - 1) * segments;
+		float[] positions = new float[vertexCount * 3];
+		positions[1] = 1;
+		positions[(vertexCount - 1) * 3 + 1] = -1;
+		for (int ring = 1; ring < rings; ring++) {
+			double latitude = Math.PI * ring / rings;
+			for (int segment = 0; segment < segments; segment++) {
+				double longitude = 2 * Math.PI * segment / segments;
+				int v = (1 + (ring - 1) * segments + segment) * 3;
+				positions[v] = (float) (Math.sin(latitude) * Math.cos(longitude));
+				positions[v + 1] = (float) Math.cos(latitude);
+				positions[v + 2] = (float) (Math.sin(latitude) * -Math.sin(longitude));
+			}
+		}
+
+		int[] indices = new int[segments * (rings - 1) * 6];
+		int i = 0;
+		for (int segment = 0; segment < segments; segment++) {
+			int next = (segment + 1) % segments;
+
+			/* The caps, then a quad between each pair of rings */
+			indices[i++] = 0;
+			indices[i++] = 1 + segment;
+			indices[i++] = 1 + next;
+
+			int bottom = 1 + (rings - 2) * segments;
+			indices[i++] = vertexCount - 1;
+			indices[i++] = bottom + next;
+			indices[i++] = bottom + segment;
+
+			for (int ring = 1; ring < rings - 1; ring++) {
+				int upper = 1 + (ring - 1) * segments, lower = upper + segments;
+				indices[i++] = upper + segment;
+				indices[i++] = lower + segment;
+				indices[i++] = lower + next;
+				indices[i++] = upper + segment;
+				indices[i++] = lower + next;
+				indices[i++] = upper + next;
+			}
+		}
+		return new Mesh(VertexFormat.POSITION, new float[][] { positions }, indices);
+	}
+}
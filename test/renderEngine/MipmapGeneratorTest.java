@@ -0,0 +1,155 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Builds mipmap levels with {@link renderEngine.MipmapGenerator}, checking the
+ * sizes of chains of odd-sized images, and that colors are averaged in linear
+ * light and weighted by their alpha.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class MipmapGeneratorTest {
+
+	@Test
+	public void levelCountRunsDownToOnePixel() {
+		assertEquals(1, MipmapGenerator.levelCount(1, 1));
+		assertEquals(9, MipmapGenerator.levelCount(256, 256));
+		assertEquals(9, MipmapGenerator.levelCount(256, 3));
+		assertEquals(3, MipmapGenerator.levelCount(5, 7));
+		assertEquals(11, MipmapGenerator.levelCount(1, 1024));
+	}
+
+	@Test
+	public void oddSizedChainsRoundDown() {
+		Image image = solid(13, 7, 10, 20, 30, 255);
+		Image[] levels = MipmapGenerator.generate(image, 32);
+
+		assertSame(image, levels[0]);
+		int[][] sizes = { { 13, 7 }, { 6, 3 }, { 3, 1 }, { 1, 1 } };
+		assertEquals(sizes.length, levels.length);
+		for (int i = 0; i < sizes.length; i++) {
+			assertEquals(sizes[i][0], levels[i].getWidth(), "width of level " + i);
+			assertEquals(sizes[i][1], levels[i].getHeight(), "height of level " + i);
+		}
+
+		/* A solid color is the same color at every level */
+		for (Image level : levels) {
+			assertArrayEquals(solid(level.getWidth(), level.getHeight(), 10, 20, 30, 255).getPixels(),
+					level.getPixels());
+		}
+	}
+
+	@Test
+	public void generateStopsAtTheMostLevelsAskedFor() {
+		Image image = solid(64, 64, 0, 0, 0, 255);
+		assertEquals(3, MipmapGenerator.generate(image, 3).length);
+		assertEquals(1, MipmapGenerator.generate(image, 0).length);
+		assertEquals(7, MipmapGenerator.generate(image, 100).length);
+	}
+
+	@Test
+	public void theLastOddRowAndColumnAreDropped() {
+		Image image = solid(3, 3, 0, 0, 0, 255);
+		for (int i = 0; i < 3; i++) {
+			set(image, 2, i, 255, 255, 255, 255);
+			set(image, i, 2, 255, 255, 255, 255);
+		}
+
+		Image level = MipmapGenerator.downsample(image);
+		assertEquals(1, level.getWidth());
+		assertEquals(1, level.getHeight());
+		assertPixel(level, 0, 0, 0, 0, 0, 255);
+	}
+
+	@Test
+	public void aOnePixelWideImageIsAveragedWithItself() {
+		Image image = solid(1, 4, 0, 0, 0, 255);
+		set(image, 0, 0, 255, 255, 255, 255);
+		set(image, 0, 1, 255, 255, 255, 255);
+
+		Image level = MipmapGenerator.downsample(image);
+		assertEquals(1, level.getWidth());
+		assertEquals(2, level.getHeight());
+		assertPixel(level, 0, 0, 255, 255, 255, 255);
+		assertPixel(level, 0, 1, 0, 0, 0, 255);
+	}
+
+	@Test
+	public void colorsAreAveragedInLinearLight() {
+		Image image = checkerboard(255, 255, 0, 255);
+
+		/* Half of white's light is sRGB 188, where averaging the stored values would give 128 */
+		Image level = MipmapGenerator.downsample(image);
+		assertPixel(level, 0, 0, 188, 188, 188, 255);
+	}
+
+	@Test
+	public void colorsAreWeightedByAlpha() {
+		/* One opaque red pixel among transparent black keeps its color, and only its alpha is diluted */
+		Image image = solid(2, 2, 0, 0, 0, 0);
+		set(image, 1, 1, 255, 0, 0, 255);
+		assertPixel(MipmapGenerator.downsample(image), 0, 0, 255, 0, 0, 64);
+
+		/* White at full alpha and black at a third of it is three quarters of white's light */
+		image = solid(2, 2, 0, 0, 0, 0);
+		set(image, 0, 0, 255, 255, 255, 255);
+		set(image, 1, 0, 0, 0, 0, 85);
+		int expected = (int) Math.round((1.055 * Math.pow(0.75, 1 / 2.4) - 0.055) * 255);
+		assertPixel(MipmapGenerator.downsample(image), 0, 0, expected, expected, expected, 85);
+	}
+
+	@Test
+	public void fullyTransparentPixelsAreWeightedEvenly() {
+		Image level = MipmapGenerator.downsample(checkerboard(255, 0, 0, 0));
+		assertPixel(level, 0, 0, 188, 188, 188, 0);
+	}
+
+	@Test
+	public void everyOpaqueGrayRoundTrips() {
+		for (int gray = 0; gray < 256; gray++) {
+			Image level = MipmapGenerator.downsample(solid(2, 2, gray, gray, gray, 255));
+			assertPixel(level, 0, 0, gray, gray, gray, 255);
+		}
+	}
+
+	/* A 2x2 image with the first color on one diagonal and the second on the other */
+	private static Image checkerboard(int first, int firstAlpha, int second, int secondAlpha) {
+		Image image = solid(2, 2, first, first, first, firstAlpha);
+		set(image, 1, 0, second, second, second, secondAlpha);
+		set(image, 0, 1, second, second, second, secondAlpha);
+		return image;
+	}
+
+	private static Image solid(int width, int height, int red, int green, int blue, int alpha) {
+		Image image = new Image(width, height);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				set(image, x, y, red, green, blue, alpha);
+			}
+		}
+		return image;
+	}
+
+	private static void set(Image image, int x, int y, int red, int green, int blue, int alpha) {
+		int index = (y * image.getWidth() + x) * 4;
+		byte[] pixels = image.getPixels();
+		pixels[index] = (byte) red;
+		pixels[index + 1] = (byte) green;
+		pixels[index + 2] = (byte) blue;
+		pixels[index + 3] = (byte) alpha;
+	}
+
+	private static void assertPixel(Image image, int x, int y, int red, int green, int blue, int alpha) {
+		int index = (y * image.getWidth() + x) * 4;
+		byte[] pixels = image.getPixels();
+		assertArrayEquals(new int[] { red, green, blue, alpha }, new int[] { pixels[index] & 0xFF,
+				pixels[index + 1] & 0xFF, pixels[index + 2] & 0xFF, pixels[index + 3] & 0xFF },
+				"pixel (" + x + ", " + y + ")");
+	}
+}
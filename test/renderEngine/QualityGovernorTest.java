@@ -0,0 +1,159 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Drives a {@link renderEngine.QualityGovernor} with synthetic traces of frame
+ * times. Each trace models a machine whose CPU and GPU frame times follow from
+ * the governor's current settings, with seeded noise and the odd slow frame,
+ * and checks how the governor settles.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class QualityGovernorTest {
+
+	private static final long SEED = 20240601L;
+
+	/* 60 FPS */
+	private static final long TARGET_NS = 16666667L;
+
+	/* A minute of frames at the target */
+	private static final int TRACE_FRAMES = 3600;
+
+	/* Within five percent of the target, as the 90th percentile still holds the odd slow frame's noise */
+	private static final long SETTLED_NS = TARGET_NS * 105 / 100;
+
+	private static final long MS = 1000000L;
+
+	@Test
+	public void weakGpuLowersResolution() {
+		QualityGovernor governor = new QualityGovernor(TARGET_NS);
+		governor.setSwapModes(true, true);
+		Machine machine = new Machine();
+		machine.cpuMs = 5;
+		machine.gpuMs = 2;
+		machine.gpuPixelsMs = 28;
+
+		long frameNs = run(governor, machine, TRACE_FRAMES);
+		assertTrue(frameNs <= SETTLED_NS, "not brought under the target, at " + frameNs + " ns");
+		assertTrue(governor.getResolutionScale() < 1f);
+		assertEquals(QualityGovernor.SWAP_ADAPTIVE, governor.getSwapInterval());
+		assertTrue(governor.getChangeCount() <= 8, governor.getChangeCount() + " changes to settle");
+	}
+
+	@Test
+	public void fastMachineIsLeftAlone() {
+		QualityGovernor governor = new QualityGovernor(TARGET_NS);
+		governor.setDrawDistanceRange(4, 12);
+		Machine machine = new Machine();
+		machine.cpuMs = 3;
+		machine.gpuMs = 1;
+		machine.gpuPixelsMs = 3;
+
+		run(governor, machine, TRACE_FRAMES);
+		assertEquals(0, governor.getChangeCount());
+	}
+
+	@Test
+	public void loadThatComesAndGoesIsFollowed() {
+		QualityGovernor governor = new QualityGovernor(TARGET_NS);
+		Machine machine = new Machine();
+		machine.cpuMs = 4;
+		machine.gpuMs = 1;
+		machine.gpuPixelsMs = 6;
+		machine.gpuGeometryMs = 2;
+
+		run(governor, machine, TRACE_FRAMES / 3);
+		assertEquals(0, governor.getStepsDown(), "quality lowered before the load started");
+
+		/* Three times the work, and five windows to get back under the target */
+		machine.load = 3;
+		long frameNs = run(governor, machine, 300);
+		assertTrue(frameNs <= SETTLED_NS, "not brought under the target, at " + frameNs + " ns");
+
+		run(governor, machine, TRACE_FRAMES / 3);
+		machine.load = 1;
+		run(governor, machine, TRACE_FRAMES);
+		assertEquals(0, governor.getStepsDown(), "quality not raised back once the load was gone");
+	}
+
+	@Test
+	public void borderlineMachineBacksOff() {
+		/* Just over the target at three quarters resolution, and well under it a step lower */
+		QualityGovernor governor = new QualityGovernor(TARGET_NS);
+		governor.setLodBiasRange(1f, 1f);
+		Machine machine = new Machine();
+		machine.cpuMs = 4;
+		machine.gpuPixelsMs = 30.4;
+
+		run(governor, machine, TRACE_FRAMES * 5);
+
+		/* Without backing off, a raise and a drop would be tried every four windows, or 150 changes */
+		assertTrue(governor.getChangeCount() > 3, "never tried raising quality");
+		assertTrue(governor.getChangeCount() <= 20, governor.getChangeCount() + " changes in five minutes");
+		assertTrue(governor.getResolutionScale() <= 0.75f);
+	}
+
+	@Test
+	public void slowCpuShortensDrawDistance() {
+		QualityGovernor governor = new QualityGovernor(TARGET_NS);
+		governor.setDrawDistanceRange(4, 12);
+		Machine machine = new Machine();
+		machine.cpuMs = 4;
+		machine.cpuPerDistanceMs = 1.5;
+		machine.gpuMs = 2;
+		machine.gpuPixelsMs = 3;
+
+		long frameNs = run(governor, machine, TRACE_FRAMES);
+		assertTrue(frameNs <= SETTLED_NS, "not brought under the target, at " + frameNs + " ns");
+		assertTrue(governor.getDrawDistance() < 12);
+		assertEquals(1f, governor.getResolutionScale(), "resolution lowered for a slow CPU");
+	}
+
+	/* Runs frames through the governor, returning the 90th percentile frame time of the last window */
+	private static long run(QualityGovernor governor, Machine machine, int frames) {
+		for (int i = 0; i < frames; i++) {
+			governor.recordFrame(machine.cpuNs(governor), machine.gpuNs(governor));
+		}
+		return Math.max(governor.getCpuNs(), governor.getGpuNs());
+	}
+
+	/* How long a modeled machine takes on each frame, for the governor's current settings */
+	private static class Machine {
+
+		/* CPU time that is always spent, and spent per unit of draw distance */
+		double cpuMs = 0, cpuPerDistanceMs = 0;
+
+		/* GPU time that is always spent, spent shading a full resolution frame, and spent on geometry */
+		double gpuMs = 0, gpuPixelsMs = 0, gpuGeometryMs = 0;
+
+		/* Scales every time, such as for a busy scene */
+		double load = 1;
+
+		private final Random random = new Random(SEED);
+
+		long cpuNs(QualityGovernor governor) {
+			return noisy(cpuMs + cpuPerDistanceMs * governor.getDrawDistance());
+		}
+
+		long gpuNs(QualityGovernor governor) {
+			float scale = governor.getResolutionScale();
+			return noisy(gpuMs + gpuPixelsMs * scale * scale + gpuGeometryMs / governor.getLodBias());
+		}
+
+		/* A few percent of noise, and one frame in fifty twice as slow */
+		private long noisy(double ms) {
+			double factor = 1 + random.nextGaussian() * 0.03;
+			if (random.nextInt(50) == 0) {
+				factor *= 2;
+			}
+			return (long) (ms * load * factor * MS);
+		}
+	}
+}
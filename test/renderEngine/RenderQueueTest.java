@@ -0,0 +1,265 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.opengl.GL15;
+
+import math.TransformBatch;
+
+/**
+ * Flushes a {@link renderEngine.RenderQueue} onto a
+ * {@link renderEngine.RecordingRenderDevice} that also logs which VAO each
+ * draw was made with, and reads back the model matrix of every instance from
+ * wherever the instance attribute lists were pointed.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class RenderQueueTest {
+
+	/* Logs the bound VAO and the instance matrices, at every draw */
+	private static class DrawLog extends RecordingRenderDevice {
+		private final List<Integer> vaoIds = new ArrayList<Integer>();
+		private final List<List<float[]>> matrices = new ArrayList<List<float[]>>();
+
+		/* The instance divisor of each attribute list, by VAO */
+		private final Map<Integer, Map<Integer, Integer>> divisors = new HashMap<Integer, Map<Integer, Integer>>();
+
+		private int vaoId = 0, arrayBufferId = 0, instanceBufferId = 0;
+		private long instanceOffset = 0;
+
+		private DrawLog(boolean bufferStorage) {
+			super(bufferStorage);
+		}
+
+		@Override
+		public void bindVertexArray(int vaoId) {
+			super.bindVertexArray(vaoId);
+			this.vaoId = vaoId;
+		}
+
+		@Override
+		public void bindBuffer(int target, int bufferId) {
+			super.bindBuffer(target, bufferId);
+			if (target == GL15.GL_ARRAY_BUFFER) {
+				arrayBufferId = bufferId;
+			}
+		}
+
+		@Override
+		public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long offset) {
+			super.vertexAttribPointer(index, size, type, normalized, stride, offset);
+			if (index == RenderQueue.INSTANCE_MATRIX_ATTRIBUTE) {
+				assertEquals(64, stride);
+				instanceBufferId = arrayBufferId;
+				instanceOffset = offset;
+			}
+		}
+
+		@Override
+		public void vertexAttribDivisor(int index, int divisor) {
+			super.vertexAttribDivisor(index, divisor);
+			divisors.computeIfAbsent(vaoId, vao -> new HashMap<Integer, Integer>()).put(index, divisor);
+		}
+
+		@Override
+		public void drawElementsInstanced(int mode, int count, int type, long offset, int instances) {
+			super.drawElementsInstanced(mode, count, type, offset, instances);
+			vaoIds.add(vaoId);
+
+			List<float[]> drawn = new ArrayList<float[]>();
+			ByteBuffer storage = getBufferStorage(instanceBufferId);
+			if (storage != null) {
+				for (int i = 0; i < instances; i++) {
+					float[] matrix = new float[16];
+					for (int element = 0; element < 16; element++) {
+						matrix[element] = storage.getFloat((int) instanceOffset + i * 64 + element * Float.BYTES);
+					}
+					drawn.add(matrix);
+				}
+			}
+			matrices.add(drawn);
+		}
+	}
+
+	private DrawLog device = null;
+
+	private RenderQueue queue = null;
+
+	private RawModel first = null, second = null;
+
+	@BeforeEach
+	public void setUp() {
+		setUp(new DrawLog(true));
+	}
+
+	private void setUp(DrawLog device) {
+		this.device = device;
+		queue = new RenderQueue(device);
+
+		ModelLoader modelLoader = new ModelLoader(device);
+		first = modelLoader.loadToVAO(new float[] { 0, 0, 0, 1, 0, 0, 0, 1, 0 }, new int[] { 0, 1, 2 });
+		second = modelLoader.loadToVAO(new float[] { 0, 0, 0, 1, 0, 0, 0, 1, 0 }, new int[] { 0, 2, 1 });
+		device.resetCounters();
+	}
+
+	@Test
+	public void repeatedModelIsOneInstancedDraw() {
+		queue.submit(first, translation(1), 0);
+		queue.submit(first, translation(2), 0);
+		queue.submit(first, translation(3), 0);
+		queue.flush();
+
+		assertEquals(1, device.getDrawCalls());
+		assertEquals(3, device.getInstancesDrawn());
+		assertEquals(0, device.getUniformUploads());
+		assertEquals(1, queue.getDrawCalls());
+		assertEquals(3, queue.getInstancesDrawn());
+		assertEquals(1, queue.getStateChanges());
+		assertEquals(2, queue.getStateChangesAvoided());
+
+		List<float[]> drawn = device.matrices.get(0);
+		for (int i = 0; i < 3; i++) {
+			assertArrayEquals(translation(i + 1), drawn.get(i));
+		}
+	}
+
+	@Test
+	public void submissionsAreSortedByStateAndKeepTheirOrderWithin() {
+		queue.submit(second, translation(0), 0);
+		queue.submit(first, translation(1), 0);
+		queue.submit(second, translation(2), 0);
+		queue.submit(first, translation(3), 0);
+		queue.flush();
+
+		assertEquals(2, queue.getStateChanges());
+		assertEquals(2, queue.getDrawCalls());
+		assertEquals(4, device.getInstancesDrawn());
+
+		/* The first model was loaded first, so has the lower VAO Id and is drawn first */
+		assertEquals(List.of(first.getVaoId(), second.getVaoId()), device.vaoIds);
+		assertArrayEquals(translation(1), device.matrices.get(0).get(0));
+		assertArrayEquals(translation(3), device.matrices.get(0).get(1));
+		assertArrayEquals(translation(0), device.matrices.get(1).get(0));
+		assertArrayEquals(translation(2), device.matrices.get(1).get(1));
+
+		/* Each model's VAO reads the four matrix columns once per instance */
+		for (RawModel model : new RawModel[] { first, second }) {
+			for (int column = 0; column < 4; column++) {
+				assertEquals(1,
+						device.divisors.get(model.getVaoId()).get(RenderQueue.INSTANCE_MATRIX_ATTRIBUTE + column));
+			}
+		}
+	}
+
+	@Test
+	public void matricesAreCopiedAndReadFromTheirOffset() {
+		float[] matrices = new float[32];
+		System.arraycopy(translation(5), 0, matrices, 16, 16);
+		queue.submit(first, matrices, 16);
+
+		/* Reusing the array at once does not change what was submitted */
+		System.arraycopy(translation(6), 0, matrices, 16, 16);
+		queue.submit(first);
+		queue.flush();
+
+		assertEquals(1, device.getDrawCalls());
+		assertArrayEquals(translation(5), device.matrices.get(0).get(0));
+		assertArrayEquals(translation(0), device.matrices.get(0).get(1));
+	}
+
+	@Test
+	public void batchRangesAreWrittenFromTheBatch() {
+		TransformBatch batch = new TransformBatch(8);
+		for (int i = 0; i < 5; i++) {
+			batch.setPosition(batch.add(), 10 + i, 0, 0);
+		}
+		batch.update();
+
+		queue.submit(first, batch, 1, 4);
+		queue.submit(first, translation(9), 0);
+		queue.submit(first, batch, 2, 2);
+		queue.flush();
+
+		assertEquals(1, device.getDrawCalls());
+		assertEquals(4, device.getInstancesDrawn());
+		List<float[]> drawn = device.matrices.get(0);
+		for (int i = 0; i < 3; i++) {
+			assertArrayEquals(translation(11 + i), drawn.get(i));
+		}
+		assertArrayEquals(translation(9), drawn.get(3));
+
+		assertThrows(IndexOutOfBoundsException.class, () -> queue.submit(first, batch, 3, 6));
+		assertThrows(IndexOutOfBoundsException.class, () -> queue.submit(first, batch, 3, 2));
+	}
+
+	@Test
+	public void longRunsAreSplitIntoFullDraws() {
+		queue = new RenderQueue(device, 4, 8);
+		for (int i = 0; i < 10; i++) {
+			queue.submit(first, translation(i), 0);
+		}
+		queue.flush();
+
+		assertEquals(3, queue.getDrawCalls());
+		assertEquals(10, queue.getInstancesDrawn());
+		int instance = 0;
+		for (List<float[]> drawn : device.matrices) {
+			assertEquals(instance < 8 ? 4 : 2, drawn.size());
+			for (float[] matrix : drawn) {
+				assertArrayEquals(translation(instance++), matrix);
+			}
+		}
+	}
+
+	@Test
+	public void orphaningDrawsTheSame() {
+		setUp(new DrawLog(false));
+		queue.submit(first, translation(1), 0);
+		queue.submit(first, translation(2), 0);
+		queue.flush();
+
+		assertEquals(1, device.getDrawCalls());
+		assertEquals(2, device.getInstancesDrawn());
+		assertEquals(2 * 64, device.getBytesUploaded());
+	}
+
+	@Test
+	public void growsAndEmptiesBetweenFramesWithoutWaiting() {
+		for (int frame = 0; frame < 10; frame++) {
+			for (int i = 0; i < 200; i++) {
+				queue.submit(first, translation(i), 0);
+			}
+			queue.flush();
+			device.endFrame();
+
+			assertEquals(1, queue.getDrawCalls());
+			assertEquals(200, queue.getInstancesDrawn());
+		}
+		assertArrayEquals(translation(199), device.matrices.get(9).get(199));
+		assertEquals(0, device.getSyncStalls());
+
+		device.resetCounters();
+		queue.flush();
+		assertEquals(0, device.getDrawCalls());
+		assertEquals(0, queue.getDrawCalls());
+
+		queue.cleanUp();
+		assertEquals(2, device.getVertexArrayCount());
+	}
+
+	/* A column-major translation along X */
+	private static float[] translation(float x) {
+		return new float[] { 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, x, 0, 0, 1 };
+	}
+}
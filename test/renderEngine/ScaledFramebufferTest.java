@@ -0,0 +1,115 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.opengl.GL30;
+
+/**
+ * Draws through a {@link renderEngine.ScaledFramebuffer} on a
+ * {@link renderEngine.RecordingRenderDevice}, checking that nothing is bound
+ * or copied at full resolution, and that the framebuffer follows the scale and
+ * the size of the window's framebuffer.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class ScaledFramebufferTest {
+
+	private RecordingRenderDevice device = null;
+
+	@BeforeEach
+	public void setUp() {
+		device = new RecordingRenderDevice();
+	}
+
+	@Test
+	public void fullResolutionMakesNoCalls() {
+		ScaledFramebuffer framebuffer = new ScaledFramebuffer(device, 1280, 720);
+
+		framebuffer.bind();
+		framebuffer.blitToScreen();
+		assertEquals(0, device.getFramebufferCount());
+		assertEquals(0, device.getBlits());
+		assertEquals(0, device.getStateChanges());
+		assertEquals(0, device.getRedundantStateChanges());
+
+		/* The viewport is left as the window's */
+		assertEquals(0, device.getViewportWidth());
+		assertEquals(0, device.getViewportHeight());
+	}
+
+	@Test
+	public void lowerScalesDrawToACompleteFramebuffer() {
+		ScaledFramebuffer framebuffer = new ScaledFramebuffer(device, 1280, 720);
+
+		framebuffer.setScale(0.5f);
+		framebuffer.bind();
+		assertNotEquals(0, device.getDrawFramebufferId());
+		assertEquals(640, device.getViewportWidth());
+		assertEquals(360, device.getViewportHeight());
+		assertEquals(640L * 360 * 8, device.getRenderbufferBytes());
+		assertEquals(GL30.GL_FRAMEBUFFER_COMPLETE, device.checkFramebufferStatus(GL30.GL_FRAMEBUFFER));
+
+		framebuffer.blitToScreen();
+		assertEquals(1, device.getBlits());
+		assertEquals(0, device.getDrawFramebufferId());
+		assertEquals(1280, device.getViewportWidth());
+		assertEquals(720, device.getViewportHeight());
+	}
+
+	@Test
+	public void fullResolutionAndCleanUpFreeTheImages() {
+		ScaledFramebuffer framebuffer = new ScaledFramebuffer(device, 1280, 720);
+
+		framebuffer.setScale(0.5f);
+		framebuffer.setScale(1f);
+		assertEquals(0, device.getFramebufferCount());
+		assertEquals(0, device.getRenderbufferBytes());
+
+		framebuffer.setScale(0.75f);
+		framebuffer.cleanUp();
+		assertEquals(0, device.getFramebufferCount());
+		assertEquals(0, device.getRenderbufferBytes());
+		assertEquals(1f, framebuffer.getScale());
+	}
+
+	@Test
+	public void resizingKeepsTheScale() {
+		/* Created at the size in screen coordinates, then moved to a display with two pixels to each */
+		ScaledFramebuffer framebuffer = new ScaledFramebuffer(device, 1280, 720);
+		framebuffer.setScale(0.5f);
+
+		framebuffer.setWindowSize(2560, 1440);
+		assertEquals(1280, framebuffer.getWidth());
+		assertEquals(720, framebuffer.getHeight());
+		assertEquals(0.5f, framebuffer.getScale());
+		assertEquals(1, device.getFramebufferCount());
+		assertEquals(1280L * 720 * 8, device.getRenderbufferBytes());
+
+		framebuffer.bind();
+		assertEquals(1280, device.getViewportWidth());
+		framebuffer.blitToScreen();
+		assertEquals(2560, device.getViewportWidth());
+		assertEquals(1440, device.getViewportHeight());
+	}
+
+	@Test
+	public void resizingAtFullResolutionOnlySetsTheViewport() {
+		ScaledFramebuffer framebuffer = new ScaledFramebuffer(device, 1280, 720);
+
+		framebuffer.setWindowSize(2560, 1440);
+		assertEquals(0, device.getFramebufferCount());
+		assertEquals(2560, device.getViewportWidth());
+		assertEquals(1440, device.getViewportHeight());
+
+		/* An unchanged size, and the zero size of a minimized window, are ignored */
+		device.viewport(0, 0, 1, 1);
+		framebuffer.setWindowSize(2560, 1440);
+		framebuffer.setWindowSize(0, 0);
+		assertEquals(1, device.getViewportWidth());
+		assertEquals(2560, framebuffer.getWidth());
+	}
+}
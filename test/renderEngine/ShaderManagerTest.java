@@ -0,0 +1,203 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Compiles, caches and uses programs through a
+ * {@link renderEngine.ShaderManager} on a
+ * {@link renderEngine.RecordingRenderDevice}, whose stand-in compiler finds
+ * the declarations in the shader sources.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class ShaderManagerTest {
+
+	private static final String VERTEX_SHADER = "#version 130\n" + "in vec3 position;\n"
+			+ "in vec2 textureCoords;\n" + "in vec3 offset;\n" + "uniform mat4 modelMatrix;\n"
+			+ "out vec2 pass_textureCoords;\n" + "void main() {\n"
+			+ "	gl_Position = modelMatrix * vec4(position + offset, 1.0);\n"
+			+ "	pass_textureCoords = textureCoords;\n" + "}\n";
+
+	private static final String FRAGMENT_SHADER = "#version 130\n" + "in vec2 pass_textureCoords;\n"
+			+ "uniform sampler2D atlas;\n" + "uniform vec4 tints[4];\n" + "uniform mat4 modelMatrix;\n"
+			+ "void main() {\n" + "	gl_FragColor = texture(atlas, pass_textureCoords) * tints[0];\n" + "}\n";
+
+	/* Where the driver's binary format is written in a cache file, after the magic, version and hash */
+	private static final int FORMAT_OFFSET = 2 * Integer.BYTES + 32;
+
+	private RecordingRenderDevice device = null;
+
+	@TempDir
+	public Path cacheDirectory;
+
+	@BeforeEach
+	public void setUp() {
+		device = new RecordingRenderDevice();
+	}
+
+	@Test
+	public void readsEveryLocationOnceLinked() {
+		ShaderManager shaders = new ShaderManager(device, null);
+		assertFalse(shaders.isCaching());
+
+		ShaderProgram program = shaders.load("textured", VERTEX_SHADER, FRAGMENT_SHADER);
+		assertFalse(program.isFromCache());
+
+		/* A uniform declared by both shaders is one uniform */
+		assertEquals(3, program.getUniformCount());
+		assertEquals(0, program.getUniformLocation("modelMatrix"));
+		assertEquals(1, program.getUniformLocation("atlas"));
+		assertEquals(2, program.getUniformLocation("tints"));
+		assertEquals(2, program.getUniformLocation("tints[0]"));
+		assertEquals(-1, program.getUniformLocation("tints[1]"));
+		assertEquals(-1, program.getUniformLocation("missing"));
+
+		/* The reserved names take RawModel's attribute lists, and the rest fill in around them */
+		assertEquals(3, program.getAttributeCount());
+		assertEquals(0, program.getAttributeLocation("position"));
+		assertEquals(3, program.getAttributeLocation("textureCoords"));
+		assertEquals(4, program.getAttributeLocation("offset"));
+
+		/* The shaders are deleted as soon as the program is linked */
+		assertEquals(0, device.getShaderCount());
+		assertEquals(1, device.getProgramCount());
+		assertEquals(2, device.getShaderCompiles());
+	}
+
+	@Test
+	public void compileAndLinkErrorsLeaveNothingBehind() {
+		ShaderManager shaders = new ShaderManager(device, null);
+		String noMain = "#version 130\n" + "uniform float time;\n";
+
+		IllegalStateException vertexError = assertThrows(IllegalStateException.class,
+				() -> shaders.load("broken", noMain, FRAGMENT_SHADER));
+		assertTrue(vertexError.getMessage().contains("vertex shader of broken"), vertexError.getMessage());
+
+		IllegalStateException fragmentError = assertThrows(IllegalStateException.class,
+				() -> shaders.load("broken", VERTEX_SHADER, noMain));
+		assertTrue(fragmentError.getMessage().contains("fragment shader of broken"), fragmentError.getMessage());
+
+		assertEquals(0, device.getShaderCount());
+		assertEquals(0, device.getProgramCount());
+	}
+
+	@Test
+	public void cachedProgramsSkipCompilation() {
+		ShaderManager first = new ShaderManager(device, cacheDirectory);
+		assertTrue(first.isCaching());
+		ShaderProgram compiled = first.load("textured", VERTEX_SHADER, FRAGMENT_SHADER);
+		assertEquals(0, first.getCacheHits());
+		assertEquals(1, first.getCacheMisses());
+		first.cleanUp();
+
+		device.resetCounters();
+		ShaderManager second = new ShaderManager(device, cacheDirectory);
+		ShaderProgram cached = second.load("textured", VERTEX_SHADER, FRAGMENT_SHADER);
+		assertTrue(cached.isFromCache());
+		assertEquals(1, second.getCacheHits());
+		assertEquals(0, second.getCacheMisses());
+		assertEquals(0, device.getShaderCompiles());
+
+		/* The binary keeps the attribute bindings, and the uniforms come out the same */
+		for (String uniform : new String[] { "modelMatrix", "atlas", "tints" }) {
+			assertEquals(compiled.getUniformLocation(uniform), cached.getUniformLocation(uniform), uniform);
+		}
+		for (String attribute : new String[] { "position", "textureCoords", "offset" }) {
+			assertEquals(compiled.getAttributeLocation(attribute), cached.getAttributeLocation(attribute), attribute);
+		}
+	}
+
+	@Test
+	public void editedSourcesMissTheCache() {
+		new ShaderManager(device, cacheDirectory).load("textured", VERTEX_SHADER, FRAGMENT_SHADER);
+
+		ShaderManager shaders = new ShaderManager(device, cacheDirectory);
+		ShaderProgram edited = shaders.load("textured", VERTEX_SHADER,
+				FRAGMENT_SHADER.replace("tints[0]", "tints[1]"));
+		assertFalse(edited.isFromCache());
+		assertEquals(1, shaders.getCacheMisses());
+	}
+
+	@Test
+	public void rejectedBinariesAreCompiledAndReplaced() throws IOException {
+		new ShaderManager(device, cacheDirectory).load("textured", VERTEX_SHADER, FRAGMENT_SHADER);
+
+		Path cacheFile;
+		try (Stream<Path> files = Files.list(cacheDirectory)) {
+			cacheFile = files.filter(file -> file.toString().endsWith(ShaderManager.EXTENSION)).findFirst()
+					.orElseThrow();
+		}
+
+		/* A binary format the driver does not know, as after a driver update that kept its version string */
+		byte[] bytes = Files.readAllBytes(cacheFile);
+		ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(FORMAT_OFFSET,
+				RecordingRenderDevice.PROGRAM_BINARY_FORMAT + 1);
+		Files.write(cacheFile, bytes);
+
+		ShaderManager rejected = new ShaderManager(device, cacheDirectory);
+		assertFalse(rejected.load("textured", VERTEX_SHADER, FRAGMENT_SHADER).isFromCache());
+		assertEquals(1, rejected.getCacheMisses());
+
+		/* The program the binary was loaded into is deleted, leaving the first and the recompiled one */
+		assertEquals(2, device.getProgramCount());
+
+		ShaderManager replaced = new ShaderManager(device, cacheDirectory);
+		assertTrue(replaced.load("textured", VERTEX_SHADER, FRAGMENT_SHADER).isFromCache());
+	}
+
+	@Test
+	public void uniformsGoThroughTheDeviceAndMissingOnesAreSkipped() {
+		ShaderManager shaders = new ShaderManager(device, null);
+		ShaderProgram program = shaders.load("textured", VERTEX_SHADER, FRAGMENT_SHADER);
+		device.resetCounters();
+
+		shaders.use(program);
+		program.setInt(program.getUniformLocation("atlas"), 0);
+		program.setVector4(program.getUniformLocation("tints[0]"), 1, 1, 1, 1);
+		program.setMatrix4(program.getUniformLocation("modelMatrix"), new float[16]);
+		program.setFloat(program.getUniformLocation("missing"), 1);
+		program.setVector2(-1, 0, 0);
+		program.setVector3(-1, 0, 0, 0);
+
+		assertEquals(3, device.getUniformUploads());
+		assertEquals(program.getProgramId(), device.getProgramInUse());
+	}
+
+	@Test
+	public void useSkipsTheProgramAlreadyInUse() {
+		ShaderManager shaders = new ShaderManager(device, null);
+		ShaderProgram first = shaders.load("first", VERTEX_SHADER, FRAGMENT_SHADER);
+		ShaderProgram second = shaders.load("second", VERTEX_SHADER, FRAGMENT_SHADER);
+		device.resetCounters();
+
+		shaders.use(first);
+		shaders.use(first);
+		shaders.use(second);
+		shaders.use(second);
+		assertEquals(2, device.getStateChanges());
+		assertEquals(0, device.getRedundantStateChanges());
+
+		/* Deleting the program in use puts none in use */
+		shaders.delete(second);
+		assertEquals(0, device.getProgramInUse());
+		assertEquals(1, device.getProgramCount());
+
+		shaders.cleanUp();
+		assertEquals(0, device.getProgramCount());
+	}
+}
@@ -0,0 +1,177 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Adds, moves and removes boxes in a {@link renderEngine.SpatialGrid}, and
+ * culls it against orthographic frustums, whose planes are exactly the sides
+ * of a box, so that what should be seen is plain. The parallel cull is checked
+ * against testing every box one by one.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class SpatialGridTest {
+
+	private static final long SEED = 20240917L;
+
+	private static final float CELL_SIZE = 4;
+
+	private final Frustum frustum = new Frustum();
+
+	@Test
+	public void boxesGoInTheCellHoldingTheirCenter() {
+		SpatialGrid grid = new SpatialGrid(CELL_SIZE);
+		int first = grid.add(0.5f, 0.5f, 0.5f, 1.5f, 1.5f, 1.5f);
+		int second = grid.add(2, 2, 2, 3.5f, 3.5f, 3.5f);
+
+		/* One cell for both, beside the cell for unbounded boxes */
+		assertEquals(2, grid.getCellCount());
+		assertEquals(2, grid.size());
+
+		/* Centered in the next cell along, however far it reaches back */
+		int third = grid.add(-1, 0, 0, 11, 1, 1);
+		assertEquals(3, grid.getCellCount());
+		assertEquals(3, grid.size());
+
+		assertArrayEquals(new int[] { first, second, third }, cull(grid, 0, 4));
+		assertArrayEquals(new int[] { third }, cull(grid, 8, 12));
+		assertArrayEquals(new int[0], cull(grid, 12, 16));
+	}
+
+	@Test
+	public void largeBoxIsSeenFromOutsideItsCell() {
+		SpatialGrid grid = new SpatialGrid(CELL_SIZE);
+
+		/* Centered at X = 6, so in the cell from 4 to 8, but reaching back to 0.5 */
+		int wide = grid.add(0.5f, 0, 0, 11.5f, 1, 1);
+		grid.add(5, 0, 0, 6, 1, 1);
+
+		/* The cell's loose bounds take in the box, so its end is found from a frustum the cell is not in */
+		assertArrayEquals(new int[] { wide }, cull(grid, 0, 1));
+		assertArrayEquals(new int[0], cull(grid, -2, 0.4f));
+	}
+
+	@Test
+	public void movedBoxIsFoundWhereItWent() {
+		SpatialGrid grid = new SpatialGrid(CELL_SIZE);
+		int box = grid.add(1, 1, 1, 2, 2, 2);
+		int other = grid.add(2, 2, 2, 3, 3, 3);
+
+		/* Within its cell, no new cell is made */
+		grid.update(box, 0.5f, 0.5f, 0.5f, 1.5f, 1.5f, 1.5f);
+		assertEquals(2, grid.getCellCount());
+		assertArrayEquals(new int[] { box }, cull(grid, 0, 1));
+
+		grid.update(box, new Bounds(-0.5f, -0.5f, -0.5f, 0.5f, 0.5f, 0.5f), 20, 1, 1);
+		assertEquals(3, grid.getCellCount());
+		assertArrayEquals(new int[] { other }, cull(grid, 0, 4));
+		assertArrayEquals(new int[] { box }, cull(grid, 16, 24));
+		assertEquals(2, grid.size());
+
+		/* And back again, into the cell it left */
+		grid.update(box, 1, 1, 1, 2, 2, 2);
+		assertEquals(3, grid.getCellCount());
+		assertArrayEquals(new int[] { box, other }, cull(grid, 0, 4));
+		assertArrayEquals(new int[0], cull(grid, 16, 24));
+	}
+
+	@Test
+	public void removedBoxIsNotFoundAndItsHandleIsReused() {
+		SpatialGrid grid = new SpatialGrid(CELL_SIZE);
+		int first = grid.add(1, 1, 1, 2, 2, 2);
+		int second = grid.add(2, 2, 2, 3, 3, 3);
+
+		grid.remove(first);
+		assertEquals(1, grid.size());
+		assertArrayEquals(new int[] { second }, cull(grid, 0, 4));
+		assertThrows(IllegalArgumentException.class, () -> grid.remove(first));
+		assertThrows(IllegalArgumentException.class, () -> grid.update(first, 1, 1, 1, 2, 2, 2));
+
+		assertEquals(first, grid.add(20, 1, 1, 21, 2, 2));
+		assertArrayEquals(new int[] { first }, cull(grid, 16, 24));
+	}
+
+	@Test
+	public void unboundedBoxesAreNeverCulled() {
+		SpatialGrid grid = new SpatialGrid(CELL_SIZE);
+		int sky = grid.add(Bounds.INFINITE, 0, 0, 0);
+		grid.add(1, 1, 1, 2, 2, 2);
+
+		assertArrayEquals(new int[] { sky }, cull(grid, 100, 104));
+	}
+
+	@Test
+	public void parallelCullMatchesTestingEveryBox() {
+		Random random = new Random(SEED);
+		SpatialGrid grid = new SpatialGrid(CELL_SIZE);
+		float[][] boxes = new float[5000][];
+		for (int i = 0; i < boxes.length; i++) {
+			boxes[i] = randomBox(random);
+			assertEquals(i, grid.add(boxes[i][0], boxes[i][1], boxes[i][2], boxes[i][3], boxes[i][4], boxes[i][5]));
+		}
+
+		/* Move a third and remove a tenth, so that cells have both grown and emptied */
+		for (int i = 0; i < boxes.length; i++) {
+			if (i % 10 == 0) {
+				grid.remove(i);
+				boxes[i] = null;
+			} else if (i % 3 == 0) {
+				boxes[i] = randomBox(random);
+				grid.update(i, boxes[i][0], boxes[i][1], boxes[i][2], boxes[i][3], boxes[i][4], boxes[i][5]);
+			}
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int trial = 0; trial < 20; trial++) {
+				float x = random.nextFloat() * 200 - 100, y = random.nextFloat() * 200 - 100,
+						size = 5 + random.nextFloat() * 60;
+				frustum.set(FrustumTest.orthographic(x, x + size, y, y + size * 0.75f, -100, 100));
+
+				int[] expected = new int[boxes.length];
+				int count = 0;
+				for (int i = 0; i < boxes.length; i++) {
+					if (boxes[i] != null && frustum.intersectsBox(boxes[i][0], boxes[i][1], boxes[i][2], boxes[i][3],
+							boxes[i][4], boxes[i][5])) {
+						expected[count++] = i;
+					}
+				}
+				expected = Arrays.copyOf(expected, count);
+
+				assertArrayEquals(expected, visible(grid, grid.cull(frustum, pool)));
+				assertArrayEquals(expected, visible(grid, grid.cull(frustum)));
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/* The handles of the boxes seen by a frustum over a range of X, and Y and Z from 0 to 4 */
+	private int[] cull(SpatialGrid grid, float fromX, float toX) {
+		frustum.set(FrustumTest.orthographic(fromX, toX, 0, 4, -4, 0));
+		return visible(grid, grid.cull(frustum));
+	}
+
+	/* Read after culling, as the cull may have replaced the array */
+	private static int[] visible(SpatialGrid grid, int count) {
+		int[] result = Arrays.copyOf(grid.getVisible(), count);
+		Arrays.sort(result);
+		return result;
+	}
+
+	/* Mostly small boxes, with the odd one spanning several cells, over 200 units square */
+	private static float[] randomBox(Random random) {
+		float x = random.nextFloat() * 200 - 100, y = random.nextFloat() * 200 - 100, z = random.nextFloat() * 20 - 10;
+		float size = random.nextInt(20) == 0 ? 10 + random.nextFloat() * 20 : 0.5f + random.nextFloat() * 2;
+		return new float[] { x, y, z, x + size, y + size, z + size };
+	}
+}
@@ -0,0 +1,102 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Draws frames of sprites through a {@link renderEngine.SpriteBatch} onto a
+ * {@link renderEngine.RecordingRenderDevice}, whose modeled GPU runs frames
+ * behind, checking that breaking batches costs draws but not stalls.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class SpriteBatchTest {
+
+	private static final int MAX_SPRITES = 256;
+
+	@Test
+	public void batchesBreakOnTextureChangesAndWhenFull() {
+		RecordingRenderDevice device = new RecordingRenderDevice();
+		SpriteBatch batch = new SpriteBatch(device, MAX_SPRITES, MAX_SPRITES * 2);
+
+		batch.begin();
+		for (int i = 0; i < MAX_SPRITES + 1; i++) {
+			batch.draw(1, 0, 0, 1, 1);
+		}
+		batch.draw(2, 0, 0, 1, 1);
+		batch.draw(1, 0, 0, 1, 1);
+		batch.end();
+
+		assertEquals(4, batch.getBatches());
+		assertEquals(MAX_SPRITES + 3, batch.getSprites());
+		assertEquals(4, device.getDrawCalls());
+		assertEquals((MAX_SPRITES + 3) * 6, device.getIndicesDrawn());
+		assertEquals(1, device.getFences());
+		batch.cleanUp();
+	}
+
+	@Test
+	public void manyTexturesAFrameNeverStall() {
+		RecordingRenderDevice device = new RecordingRenderDevice();
+		int spritesPerFrame = 1000;
+		SpriteBatch batch = new SpriteBatch(device, MAX_SPRITES, spritesPerFrame);
+
+		/* A texture change every few sprites, far more batches a frame than the old ring had regions */
+		for (int frame = 0; frame < 50; frame++) {
+			batch.begin();
+			for (int i = 0; i < spritesPerFrame; i++) {
+				batch.draw(1 + i / 5 % 8, i, 0, 1, 1);
+			}
+			batch.end();
+			device.endFrame();
+
+			assertEquals(spritesPerFrame / 5, batch.getBatches());
+		}
+
+		assertEquals(0, batch.getStalls());
+		assertEquals(0, device.getSyncStalls());
+		batch.cleanUp();
+	}
+
+	@Test
+	public void aBatchSizedForLessThanAFrameStalls() {
+		RecordingRenderDevice device = new RecordingRenderDevice();
+		SpriteBatch batch = new SpriteBatch(device, MAX_SPRITES);
+
+		for (int frame = 0; frame < 10; frame++) {
+			batch.begin();
+			for (int i = 0; i < MAX_SPRITES * 8; i++) {
+				batch.draw(1, i, 0, 1, 1);
+			}
+			batch.end();
+			device.endFrame();
+		}
+
+		assertTrue(batch.getStalls() > 0);
+		assertEquals(batch.getStalls(), device.getSyncStalls());
+		batch.cleanUp();
+	}
+
+	@Test
+	public void misuseIsRejected() {
+		RecordingRenderDevice device = new RecordingRenderDevice();
+		assertThrows(IllegalArgumentException.class, () -> new SpriteBatch(device, MAX_SPRITES, 0));
+
+		/* Sizes that would overflow are caught before anything is allocated */
+		assertThrows(ArithmeticException.class, () -> new SpriteBatch(device, MAX_SPRITES, Integer.MAX_VALUE / 2));
+		assertThrows(ArithmeticException.class, () -> new SpriteBatch(device, Integer.MAX_VALUE / 4 + 1, 1));
+		assertEquals(0, device.getBufferCount());
+
+		SpriteBatch batch = new SpriteBatch(device, MAX_SPRITES);
+		assertThrows(IllegalStateException.class, () -> batch.draw(1, 0, 0, 1, 1));
+		assertThrows(IllegalStateException.class, batch::end);
+		batch.begin();
+		assertThrows(IllegalStateException.class, batch::begin);
+		batch.end();
+		batch.cleanUp();
+	}
+}
@@ -0,0 +1,196 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.lwjgl.opengl.GL11;
+
+/**
+ * Streams vertices through a {@link renderEngine.StreamingBuffer} on a
+ * {@link renderEngine.RecordingRenderDevice} that also logs where each draw
+ * started and which fences were waited on. Unless a test ends the device's
+ * frames, its GPU never finishes any, so every wait on a fence stalls.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class StreamingBufferTest {
+
+	private static final VertexFormat FORMAT = new VertexFormat().add(0, 2, AttributeType.FLOAT);
+
+	private static final int MAX_VERTICES = 64;
+
+	/* Logs the first vertex of every draw, and every fence waited on, once per wait */
+	private static class DrawLog extends RecordingRenderDevice {
+		private final List<Integer> firstVertices = new ArrayList<Integer>();
+		private final List<Long> waitedFences = new ArrayList<Long>();
+
+		private DrawLog(boolean bufferStorage) {
+			super(bufferStorage);
+		}
+
+		@Override
+		public void drawArrays(int mode, int first, int count) {
+			super.drawArrays(mode, first, count);
+			firstVertices.add(first);
+		}
+
+		@Override
+		public int clientWaitSync(long sync, long timeoutNs) {
+			if (timeoutNs == 0) {
+				waitedFences.add(sync);
+			}
+			return super.clientWaitSync(sync, timeoutNs);
+		}
+	}
+
+	@Test
+	public void smallDrawsPackTogetherWithOneFenceAFrame() {
+		DrawLog device = new DrawLog(true);
+		StreamingBuffer stream = new StreamingBuffer(device, FORMAT, MAX_VERTICES);
+		assertEquals(MAX_VERTICES * StreamingBuffer.DEFAULT_FRAMES, stream.getCapacityVertices());
+
+		/* More draws in a frame than the ring holds draws of the maximum size */
+		for (int i = 0; i < 5; i++) {
+			assertEquals(3, drawVertices(stream, 3));
+		}
+		assertEquals(0, device.getFences());
+
+		stream.endFrame();
+		assertEquals(List.of(0, 3, 6, 9, 12), device.firstVertices);
+		assertEquals(1, device.getFences());
+		assertEquals(0, device.waitedFences.size());
+		assertEquals(0, stream.getStalls());
+
+		stream.cleanUp();
+	}
+
+	@Test
+	public void verticesLandWhereTheDrawSaysTheyStart() {
+		DrawLog device = new DrawLog(true);
+		StreamingBuffer stream = new StreamingBuffer(device, FORMAT, MAX_VERTICES);
+
+		drawVertices(stream, 5);
+		ByteBuffer vertices = stream.begin();
+		assertEquals(5 * FORMAT.getStride(), vertices.position());
+		assertEquals(MAX_VERTICES * FORMAT.getStride(), vertices.remaining());
+		vertices.putFloat(7f).putFloat(8f);
+		stream.draw(GL11.GL_POINTS);
+
+		assertEquals(7f, vertices.getFloat(5 * FORMAT.getStride()));
+		assertEquals(8f, vertices.getFloat(5 * FORMAT.getStride() + 4));
+		stream.cleanUp();
+	}
+
+	@Test
+	public void wrappingOnlyWaitsForTheFramesItOverwrites() {
+		DrawLog device = new DrawLog(true);
+		StreamingBuffer stream = new StreamingBuffer(device, FORMAT, MAX_VERTICES, MAX_VERTICES * 2);
+
+		/* Three frames of half a draw each fill three quarters of the ring */
+		for (int frame = 0; frame < 3; frame++) {
+			drawVertices(stream, MAX_VERTICES / 2);
+			stream.endFrame();
+		}
+		assertEquals(List.of(0, 32, 64), device.firstVertices);
+		assertEquals(0, device.waitedFences.size());
+
+		/* A whole draw no longer fits at the end, so the ring wraps over the first two frames only */
+		drawVertices(stream, 1);
+		assertEquals(0, device.firstVertices.get(3));
+		assertEquals(List.of(2L), device.waitedFences);
+		assertEquals(1, stream.getStalls());
+
+		/* The third frame's fence is still waited on before its space is written */
+		stream.endFrame();
+		drawVertices(stream, 1);
+		assertEquals(1, device.firstVertices.get(4));
+		assertEquals(List.of(2L, 3L), device.waitedFences);
+		assertEquals(2, stream.getStalls());
+		assertEquals(2, device.getSyncStalls());
+		stream.cleanUp();
+	}
+
+	@Test
+	public void aRingCoveringTheFramesInFlightNeverStalls() {
+		DrawLog device = new DrawLog(true);
+		/* The frames in flight and the current one, one draw's room ahead, and a draw skipped at the end */
+		int framesHeld = RecordingRenderDevice.DEFAULT_FRAMES_IN_FLIGHT + 3;
+		StreamingBuffer stream = new StreamingBuffer(device, FORMAT, MAX_VERTICES, MAX_VERTICES * framesHeld);
+
+		/* Many draws a frame, wrapping the ring every few frames */
+		for (int frame = 0; frame < 100; frame++) {
+			for (int i = 0; i < 4; i++) {
+				drawVertices(stream, MAX_VERTICES / 4);
+			}
+			stream.endFrame();
+			device.endFrame();
+		}
+
+		/* One a frame, plus one each time a frame wraps the ring, and never one a draw */
+		assertTrue(device.getFences() >= 100 && device.getFences() < 200, device.getFences() + " fences");
+		assertEquals(0, stream.getStalls());
+		assertEquals(0, device.getSyncStalls());
+		assertTrue(device.waitedFences.size() > 0);
+		stream.cleanUp();
+	}
+
+	@Test
+	public void wrappingFencesTheFrameSoFar() {
+		DrawLog device = new DrawLog(true);
+		StreamingBuffer stream = new StreamingBuffer(device, FORMAT, MAX_VERTICES, MAX_VERTICES);
+
+		/* One frame that draws more than the ring holds fences itself as it wraps */
+		drawVertices(stream, MAX_VERTICES);
+		drawVertices(stream, 1);
+		assertEquals(1, device.getFences());
+		assertEquals(List.of(1L), device.waitedFences);
+		assertEquals(1, stream.getStalls());
+		assertEquals(List.of(0, 0), device.firstVertices);
+		stream.cleanUp();
+	}
+
+	@Test
+	public void orphaningCopiesEachDraw() {
+		DrawLog device = new DrawLog(false);
+		StreamingBuffer stream = new StreamingBuffer(device, FORMAT, MAX_VERTICES);
+
+		drawVertices(stream, 3);
+		drawVertices(stream, 4);
+		stream.endFrame();
+
+		assertEquals(List.of(0, 0), device.firstVertices);
+		assertEquals(2, device.getOrphans());
+		assertEquals(0, device.getFences());
+		stream.cleanUp();
+	}
+
+	@Test
+	public void misuseIsRejected() {
+		RecordingRenderDevice device = new RecordingRenderDevice();
+		assertThrows(IllegalArgumentException.class,
+				() -> new StreamingBuffer(device, FORMAT, MAX_VERTICES, MAX_VERTICES - 1));
+
+		StreamingBuffer stream = new StreamingBuffer(device, FORMAT, MAX_VERTICES);
+		assertThrows(IllegalStateException.class, () -> stream.draw(GL11.GL_POINTS));
+		stream.begin();
+		assertThrows(IllegalStateException.class, stream::begin);
+		assertThrows(IllegalStateException.class, stream::endFrame);
+		stream.draw(GL11.GL_POINTS);
+		stream.cleanUp();
+	}
+
+	private static int drawVertices(StreamingBuffer stream, int count) {
+		ByteBuffer vertices = stream.begin();
+		for (int i = 0; i < count; i++) {
+			vertices.putFloat(i).putFloat(-i);
+		}
+		return stream.draw(GL11.GL_POINTS);
+	}
+}
@@ -0,0 +1,161 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Packs images into a {@link renderEngine.TextureAtlas}, checking that every
+ * image is copied where its region says, surrounded by a border of its own
+ * edge pixels, so that the mipmap levels the atlas allows never blend
+ * neighbouring images.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class TextureAtlasTest {
+
+	private static final int PAGE_SIZE = 256, BORDER = 4;
+
+	@Test
+	public void everyImageIsWhereItsRegionSays() {
+		List<String> names = new ArrayList<String>();
+		List<Image> images = randomImages(new Random(1), 200, names);
+		TextureAtlas atlas = TextureAtlas.pack(names, images, PAGE_SIZE, BORDER);
+
+		assertTrue(atlas.getPageCount() > 1, "the images should need more than one page");
+		for (int i = 0; i < names.size(); i++) {
+			AtlasRegion region = atlas.getRegion(names.get(i));
+			Image image = images.get(i), page = atlas.getPage(region.getPage());
+			assertEquals(image.getWidth(), region.getWidth());
+			assertEquals(image.getHeight(), region.getHeight());
+
+			/* Each image with its border starts on a multiple of the border */
+			assertEquals(0, (region.getX() - BORDER) % BORDER);
+			assertEquals(0, (region.getY() - BORDER) % BORDER);
+
+			for (int y = 0; y < image.getHeight(); y++) {
+				for (int x = 0; x < image.getWidth(); x++) {
+					assertEquals(pixel(image, x, y), pixel(page, region.getX() + x, region.getY() + y),
+							names.get(i) + " at (" + x + ", " + y + ")");
+				}
+			}
+		}
+	}
+
+	@Test
+	public void theBorderRepeatsTheEdgePixels() {
+		List<String> names = new ArrayList<String>();
+		List<Image> images = randomImages(new Random(2), 40, names);
+		TextureAtlas atlas = TextureAtlas.pack(names, images, PAGE_SIZE, BORDER);
+
+		for (int i = 0; i < names.size(); i++) {
+			AtlasRegion region = atlas.getRegion(names.get(i));
+			Image image = images.get(i), page = atlas.getPage(region.getPage());
+
+			/* Every border pixel, corners included, is the nearest pixel of the image */
+			for (int y = -BORDER; y < image.getHeight() + BORDER; y++) {
+				for (int x = -BORDER; x < image.getWidth() + BORDER; x++) {
+					int nearestX = Math.min(Math.max(x, 0), image.getWidth() - 1);
+					int nearestY = Math.min(Math.max(y, 0), image.getHeight() - 1);
+					assertEquals(pixel(image, nearestX, nearestY),
+							pixel(page, region.getX() + x, region.getY() + y),
+							names.get(i) + " at (" + x + ", " + y + ")");
+				}
+			}
+		}
+	}
+
+	@Test
+	public void allowedMipLevelsNeverBlendNeighbours() {
+		/* Solid images of different colors, packed tightly */
+		List<String> names = new ArrayList<String>();
+		List<Image> images = new ArrayList<Image>();
+		Random random = new Random(3);
+		for (int i = 0; i < 60; i++) {
+			Image image = new Image(1 + random.nextInt(40), 1 + random.nextInt(40));
+			int color = random.nextInt() | 0xFF;
+			for (int y = 0; y < image.getHeight(); y++) {
+				for (int x = 0; x < image.getWidth(); x++) {
+					setPixel(image, x, y, color);
+				}
+			}
+			names.add("solid" + i);
+			images.add(image);
+		}
+
+		TextureAtlas atlas = TextureAtlas.pack(names, images, PAGE_SIZE, BORDER);
+		assertEquals(3, atlas.getMipLevels());
+
+		Image[][] pageLevels = new Image[atlas.getPageCount()][];
+		for (int page = 0; page < pageLevels.length; page++) {
+			pageLevels[page] = MipmapGenerator.generate(atlas.getPage(page), atlas.getMipLevels());
+		}
+
+		/* Every pixel at least partly over an image is built only from the image and its border */
+		for (int i = 0; i < names.size(); i++) {
+			AtlasRegion region = atlas.getRegion(names.get(i));
+			int color = pixel(images.get(i), 0, 0);
+			for (int level = 1; level < atlas.getMipLevels(); level++) {
+				Image page = pageLevels[region.getPage()][level];
+				int scale = 1 << level;
+				for (int y = region.getY() / scale; y * scale < region.getY() + region.getHeight(); y++) {
+					for (int x = region.getX() / scale; x * scale < region.getX() + region.getWidth(); x++) {
+						assertEquals(color, pixel(page, x, y),
+								names.get(i) + " at level " + level + " (" + x + ", " + y + ")");
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void badInputIsRejected() {
+		List<String> names = List.of("a", "b");
+		List<Image> images = List.of(new Image(8, 8), new Image(8, 8));
+
+		assertThrows(IllegalArgumentException.class, () -> TextureAtlas.pack(names, images, PAGE_SIZE, 3));
+		assertThrows(IllegalArgumentException.class,
+				() -> TextureAtlas.pack(List.of("a", "a"), images, PAGE_SIZE, 0));
+		assertThrows(IllegalArgumentException.class, () -> TextureAtlas.pack(List.of("a"), images, PAGE_SIZE, 0));
+
+		/* Fits on its own, but not with its border */
+		assertThrows(IllegalArgumentException.class,
+				() -> TextureAtlas.pack(List.of("a"), List.of(new Image(16, 16)), 16, 1));
+		assertEquals(1, TextureAtlas.pack(List.of("a"), List.of(new Image(16, 16)), 16, 0).getPageCount());
+	}
+
+	private static List<Image> randomImages(Random random, int count, List<String> names) {
+		List<Image> images = new ArrayList<Image>();
+		for (int i = 0; i < count; i++) {
+			Image image = new Image(1 + random.nextInt(48), 1 + random.nextInt(48));
+			random.nextBytes(image.getPixels());
+			names.add("image" + i);
+			images.add(image);
+		}
+		return images;
+	}
+
+	/* The RGBA bytes of a pixel, packed into one int */
+	private static int pixel(Image image, int x, int y) {
+		int index = (y * image.getWidth() + x) * 4;
+		byte[] pixels = image.getPixels();
+		return (pixels[index] & 0xFF) << 24 | (pixels[index + 1] & 0xFF) << 16 | (pixels[index + 2] & 0xFF) << 8
+				| (pixels[index + 3] & 0xFF);
+	}
+
+	private static void setPixel(Image image, int x, int y, int rgba) {
+		int index = (y * image.getWidth() + x) * 4;
+		byte[] pixels = image.getPixels();
+		pixels[index] = (byte) (rgba >>> 24);
+		pixels[index + 1] = (byte) (rgba >>> 16);
+		pixels[index + 2] = (byte) (rgba >>> 8);
+		pixels[index + 3] = (byte) rgba;
+	}
+}
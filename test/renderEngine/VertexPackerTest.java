@@ -0,0 +1,189 @@
+package renderEngine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the compact encodings of {@link renderEngine.VertexPacker} against
+ * hand-worked values, and the interleaved layout that
+ * {@link renderEngine.VertexFormat} gives it.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class VertexPackerTest {
+
+	@Test
+	public void halfFloatExactValues() {
+		assertEquals((short) 0x0000, VertexPacker.floatToHalf(0f));
+		assertEquals((short) 0x8000, VertexPacker.floatToHalf(-0f));
+		assertEquals((short) 0x3C00, VertexPacker.floatToHalf(1f));
+		assertEquals((short) 0x3800, VertexPacker.floatToHalf(0.5f));
+		assertEquals((short) 0xC000, VertexPacker.floatToHalf(-2f));
+		assertEquals((short) 0x7BFF, VertexPacker.floatToHalf(65504f));
+	}
+
+	@Test
+	public void halfFloatRangeLimits() {
+		/* Halfway to the next power of two past the largest half rounds up to infinity */
+		assertEquals((short) 0x7C00, VertexPacker.floatToHalf(65520f));
+		assertEquals((short) 0x7C00, VertexPacker.floatToHalf(Float.POSITIVE_INFINITY));
+		assertEquals((short) 0xFC00, VertexPacker.floatToHalf(Float.NEGATIVE_INFINITY));
+		assertEquals((short) 0x7E00, VertexPacker.floatToHalf(Float.NaN));
+
+		/* The smallest subnormal half is 2^-24, and half of it rounds to even, which is zero */
+		assertEquals((short) 0x0001, VertexPacker.floatToHalf((float) Math.pow(2, -24)));
+		assertEquals((short) 0x0000, VertexPacker.floatToHalf((float) Math.pow(2, -25)));
+		assertEquals((short) 0x0000, VertexPacker.floatToHalf(1e-10f));
+		assertEquals((short) 0x0400, VertexPacker.floatToHalf((float) Math.pow(2, -14)));
+	}
+
+	@Test
+	public void halfFloatRoundsToNearestEven() {
+		/* Halves have 10 mantissa bits, so 2^-11 is half a step above 1 */
+		float step = (float) Math.pow(2, -10);
+		assertEquals((short) 0x3C00, VertexPacker.floatToHalf(1f + step / 2));
+		assertEquals((short) 0x3C02, VertexPacker.floatToHalf(1f + step * 3 / 2));
+		assertEquals((short) 0x3C01, VertexPacker.floatToHalf(1f + step * 0.6f));
+
+		/* A carry out of the mantissa moves to the next exponent */
+		assertEquals((short) 0x4000, VertexPacker.floatToHalf(2f - step / 4));
+	}
+
+	@Test
+	public void halfFloatRoundTripsEveryHalf() {
+		for (int half = 0; half < 0x10000; half++) {
+			int exponent = (half >>> 10) & 0x1F, mantissa = half & 0x3FF;
+			if (exponent == 0x1F && mantissa != 0) {
+				continue;
+			}
+			assertEquals((short) half, VertexPacker.floatToHalf(halfToFloat(half)), "half " + half);
+		}
+	}
+
+	@Test
+	public void int2101010Layout() {
+		assertEquals(0, VertexPacker.packInt2101010(0, 0, 0, 0));
+		assertEquals(0x1FF, VertexPacker.packInt2101010(1, 0, 0, 0));
+		assertEquals(0x1FF << 10, VertexPacker.packInt2101010(0, 1, 0, 0));
+		assertEquals(0x201 << 20, VertexPacker.packInt2101010(0, 0, -1, 0));
+		assertEquals(1 << 30, VertexPacker.packInt2101010(0, 0, 0, 1));
+		assertEquals(0xC0000000, VertexPacker.packInt2101010(0, 0, 0, -1));
+	}
+
+	@Test
+	public void int2101010ClampsAndRoundTrips() {
+		assertEquals(VertexPacker.packInt2101010(1, -1, 1, 1), VertexPacker.packInt2101010(4, -3, 1.5f, 9));
+
+		Random random = new Random(1);
+		for (int i = 0; i < 1000; i++) {
+			float x = random.nextFloat() * 2 - 1, y = random.nextFloat() * 2 - 1, z = random.nextFloat() * 2 - 1;
+			int packed = VertexPacker.packInt2101010(x, y, z, 0);
+
+			/* Sign extended from 10 bits, and within half a step of the original */
+			assertEquals(x, (packed << 22 >> 22) / 511f, 0.5f / 511);
+			assertEquals(y, (packed << 12 >> 22) / 511f, 0.5f / 511);
+			assertEquals(z, (packed << 2 >> 22) / 511f, 0.5f / 511);
+			assertEquals(0, packed >> 30);
+		}
+	}
+
+	@Test
+	public void normalizedBytesClampAndRound() {
+		VertexFormat format = new VertexFormat().add(0, 4, AttributeType.UNSIGNED_BYTE_NORMALIZED);
+		float[][] attributeData = { { 0f, 1f, 0.5f, 0.25f, -1f, 2f, 0.002f, 0.998f } };
+		ByteBuffer buffer = VertexPacker.pack(format, attributeData, allocate(8));
+
+		int[] expected = { 0, 255, 128, 64, 0, 255, 1, 254 };
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], buffer.get(i) & 0xFF, "byte " + i);
+		}
+	}
+
+	@Test
+	public void compactFormatLayout() {
+		VertexFormat format = VertexFormat.POSITION_COLOR_NORMAL_TEXTURE;
+		assertEquals(24, format.getStride());
+		assertEquals(0, format.getAttribute(0).getOffset());
+		assertEquals(12, format.getAttribute(1).getOffset());
+		assertEquals(16, format.getAttribute(2).getOffset());
+		assertEquals(20, format.getAttribute(3).getOffset());
+	}
+
+	@Test
+	public void attributesArePaddedToFourBytes() {
+		VertexFormat format = new VertexFormat().add(0, 3, AttributeType.HALF_FLOAT)
+				.add(1, 3, AttributeType.UNSIGNED_BYTE_NORMALIZED).add(2, 1, AttributeType.FLOAT);
+		assertEquals(0, format.getAttribute(0).getOffset());
+		assertEquals(8, format.getAttribute(1).getOffset());
+		assertEquals(12, format.getAttribute(2).getOffset());
+		assertEquals(16, format.getStride());
+	}
+
+	@Test
+	public void packInterleavesFromThePosition() {
+		VertexFormat format = VertexFormat.POSITION_COLOR_NORMAL_TEXTURE;
+		float[][] attributeData = { { 1, 2, 3, -4, -5, -6 }, { 1, 0, 1, 0, 0, 1, 0, 1 }, { 0, 1, 0, 0, 0, -1 },
+				{ 0.5f, 0.25f, 2, -1 } };
+
+		ByteBuffer buffer = allocate(8 + 2 * format.getStride());
+		buffer.position(8);
+		assertSame(buffer, VertexPacker.pack(format, attributeData, buffer));
+		assertEquals(0, buffer.position());
+		assertEquals(8 + 2 * format.getStride(), buffer.limit());
+
+		for (int v = 0; v < 2; v++) {
+			int base = 8 + v * format.getStride();
+			assertEquals(attributeData[0][v * 3], buffer.getFloat(base));
+			assertEquals(attributeData[0][v * 3 + 2], buffer.getFloat(base + 8));
+			assertEquals(v == 0 ? 255 : 0, buffer.get(base + 12) & 0xFF);
+			assertEquals(v == 0 ? 0 : 255, buffer.get(base + 15) & 0xFF);
+			assertEquals(VertexPacker.packInt2101010(attributeData[2][v * 3], attributeData[2][v * 3 + 1],
+					attributeData[2][v * 3 + 2], 0), buffer.getInt(base + 16));
+			assertEquals(VertexPacker.floatToHalf(attributeData[3][v * 2]), buffer.getShort(base + 20));
+			assertEquals(VertexPacker.floatToHalf(attributeData[3][v * 2 + 1]), buffer.getShort(base + 22));
+		}
+
+		/* Nothing before the position is touched */
+		assertEquals(0, buffer.getLong(0));
+	}
+
+	@Test
+	public void mismatchedAttributeDataIsRejected() {
+		VertexFormat format = new VertexFormat().add(0, 3, AttributeType.FLOAT).add(1, 2, AttributeType.HALF_FLOAT);
+
+		assertEquals(2, VertexPacker.vertexCountOf(format, new float[][] { new float[6], new float[4] }));
+		assertThrows(IllegalArgumentException.class,
+				() -> VertexPacker.vertexCountOf(format, new float[][] { new float[6] }));
+		assertThrows(IllegalArgumentException.class,
+				() -> VertexPacker.vertexCountOf(format, new float[][] { new float[5], new float[4] }));
+		assertThrows(IllegalArgumentException.class,
+				() -> VertexPacker.vertexCountOf(format, new float[][] { new float[6], new float[6] }));
+		assertThrows(IllegalArgumentException.class,
+				() -> new VertexFormat().add(0, 2, AttributeType.INT_2_10_10_10_REV));
+	}
+
+	private static ByteBuffer allocate(int bytes) {
+		return ByteBuffer.allocate(bytes).order(ByteOrder.nativeOrder());
+	}
+
+	/* The reference decoding of a half, through doubles */
+	private static float halfToFloat(int half) {
+		double sign = (half & 0x8000) != 0 ? -1.0 : 1.0;
+		int exponent = (half >>> 10) & 0x1F, mantissa = half & 0x3FF;
+		if (exponent == 0x1F) {
+			return (float) (sign * Double.POSITIVE_INFINITY);
+		}
+		if (exponent == 0) {
+			return (float) (sign * mantissa * Math.pow(2, -24));
+		}
+		return (float) (sign * (1 + mantissa / 1024.0) * Math.pow(2, exponent - 15));
+	}
+}
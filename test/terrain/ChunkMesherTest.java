@@ -0,0 +1,216 @@
+package terrain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import renderEngine.IndexType;
+
+/**
+ * Meshes hand-built volumes with a greedy and a naive
+ * {@link terrain.ChunkMesher}, checking the exact number of quads each makes:
+ * a solid chunk is six, a checkerboard is one per exposed face whichever way it
+ * is meshed, and faces between two solid blocks, whether inside the chunk or
+ * against its padding, are never emitted. Every quad is checked to lie within
+ * the chunk and to face the way its normal says.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class ChunkMesherTest {
+
+	private static final int SIZE = Chunk.SIZE, STRIDE = ChunkMesher.FORMAT.getStride();
+
+	private final ChunkMesher greedy = new ChunkMesher(true), naive = new ChunkMesher(false);
+
+	private final byte[] volume = new byte[Chunk.PADDED_VOLUME];
+
+	@AfterEach
+	public void tearDown() {
+		greedy.release();
+		naive.release();
+	}
+
+	@Test
+	public void solidChunkIsSixQuads() {
+		fillOwnBlocks(Block.STONE);
+
+		assertQuads(6, greedy, 2, -1, 3);
+		assertQuads(6 * SIZE * SIZE, naive, 2, -1, 3);
+
+		/* Each side of the greedy mesh is the whole face of the chunk */
+		ChunkMesh mesh = greedy.mesh(0, 0, 0, volume);
+		ByteBuffer vertices = mesh.getVertices();
+		for (int quad = 0; quad < 6; quad++) {
+			for (int axis = 0; axis < 3; axis++) {
+				float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
+				for (int corner = 0; corner < 4; corner++) {
+					float value = vertices.getFloat((quad * 4 + corner) * STRIDE + axis * Float.BYTES);
+					min = Math.min(min, value);
+					max = Math.max(max, value);
+				}
+				assertTrue(max - min == 0 || max - min == SIZE, "quad " + quad + " spans " + (max - min));
+			}
+		}
+		mesh.release();
+	}
+
+	@Test
+	public void chunkHiddenOnEverySideHasNoMesh() {
+		Arrays.fill(volume, Block.STONE);
+		assertNull(greedy.mesh(0, 0, 0, volume));
+		assertNull(naive.mesh(0, 0, 0, volume));
+
+		/* Nor does a chunk whose only blocks are its neighbours' */
+		Arrays.fill(volume, Block.AIR);
+		volume[Chunk.index(0, 5, 5)] = Block.STONE;
+		volume[Chunk.index(SIZE + 1, 5, 5)] = Block.STONE;
+		assertNull(greedy.mesh(0, 0, 0, volume));
+	}
+
+	@Test
+	public void checkerboardIsOneQuadPerExposedFace() {
+		int solid = 0;
+		for (int z = 1; z <= SIZE; z++) {
+			for (int y = 1; y <= SIZE; y++) {
+				for (int x = 1; x <= SIZE; x++) {
+					if ((x + y + z) % 2 == 0) {
+						volume[Chunk.index(x, y, z)] = Block.DIRT;
+						solid++;
+					}
+				}
+			}
+		}
+
+		/* Every face of every block is against air, and no two faces in a slice touch, so nothing merges */
+		assertEquals(SIZE * SIZE * SIZE / 2, solid);
+		assertQuads(6 * solid, greedy, 0, 0, 0);
+		assertQuads(6 * solid, naive, 0, 0, 0);
+
+		ChunkMesh mesh = mesh(greedy, 0, 0, 0);
+		assertEquals(IndexType.UNSIGNED_INT, mesh.getIndexType());
+		mesh.release();
+	}
+
+	@Test
+	public void facesBetweenSolidBlocksAreNotEmitted() {
+		/* Two blocks side by side share a face, which neither draws */
+		volume[Chunk.index(4, 4, 4)] = Block.STONE;
+		volume[Chunk.index(5, 4, 4)] = Block.STONE;
+		assertQuads(10, naive, 0, 0, 0);
+		assertQuads(6, greedy, 0, 0, 0);
+
+		/* Different blocks are hidden the same, but their faces are not merged */
+		volume[Chunk.index(5, 4, 4)] = Block.SAND;
+		assertQuads(10, naive, 0, 0, 0);
+		assertQuads(10, greedy, 0, 0, 0);
+
+		/* A block hollowed out of a solid chunk shows only the six faces around the hole */
+		fillOwnBlocks(Block.STONE);
+		volume[Chunk.index(10, 10, 10)] = Block.AIR;
+		assertQuads(6 * SIZE * SIZE + 6, naive, 0, 0, 0);
+	}
+
+	@Test
+	public void facesAgainstNeighboursAreHiddenByThePadding() {
+		/* A block on each edge of the chunk, against a solid neighbour on one of them */
+		volume[Chunk.index(1, 5, 5)] = Block.STONE;
+		volume[Chunk.index(SIZE, 5, 5)] = Block.STONE;
+		volume[Chunk.index(0, 5, 5)] = Block.STONE;
+		assertQuads(11, naive, 0, 0, 0);
+
+		volume[Chunk.index(SIZE + 1, 5, 5)] = Block.STONE;
+		assertQuads(10, naive, 0, 0, 0);
+	}
+
+	@Test
+	public void verticesAreInWorldSpace() {
+		volume[Chunk.index(1, 1, 1)] = Block.GRASS;
+		ChunkMesh mesh = mesh(naive, -3, 1, 7);
+		ByteBuffer vertices = mesh.getVertices();
+
+		float[] min = { Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE }, max = { -Float.MAX_VALUE,
+				-Float.MAX_VALUE, -Float.MAX_VALUE };
+		for (int vertex = 0; vertex < mesh.getVertexCount(); vertex++) {
+			for (int axis = 0; axis < 3; axis++) {
+				float value = vertices.getFloat(vertex * STRIDE + axis * Float.BYTES);
+				min[axis] = Math.min(min[axis], value);
+				max[axis] = Math.max(max[axis], value);
+			}
+			assertEquals(Block.getColor(Block.GRASS), color(vertices, vertex));
+		}
+		mesh.release();
+
+		assertEquals(-3 * SIZE, min[0]);
+		assertEquals(-3 * SIZE + 1, max[0]);
+		assertEquals(SIZE, min[1]);
+		assertEquals(SIZE + 1, max[1]);
+		assertEquals(7 * SIZE, min[2]);
+		assertEquals(7 * SIZE + 1, max[2]);
+	}
+
+	/* Meshes the volume, checking the quad count and that every quad is wound to face along its normal */
+	private void assertQuads(int expected, ChunkMesher mesher, int chunkX, int chunkY, int chunkZ) {
+		ChunkMesh mesh = mesh(mesher, chunkX, chunkY, chunkZ);
+		assertEquals(expected, mesh.getQuadCount());
+		assertEquals(expected * 4, mesh.getVertexCount());
+		assertEquals(chunkX, mesh.getChunkX());
+		assertEquals(chunkY, mesh.getChunkY());
+		assertEquals(chunkZ, mesh.getChunkZ());
+		assertEquals(expected * 6 * mesh.getIndexType().getBytes(), mesh.getIndices().remaining());
+
+		ByteBuffer vertices = mesh.getVertices();
+		assertEquals(expected * 4 * STRIDE, vertices.remaining());
+		float[] a = new float[3], b = new float[3], c = new float[3];
+		for (int quad = 0; quad < expected; quad++) {
+			int base = quad * 4 * STRIDE;
+			int normal = vertices.getInt(base + 16);
+			int[] n = { (normal << 22) >> 22, (normal << 12) >> 22, (normal << 2) >> 22 };
+
+			for (int axis = 0; axis < 3; axis++) {
+				a[axis] = vertices.getFloat(base + STRIDE + axis * 4) - vertices.getFloat(base + axis * 4);
+				b[axis] = vertices.getFloat(base + STRIDE * 2 + axis * 4) - vertices.getFloat(base + axis * 4);
+			}
+			c[0] = a[1] * b[2] - a[2] * b[1];
+			c[1] = a[2] * b[0] - a[0] * b[2];
+			c[2] = a[0] * b[1] - a[1] * b[0];
+			assertTrue(c[0] * n[0] + c[1] * n[1] + c[2] * n[2] > 0, "quad " + quad + " faces away from its normal");
+
+			for (int corner = 1; corner < 4; corner++) {
+				assertEquals(normal, vertices.getInt(base + corner * STRIDE + 16));
+			}
+		}
+		mesh.release();
+	}
+
+	private ChunkMesh mesh(ChunkMesher mesher, int chunkX, int chunkY, int chunkZ) {
+		ChunkMesh mesh = mesher.mesh(chunkX, chunkY, chunkZ, volume);
+		assertNotNull(mesh);
+		return mesh;
+	}
+
+	/* Read back as 0xRRGGBBAA, the way blocks give their colors */
+	private static int color(ByteBuffer vertices, int vertex) {
+		int offset = vertex * STRIDE + 12;
+		return (vertices.get(offset) & 0xFF) << 24 | (vertices.get(offset + 1) & 0xFF) << 16
+				| (vertices.get(offset + 2) & 0xFF) << 8 | vertices.get(offset + 3) & 0xFF;
+	}
+
+	/* The chunk's own blocks, leaving the padding as it is */
+	private void fillOwnBlocks(byte block) {
+		for (int z = 1; z <= SIZE; z++) {
+			for (int y = 1; y <= SIZE; y++) {
+				for (int x = 1; x <= SIZE; x++) {
+					volume[Chunk.index(x, y, z)] = block;
+				}
+			}
+		}
+	}
+}
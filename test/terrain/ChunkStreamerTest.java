@@ -0,0 +1,207 @@
+package terrain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import renderEngine.ModelLoader;
+import renderEngine.RecordingRenderDevice;
+
+/**
+ * Moves a viewer around a {@link terrain.ChunkStreamer} over a world of one
+ * block per chunk, uploading to a {@link renderEngine.RecordingRenderDevice},
+ * and checks which chunks are loaded, cached, recycled and cancelled as it
+ * goes.
+ * 
+ * <p>
+ * With a view distance of two, 13 columns are in view. Moving one chunk along
+ * X leaves 5 of them behind and brings 5 new ones into view.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class ChunkStreamerTest {
+
+	private static final int VIEW_DISTANCE = 2, IN_VIEW = 13, LEFT_BEHIND = 5;
+
+	private static final long UNLIMITED = Long.MAX_VALUE;
+
+	/* One block in the middle of every chunk, one chunk tall, that waits at the gate before building */
+	private static class BlockGenerator extends ChunkGenerator {
+		private final AtomicInteger generated = new AtomicInteger(0), waiting = new AtomicInteger(0);
+		private volatile CountDownLatch gate = new CountDownLatch(0);
+
+		private BlockGenerator() {
+			super(0);
+		}
+
+		@Override
+		public int getMaxChunkY() {
+			return 0;
+		}
+
+		@Override
+		public boolean generate(int chunkX, int chunkY, int chunkZ, byte[] volume) {
+			waiting.incrementAndGet();
+			try {
+				if (!gate.await(10, TimeUnit.SECONDS)) {
+					throw new IllegalStateException("The gate was never opened");
+				}
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+
+			Arrays.fill(volume, Block.AIR);
+			volume[Chunk.index(Chunk.SIZE / 2, Chunk.SIZE / 2, Chunk.SIZE / 2)] = Block.STONE;
+			generated.incrementAndGet();
+			return true;
+		}
+	}
+
+	private final RecordingRenderDevice device = new RecordingRenderDevice();
+
+	private final ModelLoader loader = new ModelLoader(device);
+
+	private final BlockGenerator generator = new BlockGenerator();
+
+	private final ForkJoinPool pool = new ForkJoinPool(2);
+
+	private final ChunkStreamer streamer = new ChunkStreamer(generator, loader, VIEW_DISTANCE, UNLIMITED, pool);
+
+	@AfterEach
+	public void tearDown() {
+		generator.gate.countDown();
+		streamer.cleanUp();
+		pool.shutdownNow();
+	}
+
+	@Test
+	public void everyChunkInViewIsLoaded() {
+		streamer.update(0, 0);
+		assertEquals(IN_VIEW, streamer.getChunkCount());
+		assertTrue(streamer.hasPendingWork());
+
+		drain();
+		assertEquals(IN_VIEW, streamer.getChunksBuilt());
+		assertEquals(IN_VIEW, streamer.getModelsCreated());
+		assertEquals(IN_VIEW, device.getVertexArrayCount());
+		assertEquals(0, streamer.getEmptyChunks());
+
+		/* Moving within the same chunk changes nothing */
+		streamer.update(Chunk.SIZE - 0.5f, Chunk.SIZE - 0.5f);
+		assertFalse(streamer.hasPendingWork());
+		assertEquals(IN_VIEW, generator.generated.get());
+
+		streamer.cleanUp();
+		assertEquals(0, device.getVertexArrayCount());
+		assertEquals(0, device.getBufferCount());
+	}
+
+	@Test
+	public void chunksLeftBehindAreCachedAndComeBackWithoutBuilding() {
+		streamer.update(0, 0);
+		drain();
+
+		streamer.update(Chunk.SIZE, 0);
+		assertEquals(IN_VIEW, streamer.getChunkCount());
+		assertEquals(LEFT_BEHIND, streamer.getCachedCount());
+		drain();
+		assertEquals(IN_VIEW + LEFT_BEHIND, streamer.getChunksBuilt());
+		assertEquals(IN_VIEW + LEFT_BEHIND, device.getVertexArrayCount());
+
+		/* Back again: the chunks left behind come out of the cache, and the others go into it */
+		streamer.update(0, 0);
+		assertEquals(LEFT_BEHIND, streamer.getCacheHits());
+		assertEquals(LEFT_BEHIND, streamer.getCachedCount());
+		assertFalse(streamer.hasPendingWork());
+		drain();
+		assertEquals(IN_VIEW + LEFT_BEHIND, generator.generated.get());
+		assertEquals(IN_VIEW + LEFT_BEHIND, streamer.getModelsCreated());
+	}
+
+	@Test
+	public void modelsPushedOutOfTheCacheAreRecycled() {
+		streamer.setCacheBudget(0);
+		streamer.update(0, 0);
+		drain();
+
+		/* Nothing fits in the cache, so the models left behind are refilled with the chunks ahead */
+		streamer.update(Chunk.SIZE, 0);
+		assertEquals(0, streamer.getCachedCount());
+		drain();
+		assertEquals(IN_VIEW, streamer.getModelsCreated());
+		assertEquals(LEFT_BEHIND, streamer.getModelsReused());
+		assertEquals(IN_VIEW, device.getVertexArrayCount());
+
+		/* Coming back builds them all again */
+		streamer.update(0, 0);
+		drain();
+		assertEquals(0, streamer.getCacheHits());
+		assertEquals(IN_VIEW + LEFT_BEHIND * 2, generator.generated.get());
+		assertEquals(LEFT_BEHIND * 2, streamer.getModelsReused());
+		assertEquals(IN_VIEW, device.getVertexArrayCount());
+	}
+
+	@Test
+	public void buildsForChunksThatLeaveTheViewAreThrownAway() {
+		/* The pool has two threads, so four chunks are handed to it at once: two wait at the gate, two behind them */
+		generator.gate = new CountDownLatch(1);
+		streamer.update(0, 0);
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (generator.waiting.get() < 2) {
+			assertTrue(System.nanoTime() - deadline < 0, "the pool never started building");
+			Thread.yield();
+		}
+		assertEquals(0, streamer.processUploads(UNLIMITED));
+
+		/* Far enough away that nothing is still in view */
+		streamer.update(Chunk.SIZE * 100, 0);
+		assertEquals(IN_VIEW, streamer.getChunkCount());
+		generator.gate.countDown();
+		drain();
+
+		/* Those already running finish and are thrown away, and those not yet started are skipped */
+		assertEquals(4, streamer.getBuildsCancelled());
+		assertEquals(IN_VIEW, streamer.getChunksBuilt());
+		assertEquals(IN_VIEW + 2, generator.generated.get());
+		assertEquals(IN_VIEW, device.getVertexArrayCount());
+		assertEquals(0, streamer.getCachedCount());
+	}
+
+	@Test
+	public void shorterViewDistanceDropsTheChunksBeyondIt() {
+		streamer.update(0, 0);
+		drain();
+
+		streamer.setViewDistance(1);
+		streamer.update(0, 0);
+		assertEquals(5, streamer.getChunkCount());
+		assertEquals(IN_VIEW - 5, streamer.getCachedCount());
+
+		streamer.setViewDistance(VIEW_DISTANCE);
+		streamer.update(0, 0);
+		assertEquals(IN_VIEW, streamer.getChunkCount());
+		assertEquals(IN_VIEW - 5, streamer.getCacheHits());
+		assertFalse(streamer.hasPendingWork());
+	}
+
+	/* Uploads everything until nothing is left to build */
+	private void drain() {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (streamer.hasPendingWork()) {
+			assertTrue(System.nanoTime() - deadline < 0, "chunks were never finished");
+			streamer.processUploads(UNLIMITED);
+			Thread.yield();
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package utility;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Acquires and releases buffers from a {@link utility.BufferPool} of its own,
+ * checking which size class each request lands in, that released blocks are
+ * lent out again rather than allocated, that views come back reset to the
+ * size asked for, and that a buffer cannot be released twice.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class BufferPoolTest {
+
+	private final BufferPool pool = new BufferPool(1 << 24);
+
+	@AfterEach
+	public void tearDown() {
+		pool.trim();
+	}
+
+	@Test
+	public void releasedBlockIsReused() {
+		PooledBuffer first = pool.acquire(1000);
+		assertEquals(1, pool.getAllocationCount());
+		assertEquals(1024, pool.getBytesOutstanding());
+
+		first.release();
+		assertEquals(0, pool.getBytesOutstanding());
+		assertEquals(1024, pool.getBytesPooled());
+
+		/* Any size in the same class gets the same block back */
+		PooledBuffer second = pool.acquire(600);
+		assertSame(first, second);
+		assertEquals(1, pool.getAllocationCount());
+		assertEquals(2, pool.getAcquireCount());
+		assertEquals(0, pool.getBytesPooled());
+		assertEquals(600, second.sizeBytes());
+
+		/* While it is lent out, the next request needs a block of its own */
+		PooledBuffer third = pool.acquire(600);
+		assertNotSame(second, third);
+		assertEquals(2, pool.getAllocationCount());
+
+		second.release();
+		third.release();
+		assertEquals(0, pool.getBytesOutstanding());
+		assertEquals(2048, pool.getBytesPooled());
+	}
+
+	@Test
+	public void viewsAreResetToTheRequestedSize() {
+		PooledBuffer buffer = pool.acquire(100);
+		ByteBuffer bytes = buffer.getByteBuffer();
+		assertEquals(0, bytes.position());
+		assertEquals(100, bytes.limit());
+		assertEquals(256, bytes.capacity());
+
+		/* Whatever was done to the view last time is undone */
+		bytes.putInt(7).putInt(8).limit(20);
+		bytes = buffer.getByteBuffer();
+		assertEquals(0, bytes.position());
+		assertEquals(100, bytes.limit());
+		assertEquals(7, bytes.getInt(0));
+
+		assertEquals(50, buffer.getShortBuffer().limit());
+		assertEquals(25, buffer.getIntBuffer().limit());
+		assertEquals(25, buffer.getFloatBuffer().limit());
+		buffer.getFloatBuffer().position(10);
+		assertEquals(0, buffer.getFloatBuffer().position());
+
+		/* Reused for a smaller request, the limit is the new size */
+		buffer.release();
+		PooledBuffer smaller = pool.acquire(30);
+		assertSame(buffer, smaller);
+		assertEquals(30, smaller.getByteBuffer().limit());
+		assertEquals(7, smaller.getIntBuffer().limit());
+		smaller.release();
+	}
+
+	@Test
+	public void sizesAreRoundedUpToPowersOfTwo() {
+		int[] sizes = { 0, 1, 256, 257, 512, 513, 4000, 1 << 20, (1 << 20) + 1 };
+		int[] capacities = { 256, 256, 256, 512, 512, 1024, 4096, 1 << 20, 2 << 20 };
+
+		for (int i = 0; i < sizes.length; i++) {
+			PooledBuffer buffer = pool.acquire(sizes[i]);
+			assertEquals(capacities[i], buffer.getByteBuffer().capacity(), sizes[i] + " bytes");
+			assertEquals(sizes[i], buffer.getByteBuffer().limit());
+			buffer.release();
+		}
+
+		/* One block per class, each reused by the later sizes in its class */
+		assertEquals(6, pool.getAllocationCount());
+
+		PooledBuffer floats = pool.acquireFloats(64), ints = pool.acquireInts(65);
+		assertEquals(256, floats.getByteBuffer().capacity());
+		assertEquals(512, ints.getByteBuffer().capacity());
+		floats.release();
+		ints.release();
+	}
+
+	@Test
+	public void invalidSizesAreRejected() {
+		assertThrows(IllegalArgumentException.class, () -> pool.acquire(-1));
+		assertThrows(IllegalArgumentException.class, () -> pool.acquire((1 << 30) + 1));
+		assertThrows(ArithmeticException.class, () -> pool.acquireFloats(Integer.MAX_VALUE));
+		assertEquals(0, pool.getAllocationCount());
+	}
+
+	@Test
+	public void doubleReleaseIsRejected() {
+		PooledBuffer buffer = pool.acquire(100);
+		buffer.release();
+		assertThrows(IllegalStateException.class, buffer::release);
+		assertThrows(IllegalStateException.class, buffer::getByteBuffer);
+
+		/* The failed release changed nothing, so the block is only lent out once */
+		assertEquals(0, pool.getBytesOutstanding());
+		assertEquals(256, pool.getBytesPooled());
+		PooledBuffer first = pool.acquire(100), second = pool.acquire(100);
+		assertNotSame(first, second);
+		first.release();
+		second.release();
+	}
+
+	@Test
+	public void blocksPastTheLimitAreFreed() {
+		BufferPool small = new BufferPool(1024);
+		PooledBuffer first = small.acquire(1024), second = small.acquire(1024);
+		first.release();
+		second.release();
+		assertEquals(1024, small.getBytesPooled());
+
+		small.acquire(1024).release();
+		first = small.acquire(1024);
+		second = small.acquire(1024);
+		assertEquals(3, small.getAllocationCount());
+		assertEquals(0, small.getBytesPooled());
+
+		first.release();
+		second.release();
+		small.trim();
+	}
+}
@@ -0,0 +1,199 @@
+package world;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Adds systems that declare which components they read and write to a
+ * {@link world.SystemScheduler}, and checks which stage each lands in, the
+ * order they run in, and what happens when one of them fails.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class SystemSchedulerTest {
+
+	private final World world = new World();
+
+	private final FloatComponent position = world.register(new FloatComponent("position", 3)),
+			velocity = world.register(new FloatComponent("velocity", 3)),
+			health = world.register(new FloatComponent("health", 1));
+
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+
+	/* The name of every system run, in the order they ran */
+	private final List<String> log = Collections.synchronizedList(new ArrayList<String>());
+
+	/* Logs its name when run, after whatever else it has been given to do */
+	private class LoggingSystem implements EntitySystem {
+		private final String name;
+		private final Component[] reads, writes;
+		private Runnable work = () -> {
+		};
+
+		private LoggingSystem(String name, Component[] reads, Component[] writes) {
+			this.name = name;
+			this.reads = reads;
+			this.writes = writes;
+		}
+
+		@Override
+		public Component[] getReads() {
+			return reads;
+		}
+
+		@Override
+		public Component[] getWrites() {
+			return writes;
+		}
+
+		@Override
+		public void update(World world) {
+			work.run();
+			log.add(name);
+		}
+	}
+
+	@AfterEach
+	public void tearDown() {
+		pool.shutdownNow();
+	}
+
+	@Test
+	public void writersOfTheSameComponentGetTheirOwnStages() {
+		SystemScheduler scheduler = new SystemScheduler(pool);
+		LoggingSystem first = system("first", none(), of(position)),
+				second = system("second", none(), of(position));
+		scheduler.add(first);
+		scheduler.add(second);
+
+		assertEquals(0, scheduler.getStage(first));
+		assertEquals(1, scheduler.getStage(second));
+		assertEquals(2, scheduler.getStageCount());
+
+		scheduler.run(world);
+		assertEquals(List.of("first", "second"), log);
+	}
+
+	@Test
+	public void readersShareAStageAndRunTogether() {
+		SystemScheduler scheduler = new SystemScheduler(pool);
+		LoggingSystem first = system("first", of(position), of(velocity)),
+				second = system("second", of(position), of(health));
+
+		/* Neither can finish until both are running at once */
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		Runnable meet = () -> {
+			try {
+				barrier.await(10, TimeUnit.SECONDS);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		};
+		first.work = meet;
+		second.work = meet;
+		scheduler.add(first);
+		scheduler.add(second);
+
+		assertEquals(0, scheduler.getStage(first));
+		assertEquals(0, scheduler.getStage(second));
+		assertEquals(1, scheduler.getStageCount());
+
+		scheduler.run(world);
+		assertEquals(2, log.size());
+	}
+
+	@Test
+	public void conflictingSystemsRunInTheOrderTheyWereAdded() {
+		SystemScheduler scheduler = new SystemScheduler(pool);
+		LoggingSystem move = system("move", of(velocity), of(position)),
+				steer = system("steer", of(position), of(velocity)),
+				damage = system("damage", none(), of(health)),
+				heal = system("heal", of(health, position), of(health)),
+				snap = system("snap", none(), of(position));
+		scheduler.add(move);
+		scheduler.add(steer);
+		scheduler.add(damage);
+		scheduler.add(heal);
+		scheduler.add(snap);
+
+		/* Each goes in the first stage after every earlier system it conflicts with, not just the last one */
+		assertEquals(0, scheduler.getStage(move));
+		assertEquals(1, scheduler.getStage(steer));
+		assertEquals(0, scheduler.getStage(damage));
+		assertEquals(1, scheduler.getStage(heal));
+		assertEquals(2, scheduler.getStage(snap));
+		assertEquals(-1, scheduler.getStage(system("unknown", none(), none())));
+
+		for (int tick = 0; tick < 50; tick++) {
+			log.clear();
+			scheduler.run(world);
+
+			assertEquals(5, log.size());
+			assertTrue(log.indexOf("move") < log.indexOf("steer"));
+			assertTrue(log.indexOf("move") < log.indexOf("heal"));
+			assertTrue(log.indexOf("damage") < log.indexOf("heal"));
+			assertTrue(log.indexOf("steer") < log.indexOf("snap"));
+			assertTrue(log.indexOf("heal") < log.indexOf("snap"));
+		}
+	}
+
+	@Test
+	public void failingSystemThrowsToTheCaller() {
+		SystemScheduler scheduler = new SystemScheduler(pool);
+		LoggingSystem failing = system("failing", none(), of(position)),
+				alongside = system("alongside", none(), of(health)),
+				after = system("after", of(position), none());
+		failing.work = () -> {
+			throw new IllegalStateException("failed on purpose");
+		};
+		scheduler.add(failing);
+		scheduler.add(alongside);
+		scheduler.add(after);
+
+		/* Thrown from a stage run on the pool, so the exception may be rethrown as a copy */
+		IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> scheduler.run(world));
+		assertTrue(String.valueOf(thrown.getMessage()).contains("failed on purpose")
+				|| String.valueOf(thrown.getCause()).contains("failed on purpose"), thrown.toString());
+		assertFalse(log.contains("after"), "a later stage ran after an earlier one failed");
+
+		/* Also thrown when the stage has only the one system, so is run on the caller's thread */
+		SystemScheduler single = new SystemScheduler(pool);
+		single.add(failing);
+		thrown = assertThrows(IllegalStateException.class, () -> single.run(world));
+		assertEquals("failed on purpose", thrown.getMessage());
+
+		/* A failure leaves the scheduler able to run again */
+		failing.work = () -> {
+		};
+		log.clear();
+		scheduler.run(world);
+		assertEquals(3, log.size());
+		assertNotEquals(-1, log.indexOf("after"));
+	}
+
+	private LoggingSystem system(String name, Component[] reads, Component[] writes) {
+		return new LoggingSystem(name, reads, writes);
+	}
+
+	private static Component[] of(Component... components) {
+		return components;
+	}
+
+	private static Component[] none() {
+		return new Component[0];
+	}
+}
@@ -0,0 +1,197 @@
+package utility;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * A pool of off-heap staging memory, for packing data before it is handed to
+ * OpenGL. Memory comes from {@link org.lwjgl.system.MemoryUtil#memAlloc(int)}
+ * rather than from direct buffers, so it is freed explicitly instead of
+ * whenever the garbage collector gets to it. Blocks are grouped into
+ * power-of-two size classes; a released block is kept for the next request of
+ * the same size class, up to a configurable total, and freed otherwise.
+ * 
+ * <p>
+ * Every block lent out must be given back through
+ * {@link utility.PooledBuffer#release()}. The pool keeps count of the bytes lent
+ * out, so a missing release shows up as {@link #getBytesOutstanding()} that
+ * never returns to zero. For very small, short-lived buffers,
+ * {@link org.lwjgl.system.MemoryStack} is still the better choice.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public final class BufferPool {
+
+	/**
+	 * The pool shared by the whole engine for staging uploads to OpenGL
+	 */
+	public static final BufferPool SHARED = new BufferPool(64L * 1024 * 1024);
+
+	/* Smallest block is 2^MIN_SHIFT bytes, largest is 2^MAX_SHIFT bytes */
+	private static final int MIN_SHIFT = 8, MAX_SHIFT = 30;
+
+	private final long maxPooledBytes;
+
+	private final ArrayDeque<PooledBuffer>[] freeLists;
+
+	private final AtomicLong bytesOutstanding = new AtomicLong(), bytesPooled = new AtomicLong();
+	private final AtomicLong acquireCount = new AtomicLong(), allocationCount = new AtomicLong();
+
+	/**
+	 * Constructs an empty pool.
+	 * 
+	 * @param maxPooledBytes
+	 *            the most memory that will be held on to for reuse; blocks released
+	 *            past this are freed
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public BufferPool(long maxPooledBytes) {
+		this.maxPooledBytes = maxPooledBytes;
+
+		freeLists = new ArrayDeque[MAX_SHIFT - MIN_SHIFT + 1];
+		for (int i = 0; i < freeLists.length; i++) {
+			freeLists[i] = new ArrayDeque<PooledBuffer>();
+		}
+	}
+
+	/**
+	 * Lends out a buffer of at least the specified number of bytes, reusing a
+	 * pooled block if one of the right size class is free. The buffer's contents
+	 * are undefined.
+	 * 
+	 * @param sizeBytes
+	 *            the number of bytes needed
+	 * @return the buffer, which must later be released
+	 */
+	public PooledBuffer acquire(int sizeBytes) {
+		if (sizeBytes < 0 || sizeBytes > (1 << MAX_SHIFT)) {
+			throw new IllegalArgumentException("Cannot pool a buffer of " + sizeBytes + " bytes");
+		}
+
+		int sizeClass = sizeClassOf(sizeBytes);
+		ArrayDeque<PooledBuffer> freeList = freeLists[sizeClass];
+
+		PooledBuffer buffer;
+		synchronized (freeList) {
+			buffer = freeList.pollFirst();
+		}
+
+		if (buffer == null) {
+			buffer = new PooledBuffer(this, sizeClass, MemoryUtil.memAlloc(1 << (sizeClass + MIN_SHIFT)));
+			allocationCount.incrementAndGet();
+		} else {
+			bytesPooled.addAndGet(-buffer.capacityBytes());
+		}
+
+		acquireCount.incrementAndGet();
+		bytesOutstanding.addAndGet(buffer.capacityBytes());
+
+		buffer.acquire(sizeBytes);
+		return buffer;
+	}
+
+	/**
+	 * Lends out a buffer large enough for the specified number of floats.
+	 * 
+	 * @param count
+	 *            the number of floats needed
+	 * @return the buffer, which must later be released
+	 */
+	public PooledBuffer acquireFloats(int count) {
+		return acquire(Math.multiplyExact(count, Float.BYTES));
+	}
+
+	/**
+	 * Lends out a buffer large enough for the specified number of ints.
+	 * 
+	 * @param count
+	 *            the number of ints needed
+	 * @return the buffer, which must later be released
+	 */
+	public PooledBuffer acquireInts(int count) {
+		return acquire(Math.multiplyExact(count, Integer.BYTES));
+	}
+
+	/**
+	 * Frees every block currently held for reuse. Blocks that are lent out are
+	 * not affected.
+	 */
+	public void trim() {
+		for (ArrayDeque<PooledBuffer> freeList : freeLists) {
+			synchronized (freeList) {
+				PooledBuffer buffer;
+				while ((buffer = freeList.pollFirst()) != null) {
+					bytesPooled.addAndGet(-buffer.capacityBytes());
+					MemoryUtil.memFree(buffer.getBlock());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of bytes in blocks that are currently lent out.
+	 * 
+	 * @return the bytes outstanding
+	 */
+	public long getBytesOutstanding() {
+		return bytesOutstanding.get();
+	}
+
+	/**
+	 * Returns the number of bytes in blocks being held for reuse.
+	 * 
+	 * @return the bytes pooled
+	 */
+	public long getBytesPooled() {
+		return bytesPooled.get();
+	}
+
+	/**
+	 * Returns how many buffers have been lent out in total.
+	 * 
+	 * @return the number of acquires
+	 */
+	public long getAcquireCount() {
+		return acquireCount.get();
+	}
+
+	/**
+	 * Returns how many acquires needed a new block of native memory, rather than
+	 * reusing a pooled one.
+	 * 
+	 * @return the number of native allocations
+	 */
+	public long getAllocationCount() {
+		return allocationCount.get();
+	}
+
+	void release(PooledBuffer buffer) {
+		int capacity = buffer.capacityBytes();
+		bytesOutstanding.addAndGet(-capacity);
+
+		if (bytesPooled.get() + capacity > maxPooledBytes) {
+			MemoryUtil.memFree(buffer.getBlock());
+			return;
+		}
+
+		ArrayDeque<PooledBuffer> freeList = freeLists[buffer.getSizeClass()];
+		synchronized (freeList) {
+			freeList.addFirst(buffer);
+		}
+
+		bytesPooled.addAndGet(capacity);
+	}
+
+	private static int sizeClassOf(int sizeBytes) {
+		if (sizeBytes <= (1 << MIN_SHIFT)) {
+			return 0;
+		}
+
+		/* Rounds up to the next power of two */
+		return 32 - Integer.numberOfLeadingZeros(sizeBytes - 1) - MIN_SHIFT;
+	}
+}
@@ -0,0 +1,51 @@
+package utility;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hashes content into keys, for caches that find things by what they hold
+ * rather than by where they came from. This class behaves in a "static"
+ * fashion in the sense that it is constant and cannot be constructed publicly.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public final class Hashing {
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/* Private so that this class does not accidently get instantiated */
+	private Hashing() {
+	}
+
+	/**
+	 * Returns a new SHA-256 digest, ready to be updated.
+	 * 
+	 * @return the digest, which must only be used by one thread
+	 */
+	public static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			/* Every Java platform is required to support SHA-256 */
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes bytes out as lowercase hexadecimal, two digits per byte.
+	 * 
+	 * @param bytes
+	 *            the bytes, such as a finished digest
+	 * @return the hexadecimal string
+	 */
+	public static String toHex(byte[] bytes) {
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+			hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+		}
+		return new String(hex);
+	}
+}
@@ -0,0 +1,276 @@
+package utility;
+
+import java.io.PrintStream;
+
+/**
+ * The logging and trace facility for Arsia. Logging a message only copies it
+ * into a preallocated ring of entries; a background thread does the formatting
+ * and printing. This keeps slow console output off of the game loop, and as
+ * long as the message is a constant string (with at most one number passed
+ * separately), logging does not allocate. When the ring is full, new messages
+ * are dropped and counted rather than making the caller wait. This class
+ * behaves in a "static" fashion in the sense that it is constant and cannot be
+ * constructed publicly.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public final class Log {
+
+	/**
+	 * How important a message is. Messages below the current level are skipped
+	 * before anything is copied.
+	 */
+	public enum Level {
+		TRACE, DEBUG, INFO, WARN, ERROR, OFF
+	}
+
+	private static final int CAPACITY = 4096;
+
+	/* How often the background thread prints whatever has been logged */
+	private static final long DRAIN_INTERVAL_MS = 5;
+
+	private static final Object LOCK = new Object();
+
+	/* The ring of entries, guarded by LOCK */
+	private static final Level[] levels = new Level[CAPACITY];
+	private static final String[] messages = new String[CAPACITY];
+	private static final long[] values = new long[CAPACITY], timesNs = new long[CAPACITY];
+	private static final boolean[] hasValues = new boolean[CAPACITY];
+	private static long head = 0, tail = 0, dropped = 0;
+
+	private static final long START_TIME_NS = System.nanoTime();
+
+	private static volatile Level level = Level.INFO;
+
+	private static volatile PrintStream out = System.out;
+
+	/* Only touched by whichever thread is draining, under DRAIN_LOCK */
+	private static final Object DRAIN_LOCK = new Object();
+	private static final StringBuilder line = new StringBuilder(256);
+
+	static {
+		Thread sink = new Thread(Log::runSink, "Arsia-Log");
+		sink.setDaemon(true);
+		sink.start();
+	}
+
+	/* Private so that this class does not accidently get instantiated */
+	private Log() {
+	}
+
+	/**
+	 * Sets the lowest level of message that will be logged.
+	 * 
+	 * @param level
+	 *            the new log level
+	 */
+	public static void setLevel(Level level) {
+		Log.level = level;
+	}
+
+	/**
+	 * Sets where log messages are printed, which is standard output by default.
+	 * 
+	 * @param out
+	 *            the stream to print to
+	 */
+	public static void setOutput(PrintStream out) {
+		Log.out = out;
+	}
+
+	/**
+	 * Returns whether messages of the specified level are currently logged. Check
+	 * this before building a message that is not a constant string.
+	 * 
+	 * @param messageLevel
+	 *            the level of the message
+	 * @return true if the message would be logged
+	 */
+	public static boolean isEnabled(Level messageLevel) {
+		return messageLevel.ordinal() >= level.ordinal() && messageLevel != Level.OFF;
+	}
+
+	/**
+	 * Logs a trace message, for things that happen every frame or tick.
+	 * 
+	 * @param message
+	 *            the message, ideally a constant string
+	 * @param value
+	 *            a number printed after the message
+	 */
+	public static void trace(String message, long value) {
+		log(Level.TRACE, message, value, true);
+	}
+
+	/**
+	 * Logs a debug message.
+	 * 
+	 * @param message
+	 *            the message, ideally a constant string
+	 */
+	public static void debug(String message) {
+		log(Level.DEBUG, message, 0, false);
+	}
+
+	/**
+	 * Logs a debug message.
+	 * 
+	 * @param message
+	 *            the message, ideally a constant string
+	 * @param value
+	 *            a number printed after the message
+	 */
+	public static void debug(String message, long value) {
+		log(Level.DEBUG, message, value, true);
+	}
+
+	/**
+	 * Logs an informational message.
+	 * 
+	 * @param message
+	 *            the message, ideally a constant string
+	 */
+	public static void info(String message) {
+		log(Level.INFO, message, 0, false);
+	}
+
+	/**
+	 * Logs a warning message.
+	 * 
+	 * @param message
+	 *            the message, ideally a constant string
+	 */
+	public static void warn(String message) {
+		log(Level.WARN, message, 0, false);
+	}
+
+	/**
+	 * Logs an error message.
+	 * 
+	 * @param message
+	 *            the message, ideally a constant string
+	 */
+	public static void error(String message) {
+		log(Level.ERROR, message, 0, false);
+	}
+
+	/**
+	 * Logs a message at the specified level.
+	 * 
+	 * @param messageLevel
+	 *            the level of the message
+	 * @param message
+	 *            the message, ideally a constant string
+	 * @param value
+	 *            a number printed after the message, if hasValue is true
+	 * @param hasValue
+	 *            whether the value should be printed
+	 */
+	public static void log(Level messageLevel, String message, long value, boolean hasValue) {
+		if (!isEnabled(messageLevel)) {
+			return;
+		}
+
+		long timeNs = System.nanoTime();
+
+		synchronized (LOCK) {
+			if (tail - head == CAPACITY) {
+				dropped++;
+				return;
+			}
+
+			int slot = (int) (tail % CAPACITY);
+			levels[slot] = messageLevel;
+			messages[slot] = message;
+			values[slot] = value;
+			hasValues[slot] = hasValue;
+			timesNs[slot] = timeNs;
+			tail++;
+		}
+	}
+
+	/**
+	 * Prints every message logged so far, on the calling thread. Call this before
+	 * the game exits, as the background printing thread does not keep the game
+	 * running.
+	 */
+	public static void flush() {
+		synchronized (DRAIN_LOCK) {
+			drain();
+		}
+	}
+
+	private static void runSink() {
+		while (true) {
+			try {
+				Thread.sleep(DRAIN_INTERVAL_MS);
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			flush();
+		}
+	}
+
+	/* Must hold DRAIN_LOCK */
+	private static void drain() {
+		PrintStream stream = out;
+		boolean printed = false;
+
+		while (true) {
+			Level entryLevel;
+			String message;
+			long value, timeNs, droppedCount;
+			boolean hasValue;
+
+			synchronized (LOCK) {
+				if (head == tail) {
+					break;
+				}
+
+				int slot = (int) (head % CAPACITY);
+				entryLevel = levels[slot];
+				message = messages[slot];
+				value = values[slot];
+				hasValue = hasValues[slot];
+				timeNs = timesNs[slot];
+				messages[slot] = null;
+				head++;
+
+				droppedCount = dropped;
+				dropped = 0;
+			}
+
+			if (droppedCount > 0) {
+				stream.println("[Log] " + droppedCount + " messages dropped, log ring was full");
+			}
+
+			line.setLength(0);
+			appendTime(timeNs - START_TIME_NS);
+			line.append(' ').append(entryLevel).append(' ').append(message);
+			if (hasValue) {
+				line.append(": ").append(value);
+			}
+
+			stream.append(line).append(System.lineSeparator());
+			printed = true;
+		}
+
+		if (printed) {
+			stream.flush();
+		}
+	}
+
+	private static void appendTime(long elapsedNs) {
+		long micros = elapsedNs / 1000;
+		line.append('[').append(micros / 1000000).append('.');
+
+		String fraction = Long.toString(micros % 1000000);
+		for (int i = fraction.length(); i < 6; i++) {
+			line.append('0');
+		}
+
+		line.append(fraction).append(']');
+	}
+}
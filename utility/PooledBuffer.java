@@ -0,0 +1,132 @@
+package utility;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * A block of off-heap memory that has been lent out by a
+ * {@link utility.BufferPool}. The memory can be viewed as bytes, shorts, ints,
+ * or floats; the views are created once along with the block, so asking for one
+ * never allocates. Once the data has been handed to OpenGL, the block must be
+ * given back to its pool by calling {@link #release()}, after which it must no
+ * longer be used.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public final class PooledBuffer {
+
+	private final BufferPool pool;
+	private final int sizeClass;
+
+	private final ByteBuffer bytes;
+	private final ShortBuffer shorts;
+	private final IntBuffer ints;
+	private final FloatBuffer floats;
+
+	/* Only read and written while the buffer is owned by a single thread */
+	private boolean released = true;
+	private int requestedBytes = 0;
+
+	PooledBuffer(BufferPool pool, int sizeClass, ByteBuffer bytes) {
+		this.pool = pool;
+		this.sizeClass = sizeClass;
+		this.bytes = bytes;
+		this.shorts = bytes.asShortBuffer();
+		this.ints = bytes.asIntBuffer();
+		this.floats = bytes.asFloatBuffer();
+	}
+
+	/**
+	 * Returns the memory as a byte buffer, with its position at zero and its
+	 * limit at the number of bytes that were asked for.
+	 * 
+	 * @return the byte view of this buffer
+	 */
+	public ByteBuffer getByteBuffer() {
+		checkNotReleased();
+		bytes.clear().limit(requestedBytes);
+		return bytes;
+	}
+
+	/**
+	 * Returns the memory as a short buffer, with its position at zero and its
+	 * limit at the number of whole shorts that fit in the bytes asked for.
+	 * 
+	 * @return the short view of this buffer
+	 */
+	public ShortBuffer getShortBuffer() {
+		checkNotReleased();
+		shorts.clear().limit(requestedBytes / Short.BYTES);
+		return shorts;
+	}
+
+	/**
+	 * Returns the memory as an int buffer, with its position at zero and its
+	 * limit at the number of whole ints that fit in the bytes asked for.
+	 * 
+	 * @return the int view of this buffer
+	 */
+	public IntBuffer getIntBuffer() {
+		checkNotReleased();
+		ints.clear().limit(requestedBytes / Integer.BYTES);
+		return ints;
+	}
+
+	/**
+	 * Returns the memory as a float buffer, with its position at zero and its
+	 * limit at the number of whole floats that fit in the bytes asked for.
+	 * 
+	 * @return the float view of this buffer
+	 */
+	public FloatBuffer getFloatBuffer() {
+		checkNotReleased();
+		floats.clear().limit(requestedBytes / Float.BYTES);
+		return floats;
+	}
+
+	/**
+	 * Returns the number of bytes that were asked for when this buffer was
+	 * acquired. The underlying block may be larger.
+	 * 
+	 * @return the size of this buffer in bytes
+	 */
+	public int sizeBytes() {
+		return requestedBytes;
+	}
+
+	/**
+	 * Gives this buffer back to the pool it came from. The buffer, and any view
+	 * of it, must not be used again.
+	 */
+	public void release() {
+		checkNotReleased();
+		released = true;
+		pool.release(this);
+	}
+
+	int getSizeClass() {
+		return sizeClass;
+	}
+
+	int capacityBytes() {
+		return bytes.capacity();
+	}
+
+	ByteBuffer getBlock() {
+		return bytes;
+	}
+
+	void acquire(int requestedBytes) {
+		this.requestedBytes = requestedBytes;
+		this.released = false;
+	}
+
+	private void checkNotReleased() {
+		if (released) {
+			throw new IllegalStateException("Pooled buffer used after it was released");
+		}
+	}
+}
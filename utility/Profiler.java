@@ -0,0 +1,242 @@
+package utility;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A lightweight profiler for the game loop's hot path. Named scopes, such as
+ * input, tick or render, are registered once up front; after that, each scope
+ * records its most recent samples into its own preallocated ring buffer, so
+ * timing a scope every frame never allocates. Samples are either durations,
+ * recorded with {@link #begin(int)} and {@link #end(int)}, or plain values,
+ * recorded with {@link #record(int, long)}.
+ * 
+ * <p>
+ * Rolling percentiles of every scope can be read at any time through
+ * {@link #getPercentile(int, double)}, and, if a dump file is set, are
+ * appended to that file at a fixed interval from {@link #endFrame()}. A
+ * profiler must only be used from a single thread.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class Profiler {
+
+	private final int historySize;
+
+	private String[] names = new String[0];
+	private long[][] samples = new long[0][];
+	private long[] startTimesNs = new long[0];
+	private int[] counts = new int[0], nextIndices = new int[0];
+
+	/* Reused when sorting samples for percentiles, so that reads do not allocate */
+	private final long[] scratch;
+
+	private int frameScope = -1;
+	private long frameStartNs = 0;
+
+	private Path dumpFile = null;
+	private long dumpIntervalNs = 0, lastDumpNs = 0;
+
+	/**
+	 * Constructs a profiler with only the built-in "frame" scope.
+	 * 
+	 * @param historySize
+	 *            how many of the most recent samples each scope keeps
+	 */
+	public Profiler(int historySize) {
+		this.historySize = historySize;
+		this.scratch = new long[historySize];
+		this.frameScope = register("frame");
+	}
+
+	/**
+	 * Registers a new scope. Call this during setup, as it allocates the scope's
+	 * ring buffer.
+	 * 
+	 * @param name
+	 *            the name of the scope, as shown in dumps
+	 * @return the id of the scope, to be passed to the other methods
+	 */
+	public int register(String name) {
+		int id = names.length;
+
+		names = Arrays.copyOf(names, id + 1);
+		samples = Arrays.copyOf(samples, id + 1);
+		startTimesNs = Arrays.copyOf(startTimesNs, id + 1);
+		counts = Arrays.copyOf(counts, id + 1);
+		nextIndices = Arrays.copyOf(nextIndices, id + 1);
+
+		names[id] = name;
+		samples[id] = new long[historySize];
+		return id;
+	}
+
+	/**
+	 * Marks the start of a timed scope.
+	 * 
+	 * @param scope
+	 *            the id of the scope
+	 */
+	public void begin(int scope) {
+		startTimesNs[scope] = System.nanoTime();
+	}
+
+	/**
+	 * Marks the end of a timed scope, and records how long it took since the
+	 * matching {@link #begin(int)}.
+	 * 
+	 * @param scope
+	 *            the id of the scope
+	 */
+	public void end(int scope) {
+		record(scope, System.nanoTime() - startTimesNs[scope]);
+	}
+
+	/**
+	 * Records a single sample for a scope, for values that are not timed between
+	 * begin and end, such as how much time the game loop has yet to tick.
+	 * 
+	 * @param scope
+	 *            the id of the scope
+	 * @param value
+	 *            the sample to be recorded
+	 */
+	public void record(int scope, long value) {
+		int index = nextIndices[scope];
+		samples[scope][index] = value;
+		nextIndices[scope] = index + 1 == historySize ? 0 : index + 1;
+
+		if (counts[scope] < historySize) {
+			counts[scope]++;
+		}
+	}
+
+	/**
+	 * Marks the end of a frame, recording the time since the previous call to the
+	 * built-in "frame" scope, and writing to the dump file if it is due.
+	 */
+	public void endFrame() {
+		long now = System.nanoTime();
+
+		if (frameStartNs != 0) {
+			record(frameScope, now - frameStartNs);
+		}
+		frameStartNs = now;
+
+		if (dumpFile != null && now - lastDumpNs >= dumpIntervalNs) {
+			lastDumpNs = now;
+			dump();
+		}
+	}
+
+	/**
+	 * Returns the specified percentile of a scope's recent samples, using the
+	 * nearest-rank method. For example, 0.99 gives the p99 value.
+	 * 
+	 * @param scope
+	 *            the id of the scope
+	 * @param percentile
+	 *            the percentile, from 0 to 1
+	 * @return the sample at that percentile, or zero if there are no samples yet
+	 */
+	public long getPercentile(int scope, double percentile) {
+		int count = counts[scope];
+		if (count == 0) {
+			return 0;
+		}
+
+		System.arraycopy(samples[scope], 0, scratch, 0, count);
+		Arrays.sort(scratch, 0, count);
+
+		int rank = (int) Math.ceil(percentile * count) - 1;
+		return scratch[Math.max(0, Math.min(count - 1, rank))];
+	}
+
+	/**
+	 * Returns the most recent sample of a scope.
+	 * 
+	 * @param scope
+	 *            the id of the scope
+	 * @return the latest sample, or zero if there are no samples yet
+	 */
+	public long getLatest(int scope) {
+		if (counts[scope] == 0) {
+			return 0;
+		}
+
+		int index = nextIndices[scope];
+		return samples[scope][(index == 0 ? historySize : index) - 1];
+	}
+
+	/**
+	 * Returns the id of the built-in scope timing whole frames.
+	 * 
+	 * @return the frame scope id
+	 */
+	public int getFrameScope() {
+		return frameScope;
+	}
+
+	/**
+	 * Returns the number of scopes, including the built-in frame scope. Scope ids
+	 * run from zero up to this count.
+	 * 
+	 * @return the number of scopes
+	 */
+	public int getScopeCount() {
+		return names.length;
+	}
+
+	/**
+	 * Returns the name of a scope.
+	 * 
+	 * @param scope
+	 *            the id of the scope
+	 * @return the scope's name
+	 */
+	public String getName(int scope) {
+		return names[scope];
+	}
+
+	/**
+	 * Sets a file that the percentiles of every scope are appended to, once per
+	 * interval. Passing null stops dumping.
+	 * 
+	 * @param dumpFile
+	 *            the file to append to, or null
+	 * @param intervalNs
+	 *            how often to append, in nanoseconds
+	 */
+	public void setDumpFile(Path dumpFile, long intervalNs) {
+		this.dumpFile = dumpFile;
+		this.dumpIntervalNs = intervalNs;
+		this.lastDumpNs = System.nanoTime();
+	}
+
+	/**
+	 * Appends one line per scope to the dump file, giving the p50, p99 and max of
+	 * that scope's samples. Failing to write is logged, not thrown, so profiling
+	 * can never crash the game.
+	 */
+	public void dump() {
+		try (Writer writer = Files.newBufferedWriter(dumpFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND)) {
+			long timeMs = System.currentTimeMillis();
+
+			for (int scope = 0; scope < names.length; scope++) {
+				writer.write(timeMs + "\t" + names[scope] + "\tp50=" + getPercentile(scope, 0.5) + "\tp99="
+						+ getPercentile(scope, 0.99) + "\tmax=" + getPercentile(scope, 1) + "\n");
+			}
+		} catch (IOException e) {
+			Log.warn("Unable to write profiler dump file");
+			dumpFile = null;
+		}
+	}
+}
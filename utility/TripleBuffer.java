@@ -0,0 +1,84 @@
+package utility;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A lock-free triple buffer for handing data from exactly one writer thread to
+ * exactly one reader thread. The writer fills the back buffer and publishes it,
+ * the reader takes whichever buffer was published most recently, and neither
+ * side ever waits on the other. The third buffer sits between the two, so that
+ * the writer always has a buffer free to fill while the reader still holds the
+ * previous one.
+ * 
+ * <p>
+ * The buffers themselves are created once and then reused, so nothing is
+ * allocated per publish. Because the writer gets back a buffer that was last
+ * filled two publishes ago, it must completely overwrite the back buffer every
+ * time, and the reader must treat the front buffer as read-only.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ * @param <T>
+ *            the type of data being handed between threads
+ *
+ */
+public final class TripleBuffer<T> {
+
+	/* Set on the middle index when it holds data the reader has not yet seen */
+	private static final int DIRTY = 4, INDEX_MASK = 3;
+
+	private final Object[] buffers = new Object[3];
+
+	/* Only touched by the writer and the reader thread, respectively */
+	private int back = 0, front = 1;
+
+	private final AtomicInteger middle = new AtomicInteger(2);
+
+	/**
+	 * Constructs the triple buffer, creating all three of its buffers up front.
+	 * 
+	 * @param factory
+	 *            creates each of the three buffers
+	 */
+	public TripleBuffer(Supplier<T> factory) {
+		for (int i = 0; i < buffers.length; i++) {
+			buffers[i] = factory.get();
+		}
+	}
+
+	/**
+	 * Returns the buffer that the writer thread should fill next. Must only be
+	 * called from the writer thread.
+	 * 
+	 * @return the current back buffer
+	 */
+	@SuppressWarnings("unchecked")
+	public T getBackBuffer() {
+		return (T) buffers[back];
+	}
+
+	/**
+	 * Publishes the back buffer to the reader, and makes a different buffer the
+	 * new back buffer. Must only be called from the writer thread.
+	 */
+	public void publish() {
+		back = middle.getAndSet(back | DIRTY) & INDEX_MASK;
+	}
+
+	/**
+	 * Returns the most recently published buffer. If nothing new has been
+	 * published since the previous call, the same buffer is returned again. Must
+	 * only be called from the reader thread.
+	 * 
+	 * @return the current front buffer
+	 */
+	@SuppressWarnings("unchecked")
+	public T getFrontBuffer() {
+		if ((middle.get() & DIRTY) != 0) {
+			front = middle.getAndSet(front) & INDEX_MASK;
+		}
+
+		return (T) buffers[front];
+	}
+}
@@ -8,7 +8,10 @@ import org.lwjgl.BufferUtils;
 /**
  * Deals with conversions of non-primitive data types such as arrays to buffers.
  * This class behaves in a "static" fashion in the sense that it is constant and
- * cannot be constructed publicly.
+ * cannot be constructed publicly. Conversions that create a new buffer leave it
+ * to the garbage collector to free; for repeated or large conversions, prefer
+ * the methods that write into a {@link utility.PooledBuffer} or a buffer the
+ * caller already has.
  * 
  * @author Matthew L. Roy
  *
@@ -53,4 +56,72 @@ public final class TypeConversions {
 		buffer.flip();
 		return buffer;
 	}
+
+	/**
+	 * Copies a float array into the specified buffer, starting at the buffer's
+	 * position, and then flips the buffer so it is in a read-from state. Nothing
+	 * is allocated.
+	 * 
+	 * @param data
+	 *            the data to be transferred into the buffer
+	 * @param buffer
+	 *            the buffer to be written to, with room for all of the data
+	 * @return the same buffer that was passed in
+	 */
+	public static FloatBuffer floatArrayToFloatBuffer(float[] data, FloatBuffer buffer) {
+		buffer.put(data);
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Copies an int array into the specified buffer, starting at the buffer's
+	 * position, and then flips the buffer so it is in a read-from state. Nothing
+	 * is allocated.
+	 * 
+	 * @param data
+	 *            the data to be transferred into the buffer
+	 * @param buffer
+	 *            the buffer to be written to, with room for all of the data
+	 * @return the same buffer that was passed in
+	 */
+	public static IntBuffer intArrayToIntBuffer(int[] data, IntBuffer buffer) {
+		buffer.put(data);
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Takes in a float array and copies it into a buffer borrowed from
+	 * {@link utility.BufferPool#SHARED}. Calling
+	 * {@link utility.PooledBuffer#getFloatBuffer()} on the returned buffer gives
+	 * the data in a read-from state. The buffer must be released once it is no
+	 * longer needed.
+	 * 
+	 * @param data
+	 *            the data to be transferred into the buffer
+	 * @return the pooled buffer holding the data
+	 */
+	public static PooledBuffer floatArrayToPooledBuffer(float[] data) {
+		PooledBuffer pooled = BufferPool.SHARED.acquireFloats(data.length);
+		pooled.getFloatBuffer().put(data);
+		return pooled;
+	}
+
+	/**
+	 * Takes in an int array and copies it into a buffer borrowed from
+	 * {@link utility.BufferPool#SHARED}. Calling
+	 * {@link utility.PooledBuffer#getIntBuffer()} on the returned buffer gives
+	 * the data in a read-from state. The buffer must be released once it is no
+	 * longer needed.
+	 * 
+	 * @param data
+	 *            the data to be transferred into the buffer
+	 * @return the pooled buffer holding the data
+	 */
+	public static PooledBuffer intArrayToPooledBuffer(int[] data) {
+		PooledBuffer pooled = BufferPool.SHARED.acquireInts(data.length);
+		pooled.getIntBuffer().put(data);
+		return pooled;
+	}
 }
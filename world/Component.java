@@ -0,0 +1,179 @@
+package world;
+
+import java.util.Arrays;
+
+/**
+ * One kind of data that entities can have, such as a position or a velocity,
+ * stored for every entity that has it in columns of primitives. Entities with
+ * the component are packed together at the start of the columns, so a system
+ * can walk straight through them, from dense index zero up to {@link #size()},
+ * without skipping over entities that lack it. Removing an entity moves the
+ * last entity into its place, so dense indices are only stable between
+ * structural changes.
+ * 
+ * <p>
+ * Subclasses hold the actual columns; see {@link world.FloatComponent} and
+ * {@link world.IntComponent}. Components are added to and removed from
+ * entities through their {@link world.World}.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public abstract class Component {
+
+	/* The capacity the columns are first created with */
+	static final int INITIAL_CAPACITY = 64;
+
+	private final String name;
+
+	/* The dense index of each entity index, or -1 if it lacks this component */
+	private int[] sparse = new int[0];
+
+	/* The entity at each dense index */
+	private int[] entities = new int[INITIAL_CAPACITY];
+
+	private int size = 0;
+
+	/**
+	 * Constructs a component with no entities.
+	 * 
+	 * @param name
+	 *            the name of the component, for debugging
+	 */
+	protected Component(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns whether an entity has this component.
+	 * 
+	 * @param entity
+	 *            the entity
+	 * @return true if the entity has this component
+	 */
+	public boolean has(int entity) {
+		return indexOf(entity) != -1;
+	}
+
+	/**
+	 * Returns where an entity's data is in the columns.
+	 * 
+	 * @param entity
+	 *            the entity
+	 * @return the dense index of the entity, or -1 if it lacks this component
+	 */
+	public int indexOf(int entity) {
+		int index = World.indexOf(entity);
+		if (index >= sparse.length) {
+			return -1;
+		}
+
+		/* A destroyed entity's old handle no longer matches the stored one */
+		int dense = sparse[index];
+		return dense != -1 && entities[dense] == entity ? dense : -1;
+	}
+
+	/**
+	 * Returns the entity at a dense index.
+	 * 
+	 * @param denseIndex
+	 *            the dense index, from zero up to {@link #size()}
+	 * @return the entity
+	 */
+	public int getEntity(int denseIndex) {
+		return entities[denseIndex];
+	}
+
+	/**
+	 * Returns the number of entities with this component.
+	 * 
+	 * @return the entity count
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the name of this component.
+	 * 
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	/* Returns the dense index of the entity, with its data cleared to zero */
+	int add(int entity) {
+		int existing = indexOf(entity);
+		if (existing != -1) {
+			return existing;
+		}
+
+		int index = World.indexOf(entity);
+		if (index >= sparse.length) {
+			int oldLength = sparse.length;
+			sparse = Arrays.copyOf(sparse, Math.max(INITIAL_CAPACITY, Math.max(index + 1, oldLength * 2)));
+			Arrays.fill(sparse, oldLength, sparse.length, -1);
+		}
+
+		if (size == entities.length) {
+			entities = Arrays.copyOf(entities, size * 2);
+			growColumns(size * 2);
+		}
+
+		int dense = size++;
+		sparse[index] = dense;
+		entities[dense] = entity;
+		clear(dense);
+		return dense;
+	}
+
+	void remove(int entity) {
+		int dense = indexOf(entity);
+		if (dense == -1) {
+			return;
+		}
+
+		int last = --size;
+		if (dense != last) {
+			int moved = entities[last];
+			entities[dense] = moved;
+			sparse[World.indexOf(moved)] = dense;
+			move(last, dense);
+		}
+
+		sparse[World.indexOf(entity)] = -1;
+	}
+
+	/**
+	 * Grows every column to hold the specified number of entities.
+	 * 
+	 * @param capacity
+	 *            the new capacity, in entities
+	 */
+	protected abstract void growColumns(int capacity);
+
+	/**
+	 * Copies one entity's data from one dense index to another.
+	 * 
+	 * @param from
+	 *            the dense index to copy from
+	 * @param to
+	 *            the dense index to copy to
+	 */
+	protected abstract void move(int from, int to);
+
+	/**
+	 * Clears one entity's data to zero.
+	 * 
+	 * @param denseIndex
+	 *            the dense index of the entity
+	 */
+	protected abstract void clear(int denseIndex);
+}
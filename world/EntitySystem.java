@@ -0,0 +1,39 @@
+package world;
+
+/**
+ * Game logic that runs once per tick over the entities of a
+ * {@link world.World}. A system declares up front which components it reads
+ * and which it writes, and the {@link world.SystemScheduler} uses that to run
+ * systems that do not touch the same data at the same time, on different
+ * threads. A system must only touch the components it declares, and must not
+ * create or destroy entities or add or remove components.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public interface EntitySystem {
+
+	/**
+	 * Returns the components this system only reads. Called once, when the system
+	 * is added to a scheduler.
+	 * 
+	 * @return the components read
+	 */
+	Component[] getReads();
+
+	/**
+	 * Returns the components this system writes, and may also read. Called once,
+	 * when the system is added to a scheduler.
+	 * 
+	 * @return the components written
+	 */
+	Component[] getWrites();
+
+	/**
+	 * Runs this system for one tick.
+	 * 
+	 * @param world
+	 *            the world being ticked
+	 */
+	void update(World world);
+}
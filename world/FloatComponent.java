@@ -0,0 +1,102 @@
+package world;
+
+import java.util.Arrays;
+
+/**
+ * A component made of a fixed number of floats per entity, such as three for a
+ * position. All of the floats live in one array, entity after entity, so the
+ * element of the entity at dense index i is at {@code i * getWidth() + element}
+ * in {@link #getData()}. Systems should work on that array directly.
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class FloatComponent extends Component {
+
+	private final int width;
+
+	private float[] data;
+
+	/**
+	 * Constructs a float component.
+	 * 
+	 * @param name
+	 *            the name of the component, for debugging
+	 * @param width
+	 *            how many floats each entity has
+	 */
+	public FloatComponent(String name, int width) {
+		super(name);
+		this.width = width;
+		this.data = new float[INITIAL_CAPACITY * width];
+	}
+
+	/**
+	 * Returns the array holding every entity's floats. The array is replaced when
+	 * the component grows, so do not keep it across structural changes.
+	 * 
+	 * @return the data array
+	 */
+	public float[] getData() {
+		return data;
+	}
+
+	/**
+	 * Returns how many floats each entity has.
+	 * 
+	 * @return the width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns one of an entity's floats.
+	 * 
+	 * @param entity
+	 *            an entity with this component
+	 * @param element
+	 *            which of the entity's floats, from zero up to the width
+	 * @return the value
+	 */
+	public float get(int entity, int element) {
+		return data[checkedIndexOf(entity) * width + element];
+	}
+
+	/**
+	 * Sets one of an entity's floats.
+	 * 
+	 * @param entity
+	 *            an entity with this component
+	 * @param element
+	 *            which of the entity's floats, from zero up to the width
+	 * @param value
+	 *            the new value
+	 */
+	public void set(int entity, int element, float value) {
+		data[checkedIndexOf(entity) * width + element] = value;
+	}
+
+	@Override
+	protected void growColumns(int capacity) {
+		data = Arrays.copyOf(data, capacity * width);
+	}
+
+	@Override
+	protected void move(int from, int to) {
+		System.arraycopy(data, from * width, data, to * width, width);
+	}
+
+	@Override
+	protected void clear(int denseIndex) {
+		Arrays.fill(data, denseIndex * width, (denseIndex + 1) * width, 0f);
+	}
+
+	private int checkedIndexOf(int entity) {
+		int dense = indexOf(entity);
+		if (dense == -1) {
+			throw new IllegalArgumentException("Entity " + entity + " does not have " + getName());
+		}
+		return dense;
+	}
+}
@@ -0,0 +1,63 @@
+package world;
+
+/**
+ * Moves every entity that has both a position and a velocity by its velocity,
+ * once per tick. Both components must have the same width, such as three for
+ * (X, Y, Z).
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class MovementSystem implements EntitySystem {
+
+	private final FloatComponent position, velocity;
+
+	private final float secondsPerTick;
+
+	/**
+	 * Constructs a movement system.
+	 * 
+	 * @param position
+	 *            the position component, which is written
+	 * @param velocity
+	 *            the velocity component, in units per second, which is read
+	 * @param secondsPerTick
+	 *            the length of a tick, in seconds
+	 */
+	public MovementSystem(FloatComponent position, FloatComponent velocity, float secondsPerTick) {
+		if (position.getWidth() != velocity.getWidth()) {
+			throw new IllegalArgumentException("Position and velocity must have the same width");
+		}
+
+		this.position = position;
+		this.velocity = velocity;
+		this.secondsPerTick = secondsPerTick;
+	}
+
+	@Override
+	public Component[] getReads() {
+		return new Component[] { velocity };
+	}
+
+	@Override
+	public Component[] getWrites() {
+		return new Component[] { position };
+	}
+
+	@Override
+	public void update(World world) {
+		float[] positions = position.getData(), velocities = velocity.getData();
+		int width = position.getWidth();
+
+		for (int v = 0; v < velocity.size(); v++) {
+			int p = position.indexOf(velocity.getEntity(v));
+			if (p == -1) {
+				continue;
+			}
+
+			for (int i = 0; i < width; i++) {
+				positions[p * width + i] += velocities[v * width + i] * secondsPerTick;
+			}
+		}
+	}
+}
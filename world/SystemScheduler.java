@@ -0,0 +1,195 @@
+package world;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a list of {@link world.EntitySystem}s once per tick, in parallel where
+ * that is safe. Two systems conflict if either one writes a component the
+ * other reads or writes. Systems are grouped into stages: each system goes in
+ * the first stage after every earlier system it conflicts with, so conflicting
+ * systems always run in the order they were added, and the systems within a
+ * stage run at the same time on a {@link java.util.concurrent.ForkJoinPool}.
+ * 
+ * <p>
+ * The stages and the tasks that run them are built once, when systems are
+ * added, and reused every tick, so running the scheduler does not allocate.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class SystemScheduler {
+
+	private final ForkJoinPool pool;
+
+	private final List<EntitySystem> systems = new ArrayList<EntitySystem>();
+	private final List<Component[]> reads = new ArrayList<Component[]>(), writes = new ArrayList<Component[]>();
+
+	/* The stage of every system, in the order they were added */
+	private int[] stageOf = new int[0];
+
+	private StageTask[] stages = new StageTask[0];
+
+	private World world = null;
+
+	/**
+	 * Constructs a scheduler that runs systems on the common fork-join pool.
+	 */
+	public SystemScheduler() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructs a scheduler that runs systems on the specified pool.
+	 * 
+	 * @param pool
+	 *            the pool to run systems on
+	 */
+	public SystemScheduler(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Adds a system to run after every system already added that it conflicts
+	 * with.
+	 * 
+	 * @param system
+	 *            the system to be added
+	 */
+	public void add(EntitySystem system) {
+		Component[] systemReads = system.getReads(), systemWrites = system.getWrites();
+
+		int stage = 0;
+		for (int i = 0; i < systems.size(); i++) {
+			if (conflicts(systemReads, systemWrites, reads.get(i), writes.get(i))) {
+				stage = Math.max(stage, stageOf[i] + 1);
+			}
+		}
+
+		systems.add(system);
+		reads.add(systemReads);
+		writes.add(systemWrites);
+		stageOf = Arrays.copyOf(stageOf, systems.size());
+		stageOf[systems.size() - 1] = stage;
+
+		buildStages();
+	}
+
+	/**
+	 * Runs every system once, stage by stage, returning once they have all
+	 * finished. Must not be called from one of the pool's own threads.
+	 * 
+	 * @param world
+	 *            the world being ticked
+	 */
+	public void run(World world) {
+		this.world = world;
+
+		for (StageTask stage : stages) {
+			if (stage.tasks.length == 1) {
+				/* Nothing to run alongside, so skip handing it to the pool */
+				stage.tasks[0].system.update(world);
+			} else {
+				stage.reinitialize();
+				pool.invoke(stage);
+			}
+		}
+
+		this.world = null;
+	}
+
+	/**
+	 * Returns the number of stages the systems are grouped into. Fewer stages
+	 * than systems means some systems run in parallel.
+	 * 
+	 * @return the stage count
+	 */
+	public int getStageCount() {
+		return stages.length;
+	}
+
+	/**
+	 * Returns the stage a system runs in, counting from zero.
+	 * 
+	 * @param system
+	 *            a system added to this scheduler
+	 * @return the stage, or -1 if the system was not added
+	 */
+	public int getStage(EntitySystem system) {
+		int index = systems.indexOf(system);
+		return index == -1 ? -1 : stageOf[index];
+	}
+
+	private void buildStages() {
+		int stageCount = 0;
+		for (int stage : stageOf) {
+			stageCount = Math.max(stageCount, stage + 1);
+		}
+
+		stages = new StageTask[stageCount];
+		for (int s = 0; s < stageCount; s++) {
+			List<SystemTask> tasks = new ArrayList<SystemTask>();
+			for (int i = 0; i < systems.size(); i++) {
+				if (stageOf[i] == s) {
+					tasks.add(new SystemTask(systems.get(i)));
+				}
+			}
+			stages[s] = new StageTask(tasks.toArray(new SystemTask[0]));
+		}
+	}
+
+	private static boolean conflicts(Component[] readsA, Component[] writesA, Component[] readsB,
+			Component[] writesB) {
+		return overlaps(writesA, writesB) || overlaps(writesA, readsB) || overlaps(readsA, writesB);
+	}
+
+	private static boolean overlaps(Component[] a, Component[] b) {
+		for (Component x : a) {
+			for (Component y : b) {
+				if (x == y) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/* Runs one system, reused every tick */
+	private final class SystemTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final EntitySystem system;
+
+		private SystemTask(EntitySystem system) {
+			this.system = system;
+		}
+
+		@Override
+		protected void compute() {
+			system.update(world);
+		}
+	}
+
+	/* Runs every system of one stage at once, reused every tick */
+	private static final class StageTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final SystemTask[] tasks;
+
+		private StageTask(SystemTask[] tasks) {
+			this.tasks = tasks;
+		}
+
+		@Override
+		protected void compute() {
+			for (SystemTask task : tasks) {
+				task.reinitialize();
+			}
+			invokeAll(tasks);
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package world;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Every entity in the game and the components they have. An entity is only an
+ * int handle: the low {@link #INDEX_BITS} bits are a slot, reused once the
+ * entity is destroyed, and the rest count how many times the slot has been
+ * reused, so that a handle to a destroyed entity never refers to whichever
+ * entity took its slot.
+ * 
+ * <p>
+ * Creating and destroying entities, and adding and removing components, are
+ * structural changes. They must be made on the tick thread, outside of
+ * {@link world.SystemScheduler#run(World)}, as systems running in parallel
+ * walk the component columns without locking.
+ * </p>
+ * 
+ * @author Matthew L. Roy
+ *
+ */
+public class World {
+
+	/**
+	 * The number of bits of an entity handle used for its slot, allowing about
+	 * four million live entities
+	 */
+	public static final int INDEX_BITS = 22;
+
+	private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+
+	private static final int GENERATION_MASK = (1 << (32 - INDEX_BITS)) - 1;
+
+	private final List<Component> components = new ArrayList<Component>();
+
+	/* The current generation of every slot */
+	private int[] generations = new int[64];
+
+	/* Destroyed slots waiting to be reused, as a stack */
+	private int[] freeSlots = new int[64];
+	private int freeCount = 0, slotCount = 0, entityCount = 0;
+
+	/**
+	 * Registers a component so that it is cleaned up when entities are destroyed.
+	 * 
+	 * @param component
+	 *            the component to be registered
+	 * @return the same component, for convenience
+	 */
+	public <T extends Component> T register(T component) {
+		components.add(component);
+		return component;
+	}
+
+	/**
+	 * Creates an entity with no components.
+	 * 
+	 * @return the new entity's handle
+	 */
+	public int create() {
+		int slot;
+		if (freeCount > 0) {
+			slot = freeSlots[--freeCount];
+		} else {
+			if (slotCount > INDEX_MASK) {
+				throw new IllegalStateException("Too many entities");
+			}
+
+			slot = slotCount++;
+			if (slot == generations.length) {
+				generations = Arrays.copyOf(generations, slot * 2);
+			}
+		}
+
+		entityCount++;
+		return (generations[slot] << INDEX_BITS) | slot;
+	}
+
+	/**
+	 * Destroys an entity, removing it from every registered component. Destroying
+	 * an entity that is already destroyed does nothing.
+	 * 
+	 * @param entity
+	 *            the entity to be destroyed
+	 */
+	public void destroy(int entity) {
+		if (!isAlive(entity)) {
+			return;
+		}
+
+		for (int i = 0; i < components.size(); i++) {
+			components.get(i).remove(entity);
+		}
+
+		int slot = indexOf(entity);
+		generations[slot] = (generations[slot] + 1) & GENERATION_MASK;
+
+		if (freeCount == freeSlots.length) {
+			freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+		}
+		freeSlots[freeCount++] = slot;
+		entityCount--;
+	}
+
+	/**
+	 * Returns whether an entity handle refers to an entity that has not been
+	 * destroyed.
+	 * 
+	 * @param entity
+	 *            the entity
+	 * @return true if the entity is alive
+	 */
+	public boolean isAlive(int entity) {
+		int slot = indexOf(entity);
+		return slot < slotCount && generations[slot] == entity >>> INDEX_BITS;
+	}
+
+	/**
+	 * Gives an entity a component, with its data cleared to zero. Giving an entity
+	 * a component it already has leaves its data alone.
+	 * 
+	 * @param entity
+	 *            the entity
+	 * @param component
+	 *            the component
+	 * @return the dense index of the entity's data in the component
+	 */
+	public int add(int entity, Component component) {
+		if (!isAlive(entity)) {
+			throw new IllegalArgumentException("Entity " + entity + " has been destroyed");
+		}
+
+		return component.add(entity);
+	}
+
+	/**
+	 * Takes a component away from an entity, if it has it.
+	 * 
+	 * @param entity
+	 *            the entity
+	 * @param component
+	 *            the component
+	 */
+	public void remove(int entity, Component component) {
+		component.remove(entity);
+	}
+
+	/**
+	 * Returns the number of entities that are alive.
+	 * 
+	 * @return the entity count
+	 */
+	public int getEntityCount() {
+		return entityCount;
+	}
+
+	/**
+	 * Returns the slot of an entity handle, which is what components are indexed
+	 * by.
+	 * 
+	 * @param entity
+	 *            the entity
+	 * @return the slot
+	 */
+	public static int indexOf(int entity) {
+		return entity & INDEX_MASK;
+	}
+}
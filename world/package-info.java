@@ -0,0 +1,9 @@
+/**
+ * This package holds the game world: the entities in it, their components,
+ * stored as columns of primitives rather than as an object per entity, and the
+ * systems that update them every tick.
+ * 
+ * @author Matthew L. Roy
+ * 
+ */
+package world;